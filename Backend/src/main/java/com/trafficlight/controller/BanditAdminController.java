@@ -0,0 +1,106 @@
+package com.trafficlight.controller;
+
+import com.trafficlight.dto.BanditPolicyResponse;
+import com.trafficlight.service.GreenTimeBandit;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.media.Content;
+import io.swagger.v3.oas.annotations.media.Schema;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.responses.ApiResponses;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.TreeSet;
+
+@RestController
+@RequestMapping("/api/admin/bandit")
+@RequiredArgsConstructor
+@Tag(name = "🎰 Adaptive Green Time (Admin)", description = "Kavşak bazlı öğrenen yeşil süre politikası")
+public class BanditAdminController {
+
+    private final GreenTimeBandit greenTimeBandit;
+
+    @Operation(
+        summary = "📋 Bandit durumu",
+        description = "Aktif modu ve politikası öğrenilen kavşakları listeler."
+    )
+    @GetMapping
+    public ResponseEntity<Map<String, Object>> getStatus() {
+        Map<String, Object> response = new HashMap<>();
+        response.put("mode", greenTimeBandit.getMode().name());
+        response.put("trackedIntersections", new TreeSet<>(greenTimeBandit.getTrackedIntersections()));
+        return ResponseEntity.ok(response);
+    }
+
+    @Operation(
+        summary = "🔍 Kavşak politikası ve güven",
+        description = """
+            Kavşağın her yoğunluk dilimi için öğrenilmiş politikasını döndürür.
+
+            **İçerik:**
+            - Her kol (-10, -5, 0, +5, +10 saniye) için gözlem sayısı ve ortalama ödül
+            - %95 güven aralığı
+            - Kolun en iyi olma olasılığı (Thompson çekilişleri)
+            - Önerilen ayar ve güven değeri
+            """
+    )
+    @ApiResponses(value = {
+        @ApiResponse(
+            responseCode = "200",
+            description = "✅ Politika",
+            content = @Content(schema = @Schema(implementation = BanditPolicyResponse.class))
+        )
+    })
+    @GetMapping("/{intersectionId}")
+    public ResponseEntity<BanditPolicyResponse> getPolicy(
+            @PathVariable
+            @Parameter(description = "Kavşak ID'si", example = "1")
+            Long intersectionId) {
+
+        return ResponseEntity.ok(greenTimeBandit.describe(intersectionId));
+    }
+
+    @Operation(
+        summary = "⚙️ Bandit modunu değiştir",
+        description = """
+            **Modlar:**
+            • OFF: Sabit eşikler, öğrenme yok
+            • SHADOW: Sabit eşikler uygulanır, bandit seçimi loglanır
+            • ACTIVE: Bandit seçimi uygulanır
+            """
+    )
+    @PutMapping("/mode")
+    public ResponseEntity<Map<String, Object>> setMode(
+            @RequestParam
+            @Parameter(description = "Yeni mod", example = "SHADOW")
+            GreenTimeBandit.Mode mode) {
+
+        greenTimeBandit.setMode(mode);
+
+        Map<String, Object> response = new HashMap<>();
+        response.put("success", true);
+        response.put("mode", mode.name());
+        return ResponseEntity.ok(response);
+    }
+
+    @Operation(
+        summary = "🗑️ Kavşak politikasını sıfırla",
+        description = "Kavşak için öğrenilen tüm istatistikleri siler."
+    )
+    @DeleteMapping("/{intersectionId}")
+    public ResponseEntity<Map<String, Object>> resetPolicy(
+            @PathVariable
+            @Parameter(description = "Kavşak ID'si", example = "1")
+            Long intersectionId) {
+
+        Map<String, Object> response = new HashMap<>();
+        response.put("success", greenTimeBandit.reset(intersectionId));
+        response.put("intersectionId", intersectionId);
+        return ResponseEntity.ok(response);
+    }
+}
@@ -1,10 +1,21 @@
 package com.trafficlight.controller;
 
+import com.trafficlight.dto.CursorPage;
 import com.trafficlight.dto.EmergencyRequest;
 import com.trafficlight.dto.EmergencyResponse;
+import com.trafficlight.dto.EtaResponse;
+import com.trafficlight.dto.GpsIngestResponse;
+import com.trafficlight.dto.GpsPositionRequest;
+import com.trafficlight.dto.ImpactStatsResponse;
 import com.trafficlight.entity.EmergencyEvent;
 import com.trafficlight.entity.EmergencyVehicle;
+import com.trafficlight.exception.ResourceNotFoundException;
+import com.trafficlight.service.EmergencyGpsTracker;
+import com.trafficlight.service.EmergencyHistoryService;
+import com.trafficlight.service.EmergencyImpactAnalyzer;
+import com.trafficlight.service.EmergencyPreemptionScheduler;
 import com.trafficlight.service.EmergencyService;
+import com.trafficlight.service.PreemptionPlan;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.media.Content;
@@ -14,10 +25,15 @@ import io.swagger.v3.oas.annotations.responses.ApiResponses;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.time.LocalDateTime;
 import java.util.List;
 
 @RestController
@@ -27,22 +43,27 @@ import java.util.List;
 public class EmergencyController {
 
     private final EmergencyService emergencyService;
+    private final EmergencyGpsTracker gpsTracker;
+    private final EmergencyHistoryService historyService;
+    private final EmergencyImpactAnalyzer impactAnalyzer;
 
     @Operation(
         summary = "🚑 Acil araç tespit et ve öncelik ver",
         description = """
             Acil araç (ambulans, itfaiye, polis) tespit edildiğinde bu endpoint çağrılır.
             Sistem otomatik olarak:
-            • Ana kavşağı YEŞIL yapar (60 saniye)
-            • Diğer kavşakları GÜVENLİK için KIRMIZI yapar
-            • Trafik akışını optimize eder
-            • Detaylı log kaydı tutar
+            • Ana kavşağı hemen YEŞİL yapar
+            • Aracın gideceği yöndeki komşu kavşakları zaman ufku içinde bulur
+            • Her kavşağa varıştan önce başlayan kademeli yeşil pencere açar
+            • Çapraz yönleri sadece pencere boyunca KIRMIZI tutar
+            • Detaylı log kaydı tutar (veritabanını beklemeden; kayıtlar arka planda
+              toplu yazılır, /history birkaç milisaniye geriden gelebilir)
             
             **Örnek Senaryo:**
-            Ambulans Kavşak-1'e geldiğinde:
-            - Kavşak-1: 🟢 YEŞİL (60s)
-            - Kavşak-2: 🔴 KIRMIZI (güvenlik)
-            - Kavşak-3: 🔴 KIRMIZI (güvenlik)
+            Ambulans Kavşak-1'e kuzeyden 50 km/sa ile geldiğinde (güneye gidiyor):
+            - Kavşak-1: 🟢 YEŞİL (hemen)
+            - Güneydeki Kavşak-7 (400m, varış 29s): 🟢 21. saniyede
+            - Güneydeki Kavşak-12 (850m, varış 61s): 🟢 53. saniyede
             """
     )
     @ApiResponses(value = {
@@ -70,6 +91,81 @@ public class EmergencyController {
         return ResponseEntity.ok(response);
     }
 
+    @Operation(
+        summary = "📍 Acil araç GPS konumlarını gönder",
+        description = """
+            Acil araçların konumları toplu gönderilir (saniyede 1 veya daha sık).
+            Konumlar kavşak yaklaşım bölgeleriyle bellekteki ızgara üzerinden eşleştirilir:
+            • Araç bir kavşağın yaklaşım bölgesine girip kavşağa yaklaşıyorsa öncelik
+              otomatik başlar (/trigger ile aynı kademeli yeşil plan)
+            • Kavşağı geçip uzaklaştığında ya da bölgeden çıktığında öncelik biter
+            
+            Aynı aracın konumları gönderim sırasıyla işlenir; tarihi eski konumlar atlanır.
+            """
+    )
+    @PostMapping("/gps")
+    public ResponseEntity<GpsIngestResponse> ingestGpsPositions(
+            @RequestBody
+            @Parameter(description = "Araç konumları", required = true)
+            List<GpsPositionRequest> positions) {
+
+        return ResponseEntity.ok(gpsTracker.ingest(positions));
+    }
+
+    @Operation(
+        summary = "⏱️ Canlı varış tahmini",
+        description = """
+            GPS ile takip edilen acil aracın önündeki kavşaklara tahmini varış süreleri.
+            
+            • Hız son konumlardan yumuşatılarak hesaplanır
+            • Kavşaklar arası süre, geçmiş acil geçişlerinden öğrenilen koridor
+              sürelerinden alınır (öğrenilmemiş koridorda hızdan)
+            • Süreler şu ana göredir; son konumdan beri geçen süre düşülür
+            """
+    )
+    @ApiResponses(value = {
+        @ApiResponse(
+            responseCode = "200",
+            description = "✅ Varış tahmini",
+            content = @Content(schema = @Schema(implementation = EtaResponse.class))
+        ),
+        @ApiResponse(
+            responseCode = "404",
+            description = "❌ Araç GPS ile takip edilmiyor"
+        )
+    })
+    @GetMapping("/eta/{vehicleId}")
+    public ResponseEntity<EtaResponse> getEta(
+            @PathVariable
+            @Parameter(description = "Araç ID", example = "AMB-001")
+            String vehicleId) {
+
+        return ResponseEntity.ok(gpsTracker.eta(vehicleId)
+                .orElseThrow(() -> new ResourceNotFoundException("Takip edilen acil araç", "vehicleId", vehicleId)));
+    }
+
+    @Operation(
+        summary = "🗺️ Ön yeşil planını önizle",
+        description = """
+            Acil aracı tetiklemeden, verilen kavşak ve yön için rota üzerindeki
+            kademeli yeşil pencereleri hesaplar. Veritabanına yazmaz.
+            """
+    )
+    @GetMapping("/preemption-plan")
+    public ResponseEntity<PreemptionPlan> previewPreemptionPlan(
+            @RequestParam
+            @Parameter(description = "Aracın bulunduğu kavşak ID'si", example = "1")
+            Long intersectionId,
+            @RequestParam
+            @Parameter(description = "Aracın geldiği yön", example = "NORTH")
+            EmergencyVehicle.Direction direction,
+            @RequestParam(required = false)
+            @Parameter(description = "Aracın hızı (km/sa)", example = "50")
+            Double speedKmh) {
+
+        return ResponseEntity.ok(emergencyService.planPreemption(intersectionId, direction, speedKmh));
+    }
+
     @Operation(
         summary = "✅ Acil durumu sonlandır",
         description = """
@@ -78,6 +174,9 @@ public class EmergencyController {
             • Acil aracı "GEÇTİ" olarak işaretler
             • Tüm kavşakları normal moda döndürür
             • Sonlandırma kaydı oluşturur
+            
+            Çağrılmazsa acil durum son yeşil penceresi bitince (resumeNormalAt)
+            kendiliğinden sonlanır.
             """
     )
     @ApiResponses(value = {
@@ -100,12 +199,48 @@ public class EmergencyController {
         return ResponseEntity.ok(response);
     }
 
+    @Operation(
+        summary = "⏱️ Acil durum süresini uzat",
+        description = """
+            Araç trafikte beklediği için öngörülen sürede geçemediğinde önceliğin
+            otomatik sonlanmasını erteler. Sadece aktif acil durumlar uzatılabilir.
+            """
+    )
+    @ApiResponses(value = {
+        @ApiResponse(
+            responseCode = "200",
+            description = "✅ Süre uzatıldı, yeni bitiş timeInfo.resumeNormalAt"
+        ),
+        @ApiResponse(
+            responseCode = "400",
+            description = "❌ Acil durum aktif değil ya da süre geçersiz"
+        ),
+        @ApiResponse(
+            responseCode = "404",
+            description = "❌ Acil araç bulunamadı"
+        )
+    })
+    @PostMapping("/extend/{vehicleId}")
+    public ResponseEntity<EmergencyResponse> extendEmergency(
+            @PathVariable
+            @Parameter(description = "Acil araç ID'si", example = "1")
+            Long vehicleId,
+            @RequestParam(defaultValue = "30")
+            @Parameter(description = "Ek süre (saniye)", example = "30")
+            int seconds) {
+
+        return ResponseEntity.ok(emergencyService.extendEmergency(vehicleId, seconds));
+    }
+
     @Operation(
         summary = "📋 Aktif acil durumları listele",
         description = """
             Şu anda aktif olan tüm acil durumları listeler.
             Durum: DETECTED veya IN_PROGRESS
             
+            Bellekteki aktif acil durum kaydından sunulur (veritabanı sorgusu yok).
+            Yeni tetiklenen aracın id'si satır yazılana kadar (birkaç ms) boş olabilir.
+            
             **Kullanım:**
             - Dashboard'da aktif durumları göster
             - Çakışan acil durumları tespit et
@@ -119,8 +254,13 @@ public class EmergencyController {
         )
     })
     @GetMapping("/active")
-    public ResponseEntity<List<EmergencyVehicle>> getActiveEmergencies() {
-        List<EmergencyVehicle> emergencies = emergencyService.getActiveEmergencies();
+    public ResponseEntity<List<EmergencyVehicle>> getActiveEmergencies(
+            @RequestParam(required = false)
+            @Parameter(description = "Sadece bu kavşakta tespit edilenler", example = "1")
+            Long intersectionId) {
+        List<EmergencyVehicle> emergencies = intersectionId != null
+                ? emergencyService.getActiveEmergencies(intersectionId)
+                : emergencyService.getActiveEmergencies();
         return ResponseEntity.ok(emergencies);
     }
 
@@ -152,10 +292,70 @@ public class EmergencyController {
         return ResponseEntity.ok(emergencies);
     }
 
+    @Operation(
+        summary = "🚦 Kavşağın acil durum yeşil çizelgesi",
+        description = """
+            Kavşakta yeşil bekleyen tüm acil araçların pencerelerini başlangıç sırasıyla döner.
+            
+            **Karar kuralları:**
+            - Öncelik seviyesi (1 = en yüksek), sonra varış zamanı
+            - Aynı eksende (Kuzey-Güney / Doğu-Batı) örtüşen talepler ortak yeşil alır (MERGED)
+            - Çapraz eksende örtüşen talep öncelikli pencere bitene kadar bekler (QUEUED)
+            """
+    )
+    @GetMapping("/schedule/{intersectionId}")
+    public ResponseEntity<List<EmergencyPreemptionScheduler.Grant>> getPreemptionSchedule(
+            @PathVariable
+            @Parameter(description = "Kavşak ID'si", example = "1")
+            Long intersectionId) {
+
+        return ResponseEntity.ok(emergencyService.getPreemptionSchedule(intersectionId));
+    }
+
+    @Operation(
+        summary = "📉 Acil durum önceliklerinin ölçülen etkisi",
+        description = """
+            Kavşak başına, acil durum yeşil pencerelerinin bekletilen yan yollara etkisini döner
+            (ortalama ek gecikmesi en yüksek kavşak önce).
+            
+            **Ölçüm (yan yol sensör okumalarından):**
+            - Taban: pencereden önceki 5 dakikadaki ortalama kuyruk
+            - Kuyruk artışı: pencere başından normale dönüşe kadar tepe kuyruk - taban
+            - Dönüş süresi: pencere bitişinden kuyruğun tabana inmesine kadar geçen süre
+            - Gecikme: tabanı aşan kuyruğun zaman integrali (araç·saniye)
+            
+            Pencereler, bitişlerinden sonra gözlem süresi (varsayılan 10 dakika) dolunca arka planda analiz edilir.
+            """
+    )
+    @GetMapping("/impact")
+    public ResponseEntity<List<ImpactStatsResponse>> getImpactStats() {
+        return ResponseEntity.ok(impactAnalyzer.allStats());
+    }
+
+    @Operation(
+        summary = "📉 Kavşağın acil durum etki istatistikleri",
+        description = "Kavşağın toplam etki istatistikleri ve son 20 ölçülmüş yeşil penceresi"
+    )
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "200", description = "✅ Etki istatistikleri"),
+        @ApiResponse(responseCode = "404", description = "❌ Kavşak için ölçülmüş pencere yok")
+    })
+    @GetMapping("/impact/{intersectionId}")
+    public ResponseEntity<ImpactStatsResponse> getIntersectionImpact(
+            @PathVariable
+            @Parameter(description = "Kavşak ID'si", example = "1")
+            Long intersectionId) {
+
+        return impactAnalyzer.stats(intersectionId)
+                .map(ResponseEntity::ok)
+                .orElseThrow(() -> new ResourceNotFoundException("Ölçülmüş acil durum etkisi", "intersectionId", intersectionId));
+    }
+
     @Operation(
         summary = "📊 Acil durum geçmişini getir",
         description = """
-            Belirli bir acil aracın tüm olay geçmişini detaylı şekilde getirir.
+            Belirli bir acil aracın olay geçmişini en yeniden eskiye, sayfa sayfa getirir.
+            Sonraki sayfa için yanıttaki nextCursor değeri cursor parametresiyle gönderilir.
             
             **İçerik:**
             - Tespit zamanı
@@ -181,13 +381,98 @@ public class EmergencyController {
         )
     })
     @GetMapping("/history/{vehicleId}")
-    public ResponseEntity<List<EmergencyEvent>> getEmergencyHistory(
+    public ResponseEntity<CursorPage<EmergencyEvent>> getEmergencyHistory(
             @PathVariable 
             @Parameter(description = "Acil araç ID'si", example = "1")
-            Long vehicleId) {
+            Long vehicleId,
+            @RequestParam(required = false)
+            @Parameter(description = "Önceki sayfanın nextCursor değeri (ilk sayfada boş)")
+            String cursor,
+            @RequestParam(required = false)
+            @Parameter(description = "Sayfa boyutu (1-500)", example = "50")
+            Integer size) {
         
-        List<EmergencyEvent> history = emergencyService.getEmergencyHistory(vehicleId);
-        return ResponseEntity.ok(history);
+        return ResponseEntity.ok(historyService.vehicleHistory(vehicleId, cursor, size));
+    }
+
+    @Operation(
+        summary = "🚦 Kavşağın acil durum olay geçmişi",
+        description = """
+            Kavşaktaki acil durum olaylarını en yeniden eskiye, imleçle sayfalı getirir.
+            Sayfa derinliğinden bağımsız olarak (intersection_id, created_at) indeksinden okunur.
+            """
+    )
+    @GetMapping("/events/intersection/{intersectionId}")
+    public ResponseEntity<CursorPage<EmergencyEvent>> getIntersectionEvents(
+            @PathVariable
+            @Parameter(description = "Kavşak ID'si", example = "1")
+            Long intersectionId,
+            @RequestParam(required = false)
+            @Parameter(description = "Önceki sayfanın nextCursor değeri (ilk sayfada boş)")
+            String cursor,
+            @RequestParam(required = false)
+            @Parameter(description = "Sayfa boyutu (1-500)", example = "50")
+            Integer size) {
+
+        return ResponseEntity.ok(historyService.intersectionHistory(intersectionId, cursor, size));
+    }
+
+    @Operation(
+        summary = "📅 Tarih aralığındaki acil durum olayları",
+        description = """
+            [from, to) aralığındaki tüm olayları en yeniden eskiye, imleçle sayfalı getirir.
+            to verilmezse şu ana kadar.
+            """
+    )
+    @GetMapping("/events")
+    public ResponseEntity<CursorPage<EmergencyEvent>> getEventsBetween(
+            @RequestParam
+            @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME)
+            @Parameter(description = "Başlangıç (dahil)", example = "2026-10-01T00:00:00")
+            LocalDateTime from,
+            @RequestParam(required = false)
+            @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME)
+            @Parameter(description = "Bitiş (hariç)", example = "2026-10-19T00:00:00")
+            LocalDateTime to,
+            @RequestParam(required = false)
+            @Parameter(description = "Önceki sayfanın nextCursor değeri (ilk sayfada boş)")
+            String cursor,
+            @RequestParam(required = false)
+            @Parameter(description = "Sayfa boyutu (1-500)", example = "50")
+            Integer size) {
+
+        return ResponseEntity.ok(historyService.eventsBetween(from, to, cursor, size));
+    }
+
+    @Operation(
+        summary = "📤 Acil durum olaylarını dışa aktar (NDJSON)",
+        description = """
+            [from, to) aralığındaki olayları eskiden yeniye, satır başına bir JSON olarak akıtır.
+            Veritabanından ileri yönlü imleçle okunur; geçmiş ne kadar büyük olursa olsun
+            sunucu belleği sabit kalır.
+            """
+    )
+    @GetMapping(value = "/events/export", produces = "application/x-ndjson")
+    public ResponseEntity<StreamingResponseBody> exportEvents(
+            @RequestParam
+            @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME)
+            @Parameter(description = "Başlangıç (dahil)", example = "2026-10-01T00:00:00")
+            LocalDateTime from,
+            @RequestParam(required = false)
+            @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME)
+            @Parameter(description = "Bitiş (hariç, boşsa şimdi)", example = "2026-10-19T00:00:00")
+            LocalDateTime to,
+            @RequestParam(required = false)
+            @Parameter(description = "Sadece bu kavşak (boşsa tümü)", example = "1")
+            Long intersectionId) {
+
+        // Yanıt başlıkları gönderilmeden önce doğrula (akış başladıktan sonra 400 dönülemez)
+        EmergencyHistoryService.validateRange(from, to != null ? to : LocalDateTime.now());
+        StreamingResponseBody body = out -> historyService.export(intersectionId, from, to, out);
+        return ResponseEntity.ok()
+                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"emergency-events.ndjson\"")
+                .contentType(MediaType.parseMediaType("application/x-ndjson"))
+                .body(body);
     }
 
     @Operation(
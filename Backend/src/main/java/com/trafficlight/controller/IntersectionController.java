@@ -1,6 +1,7 @@
 package com.trafficlight.controller;
 
 import com.trafficlight.dto.ApiResponse;
+import com.trafficlight.dto.CursorPage;
 import com.trafficlight.dto.IntersectionRequest;
 import com.trafficlight.dto.IntersectionResponse;
 import com.trafficlight.entity.Intersection.IntersectionStatus;
@@ -29,6 +30,7 @@ import java.util.Map;
  * 
  * Endpoints:
  * - GET /api/intersections - List all intersections
+ * - GET /api/intersections/cursor - List intersections with keyset pagination
  * - GET /api/intersections/:id - Get specific intersection
  * - POST /api/intersections - Create new intersection
  * - PUT /api/intersections/:id - Update intersection
@@ -77,6 +79,33 @@ public class IntersectionController {
         return ResponseEntity.ok(ApiResponse.success(intersections));
     }
 
+    /**
+     * GET /api/intersections/cursor - List intersections with keyset pagination
+     * Query params:
+     * - city, status: Same filters as GET /api/intersections
+     * - sort: id (default, ascending) or updatedAt (most recently updated first)
+     * - cursor: nextCursor of the previous page
+     * - size: Page size (default: 50, max: 500)
+     * - estimateTotal: Add a planner row estimate instead of an exact count
+     */
+    @GetMapping("/cursor")
+    @Operation(summary = "Get intersections by cursor",
+               description = "Keyset pagination without COUNT; deep pages are as fast as the first one")
+    public ResponseEntity<ApiResponse<CursorPage<IntersectionResponse>>> getIntersectionsPage(
+            @Parameter(description = "Filter by city") @RequestParam(required = false) String city,
+            @Parameter(description = "Filter by status") @RequestParam(required = false) IntersectionStatus status,
+            @Parameter(description = "Sort key (id/updatedAt)") @RequestParam(defaultValue = "id") String sort,
+            @Parameter(description = "Cursor from the previous page") @RequestParam(required = false) String cursor,
+            @Parameter(description = "Page size") @RequestParam(required = false) Integer size,
+            @Parameter(description = "Include an estimated total (PostgreSQL only)")
+            @RequestParam(defaultValue = "false") boolean estimateTotal) {
+
+        CursorPage<IntersectionResponse> intersections =
+            intersectionService.getIntersectionsPage(city, status, sort, cursor, size, estimateTotal);
+
+        return ResponseEntity.ok(ApiResponse.success(intersections));
+    }
+
     /**
      * GET /api/intersections/:id - Get specific intersection
      */
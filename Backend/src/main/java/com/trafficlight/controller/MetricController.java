@@ -1,9 +1,17 @@
 package com.trafficlight.controller;
 
 import com.trafficlight.dto.ApiResponse;
+import com.trafficlight.dto.CursorPage;
+import com.trafficlight.dto.MetricAggregateResponse;
 import com.trafficlight.dto.MetricRequest;
 import com.trafficlight.dto.MetricResponse;
+import com.trafficlight.dto.MetricUpsertResult;
+import com.trafficlight.dto.WaitTimePercentileResponse;
+import com.trafficlight.service.MetricColumnStore;
+import com.trafficlight.service.MetricExportService;
 import com.trafficlight.service.MetricService;
+import com.trafficlight.service.MetricUpsertService;
+import com.trafficlight.service.WaitTimeSketchService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.tags.Tag;
@@ -14,9 +22,12 @@ import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.domain.Sort;
 import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import java.time.LocalDate;
 import java.util.HashMap;
@@ -29,9 +40,15 @@ import java.util.Map;
  * 
  * Endpoints:
  * - GET /api/intersections/:id/metrics - Get metrics for intersection
+ * - GET /api/intersections/:id/metrics/cursor - Get metrics for intersection with keyset pagination
  * - POST /api/intersections/:id/metrics - Create new metric
+ * - POST /api/metrics/batch - Upsert metrics of many intersections
  * - GET /api/metrics/:id - Get specific metric
  * - DELETE /api/metrics/:id - Delete metric
+ * - GET /api/metrics/aggregate - Aggregate a metric field across intersections
+ * - GET /api/metrics/wait-time/percentiles - Wait-time percentiles and histogram from the sketches
+ * - GET /api/metrics/export/csv - Stream metrics as CSV
+ * - GET /api/metrics/export/columnar - Stream metrics in the compressed columnar format
  * 
  * Time-range filtering support: ?startDate=2024-01-01&endDate=2024-01-31
  */
@@ -42,6 +59,9 @@ import java.util.Map;
 public class MetricController {
 
     private final MetricService metricService;
+    private final MetricExportService exportService;
+    private final MetricUpsertService upsertService;
+    private final WaitTimeSketchService sketchService;
 
     // ==========================================
     // Metric Endpoints (HAFTA 3)
@@ -87,6 +107,38 @@ public class MetricController {
         return ResponseEntity.ok(ApiResponse.success(metrics));
     }
 
+    /**
+     * GET /api/intersections/:id/metrics/cursor - Get metrics with keyset pagination
+     * Newest first (date, hour, id); each page seeks past the previous one, no COUNT query
+     *
+     * Query params:
+     * - startDate, endDate: Optional date bounds (YYYY-MM-DD), either may be omitted
+     * - cursor: nextCursor of the previous page
+     * - size: Page size (default: 50, max: 500)
+     * - estimateTotal: Add a planner row estimate instead of an exact count
+     */
+    @GetMapping("/intersections/{intersectionId}/metrics/cursor")
+    @Operation(summary = "Get metrics for intersection by cursor",
+               description = "Keyset pagination without COUNT; deep pages are as fast as the first one")
+    public ResponseEntity<ApiResponse<CursorPage<MetricResponse>>> getMetricsPage(
+            @Parameter(description = "Intersection ID") @PathVariable Long intersectionId,
+            @Parameter(description = "Start date (YYYY-MM-DD)")
+                @RequestParam(required = false)
+                @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate startDate,
+            @Parameter(description = "End date (YYYY-MM-DD)")
+                @RequestParam(required = false)
+                @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate endDate,
+            @Parameter(description = "Cursor from the previous page") @RequestParam(required = false) String cursor,
+            @Parameter(description = "Page size") @RequestParam(required = false) Integer size,
+            @Parameter(description = "Include an estimated total (PostgreSQL only)")
+                @RequestParam(defaultValue = "false") boolean estimateTotal) {
+
+        CursorPage<MetricResponse> metrics =
+            metricService.getMetricsPage(intersectionId, startDate, endDate, cursor, size, estimateTotal);
+
+        return ResponseEntity.ok(ApiResponse.success(metrics));
+    }
+
     /**
      * POST /api/intersections/:id/metrics - Create new metric
      */
@@ -104,6 +156,25 @@ public class MetricController {
             .body(ApiResponse.created(created));
     }
 
+    /**
+     * POST /api/metrics/batch - Upsert metrics of many intersections in one statement
+     * Body: array of metrics, each with intersectionId; at most 10000 per batch
+     *
+     * Query params:
+     * - onConflict: REJECT (keep the stored metric, report the key) or ADD (add to it)
+     */
+    @PostMapping("/metrics/batch")
+    @Operation(summary = "Upsert metrics in batch",
+               description = "Insert hourly or daily metrics of many intersections at once; existing keys are rejected or added to")
+    public ResponseEntity<ApiResponse<MetricUpsertResult>> upsertMetrics(
+            @RequestBody List<MetricRequest> requests,
+            @Parameter(description = "Existing metrics: REJECT or ADD")
+                @RequestParam(defaultValue = "REJECT") MetricUpsertService.OnConflict onConflict) {
+
+        MetricUpsertResult result = upsertService.upsert(requests, onConflict);
+        return ResponseEntity.ok(ApiResponse.success(result));
+    }
+
     /**
      * GET /api/metrics/:id - Get specific metric
      */
@@ -146,12 +217,15 @@ public class MetricController {
         
         Double avgWaitTime = metricService.getAverageWaitTime(intersectionId, startDate, endDate);
         Long totalVehicles = metricService.getTotalVehicleCount(intersectionId, startDate, endDate);
+        WaitTimePercentileResponse percentiles = sketchService.getPercentiles(startDate, endDate,
+                List.of(intersectionId), null, WaitTimeSketchService.GroupBy.NONE, null, false);
         
         Map<String, Object> analytics = new HashMap<>();
         analytics.put("intersectionId", intersectionId);
         analytics.put("startDate", startDate);
         analytics.put("endDate", endDate);
         analytics.put("averageWaitTime", avgWaitTime);
+        analytics.put("waitTimePercentiles", percentiles.getGroups().get(0).getPercentiles());
         analytics.put("totalVehicleCount", totalVehicles);
         
         return ResponseEntity.ok(ApiResponse.success(analytics));
@@ -188,5 +262,116 @@ public class MetricController {
         List<MetricResponse> metrics = metricService.getMetricsWithViolations(intersectionId, startDate, endDate);
         return ResponseEntity.ok(ApiResponse.success(metrics));
     }
-}
 
+    /**
+     * GET /api/metrics/aggregate - Aggregate a metric field across all intersections
+     * 
+     * Query params:
+     * - measure: VEHICLES, WAIT_TIME, THROUGHPUT, ACCIDENTS, VIOLATIONS
+     * - groupBy: NONE, INTERSECTION, CITY, HOUR (default: NONE)
+     */
+    @GetMapping("/metrics/aggregate")
+    @Operation(summary = "Aggregate metrics", description = "Count, sum, average, min and max of a metric field, optionally grouped by intersection, city or hour")
+    public ResponseEntity<ApiResponse<MetricAggregateResponse>> getAggregate(
+            @Parameter(description = "Metric field") @RequestParam MetricColumnStore.Measure measure,
+            @Parameter(description = "Grouping") 
+                @RequestParam(defaultValue = "NONE") MetricColumnStore.GroupBy groupBy,
+            @Parameter(description = "Start date") 
+                @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate startDate,
+            @Parameter(description = "End date") 
+                @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate endDate) {
+        
+        MetricAggregateResponse aggregate = metricService.getAggregate(measure, groupBy, startDate, endDate);
+        return ResponseEntity.ok(ApiResponse.success(aggregate));
+    }
+
+    /**
+     * GET /api/metrics/wait-time/percentiles - Wait-time percentiles merged from the per-intersection sketches
+     * 
+     * Query params:
+     * - intersectionId: Repeatable; or city; all intersections when both are omitted
+     * - groupBy: NONE, INTERSECTION, CITY (default: NONE)
+     * - quantile: Repeatable, 0..1 (default: 0.5, 0.9, 0.95, 0.99)
+     * - histogram: Also return the histogram buckets (default: false)
+     */
+    @GetMapping("/metrics/wait-time/percentiles")
+    @Operation(summary = "Wait-time percentiles", description = "p50/p90/p99 (or any quantile) of vehicle-weighted wait times for any range, intersection group or city, merged from daily and monthly histograms without scanning metric rows")
+    public ResponseEntity<ApiResponse<WaitTimePercentileResponse>> getWaitTimePercentiles(
+            @Parameter(description = "Start date") 
+                @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate startDate,
+            @Parameter(description = "End date") 
+                @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate endDate,
+            @Parameter(description = "Intersection IDs") 
+                @RequestParam(name = "intersectionId", required = false) List<Long> intersectionIds,
+            @Parameter(description = "City") @RequestParam(required = false) String city,
+            @Parameter(description = "Grouping") 
+                @RequestParam(defaultValue = "NONE") WaitTimeSketchService.GroupBy groupBy,
+            @Parameter(description = "Quantiles between 0 and 1") 
+                @RequestParam(name = "quantile", required = false) List<Double> quantiles,
+            @Parameter(description = "Include histogram buckets") 
+                @RequestParam(defaultValue = "false") boolean histogram) {
+        
+        WaitTimePercentileResponse percentiles = sketchService.getPercentiles(
+                startDate, endDate, intersectionIds, city, groupBy, quantiles, histogram);
+        return ResponseEntity.ok(ApiResponse.success(percentiles));
+    }
+
+    // ==========================================
+    // Bulk Export
+    // ==========================================
+
+    /**
+     * GET /api/metrics/export/csv - Stream metrics as CSV
+     * 
+     * Query params:
+     * - startDate, endDate: Inclusive date range (YYYY-MM-DD)
+     * - intersectionId: Repeatable; all intersections when omitted
+     * - gzip: Compress the file (default: false)
+     */
+    @GetMapping(value = "/metrics/export/csv", produces = {"text/csv", "application/gzip"})
+    @Operation(summary = "Export metrics as CSV", description = "Stream every metric of a date range from a forward-only database cursor; memory use does not grow with the range")
+    public ResponseEntity<StreamingResponseBody> exportCsv(
+            @Parameter(description = "Start date") 
+                @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate startDate,
+            @Parameter(description = "End date") 
+                @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate endDate,
+            @Parameter(description = "Intersection IDs (all when omitted)") 
+                @RequestParam(name = "intersectionId", required = false) List<Long> intersectionIds,
+            @Parameter(description = "Gzip the file") @RequestParam(defaultValue = "false") boolean gzip) {
+        
+        return export(MetricExportService.Format.CSV, "metrics.csv", MediaType.parseMediaType("text/csv"),
+                startDate, endDate, intersectionIds, gzip);
+    }
+
+    /**
+     * GET /api/metrics/export/columnar - Stream metrics in the compressed columnar format
+     * Same parameters as the CSV export; the layout is documented on ColumnarWriter
+     */
+    @GetMapping(value = "/metrics/export/columnar", produces = {"application/octet-stream", "application/gzip"})
+    @Operation(summary = "Export metrics in columnar format", description = "Stream every metric of a date range as row groups of deflated, dictionary/delta encoded columns")
+    public ResponseEntity<StreamingResponseBody> exportColumnar(
+            @Parameter(description = "Start date") 
+                @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate startDate,
+            @Parameter(description = "End date") 
+                @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate endDate,
+            @Parameter(description = "Intersection IDs (all when omitted)") 
+                @RequestParam(name = "intersectionId", required = false) List<Long> intersectionIds,
+            @Parameter(description = "Gzip the file") @RequestParam(defaultValue = "false") boolean gzip) {
+        
+        return export(MetricExportService.Format.COLUMNAR, "metrics.tcol", MediaType.APPLICATION_OCTET_STREAM,
+                startDate, endDate, intersectionIds, gzip);
+    }
+
+    private ResponseEntity<StreamingResponseBody> export(MetricExportService.Format format, String fileName,
+                                                         MediaType mediaType, LocalDate startDate, LocalDate endDate,
+                                                         List<Long> intersectionIds, boolean gzip) {
+        // Validate before the headers go out; a streaming response can no longer turn into a 400
+        MetricExportService.validate(startDate, endDate, intersectionIds);
+        StreamingResponseBody body = out -> exportService.export(format, startDate, endDate, intersectionIds, gzip, out);
+        return ResponseEntity.ok()
+                .header(HttpHeaders.CONTENT_DISPOSITION,
+                        "attachment; filename=\"" + fileName + (gzip ? ".gz" : "") + "\"")
+                .contentType(gzip ? MediaType.parseMediaType("application/gzip") : mediaType)
+                .body(body);
+    }
+}
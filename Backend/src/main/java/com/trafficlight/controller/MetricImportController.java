@@ -0,0 +1,68 @@
+package com.trafficlight.controller;
+
+import com.trafficlight.dto.MetricImportResult;
+import com.trafficlight.service.MetricImportService;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.servlet.http.HttpServletRequest;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.io.IOException;
+import java.util.List;
+
+@RestController
+@RequestMapping("/api/admin/metrics/imports")
+@RequiredArgsConstructor
+@Tag(name = "📥 Metric Import (Admin)", description = "Geçmiş metrik verilerinin toplu içe aktarımı")
+public class MetricImportController {
+
+    private final MetricImportService importService;
+
+    @Operation(
+        summary = "📥 Metrikleri toplu içe aktar (CSV / NDJSON)",
+        description = """
+            İstek gövdesindeki dosyayı (gzip olabilir) okur; satırlar paralel doğrulanır,
+            PostgreSQL COPY ile ara tabloya yüklenir ve tek bir sorguyla intersection_metrics
+            tablosuna birleştirilir. Tüm içe aktarım tek transaction'dır.
+
+            Sütun adları CSV dışa aktarımıyla aynıdır; kavşak intersection_id ya da
+            intersection_code ile verilir. Aynı kavşak/gün/saat için dosyadaki son satır geçerlidir;
+            mevcut kayıtlar onDuplicate=SKIP ile korunur, REPLACE ile güncellenir.
+
+            Örnek: curl -X POST --data-binary @metrics-2025.csv.gz ".../api/admin/metrics/imports?format=CSV"
+            """
+    )
+    @PostMapping
+    public ResponseEntity<MetricImportResult> importMetrics(
+            @RequestParam(defaultValue = "CSV")
+            @Parameter(description = "Dosya biçimi", example = "CSV")
+            MetricImportService.Format format,
+            @RequestParam(defaultValue = "SKIP")
+            @Parameter(description = "Mevcut kayıtlar: SKIP (koru) veya REPLACE (güncelle)", example = "SKIP")
+            MetricImportService.OnDuplicate onDuplicate,
+            @RequestParam(required = false)
+            @Parameter(description = "Geri almadan önce izin verilen hatalı satır (boşsa traffic.metrics.import.max-rejected)")
+            Integer maxRejected,
+            HttpServletRequest request) throws IOException {
+
+        return ResponseEntity.ok(importService.importMetrics(request.getInputStream(), format, onDuplicate, maxRejected));
+    }
+
+    @Operation(
+        summary = "📊 İçe aktarım ilerlemesi",
+        description = "Süren ve son tamamlanan içe aktarımlar: okunan, yüklenen, reddedilen satırlar ve hız"
+    )
+    @GetMapping
+    public ResponseEntity<List<MetricImportResult>> recentImports() {
+        return ResponseEntity.ok(importService.recentImports());
+    }
+
+    @Operation(summary = "🔎 Tek içe aktarımın durumu")
+    @GetMapping("/{importId}")
+    public ResponseEntity<MetricImportResult> getImport(@PathVariable String importId) {
+        return ResponseEntity.ok(importService.getImport(importId));
+    }
+}
@@ -0,0 +1,61 @@
+package com.trafficlight.controller;
+
+import com.trafficlight.service.DailyRollupService;
+import com.trafficlight.service.WaitTimeSketchService;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import lombok.RequiredArgsConstructor;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.time.LocalDate;
+import java.util.HashMap;
+import java.util.Map;
+
+@RestController
+@RequestMapping("/api/admin/rollups")
+@RequiredArgsConstructor
+@Tag(name = "🧮 Daily Rollups (Admin)", description = "Günlük kavşak özetlerinin yeniden hesaplanması")
+public class RollupAdminController {
+
+    private final DailyRollupService rollupService;
+    private final WaitTimeSketchService sketchService;
+
+    @Operation(
+        summary = "🔁 Günlük özetleri yeniden hesapla",
+        description = """
+            Verilen tarih aralığındaki günlük kavşak özetlerini intersection_metrics
+            tablosundan yeniden oluşturur. Metrik tablosuna doğrudan (API dışından)
+            yazılan veriler için kullanılır; aralık parçalar halinde işlenir.
+            Bekleme süresi dağılımları (günlük ve aylık histogramlar) da aynı
+            aralık için yeniden oluşturulur.
+
+            Son günler her gece otomatik olarak uzlaştırılır
+            (traffic.rollup.reconcile-days).
+            """
+    )
+    @PostMapping("/backfill")
+    public ResponseEntity<Map<String, Object>> backfill(
+            @RequestParam
+            @Parameter(description = "Başlangıç tarihi (YYYY-MM-DD)", example = "2024-01-01")
+            @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam
+            @Parameter(description = "Bitiş tarihi (YYYY-MM-DD)", example = "2024-01-31")
+            @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to) {
+
+        long rows = rollupService.backfill(from, to);
+        long sketches = sketchService.backfill(from, to);
+
+        Map<String, Object> response = new HashMap<>();
+        response.put("success", true);
+        response.put("from", from);
+        response.put("to", to);
+        response.put("rows", rows);
+        response.put("sketches", sketches);
+        response.put("message", "✅ " + rows + " günlük özet satırı ve " + sketches
+                + " bekleme süresi histogramı yeniden hesaplandı");
+        return ResponseEntity.ok(response);
+    }
+}
@@ -0,0 +1,123 @@
+package com.trafficlight.controller;
+
+import com.trafficlight.dto.RuleSetVersionResponse;
+import com.trafficlight.entity.RuleSetVersion;
+import com.trafficlight.service.RuleSetSnapshot;
+import com.trafficlight.service.TrafficRuleCatalog;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.security.Principal;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+@RestController
+@RequestMapping("/api/admin/rule-sets")
+@RequiredArgsConstructor
+@Tag(name = "📚 Rule Set Versions (Admin)", description = "Kural seti yayınlama ve geri alma")
+public class RuleSetAdminController {
+
+    private final TrafficRuleCatalog ruleCatalog;
+
+    @Operation(
+        summary = "📋 Kural seti versiyonları",
+        description = """
+            Bu düğümdeki aktif versiyonu, bellekte tutulan versiyonları ve
+            yayınlanmış son 20 versiyonu listeler.
+            """
+    )
+    @GetMapping
+    public ResponseEntity<Map<String, Object>> getVersions() {
+        RuleSetSnapshot current = ruleCatalog.current();
+        List<RuleSetSnapshot> retained = ruleCatalog.retainedSnapshots();
+        Set<Long> retainedVersions = retained.stream()
+                .map(RuleSetSnapshot::version)
+                .collect(Collectors.toSet());
+
+        Map<String, Object> response = new HashMap<>();
+        response.put("activeVersion", current.version());
+        response.put("activeRuleCount", current.rules().size());
+        response.put("activatedAt", current.loadedAt());
+        response.put("retainedVersions", retained.stream().map(RuleSetSnapshot::version).toList());
+        response.put("versions", ruleCatalog.recentVersions().stream()
+                .map(version -> toResponse(version, current.version(), retainedVersions))
+                .toList());
+        return ResponseEntity.ok(response);
+    }
+
+    @Operation(
+        summary = "🚀 Kural setini yayınla",
+        description = """
+            traffic_rules tablosundaki aktif kuralları yeni, değişmez bir versiyon
+            olarak yayınlar. Kural ekleme/güncelleme işlemleri yayınlanana kadar
+            optimizasyon isteklerini etkilemez.
+
+            Diğer düğümler yeni versiyona en geç bir kontrol aralığı
+            (traffic.optimization.rule-refresh-ms) içinde geçer.
+            """
+    )
+    @PostMapping("/publish")
+    public ResponseEntity<Map<String, Object>> publish(
+            @RequestParam(required = false)
+            @Parameter(description = "Yayın notu", example = "Okul saatleri kuralları")
+            String note,
+            Principal principal) {
+
+        RuleSetSnapshot published = ruleCatalog.publish(note, principal != null ? principal.getName() : null);
+
+        Map<String, Object> response = new HashMap<>();
+        response.put("success", true);
+        response.put("version", published.version());
+        response.put("ruleCount", published.rules().size());
+        response.put("message", "✅ Kural seti v" + published.version() + " yayınlandı");
+        return ResponseEntity.status(HttpStatus.CREATED).body(response);
+    }
+
+    @Operation(
+        summary = "⏪ Önceki versiyona geri al",
+        description = """
+            Seçilen versiyonun kurallarını yeni bir versiyon olarak tekrar yayınlar.
+            Versiyon bellekte tutuluyorsa bu düğümde geçiş anlıktır.
+            """
+    )
+    @PostMapping("/{version}/rollback")
+    public ResponseEntity<Map<String, Object>> rollback(
+            @PathVariable
+            @Parameter(description = "Geri dönülecek versiyon", example = "10")
+            Long version,
+            Principal principal) {
+
+        RuleSetSnapshot restored = ruleCatalog.rollback(version, principal != null ? principal.getName() : null);
+
+        Map<String, Object> response = new HashMap<>();
+        response.put("success", true);
+        response.put("version", restored.version());
+        response.put("sourceVersion", version);
+        response.put("ruleCount", restored.rules().size());
+        response.put("message", "⏪ v" + version + " kuralları v" + restored.version() + " olarak yayınlandı");
+        return ResponseEntity.ok(response);
+    }
+
+    private static RuleSetVersionResponse toResponse(RuleSetVersion version, long activeVersion,
+                                                     Set<Long> retainedVersions) {
+        return RuleSetVersionResponse.builder()
+                .version(version.getId())
+                .ruleCount(version.getRuleCount())
+                .checksum(version.getChecksum())
+                .sourceVersion(version.getSourceVersion())
+                .note(version.getNote())
+                .publishedBy(version.getPublishedBy())
+                .publishedAt(version.getPublishedAt())
+                .active(version.getId() == activeVersion)
+                .retained(retainedVersions.contains(version.getId()))
+                .build();
+    }
+}
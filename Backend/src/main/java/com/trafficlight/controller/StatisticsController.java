@@ -29,8 +29,9 @@ public class StatisticsController {
             • Toplam acil araç geçişi
             • Kural uygulama sayısı
             • Sensör okuma istatistikleri
-            • Performans metrikleri
-            • Sistem sağlığı
+            • Kural başarı oranı ve çalışma süresi
+            
+            Sayılar bellekteki günlük sayaçlardan okunur (anlık).
             
             **Kullanım:**
             - Günlük dashboard
@@ -57,11 +58,11 @@ public class StatisticsController {
             Son 7 günün detaylı performans analizi.
             
             **İçerik:**
-            • Haftalık trend analizi
+            • Haftalık trend analizi (önceki 7 günle)
             • En çok kullanılan kurallar
             • Acil durum istatistikleri
-            • Performans değerlendirmesi
-            • İyileştirme önerileri
+            • Kural başarı oranı ve sensör ortalamaları
+            • Günlük kırılım
             
             **Kullanım:**
             - Haftalık review
@@ -106,18 +107,17 @@ public class StatisticsController {
     @Operation(
         summary = "🏆 Kavşak performans karşılaştırması",
         description = """
-            Tüm kavşakların performansını karşılaştırır.
+            Son 7 günün en hareketli kavşaklarını karşılaştırır (en fazla 10).
             
             **Metrikler:**
             • Acil durum sayısı
             • Kural uygulama sıklığı
-            • Verimlilik skoru
-            • Genel rating (⭐)
+            • Sensör okuma sayısı ve ortalama araç sayısı
             
             **Çıktı:**
-            • En iyi performans gösteren kavşak
             • En çok acil durum olan kavşak
-            • İyileştirme önerileri
+            • En çok kural uygulanan kavşak
+            • En yoğun kavşak
             
             **Kullanım:**
             • Kavşak optimizasyonu
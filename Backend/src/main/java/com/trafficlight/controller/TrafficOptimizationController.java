@@ -1,7 +1,10 @@
 package com.trafficlight.controller;
 
+import com.trafficlight.dto.MultiObjectiveRequest;
+import com.trafficlight.dto.MultiObjectiveResponse;
 import com.trafficlight.dto.OptimizationRequest;
 import com.trafficlight.dto.OptimizationResponse;
+import com.trafficlight.dto.RuleAnalysisResponse;
 import com.trafficlight.dto.SensorDataRequest;
 import com.trafficlight.entity.RuleApplication;
 import com.trafficlight.entity.TrafficRule;
@@ -9,6 +12,8 @@ import com.trafficlight.entity.TrafficSensor;
 import com.trafficlight.repository.RuleApplicationRepository;
 import com.trafficlight.repository.TrafficRuleRepository;
 import com.trafficlight.repository.TrafficSensorRepository;
+import com.trafficlight.service.DailyActivityCounters;
+import com.trafficlight.service.MultiObjectiveOptimizationService;
 import com.trafficlight.service.TrafficRuleService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
@@ -19,6 +24,7 @@ import io.swagger.v3.oas.annotations.responses.ApiResponses;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
@@ -37,6 +43,8 @@ public class TrafficOptimizationController {
     private final TrafficRuleRepository ruleRepository;
     private final RuleApplicationRepository applicationRepository;
     private final TrafficSensorRepository sensorRepository;
+    private final MultiObjectiveOptimizationService multiObjectiveService;
+    private final DailyActivityCounters activityCounters;
 
     @Operation(
         summary = "🚦 Trafik optimizasyonu uygula",
@@ -81,6 +89,50 @@ public class TrafficOptimizationController {
         return ResponseEntity.ok(response);
     }
 
+    @Operation(
+        summary = "⚖️ Çok amaçlı yeşil süre optimizasyonu",
+        description = """
+            Gecikme, CO2 emisyonu ve yaya bekleme süresini birlikte optimize eder.
+            
+            **Nasıl Çalışır:**
+            1. Kavşağın geçmiş metriklerinden hızlı bir surrogate model eğitilir
+            2. Tüm döngü / yeşil süre bölüşümleri paralel olarak değerlendirilir
+            3. Pareto-optimal (domine edilmeyen) alternatifler çıkarılır
+            4. Alternatifler verilen ağırlıklara göre sıralanır
+            
+            **Ağırlıklar:**
+            • delayWeight: Araç gecikmesi
+            • emissionWeight: CO2 emisyonu
+            • pedestrianWeight: Yaya bekleme süresi
+            
+            ⏱️ Hedef süre: kavşak başına onlarca milisaniye
+            """
+    )
+    @ApiResponses(value = {
+        @ApiResponse(
+            responseCode = "200",
+            description = "✅ Pareto alternatifleri hesaplandı",
+            content = @Content(schema = @Schema(implementation = MultiObjectiveResponse.class))
+        ),
+        @ApiResponse(
+            responseCode = "400",
+            description = "❌ Geçersiz ağırlık veya motor"
+        ),
+        @ApiResponse(
+            responseCode = "404",
+            description = "❌ Kavşak bulunamadı"
+        )
+    })
+    @PostMapping("/multi-objective")
+    public ResponseEntity<MultiObjectiveResponse> optimizeMultiObjective(
+            @Valid @RequestBody
+            @Parameter(description = "Amaç ağırlıkları ve kavşak", required = true)
+            MultiObjectiveRequest request) {
+        
+        MultiObjectiveResponse response = multiObjectiveService.optimize(request);
+        return ResponseEntity.ok(response);
+    }
+
     @Operation(
         summary = "🚀 Hızlı Test - Yoğun Trafik Simülasyonu",
         description = """
@@ -148,10 +200,99 @@ public class TrafficOptimizationController {
     )
     @GetMapping("/rules/active")
     public ResponseEntity<List<TrafficRule>> getActiveRules() {
-        List<TrafficRule> rules = ruleRepository.findByActiveTrueOrderByPriorityAsc();
+        List<TrafficRule> rules = ruleRepository.findByActiveTrueOrderByPriorityAscIdAsc();
         return ResponseEntity.ok(rules);
     }
 
+    @Operation(
+        summary = "🔬 Kural seti analizi",
+        description = """
+            Aktif kural setini (araç sayısı × günün saati × gün tipi) uzayında tarar.
+            
+            **Rapor:**
+            • SHADOWED: Daha yüksek öncelikli kurallar yüzünden hiç seçilemeyen kurallar
+            • PARTIALLY_SHADOWED: Bölgesinin bir kısmında başka kural kazanan kurallar
+            • INVALID: Koşulları hiç sağlanamayan kurallar (min > max, gece yarısını geçen aralık)
+            • Çakışmalar: Aynı öncelikte örtüşüp farklı yeşil süre üreten kurallar
+            • Boşluklar: Hiçbir kuralın uygulanmadığı bölgeler
+            
+            ⏱️ On binlerce kural için milisaniyeler içinde çalışır
+            """
+    )
+    @GetMapping("/rules/analysis")
+    public ResponseEntity<RuleAnalysisResponse> analyzeRules() {
+        return ResponseEntity.ok(ruleService.analyzeRules());
+    }
+
+    @Operation(
+        summary = "🧪 Aday kural analizi",
+        description = """
+            Kaydetmeden önce bir kuralın mevcut aktif set içinde nasıl davranacağını gösterir.
+            ID verilirse mevcut kuralın güncellenmiş hali olarak değerlendirilir.
+            
+            **candidateAccepted = false** ise kural kaydı reddedilir.
+            """
+    )
+    @PostMapping("/rules/analysis")
+    public ResponseEntity<RuleAnalysisResponse> analyzeCandidateRule(
+            @RequestBody
+            @Parameter(description = "Aday kural", required = true)
+            TrafficRule candidate) {
+
+        return ResponseEntity.ok(ruleService.analyzeCandidate(candidate));
+    }
+
+    @Operation(
+        summary = "➕ Yeni kural oluştur",
+        description = """
+            Kuralı analizden geçirerek kaydeder.
+            Geçersiz, tamamen gölgelenmiş veya aynı öncelikte çakışan kurallar reddedilir (400).
+            
+            ⚠️ force=true analiz sonucunu yok sayar.
+            """
+    )
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "201", description = "✅ Kural oluşturuldu"),
+        @ApiResponse(responseCode = "400", description = "❌ Kural analizden geçemedi")
+    })
+    @PostMapping("/rules")
+    public ResponseEntity<TrafficRule> createRule(
+            @RequestBody
+            @Parameter(description = "Yeni kural", required = true)
+            TrafficRule rule,
+            @RequestParam(defaultValue = "false")
+            @Parameter(description = "Analiz sonucunu yok say", example = "false")
+            boolean force) {
+
+        rule.setId(null);
+        return ResponseEntity.status(HttpStatus.CREATED).body(ruleService.saveRule(rule, force));
+    }
+
+    @Operation(
+        summary = "✏️ Kuralı güncelle",
+        description = "Kuralı analizden geçirerek günceller. Kurallar POST /rules ile aynıdır."
+    )
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "200", description = "✅ Kural güncellendi"),
+        @ApiResponse(responseCode = "400", description = "❌ Kural analizden geçemedi"),
+        @ApiResponse(responseCode = "404", description = "❌ Kural bulunamadı")
+    })
+    @PutMapping("/rules/{ruleId}")
+    public ResponseEntity<TrafficRule> updateRule(
+            @PathVariable
+            @Parameter(description = "Kural ID'si", example = "1")
+            Long ruleId,
+            @RequestBody
+            @Parameter(description = "Güncel kural", required = true)
+            TrafficRule rule,
+            @RequestParam(defaultValue = "false")
+            @Parameter(description = "Analiz sonucunu yok say", example = "false")
+            boolean force) {
+
+        rule.setId(ruleId);
+        return ResponseEntity.ok(ruleService.saveRule(rule, force));
+    }
+
     @Operation(
         summary = "🔍 Belirli bir kuralı getir",
         description = "ID'ye göre kural detaylarını getirir."
@@ -227,6 +368,7 @@ public class TrafficOptimizationController {
                 .build();
         
         TrafficSensor saved = sensorRepository.save(sensor);
+        activityCounters.recordSensorReading(saved);
         
         Map<String, Object> response = new HashMap<>();
         response.put("success", true);
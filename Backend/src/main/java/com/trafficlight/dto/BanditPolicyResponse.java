@@ -0,0 +1,81 @@
+package com.trafficlight.dto;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+@Schema(description = "Kavşak bazlı öğrenilmiş yeşil süre politikası")
+public class BanditPolicyResponse {
+
+    @Schema(description = "Kavşak ID", example = "1")
+    private Long intersectionId;
+
+    @Schema(description = "Bandit modu (OFF / SHADOW / ACTIVE)", example = "SHADOW")
+    private String mode;
+
+    @Schema(description = "Ayar kolları (saniye)", example = "[-10, -5, 0, 5, 10]")
+    private int[] arms;
+
+    @Schema(description = "Yoğunluk dilimi başına politika")
+    private List<ContextPolicy> contexts;
+
+    @Schema(description = "Ödül bekleyen karar var mı?", example = "true")
+    private Boolean pendingDecision;
+
+    @Schema(description = "Sistem genelinde yapılan toplam güncelleme", example = "342")
+    private Long totalUpdates;
+
+    @Schema(description = "Rapor zamanı")
+    private LocalDateTime generatedAt;
+
+    @Data
+    @Builder
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class ContextPolicy {
+        @Schema(description = "Araç sayısı dilimi", example = "26-40")
+        private String densityBucket;
+
+        @Schema(description = "Bu dilimdeki gözlem sayısı", example = "48")
+        private Long observations;
+
+        @Schema(description = "Şu an en iyi görünen ayar (saniye)", example = "5")
+        private Integer recommendedAdjustment;
+
+        @Schema(description = "Önerilen kolun en iyi olma olasılığı (0-1)", example = "0.71")
+        private Double confidence;
+
+        @Schema(description = "Kol istatistikleri")
+        private List<ArmStats> arms;
+    }
+
+    @Data
+    @Builder
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class ArmStats {
+        @Schema(description = "Yeşil süre ayarı (saniye)", example = "5")
+        private Integer adjustment;
+
+        @Schema(description = "Ödüllendirilmiş uygulama sayısı", example = "12")
+        private Integer pulls;
+
+        @Schema(description = "Ortalama ödül (-(bekleme + k x kuyruk))", example = "-34.2")
+        private Double meanReward;
+
+        @Schema(description = "Ortalama ödül için %95 güven aralığı (±)", example = "4.1")
+        private Double confidenceInterval;
+
+        @Schema(description = "En iyi kol olma olasılığı (0-1)", example = "0.42")
+        private Double probabilityBest;
+    }
+}
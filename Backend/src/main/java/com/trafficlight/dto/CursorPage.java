@@ -0,0 +1,33 @@
+package com.trafficlight.dto;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+@Schema(description = "İmleç tabanlı (keyset) sayfa: COUNT sorgusu yok, derin sayfalar da aynı hızda")
+public class CursorPage<T> {
+
+    @Schema(description = "Sayfadaki kayıtlar")
+    private List<T> items;
+
+    @Schema(description = "Sonraki sayfanın imleci (son sayfada null)", example = "MjAyNi0xMC0xOVQxMjowMDowMHw0Mg")
+    private String nextCursor;
+
+    @Schema(description = "Sonraki sayfa var mı?", example = "true")
+    private Boolean hasMore;
+
+    @Schema(description = "İstenen sayfa boyutu", example = "50")
+    private Integer size;
+
+    @Schema(description = "Tahmini toplam kayıt sayısı (yalnızca istenirse; PostgreSQL planlayıcı istatistiğinden, COUNT değil)",
+            example = "125000")
+    private Long estimatedTotal;
+}
@@ -0,0 +1,15 @@
+package com.trafficlight.dto;
+
+import java.time.LocalDate;
+
+/**
+ * One day of the traffic trend, read from the daily rollups
+ *
+ * @param totalVehicles   vehicles across all intersections that day
+ * @param averageWaitTime mean of the per-intersection averages (null without wait data)
+ */
+public record DailyTrendPoint(
+        LocalDate date,
+        Long totalVehicles,
+        Double averageWaitTime) {
+}
@@ -4,6 +4,7 @@ import com.trafficlight.entity.EmergencyVehicle;
 import io.swagger.v3.oas.annotations.media.Schema;
 import jakarta.validation.constraints.NotBlank;
 import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Positive;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
@@ -32,6 +33,10 @@ public class EmergencyRequest {
     @Schema(description = "Aracın geldiği yön", example = "NORTH")
     private EmergencyVehicle.Direction direction;
 
+    @Positive(message = "Hız pozitif olmalıdır")
+    @Schema(description = "Aracın hızı (km/sa) - boşsa varsayılan hız kullanılır", example = "50")
+    private Double speedKmh;
+
     @Schema(description = "Ek notlar", example = "Kritik durum - hızlı geçiş gerekli")
     private String notes;
 }
\ No newline at end of file
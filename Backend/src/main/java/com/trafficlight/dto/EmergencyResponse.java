@@ -86,6 +86,24 @@ public class EmergencyResponse {
 
         @Schema(description = "Görsel durum", example = "🟢🟢🟢 YEŞİL (Acil)")
         private String visual;
+
+        @Schema(description = "Başlangıç kavşağından rota mesafesi (metre)", example = "420")
+        private Integer distanceMeters;
+
+        @Schema(description = "Tahmini varış (saniye)", example = "34")
+        private Integer etaSeconds;
+
+        @Schema(description = "Yeşilin başlamasına kalan süre (saniye)", example = "26")
+        private Integer greenInSeconds;
+
+        @Schema(description = "Pencere boyunca kırmızıda tutulan yaklaşımlar", example = "[\"Doğu\", \"Batı\"]")
+        private List<String> heldApproaches;
+
+        @Schema(description = "Eşzamanlı acil durumlar arasındaki karar (GRANTED, MERGED, QUEUED)", example = "GRANTED")
+        private String priorityDecision;
+
+        @Schema(description = "Sıraya alındıysa yol verilen öncelikli araç", example = "AMB-002")
+        private String yieldTo;
     }
 
     @Data
@@ -107,6 +125,13 @@ public class EmergencyResponse {
 
         @Schema(description = "Trafik akışı etkisi", example = "Düşük - Sadece 1 kavşak yeşil")
         private String trafficFlow;
+
+        @Schema(description = "Ölçülmüş geçmişe göre yan yollarda beklenen ek bekleme (araç·saniye, geçmiş yoksa boş)",
+                example = "420")
+        private Integer expectedDelayVehicleSeconds;
+
+        @Schema(description = "Ölçülmüş geçmişe göre kuyrukların normale dönüş süresi (saniye)", example = "75")
+        private Integer expectedRecoverySeconds;
     }
 
     @Data
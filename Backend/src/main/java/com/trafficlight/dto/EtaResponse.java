@@ -0,0 +1,54 @@
+package com.trafficlight.dto;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+@Schema(description = "Acil aracın rota üzerindeki kavşaklara canlı varış tahmini")
+public class EtaResponse {
+
+    @Schema(description = "Araç ID", example = "AMB-001")
+    private String vehicleId;
+
+    @Schema(description = "Son konumlardan yumuşatılmış hız (km/sa)", example = "52.4")
+    private Double speedKmh;
+
+    @Schema(description = "Aracın gittiği yön", example = "SOUTH")
+    private String heading;
+
+    @Schema(description = "Son konum zamanı (tahminler şu ana göre)")
+    private LocalDateTime positionAt;
+
+    @Schema(description = "Önündeki kavşaklar (varış sırasıyla)")
+    private List<Stop> stops;
+
+    @Data
+    @Builder
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Stop {
+        @Schema(description = "Kavşak ID", example = "7")
+        private Long intersectionId;
+
+        @Schema(description = "Kavşak adı", example = "Kavşak-7")
+        private String intersectionName;
+
+        @Schema(description = "Kalan rota mesafesi (metre)", example = "380")
+        private Integer distanceMeters;
+
+        @Schema(description = "Tahmini varış (saniye)", example = "26")
+        private Integer etaSeconds;
+
+        @Schema(description = "Koridorun öğrenilmiş geçiş örneği sayısı (0 = hıza göre tahmin)", example = "12")
+        private Integer learnedSamples;
+    }
+}
@@ -0,0 +1,51 @@
+package com.trafficlight.dto;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+@Schema(description = "GPS konum toplu alım sonucu")
+public class GpsIngestResponse {
+
+    @Schema(description = "İşlenen konum sayısı", example = "240")
+    private Integer accepted;
+
+    @Schema(description = "Eksik alanlı ya da sırası geçmiş (eski) konum sayısı", example = "2")
+    private Integer ignored;
+
+    @Schema(description = "Bu konumların tetiklediği öncelik başlangıç/bitişleri")
+    private List<Transition> transitions;
+
+    @Data
+    @Builder
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Transition {
+        @Schema(description = "Araç ID", example = "AMB-001")
+        private String vehicleId;
+
+        @Schema(description = "Kavşak ID", example = "5")
+        private Long intersectionId;
+
+        @Schema(description = "Kavşak adı", example = "Kavşak-5")
+        private String intersectionName;
+
+        @Schema(description = "ENTERED = yaklaşım bölgesine girdi, öncelik verildi; EXITED = kavşağı geçti, öncelik bitti",
+                example = "ENTERED")
+        private String event;
+
+        @Schema(description = "Aracın geldiği yön", example = "NORTH")
+        private String direction;
+
+        @Schema(description = "Kavşağa mesafe (metre)", example = "142")
+        private Integer distanceMeters;
+    }
+}
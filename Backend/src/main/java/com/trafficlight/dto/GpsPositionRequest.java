@@ -0,0 +1,44 @@
+package com.trafficlight.dto;
+
+import com.trafficlight.entity.EmergencyVehicle;
+import io.swagger.v3.oas.annotations.media.Schema;
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.PositiveOrZero;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+@Schema(description = "Acil araç GPS konumu")
+public class GpsPositionRequest {
+
+    @NotBlank(message = "Araç ID'si boş olamaz")
+    @Schema(description = "Acil aracın benzersiz kimliği", example = "AMB-001")
+    private String vehicleId;
+
+    @NotNull(message = "Araç tipi belirtilmelidir")
+    @Schema(description = "Acil araç tipi", example = "AMBULANCE")
+    private EmergencyVehicle.VehicleType type;
+
+    @NotNull(message = "Enlem belirtilmelidir")
+    @Schema(description = "Enlem", example = "39.9208")
+    private Double latitude;
+
+    @NotNull(message = "Boylam belirtilmelidir")
+    @Schema(description = "Boylam", example = "32.8541")
+    private Double longitude;
+
+    @PositiveOrZero(message = "Hız negatif olamaz")
+    @Schema(description = "Cihazın bildirdiği hız (km/sa) - boşsa ardışık konumlardan hesaplanır", example = "52")
+    private Double speedKmh;
+
+    @Schema(description = "Konumun alındığı an - boşsa sunucuya ulaştığı an")
+    private LocalDateTime recordedAt;
+}
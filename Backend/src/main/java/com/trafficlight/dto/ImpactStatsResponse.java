@@ -0,0 +1,49 @@
+package com.trafficlight.dto;
+
+import com.trafficlight.entity.EmergencyImpact;
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+@Schema(description = "Acil durum önceliklerinin kavşaktaki ölçülen etkisi (yan yol sensörlerinden)")
+public class ImpactStatsResponse {
+
+    @Schema(description = "Kavşak ID", example = "1")
+    private Long intersectionId;
+
+    @Schema(description = "Analiz edilen yeşil pencere sayısı", example = "42")
+    private Long analyzedWindows;
+
+    @Schema(description = "Pencere başına ortalama ek bekleme (araç·saniye)", example = "310.5")
+    private Double avgDelayVehicleSeconds;
+
+    @Schema(description = "Ortalama kuyruk artışı (araç)", example = "6.2")
+    private Double avgQueueBuildUp;
+
+    @Schema(description = "Görülen en uzun yan yol kuyruğu (araç)", example = "38")
+    private Integer maxPeakQueue;
+
+    @Schema(description = "Normale dönüş süresi ortalaması (saniye, dönenler)", example = "74.0")
+    private Double avgRecoverySeconds;
+
+    @Schema(description = "Gözlem süresi içinde normale dönen pencere oranı (%)", example = "95.2")
+    private Double recoveredPercent;
+
+    @Schema(description = "Toplam bekletme süresi (saniye)", example = "588")
+    private Long totalHoldSeconds;
+
+    @Schema(description = "Son analiz zamanı")
+    private LocalDateTime lastAnalyzedAt;
+
+    @Schema(description = "Son pencereler (sadece kavşak detayında)")
+    private List<EmergencyImpact> recentWindows;
+}
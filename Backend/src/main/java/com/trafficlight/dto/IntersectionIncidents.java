@@ -0,0 +1,24 @@
+package com.trafficlight.dto;
+
+/**
+ * Per-intersection incident totals for a date range, summed in one grouped query
+ * Only intersections with at least one accident or violation in the range get a row.
+ *
+ * @param accidents             sum of accidents
+ * @param redLightViolations    sum of red-light violations
+ * @param yellowLightViolations sum of yellow-light violations
+ * @param pedestrianViolations  sum of pedestrian violations
+ */
+public record IntersectionIncidents(
+        Long intersectionId,
+        String name,
+        String city,
+        Long accidents,
+        Long redLightViolations,
+        Long yellowLightViolations,
+        Long pedestrianViolations) {
+
+    public long totalIncidents() {
+        return accidents + redLightViolations + yellowLightViolations + pedestrianViolations;
+    }
+}
@@ -0,0 +1,17 @@
+package com.trafficlight.dto;
+
+/**
+ * Kavşak başına tarih aralığı KPI'ları (gruplu sorgu projeksiyonu).
+ * Aralıkta ölçümü olmayan kavşak için satır dönmez; ölçümü olan kavşakta
+ * alan boş bırakılmışsa ilgili ortalama null olabilir.
+ *
+ * @param averageWaitTime   ortalama bekleme süresi (saniye)
+ * @param totalVehicleCount toplam araç sayısı
+ * @param averageThroughput ortalama geçiş kapasitesi (araç/saat)
+ */
+public record IntersectionKpi(
+        Long intersectionId,
+        Double averageWaitTime,
+        Long totalVehicleCount,
+        Double averageThroughput) {
+}
@@ -0,0 +1,38 @@
+package com.trafficlight.dto;
+
+import com.trafficlight.entity.Intersection;
+import com.trafficlight.entity.Intersection.IntersectionStatus;
+import com.trafficlight.entity.Intersection.IntersectionType;
+
+import java.math.BigDecimal;
+
+/**
+ * The intersection fields map markers, clusters and GeoJSON features show,
+ * read without loading entities
+ */
+public record IntersectionMapPoint(
+        Long id,
+        String name,
+        String code,
+        BigDecimal latitude,
+        BigDecimal longitude,
+        String city,
+        String district,
+        String address,
+        IntersectionType intersectionType,
+        IntersectionStatus status) {
+
+    public static IntersectionMapPoint fromEntity(Intersection intersection) {
+        return new IntersectionMapPoint(
+                intersection.getId(),
+                intersection.getName(),
+                intersection.getCode(),
+                intersection.getLatitude(),
+                intersection.getLongitude(),
+                intersection.getCity(),
+                intersection.getDistrict(),
+                intersection.getAddress(),
+                intersection.getIntersectionType(),
+                intersection.getStatus());
+    }
+}
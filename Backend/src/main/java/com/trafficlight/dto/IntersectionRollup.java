@@ -0,0 +1,21 @@
+package com.trafficlight.dto;
+
+import java.math.BigDecimal;
+
+/**
+ * Per-intersection totals for a date range with the fields maps and rankings need,
+ * read from the daily rollups in one query
+ *
+ * @param averageWaitTime   mean of the hourly metrics in the range (null without data)
+ * @param averageThroughput mean of the hourly metrics in the range (null without data)
+ */
+public record IntersectionRollup(
+        Long intersectionId,
+        String name,
+        String city,
+        BigDecimal latitude,
+        BigDecimal longitude,
+        Long totalVehicles,
+        Double averageWaitTime,
+        Double averageThroughput) {
+}
@@ -0,0 +1,38 @@
+package com.trafficlight.dto;
+
+import lombok.*;
+
+import java.time.LocalDate;
+import java.util.List;
+
+/**
+ * Response DTO for columnar metric aggregations
+ * One group per intersection, city or hour (a single group when not grouped)
+ */
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class MetricAggregateResponse {
+
+    private String measure;
+    private String groupBy;
+    private LocalDate startDate;
+    private LocalDate endDate;
+    private List<Group> groups;
+
+    @Getter
+    @Setter
+    @NoArgsConstructor
+    @AllArgsConstructor
+    @Builder
+    public static class Group {
+        private Object key; // intersection ID, city name, hour, or "ALL"
+        private Long count;
+        private Double sum;
+        private Double average;
+        private Double min;
+        private Double max;
+    }
+}
@@ -0,0 +1,44 @@
+package com.trafficlight.dto;
+
+import com.trafficlight.entity.IntersectionMetric;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+/**
+ * The metric fields the columnar analytics store keeps, read without loading entities
+ *
+ * @param violations red-light + yellow-light + pedestrian violations
+ */
+public record MetricColumnRow(
+        Long id,
+        Long intersectionId,
+        String city,
+        LocalDate date,
+        Integer hour,
+        Integer vehicles,
+        BigDecimal waitTime,
+        Integer throughput,
+        Integer accidents,
+        Integer violations) {
+
+    public static MetricColumnRow fromEntity(IntersectionMetric metric) {
+        return new MetricColumnRow(
+                metric.getId(),
+                metric.getIntersection().getId(),
+                metric.getIntersection().getCity(),
+                metric.getMeasurementDate(),
+                metric.getMeasurementHour(),
+                metric.getTotalVehicleCount(),
+                metric.getAverageWaitTime(),
+                metric.getThroughput(),
+                metric.getAccidentsCount(),
+                zeroIfNull(metric.getRedLightViolations())
+                        + zeroIfNull(metric.getYellowLightViolations())
+                        + zeroIfNull(metric.getPedestrianViolations()));
+    }
+
+    private static int zeroIfNull(Integer value) {
+        return value != null ? value : 0;
+    }
+}
@@ -0,0 +1,38 @@
+package com.trafficlight.dto;
+
+import lombok.*;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Progress and outcome of a bulk metric import
+ * Snapshots of a running import have status READING or MERGING and partial counts
+ */
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class MetricImportResult {
+
+    public enum Status { READING, MERGING, COMPLETED, FAILED }
+
+    private String importId;
+    private String format;
+    private String onDuplicate;
+    private Status status;
+    private Long rowsRead;
+    private Long rowsStaged;
+    private Long rowsRejected;
+    private Long rowsMerged;   // inserted, plus replaced with onDuplicate=REPLACE
+    private Long rowsSkipped;  // staged but not merged: existing rows (SKIP) and earlier duplicates in the file
+    private LocalDate firstDate;
+    private LocalDate lastDate;
+    private LocalDateTime startedAt;
+    private Long durationMs;
+    private Long rowsPerSecond;
+    private List<String> errors; // first rejected lines, "line N: reason"
+    private String message;
+}
@@ -10,6 +10,9 @@ import java.time.LocalDateTime;
 /**
  * HAFTA 3 - DTO Class
  * Response DTO for Metric data
+ *
+ * The all-args constructor (field order below) is also the constructor expression of
+ * IntersectionMetricRepository.RESPONSE_SELECT; keep both in sync when adding fields.
  */
 @Getter
 @Setter
@@ -0,0 +1,34 @@
+package com.trafficlight.dto;
+
+import lombok.*;
+
+import java.time.LocalDate;
+import java.util.List;
+
+/**
+ * Outcome of a batch metric upsert (POST /api/metrics/batch)
+ * received = inserted + merged + rejected
+ */
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class MetricUpsertResult {
+
+    /**
+     * (intersection, date, hour) identity of a metric; hour is null for daily metrics
+     */
+    public record Key(Long intersectionId, LocalDate measurementDate, Integer measurementHour) {
+    }
+
+    private String onConflict;
+    private Integer received;
+    private Integer inserted;
+    private Integer merged;    // added to an existing row (onConflict=ADD)
+    private Integer rejected;  // key already stored (onConflict=REJECT), including earlier rows of the batch
+    private List<Key> rejectedKeys; // first rejected keys
+    private LocalDate firstDate;
+    private LocalDate lastDate;
+    private Long durationMs;
+}
@@ -0,0 +1,60 @@
+package com.trafficlight.dto;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import jakarta.validation.constraints.DecimalMax;
+import jakarta.validation.constraints.DecimalMin;
+import jakarta.validation.constraints.Max;
+import jakarta.validation.constraints.Min;
+import jakarta.validation.constraints.NotNull;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+@Schema(description = "Çok amaçlı yeşil süre optimizasyonu request'i")
+public class MultiObjectiveRequest {
+
+    @NotNull(message = "Kavşak ID'si belirtilmelidir")
+    @Schema(description = "Optimize edilecek kavşak ID'si", example = "1")
+    private Long intersectionId;
+
+    @DecimalMin(value = "0.0", message = "Ağırlık negatif olamaz")
+    @Schema(description = "Araç gecikmesi ağırlığı", example = "0.5")
+    @Builder.Default
+    private Double delayWeight = 0.5;
+
+    @DecimalMin(value = "0.0", message = "Ağırlık negatif olamaz")
+    @Schema(description = "CO2 emisyonu ağırlığı", example = "0.3")
+    @Builder.Default
+    private Double emissionWeight = 0.3;
+
+    @DecimalMin(value = "0.0", message = "Ağırlık negatif olamaz")
+    @Schema(description = "Yaya bekleme süresi ağırlığı", example = "0.2")
+    @Builder.Default
+    private Double pedestrianWeight = 0.2;
+
+    @DecimalMin(value = "0.05", message = "Ana yön payı 0.05 ile 0.95 arasında olmalıdır")
+    @DecimalMax(value = "0.95", message = "Ana yön payı 0.05 ile 0.95 arasında olmalıdır")
+    @Schema(description = "Trafiğin ana yöne düşen payı", example = "0.6")
+    @Builder.Default
+    private Double mainApproachShare = 0.6;
+
+    @Min(value = 1, message = "Geçmiş veri penceresi en az 1 gün olmalıdır")
+    @Max(value = 365, message = "Geçmiş veri penceresi en fazla 365 gün olabilir")
+    @Schema(description = "Modelin eğitileceği geçmiş gün sayısı", example = "30")
+    @Builder.Default
+    private Integer lookbackDays = 30;
+
+    @Min(value = 1, message = "En az 1 alternatif istenmelidir")
+    @Max(value = 50, message = "En fazla 50 alternatif döndürülebilir")
+    @Schema(description = "Döndürülecek en fazla Pareto alternatifi", example = "5")
+    @Builder.Default
+    private Integer maxAlternatives = 5;
+
+    @Schema(description = "Kullanılacak optimizasyon motoru (opsiyonel)", example = "grid-search")
+    private String engine;
+}
@@ -0,0 +1,96 @@
+package com.trafficlight.dto;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+@Schema(description = "Çok amaçlı optimizasyon sonucu (Pareto alternatifleri)")
+public class MultiObjectiveResponse {
+
+    @Schema(description = "Kavşak ID", example = "1")
+    private Long intersectionId;
+
+    @Schema(description = "Kullanılan optimizasyon motoru", example = "grid-search")
+    private String engine;
+
+    @Schema(description = "Önerilen alternatif (ağırlıklı skora göre en iyi)")
+    private TimingAlternative recommended;
+
+    @Schema(description = "Pareto-optimal alternatifler (skora göre sıralı)")
+    private List<TimingAlternative> alternatives;
+
+    @Schema(description = "Surrogate model bilgileri")
+    private ModelInfo model;
+
+    @Schema(description = "Değerlendirilen aday sayısı", example = "412")
+    private Integer evaluatedCandidates;
+
+    @Schema(description = "Pareto cephesindeki aday sayısı", example = "37")
+    private Integer paretoFrontSize;
+
+    @Schema(description = "Hesaplama süresi (ms)", example = "12")
+    private Long elapsedMs;
+
+    @Schema(description = "Gecikme bütçesi içinde mi?", example = "true")
+    private Boolean withinLatencyBudget;
+
+    @Schema(description = "Hesaplama zamanı")
+    private LocalDateTime generatedAt;
+
+    @Data
+    @Builder
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class TimingAlternative {
+        @Schema(description = "Döngü süresi (saniye)", example = "90")
+        private Integer cycleLength;
+
+        @Schema(description = "Ana yön yeşil süresi (saniye)", example = "48")
+        private Integer mainGreen;
+
+        @Schema(description = "Tali yön yeşil süresi (saniye)", example = "32")
+        private Integer crossGreen;
+
+        @Schema(description = "Tahmini ortalama araç gecikmesi (saniye)", example = "27.4")
+        private Double predictedDelay;
+
+        @Schema(description = "Tahmini CO2 emisyonu (kg/saat)", example = "41.2")
+        private Double predictedCo2;
+
+        @Schema(description = "Tahmini ortalama yaya bekleme süresi (saniye)", example = "19.6")
+        private Double predictedPedestrianWait;
+
+        @Schema(description = "Ağırlıklı skor (düşük = iyi)", example = "0.18")
+        private Double weightedScore;
+    }
+
+    @Data
+    @Builder
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class ModelInfo {
+        @Schema(description = "Modelin eğitildiği metrik sayısı", example = "720")
+        private Integer sampleCount;
+
+        @Schema(description = "Saatlik ortalama araç talebi", example = "1450.0")
+        private Double hourlyDemand;
+
+        @Schema(description = "Gecikme kalibrasyon katsayısı", example = "1.12")
+        private Double delayCalibration;
+
+        @Schema(description = "Araç-saat gecikme başına CO2 (kg)", example = "2.1")
+        private Double co2PerVehicleHourDelay;
+
+        @Schema(description = "Model eğitim zamanı")
+        private LocalDateTime fittedAt;
+    }
+}
@@ -0,0 +1,140 @@
+package com.trafficlight.dto;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+@Schema(description = "Kural seti statik analiz raporu")
+public class RuleAnalysisResponse {
+
+    @Schema(description = "Analiz edilen kural sayısı", example = "1250")
+    private Integer analyzedRules;
+
+    @Schema(description = "Hiç uygulanamayan (tamamen gölgelenmiş) kural sayısı", example = "3")
+    private Integer shadowedRules;
+
+    @Schema(description = "Kısmen gölgelenmiş kural sayısı", example = "12")
+    private Integer partiallyShadowedRules;
+
+    @Schema(description = "Geçersiz koşullu (ölü) kural sayısı", example = "1")
+    private Integer invalidRules;
+
+    @Schema(description = "Aynı öncelikte çakışan kural çifti sayısı", example = "2")
+    private Integer conflictCount;
+
+    @Schema(description = "Hiçbir kuralın uygulanmadığı alan oranı (0-1)", example = "0.42")
+    private Double gapRatio;
+
+    @Schema(description = "Sorunlu kurallar (OK olanlar listelenmez, en fazla 100)")
+    private List<RuleFinding> findings;
+
+    @Schema(description = "Çakışan kural çiftleri (en fazla 100)")
+    private List<RuleConflict> conflicts;
+
+    @Schema(description = "Hiçbir kuralın uygulanmadığı bölgeler (en fazla 100)")
+    private List<GapRegion> gaps;
+
+    @Schema(description = "Aday kural için sonuç (sadece aday ile analizde)")
+    private RuleFinding candidate;
+
+    @Schema(description = "Aday kural kaydedilebilir mi?", example = "true")
+    private Boolean candidateAccepted;
+
+    @Schema(description = "Analiz ızgarasının hücre sayısı", example = "48000")
+    private Long gridCells;
+
+    @Schema(description = "Izgara limiti aşıldı, kaba analiz yapıldı: gölgelenme ve boşluklar sadece aday kural için hesaplanır",
+            example = "false")
+    private Boolean coarse;
+
+    @Schema(description = "Analiz süresi (ms)", example = "7")
+    private Long elapsedMs;
+
+    @Schema(description = "Analiz zamanı")
+    private LocalDateTime analyzedAt;
+
+    public enum FindingStatus {
+        OK,
+        PARTIALLY_SHADOWED,
+        SHADOWED,
+        INVALID
+    }
+
+    @Data
+    @Builder
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class RuleFinding {
+        @Schema(description = "Kural ID", example = "7")
+        private Long ruleId;
+
+        @Schema(description = "Kural adı", example = "PEAK_HOUR_EXTENSION")
+        private String ruleName;
+
+        @Schema(description = "Öncelik", example = "2")
+        private Integer priority;
+
+        @Schema(description = "Durum", example = "SHADOWED")
+        private FindingStatus status;
+
+        @Schema(description = "Açıklama", example = "Daha yüksek öncelikli kurallar tüm bölgeyi kapsıyor")
+        private String reason;
+
+        @Schema(description = "Kuralın kazandığı alan oranı (0-1)", example = "0.0")
+        private Double effectiveCoverage;
+
+        @Schema(description = "Gölgeleyen kurallar (en fazla 5)")
+        private List<String> shadowedBy;
+    }
+
+    @Data
+    @Builder
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class RuleConflict {
+        @Schema(description = "Ortak öncelik", example = "2")
+        private Integer priority;
+
+        @Schema(description = "Birinci kural", example = "HIGH_DENSITY_BOOST")
+        private String firstRule;
+
+        @Schema(description = "İkinci kural", example = "RUSH_EXTENSION")
+        private String secondRule;
+
+        @Schema(description = "Birinci kuralın yeşil süre ayarı", example = "+20")
+        private String firstAdjustment;
+
+        @Schema(description = "İkinci kuralın yeşil süre ayarı", example = "+10")
+        private String secondAdjustment;
+    }
+
+    @Data
+    @Builder
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class GapRegion {
+        @Schema(description = "Gün tipi", example = "WEEKEND")
+        private String dayType;
+
+        @Schema(description = "Araç sayısı alt sınırı (dahil)", example = "0")
+        private Integer vehicleCountFrom;
+
+        @Schema(description = "Araç sayısı üst sınırı (dahil, null = sınırsız)", example = "24")
+        private Integer vehicleCountTo;
+
+        @Schema(description = "Başlangıç saati", example = "09:00")
+        private String timeFrom;
+
+        @Schema(description = "Bitiş saati (hariç)", example = "24:00")
+        private String timeTo;
+    }
+}
@@ -0,0 +1,44 @@
+package com.trafficlight.dto;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+@Schema(description = "Yayınlanmış kural seti versiyonu")
+public class RuleSetVersionResponse {
+
+    @Schema(description = "Versiyon numarası", example = "12")
+    private Long version;
+
+    @Schema(description = "Versiyondaki aktif kural sayısı", example = "24")
+    private Integer ruleCount;
+
+    @Schema(description = "Kural içeriğinin SHA-256 özeti", example = "9f86d081884c7d65...")
+    private String checksum;
+
+    @Schema(description = "Geri alma ise kopyalanan versiyon", example = "10")
+    private Long sourceVersion;
+
+    @Schema(description = "Yayın notu", example = "Okul saatleri kuralları")
+    private String note;
+
+    @Schema(description = "Yayınlayan kullanıcı", example = "admin")
+    private String publishedBy;
+
+    @Schema(description = "Yayın zamanı")
+    private LocalDateTime publishedAt;
+
+    @Schema(description = "Bu düğümde aktif versiyon mu?", example = "true")
+    private Boolean active;
+
+    @Schema(description = "Bellekte tutuluyor mu? (anlık geri alma)", example = "true")
+    private Boolean retained;
+}
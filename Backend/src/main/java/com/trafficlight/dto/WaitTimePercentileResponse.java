@@ -0,0 +1,51 @@
+package com.trafficlight.dto;
+
+import lombok.*;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Response DTO for wait-time percentiles merged from the per-intersection sketches
+ * Wait times are in seconds and weighted by vehicle count (one sample per vehicle-hour)
+ */
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class WaitTimePercentileResponse {
+
+    private LocalDate startDate;
+    private LocalDate endDate;
+    private String groupBy;
+    private Integer sketchesMerged;
+    private List<Group> groups;
+
+    @Getter
+    @Setter
+    @NoArgsConstructor
+    @AllArgsConstructor
+    @Builder
+    public static class Group {
+        private Object key; // intersection ID, city name, or "ALL"
+        private Long samples;
+        private Double averageWaitTime;
+        private Double minWaitTime;
+        private Double maxWaitTime;
+        private Map<String, Double> percentiles; // "p50" -> seconds
+        private List<Bucket> histogram; // only when requested
+    }
+
+    @Getter
+    @Setter
+    @NoArgsConstructor
+    @AllArgsConstructor
+    @Builder
+    public static class Bucket {
+        private Double from; // inclusive
+        private Double to; // exclusive
+        private Long count;
+    }
+}
@@ -0,0 +1,73 @@
+package com.trafficlight.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.io.Serializable;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+/**
+ * DailyActivityStat Entity - Bellekteki bir günlük aktivite sayacının anlık görüntüsü
+ *
+ * {@link com.trafficlight.service.DailyActivityCounters} tarafından periyodik yazılır;
+ * bir günün satırları topluca değiştirilir. Boyut, sayaca göre araç tipi, kural adı
+ * ya da kavşak ID'sidir.
+ */
+@Entity
+@Table(name = "daily_activity_stats")
+@IdClass(DailyActivityStat.StatId.class)
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class DailyActivityStat {
+
+    @Id
+    @Column(name = "stat_date", nullable = false)
+    private LocalDate statDate;
+
+    @Id
+    @Enumerated(EnumType.STRING)
+    @Column(name = "counter", nullable = false, length = 30)
+    private Counter counter;
+
+    @Id
+    @Column(name = "dimension", nullable = false, length = 150)
+    private String dimension;
+
+    @Column(name = "event_count", nullable = false)
+    private Long eventCount;
+
+    @Column(name = "value_sum", nullable = false)
+    private Long valueSum; // RULE: başarılı uygulama, SENSOR_INTERSECTION: araç sayısı toplamı
+
+    @Column(name = "updated_at", nullable = false)
+    private LocalDateTime updatedAt;
+
+    @PrePersist
+    @PreUpdate
+    protected void onUpdate() {
+        updatedAt = LocalDateTime.now();
+    }
+
+    public enum Counter {
+        EMERGENCY_TYPE,
+        EMERGENCY_INTERSECTION,
+        RULE,
+        RULE_INTERSECTION,
+        SENSOR_INTERSECTION
+    }
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class StatId implements Serializable {
+        private LocalDate statDate;
+        private Counter counter;
+        private String dimension;
+    }
+}
@@ -0,0 +1,73 @@
+package com.trafficlight.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.io.Serializable;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+/**
+ * DailyIntersectionRollup Entity - Per-intersection daily totals derived from intersection_metrics
+ * 
+ * Every column is additive: averages are kept as sum + sample count, so creating
+ * or deleting a metric applies a +/- delta to one row, and summing days gives the
+ * same result as AVG over the raw hourly rows.
+ * Primary key (rollup_date, intersection_id) makes date-range reads one index range scan.
+ */
+@Entity
+@Table(name = "daily_intersection_rollups")
+@IdClass(DailyIntersectionRollup.RollupId.class)
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class DailyIntersectionRollup {
+
+    @Id
+    @Column(name = "rollup_date", nullable = false)
+    private LocalDate rollupDate;
+
+    @Id
+    @Column(name = "intersection_id", nullable = false)
+    private Long intersectionId;
+
+    @Column(name = "metric_count", nullable = false)
+    private Integer metricCount;
+
+    @Column(name = "total_vehicle_count", nullable = false)
+    private Long totalVehicleCount;
+
+    @Column(name = "wait_time_sum", nullable = false, precision = 16, scale = 2)
+    private BigDecimal waitTimeSum;
+
+    @Column(name = "wait_time_samples", nullable = false)
+    private Integer waitTimeSamples; // metrics with averageWaitTime set
+
+    @Column(name = "throughput_sum", nullable = false)
+    private Long throughputSum;
+
+    @Column(name = "throughput_samples", nullable = false)
+    private Integer throughputSamples; // metrics with throughput set
+
+    @Column(name = "updated_at", nullable = false)
+    private LocalDateTime updatedAt;
+
+    @PrePersist
+    @PreUpdate
+    protected void onUpdate() {
+        updatedAt = LocalDateTime.now();
+    }
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class RollupId implements Serializable {
+        private LocalDate rollupDate;
+        private Long intersectionId;
+    }
+}
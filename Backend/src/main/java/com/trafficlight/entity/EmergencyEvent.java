@@ -9,15 +9,21 @@ import lombok.NoArgsConstructor;
 import java.time.LocalDateTime;
 
 @Entity
-@Table(name = "emergency_events")
+@Table(name = "emergency_events", indexes = {
+    @Index(name = "idx_emergency_events_vehicle_created", columnList = "emergency_vehicle_id, created_at, id"),
+    @Index(name = "idx_emergency_events_intersection_created", columnList = "intersection_id, created_at, id"),
+    @Index(name = "idx_emergency_events_created_id", columnList = "created_at, id")
+})
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
 @Builder
 public class EmergencyEvent {
 
+    // Sıra 50'şer ayrılır: journal toplu yazımı tek JDBC batch'inde eklenebilir (IDENTITY batch'i engeller)
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "emergency_events_id_seq")
+    @SequenceGenerator(name = "emergency_events_id_seq", sequenceName = "emergency_events_id_seq", allocationSize = 50)
     private Long id;
 
     @Column(name = "emergency_vehicle_id", nullable = false)
@@ -57,9 +63,14 @@ public class EmergencyEvent {
     @Column(name = "success")
     private Boolean success;
 
+    @Column(name = "journal_key", length = 36, unique = true)
+    private String journalKey; // write-behind journal kaydı (tekrar oynatmada idempotency)
+
     @PrePersist
     protected void onCreate() {
-        createdAt = LocalDateTime.now();
+        if (createdAt == null) {
+            createdAt = LocalDateTime.now();
+        }
         if (success == null) {
             success = true;
         }
@@ -0,0 +1,78 @@
+package com.trafficlight.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * Bir acil durum yeşil penceresinin kavşaktaki ölçülen etkisi
+ * (bekletilen yan yolların sensör okumalarından)
+ */
+@Entity
+@Table(name = "emergency_impacts", indexes = {
+    @Index(name = "idx_emergency_impacts_intersection_hold", columnList = "intersection_id, hold_start, id")
+})
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class EmergencyImpact {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "emergency_impacts_id_seq")
+    @SequenceGenerator(name = "emergency_impacts_id_seq", sequenceName = "emergency_impacts_id_seq", allocationSize = 50)
+    private Long id;
+
+    @Column(name = "vehicle_key", nullable = false, length = 36)
+    private String vehicleKey; // tetiklemenin journal anahtarı
+
+    @Column(name = "vehicle_id", length = 50)
+    private String vehicleId;
+
+    @Column(name = "intersection_id", nullable = false)
+    private Long intersectionId;
+
+    @Column(name = "held_approaches", length = 50)
+    private String heldApproaches; // örn: EAST,WEST
+
+    @Column(name = "hold_start", nullable = false)
+    private LocalDateTime holdStart;
+
+    @Column(name = "hold_seconds", nullable = false)
+    private Integer holdSeconds;
+
+    @Column(name = "baseline_queue", nullable = false)
+    private Double baselineQueue; // öncelikten önceki ortalama yan yol kuyruğu
+
+    @Column(name = "hold_demand", nullable = false)
+    private Double holdDemand; // pencere boyunca ortalama yan yol kuyruğu
+
+    @Column(name = "peak_queue", nullable = false)
+    private Integer peakQueue;
+
+    @Column(name = "queue_build_up", nullable = false)
+    private Double queueBuildUp; // tepe - taban
+
+    @Column(name = "recovery_seconds")
+    private Integer recoverySeconds; // pencere bitişinden tabana dönüşe; null = gözlem süresinde dönmedi
+
+    @Column(name = "delay_vehicle_seconds", nullable = false)
+    private Double delayVehicleSeconds; // tabanı aşan kuyruğun zaman integrali
+
+    @Column(name = "sensor_readings", nullable = false)
+    private Integer sensorReadings;
+
+    @Column(name = "analyzed_at", nullable = false)
+    private LocalDateTime analyzedAt;
+
+    @PrePersist
+    protected void onCreate() {
+        if (analyzedAt == null) {
+            analyzedAt = LocalDateTime.now();
+        }
+    }
+}
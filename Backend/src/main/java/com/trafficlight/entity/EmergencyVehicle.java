@@ -16,8 +16,10 @@ import java.time.LocalDateTime;
 @Builder
 public class EmergencyVehicle {
 
+    // Sıra 50'şer ayrılır: journal toplu yazımı tek JDBC batch'inde eklenebilir (IDENTITY batch'i engeller)
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "emergency_vehicles_id_seq")
+    @SequenceGenerator(name = "emergency_vehicles_id_seq", sequenceName = "emergency_vehicles_id_seq", allocationSize = 50)
     private Long id;
 
     @Column(nullable = false, length = 50)
@@ -50,14 +52,23 @@ public class EmergencyVehicle {
     @Column(length = 500)
     private String notes;
 
+    @Column(name = "journal_key", length = 36, unique = true)
+    private String journalKey; // write-behind journal kaydı (tekrar oynatmada idempotency)
+
     @PrePersist
     protected void onCreate() {
-        detectedAt = LocalDateTime.now();
+        if (detectedAt == null) {
+            detectedAt = LocalDateTime.now();
+        }
         if (priorityLevel == null) {
-            priorityLevel = type == VehicleType.AMBULANCE ? 1 : 2;
+            priorityLevel = defaultPriority(type);
         }
     }
 
+    public static int defaultPriority(VehicleType type) {
+        return type == VehicleType.AMBULANCE ? 1 : 2;
+    }
+
     // Enums
     public enum VehicleType {
         AMBULANCE("🚑 Ambulans"),
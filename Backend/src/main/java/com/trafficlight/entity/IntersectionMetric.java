@@ -19,7 +19,8 @@ import java.time.LocalDateTime;
 @Entity
 @Table(name = "intersection_metrics", 
     indexes = {
-        @Index(name = "idx_metrics_date_hour", columnList = "intersection_id, measurement_date, measurement_hour")
+        @Index(name = "idx_metrics_date_hour", columnList = "intersection_id, measurement_date, measurement_hour"),
+        @Index(name = "idx_metrics_date_intersection", columnList = "measurement_date, intersection_id")
     },
     uniqueConstraints = {
         @UniqueConstraint(name = "unique_metric_period", 
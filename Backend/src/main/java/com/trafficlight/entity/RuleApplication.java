@@ -26,6 +26,9 @@ public class RuleApplication {
     @Column(name = "rule_name", length = 100)
     private String ruleName;
 
+    @Column(name = "rule_set_version")
+    private Long ruleSetVersion; // manuel kural seçiminde null
+
     @Column(name = "intersection_id", nullable = false)
     private Long intersectionId;
 
@@ -0,0 +1,52 @@
+package com.trafficlight.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * Yayınlanmış, değişmez kural seti versiyonu.
+ * ID aynı zamanda versiyon numarasıdır; en büyük ID aktif versiyondur.
+ */
+@Entity
+@Table(name = "rule_set_versions")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class RuleSetVersion {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "rule_count", nullable = false)
+    private Integer ruleCount;
+
+    @Column(name = "rules_json", nullable = false, columnDefinition = "TEXT")
+    private String rulesJson;
+
+    @Column(nullable = false, length = 64)
+    private String checksum;
+
+    @Column(name = "source_version")
+    private Long sourceVersion; // geri alma ise kopyalanan versiyon
+
+    @Column(length = 500)
+    private String note;
+
+    @Column(name = "published_by", length = 100)
+    private String publishedBy;
+
+    @Column(name = "published_at", nullable = false, updatable = false)
+    private LocalDateTime publishedAt;
+
+    @PrePersist
+    protected void onCreate() {
+        publishedAt = LocalDateTime.now();
+    }
+}
@@ -9,7 +9,9 @@ import lombok.NoArgsConstructor;
 import java.time.LocalDateTime;
 
 @Entity
-@Table(name = "traffic_sensors")
+@Table(name = "traffic_sensors", indexes = {
+    @Index(name = "idx_sensors_intersection_recorded", columnList = "intersection_id, recorded_at")
+})
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
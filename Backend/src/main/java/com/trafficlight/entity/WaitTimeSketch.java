@@ -0,0 +1,71 @@
+package com.trafficlight.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.io.Serializable;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+/**
+ * WaitTimeSketch Entity - Wait-time distribution of one intersection over a day or a month
+ * 
+ * The histogram is a serialized {@link com.trafficlight.util.LogHistogram} of the
+ * hourly average wait times (hundredths of a second), each weighted by the hour's
+ * vehicle count. Histograms merge by addition, so any range is answered by merging
+ * the month rows it covers plus the day rows at its edges.
+ * Primary key (granularity, period_start, intersection_id) makes range reads one index range scan.
+ */
+@Entity
+@Table(name = "wait_time_sketches")
+@IdClass(WaitTimeSketch.SketchId.class)
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class WaitTimeSketch {
+
+    @Id
+    @Enumerated(EnumType.STRING)
+    @Column(name = "granularity", nullable = false, length = 5)
+    private Granularity granularity;
+
+    @Id
+    @Column(name = "period_start", nullable = false)
+    private LocalDate periodStart; // the day, or the first day of the month
+
+    @Id
+    @Column(name = "intersection_id", nullable = false)
+    private Long intersectionId;
+
+    @Column(name = "sample_count", nullable = false)
+    private Long sampleCount; // vehicle-weighted
+
+    @Column(name = "histogram", nullable = false, length = 65536)
+    private byte[] histogram;
+
+    @Column(name = "updated_at", nullable = false)
+    private LocalDateTime updatedAt;
+
+    @PrePersist
+    @PreUpdate
+    protected void onUpdate() {
+        updatedAt = LocalDateTime.now();
+    }
+
+    public enum Granularity {
+        DAY, MONTH
+    }
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class SketchId implements Serializable {
+        private Granularity granularity;
+        private LocalDate periodStart;
+        private Long intersectionId;
+    }
+}
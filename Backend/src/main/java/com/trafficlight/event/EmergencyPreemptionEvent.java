@@ -0,0 +1,24 @@
+package com.trafficlight.event;
+
+import com.trafficlight.service.EmergencyPreemptionScheduler;
+import com.trafficlight.service.PreemptionPlan;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Published as soon as an emergency preemption has been decided, before
+ * anything is persisted. Signal controllers react to this event; the
+ * database rows follow later through the emergency event journal.
+ *
+ * @param vehicleKey    Journal key of the detection (unique per trigger)
+ * @param vehicleId     Vehicle identifier reported by the detector
+ * @param priorityLevel 1 = highest, 5 = lowest
+ * @param plan          Requested green windows along the route
+ * @param grants        Windows actually granted after priority resolution (same order as the plan)
+ * @param detectedAt    Detection time
+ */
+public record EmergencyPreemptionEvent(String vehicleKey, String vehicleId, int priorityLevel,
+                                       PreemptionPlan plan, List<EmergencyPreemptionScheduler.Grant> grants,
+                                       LocalDateTime detectedAt) {
+}
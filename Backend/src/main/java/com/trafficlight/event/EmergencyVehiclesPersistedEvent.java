@@ -0,0 +1,13 @@
+package com.trafficlight.event;
+
+import java.util.Map;
+
+/**
+ * Published by the emergency event journal after a batch of emergency
+ * vehicles has been committed. Triggers are answered before the row exists,
+ * so this is the first point where their database id is known.
+ *
+ * @param vehicleIds Journal key → emergency_vehicles.id
+ */
+public record EmergencyVehiclesPersistedEvent(Map<String, Long> vehicleIds) {
+}
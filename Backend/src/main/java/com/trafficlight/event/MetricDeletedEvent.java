@@ -0,0 +1,14 @@
+package com.trafficlight.event;
+
+import java.time.LocalDate;
+
+/**
+ * Published after an IntersectionMetric has been deleted.
+ * Listeners use @TransactionalEventListener so they only react to committed deletes.
+ *
+ * @param metricId        Deleted metric ID
+ * @param intersectionId  Intersection ID
+ * @param measurementDate Measurement date of the deleted metric
+ */
+public record MetricDeletedEvent(Long metricId, Long intersectionId, LocalDate measurementDate) {
+}
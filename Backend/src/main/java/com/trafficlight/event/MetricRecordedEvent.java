@@ -0,0 +1,13 @@
+package com.trafficlight.event;
+
+import com.trafficlight.entity.IntersectionMetric;
+
+/**
+ * Published after a new IntersectionMetric has been saved.
+ * Listeners use @TransactionalEventListener so they only see committed rows.
+ *
+ * @param intersectionId Intersection ID
+ * @param metric         The saved metric
+ */
+public record MetricRecordedEvent(Long intersectionId, IntersectionMetric metric) {
+}
@@ -0,0 +1,15 @@
+package com.trafficlight.event;
+
+import com.trafficlight.service.EmergencyPreemptionScheduler;
+
+import java.util.List;
+
+/**
+ * Published when other vehicles' green windows moved because a vehicle was
+ * scheduled with higher priority (displaced) or was cleared (promoted).
+ *
+ * @param grants New windows of the affected vehicles
+ * @param reason What caused the change
+ */
+public record PreemptionScheduleChangedEvent(List<EmergencyPreemptionScheduler.Grant> grants, String reason) {
+}
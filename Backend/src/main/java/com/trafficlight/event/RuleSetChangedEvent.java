@@ -0,0 +1,11 @@
+package com.trafficlight.event;
+
+/**
+ * Published when the active traffic rule set has changed.
+ * Caches derived from the rules must be discarded.
+ *
+ * @param version New rule set version
+ * @param reason  What triggered the change
+ */
+public record RuleSetChangedEvent(long version, String reason) {
+}
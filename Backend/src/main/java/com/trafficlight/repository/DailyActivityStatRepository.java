@@ -0,0 +1,27 @@
+package com.trafficlight.repository;
+
+import com.trafficlight.entity.DailyActivityStat;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Repository
+public interface DailyActivityStatRepository extends JpaRepository<DailyActivityStat, DailyActivityStat.StatId> {
+
+    List<DailyActivityStat> findByStatDateBetween(LocalDate startDate, LocalDate endDate);
+
+    @Modifying
+    @Query("DELETE FROM DailyActivityStat s WHERE s.statDate = :statDate")
+    int deleteByStatDate(LocalDate statDate);
+
+    /**
+     * Time of the latest snapshot (null if none was ever written)
+     */
+    @Query("SELECT MAX(s.updatedAt) FROM DailyActivityStat s")
+    LocalDateTime findLastSnapshotAt();
+}
@@ -0,0 +1,163 @@
+package com.trafficlight.repository;
+
+import com.trafficlight.dto.DailyTrendPoint;
+import com.trafficlight.dto.IntersectionRollup;
+import com.trafficlight.entity.DailyIntersectionRollup;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Daily per-intersection rollups of intersection_metrics
+ *
+ * Read queries scan the (rollup_date, intersection_id) primary key range and
+ * return one row per day or per intersection, whatever the date span.
+ */
+@Repository
+public interface DailyIntersectionRollupRepository
+        extends JpaRepository<DailyIntersectionRollup, DailyIntersectionRollup.RollupId> {
+
+    // ==========================================
+    // Incremental maintenance
+    // ==========================================
+
+    /**
+     * Add a metric's contribution (negative values remove it)
+     * @return Updated row count (0 = no rollup row for that day yet)
+     */
+    @Modifying
+    @Query("UPDATE DailyIntersectionRollup r SET " +
+           "r.metricCount = r.metricCount + :metrics, " +
+           "r.totalVehicleCount = r.totalVehicleCount + :vehicles, " +
+           "r.waitTimeSum = r.waitTimeSum + :waitTime, " +
+           "r.waitTimeSamples = r.waitTimeSamples + :waitSamples, " +
+           "r.throughputSum = r.throughputSum + :throughput, " +
+           "r.throughputSamples = r.throughputSamples + :throughputSamples, " +
+           "r.updatedAt = :now " +
+           "WHERE r.rollupDate = :date AND r.intersectionId = :intersectionId")
+    int applyDelta(
+        @Param("intersectionId") Long intersectionId,
+        @Param("date") LocalDate date,
+        @Param("metrics") int metrics,
+        @Param("vehicles") long vehicles,
+        @Param("waitTime") BigDecimal waitTime,
+        @Param("waitSamples") int waitSamples,
+        @Param("throughput") long throughput,
+        @Param("throughputSamples") int throughputSamples,
+        @Param("now") LocalDateTime now
+    );
+
+    /**
+     * Add a new metric's contribution, creating the day's row if it has none (PostgreSQL)
+     *
+     * One statement: two transactions recording the first metric of the same day both
+     * add to the row instead of one failing on the primary key
+     */
+    @Modifying
+    @Query(value = "INSERT INTO daily_intersection_rollups (rollup_date, intersection_id, metric_count, " +
+           "total_vehicle_count, wait_time_sum, wait_time_samples, throughput_sum, throughput_samples, updated_at) " +
+           "VALUES (:date, :intersectionId, :metrics, :vehicles, :waitTime, :waitSamples, :throughput, " +
+           ":throughputSamples, :now) " +
+           "ON CONFLICT (rollup_date, intersection_id) DO UPDATE SET " +
+           "metric_count = daily_intersection_rollups.metric_count + EXCLUDED.metric_count, " +
+           "total_vehicle_count = daily_intersection_rollups.total_vehicle_count + EXCLUDED.total_vehicle_count, " +
+           "wait_time_sum = daily_intersection_rollups.wait_time_sum + EXCLUDED.wait_time_sum, " +
+           "wait_time_samples = daily_intersection_rollups.wait_time_samples + EXCLUDED.wait_time_samples, " +
+           "throughput_sum = daily_intersection_rollups.throughput_sum + EXCLUDED.throughput_sum, " +
+           "throughput_samples = daily_intersection_rollups.throughput_samples + EXCLUDED.throughput_samples, " +
+           "updated_at = EXCLUDED.updated_at", nativeQuery = true)
+    int upsertDelta(
+        @Param("intersectionId") Long intersectionId,
+        @Param("date") LocalDate date,
+        @Param("metrics") int metrics,
+        @Param("vehicles") long vehicles,
+        @Param("waitTime") BigDecimal waitTime,
+        @Param("waitSamples") int waitSamples,
+        @Param("throughput") long throughput,
+        @Param("throughputSamples") int throughputSamples,
+        @Param("now") LocalDateTime now
+    );
+
+    /**
+     * Drop a day whose last metric was deleted
+     */
+    @Modifying
+    @Query("DELETE FROM DailyIntersectionRollup r WHERE " +
+           "r.rollupDate = :date AND r.intersectionId = :intersectionId AND r.metricCount <= 0")
+    int deleteIfEmpty(@Param("intersectionId") Long intersectionId, @Param("date") LocalDate date);
+
+    @Modifying
+    @Query("DELETE FROM DailyIntersectionRollup r WHERE r.rollupDate BETWEEN :startDate AND :endDate")
+    int deleteByDateRange(@Param("startDate") LocalDate startDate, @Param("endDate") LocalDate endDate);
+
+    // ==========================================
+    // Dashboard reads
+    // ==========================================
+
+    /**
+     * Daily totals across all intersections
+     * @return One row per day that has metrics, oldest first
+     */
+    @Query("SELECT new com.trafficlight.dto.DailyTrendPoint(r.rollupDate, SUM(r.totalVehicleCount), " +
+           "AVG(CASE WHEN r.waitTimeSamples > 0 THEN CAST(r.waitTimeSum AS Double) / r.waitTimeSamples END)) " +
+           "FROM DailyIntersectionRollup r WHERE " +
+           "r.rollupDate BETWEEN :startDate AND :endDate " +
+           "GROUP BY r.rollupDate ORDER BY r.rollupDate")
+    List<DailyTrendPoint> getDailyTrend(
+        @Param("startDate") LocalDate startDate,
+        @Param("endDate") LocalDate endDate
+    );
+
+    /**
+     * Daily totals across one city's intersections
+     */
+    @Query("SELECT new com.trafficlight.dto.DailyTrendPoint(r.rollupDate, SUM(r.totalVehicleCount), " +
+           "AVG(CASE WHEN r.waitTimeSamples > 0 THEN CAST(r.waitTimeSum AS Double) / r.waitTimeSamples END)) " +
+           "FROM DailyIntersectionRollup r JOIN Intersection i ON i.id = r.intersectionId WHERE " +
+           "r.rollupDate BETWEEN :startDate AND :endDate AND i.city = :city " +
+           "GROUP BY r.rollupDate ORDER BY r.rollupDate")
+    List<DailyTrendPoint> getDailyTrendByCity(
+        @Param("city") String city,
+        @Param("startDate") LocalDate startDate,
+        @Param("endDate") LocalDate endDate
+    );
+
+    /**
+     * Per-intersection totals for the range
+     * @return One row per intersection that has metrics in the range
+     */
+    @Query("SELECT new com.trafficlight.dto.IntersectionRollup(i.id, i.name, i.city, i.latitude, i.longitude, " +
+           "SUM(r.totalVehicleCount), " +
+           "CASE WHEN SUM(r.waitTimeSamples) > 0 THEN CAST(SUM(r.waitTimeSum) AS Double) / SUM(r.waitTimeSamples) END, " +
+           "CASE WHEN SUM(r.throughputSamples) > 0 THEN CAST(SUM(r.throughputSum) AS Double) / SUM(r.throughputSamples) END) " +
+           "FROM DailyIntersectionRollup r JOIN Intersection i ON i.id = r.intersectionId WHERE " +
+           "r.rollupDate BETWEEN :startDate AND :endDate " +
+           "GROUP BY i.id, i.name, i.city, i.latitude, i.longitude ORDER BY i.id")
+    List<IntersectionRollup> getIntersectionRollups(
+        @Param("startDate") LocalDate startDate,
+        @Param("endDate") LocalDate endDate
+    );
+
+    /**
+     * Per-intersection totals for one city's intersections
+     */
+    @Query("SELECT new com.trafficlight.dto.IntersectionRollup(i.id, i.name, i.city, i.latitude, i.longitude, " +
+           "SUM(r.totalVehicleCount), " +
+           "CASE WHEN SUM(r.waitTimeSamples) > 0 THEN CAST(SUM(r.waitTimeSum) AS Double) / SUM(r.waitTimeSamples) END, " +
+           "CASE WHEN SUM(r.throughputSamples) > 0 THEN CAST(SUM(r.throughputSum) AS Double) / SUM(r.throughputSamples) END) " +
+           "FROM DailyIntersectionRollup r JOIN Intersection i ON i.id = r.intersectionId WHERE " +
+           "r.rollupDate BETWEEN :startDate AND :endDate AND i.city = :city " +
+           "GROUP BY i.id, i.name, i.city, i.latitude, i.longitude ORDER BY i.id")
+    List<IntersectionRollup> getIntersectionRollupsByCity(
+        @Param("city") String city,
+        @Param("startDate") LocalDate startDate,
+        @Param("endDate") LocalDate endDate
+    );
+}
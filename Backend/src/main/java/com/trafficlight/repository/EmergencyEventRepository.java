@@ -1,25 +1,77 @@
 package com.trafficlight.repository;
 
 import com.trafficlight.entity.EmergencyEvent;
+import jakarta.persistence.QueryHint;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.stereotype.Repository;
 
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
+import java.util.stream.Stream;
+
+import static org.hibernate.jpa.HibernateHints.HINT_CACHEABLE;
+import static org.hibernate.jpa.HibernateHints.HINT_FETCH_SIZE;
+import static org.hibernate.jpa.HibernateHints.HINT_READ_ONLY;
 
 @Repository
 public interface EmergencyEventRepository extends JpaRepository<EmergencyEvent, Long> {
 
-    List<EmergencyEvent> findByEmergencyVehicleIdOrderByCreatedAtDesc(Long emergencyVehicleId);
+    List<EmergencyEvent> findByEventType(EmergencyEvent.EventType eventType);
 
-    List<EmergencyEvent> findByIntersectionIdOrderByCreatedAtDesc(Long intersectionId);
+    // Keyset sayfalama: (createdAt, id) imlecinden eskiye doğru, en yeni önce.
+    // (emergency_vehicle_id | intersection_id, created_at, id) indeksleri sayfayı sıralı okur; COUNT yok.
 
-    List<EmergencyEvent> findByEventType(EmergencyEvent.EventType eventType);
+    @Query("SELECT e FROM EmergencyEvent e WHERE e.emergencyVehicleId = :emergencyVehicleId " +
+           "AND (e.createdAt < :createdAt OR (e.createdAt = :createdAt AND e.id < :id)) " +
+           "ORDER BY e.createdAt DESC, e.id DESC")
+    List<EmergencyEvent> findVehicleHistoryPage(Long emergencyVehicleId, LocalDateTime createdAt, Long id,
+                                                Pageable limit);
+
+    @Query("SELECT e FROM EmergencyEvent e WHERE e.intersectionId = :intersectionId " +
+           "AND (e.createdAt < :createdAt OR (e.createdAt = :createdAt AND e.id < :id)) " +
+           "ORDER BY e.createdAt DESC, e.id DESC")
+    List<EmergencyEvent> findIntersectionHistoryPage(Long intersectionId, LocalDateTime createdAt, Long id,
+                                                     Pageable limit);
+
+    @Query("SELECT e FROM EmergencyEvent e WHERE e.createdAt >= :start " +
+           "AND (e.createdAt < :createdAt OR (e.createdAt = :createdAt AND e.id < :id)) " +
+           "ORDER BY e.createdAt DESC, e.id DESC")
+    List<EmergencyEvent> findRangePage(LocalDateTime start, LocalDateTime createdAt, Long id, Pageable limit);
 
-    @Query("SELECT e FROM EmergencyEvent e WHERE e.createdAt BETWEEN :start AND :end ORDER BY e.createdAt DESC")
-    List<EmergencyEvent> findByDateRange(LocalDateTime start, LocalDateTime end);
+    // Dışa aktarım: ileri yönlü imleç, satırlar fetch-size'lık parçalarla gelir (açık transaction içinde tüketilmeli)
+
+    @QueryHints({
+        @QueryHint(name = HINT_FETCH_SIZE, value = "1000"),
+        @QueryHint(name = HINT_READ_ONLY, value = "true"),
+        @QueryHint(name = HINT_CACHEABLE, value = "false")
+    })
+    @Query("SELECT e FROM EmergencyEvent e WHERE e.createdAt >= :from AND e.createdAt < :to ORDER BY e.createdAt, e.id")
+    Stream<EmergencyEvent> streamRange(LocalDateTime from, LocalDateTime to);
+
+    @QueryHints({
+        @QueryHint(name = HINT_FETCH_SIZE, value = "1000"),
+        @QueryHint(name = HINT_READ_ONLY, value = "true"),
+        @QueryHint(name = HINT_CACHEABLE, value = "false")
+    })
+    @Query("SELECT e FROM EmergencyEvent e WHERE e.intersectionId = :intersectionId " +
+           "AND e.createdAt >= :from AND e.createdAt < :to ORDER BY e.createdAt, e.id")
+    Stream<EmergencyEvent> streamIntersectionRange(Long intersectionId, LocalDateTime from, LocalDateTime to);
 
     @Query("SELECT COUNT(e) FROM EmergencyEvent e WHERE e.eventType = 'EMERGENCY_DETECTED' AND e.createdAt >= :since")
     Long countEmergenciesSince(LocalDateTime since);
+
+    @Query("SELECT e.journalKey FROM EmergencyEvent e WHERE e.journalKey IN :journalKeys")
+    List<String> findExistingJournalKeys(Collection<String> journalKeys);
+
+    /**
+     * Araç bazında sıralı tespit izi: [vehicleId, geldiği yön, intersectionId, createdAt]
+     */
+    @Query("SELECT v.vehicleId, v.direction, e.intersectionId, e.createdAt FROM EmergencyEvent e, EmergencyVehicle v " +
+           "WHERE v.id = e.emergencyVehicleId AND e.eventType = 'EMERGENCY_DETECTED' AND e.createdAt >= :since " +
+           "ORDER BY v.vehicleId, e.createdAt")
+    List<Object[]> findDetectionTrail(LocalDateTime since);
 }
\ No newline at end of file
@@ -0,0 +1,23 @@
+package com.trafficlight.repository;
+
+import com.trafficlight.entity.EmergencyImpact;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+@Repository
+public interface EmergencyImpactRepository extends JpaRepository<EmergencyImpact, Long> {
+
+    List<EmergencyImpact> findTop20ByIntersectionIdOrderByHoldStartDescIdDesc(Long intersectionId);
+
+    /**
+     * Kavşak başına toplamlar: intersectionId, adet, gecikme toplamı, kuyruk artışı toplamı,
+     * en yüksek tepe kuyruk, dönüş süresi toplamı, dönen adet, bekletme toplamı, son analiz
+     */
+    @Query("SELECT i.intersectionId, COUNT(i), SUM(i.delayVehicleSeconds), SUM(i.queueBuildUp), " +
+           "MAX(i.peakQueue), SUM(i.recoverySeconds), COUNT(i.recoverySeconds), SUM(i.holdSeconds), " +
+           "MAX(i.analyzedAt) FROM EmergencyImpact i GROUP BY i.intersectionId")
+    List<Object[]> summarizeByIntersection();
+}
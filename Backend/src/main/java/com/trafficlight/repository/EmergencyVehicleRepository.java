@@ -6,6 +6,7 @@ import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
 
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -25,4 +26,13 @@ public interface EmergencyVehicleRepository extends JpaRepository<EmergencyVehic
     List<EmergencyVehicle> findByDateRange(LocalDateTime start, LocalDateTime end);
 
     Long countByStatusAndDetectedAtAfter(EmergencyVehicle.EmergencyStatus status, LocalDateTime after);
+
+    List<EmergencyVehicle> findByJournalKeyIn(Collection<String> journalKeys);
+
+    /**
+     * (tip, kavşak ID, adet) - günlük aktivite sayaçlarının yeniden sayımı için
+     */
+    @Query("SELECT e.type, e.currentIntersectionId, COUNT(e) FROM EmergencyVehicle e " +
+           "WHERE e.detectedAt >= :start AND e.detectedAt < :end GROUP BY e.type, e.currentIntersectionId")
+    List<Object[]> countByTypeAndIntersection(LocalDateTime start, LocalDateTime end);
 }
\ No newline at end of file
@@ -1,16 +1,27 @@
 package com.trafficlight.repository;
 
+import com.trafficlight.dto.IntersectionIncidents;
+import com.trafficlight.dto.IntersectionKpi;
+import com.trafficlight.dto.MetricColumnRow;
+import com.trafficlight.dto.MetricResponse;
 import com.trafficlight.entity.IntersectionMetric;
+import jakarta.persistence.QueryHint;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.time.LocalDate;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
+
+import static org.hibernate.jpa.HibernateHints.HINT_FETCH_SIZE;
+import static org.hibernate.jpa.HibernateHints.HINT_READ_ONLY;
 
 /**
  * HAFTA 2 - Repository Pattern
@@ -91,6 +102,158 @@ public interface IntersectionMetricRepository extends JpaRepository<Intersection
         Pageable pageable
     );
 
+    // ==========================================
+    // Response projections (one query, no lazy intersection loads)
+    // ==========================================
+
+    /**
+     * MetricResponse constructor expression, in the field order of MetricResponse.
+     * The intersection name and code come from the join, so mapping N metrics
+     * does not load N intersection proxies.
+     */
+    String RESPONSE_SELECT = "SELECT new com.trafficlight.dto.MetricResponse(m.id, i.id, i.name, i.code, " +
+           "m.measurementDate, m.measurementHour, m.totalVehicleCount, m.carCount, m.truckCount, m.busCount, " +
+           "m.motorcycleCount, m.bicycleCount, m.pedestrianCount, m.averageWaitTime, m.maximumWaitTime, " +
+           "m.averageQueueLength, m.maximumQueueLength, m.throughput, m.greenTimeUtilization, " +
+           "m.redLightViolations, m.yellowLightViolations, m.pedestrianViolations, m.accidentsCount, " +
+           "m.nearMissCount, m.emergencyVehiclePassages, m.systemUptimePercentage, m.malfunctionCount, " +
+           "m.manualOverrideCount, m.estimatedCo2Emission, m.estimatedFuelConsumption, m.dataQualityScore, " +
+           "m.notes, m.createdAt, m.updatedAt) FROM IntersectionMetric m JOIN m.intersection i ";
+
+    /**
+     * Get metric response by ID
+     * @param id Metric ID
+     * @return Optional metric response
+     */
+    @Query(RESPONSE_SELECT + "WHERE m.id = :id")
+    Optional<MetricResponse> findResponseById(@Param("id") Long id);
+
+    /**
+     * Get metric responses for a specific intersection
+     * @param intersectionId Intersection ID
+     * @return List of metric responses
+     */
+    @Query(RESPONSE_SELECT + "WHERE m.intersection.id = :intersectionId")
+    List<MetricResponse> findResponsesByIntersectionId(@Param("intersectionId") Long intersectionId);
+
+    /**
+     * Get metric responses for a specific intersection with pagination
+     * @param intersectionId Intersection ID
+     * @param pageable Pagination parameters (sort properties of IntersectionMetric)
+     * @return Page of metric responses
+     */
+    @Query(value = RESPONSE_SELECT + "WHERE m.intersection.id = :intersectionId",
+           countQuery = "SELECT COUNT(m) FROM IntersectionMetric m WHERE m.intersection.id = :intersectionId")
+    Page<MetricResponse> findResponsesByIntersectionId(
+        @Param("intersectionId") Long intersectionId,
+        Pageable pageable
+    );
+
+    /**
+     * Get metric responses for intersection within date range
+     * @param intersectionId Intersection ID
+     * @param startDate Start date
+     * @param endDate End date
+     * @return List of metric responses, newest first
+     */
+    @Query(RESPONSE_SELECT + "WHERE " +
+           "m.intersection.id = :intersectionId AND " +
+           "m.measurementDate BETWEEN :startDate AND :endDate " +
+           "ORDER BY m.measurementDate DESC, m.measurementHour DESC")
+    List<MetricResponse> findResponsesByIntersectionIdAndDateRange(
+        @Param("intersectionId") Long intersectionId,
+        @Param("startDate") LocalDate startDate,
+        @Param("endDate") LocalDate endDate
+    );
+
+    /**
+     * Get metric responses for intersection within date range with pagination
+     * @param intersectionId Intersection ID
+     * @param startDate Start date
+     * @param endDate End date
+     * @param pageable Pagination parameters
+     * @return Page of metric responses
+     */
+    @Query(value = RESPONSE_SELECT + "WHERE " +
+           "m.intersection.id = :intersectionId AND " +
+           "m.measurementDate BETWEEN :startDate AND :endDate " +
+           "ORDER BY m.measurementDate DESC, m.measurementHour DESC",
+           countQuery = "SELECT COUNT(m) FROM IntersectionMetric m WHERE " +
+           "m.intersection.id = :intersectionId AND " +
+           "m.measurementDate BETWEEN :startDate AND :endDate")
+    Page<MetricResponse> findResponsesByIntersectionIdAndDateRange(
+        @Param("intersectionId") Long intersectionId,
+        @Param("startDate") LocalDate startDate,
+        @Param("endDate") LocalDate endDate,
+        Pageable pageable
+    );
+
+    /**
+     * Get metric responses with accidents
+     * @param intersectionId Intersection ID
+     * @param startDate Start date
+     * @param endDate End date
+     * @return List of metric responses with accidents
+     */
+    @Query(RESPONSE_SELECT + "WHERE " +
+           "m.intersection.id = :intersectionId AND " +
+           "m.measurementDate BETWEEN :startDate AND :endDate AND " +
+           "m.accidentsCount > 0 " +
+           "ORDER BY m.accidentsCount DESC")
+    List<MetricResponse> findResponsesWithAccidents(
+        @Param("intersectionId") Long intersectionId,
+        @Param("startDate") LocalDate startDate,
+        @Param("endDate") LocalDate endDate
+    );
+
+    /**
+     * Get metric responses with violations
+     * @param intersectionId Intersection ID
+     * @param startDate Start date
+     * @param endDate End date
+     * @return List of metric responses with violations
+     */
+    @Query(RESPONSE_SELECT + "WHERE " +
+           "m.intersection.id = :intersectionId AND " +
+           "m.measurementDate BETWEEN :startDate AND :endDate AND " +
+           "(m.redLightViolations > 0 OR m.yellowLightViolations > 0 OR m.pedestrianViolations > 0) " +
+           "ORDER BY (m.redLightViolations + m.yellowLightViolations + m.pedestrianViolations) DESC")
+    List<MetricResponse> findResponsesWithViolations(
+        @Param("intersectionId") Long intersectionId,
+        @Param("startDate") LocalDate startDate,
+        @Param("endDate") LocalDate endDate
+    );
+
+    // ==========================================
+    // Keyset pagination (newest first, no COUNT)
+    // ==========================================
+
+    /**
+     * Page of metrics after a (date, hour, id) key, newest first.
+     * A null hour (daily metric) sorts as -1, before hour 0 of the same day;
+     * idx_metrics_keyset serves the range and the order without a sort.
+     * @param startDate Oldest date included
+     * @param date Key date (first page: end date)
+     * @param hour Key hour (first page: 24)
+     * @param id Key id
+     * @param limit Page size + 1
+     * @return Metric responses after the key
+     */
+    @Query(RESPONSE_SELECT + "WHERE " +
+           "m.intersection.id = :intersectionId AND " +
+           "m.measurementDate >= :startDate AND m.measurementDate <= :date AND " +
+           "(m.measurementDate < :date OR COALESCE(m.measurementHour, -1) < :hour OR " +
+           "(COALESCE(m.measurementHour, -1) = :hour AND m.id < :id)) " +
+           "ORDER BY m.measurementDate DESC, COALESCE(m.measurementHour, -1) DESC, m.id DESC")
+    List<MetricResponse> findKeysetPage(
+        @Param("intersectionId") Long intersectionId,
+        @Param("startDate") LocalDate startDate,
+        @Param("date") LocalDate date,
+        @Param("hour") Integer hour,
+        @Param("id") Long id,
+        Pageable limit
+    );
+
     /**
      * Get metrics for specific date
      * @param date Measurement date
@@ -208,6 +371,41 @@ public interface IntersectionMetricRepository extends JpaRepository<Intersection
         @Param("endDate") LocalDate endDate
     );
 
+    /**
+     * Get per-intersection KPIs for all intersections in one grouped query
+     * @param startDate Start date
+     * @param endDate End date
+     * @return One row per intersection that has metrics in the range
+     */
+    @Query("SELECT new com.trafficlight.dto.IntersectionKpi(m.intersection.id, " +
+           "AVG(m.averageWaitTime), SUM(m.totalVehicleCount), AVG(m.throughput)) " +
+           "FROM IntersectionMetric m WHERE " +
+           "m.measurementDate BETWEEN :startDate AND :endDate " +
+           "GROUP BY m.intersection.id")
+    List<IntersectionKpi> getIntersectionKpis(
+        @Param("startDate") LocalDate startDate,
+        @Param("endDate") LocalDate endDate
+    );
+
+    /**
+     * Get per-intersection incident totals for all intersections in one grouped query
+     * @param startDate Start date
+     * @param endDate End date
+     * @return One row per intersection with an accident or violation in the range
+     */
+    @Query("SELECT new com.trafficlight.dto.IntersectionIncidents(i.id, i.name, i.city, " +
+           "SUM(COALESCE(m.accidentsCount, 0)), SUM(COALESCE(m.redLightViolations, 0)), " +
+           "SUM(COALESCE(m.yellowLightViolations, 0)), SUM(COALESCE(m.pedestrianViolations, 0))) " +
+           "FROM IntersectionMetric m JOIN m.intersection i WHERE " +
+           "m.measurementDate BETWEEN :startDate AND :endDate AND " +
+           "(m.accidentsCount > 0 OR m.redLightViolations > 0 OR " +
+           "m.yellowLightViolations > 0 OR m.pedestrianViolations > 0) " +
+           "GROUP BY i.id, i.name, i.city")
+    List<IntersectionIncidents> getIntersectionIncidents(
+        @Param("startDate") LocalDate startDate,
+        @Param("endDate") LocalDate endDate
+    );
+
     /**
      * Get metrics with low data quality
      * @param threshold Data quality threshold (0.0 to 1.0)
@@ -218,6 +416,14 @@ public interface IntersectionMetricRepository extends JpaRepository<Intersection
            "ORDER BY m.dataQualityScore ASC, m.measurementDate DESC")
     List<IntersectionMetric> findMetricsWithLowQuality(@Param("threshold") Double threshold);
 
+    /**
+     * Count metrics with low data quality
+     * @param threshold Data quality threshold (0.0 to 1.0)
+     * @return Count of metrics with low quality
+     */
+    @Query("SELECT COUNT(m) FROM IntersectionMetric m WHERE m.dataQualityScore < :threshold")
+    long countMetricsWithLowQuality(@Param("threshold") Double threshold);
+
     /**
      * Delete old metrics before a specific date
      * @param date Cut-off date
@@ -242,5 +448,118 @@ public interface IntersectionMetricRepository extends JpaRepository<Intersection
         ORDER BY m.intersection_id, m.measurement_date DESC, m.measurement_hour DESC
         """, nativeQuery = true)
     List<IntersectionMetric> findLatestMetricsForAllIntersections();
-}
 
+    // ==========================================
+    // Columnar store loading (forward-only, consume inside a transaction)
+    // ==========================================
+
+    String COLUMN_ROW_SELECT = "SELECT new com.trafficlight.dto.MetricColumnRow(m.id, i.id, i.city, " +
+           "m.measurementDate, m.measurementHour, m.totalVehicleCount, m.averageWaitTime, m.throughput, " +
+           "m.accidentsCount, COALESCE(m.redLightViolations, 0) + COALESCE(m.yellowLightViolations, 0) + " +
+           "COALESCE(m.pedestrianViolations, 0)) FROM IntersectionMetric m JOIN m.intersection i ";
+
+    /**
+     * Stream metric columns for a date range without loading entities
+     * @param startDate Start date
+     * @param endDate End date
+     * @return Rows ordered by date
+     */
+    @QueryHints(@QueryHint(name = HINT_FETCH_SIZE, value = "5000"))
+    @Query(COLUMN_ROW_SELECT + "WHERE m.measurementDate BETWEEN :startDate AND :endDate ORDER BY m.measurementDate")
+    Stream<MetricColumnRow> streamColumnRows(
+        @Param("startDate") LocalDate startDate,
+        @Param("endDate") LocalDate endDate
+    );
+
+    /**
+     * Stream metric columns from a date onwards
+     * @param startDate Start date
+     * @return Rows ordered by date
+     */
+    @QueryHints(@QueryHint(name = HINT_FETCH_SIZE, value = "5000"))
+    @Query(COLUMN_ROW_SELECT + "WHERE m.measurementDate >= :startDate ORDER BY m.measurementDate")
+    Stream<MetricColumnRow> streamColumnRowsSince(@Param("startDate") LocalDate startDate);
+
+    // ==========================================
+    // Bulk export (forward-only, consume inside a transaction)
+    // ==========================================
+
+    /**
+     * Export columns, in the order of MetricExportService.COLUMNS
+     */
+    String EXPORT_SELECT = "SELECT m.id, i.id, i.code, i.city, m.measurementDate, m.measurementHour, " +
+           "m.totalVehicleCount, m.carCount, m.truckCount, m.busCount, m.motorcycleCount, m.bicycleCount, " +
+           "m.pedestrianCount, m.averageWaitTime, m.maximumWaitTime, m.averageQueueLength, m.maximumQueueLength, " +
+           "m.throughput, m.greenTimeUtilization, m.redLightViolations, m.yellowLightViolations, " +
+           "m.pedestrianViolations, m.accidentsCount, m.nearMissCount, m.emergencyVehiclePassages, " +
+           "m.systemUptimePercentage, m.malfunctionCount, m.manualOverrideCount, m.estimatedCo2Emission, " +
+           "m.estimatedFuelConsumption, m.dataQualityScore FROM IntersectionMetric m JOIN m.intersection i ";
+
+    String EXPORT_ORDER = "ORDER BY m.measurementDate, i.id, m.measurementHour";
+
+    /**
+     * Stream export rows of all intersections for a date range
+     * @param startDate Start date
+     * @param endDate End date
+     * @return Rows ordered by date, intersection and hour
+     */
+    @QueryHints({
+        @QueryHint(name = HINT_FETCH_SIZE, value = "5000"),
+        @QueryHint(name = HINT_READ_ONLY, value = "true")
+    })
+    @Query(EXPORT_SELECT + "WHERE m.measurementDate BETWEEN :startDate AND :endDate " + EXPORT_ORDER)
+    Stream<Object[]> streamExportRows(
+        @Param("startDate") LocalDate startDate,
+        @Param("endDate") LocalDate endDate
+    );
+
+    /**
+     * Stream export rows of the given intersections for a date range
+     * @param intersectionIds Intersection IDs
+     * @param startDate Start date
+     * @param endDate End date
+     * @return Rows ordered by date, intersection and hour
+     */
+    @QueryHints({
+        @QueryHint(name = HINT_FETCH_SIZE, value = "5000"),
+        @QueryHint(name = HINT_READ_ONLY, value = "true")
+    })
+    @Query(EXPORT_SELECT + "WHERE i.id IN :intersectionIds " +
+           "AND m.measurementDate BETWEEN :startDate AND :endDate " + EXPORT_ORDER)
+    Stream<Object[]> streamExportRowsForIntersections(
+        @Param("intersectionIds") Collection<Long> intersectionIds,
+        @Param("startDate") LocalDate startDate,
+        @Param("endDate") LocalDate endDate
+    );
+
+    // ==========================================
+    // Wait-time sketch backfill
+    // ==========================================
+
+    /**
+     * Stream (intersection ID, date, average wait time, vehicle count) of the metrics that have a wait time
+     * @param startDate Start date
+     * @param endDate End date
+     * @return Rows ordered by intersection and date
+     */
+    @QueryHints({
+        @QueryHint(name = HINT_FETCH_SIZE, value = "5000"),
+        @QueryHint(name = HINT_READ_ONLY, value = "true")
+    })
+    @Query("SELECT m.intersection.id, m.measurementDate, m.averageWaitTime, m.totalVehicleCount " +
+           "FROM IntersectionMetric m WHERE m.measurementDate BETWEEN :startDate AND :endDate " +
+           "AND m.averageWaitTime IS NOT NULL ORDER BY m.intersection.id, m.measurementDate")
+    Stream<Object[]> streamWaitTimeSamples(
+        @Param("startDate") LocalDate startDate,
+        @Param("endDate") LocalDate endDate
+    );
+
+    /**
+     * First and last measurement date of the metrics that have a wait time (null when there are none)
+     */
+    @Query("SELECT MIN(m.measurementDate) FROM IntersectionMetric m WHERE m.averageWaitTime IS NOT NULL")
+    LocalDate findFirstWaitTimeDate();
+
+    @Query("SELECT MAX(m.measurementDate) FROM IntersectionMetric m WHERE m.averageWaitTime IS NOT NULL")
+    LocalDate findLastWaitTimeDate();
+}
@@ -1,5 +1,6 @@
 package com.trafficlight.repository;
 
+import com.trafficlight.dto.IntersectionMapPoint;
 import com.trafficlight.entity.Intersection;
 import com.trafficlight.entity.Intersection.IntersectionStatus;
 import com.trafficlight.entity.Intersection.IntersectionType;
@@ -12,6 +13,7 @@ import org.springframework.stereotype.Repository;
 
 import java.math.BigDecimal;
 import java.time.LocalDate;
+import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Optional;
 
@@ -211,6 +213,109 @@ public interface IntersectionRepository extends JpaRepository<Intersection, Long
         @Param("status") String status
     );
 
+    /**
+     * Location columns of all intersections (in-memory spatial index)
+     * Columns: id, name, latitude, longitude, status
+     * @return List of location rows
+     */
+    @Query("SELECT i.id, i.name, i.latitude, i.longitude, i.status FROM Intersection i")
+    List<Object[]> findAllLocations();
+
+    /**
+     * Id and code of all intersections (bulk metric import resolves codes to ids)
+     * Columns: id, code
+     * @return List of id/code rows
+     */
+    @Query("SELECT i.id, i.code FROM Intersection i")
+    List<Object[]> findAllCodes();
+
+    // ==========================================
+    // Keyset pagination (no COUNT, null filter = any)
+    // ==========================================
+
+    /**
+     * Page of intersections after an id, ascending
+     * @param afterId Key id (first page: Long.MIN_VALUE)
+     * @param limit Page size + 1
+     * @return Intersections after the key
+     */
+    @Query("SELECT i FROM Intersection i WHERE " +
+           "(:city IS NULL OR i.city = :city) AND (:status IS NULL OR i.status = :status) " +
+           "AND i.id > :afterId ORDER BY i.id ASC")
+    List<Intersection> findKeysetPageById(
+        @Param("city") String city,
+        @Param("status") IntersectionStatus status,
+        @Param("afterId") Long afterId,
+        Pageable limit
+    );
+
+    /**
+     * Page of intersections after an (updatedAt, id) key, most recently updated first
+     * @param updatedAt Key update time (first page: far future)
+     * @param id Key id
+     * @param limit Page size + 1
+     * @return Intersections after the key
+     */
+    @Query("SELECT i FROM Intersection i WHERE " +
+           "(:city IS NULL OR i.city = :city) AND (:status IS NULL OR i.status = :status) " +
+           "AND i.updatedAt <= :updatedAt AND (i.updatedAt < :updatedAt OR i.id < :id) " +
+           "ORDER BY i.updatedAt DESC, i.id DESC")
+    List<Intersection> findKeysetPageByUpdatedAt(
+        @Param("city") String city,
+        @Param("status") IntersectionStatus status,
+        @Param("updatedAt") LocalDateTime updatedAt,
+        @Param("id") Long id,
+        Pageable limit
+    );
+
+    // ==========================================
+    // Map projections (marker fields only, no entities)
+    // ==========================================
+
+    String MAP_POINT_SELECT = "SELECT new com.trafficlight.dto.IntersectionMapPoint(i.id, i.name, i.code, " +
+           "i.latitude, i.longitude, i.city, i.district, i.address, i.intersectionType, i.status) " +
+           "FROM Intersection i ";
+
+    /**
+     * Get map points of all intersections
+     * @return Map points ordered by ID
+     */
+    @Query(MAP_POINT_SELECT + "ORDER BY i.id")
+    List<IntersectionMapPoint> findMapPoints();
+
+    /**
+     * Get map points by status
+     * @param status Intersection status
+     * @return Map points ordered by ID
+     */
+    @Query(MAP_POINT_SELECT + "WHERE i.status = :status ORDER BY i.id")
+    List<IntersectionMapPoint> findMapPointsByStatus(@Param("status") IntersectionStatus status);
+
+    /**
+     * Get map points by city
+     * @param city City name
+     * @return Map points ordered by ID
+     */
+    @Query(MAP_POINT_SELECT + "WHERE i.city = :city ORDER BY i.id")
+    List<IntersectionMapPoint> findMapPointsByCity(@Param("city") String city);
+
+    /**
+     * Get map points inside a bounding box (bounds inclusive)
+     * @param minLat Minimum latitude
+     * @param maxLat Maximum latitude
+     * @param minLng Minimum longitude
+     * @param maxLng Maximum longitude
+     * @return Map points ordered by ID
+     */
+    @Query(MAP_POINT_SELECT + "WHERE i.latitude BETWEEN :minLat AND :maxLat " +
+           "AND i.longitude BETWEEN :minLng AND :maxLng ORDER BY i.id")
+    List<IntersectionMapPoint> findMapPointsInBounds(
+        @Param("minLat") BigDecimal minLat,
+        @Param("maxLat") BigDecimal maxLat,
+        @Param("minLng") BigDecimal minLng,
+        @Param("maxLng") BigDecimal maxLng
+    );
+
     // ==========================================
     // Custom Query Methods - Maintenance Queries
     // ==========================================
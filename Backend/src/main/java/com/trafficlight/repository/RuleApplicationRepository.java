@@ -24,4 +24,13 @@ public interface RuleApplicationRepository extends JpaRepository<RuleApplication
     @Query("SELECT ra.ruleName, COUNT(ra) as count FROM RuleApplication ra " +
            "WHERE ra.appliedAt >= :since GROUP BY ra.ruleName ORDER BY count DESC")
     List<Object[]> findMostAppliedRulesSince(LocalDateTime since);
+
+    /**
+     * (kural ID, kural adı, kavşak ID, adet, başarılı adet) - günlük aktivite sayaçlarının yeniden sayımı için
+     */
+    @Query("SELECT ra.ruleId, ra.ruleName, ra.intersectionId, COUNT(ra), " +
+           "SUM(CASE WHEN ra.successful = true THEN 1 ELSE 0 END) FROM RuleApplication ra " +
+           "WHERE ra.appliedAt >= :start AND ra.appliedAt < :end " +
+           "GROUP BY ra.ruleId, ra.ruleName, ra.intersectionId")
+    List<Object[]> countByRuleAndIntersection(LocalDateTime start, LocalDateTime end);
 }
\ No newline at end of file
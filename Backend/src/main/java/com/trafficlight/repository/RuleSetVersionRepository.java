@@ -0,0 +1,20 @@
+package com.trafficlight.repository;
+
+import com.trafficlight.entity.RuleSetVersion;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+@Repository
+public interface RuleSetVersionRepository extends JpaRepository<RuleSetVersion, Long> {
+
+    /**
+     * En son yayınlanmış versiyon (yakınsama kontrolü için, sadece ID okunur)
+     */
+    @Query("SELECT MAX(v.id) FROM RuleSetVersion v")
+    Long findLatestVersion();
+
+    List<RuleSetVersion> findTop20ByOrderByIdDesc();
+}
@@ -2,7 +2,9 @@ package com.trafficlight.repository;
 
 import com.trafficlight.entity.TrafficRule;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.util.List;
@@ -17,12 +19,19 @@ public interface TrafficRuleRepository extends JpaRepository<TrafficRule, Long>
 
     List<TrafficRule> findByRuleTypeAndActiveTrue(TrafficRule.RuleType ruleType);
 
-    List<TrafficRule> findByActiveTrueOrderByPriorityAsc();
+    List<TrafficRule> findByActiveTrueOrderByPriorityAscIdAsc();
 
     @Query("SELECT r FROM TrafficRule r WHERE r.active = true AND " +
            "(:vehicleCount IS NULL OR " +
            "(r.minVehicleCount IS NULL OR :vehicleCount >= r.minVehicleCount) AND " +
            "(r.maxVehicleCount IS NULL OR :vehicleCount <= r.maxVehicleCount)) " +
-           "ORDER BY r.priority ASC")
+           "ORDER BY r.priority ASC, r.id ASC")
     List<TrafficRule> findApplicableRules(Integer vehicleCount);
-}
\ No newline at end of file
+
+    /**
+     * Uygulama sayacını artır (updatedAt'e dokunmaz)
+     */
+    @Modifying
+    @Query("UPDATE TrafficRule r SET r.timesApplied = COALESCE(r.timesApplied, 0) + 1 WHERE r.id = :ruleId")
+    int incrementTimesApplied(@Param("ruleId") Long ruleId);
+}
@@ -6,6 +6,7 @@ import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
 
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -31,4 +32,17 @@ public interface TrafficSensorRepository extends JpaRepository<TrafficSensor, Lo
            "WHERE s.intersectionId = :intersectionId AND s.recordedAt >= :since " +
            "GROUP BY s.direction")
     List<Object[]> getAverageByDirection(Long intersectionId, LocalDateTime since);
+
+    @Query("SELECT s FROM TrafficSensor s WHERE s.intersectionId = :intersectionId " +
+           "AND s.direction IN :directions AND s.active = true " +
+           "AND s.recordedAt >= :from AND s.recordedAt < :to ORDER BY s.recordedAt ASC, s.id ASC")
+    List<TrafficSensor> findReadingsBetween(Long intersectionId, Collection<TrafficSensor.Direction> directions,
+                                            LocalDateTime from, LocalDateTime to);
+
+    /**
+     * (kavşak ID, okuma sayısı, araç toplamı) - günlük aktivite sayaçlarının yeniden sayımı için
+     */
+    @Query("SELECT s.intersectionId, COUNT(s), SUM(s.vehicleCount) FROM TrafficSensor s " +
+           "WHERE s.recordedAt >= :start AND s.recordedAt < :end GROUP BY s.intersectionId")
+    List<Object[]> countByIntersection(LocalDateTime start, LocalDateTime end);
 }
\ No newline at end of file
@@ -0,0 +1,135 @@
+package com.trafficlight.repository;
+
+import com.trafficlight.entity.WaitTimeSketch;
+import com.trafficlight.entity.WaitTimeSketch.Granularity;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Per-intersection wait-time histograms by day and by month
+ *
+ * Read queries return (intersection ID, city, histogram bytes) tuples from one
+ * primary key range scan; merging happens in WaitTimeSketchService.
+ */
+@Repository
+public interface WaitTimeSketchRepository extends JpaRepository<WaitTimeSketch, WaitTimeSketch.SketchId> {
+
+    // ==========================================
+    // Incremental maintenance
+    // ==========================================
+
+    /**
+     * Row lock for read-modify-write of a histogram (concurrent metrics of the same intersection)
+     *
+     * Native FOR UPDATE: @Lock(PESSIMISTIC_WRITE) renders PostgreSQL's FOR NO KEY UPDATE,
+     * which H2 does not parse
+     */
+    @Query(value = "SELECT * FROM wait_time_sketches WHERE granularity = :granularity " +
+           "AND period_start = :periodStart AND intersection_id = :intersectionId FOR UPDATE",
+           nativeQuery = true)
+    Optional<WaitTimeSketch> findForUpdate(
+        @Param("granularity") String granularity,
+        @Param("periodStart") LocalDate periodStart,
+        @Param("intersectionId") Long intersectionId
+    );
+
+    /**
+     * Create an empty histogram row unless one exists (PostgreSQL); a concurrent insert of
+     * the same key waits for the other transaction instead of failing on the primary key
+     * @return 1 when the row was created
+     */
+    @Modifying
+    @Query(value = "INSERT INTO wait_time_sketches " +
+           "(granularity, period_start, intersection_id, sample_count, histogram, updated_at) " +
+           "VALUES (:granularity, :periodStart, :intersectionId, 0, :histogram, CURRENT_TIMESTAMP) " +
+           "ON CONFLICT DO NOTHING", nativeQuery = true)
+    int insertIfAbsent(
+        @Param("granularity") String granularity,
+        @Param("periodStart") LocalDate periodStart,
+        @Param("intersectionId") Long intersectionId,
+        @Param("histogram") byte[] histogram
+    );
+
+    /**
+     * Write a rebuilt histogram, replacing the row if a metric recorded concurrently
+     * with the rebuild has created it again (PostgreSQL)
+     */
+    @Modifying
+    @Query(value = "INSERT INTO wait_time_sketches " +
+           "(granularity, period_start, intersection_id, sample_count, histogram, updated_at) " +
+           "VALUES (:granularity, :periodStart, :intersectionId, :sampleCount, :histogram, CURRENT_TIMESTAMP) " +
+           "ON CONFLICT (granularity, period_start, intersection_id) DO UPDATE SET " +
+           "sample_count = EXCLUDED.sample_count, histogram = EXCLUDED.histogram, updated_at = EXCLUDED.updated_at",
+           nativeQuery = true)
+    int upsertRebuilt(
+        @Param("granularity") String granularity,
+        @Param("periodStart") LocalDate periodStart,
+        @Param("intersectionId") Long intersectionId,
+        @Param("sampleCount") long sampleCount,
+        @Param("histogram") byte[] histogram
+    );
+
+    boolean existsByGranularity(Granularity granularity);
+
+    /**
+     * Bulk delete before a rebuild; flushes and detaches loaded sketches so the rebuilt rows can be persisted
+     */
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("DELETE FROM WaitTimeSketch s WHERE s.granularity = :granularity " +
+           "AND s.periodStart BETWEEN :startDate AND :endDate")
+    int deleteByPeriodRange(
+        @Param("granularity") Granularity granularity,
+        @Param("startDate") LocalDate startDate,
+        @Param("endDate") LocalDate endDate
+    );
+
+    /**
+     * (intersection ID, histogram bytes) of one granularity, ordered by intersection
+     */
+    @Query("SELECT s.intersectionId, s.histogram FROM WaitTimeSketch s WHERE s.granularity = :granularity " +
+           "AND s.periodStart BETWEEN :startDate AND :endDate ORDER BY s.intersectionId")
+    List<Object[]> findHistogramsByIntersection(
+        @Param("granularity") Granularity granularity,
+        @Param("startDate") LocalDate startDate,
+        @Param("endDate") LocalDate endDate
+    );
+
+    // ==========================================
+    // Percentile reads
+    // ==========================================
+
+    String SKETCH_SELECT = "SELECT s.intersectionId, i.city, s.histogram FROM WaitTimeSketch s " +
+           "JOIN Intersection i ON i.id = s.intersectionId WHERE s.granularity = :granularity " +
+           "AND s.periodStart BETWEEN :startDate AND :endDate ";
+
+    @Query(SKETCH_SELECT)
+    List<Object[]> findSketches(
+        @Param("granularity") Granularity granularity,
+        @Param("startDate") LocalDate startDate,
+        @Param("endDate") LocalDate endDate
+    );
+
+    @Query(SKETCH_SELECT + "AND i.city = :city")
+    List<Object[]> findSketchesForCity(
+        @Param("city") String city,
+        @Param("granularity") Granularity granularity,
+        @Param("startDate") LocalDate startDate,
+        @Param("endDate") LocalDate endDate
+    );
+
+    @Query(SKETCH_SELECT + "AND s.intersectionId IN :intersectionIds")
+    List<Object[]> findSketchesForIntersections(
+        @Param("intersectionIds") Collection<Long> intersectionIds,
+        @Param("granularity") Granularity granularity,
+        @Param("startDate") LocalDate startDate,
+        @Param("endDate") LocalDate endDate
+    );
+}
@@ -0,0 +1,177 @@
+package com.trafficlight.service;
+
+import com.trafficlight.entity.EmergencyVehicle;
+import com.trafficlight.event.EmergencyVehiclesPersistedEvent;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Aktif acil durumların bellekteki kaydı.
+ *
+ * Tetikleme aracı hemen ekler, sonlanma (elle ya da süre sonu) çıkarır;
+ * durum ve /active sorguları veritabanına gitmez. Araç anahtarı journal
+ * anahtarıdır (eski kayıtlarda "vehicle-{id}"). Veritabanı id'si satır
+ * yazılınca {@link EmergencyVehiclesPersistedEvent} ile bağlanır.
+ * Açılışta veritabanındaki aktif kayıtlarla uzlaştırılır.
+ *
+ * Kayıtlar kopyadır ve değiştirilmez; id bağlanınca yeni kopya konur.
+ */
+@Component
+@Slf4j
+public class ActiveEmergencyRegistry {
+
+    private static final Comparator<EmergencyVehicle> ORDER = Comparator
+            .comparing(EmergencyVehicle::getPriorityLevel, Comparator.nullsLast(Comparator.naturalOrder()))
+            .thenComparing(EmergencyVehicle::getDetectedAt);
+
+    private final Map<String, EmergencyVehicle> byKey = new ConcurrentHashMap<>();
+    private final Map<Long, String> byId = new ConcurrentHashMap<>();
+    private final Map<Long, Set<String>> byIntersection = new ConcurrentHashMap<>();
+
+    /**
+     * Aracın kayıt anahtarı: journal anahtarı, eski kayıtlarda veritabanı id'si
+     */
+    public static String keyOf(EmergencyVehicle vehicle) {
+        return keyOf(vehicle.getJournalKey(), vehicle.getId());
+    }
+
+    public static String keyOf(String journalKey, Long id) {
+        return journalKey != null ? journalKey : "vehicle-" + id;
+    }
+
+    /**
+     * Aktif acil durumu ekle (aynı anahtar varsa yerine geçer)
+     */
+    public void register(EmergencyVehicle vehicle) {
+        String key = keyOf(vehicle);
+        EmergencyVehicle previous = byKey.put(key, copy(vehicle, vehicle.getId()));
+        if (previous != null) {
+            unindex(key, previous);
+        }
+        if (vehicle.getId() != null) {
+            byId.put(vehicle.getId(), key);
+        }
+        byIntersection.compute(vehicle.getCurrentIntersectionId(), (intersectionId, keys) -> {
+            Set<String> result = keys != null ? keys : ConcurrentHashMap.newKeySet();
+            result.add(key);
+            return result;
+        });
+    }
+
+    /**
+     * Acil durumu çıkar
+     *
+     * @return çıkarılan kayıt; zaten yoksa null (başka bir yol sonlandırmış)
+     */
+    public EmergencyVehicle remove(String key) {
+        EmergencyVehicle removed = byKey.remove(key);
+        if (removed != null) {
+            unindex(key, removed);
+        }
+        return removed;
+    }
+
+    public EmergencyVehicle get(String key) {
+        return byKey.get(key);
+    }
+
+    /**
+     * Veritabanı id'siyle bul (satır henüz yazılmadıysa null)
+     */
+    public EmergencyVehicle get(Long id) {
+        String key = byId.get(id);
+        return key != null ? byKey.get(key) : null;
+    }
+
+    /**
+     * Aktif acil durumlar (öncelik, sonra tespit zamanı sırasıyla)
+     */
+    public List<EmergencyVehicle> active() {
+        return byKey.values().stream().sorted(ORDER).toList();
+    }
+
+    /**
+     * Kavşakta tespit edilmiş aktif acil durumlar
+     */
+    public List<EmergencyVehicle> activeAt(Long intersectionId) {
+        Set<String> keys = byIntersection.get(intersectionId);
+        if (keys == null) {
+            return List.of();
+        }
+        return keys.stream().map(byKey::get).filter(vehicle -> vehicle != null).sorted(ORDER).toList();
+    }
+
+    public int count() {
+        return byKey.size();
+    }
+
+    /**
+     * Veritabanındaki aktif kayıtları ekle (açılışta)
+     *
+     * @return kayıtta olmayıp eklenen acil durum sayısı
+     */
+    public int reconcile(List<EmergencyVehicle> persisted) {
+        int added = 0;
+        for (EmergencyVehicle vehicle : persisted) {
+            String key = keyOf(vehicle);
+            if (!byKey.containsKey(key)) {
+                register(vehicle);
+                added++;
+            } else if (vehicle.getId() != null) {
+                bindId(key, vehicle.getId());
+            }
+        }
+        if (added > 0) {
+            log.info("🔄 Aktif acil durum kaydı veritabanıyla uzlaştırıldı: {} kayıt eklendi", added);
+        }
+        return added;
+    }
+
+    /**
+     * Günlük araç satırlarını yazdı: id'leri bağla
+     */
+    @EventListener
+    public void onVehiclesPersisted(EmergencyVehiclesPersistedEvent event) {
+        event.vehicleIds().forEach(this::bindId);
+    }
+
+    private void bindId(String key, Long id) {
+        byKey.computeIfPresent(key, (k, vehicle) -> {
+            byId.put(id, k);
+            return id.equals(vehicle.getId()) ? vehicle : copy(vehicle, id);
+        });
+    }
+
+    private void unindex(String key, EmergencyVehicle vehicle) {
+        if (vehicle.getId() != null) {
+            byId.remove(vehicle.getId(), key);
+        }
+        byIntersection.computeIfPresent(vehicle.getCurrentIntersectionId(), (intersectionId, keys) -> {
+            keys.remove(key);
+            return keys.isEmpty() ? null : keys;
+        });
+    }
+
+    private static EmergencyVehicle copy(EmergencyVehicle vehicle, Long id) {
+        return EmergencyVehicle.builder()
+                .id(id)
+                .vehicleId(vehicle.getVehicleId())
+                .type(vehicle.getType())
+                .status(vehicle.getStatus())
+                .currentIntersectionId(vehicle.getCurrentIntersectionId())
+                .direction(vehicle.getDirection())
+                .detectedAt(vehicle.getDetectedAt())
+                .clearedAt(vehicle.getClearedAt())
+                .priorityLevel(vehicle.getPriorityLevel())
+                .notes(vehicle.getNotes())
+                .journalKey(vehicle.getJournalKey())
+                .build();
+    }
+}
@@ -0,0 +1,189 @@
+package com.trafficlight.service;
+
+import com.trafficlight.entity.EmergencyVehicle;
+import com.trafficlight.event.EmergencyPreemptionEvent;
+import com.trafficlight.repository.EmergencyEventRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.OptionalDouble;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Koridor (komşu iki kavşak arası) geçiş sürelerinin öğrenilmiş tahmini.
+ *
+ * Aynı acil aracın ardışık iki kavşaktaki tespit zamanları arasındaki fark,
+ * o yöndeki koridorun bir geçiş örneğidir. Her koridor için üstel hareketli
+ * ortalama (EWMA) ve örnek sayısı tutulur; güncelleme O(1), bellek koridor
+ * sayısıyla sınırlıdır. Açılışta son günlerin EMERGENCY_DETECTED kayıtlarıyla
+ * ısıtılır, sonra her öncelik olayıyla artımlı öğrenir.
+ *
+ * Tahmin, örnek sayısına göre ağırlıklandırılır: az örnekli koridorda hıza
+ * göre fiziksel süre baskındır, örnek arttıkça öğrenilen süre öne geçer.
+ */
+@Component
+@Slf4j
+public class CorridorTravelTimes {
+
+    /** Aykırı örnek sınırı: ortalamanın bu katından uzun geçiş kırpılır (araç durmuş olabilir) */
+    private static final double OUTLIER_FACTOR = 3.0;
+
+    private static final int MAX_TRACKED_VEHICLES = 10_000;
+
+    private final EmergencyEventRepository emergencyEventRepository;
+    private final IntersectionSpatialIndex spatialIndex;
+    private final double alpha;
+    private final long maxHopSeconds;
+    private final int warmupDays;
+    private final double priorSamples;
+
+    private final Map<Corridor, Estimate> estimates = new ConcurrentHashMap<>();
+
+    /** Araç başına son tespit (sadece sonraki koridoru eşlemek için) */
+    private final Map<String, Sighting> lastSightings = new LinkedHashMap<>(256, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Sighting> eldest) {
+            return size() > MAX_TRACKED_VEHICLES;
+        }
+    };
+
+    public CorridorTravelTimes(
+            EmergencyEventRepository emergencyEventRepository,
+            IntersectionSpatialIndex spatialIndex,
+            @Value("${traffic.emergency.eta.alpha:0.2}") double alpha,
+            @Value("${traffic.emergency.eta.max-hop-seconds:300}") long maxHopSeconds,
+            @Value("${traffic.emergency.eta.warmup-days:30}") int warmupDays,
+            @Value("${traffic.emergency.eta.prior-samples:5}") double priorSamples) {
+        this.emergencyEventRepository = emergencyEventRepository;
+        this.spatialIndex = spatialIndex;
+        this.alpha = alpha;
+        this.maxHopSeconds = maxHopSeconds;
+        this.warmupDays = warmupDays;
+        this.priorSamples = priorSamples;
+    }
+
+    /**
+     * Koridor geçiş süresi tahmini (saniye)
+     *
+     * @param meters          koridor uzunluğu
+     * @param metersPerSecond aracın hızı
+     */
+    public double hopSeconds(long fromIntersectionId, long toIntersectionId, double meters, double metersPerSecond) {
+        double physical = meters / metersPerSecond;
+        Estimate estimate = estimates.get(new Corridor(fromIntersectionId, toIntersectionId));
+        if (estimate == null) {
+            return physical;
+        }
+        double weight = estimate.samples() / (estimate.samples() + priorSamples);
+        return weight * estimate.seconds() + (1 - weight) * physical;
+    }
+
+    /**
+     * Öğrenilmiş ortalama geçiş süresi (örnek yoksa boş)
+     */
+    public OptionalDouble learnedSeconds(long fromIntersectionId, long toIntersectionId) {
+        Estimate estimate = estimates.get(new Corridor(fromIntersectionId, toIntersectionId));
+        return estimate != null ? OptionalDouble.of(estimate.seconds()) : OptionalDouble.empty();
+    }
+
+    public int samples(long fromIntersectionId, long toIntersectionId) {
+        Estimate estimate = estimates.get(new Corridor(fromIntersectionId, toIntersectionId));
+        return estimate != null ? estimate.samples() : 0;
+    }
+
+    public int corridorCount() {
+        return estimates.size();
+    }
+
+    /**
+     * Geçiş örneği ekle
+     */
+    public void record(long fromIntersectionId, long toIntersectionId, double seconds) {
+        if (seconds <= 0) {
+            return;
+        }
+        estimates.merge(new Corridor(fromIntersectionId, toIntersectionId), new Estimate(seconds, 1),
+                (current, sample) -> {
+                    double clipped = Math.min(sample.seconds(), current.seconds() * OUTLIER_FACTOR);
+                    return new Estimate(current.seconds() + alpha * (clipped - current.seconds()),
+                            current.samples() + 1);
+                });
+    }
+
+    /**
+     * Aracın bir kavşakta tespiti; önceki tespiti gidiş yönündeki komşu
+     * kavşaktaysa aradaki süre koridor örneğidir
+     *
+     * @param heading aracın gittiği yön
+     */
+    public void observe(String vehicleId, long intersectionId, EmergencyVehicle.Direction heading, LocalDateTime at) {
+        if (vehicleId == null || heading == null || at == null) {
+            return;
+        }
+        Sighting previous;
+        synchronized (lastSightings) {
+            previous = lastSightings.put(vehicleId, new Sighting(intersectionId, at));
+        }
+        if (previous == null || previous.intersectionId() == intersectionId) {
+            return;
+        }
+        long millis = Duration.between(previous.at(), at).toMillis();
+        if (millis <= 0 || millis > maxHopSeconds * 1000) {
+            return;
+        }
+        IntersectionGraph graph = spatialIndex.current();
+        int from = graph.indexOf(previous.intersectionId());
+        if (from < 0 || graph.next(from, heading) != graph.indexOf(intersectionId)) {
+            return;
+        }
+        record(previous.intersectionId(), intersectionId, millis / 1000.0);
+    }
+
+    /**
+     * Her öncelik kararı bir tespittir
+     */
+    @EventListener
+    public void onPreemption(EmergencyPreemptionEvent event) {
+        PreemptionPlan plan = event.plan();
+        observe(event.vehicleId(), plan.originIntersectionId(), plan.heading(), event.detectedAt());
+    }
+
+    /**
+     * Son günlerin tespit kayıtlarından koridorları öğren
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void warmUp() {
+        try {
+            List<Object[]> trail = emergencyEventRepository.findDetectionTrail(
+                    LocalDateTime.now().minusDays(warmupDays));
+            for (Object[] row : trail) {
+                observe((String) row[0], ((Number) row[2]).longValue(),
+                        PreemptionPlanner.travelDirection((EmergencyVehicle.Direction) row[1]),
+                        (LocalDateTime) row[3]);
+            }
+            synchronized (lastSightings) {
+                lastSightings.clear();
+            }
+            log.info("🧭 Koridor geçiş süreleri öğrenildi: {} tespit, {} koridor", trail.size(), estimates.size());
+        } catch (RuntimeException e) {
+            log.warn("⚠️ Koridor geçiş süreleri yüklenemedi, hıza göre tahmin kullanılacak: {}", e.getMessage());
+        }
+    }
+
+    private record Corridor(long from, long to) {
+    }
+
+    private record Estimate(double seconds, int samples) {
+    }
+
+    private record Sighting(long intersectionId, LocalDateTime at) {
+    }
+}
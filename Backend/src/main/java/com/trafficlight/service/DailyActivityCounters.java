@@ -0,0 +1,385 @@
+package com.trafficlight.service;
+
+import com.trafficlight.entity.DailyActivityStat;
+import com.trafficlight.entity.DailyActivityStat.Counter;
+import com.trafficlight.entity.EmergencyVehicle;
+import com.trafficlight.entity.RuleApplication;
+import com.trafficlight.entity.TrafficSensor;
+import com.trafficlight.repository.DailyActivityStatRepository;
+import com.trafficlight.repository.EmergencyVehicleRepository;
+import com.trafficlight.repository.RuleApplicationRepository;
+import com.trafficlight.repository.TrafficSensorRepository;
+import jakarta.annotation.PreDestroy;
+import jakarta.persistence.EntityManager;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Günlük aktivite sayaçları (acil durum, kural uygulaması, sensör okuması).
+ *
+ * Kayıtlar yazılırken bellekteki gün kovası artırılır (LongAdder, kilitsiz);
+ * işlem içindeki yazımlar commit sonrası sayılır. Raporlar kaynak tablolara
+ * gitmez, istenen günlerin kovalarını toplar.
+ *
+ * Değişen günler traffic.stats.snapshot-ms aralığında daily_activity_stats
+ * tablosuna yazılır (günün satırları topluca değiştirilir). Açılışta anlık
+ * görüntüler okunur; son görüntünün gününden bugüne kadarki günler kaynak
+ * tablolardan yeniden sayılır. Bellekte traffic.stats.retention-days gün tutulur.
+ */
+@Component
+@Slf4j
+public class DailyActivityCounters {
+
+    /**
+     * Bir sayacın toplamı: olay sayısı ve değer toplamı
+     * (RULE için başarılı uygulama, SENSOR_INTERSECTION için araç sayısı)
+     */
+    public record Total(long count, long sum) {
+
+        public static final Total ZERO = new Total(0, 0);
+
+        Total plus(long count, long sum) {
+            return new Total(this.count + count, this.sum + sum);
+        }
+
+        /**
+         * Olay başına ortalama değer (olay yoksa null)
+         */
+        public Double average() {
+            return count > 0 ? (double) sum / count : null;
+        }
+    }
+
+    private static final class Cell {
+        final LongAdder count = new LongAdder();
+        final LongAdder sum = new LongAdder();
+    }
+
+    /**
+     * Bir günün sayaçları; changes son anlık görüntüden bu yana değişiklik sayısını izler
+     */
+    private static final class Day {
+        final Map<Counter, Map<String, Cell>> cells = new EnumMap<>(Counter.class);
+        final LongAdder changes = new LongAdder();
+        volatile long snapshotted;
+
+        Day() {
+            for (Counter counter : Counter.values()) {
+                cells.put(counter, new ConcurrentHashMap<>());
+            }
+        }
+
+        void add(Counter counter, String dimension, long value) {
+            Cell cell = cells.get(counter).computeIfAbsent(dimension, key -> new Cell());
+            cell.count.increment();
+            cell.sum.add(value);
+            changes.increment();
+        }
+
+        void put(Counter counter, String dimension, long count, long sum) {
+            Cell cell = cells.get(counter).computeIfAbsent(dimension, key -> new Cell());
+            cell.count.add(count);
+            cell.sum.add(sum);
+        }
+
+        boolean isClean() {
+            return changes.sum() == snapshotted;
+        }
+    }
+
+    /** Açılışta günlüğün tabloya yazılması için beklenecek en uzun süre */
+    private static final Duration JOURNAL_DRAIN_TIMEOUT = Duration.ofSeconds(5);
+
+    private final Map<LocalDate, Day> days = new ConcurrentHashMap<>();
+
+    private final DailyActivityStatRepository statRepository;
+    private final EmergencyVehicleRepository emergencyVehicleRepository;
+    private final RuleApplicationRepository ruleApplicationRepository;
+    private final TrafficSensorRepository sensorRepository;
+    private final EmergencyEventJournal journal;
+    private final EntityManager entityManager;
+    private final TransactionTemplate transactionTemplate;
+    private final int retentionDays;
+    private volatile boolean loaded;
+
+    public DailyActivityCounters(
+            DailyActivityStatRepository statRepository,
+            EmergencyVehicleRepository emergencyVehicleRepository,
+            RuleApplicationRepository ruleApplicationRepository,
+            TrafficSensorRepository sensorRepository,
+            EmergencyEventJournal journal,
+            EntityManager entityManager,
+            PlatformTransactionManager transactionManager,
+            @Value("${traffic.stats.retention-days:35}") int retentionDays) {
+        this.statRepository = statRepository;
+        this.emergencyVehicleRepository = emergencyVehicleRepository;
+        this.ruleApplicationRepository = ruleApplicationRepository;
+        this.sensorRepository = sensorRepository;
+        this.journal = journal;
+        this.entityManager = entityManager;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.retentionDays = Math.max(retentionDays, 14); // haftalık trend önceki haftayı da okur
+    }
+
+    // ==========================================
+    // Kayıt
+    // ==========================================
+
+    /**
+     * Tetiklenen acil durumu say (araç satırı günlük üzerinden sonra yazılır)
+     */
+    public void recordEmergency(EmergencyVehicle vehicle) {
+        Day day = dayOf(vehicle.getDetectedAt());
+        if (day != null) {
+            day.add(Counter.EMERGENCY_TYPE, String.valueOf(vehicle.getType()), 0);
+            day.add(Counter.EMERGENCY_INTERSECTION, String.valueOf(vehicle.getCurrentIntersectionId()), 0);
+        }
+    }
+
+    public void recordRuleApplication(RuleApplication application) {
+        afterCommit(() -> {
+            Day day = dayOf(application.getAppliedAt());
+            if (day != null) {
+                day.add(Counter.RULE, ruleName(application.getRuleId(), application.getRuleName()),
+                        Boolean.TRUE.equals(application.getSuccessful()) ? 1 : 0);
+                day.add(Counter.RULE_INTERSECTION, String.valueOf(application.getIntersectionId()), 0);
+            }
+        });
+    }
+
+    public void recordSensorReading(TrafficSensor reading) {
+        afterCommit(() -> {
+            Day day = dayOf(reading.getRecordedAt());
+            if (day != null) {
+                day.add(Counter.SENSOR_INTERSECTION, String.valueOf(reading.getIntersectionId()),
+                        reading.getVehicleCount() != null ? reading.getVehicleCount() : 0);
+            }
+        });
+    }
+
+    // ==========================================
+    // Okuma
+    // ==========================================
+
+    /**
+     * Sayacın gün aralığındaki toplamı (uçlar dahil)
+     */
+    public Total total(Counter counter, LocalDate startDate, LocalDate endDate) {
+        long count = 0;
+        long sum = 0;
+        for (LocalDate date = startDate; !date.isAfter(endDate); date = date.plusDays(1)) {
+            Day day = days.get(date);
+            if (day == null) {
+                continue;
+            }
+            for (Cell cell : day.cells.get(counter).values()) {
+                count += cell.count.sum();
+                sum += cell.sum.sum();
+            }
+        }
+        return new Total(count, sum);
+    }
+
+    /**
+     * Sayacın gün aralığındaki boyut bazında toplamları (uçlar dahil)
+     */
+    public Map<String, Total> totalsBy(Counter counter, LocalDate startDate, LocalDate endDate) {
+        Map<String, Total> totals = new HashMap<>();
+        for (LocalDate date = startDate; !date.isAfter(endDate); date = date.plusDays(1)) {
+            Day day = days.get(date);
+            if (day == null) {
+                continue;
+            }
+            day.cells.get(counter).forEach((dimension, cell) ->
+                    totals.merge(dimension, new Total(cell.count.sum(), cell.sum.sum()),
+                            (a, b) -> a.plus(b.count(), b.sum())));
+        }
+        return totals;
+    }
+
+    // ==========================================
+    // Yükleme ve anlık görüntü
+    // ==========================================
+
+    /**
+     * Anlık görüntüleri ve kaynak tabloları oku
+     *
+     * Açılış sürerken kaydedilen sayımlar kaybolmaz: anlık görüntüden gelen günler
+     * canlı kovaların üzerine eklenir; yeniden sayılan her günün kovası sorgudan hemen
+     * önce boş bir kovayla değiştirilir, sorgunun göremediği yeni kayıtlar ona düşer.
+     * Günlükteki acil durumlar önce tabloya yazdırılır (eski kovada sayıldılar).
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void load() {
+        long start = System.currentTimeMillis();
+        LocalDate today = LocalDate.now();
+        LocalDate windowStart = windowStart();
+        LocalDateTime lastSnapshot = statRepository.findLastSnapshotAt();
+        LocalDate recountFrom = lastSnapshot == null || lastSnapshot.toLocalDate().isBefore(windowStart)
+                ? windowStart
+                : lastSnapshot.toLocalDate();
+
+        Set<LocalDate> fromSnapshots = new HashSet<>();
+        for (DailyActivityStat stat : statRepository.findByStatDateBetween(windowStart, recountFrom.minusDays(1))) {
+            days.computeIfAbsent(stat.getStatDate(), date -> new Day())
+                    .put(stat.getCounter(), stat.getDimension(), stat.getEventCount(), stat.getValueSum());
+            fromSnapshots.add(stat.getStatDate());
+        }
+        awaitJournal();
+        int recounted = 0;
+        for (LocalDate date = recountFrom; !date.isAfter(today); date = date.plusDays(1)) {
+            Day day = new Day();
+            day.changes.increment(); // anlık görüntüsü yeniden yazılsın
+            days.put(date, day);
+            recount(date, day);
+            recounted++;
+        }
+
+        loaded = true;
+        log.info("📊 Günlük aktivite sayaçları yüklendi: {} gün anlık görüntüden, {} gün kaynak tablolardan ({} ms)",
+                fromSnapshots.size(), recounted, System.currentTimeMillis() - start);
+    }
+
+    private void awaitJournal() {
+        try {
+            if (!journal.awaitDrained(JOURNAL_DRAIN_TIMEOUT)) {
+                log.warn("⚠️ Acil durum günlüğü {} içinde boşalmadı; yazılmamış kayıtlar bugünün sayımında eksik kalabilir",
+                        JOURNAL_DRAIN_TIMEOUT);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Değişen günleri yaz, saklama süresini geçen temiz günleri bırak
+     */
+    @Scheduled(fixedDelayString = "${traffic.stats.snapshot-ms:60000}",
+               initialDelayString = "${traffic.stats.snapshot-ms:60000}")
+    public void snapshot() {
+        if (!loaded) {
+            return;
+        }
+        try {
+            writeSnapshots();
+        } catch (RuntimeException e) {
+            log.warn("⚠️ Aktivite sayaçlarının anlık görüntüsü yazılamadı: {}", e.getMessage());
+        }
+        LocalDate windowStart = windowStart();
+        days.entrySet().removeIf(entry -> entry.getKey().isBefore(windowStart) && entry.getValue().isClean());
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (loaded) {
+            writeSnapshots();
+        }
+    }
+
+    /**
+     * Son anlık görüntüden beri değişen günleri yaz
+     *
+     * @return yazılan gün sayısı
+     */
+    public int writeSnapshots() {
+        int written = 0;
+        for (Map.Entry<LocalDate, Day> entry : days.entrySet()) {
+            Day day = entry.getValue();
+            long changes = day.changes.sum();
+            if (changes == day.snapshotted) {
+                continue;
+            }
+            transactionTemplate.executeWithoutResult(status -> persist(entry.getKey(), day));
+            day.snapshotted = changes;
+            written++;
+        }
+        return written;
+    }
+
+    private void persist(LocalDate date, Day day) {
+        statRepository.deleteByStatDate(date);
+        day.cells.forEach((counter, byDimension) -> byDimension.forEach((dimension, cell) ->
+                entityManager.persist(DailyActivityStat.builder()
+                        .statDate(date)
+                        .counter(counter)
+                        .dimension(dimension)
+                        .eventCount(cell.count.sum())
+                        .valueSum(cell.sum.sum())
+                        .build())));
+        entityManager.flush();
+        entityManager.clear();
+    }
+
+    /**
+     * Bir günü kaynak tablolardan gruplu sorgularla say (canlı kovaya eklenir)
+     */
+    private void recount(LocalDate date, Day day) {
+        LocalDateTime start = date.atStartOfDay();
+        LocalDateTime end = date.plusDays(1).atStartOfDay();
+        for (Object[] row : emergencyVehicleRepository.countByTypeAndIntersection(start, end)) {
+            long count = ((Number) row[2]).longValue();
+            day.put(Counter.EMERGENCY_TYPE, String.valueOf(row[0]), count, 0);
+            day.put(Counter.EMERGENCY_INTERSECTION, String.valueOf(row[1]), count, 0);
+        }
+        for (Object[] row : ruleApplicationRepository.countByRuleAndIntersection(start, end)) {
+            long count = ((Number) row[3]).longValue();
+            day.put(Counter.RULE, ruleName((Long) row[0], (String) row[1]), count, ((Number) row[4]).longValue());
+            day.put(Counter.RULE_INTERSECTION, String.valueOf(row[2]), count, 0);
+        }
+        for (Object[] row : sensorRepository.countByIntersection(start, end)) {
+            day.put(Counter.SENSOR_INTERSECTION, String.valueOf(row[0]),
+                    ((Number) row[1]).longValue(), row[2] != null ? ((Number) row[2]).longValue() : 0);
+        }
+    }
+
+    private Day dayOf(LocalDateTime at) {
+        LocalDate date = at != null ? at.toLocalDate() : LocalDate.now();
+        if (date.isBefore(windowStart())) {
+            return null; // saklama süresi dışı: anlık görüntüsü tam olmayan günü ezmesin
+        }
+        return days.computeIfAbsent(date, key -> new Day());
+    }
+
+    private LocalDate windowStart() {
+        return LocalDate.now().minusDays(retentionDays - 1L);
+    }
+
+    private static String ruleName(Long ruleId, String ruleName) {
+        return ruleName != null ? ruleName : "Kural-" + ruleId;
+    }
+
+    /**
+     * İşlem varsa commit sonrasında, yoksa hemen çalıştır (geri alınan yazım sayılmasın)
+     */
+    private static void afterCommit(Runnable action) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    action.run();
+                }
+            });
+        } else {
+            action.run();
+        }
+    }
+}
@@ -0,0 +1,219 @@
+package com.trafficlight.service;
+
+import com.trafficlight.entity.DailyIntersectionRollup;
+import com.trafficlight.entity.IntersectionMetric;
+import com.trafficlight.exception.BadRequestException;
+import com.trafficlight.repository.DailyIntersectionRollupRepository;
+import jakarta.persistence.EntityManager;
+import lombok.extern.slf4j.Slf4j;
+import org.hibernate.Session;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+/**
+ * Daily Rollup Service
+ * Maintains daily_intersection_rollups for dashboard and map queries
+ * 
+ * Creating or deleting a metric applies its contribution to that day's row in the
+ * same transaction. On PostgreSQL a new metric is one INSERT ... ON CONFLICT DO UPDATE,
+ * so concurrent first metrics of a day add up instead of racing on the primary key;
+ * other databases (H2) UPDATE and INSERT when no row was updated.
+ * Backfill recomputes a date range from intersection_metrics for data written
+ * around the service: the range is split into chunks, and each chunk is deleted
+ * and rewritten with a single INSERT ... SELECT in its own transaction
+ * (ON CONFLICT DO UPDATE on PostgreSQL).
+ * The most recent days are reconciled the same way every night.
+ */
+@Service
+@Slf4j
+public class DailyRollupService {
+
+    /** Longest range a single backfill may rebuild (days) */
+    private static final long MAX_BACKFILL_DAYS = 3_660;
+
+    /**
+     * Range rebuild for PostgreSQL: a metric recorded while the chunk is rebuilt can recreate
+     * a deleted day, so the recomputed totals replace that row instead of failing on the key
+     */
+    private static final String UPSERT_RANGE =
+            "INSERT INTO daily_intersection_rollups (rollup_date, intersection_id, metric_count, " +
+            "total_vehicle_count, wait_time_sum, wait_time_samples, throughput_sum, throughput_samples, updated_at) " +
+            "SELECT measurement_date, intersection_id, COUNT(*), COALESCE(SUM(total_vehicle_count), 0), " +
+            "COALESCE(SUM(average_wait_time), 0), COUNT(average_wait_time), " +
+            "COALESCE(SUM(throughput), 0), COUNT(throughput), LOCALTIMESTAMP " +
+            "FROM intersection_metrics WHERE measurement_date BETWEEN :startDate AND :endDate " +
+            "GROUP BY measurement_date, intersection_id " +
+            "ON CONFLICT (rollup_date, intersection_id) DO UPDATE SET " +
+            "metric_count = EXCLUDED.metric_count, total_vehicle_count = EXCLUDED.total_vehicle_count, " +
+            "wait_time_sum = EXCLUDED.wait_time_sum, wait_time_samples = EXCLUDED.wait_time_samples, " +
+            "throughput_sum = EXCLUDED.throughput_sum, throughput_samples = EXCLUDED.throughput_samples, " +
+            "updated_at = EXCLUDED.updated_at";
+
+    private final DailyIntersectionRollupRepository rollupRepository;
+    private final EntityManager entityManager;
+    private final TransactionTemplate transactionTemplate;
+    private final int chunkDays;
+    private final int reconcileDays;
+    private volatile Boolean postgres; // null until the first metric is recorded
+
+    public DailyRollupService(
+            DailyIntersectionRollupRepository rollupRepository,
+            EntityManager entityManager,
+            PlatformTransactionManager transactionManager,
+            @Value("${traffic.rollup.backfill-chunk-days:31}") int chunkDays,
+            @Value("${traffic.rollup.reconcile-days:2}") int reconcileDays) {
+        this.rollupRepository = rollupRepository;
+        this.entityManager = entityManager;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.chunkDays = chunkDays;
+        this.reconcileDays = reconcileDays;
+    }
+
+    /**
+     * Add a new metric's contribution (in the metric's transaction)
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void recordCreated(IntersectionMetric metric) {
+        Long intersectionId = metric.getIntersection().getId();
+        if (isPostgres()) {
+            rollupRepository.upsertDelta(
+                    intersectionId,
+                    metric.getMeasurementDate(),
+                    1,
+                    vehicles(metric),
+                    waitTime(metric),
+                    metric.getAverageWaitTime() != null ? 1 : 0,
+                    throughput(metric),
+                    metric.getThroughput() != null ? 1 : 0,
+                    LocalDateTime.now());
+            return;
+        }
+        if (apply(metric, 1) == 0) {
+            entityManager.persist(DailyIntersectionRollup.builder()
+                .rollupDate(metric.getMeasurementDate())
+                .intersectionId(intersectionId)
+                .metricCount(1)
+                .totalVehicleCount(vehicles(metric))
+                .waitTimeSum(waitTime(metric))
+                .waitTimeSamples(metric.getAverageWaitTime() != null ? 1 : 0)
+                .throughputSum(throughput(metric))
+                .throughputSamples(metric.getThroughput() != null ? 1 : 0)
+                .build());
+        }
+    }
+
+    /**
+     * Remove a deleted metric's contribution; drop the row with the day's last metric
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void recordDeleted(IntersectionMetric metric) {
+        Long intersectionId = metric.getIntersection().getId();
+        if (apply(metric, -1) == 0) {
+            log.warn("Rollup row missing for intersection {} on {}, run a backfill to reconcile",
+                    intersectionId, metric.getMeasurementDate());
+            return;
+        }
+        rollupRepository.deleteIfEmpty(intersectionId, metric.getMeasurementDate());
+    }
+
+    private int apply(IntersectionMetric metric, int sign) {
+        return rollupRepository.applyDelta(
+                metric.getIntersection().getId(),
+                metric.getMeasurementDate(),
+                sign,
+                sign * vehicles(metric),
+                sign > 0 ? waitTime(metric) : waitTime(metric).negate(),
+                metric.getAverageWaitTime() != null ? sign : 0,
+                sign * throughput(metric),
+                metric.getThroughput() != null ? sign : 0,
+                LocalDateTime.now());
+    }
+
+    private boolean isPostgres() {
+        if (postgres == null) {
+            postgres = entityManager.unwrap(Session.class).doReturningWork(connection ->
+                    "PostgreSQL".equals(connection.getMetaData().getDatabaseProductName()));
+        }
+        return postgres;
+    }
+
+    /**
+     * Rebuild rollups for [startDate, endDate] from the metrics
+     * @param startDate Start date
+     * @param endDate End date
+     * @return Number of rollup rows written
+     */
+    public long backfill(LocalDate startDate, LocalDate endDate) {
+        if (startDate == null || endDate == null || endDate.isBefore(startDate)) {
+            throw new BadRequestException("Invalid backfill range: " + startDate + " - " + endDate);
+        }
+        if (startDate.plusDays(MAX_BACKFILL_DAYS).isBefore(endDate)) {
+            throw new BadRequestException("Backfill range must not exceed " + MAX_BACKFILL_DAYS + " days");
+        }
+        long start = System.currentTimeMillis();
+        long rows = 0;
+        for (LocalDate chunkStart = startDate; !chunkStart.isAfter(endDate); chunkStart = chunkStart.plusDays(chunkDays)) {
+            LocalDate from = chunkStart;
+            LocalDate to = chunkStart.plusDays(chunkDays - 1L).isAfter(endDate) ? endDate : chunkStart.plusDays(chunkDays - 1L);
+            Integer written = transactionTemplate.execute(status -> {
+                rollupRepository.deleteByDateRange(from, to);
+                if (isPostgres()) {
+                    return entityManager.createNativeQuery(UPSERT_RANGE)
+                        .setParameter("startDate", from)
+                        .setParameter("endDate", to)
+                        .executeUpdate();
+                }
+                return entityManager.createQuery(
+                        "INSERT INTO DailyIntersectionRollup (rollupDate, intersectionId, metricCount, " +
+                        "totalVehicleCount, waitTimeSum, waitTimeSamples, throughputSum, throughputSamples, updatedAt) " +
+                        "SELECT m.measurementDate, m.intersection.id, CAST(COUNT(m) AS Integer), " +
+                        "COALESCE(SUM(m.totalVehicleCount), 0L), COALESCE(SUM(m.averageWaitTime), 0), " +
+                        "CAST(COUNT(m.averageWaitTime) AS Integer), COALESCE(SUM(m.throughput), 0L), " +
+                        "CAST(COUNT(m.throughput) AS Integer), LOCAL DATETIME " +
+                        "FROM IntersectionMetric m WHERE m.measurementDate BETWEEN :startDate AND :endDate " +
+                        "GROUP BY m.measurementDate, m.intersection.id")
+                    .setParameter("startDate", from)
+                    .setParameter("endDate", to)
+                    .executeUpdate();
+            });
+            rows += written != null ? written : 0;
+        }
+        log.info("Daily rollups rebuilt for {} - {}: {} rows in {} ms", startDate, endDate, rows,
+                System.currentTimeMillis() - start);
+        return rows;
+    }
+
+    /**
+     * Nightly reconcile of the most recent days (covers metrics written directly to the table)
+     */
+    @Scheduled(cron = "${traffic.rollup.reconcile-cron:0 30 3 * * *}")
+    public void reconcileRecent() {
+        LocalDate today = LocalDate.now();
+        try {
+            backfill(today.minusDays(reconcileDays), today);
+        } catch (RuntimeException e) {
+            log.warn("Daily rollup reconcile failed: {}", e.getMessage());
+        }
+    }
+
+    private static long vehicles(IntersectionMetric metric) {
+        return metric.getTotalVehicleCount() != null ? metric.getTotalVehicleCount() : 0;
+    }
+
+    private static BigDecimal waitTime(IntersectionMetric metric) {
+        return metric.getAverageWaitTime() != null ? metric.getAverageWaitTime() : BigDecimal.ZERO;
+    }
+
+    private static long throughput(IntersectionMetric metric) {
+        return metric.getThroughput() != null ? metric.getThroughput() : 0;
+    }
+}
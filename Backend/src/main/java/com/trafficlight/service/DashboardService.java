@@ -1,5 +1,9 @@
 package com.trafficlight.service;
 
+import com.trafficlight.dto.DailyTrendPoint;
+import com.trafficlight.dto.IntersectionIncidents;
+import com.trafficlight.dto.IntersectionKpi;
+import com.trafficlight.dto.IntersectionRollup;
 import com.trafficlight.entity.Intersection;
 import com.trafficlight.entity.Intersection.IntersectionStatus;
 import com.trafficlight.entity.Intersection.IntersectionType;
@@ -25,6 +29,7 @@ public class DashboardService {
     private final IntersectionMetricRepository metricRepository;
     private final IntersectionConfigRepository configRepository;
     private final IntersectionPhaseRepository phaseRepository;
+    private final DailyIntersectionRollupRepository rollupRepository;
 
     /**
      * Get overall dashboard summary
@@ -103,7 +108,8 @@ public class DashboardService {
     public Map<String, Object> getPerformanceMetrics(LocalDate startDate, LocalDate endDate) {
         Map<String, Object> performance = new HashMap<>();
         
-        List<Intersection> intersections = intersectionRepository.findAll();
+        // One grouped query: per-intersection KPIs for the range
+        List<IntersectionKpi> kpis = metricRepository.getIntersectionKpis(startDate, endDate);
         
         // Aggregate metrics across all intersections
         double totalAvgWaitTime = 0;
@@ -111,23 +117,16 @@ public class DashboardService {
         double totalAvgThroughput = 0;
         int count = 0;
         
-        for (Intersection intersection : intersections) {
-            Double avgWaitTime = metricRepository.getAverageWaitTime(
-                intersection.getId(), startDate, endDate);
-            Long vehicleCount = metricRepository.getTotalVehicleCount(
-                intersection.getId(), startDate, endDate);
-            Double avgThroughput = metricRepository.getAverageThroughput(
-                intersection.getId(), startDate, endDate);
-            
-            if (avgWaitTime != null) {
-                totalAvgWaitTime += avgWaitTime;
+        for (IntersectionKpi kpi : kpis) {
+            if (kpi.averageWaitTime() != null) {
+                totalAvgWaitTime += kpi.averageWaitTime();
                 count++;
             }
-            if (vehicleCount != null) {
-                totalVehicles += vehicleCount;
+            if (kpi.totalVehicleCount() != null) {
+                totalVehicles += kpi.totalVehicleCount();
             }
-            if (avgThroughput != null) {
-                totalAvgThroughput += avgThroughput;
+            if (kpi.averageThroughput() != null) {
+                totalAvgThroughput += kpi.averageThroughput();
             }
         }
         
@@ -181,13 +180,13 @@ public class DashboardService {
         }
         
         // Check for low data quality metrics
-        List<com.trafficlight.entity.IntersectionMetric> lowQuality = metricRepository.findMetricsWithLowQuality(0.70);
-        if (!lowQuality.isEmpty()) {
+        int lowQuality = (int) metricRepository.countMetricsWithLowQuality(0.70);
+        if (lowQuality > 0) {
             Map<String, Object> alert = new HashMap<>();
             alert.put("type", "LOW_DATA_QUALITY");
             alert.put("severity", "WARNING");
-            alert.put("message", lowQuality.size() + " metrics with low data quality");
-            alert.put("count", lowQuality.size());
+            alert.put("message", lowQuality + " metrics with low data quality");
+            alert.put("count", lowQuality);
             alertList.add(alert);
         }
         
@@ -207,12 +206,13 @@ public class DashboardService {
         LocalDate endDate = LocalDate.now();
         LocalDate startDate = endDate.minusDays(days);
         
-        List<Intersection> intersections;
-        if (city != null && !city.isEmpty()) {
-            intersections = intersectionRepository.findByCity(city);
-        } else {
-            intersections = intersectionRepository.findAll();
-        }
+        // One grouped query over the daily rollups; days without metrics are filled with zeros
+        LocalDate lastDate = startDate.plusDays(days - 1L);
+        List<DailyTrendPoint> points = city != null && !city.isEmpty()
+            ? rollupRepository.getDailyTrendByCity(city, startDate, lastDate)
+            : rollupRepository.getDailyTrend(startDate, lastDate);
+        Map<LocalDate, DailyTrendPoint> pointsByDate = points.stream()
+            .collect(Collectors.toMap(DailyTrendPoint::date, p -> p));
         
         // Calculate daily trends
         List<Map<String, Object>> dailyTrends = new ArrayList<>();
@@ -222,23 +222,12 @@ public class DashboardService {
             Map<String, Object> dayData = new HashMap<>();
             dayData.put("date", date);
             
-            long totalVehicles = 0;
-            double totalWaitTime = 0;
-            int count = 0;
-            
-            for (Intersection intersection : intersections) {
-                Long vehicles = metricRepository.getTotalVehicleCount(intersection.getId(), date, date);
-                Double waitTime = metricRepository.getAverageWaitTime(intersection.getId(), date, date);
-                
-                if (vehicles != null) totalVehicles += vehicles;
-                if (waitTime != null) {
-                    totalWaitTime += waitTime;
-                    count++;
-                }
-            }
+            DailyTrendPoint point = pointsByDate.get(date);
+            long totalVehicles = point != null && point.totalVehicles() != null ? point.totalVehicles() : 0;
+            Double waitTime = point != null ? point.averageWaitTime() : null;
             
             dayData.put("totalVehicles", totalVehicles);
-            dayData.put("averageWaitTime", count > 0 ? totalWaitTime / count : 0);
+            dayData.put("averageWaitTime", waitTime != null ? waitTime : 0);
             
             dailyTrends.add(dayData);
         }
@@ -302,18 +291,17 @@ public class DashboardService {
     public Map<String, Object> getTopPerformingIntersections(int limit, LocalDate startDate, LocalDate endDate) {
         Map<String, Object> result = new HashMap<>();
         
-        List<Intersection> allIntersections = intersectionRepository.findAll();
         List<Map<String, Object>> performanceList = new ArrayList<>();
         
-        for (Intersection intersection : allIntersections) {
-            Double avgWaitTime = metricRepository.getAverageWaitTime(intersection.getId(), startDate, endDate);
-            Double avgThroughput = metricRepository.getAverageThroughput(intersection.getId(), startDate, endDate);
+        for (IntersectionRollup rollup : rollupRepository.getIntersectionRollups(startDate, endDate)) {
+            Double avgWaitTime = rollup.averageWaitTime();
+            Double avgThroughput = rollup.averageThroughput();
             
             if (avgWaitTime != null && avgThroughput != null) {
                 Map<String, Object> perfData = new HashMap<>();
-                perfData.put("id", intersection.getId());
-                perfData.put("name", intersection.getName());
-                perfData.put("city", intersection.getCity());
+                perfData.put("id", rollup.intersectionId());
+                perfData.put("name", rollup.name());
+                perfData.put("city", rollup.city());
                 perfData.put("averageWaitTime", avgWaitTime);
                 perfData.put("averageThroughput", avgThroughput);
                 
@@ -347,7 +335,8 @@ public class DashboardService {
     public Map<String, Object> getIncidentStatistics(LocalDate startDate, LocalDate endDate) {
         Map<String, Object> incidents = new HashMap<>();
         
-        List<Intersection> intersections = intersectionRepository.findAll();
+        // Per-intersection sums in one grouped query; intersections without incidents get no row
+        List<IntersectionIncidents> rows = metricRepository.getIntersectionIncidents(startDate, endDate);
         
         int totalAccidents = 0;
         int totalRedLightViolations = 0;
@@ -356,33 +345,28 @@ public class DashboardService {
         
         List<Map<String, Object>> intersectionIncidents = new ArrayList<>();
         
-        for (Intersection intersection : intersections) {
-            var accidents = metricRepository.findMetricsWithAccidents(intersection.getId(), startDate, endDate);
-            var violations = metricRepository.findMetricsWithViolations(intersection.getId(), startDate, endDate);
-            
-            int accidentCount = accidents.stream().mapToInt(m -> m.getAccidentsCount()).sum();
-            int redViolations = violations.stream().mapToInt(m -> m.getRedLightViolations()).sum();
-            int yellowViolations = violations.stream().mapToInt(m -> m.getYellowLightViolations()).sum();
-            int pedViolations = violations.stream().mapToInt(m -> m.getPedestrianViolations()).sum();
+        for (IntersectionIncidents row : rows) {
+            int accidentCount = row.accidents().intValue();
+            int redViolations = row.redLightViolations().intValue();
+            int yellowViolations = row.yellowLightViolations().intValue();
+            int pedViolations = row.pedestrianViolations().intValue();
             
             totalAccidents += accidentCount;
             totalRedLightViolations += redViolations;
             totalYellowLightViolations += yellowViolations;
             totalPedestrianViolations += pedViolations;
             
-            if (accidentCount > 0 || redViolations > 0 || yellowViolations > 0 || pedViolations > 0) {
-                Map<String, Object> incidentData = new HashMap<>();
-                incidentData.put("intersectionId", intersection.getId());
-                incidentData.put("intersectionName", intersection.getName());
-                incidentData.put("city", intersection.getCity());
-                incidentData.put("accidents", accidentCount);
-                incidentData.put("redLightViolations", redViolations);
-                incidentData.put("yellowLightViolations", yellowViolations);
-                incidentData.put("pedestrianViolations", pedViolations);
-                incidentData.put("totalIncidents", accidentCount + redViolations + yellowViolations + pedViolations);
-                
-                intersectionIncidents.add(incidentData);
-            }
+            Map<String, Object> incidentData = new HashMap<>();
+            incidentData.put("intersectionId", row.intersectionId());
+            incidentData.put("intersectionName", row.name());
+            incidentData.put("city", row.city());
+            incidentData.put("accidents", accidentCount);
+            incidentData.put("redLightViolations", redViolations);
+            incidentData.put("yellowLightViolations", yellowViolations);
+            incidentData.put("pedestrianViolations", pedViolations);
+            incidentData.put("totalIncidents", (int) row.totalIncidents());
+            
+            intersectionIncidents.add(incidentData);
         }
         
         // Sort by total incidents descending
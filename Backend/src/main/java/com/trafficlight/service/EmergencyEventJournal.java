@@ -0,0 +1,640 @@
+package com.trafficlight.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.trafficlight.entity.EmergencyEvent;
+import com.trafficlight.entity.EmergencyVehicle;
+import com.trafficlight.event.EmergencyVehiclesPersistedEvent;
+import com.trafficlight.repository.EmergencyEventRepository;
+import com.trafficlight.repository.EmergencyVehicleRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.dao.RecoverableDataAccessException;
+import org.springframework.dao.TransientDataAccessException;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.CannotCreateTransactionException;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.sql.SQLNonTransientConnectionException;
+import java.sql.SQLRecoverableException;
+import java.sql.SQLTransientException;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Acil durum kayıtları için write-behind günlük.
+ *
+ * Tetikleme isteği kayıtları sadece kuyruğa ekler ve veritabanını beklemeden
+ * yanıt döner. Tek bir yazıcı thread kuyrukta biriken kayıtları toplu olarak
+ * alır, önce yerel günlük dosyasına ekleyip diske zorlar (fsync), sonra tek
+ * transaction'da veritabanına yazar. Tek yazıcı ve FIFO kuyruk sayesinde bir
+ * aracın kayıtları (tespit → faz değişiklikleri → sonlanma) eklendiği sırayla
+ * yazılır.
+ *
+ * Veritabanı erişilemezse (geçici hata) toplu yazım geri çekilerek tekrar
+ * denenir; kayıtlar günlük dosyasında kalır, dosyaya tekrar yazılmaz. Kalıcı
+ * hatada (kısıt ihlali, bozuk kayıt) max-attempts denemeden sonra kayıtlar tek
+ * tek yazılır ve yazılamayanlar dead-letter dosyasına (günlük yolu + ".dead")
+ * taşınır; tek bir bozuk kayıt yazıcıyı durdurmaz. Açılışta dosyadaki kayıtlar
+ * tekrar oynatılır, journal_key tekil olduğu için zaten yazılmış kayıtlar atlanır.
+ *
+ * Kuyruk doluysa ekleme kısa bir süre bekler, sonra kayıtları dead-letter
+ * dosyasına yazar: tetikleme isteği veritabanı yüzünden hiç bloklanmaz.
+ *
+ * Kayıp penceresi: {@link #append} kayıt bellekteki kuyruğa girince döner;
+ * dosyaya yazma ve fsync yazıcı thread'in sıradaki toplu yazımında yapılır.
+ * Süreç bu arada çökerse onaylanmış ama henüz dosyada olmayan kayıtlar
+ * kaybolur. Pencere normalde bir poll aralığı (100 ms) artı bir toplu yazım
+ * süresidir; veritabanı yavaş ya da erişilemezken yazıcı önceki toplu yazımı
+ * tekrar denediği için pencere kesinti boyunca uzar (en fazla kuyruk kapasitesi
+ * kadar kayıt). fsync=false iken dosyaya yazılan kayıtlar da işletim sistemi
+ * çökmesinde kaybolabilir.
+ *
+ * Araç satırları commit edilince id'leri {@link EmergencyVehiclesPersistedEvent}
+ * ile yayınlanır.
+ *
+ * Metrikler: emergency.journal.{pending,persisted,dead_lettered,flush}
+ */
+@Component
+@Slf4j
+public class EmergencyEventJournal {
+
+    private static final int VEHICLE_KEY_CACHE_SIZE = 10_000;
+
+    private final EmergencyVehicleRepository vehicleRepository;
+    private final EmergencyEventRepository eventRepository;
+    private final ObjectMapper objectMapper;
+    private final ApplicationEventPublisher eventPublisher;
+    private final TransactionTemplate transactionTemplate;
+    private final Path journalPath;
+    private final Path deadLetterPath;
+    private final int batchSize;
+    private final long rotateBytes;
+    private final boolean fsync;
+    private final int maxAttempts;
+    private final long offerTimeoutMillis;
+
+    private final BlockingQueue<Entry> queue;
+    private final AtomicLong appended = new AtomicLong();
+    private final AtomicLong persisted = new AtomicLong();
+    /** Kuyruktan alınıp veritabanına yazılamayan kayıtlar (kuyruk dolu olduğu için eklenemeyenler hariç) */
+    private final AtomicLong discarded = new AtomicLong();
+    private final AtomicLong deadLettered = new AtomicLong();
+    private final Counter persistedCounter;
+    private final Counter deadLetterCounter;
+    private final Timer flushTimer;
+
+    /** journal_key → emergency_vehicles.id (sadece yazıcı thread kullanır) */
+    private final Map<String, Long> vehicleIds = new LinkedHashMap<>(256, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Long> eldest) {
+            return size() > VEHICLE_KEY_CACHE_SIZE;
+        }
+    };
+
+    /** Açılışta dosyadan okunan, henüz veritabanında olduğu doğrulanmamış kayıtlar */
+    private List<Entry> recovered = List.of();
+
+    private FileChannel channel;
+    private Thread writer;
+    private volatile boolean running;
+
+    public EmergencyEventJournal(
+            EmergencyVehicleRepository vehicleRepository,
+            EmergencyEventRepository eventRepository,
+            ObjectMapper objectMapper,
+            ApplicationEventPublisher eventPublisher,
+            PlatformTransactionManager transactionManager,
+            MeterRegistry meterRegistry,
+            @Value("${traffic.emergency.journal.path:data/emergency-journal.log}") String journalPath,
+            @Value("${traffic.emergency.journal.batch-size:500}") int batchSize,
+            @Value("${traffic.emergency.journal.capacity:100000}") int capacity,
+            @Value("${traffic.emergency.journal.rotate-bytes:4194304}") long rotateBytes,
+            @Value("${traffic.emergency.journal.fsync:true}") boolean fsync,
+            @Value("${traffic.emergency.journal.max-attempts:5}") int maxAttempts,
+            @Value("${traffic.emergency.journal.offer-timeout-ms:50}") long offerTimeoutMillis) {
+        this.vehicleRepository = vehicleRepository;
+        this.eventRepository = eventRepository;
+        this.objectMapper = objectMapper;
+        this.eventPublisher = eventPublisher;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.journalPath = Path.of(journalPath);
+        this.deadLetterPath = Path.of(journalPath + ".dead");
+        this.batchSize = Math.max(1, batchSize);
+        this.rotateBytes = rotateBytes;
+        this.fsync = fsync;
+        this.maxAttempts = Math.max(1, maxAttempts);
+        this.offerTimeoutMillis = offerTimeoutMillis;
+        this.queue = new LinkedBlockingQueue<>(capacity);
+
+        this.persistedCounter = Counter.builder("emergency.journal.persisted")
+                .description("Emergency journal entries written to the database")
+                .register(meterRegistry);
+        this.deadLetterCounter = Counter.builder("emergency.journal.dead_lettered")
+                .description("Emergency journal entries moved to the dead-letter file (queue full or permanent failure)")
+                .register(meterRegistry);
+        this.flushTimer = Timer.builder("emergency.journal.flush")
+                .description("Journal batch fsync + database write time")
+                .register(meterRegistry);
+        Gauge.builder("emergency.journal.pending", this, EmergencyEventJournal::pending)
+                .description("Emergency journal entries not yet in the database")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Günlük kaydı türü
+     */
+    public enum Kind {
+        VEHICLE_DETECTED,
+        EVENT,
+        VEHICLE_CLEARED
+    }
+
+    /**
+     * Günlük kaydı; dosyaya JSON satırı olarak yazılır
+     *
+     * @param vehicleKey araç tespitinin journal anahtarı
+     * @param vehicleId  aracın veritabanı ID'si (biliniyorsa)
+     */
+    public record Entry(Kind kind, String vehicleKey, Long vehicleId,
+                        EmergencyVehicle vehicle, EmergencyEvent event, LocalDateTime at) {
+
+        public static Entry detected(EmergencyVehicle vehicle) {
+            return new Entry(Kind.VEHICLE_DETECTED, vehicle.getJournalKey(), null, vehicle, null,
+                    vehicle.getDetectedAt());
+        }
+
+        public static Entry event(String vehicleKey, Long vehicleId, EmergencyEvent event) {
+            return new Entry(Kind.EVENT, vehicleKey, vehicleId, null, event, event.getCreatedAt());
+        }
+
+        public static Entry cleared(String vehicleKey, Long vehicleId, LocalDateTime clearedAt) {
+            return new Entry(Kind.VEHICLE_CLEARED, vehicleKey, vehicleId, null, null, clearedAt);
+        }
+    }
+
+    @PostConstruct
+    public void start() throws IOException {
+        Path parent = journalPath.toAbsolutePath().getParent();
+        if (parent != null) {
+            Files.createDirectories(parent);
+        }
+        recovered = readJournal();
+        appended.addAndGet(recovered.size());
+
+        channel = FileChannel.open(journalPath,
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+        running = true;
+        writer = new Thread(this::runWriter, "emergency-journal");
+        writer.setDaemon(true);
+        writer.start();
+        log.info("📒 Acil durum günlüğü hazır: {}", journalPath.toAbsolutePath());
+    }
+
+    @PreDestroy
+    public void stop() throws InterruptedException, IOException {
+        running = false;
+        if (writer != null) {
+            writer.join(TimeUnit.SECONDS.toMillis(30));
+        }
+        if (channel != null) {
+            if (pending() == 0) {
+                channel.truncate(0);
+            }
+            channel.close();
+        }
+        if (pending() > 0) {
+            log.warn("⚠️ Acil durum günlüğünde {} kayıt yazılamadan kapandı, açılışta tekrar oynatılacak",
+                    pending());
+        }
+    }
+
+    /**
+     * Aracın tespit kaydını ve olaylarını sıraya ekle (veritabanını beklemez)
+     */
+    public void append(EmergencyVehicle vehicle, List<EmergencyEvent> events) {
+        List<Entry> entries = new ArrayList<>(events.size() + 1);
+        entries.add(Entry.detected(vehicle));
+        for (EmergencyEvent event : events) {
+            entries.add(Entry.event(vehicle.getJournalKey(), null, event));
+        }
+        appendAll(entries);
+    }
+
+    /**
+     * Kayıtları verilen sırayla kuyruğa ekle.
+     * Kuyruk offer-timeout-ms içinde yer açmazsa kalan kayıtlar (aracın sırası
+     * bozulmasın diye hepsi) dead-letter dosyasına yazılır; çağıran bloklanmaz.
+     */
+    public void appendAll(List<Entry> entries) {
+        for (int i = 0; i < entries.size(); i++) {
+            boolean queued;
+            try {
+                queued = queue.offer(entries.get(i), offerTimeoutMillis, TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                queued = false;
+            }
+            if (!queued) {
+                List<Entry> overflow = entries.subList(i, entries.size());
+                log.error("❌ Acil durum günlüğü kuyruğu dolu ({} kayıt bekliyor), {} kayıt dead-letter dosyasına yazıldı: {}",
+                        queue.size(), overflow.size(), deadLetterPath.toAbsolutePath());
+                deadLetter(overflow);
+                return;
+            }
+            appended.incrementAndGet();
+        }
+    }
+
+    /**
+     * Veritabanına henüz yazılmamış kayıt sayısı
+     */
+    public long pending() {
+        return appended.get() - persisted.get() - discarded.get();
+    }
+
+    /**
+     * Dead-letter dosyasına taşınan kayıt sayısı
+     */
+    public long deadLettered() {
+        return deadLettered.get();
+    }
+
+    /**
+     * Kuyruktaki tüm kayıtlar veritabanına yazılana kadar bekle
+     *
+     * @return süre içinde boşaldı mı?
+     */
+    public boolean awaitDrained(Duration timeout) throws InterruptedException {
+        long deadline = System.nanoTime() + timeout.toNanos();
+        while (pending() > 0) {
+            if (System.nanoTime() > deadline) {
+                return false;
+            }
+            Thread.sleep(5);
+        }
+        return true;
+    }
+
+    private void runWriter() {
+        if (!replay()) {
+            return;
+        }
+
+        List<Entry> batch = new ArrayList<>(batchSize);
+        while (running || !queue.isEmpty() || !batch.isEmpty()) {
+            try {
+                if (batch.isEmpty()) {
+                    Entry first = queue.poll(100, TimeUnit.MILLISECONDS);
+                    if (first == null) {
+                        continue;
+                    }
+                    batch.add(first);
+                    queue.drainTo(batch, batchSize - 1);
+                }
+                long start = System.nanoTime();
+
+                // 1. Dayanıklılık: önce günlük dosyası (bir kez; tekrar denemede sadece veritabanı adımı)
+                writeDurably(batch);
+
+                // 2. Veritabanı (kapanırken yazılamayan kayıtlar dosyada kalır)
+                if (persistWithRetry(batch)) {
+                    flushTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+                    rotate();
+                }
+                batch.clear();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (IOException e) {
+                // Dosyaya yazılamadı: veritabanına geçilmez, aynı toplu yazım tekrar denenir
+                log.error("❌ Acil durum günlüğü yazılamadı ({} kayıt)", batch.size(), e);
+                if (!running) {
+                    return;
+                }
+                sleepQuietly(1_000);
+            }
+        }
+    }
+
+    /**
+     * Dosyadaki her kayıt veritabanında (ya da dead-letter dosyasında); günlük sıfırlanabilir
+     */
+    private void rotate() {
+        try {
+            if (channel.size() > rotateBytes) {
+                channel.truncate(0);
+                channel.force(true);
+            }
+        } catch (IOException e) {
+            log.warn("⚠️ Acil durum günlüğü sıfırlanamadı: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Veritabanına yaz. Geçici hatalar geri çekilerek süresiz denenir; kalıcı hata
+     * max-attempts kez tekrarlanırsa kayıtlar tek tek yazılır ve yine yazılamayan
+     * kayıt dead-letter dosyasına taşınır.
+     *
+     * @return yazıldı ya da dead-letter'a taşındı mı? (kapanırken yazılamayan kayıtlar dosyada kalır)
+     */
+    private boolean persistWithRetry(List<Entry> batch) {
+        long backoffMillis = 100;
+        int permanentFailures = 0;
+        while (true) {
+            try {
+                int unresolved = persist(batch);
+                persisted.addAndGet(batch.size() - unresolved);
+                discarded.addAndGet(unresolved);
+                persistedCounter.increment(batch.size() - unresolved);
+                return true;
+            } catch (RuntimeException e) {
+                if (!running) {
+                    log.warn("⚠️ Kapanışta {} kayıt veritabanına yazılamadı, günlükte bekliyor", batch.size());
+                    return false;
+                }
+                if (!isTransient(e) && ++permanentFailures >= maxAttempts) {
+                    return isolate(batch, e);
+                }
+                log.warn("⚠️ Acil durum kayıtları veritabanına yazılamadı ({} kayıt), {}ms sonra tekrar: {}",
+                        batch.size(), backoffMillis, e.getMessage());
+                sleepQuietly(backoffMillis);
+                backoffMillis = Math.min(backoffMillis * 2, 5_000);
+            }
+        }
+    }
+
+    /**
+     * Kalıcı hata veren toplu yazımı kayıt kayıt dene; tek kayıt hâlâ yazılamıyorsa dead-letter'a taşı
+     */
+    private boolean isolate(List<Entry> batch, RuntimeException failure) {
+        if (batch.size() == 1) {
+            log.error("❌ Acil durum kaydı {} denemede yazılamadı, dead-letter dosyasına taşındı ({}): {}",
+                    maxAttempts, batch.get(0).vehicleKey(), failure.getMessage());
+            deadLetter(batch);
+            discarded.incrementAndGet();
+            return true;
+        }
+        log.warn("⚠️ {} kayıtlık toplu yazım kalıcı hata verdi, kayıtlar tek tek yazılıyor: {}",
+                batch.size(), failure.getMessage());
+        for (Entry entry : batch) {
+            if (!persistWithRetry(List.of(entry))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Veritabanı erişimi / kilit / zaman aşımı gibi tekrar denemede geçebilecek hatalar
+     */
+    private static boolean isTransient(Throwable e) {
+        for (Throwable cause = e; cause != null; cause = cause.getCause()) {
+            if (cause instanceof TransientDataAccessException
+                    || cause instanceof RecoverableDataAccessException
+                    || cause instanceof DataAccessResourceFailureException
+                    || cause instanceof CannotCreateTransactionException
+                    || cause instanceof SQLTransientException
+                    || cause instanceof SQLRecoverableException
+                    || cause instanceof SQLNonTransientConnectionException) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Kayıtları dead-letter dosyasına günlükle aynı biçimde (JSON satırı) ekle;
+     * sorun giderilince dosya günlük yoluna taşınarak tekrar oynatılabilir
+     */
+    private synchronized void deadLetter(List<Entry> entries) {
+        deadLettered.addAndGet(entries.size());
+        deadLetterCounter.increment(entries.size());
+        try {
+            StringBuilder lines = new StringBuilder(entries.size() * 256);
+            for (Entry entry : entries) {
+                lines.append(objectMapper.writeValueAsString(entry)).append('\n');
+            }
+            Files.writeString(deadLetterPath, lines, StandardCharsets.UTF_8,
+                    StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+        } catch (IOException e) {
+            log.error("❌ {} acil durum kaydı dead-letter dosyasına da yazılamadı", entries.size(), e);
+        }
+    }
+
+    /**
+     * Açılışta dosyada kalan kayıtları yeni kayıtlardan önce tekrar oynat,
+     * sonra dosyayı sıfırla (bu noktada dosyada sadece bu kayıtlar vardır)
+     */
+    private boolean replay() {
+        if (recovered.isEmpty()) {
+            return true;
+        }
+        for (int from = 0; from < recovered.size(); from += batchSize) {
+            if (!persistWithRetry(recovered.subList(from, Math.min(recovered.size(), from + batchSize)))) {
+                return false;
+            }
+        }
+        try {
+            channel.truncate(0);
+            channel.force(true);
+        } catch (IOException e) {
+            log.warn("⚠️ Acil durum günlüğü sıfırlanamadı: {}", e.getMessage());
+        }
+        log.info("📒 Acil durum günlüğünden {} kayıt tekrar oynatıldı", recovered.size());
+        recovered = List.of();
+        return true;
+    }
+
+    private void writeDurably(List<Entry> batch) throws IOException {
+        StringBuilder lines = new StringBuilder(batch.size() * 256);
+        for (Entry entry : batch) {
+            lines.append(objectMapper.writeValueAsString(entry)).append('\n');
+        }
+        ByteBuffer buffer = ByteBuffer.wrap(lines.toString().getBytes(StandardCharsets.UTF_8));
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        if (fsync) {
+            channel.force(false);
+        }
+    }
+
+    /**
+     * Toplu yazımı tek transaction'da uygula.
+     * Sıra: araçlar → olaylar → sonlanmalar; zaten yazılmış journal_key'ler atlanır.
+     * Aracı bulunamayan olay ve sonlanmalar (ör. tespit kaydı dead-letter'a taşınmış)
+     * commit'ten sonra dead-letter dosyasına yazılır. Araç id önbelleği de ancak
+     * commit'ten sonra güncellenir: geri alınan transaction'ın id'leri önbelleğe girmez.
+     *
+     * @return dead-letter'a taşınan kayıt sayısı
+     */
+    int persist(List<Entry> batch) {
+        Map<String, Long> boundIds = new LinkedHashMap<>();
+        Map<String, Long> resolvedIds = new HashMap<>();
+        List<Entry> unresolved = new ArrayList<>();
+        transactionTemplate.executeWithoutResult(status -> {
+            boundIds.clear();
+            resolvedIds.clear();
+            unresolved.clear();
+            // 1. Yeni araçlar
+            Map<String, EmergencyVehicle> detected = new LinkedHashMap<>();
+            for (Entry entry : batch) {
+                if (entry.kind() == Kind.VEHICLE_DETECTED) {
+                    detected.put(entry.vehicleKey(), entry.vehicle());
+                }
+            }
+            if (!detected.isEmpty()) {
+                for (EmergencyVehicle existing : vehicleRepository.findByJournalKeyIn(detected.keySet())) {
+                    boundIds.put(existing.getJournalKey(), existing.getId());
+                    detected.remove(existing.getJournalKey());
+                }
+            }
+            if (!detected.isEmpty()) {
+                // Başarısız bir denemeden kalan ID'ler temizlenir, satırlar her zaman yeni eklenir
+                detected.values().forEach(vehicle -> vehicle.setId(null));
+                for (EmergencyVehicle saved : vehicleRepository.saveAll(detected.values())) {
+                    boundIds.put(saved.getJournalKey(), saved.getId());
+                }
+            }
+
+            // 2. Olaylar (eklenme sırasıyla)
+            List<EmergencyEvent> events = new ArrayList<>();
+            Set<String> eventKeys = new HashSet<>();
+            for (Entry entry : batch) {
+                if (entry.kind() == Kind.EVENT) {
+                    eventKeys.add(entry.event().getJournalKey());
+                }
+            }
+            Set<String> existingEvents = eventKeys.isEmpty()
+                    ? Set.of()
+                    : new HashSet<>(eventRepository.findExistingJournalKeys(eventKeys));
+            for (Entry entry : batch) {
+                if (entry.kind() != Kind.EVENT || existingEvents.contains(entry.event().getJournalKey())) {
+                    continue;
+                }
+                Long vehicleId = resolveVehicleId(entry, boundIds, resolvedIds);
+                if (vehicleId == null) {
+                    unresolved.add(entry);
+                    continue;
+                }
+                EmergencyEvent event = entry.event();
+                event.setId(null);
+                event.setEmergencyVehicleId(vehicleId);
+                events.add(event);
+            }
+            if (!events.isEmpty()) {
+                eventRepository.saveAll(events);
+            }
+
+            // 3. Sonlanmalar (idempotent güncelleme)
+            for (Entry entry : batch) {
+                if (entry.kind() != Kind.VEHICLE_CLEARED) {
+                    continue;
+                }
+                Long vehicleId = resolveVehicleId(entry, boundIds, resolvedIds);
+                EmergencyVehicle vehicle = vehicleId != null ? vehicleRepository.findById(vehicleId).orElse(null) : null;
+                if (vehicle == null) {
+                    unresolved.add(entry);
+                    continue;
+                }
+                vehicle.setStatus(EmergencyVehicle.EmergencyStatus.CLEARED);
+                vehicle.setClearedAt(entry.at());
+                vehicleRepository.save(vehicle);
+            }
+        });
+        vehicleIds.putAll(resolvedIds);
+        vehicleIds.putAll(boundIds);
+        if (!unresolved.isEmpty()) {
+            log.error("❌ {} acil durum kaydının araç satırı bulunamadı, dead-letter dosyasına taşındı: {}",
+                    unresolved.size(), unresolved.stream().map(Entry::vehicleKey).distinct().toList());
+            deadLetter(unresolved);
+        }
+        if (!boundIds.isEmpty()) {
+            eventPublisher.publishEvent(new EmergencyVehiclesPersistedEvent(boundIds));
+        }
+        return unresolved.size();
+    }
+
+    /**
+     * Kaydın araç id'si: kayıttaki, bu transaction'da bağlanan, önbellekteki ya da veritabanındaki.
+     * Veritabanından okunan id'ler resolvedIds'e yazılır, önbelleğe commit'ten sonra girer.
+     */
+    private Long resolveVehicleId(Entry entry, Map<String, Long> boundIds, Map<String, Long> resolvedIds) {
+        if (entry.vehicleId() != null) {
+            return entry.vehicleId();
+        }
+        Long id = boundIds.get(entry.vehicleKey());
+        if (id == null) {
+            id = resolvedIds.get(entry.vehicleKey());
+        }
+        if (id == null) {
+            id = vehicleIds.get(entry.vehicleKey());
+        }
+        if (id == null) {
+            List<EmergencyVehicle> found = vehicleRepository.findByJournalKeyIn(List.of(entry.vehicleKey()));
+            if (!found.isEmpty()) {
+                id = found.get(0).getId();
+                resolvedIds.put(entry.vehicleKey(), id);
+            }
+        }
+        return id;
+    }
+
+    /**
+     * Önceki çalışmadan dosyada kalan kayıtlar
+     */
+    private List<Entry> readJournal() throws IOException {
+        List<Entry> entries = new ArrayList<>();
+        if (!Files.exists(journalPath)) {
+            return entries;
+        }
+        for (String line : Files.readAllLines(journalPath, StandardCharsets.UTF_8)) {
+            if (line.isBlank()) {
+                continue;
+            }
+            try {
+                entries.add(objectMapper.readValue(line, Entry.class));
+            } catch (JsonProcessingException e) {
+                // Çökme anında yarım kalan son satır
+                log.warn("⚠️ Bozuk günlük satırı atlandı: {}", e.getOriginalMessage());
+            }
+        }
+        return entries;
+    }
+
+    private static void sleepQuietly(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
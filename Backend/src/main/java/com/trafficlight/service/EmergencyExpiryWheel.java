@@ -0,0 +1,274 @@
+package com.trafficlight.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.OptionalLong;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Acil durum önceliklerinin süre sonu zamanlayıcısı (hashed timing wheel).
+ *
+ * Çark sabit sayıda dilimden oluşur; her dilim bir tick (traffic.emergency.expiry.tick-ms)
+ * genişliğindedir. Zamanlayıcı son tarihinin düştüğü dilimin çift yönlü
+ * listesine eklenir, çarkın birden fazla turu sürecekse kalan tur sayısını
+ * taşır. Ekleme, iptal ve uzatma O(1)'dir: düğüm anahtar haritasından bulunur,
+ * listeden çıkarılır ve gerekiyorsa yeni dilime takılır.
+ *
+ * Tek bir "emergency-expiry" thread'i her tick'te sadece sıradaki dilimi
+ * dolaşır; süresi dolan görevler kilit dışında bu thread üzerinde çalışır.
+ * Süre sonu tick hassasiyetindedir (en fazla bir tick geç tetiklenir).
+ *
+ * Metrikler: emergency.expiry.{pending,fired}
+ */
+@Component
+@Slf4j
+public class EmergencyExpiryWheel {
+
+    private final long tickMillis;
+    private final int mask;
+    private final Timeout[] wheel;
+    private final Map<String, Timeout> timeouts = new ConcurrentHashMap<>();
+    private final Counter firedCounter;
+
+    /** Çarkın referans anı ve sıradaki işlenecek tick (çark kilidiyle korunur) */
+    private long startMillis;
+    private long tick;
+
+    private Thread worker;
+    private volatile boolean running;
+
+    public EmergencyExpiryWheel(
+            MeterRegistry meterRegistry,
+            @Value("${traffic.emergency.expiry.tick-ms:100}") long tickMillis,
+            @Value("${traffic.emergency.expiry.wheel-size:512}") int wheelSize) {
+        this.tickMillis = Math.max(1, tickMillis);
+        int size = Integer.highestOneBit(Math.max(2, wheelSize) * 2 - 1);
+        this.mask = size - 1;
+        this.wheel = new Timeout[size];
+        for (int i = 0; i < size; i++) {
+            wheel[i] = Timeout.sentinel();
+        }
+        this.startMillis = System.currentTimeMillis();
+
+        this.firedCounter = Counter.builder("emergency.expiry.fired")
+                .description("Emergency preemptions cleared by expiry")
+                .register(meterRegistry);
+        Gauge.builder("emergency.expiry.pending", this, EmergencyExpiryWheel::pending)
+                .description("Scheduled emergency expiries")
+                .register(meterRegistry);
+    }
+
+    @PostConstruct
+    public void start() {
+        synchronized (this) {
+            startMillis = System.currentTimeMillis();
+            tick = 0;
+            // start() öncesi eklenenleri yeni referans ana göre yerleştir
+            for (Timeout timeout : timeouts.values()) {
+                timeout.unlink();
+                link(timeout);
+            }
+        }
+        running = true;
+        worker = new Thread(this::runWorker, "emergency-expiry");
+        worker.setDaemon(true);
+        worker.start();
+        log.info("⏱️ Acil durum süre sonu çarkı hazır: {} dilim x {}ms", wheel.length, tickMillis);
+    }
+
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        running = false;
+        if (worker != null) {
+            worker.interrupt();
+            worker.join(TimeUnit.SECONDS.toMillis(5));
+        }
+    }
+
+    /**
+     * Anahtar için süre sonu kur; aynı anahtarda bekleyen zamanlayıcının yerine geçer
+     *
+     * @param deadlineMillis epoch ms (geçmişteyse bir sonraki tick'te tetiklenir)
+     * @param task           süre dolunca çark thread'inde çalışır
+     */
+    public void schedule(String key, long deadlineMillis, Runnable task) {
+        Timeout timeout = new Timeout(key, deadlineMillis, task);
+        synchronized (this) {
+            Timeout previous = timeouts.put(key, timeout);
+            if (previous != null) {
+                previous.unlink();
+            }
+            link(timeout);
+        }
+    }
+
+    /**
+     * Bekleyen süre sonunu iptal et
+     *
+     * @return zamanlayıcı bekliyor muydu? (false: hiç kurulmadı ya da zaten tetiklendi)
+     */
+    public boolean cancel(String key) {
+        synchronized (this) {
+            Timeout timeout = timeouts.remove(key);
+            if (timeout == null) {
+                return false;
+            }
+            timeout.unlink();
+            return true;
+        }
+    }
+
+    /**
+     * Süre sonunu ileri al
+     *
+     * @return yeni süre sonu (epoch ms); zamanlayıcı yoksa boş
+     */
+    public OptionalLong extend(String key, long extraMillis) {
+        synchronized (this) {
+            Timeout timeout = timeouts.get(key);
+            if (timeout == null) {
+                return OptionalLong.empty();
+            }
+            move(timeout, timeout.deadlineMillis + extraMillis);
+            return OptionalLong.of(timeout.deadlineMillis);
+        }
+    }
+
+    /**
+     * Süre sonu verilen andan önceyse o ana kadar uzat (asla kısaltmaz)
+     */
+    public void extendTo(String key, long deadlineMillis) {
+        synchronized (this) {
+            Timeout timeout = timeouts.get(key);
+            if (timeout != null && timeout.deadlineMillis < deadlineMillis) {
+                move(timeout, deadlineMillis);
+            }
+        }
+    }
+
+    /**
+     * Bekleyen süre sonu (epoch ms)
+     */
+    public OptionalLong deadline(String key) {
+        Timeout timeout = timeouts.get(key);
+        return timeout != null ? OptionalLong.of(timeout.deadlineMillis) : OptionalLong.empty();
+    }
+
+    public int pending() {
+        return timeouts.size();
+    }
+
+    private void move(Timeout timeout, long deadlineMillis) {
+        timeout.unlink();
+        timeout.deadlineMillis = deadlineMillis;
+        link(timeout);
+    }
+
+    /**
+     * Son tarihin düştüğü dilime ekle (çark kilidi altında)
+     */
+    private void link(Timeout timeout) {
+        long target = Math.max((timeout.deadlineMillis - startMillis) / tickMillis, tick);
+        timeout.remainingRounds = (target - tick) / wheel.length;
+        Timeout head = wheel[(int) (target & mask)];
+        timeout.prev = head.prev;
+        timeout.next = head;
+        head.prev.next = timeout;
+        head.prev = timeout;
+    }
+
+    private void runWorker() {
+        while (running) {
+            try {
+                long wakeAt;
+                synchronized (this) {
+                    wakeAt = startMillis + (tick + 1) * tickMillis;
+                }
+                long sleep = wakeAt - System.currentTimeMillis();
+                if (sleep > 0) {
+                    Thread.sleep(sleep);
+                }
+                for (Timeout timeout : advance()) {
+                    try {
+                        timeout.task.run();
+                        firedCounter.increment();
+                    } catch (RuntimeException e) {
+                        log.error("❌ Acil durum süre sonu işlenemedi: {}", timeout.key, e);
+                    }
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+
+    /**
+     * Sıradaki dilimi işle: turu biten zamanlayıcıları çıkar, diğerlerinin turunu azalt
+     */
+    private synchronized List<Timeout> advance() {
+        List<Timeout> expired = new ArrayList<>();
+        Timeout head = wheel[(int) (tick & mask)];
+        Timeout timeout = head.next;
+        while (timeout != head) {
+            Timeout next = timeout.next;
+            if (timeout.remainingRounds <= 0) {
+                timeout.unlink();
+                if (timeouts.remove(timeout.key, timeout)) {
+                    expired.add(timeout);
+                }
+            } else {
+                timeout.remainingRounds--;
+            }
+            timeout = next;
+        }
+        tick++;
+        return expired;
+    }
+
+    /**
+     * Dilim listesinin düğümü (dilim başları boş sentinel düğümdür)
+     */
+    private static final class Timeout {
+
+        private final String key;
+        private final Runnable task;
+        private long deadlineMillis;
+        private long remainingRounds;
+        private Timeout prev;
+        private Timeout next;
+
+        private Timeout(String key, long deadlineMillis, Runnable task) {
+            this.key = key;
+            this.deadlineMillis = deadlineMillis;
+            this.task = task;
+        }
+
+        private static Timeout sentinel() {
+            Timeout head = new Timeout(null, 0, null);
+            head.prev = head;
+            head.next = head;
+            return head;
+        }
+
+        private void unlink() {
+            if (prev != null) {
+                prev.next = next;
+                next.prev = prev;
+                prev = null;
+                next = null;
+            }
+        }
+    }
+}
@@ -0,0 +1,385 @@
+package com.trafficlight.service;
+
+import com.trafficlight.dto.EmergencyRequest;
+import com.trafficlight.dto.EtaResponse;
+import com.trafficlight.dto.GpsIngestResponse;
+import com.trafficlight.dto.GpsPositionRequest;
+import com.trafficlight.entity.EmergencyVehicle;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Acil araç GPS takibi: yaklaşım bölgesine giren araç için öncelik otomatik
+ * başlar, kavşağı geçince biter.
+ *
+ * Her konum {@link GeofenceGrid} üzerinden tek hücre okunarak eşleştirilir.
+ * Araç başına sadece son konum ve içinde bulunduğu bölge tutulur; bir aracın
+ * konumları kendi kilidiyle sırayla işlenir, farklı araçlar paralel çalışır.
+ * <ul>
+ *   <li>Giriş: konum bir kavşağın traffic.emergency.gps.approach-meters
+ *       yarıçapında ve bir önceki konuma göre kavşağa yaklaşıyor</li>
+ *   <li>Çıkış: araç kavşağa pass-meters kadar yaklaştıktan sonra uzaklaşıp
+ *       exit-meters'ı geçti ya da hiç geçmeden bölgeden çıktı (dönüş)</li>
+ * </ul>
+ * Konum göndermeyi bırakan aracın önceliği süre sonu çarkıyla kendiliğinden biter.
+ *
+ * Canlı varış tahmini için araç başına sabit boyutlu durum tutulur: üstel
+ * yumuşatılmış hız ve son hareket yönü. Rota, aracın en yakın kavşağından
+ * {@link PreemptionPlanner} ile (öğrenilmiş koridor süreleriyle) çıkarılır.
+ *
+ * Metrikler: emergency.gps.{positions,tracked}
+ */
+@Service
+@Slf4j
+public class EmergencyGpsTracker {
+
+    /** Yaklaşıyor sayılmak için iki konum arası en az mesafe azalması (GPS gürültüsü) */
+    private static final double APPROACH_EPSILON_METERS = 1.0;
+
+    /** Hız yumuşatma katsayısı (yeni örneğin ağırlığı) */
+    private static final double SPEED_ALPHA = 0.3;
+
+    /** Bu hızın altındaki araç duruyor sayılır, varış tahmini verilmez */
+    private static final double MIN_MOVING_METERS_PER_SECOND = 1.0;
+
+    private final IntersectionSpatialIndex spatialIndex;
+    private final EmergencyService emergencyService;
+    private final PreemptionPlanner preemptionPlanner;
+    private final CorridorTravelTimes corridorTravelTimes;
+    private final double approachMeters;
+    private final double passMeters;
+    private final double exitMeters;
+    private final long trackTtlMillis;
+    private final double anchorMeters;
+
+    private final Map<String, Track> tracks = new ConcurrentHashMap<>();
+    private final Counter positionCounter;
+
+    private volatile GeofenceGrid grid;
+    private volatile GeofenceGrid anchorGrid;
+
+    public EmergencyGpsTracker(
+            IntersectionSpatialIndex spatialIndex,
+            EmergencyService emergencyService,
+            PreemptionPlanner preemptionPlanner,
+            CorridorTravelTimes corridorTravelTimes,
+            MeterRegistry meterRegistry,
+            @Value("${traffic.emergency.gps.approach-meters:150}") double approachMeters,
+            @Value("${traffic.emergency.gps.pass-meters:40}") double passMeters,
+            @Value("${traffic.emergency.gps.exit-meters:50}") double exitMeters,
+            @Value("${traffic.emergency.gps.track-ttl-ms:300000}") long trackTtlMillis,
+            @Value("${traffic.emergency.gps.anchor-meters:500}") double anchorMeters) {
+        this.spatialIndex = spatialIndex;
+        this.emergencyService = emergencyService;
+        this.preemptionPlanner = preemptionPlanner;
+        this.corridorTravelTimes = corridorTravelTimes;
+        this.approachMeters = approachMeters;
+        this.passMeters = passMeters;
+        this.exitMeters = exitMeters;
+        this.trackTtlMillis = trackTtlMillis;
+        this.anchorMeters = anchorMeters;
+
+        this.positionCounter = Counter.builder("emergency.gps.positions")
+                .description("Emergency vehicle GPS positions processed")
+                .register(meterRegistry);
+        Gauge.builder("emergency.gps.tracked", tracks, Map::size)
+                .description("Emergency vehicles currently reporting GPS")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Konumları işle (aynı aracın konumları gönderim sırasıyla)
+     */
+    public GpsIngestResponse ingest(List<GpsPositionRequest> positions) {
+        GeofenceGrid current = grid();
+        List<GpsIngestResponse.Transition> transitions = new ArrayList<>();
+        int accepted = 0;
+        for (GpsPositionRequest position : positions) {
+            if (position == null || position.getVehicleId() == null || position.getType() == null
+                    || position.getLatitude() == null || position.getLongitude() == null) {
+                continue;
+            }
+            Track track = tracks.computeIfAbsent(position.getVehicleId(), Track::new);
+            synchronized (track) {
+                if (track.update(current, position, transitions)) {
+                    accepted++;
+                }
+            }
+        }
+        positionCounter.increment(accepted);
+        return GpsIngestResponse.builder()
+                .accepted(accepted)
+                .ignored(positions.size() - accepted)
+                .transitions(transitions)
+                .build();
+    }
+
+    /**
+     * Aracın önündeki kavşaklara canlı varış tahmini
+     *
+     * @return araç takipte değilse ya da henüz yönü belli değilse boş
+     */
+    public Optional<EtaResponse> eta(String vehicleId) {
+        Track track = tracks.get(vehicleId);
+        if (track == null) {
+            return Optional.empty();
+        }
+        GeofenceGrid anchors = anchorGrid();
+        synchronized (track) {
+            return Optional.ofNullable(track.eta(anchors));
+        }
+    }
+
+    public int trackedVehicles() {
+        return tracks.size();
+    }
+
+    /**
+     * Uzun süredir konum göndermeyen araçları bırak
+     */
+    @Scheduled(fixedDelayString = "${traffic.emergency.gps.purge-ms:60000}")
+    public void purgeIdle() {
+        long cutoff = System.currentTimeMillis() - trackTtlMillis;
+        tracks.values().removeIf(track -> track.lastSeenMillis < cutoff);
+    }
+
+    /**
+     * Kavşak grafiği yeniden kurulduysa bölge ızgarasını da yenile
+     */
+    private GeofenceGrid grid() {
+        IntersectionGraph graph = spatialIndex.current();
+        GeofenceGrid current = grid;
+        if (current == null || current.graph() != graph) {
+            current = GeofenceGrid.build(graph, approachMeters);
+            grid = current;
+        }
+        return current;
+    }
+
+    /**
+     * Rota başlangıcı için en yakın kavşak ızgarası (yaklaşım bölgesinden geniş)
+     */
+    private GeofenceGrid anchorGrid() {
+        IntersectionGraph graph = spatialIndex.current();
+        GeofenceGrid current = anchorGrid;
+        if (current == null || current.graph() != graph) {
+            current = GeofenceGrid.build(graph, anchorMeters);
+            anchorGrid = current;
+        }
+        return current;
+    }
+
+    /**
+     * Kavşağa göre aracın bulunduğu taraf = geldiği yön
+     */
+    static EmergencyVehicle.Direction approachDirection(double dx, double dy) {
+        if (Math.abs(dx) > Math.abs(dy)) {
+            return dx > 0 ? EmergencyVehicle.Direction.EAST : EmergencyVehicle.Direction.WEST;
+        }
+        return dy > 0 ? EmergencyVehicle.Direction.NORTH : EmergencyVehicle.Direction.SOUTH;
+    }
+
+    /**
+     * Tek aracın takip durumu (aracın kilidiyle korunur)
+     */
+    private final class Track {
+
+        private final String vehicleId;
+        private long lastMillis = -1;
+        private double lastX;
+        private double lastY;
+        private volatile long lastSeenMillis;
+
+        /** Yumuşatılmış hız (m/s, henüz örnek yoksa NaN) ve son hareket vektörü */
+        private double speedMps = Double.NaN;
+        private double headingX;
+        private double headingY;
+
+        /** İçinde bulunulan bölge (girişteki ızgarayla; grafik yenilense de indeks tutarlı kalır) */
+        private GeofenceGrid fenceGrid;
+        private int fence = -1;
+        private String activeKey;
+        private double minDistance;
+
+        private Track(String vehicleId) {
+            this.vehicleId = vehicleId;
+        }
+
+        /**
+         * @return konum işlendi mi? (eski tarihli konumlar atlanır)
+         */
+        private boolean update(GeofenceGrid current, GpsPositionRequest position,
+                               List<GpsIngestResponse.Transition> transitions) {
+            long millis = position.getRecordedAt() != null
+                    ? position.getRecordedAt().atZone(ZoneId.systemDefault()).toInstant().toEpochMilli()
+                    : System.currentTimeMillis();
+            if (millis < lastMillis) {
+                return false;
+            }
+            IntersectionGraph graph = current.graph();
+            double x = graph.projectX(position.getLongitude());
+            double y = graph.projectY(position.getLatitude());
+
+            Double speedKmh = position.getSpeedKmh();
+            if (speedKmh == null && lastMillis >= 0 && millis > lastMillis) {
+                speedKmh = Math.hypot(x - lastX, y - lastY) / ((millis - lastMillis) / 1000.0) * 3.6;
+            }
+            if (speedKmh != null) {
+                double sample = speedKmh / 3.6;
+                speedMps = Double.isNaN(speedMps) ? sample : speedMps + SPEED_ALPHA * (sample - speedMps);
+            }
+            if (lastMillis >= 0 && Math.hypot(x - lastX, y - lastY) > APPROACH_EPSILON_METERS) {
+                headingX = x - lastX;
+                headingY = y - lastY;
+            }
+
+            if (fence >= 0) {
+                checkExit(x, y, transitions);
+            }
+            if (fence < 0 && lastMillis >= 0) {
+                checkEntry(current, x, y, speedKmh, position.getType(), transitions);
+            }
+
+            lastMillis = millis;
+            lastX = x;
+            lastY = y;
+            lastSeenMillis = System.currentTimeMillis();
+            return true;
+        }
+
+        private void checkExit(double x, double y, List<GpsIngestResponse.Transition> transitions) {
+            double distance = fenceGrid.distanceMeters(fence, x, y);
+            double previous = fenceGrid.distanceMeters(fence, lastX, lastY);
+            minDistance = Math.min(minDistance, distance);
+
+            boolean passed = minDistance <= passMeters && distance >= exitMeters && distance > previous;
+            boolean left = distance > approachMeters;
+            if (!passed && !left) {
+                return;
+            }
+
+            IntersectionGraph graph = fenceGrid.graph();
+            emergencyService.clearEmergency(activeKey, passed
+                    ? "Acil araç kavşaktan geçti (GPS), normal moda dönülüyor"
+                    : "Acil araç yaklaşım bölgesinden ayrıldı (GPS), normal moda dönülüyor");
+            transitions.add(transition(graph, fence, "EXITED", null, distance));
+            log.debug("📍 {} {} bölgesinden çıktı ({} m)", vehicleId, graph.name(fence), Math.round(distance));
+            fence = -1;
+            fenceGrid = null;
+            activeKey = null;
+        }
+
+        private void checkEntry(GeofenceGrid current, double x, double y, Double speedKmh,
+                                EmergencyVehicle.VehicleType type,
+                                List<GpsIngestResponse.Transition> transitions) {
+            int candidate = current.nearest(x, y);
+            if (candidate < 0) {
+                return;
+            }
+            IntersectionGraph graph = current.graph();
+            double distance = current.distanceMeters(candidate, x, y);
+            if (!graph.isActive(candidate)
+                    || distance > current.distanceMeters(candidate, lastX, lastY) - APPROACH_EPSILON_METERS) {
+                return;
+            }
+
+            EmergencyVehicle.Direction direction = approachDirection(x - graph.x(candidate), y - graph.y(candidate));
+            String key = UUID.randomUUID().toString();
+            try {
+                emergencyService.triggerEmergency(EmergencyRequest.builder()
+                        .vehicleId(vehicleId)
+                        .type(type)
+                        .intersectionId(graph.id(candidate))
+                        .direction(direction)
+                        .speedKmh(speedKmh != null && speedKmh > 0 ? speedKmh : null)
+                        .notes(String.format("GPS yaklaşım bölgesi (%d m)", Math.round(distance)))
+                        .build(), key);
+            } catch (RuntimeException e) {
+                log.error("❌ {} için GPS önceliği başlatılamadı: {}", vehicleId, e.getMessage());
+                return;
+            }
+
+            fenceGrid = current;
+            fence = candidate;
+            activeKey = key;
+            minDistance = distance;
+            transitions.add(transition(graph, candidate, "ENTERED", direction, distance));
+            log.debug("📍 {} {} bölgesine girdi ({} m, {})",
+                    vehicleId, graph.name(candidate), Math.round(distance), direction);
+        }
+
+        /**
+         * Son konumdan rota: en yakın kavşaktan gidiş yönünde plan, aracın
+         * kavşağa göre konumu (önünde/geçmiş) ve son konumdan beri geçen süre düşülür
+         */
+        private EtaResponse eta(GeofenceGrid anchors) {
+            if (lastMillis < 0 || Double.isNaN(speedMps) || (headingX == 0 && headingY == 0)) {
+                return null;
+            }
+            EmergencyVehicle.Direction heading = approachDirection(headingX, headingY);
+            EtaResponse.EtaResponseBuilder response = EtaResponse.builder()
+                    .vehicleId(vehicleId)
+                    .speedKmh(Math.round(speedMps * 36) / 10.0)
+                    .heading(heading.name())
+                    .positionAt(LocalDateTime.ofInstant(Instant.ofEpochMilli(lastMillis), ZoneId.systemDefault()));
+
+            int anchor = anchors.nearest(lastX, lastY);
+            if (anchor < 0 || speedMps < MIN_MOVING_METERS_PER_SECOND) {
+                return response.stops(List.of()).build();
+            }
+            IntersectionGraph graph = anchors.graph();
+            PreemptionPlan plan = preemptionPlanner.plan(graph.id(anchor),
+                    PreemptionPlanner.travelDirection(heading), speedMps * 3.6);
+
+            // Gidiş yönünde kavşağa göre konum: > 0 ise kavşak geçildi
+            double norm = Math.hypot(headingX, headingY);
+            double offsetMeters = ((lastX - graph.x(anchor)) * headingX + (lastY - graph.y(anchor)) * headingY) / norm;
+            double elapsedSeconds = Math.max(0, System.currentTimeMillis() - lastMillis) / 1000.0;
+            double shiftSeconds = offsetMeters / speedMps + elapsedSeconds;
+
+            List<EtaResponse.Stop> stops = new ArrayList<>();
+            long previousId = plan.originIntersectionId();
+            for (PreemptionPlan.Window window : plan.windows()) {
+                long eta = Math.round(window.etaSeconds() - shiftSeconds);
+                if (eta >= 0) {
+                    stops.add(EtaResponse.Stop.builder()
+                            .intersectionId(window.intersectionId())
+                            .intersectionName(window.name())
+                            .distanceMeters((int) Math.max(0, Math.round(window.distanceMeters() - offsetMeters)))
+                            .etaSeconds((int) eta)
+                            .learnedSamples(corridorTravelTimes.samples(previousId, window.intersectionId()))
+                            .build());
+                }
+                previousId = window.intersectionId();
+            }
+            return response.stops(stops).build();
+        }
+
+        private GpsIngestResponse.Transition transition(IntersectionGraph graph, int index, String event,
+                                                        EmergencyVehicle.Direction direction, double distance) {
+            return GpsIngestResponse.Transition.builder()
+                    .vehicleId(vehicleId)
+                    .intersectionId(graph.id(index))
+                    .intersectionName(graph.name(index))
+                    .event(event)
+                    .direction(direction != null ? direction.name() : null)
+                    .distanceMeters((int) Math.round(distance))
+                    .build();
+        }
+    }
+}
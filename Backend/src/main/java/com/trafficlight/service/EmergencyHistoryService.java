@@ -0,0 +1,171 @@
+package com.trafficlight.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SequenceWriter;
+import com.trafficlight.dto.CursorPage;
+import com.trafficlight.entity.EmergencyEvent;
+import com.trafficlight.exception.BadRequestException;
+import com.trafficlight.repository.EmergencyEventRepository;
+import com.trafficlight.util.CursorCodec;
+import jakarta.persistence.EntityManager;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * Acil durum olay geçmişi: sayfalı sorgular ve akışlı dışa aktarım.
+ *
+ * Sayfalar (createdAt, id) üzerinden keyset ile okunur, en yeni önce; imleç
+ * son satırın anahtarıdır, sayfa derinliği sorgu süresini etkilemez.
+ * Dışa aktarım ileri yönlü veritabanı imleciyle satır satır NDJSON yazar;
+ * okunan satır persistence context'ten hemen ayrılır, bellek kullanımı
+ * geçmişin boyutundan bağımsızdır.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class EmergencyHistoryService {
+
+    public static final int DEFAULT_PAGE_SIZE = 50;
+    public static final int MAX_PAGE_SIZE = 500;
+
+    /** İlk sayfa imleci: her kayıttan yeni */
+    private static final LocalDateTime NEWEST = LocalDateTime.of(9999, 12, 31, 23, 59, 59);
+
+    private static final int EXPORT_FLUSH_ROWS = 1_000;
+
+    private final EmergencyEventRepository emergencyEventRepository;
+    private final EntityManager entityManager;
+    private final ObjectMapper objectMapper;
+
+    /**
+     * Acil araç kaydının olayları
+     */
+    public CursorPage<EmergencyEvent> vehicleHistory(Long vehicleId, String cursor, Integer size) {
+        Key key = Key.decode(cursor, NEWEST);
+        int limit = pageSize(size);
+        return page(emergencyEventRepository.findVehicleHistoryPage(
+                vehicleId, key.createdAt(), key.id(), PageRequest.of(0, limit + 1)), limit);
+    }
+
+    /**
+     * Kavşaktaki acil durum olayları
+     */
+    public CursorPage<EmergencyEvent> intersectionHistory(Long intersectionId, String cursor, Integer size) {
+        Key key = Key.decode(cursor, NEWEST);
+        int limit = pageSize(size);
+        return page(emergencyEventRepository.findIntersectionHistoryPage(
+                intersectionId, key.createdAt(), key.id(), PageRequest.of(0, limit + 1)), limit);
+    }
+
+    /**
+     * [from, to) aralığındaki tüm olaylar
+     */
+    public CursorPage<EmergencyEvent> eventsBetween(LocalDateTime from, LocalDateTime to, String cursor, Integer size) {
+        LocalDateTime end = to != null ? to : NEWEST;
+        validateRange(from, end);
+        Key key = Key.decode(cursor, end);
+        int limit = pageSize(size);
+        return page(emergencyEventRepository.findRangePage(
+                from, key.createdAt(), key.id(), PageRequest.of(0, limit + 1)), limit);
+    }
+
+    /**
+     * [from, to) aralığını eskiden yeniye NDJSON olarak yaz
+     *
+     * @param intersectionId null ise tüm kavşaklar
+     * @return yazılan olay sayısı
+     */
+    @Transactional(readOnly = true)
+    public long export(Long intersectionId, LocalDateTime from, LocalDateTime to, OutputStream out) throws IOException {
+        LocalDateTime end = to != null ? to : LocalDateTime.now();
+        validateRange(from, end);
+        long start = System.currentTimeMillis();
+        long count = 0;
+        try (Stream<EmergencyEvent> events = intersectionId != null
+                    ? emergencyEventRepository.streamIntersectionRange(intersectionId, from, end)
+                    : emergencyEventRepository.streamRange(from, end);
+             SequenceWriter writer = objectMapper.writerFor(EmergencyEvent.class)
+                    .withRootValueSeparator("\n")
+                    .writeValues(out)) {
+            for (EmergencyEvent event : (Iterable<EmergencyEvent>) events::iterator) {
+                writer.write(event);
+                entityManager.detach(event);
+                if (++count % EXPORT_FLUSH_ROWS == 0) {
+                    writer.flush();
+                }
+            }
+        }
+        log.info("📤 Acil durum olayları dışa aktarıldı: {} kayıt, {} ms", count, System.currentTimeMillis() - start);
+        return count;
+    }
+
+    private static CursorPage<EmergencyEvent> page(List<EmergencyEvent> rows, int limit) {
+        boolean hasMore = rows.size() > limit;
+        List<EmergencyEvent> items = hasMore ? rows.subList(0, limit) : rows;
+        String nextCursor = null;
+        if (hasMore) {
+            EmergencyEvent last = items.get(items.size() - 1);
+            nextCursor = new Key(last.getCreatedAt(), last.getId()).encode();
+        }
+        return CursorPage.<EmergencyEvent>builder()
+                .items(List.copyOf(items))
+                .nextCursor(nextCursor)
+                .hasMore(hasMore)
+                .size(limit)
+                .build();
+    }
+
+    private static int pageSize(Integer size) {
+        if (size == null) {
+            return DEFAULT_PAGE_SIZE;
+        }
+        if (size < 1 || size > MAX_PAGE_SIZE) {
+            throw new BadRequestException("Sayfa boyutu 1 ile " + MAX_PAGE_SIZE + " arasında olmalı: " + size);
+        }
+        return size;
+    }
+
+    /**
+     * @throws BadRequestException from yoksa ya da to'dan önce değilse
+     */
+    public static void validateRange(LocalDateTime from, LocalDateTime to) {
+        if (from == null || !from.isBefore(to)) {
+            throw new BadRequestException("Geçersiz tarih aralığı: " + from + " - " + to);
+        }
+    }
+
+    /**
+     * Keyset anahtarı: son okunan satırın (createdAt, id) değeri
+     */
+    private record Key(LocalDateTime createdAt, long id) {
+
+        private String encode() {
+            return CursorCodec.encode(createdAt, id);
+        }
+
+        /**
+         * @param first imleç yoksa başlangıç zamanı (bu andan eski kayıtlar)
+         */
+        private static Key decode(String cursor, LocalDateTime first) {
+            if (cursor == null || cursor.isBlank()) {
+                return new Key(first, Long.MIN_VALUE);
+            }
+            String[] parts = CursorCodec.decode(cursor, 2);
+            try {
+                return new Key(LocalDateTime.parse(parts[0]), Long.parseLong(parts[1]));
+            } catch (DateTimeParseException | NumberFormatException e) {
+                throw new BadRequestException("Geçersiz sayfa imleci: " + cursor);
+            }
+        }
+    }
+}
@@ -0,0 +1,454 @@
+package com.trafficlight.service;
+
+import com.trafficlight.dto.ImpactStatsResponse;
+import com.trafficlight.entity.EmergencyImpact;
+import com.trafficlight.entity.TrafficSensor;
+import com.trafficlight.event.EmergencyPreemptionEvent;
+import com.trafficlight.repository.EmergencyImpactRepository;
+import com.trafficlight.repository.TrafficSensorRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.DelayQueue;
+import java.util.concurrent.Delayed;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * Acil durum önceliklerinin ölçülen etkisi: bekletilen yan yollardaki kuyruk.
+ *
+ * Her yeşil pencere, bitişinden sonra gözlem süresi (recovery-horizon) dolunca
+ * analiz edilir. Tetikleme yolu sadece bekleyen kuyruğa ekler; sensör okuma,
+ * hesap ve yazma zamanlanmış işte yapılır. Yan yol kuyruğu, bekletilen her
+ * yönün son sensör okumasının toplamıdır (iki okuma arasında sabit kabul edilir):
+ * <ul>
+ *   <li>Taban: pencereden önceki baseline-seconds içinde yön başına ortalama kuyruk</li>
+ *   <li>Talep: pencere boyunca zaman ağırlıklı ortalama kuyruk</li>
+ *   <li>Kuyruk artışı: pencere başından normale dönüşe kadar tepe kuyruk - taban</li>
+ *   <li>Dönüş: pencere bitişinden kuyruğun tabana (tolerans dahil) indiği ana</li>
+ *   <li>Gecikme: tabanı aşan kuyruğun zaman integrali (araç·saniye, Little yasası)</li>
+ * </ul>
+ * Sonuçlar emergency_impacts tablosuna yazılır ve kavşak başına toplamlara
+ * artımlı eklenir; açılışta toplamlar tek GROUP BY sorgusuyla yüklenir.
+ *
+ * Metrikler: emergency.impact.{pending,analyzed,skipped}
+ */
+@Service
+@Slf4j
+public class EmergencyImpactAnalyzer {
+
+    /** Kuyruk tabanın bu oranı (en az 1 araç) kadar üstündeyse normale dönmüş sayılır */
+    private static final double RECOVERY_TOLERANCE = 0.1;
+
+    private final TrafficSensorRepository sensorRepository;
+    private final EmergencyImpactRepository impactRepository;
+    private final long baselineMillis;
+    private final long recoveryHorizonMillis;
+    private final int maxPending;
+
+    private final DelayQueue<PendingWindow> pending = new DelayQueue<>();
+    private final Map<Long, Totals> totals = new ConcurrentHashMap<>();
+    private final Counter analyzedCounter;
+    private final Counter skippedCounter;
+
+    public EmergencyImpactAnalyzer(
+            TrafficSensorRepository sensorRepository,
+            EmergencyImpactRepository impactRepository,
+            MeterRegistry meterRegistry,
+            @Value("${traffic.emergency.impact.baseline-seconds:300}") long baselineSeconds,
+            @Value("${traffic.emergency.impact.recovery-horizon-seconds:600}") long recoveryHorizonSeconds,
+            @Value("${traffic.emergency.impact.max-pending:10000}") int maxPending) {
+        this.sensorRepository = sensorRepository;
+        this.impactRepository = impactRepository;
+        this.baselineMillis = baselineSeconds * 1000;
+        this.recoveryHorizonMillis = recoveryHorizonSeconds * 1000;
+        this.maxPending = maxPending;
+
+        Gauge.builder("emergency.impact.pending", pending, DelayQueue::size)
+                .description("Green windows waiting for their recovery horizon before impact analysis")
+                .register(meterRegistry);
+        this.analyzedCounter = Counter.builder("emergency.impact.analyzed")
+                .description("Green windows whose side-street impact was measured")
+                .register(meterRegistry);
+        this.skippedCounter = Counter.builder("emergency.impact.skipped")
+                .description("Green windows dropped for missing sensor data or a full queue")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Verilen yeşil pencereleri analiz kuyruğuna ekle (veritabanına dokunmaz)
+     */
+    @EventListener
+    public void onPreemption(EmergencyPreemptionEvent event) {
+        PreemptionPlan plan = event.plan();
+        List<TrafficSensor.Direction> held = plan.conflictingApproaches().stream()
+                .map(direction -> TrafficSensor.Direction.valueOf(direction.name()))
+                .toList();
+        if (!event.grants().isEmpty()) {
+            for (EmergencyPreemptionScheduler.Grant grant : event.grants()) {
+                enqueue(event, grant.intersectionId(), held, grant.startMillis(), grant.endMillis());
+            }
+            return;
+        }
+        long detectedMillis = toEpochMillis(event.detectedAt());
+        for (PreemptionPlan.Window window : plan.windows()) {
+            enqueue(event, window.intersectionId(), held,
+                    detectedMillis + window.greenStartSeconds() * 1000L,
+                    detectedMillis + window.greenEndSeconds() * 1000L);
+        }
+    }
+
+    private void enqueue(EmergencyPreemptionEvent event, long intersectionId, List<TrafficSensor.Direction> held,
+                         long holdStartMillis, long holdEndMillis) {
+        if (holdEndMillis <= holdStartMillis) {
+            return;
+        }
+        if (pending.size() >= maxPending) {
+            skippedCounter.increment();
+            return;
+        }
+        pending.add(new PendingWindow(event.vehicleKey(), event.vehicleId(), intersectionId, held,
+                holdStartMillis, holdEndMillis, holdEndMillis + recoveryHorizonMillis));
+    }
+
+    /**
+     * Gözlem süresi dolan pencereleri ölç, yaz ve kavşak toplamlarına ekle
+     *
+     * @return bu turda ölçülen pencereler
+     */
+    @Scheduled(fixedDelayString = "${traffic.emergency.impact.poll-ms:5000}")
+    public List<EmergencyImpact> analyzeDue() {
+        List<EmergencyImpact> measured = new ArrayList<>();
+        PendingWindow window;
+        while ((window = pending.poll()) != null) {
+            try {
+                List<TrafficSensor> readings = sensorRepository.findReadingsBetween(window.intersectionId(),
+                        window.held(), toLocalDateTime(window.holdStartMillis() - baselineMillis),
+                        toLocalDateTime(window.dueMillis()));
+                EmergencyImpact impact = measure(window, readings, baselineMillis);
+                if (impact != null) {
+                    measured.add(impact);
+                } else {
+                    skippedCounter.increment();
+                }
+            } catch (RuntimeException e) {
+                skippedCounter.increment();
+                log.warn("⚠️ Etki analizi yapılamadı: kavşak {} - {}", window.intersectionId(), e.getMessage());
+            }
+        }
+        if (measured.isEmpty()) {
+            return measured;
+        }
+        try {
+            impactRepository.saveAll(measured);
+        } catch (RuntimeException e) {
+            log.warn("⚠️ Etki analizi kaydedilemedi ({} pencere): {}", measured.size(), e.getMessage());
+        }
+        for (EmergencyImpact impact : measured) {
+            totals.merge(impact.getIntersectionId(), Totals.of(impact), Totals::plus);
+        }
+        analyzedCounter.increment(measured.size());
+        log.debug("📉 {} yeşil penceresinin yan yol etkisi ölçüldü", measured.size());
+        return measured;
+    }
+
+    /**
+     * Kavşağın etki istatistikleri
+     */
+    public Optional<ImpactStatsResponse> stats(Long intersectionId) {
+        Totals current = totals.get(intersectionId);
+        if (current == null) {
+            return Optional.empty();
+        }
+        ImpactStatsResponse response = current.toResponse(intersectionId);
+        response.setRecentWindows(impactRepository.findTop20ByIntersectionIdOrderByHoldStartDescIdDesc(intersectionId));
+        return Optional.of(response);
+    }
+
+    /**
+     * Tüm kavşaklar, ortalama gecikmesi en yüksek önce
+     */
+    public List<ImpactStatsResponse> allStats() {
+        return totals.entrySet().stream()
+                .map(entry -> entry.getValue().toResponse(entry.getKey()))
+                .sorted(Comparator.comparing(ImpactStatsResponse::getAvgDelayVehicleSeconds).reversed())
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * Plan için geçmiş ölçümlere göre beklenen etki (sadece bellekteki toplamlar)
+     *
+     * Kavşak başına ortalama gecikme, pencerenin bekletme süresi oranında ölçeklenir.
+     */
+    public Expected expected(PreemptionPlan plan) {
+        double delay = 0;
+        double recovery = 0;
+        long samples = 0;
+        for (PreemptionPlan.Window window : plan.windows()) {
+            Totals current = totals.get(window.intersectionId());
+            if (current == null || current.holdSum() == 0) {
+                continue;
+            }
+            double avgHold = (double) current.holdSum() / current.windows();
+            delay += current.delaySum() / current.windows() * window.holdSeconds() / avgHold;
+            if (current.recovered() > 0) {
+                recovery = Math.max(recovery, (double) current.recoverySum() / current.recovered());
+            }
+            samples += current.windows();
+        }
+        return new Expected(delay, recovery, samples);
+    }
+
+    /**
+     * Açılışta kavşak toplamlarını kayıtlı ölçümlerden yükle
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void warmUp() {
+        try {
+            List<Object[]> rows = impactRepository.summarizeByIntersection();
+            for (Object[] row : rows) {
+                totals.put(((Number) row[0]).longValue(), new Totals(
+                        ((Number) row[1]).longValue(),
+                        number(row[2]),
+                        number(row[3]),
+                        row[4] != null ? ((Number) row[4]).intValue() : 0,
+                        row[5] != null ? ((Number) row[5]).longValue() : 0,
+                        ((Number) row[6]).longValue(),
+                        row[7] != null ? ((Number) row[7]).longValue() : 0,
+                        (LocalDateTime) row[8]));
+            }
+            log.info("📉 Acil durum etki istatistikleri yüklendi: {} kavşak", rows.size());
+        } catch (RuntimeException e) {
+            log.warn("⚠️ Acil durum etki istatistikleri yüklenemedi: {}", e.getMessage());
+        }
+    }
+
+    public int pendingCount() {
+        return pending.size();
+    }
+
+    /**
+     * Pencerenin yan yol etkisini okumalardan ölç
+     *
+     * @param readings bekletilen yönlerin [başlangıç - taban, gözlem sonu) okumaları, zaman sırasıyla
+     * @return taban okuması olan yön yoksa null
+     */
+    static EmergencyImpact measure(PendingWindow window, List<TrafficSensor> readings, long baselineMillis) {
+        long holdStart = window.holdStartMillis();
+        long holdEnd = window.holdEndMillis();
+        long baselineFrom = holdStart - baselineMillis;
+
+        // 1. Taban: yön başına pencere öncesi ortalama; son okuma pencerenin başlangıç durumu
+        Map<TrafficSensor.Direction, double[]> baselineSums = new EnumMap<>(TrafficSensor.Direction.class);
+        QueueSeries series = new QueueSeries(holdStart, holdEnd);
+        int index = 0;
+        for (; index < readings.size(); index++) {
+            TrafficSensor reading = readings.get(index);
+            if (toEpochMillis(reading.getRecordedAt()) >= holdStart) {
+                break;
+            }
+            if (toEpochMillis(reading.getRecordedAt()) < baselineFrom) {
+                continue;
+            }
+            double[] sum = baselineSums.computeIfAbsent(reading.getDirection(), direction -> new double[2]);
+            sum[0] += reading.getVehicleCount();
+            sum[1]++;
+            series.latest.put(reading.getDirection(), reading.getVehicleCount());
+        }
+        if (baselineSums.isEmpty()) {
+            return null;
+        }
+        double baseline = baselineSums.values().stream().mapToDouble(sum -> sum[0] / sum[1]).sum();
+        double threshold = baseline + Math.max(1.0, baseline * RECOVERY_TOLERANCE);
+        int used = index;
+        series.start(baseline);
+
+        // 2. Pencere ve sonrası: kuyruk eğrisini tabana dönene kadar izle
+        Long recoveredAt = null;
+        for (; index < readings.size(); index++) {
+            TrafficSensor reading = readings.get(index);
+            if (!baselineSums.containsKey(reading.getDirection())) {
+                continue; // tabanı bilinmeyen yön değerlendirilemez
+            }
+            long at = toEpochMillis(reading.getRecordedAt());
+            if (at >= holdEnd && series.time < holdEnd) {
+                series.advance(holdEnd);
+                if (series.queue <= threshold) {
+                    recoveredAt = holdEnd;
+                    break;
+                }
+            }
+            series.advance(at);
+            series.latest.put(reading.getDirection(), reading.getVehicleCount());
+            series.update();
+            used++;
+            if (at >= holdEnd && series.queue <= threshold) {
+                recoveredAt = at;
+                break;
+            }
+        }
+        if (recoveredAt == null) {
+            series.advance(holdEnd);
+            if (series.queue <= threshold) {
+                recoveredAt = holdEnd;
+            } else {
+                series.advance(window.dueMillis());
+            }
+        }
+
+        int holdSeconds = (int) ((holdEnd - holdStart) / 1000);
+        return EmergencyImpact.builder()
+                .vehicleKey(window.vehicleKey())
+                .vehicleId(window.vehicleId())
+                .intersectionId(window.intersectionId())
+                .heldApproaches(window.held().stream().map(Enum::name).collect(Collectors.joining(",")))
+                .holdStart(toLocalDateTime(holdStart))
+                .holdSeconds(holdSeconds)
+                .baselineQueue(baseline)
+                .holdDemand(series.holdArea / Math.max(1, holdEnd - holdStart))
+                .peakQueue(series.peak)
+                .queueBuildUp(Math.max(0, series.peak - baseline))
+                .recoverySeconds(recoveredAt != null ? (int) Math.ceil((recoveredAt - holdEnd) / 1000.0) : null)
+                .delayVehicleSeconds(series.excessArea / 1000.0)
+                .sensorReadings(used)
+                .analyzedAt(LocalDateTime.now())
+                .build();
+    }
+
+    private static double number(Object value) {
+        return value != null ? ((Number) value).doubleValue() : 0;
+    }
+
+    private static long toEpochMillis(LocalDateTime time) {
+        return time.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+    }
+
+    private static LocalDateTime toLocalDateTime(long epochMillis) {
+        return LocalDateTime.ofInstant(Instant.ofEpochMilli(epochMillis), ZoneId.systemDefault());
+    }
+
+    /**
+     * Plan için beklenen etki
+     *
+     * @param delayVehicleSeconds yan yollarda toplam ek bekleme
+     * @param recoverySeconds     en yavaş kavşağın ortalama normale dönüş süresi
+     * @param samples             dayanılan ölçülmüş pencere sayısı (0 = geçmiş yok)
+     */
+    public record Expected(double delayVehicleSeconds, double recoverySeconds, long samples) {
+    }
+
+    /**
+     * Gözlem süresi dolunca analiz edilecek yeşil pencere (epoch ms)
+     */
+    record PendingWindow(String vehicleKey, String vehicleId, long intersectionId,
+                         List<TrafficSensor.Direction> held, long holdStartMillis, long holdEndMillis,
+                         long dueMillis) implements Delayed {
+
+        @Override
+        public long getDelay(TimeUnit unit) {
+            return unit.convert(dueMillis - System.currentTimeMillis(), TimeUnit.MILLISECONDS);
+        }
+
+        @Override
+        public int compareTo(Delayed other) {
+            return Long.compare(dueMillis, ((PendingWindow) other).dueMillis);
+        }
+    }
+
+    /**
+     * Yan yol kuyruğunun basamak eğrisi: okumalar arasında sabit
+     */
+    private static final class QueueSeries {
+        private final long holdStart;
+        private final long holdEnd;
+        private final Map<TrafficSensor.Direction, Integer> latest = new EnumMap<>(TrafficSensor.Direction.class);
+        private double baseline;
+        private long time;
+        private int queue;
+        private int peak;
+        private double holdArea;   // kuyruk x ms, pencere içinde
+        private double excessArea; // tabanı aşan kuyruk x ms
+
+        private QueueSeries(long holdStart, long holdEnd) {
+            this.holdStart = holdStart;
+            this.holdEnd = holdEnd;
+        }
+
+        private void start(double baseline) {
+            this.baseline = baseline;
+            this.time = holdStart;
+            update();
+        }
+
+        private void update() {
+            queue = latest.values().stream().mapToInt(Integer::intValue).sum();
+            peak = Math.max(peak, queue);
+        }
+
+        private void advance(long to) {
+            if (to <= time) {
+                return;
+            }
+            long inHold = Math.max(0, Math.min(to, holdEnd) - Math.max(time, holdStart));
+            holdArea += (double) queue * inHold;
+            excessArea += Math.max(0, queue - baseline) * (to - time);
+            time = to;
+        }
+    }
+
+    /**
+     * Kavşak başına toplamlar (birleşimi sıradan bağımsız)
+     */
+    private record Totals(long windows, double delaySum, double buildUpSum, int maxPeak,
+                          long recoverySum, long recovered, long holdSum, LocalDateTime lastAnalyzedAt) {
+
+        private static Totals of(EmergencyImpact impact) {
+            Integer recovery = impact.getRecoverySeconds();
+            return new Totals(1, impact.getDelayVehicleSeconds(), impact.getQueueBuildUp(), impact.getPeakQueue(),
+                    recovery != null ? recovery : 0, recovery != null ? 1 : 0, impact.getHoldSeconds(),
+                    impact.getAnalyzedAt());
+        }
+
+        private Totals plus(Totals other) {
+            return new Totals(windows + other.windows, delaySum + other.delaySum, buildUpSum + other.buildUpSum,
+                    Math.max(maxPeak, other.maxPeak), recoverySum + other.recoverySum, recovered + other.recovered,
+                    holdSum + other.holdSum,
+                    lastAnalyzedAt.isAfter(other.lastAnalyzedAt) ? lastAnalyzedAt : other.lastAnalyzedAt);
+        }
+
+        private ImpactStatsResponse toResponse(long intersectionId) {
+            return ImpactStatsResponse.builder()
+                    .intersectionId(intersectionId)
+                    .analyzedWindows(windows)
+                    .avgDelayVehicleSeconds(round(delaySum / windows))
+                    .avgQueueBuildUp(round(buildUpSum / windows))
+                    .maxPeakQueue(maxPeak)
+                    .avgRecoverySeconds(recovered > 0 ? round((double) recoverySum / recovered) : null)
+                    .recoveredPercent(round(100.0 * recovered / windows))
+                    .totalHoldSeconds(holdSum)
+                    .lastAnalyzedAt(lastAnalyzedAt)
+                    .build();
+        }
+
+        private static double round(double value) {
+            return Math.round(value * 10) / 10.0;
+        }
+    }
+}
@@ -0,0 +1,324 @@
+package com.trafficlight.service;
+
+import com.trafficlight.entity.EmergencyVehicle;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+/**
+ * Eşzamanlı acil araçların kavşak bazında yeşil çizelgesi.
+ *
+ * Her kavşağın kendi talep listesi ve kilidi vardır; farklı kavşaklardaki
+ * acil durumlar birbirini hiç beklemez. Bir kavşakta talepler öncelik
+ * seviyesi (1 = en yüksek), sonra varış zamanı, sonra geliş sırasıyla
+ * yerleştirilir:
+ * <ul>
+ *   <li>Aynı eksendeki (kuzey-güney / doğu-batı) örtüşen talepler birleşir,
+ *       ikisi de aynı yeşilden geçer</li>
+ *   <li>Çapraz eksendeki örtüşen talep, öncelikli talebin penceresi bitene
+ *       kadar sıraya alınır</li>
+ * </ul>
+ * Yeni talepte ve araç sonlandığında sadece aracın rotasındaki kavşaklar
+ * yeniden hesaplanır.
+ */
+@Component
+@Slf4j
+public class EmergencyPreemptionScheduler {
+
+    private final Map<Long, IntersectionSchedule> schedules = new ConcurrentHashMap<>();
+    /** araç journal anahtarı → talep bulunan kavşaklar */
+    private final Map<String, long[]> vehicleIntersections = new ConcurrentHashMap<>();
+    private final AtomicLong sequence = new AtomicLong();
+
+    public enum Status {
+        /** İstenen pencere olduğu gibi verildi */
+        GRANTED,
+        /** Aynı eksendeki başka bir araçla aynı yeşili paylaşıyor */
+        MERGED,
+        /** Öncelikli bir aracın penceresi bitene kadar ertelendi */
+        QUEUED
+    }
+
+    /**
+     * Bir aracın bir kavşaktaki yeşil talebi (epoch ms)
+     */
+    public record Request(
+            String vehicleKey,
+            String vehicleId,
+            int priorityLevel,
+            EmergencyVehicle.Direction heading,
+            long startMillis,
+            long endMillis,
+            long etaMillis,
+            long sequence) {
+    }
+
+    /**
+     * Çizelgede aracın kavşaktaki yeşil penceresi (epoch ms)
+     *
+     * @param requestedStartMillis talep edilen başlangıç
+     * @param yieldTo              sıraya alındıysa yol verilen araç
+     */
+    public record Grant(
+            long intersectionId,
+            String vehicleKey,
+            String vehicleId,
+            int priorityLevel,
+            EmergencyVehicle.Direction heading,
+            Status status,
+            long requestedStartMillis,
+            long startMillis,
+            long endMillis,
+            String yieldTo) {
+
+        public long delayMillis() {
+            return startMillis - requestedStartMillis;
+        }
+    }
+
+    /**
+     * @param grants    aracın kendi pencereleri (plan penceresi sırasıyla; bitmiş pencereler hariç)
+     * @param displaced bu talep yüzünden penceresi değişen diğer araçlar
+     */
+    public record Result(List<Grant> grants, List<Grant> displaced) {
+    }
+
+    /**
+     * Aracın rota planını çizelgeye ekle. Geçmiş bir tespit zamanıyla (yeniden
+     * başlatmada geri yükleme) bitmiş pencereler çizelgeye girmez.
+     *
+     * @param startMillis planın başlangıç anı (tespit zamanı)
+     */
+    public Result schedule(String vehicleKey, String vehicleId, int priorityLevel,
+                           PreemptionPlan plan, long startMillis) {
+        long seq = sequence.incrementAndGet();
+        long now = System.currentTimeMillis();
+        List<PreemptionPlan.Window> live = plan.windows().stream()
+                .filter(window -> startMillis + window.greenEndSeconds() * 1000L >= now)
+                .toList();
+        if (live.isEmpty()) {
+            return new Result(List.of(), List.of());
+        }
+        vehicleIntersections.put(vehicleKey,
+                live.stream().mapToLong(PreemptionPlan.Window::intersectionId).toArray());
+
+        List<Grant> grants = new ArrayList<>(live.size());
+        List<Grant> displaced = new ArrayList<>();
+        for (PreemptionPlan.Window window : live) {
+            Request request = new Request(vehicleKey, vehicleId, priorityLevel, plan.heading(),
+                    startMillis + window.greenStartSeconds() * 1000L,
+                    startMillis + window.greenEndSeconds() * 1000L,
+                    startMillis + window.etaSeconds() * 1000L,
+                    seq);
+
+            // Kavşak kilitleri tek tek alınır: kilitlenme olmaz, ilgisiz kavşaklar beklemez
+            withSchedule(window.intersectionId(), schedule -> {
+                schedule.requests.put(vehicleKey, request);
+                for (Grant changed : schedule.recompute(now)) {
+                    if (changed.vehicleKey().equals(vehicleKey)) {
+                        continue;
+                    }
+                    displaced.add(changed);
+                }
+                Grant grant = schedule.grants.get(vehicleKey);
+                if (grant != null) {
+                    grants.add(grant);
+                }
+                return null;
+            });
+        }
+
+        for (Grant grant : displaced) {
+            log.info("🚦 Kavşak-{}: {} önceliği nedeniyle {} {}s ertelendi",
+                    grant.intersectionId(), vehicleId, grant.vehicleId(), grant.delayMillis() / 1000);
+        }
+        return new Result(grants, displaced);
+    }
+
+    /**
+     * Aracın tüm taleplerini kaldır; sadece rotasındaki kavşaklar yeniden hesaplanır
+     *
+     * @return penceresi değişen (öne alınan) diğer araçlar
+     */
+    public List<Grant> release(String vehicleKey) {
+        long[] intersectionIds = vehicleIntersections.remove(vehicleKey);
+        if (intersectionIds == null) {
+            return List.of();
+        }
+
+        long now = System.currentTimeMillis();
+        List<Grant> promoted = new ArrayList<>();
+        for (long intersectionId : intersectionIds) {
+            if (!schedules.containsKey(intersectionId)) {
+                continue;
+            }
+            withSchedule(intersectionId, schedule -> {
+                if (schedule.requests.remove(vehicleKey) != null) {
+                    promoted.addAll(schedule.recompute(now));
+                }
+                return null;
+            });
+        }
+        return promoted;
+    }
+
+    /**
+     * Kavşağın güncel çizelgesi (başlangıç sırasıyla)
+     */
+    public List<Grant> timeline(long intersectionId) {
+        if (!schedules.containsKey(intersectionId)) {
+            return List.of();
+        }
+        return withSchedule(intersectionId, schedule -> schedule.grants.values().stream()
+                .sorted(Comparator.comparingLong(Grant::startMillis))
+                .toList());
+    }
+
+    /**
+     * Çizelgede talebi bulunan araç sayısı
+     */
+    public int activeVehicles() {
+        return vehicleIntersections.size();
+    }
+
+    /**
+     * Penceresi geçmiş talepleri temizle (sonlandırılmadan kalan araçlar)
+     */
+    @Scheduled(fixedDelayString = "${traffic.emergency.scheduler.purge-ms:60000}")
+    public void purgeExpired() {
+        long now = System.currentTimeMillis();
+        for (Long intersectionId : List.copyOf(schedules.keySet())) {
+            withSchedule(intersectionId, schedule -> schedule.recompute(now));
+        }
+        vehicleIntersections.entrySet().removeIf(entry -> {
+            for (long intersectionId : entry.getValue()) {
+                IntersectionSchedule schedule = schedules.get(intersectionId);
+                if (schedule != null && schedule.contains(entry.getKey())) {
+                    return false;
+                }
+            }
+            return true;
+        });
+    }
+
+    /**
+     * Kavşak kilidi altında çalıştır. Boşalan çizelge haritadan çıkarılır;
+     * çıkarılmış bir çizelgeyi yakalayan çağrı yenisiyle tekrar dener.
+     */
+    private <T> T withSchedule(long intersectionId, Function<IntersectionSchedule, T> action) {
+        while (true) {
+            IntersectionSchedule schedule = schedules.computeIfAbsent(intersectionId, IntersectionSchedule::new);
+            synchronized (schedule) {
+                if (schedule.retired) {
+                    continue;
+                }
+                T result = action.apply(schedule);
+                if (schedule.requests.isEmpty()) {
+                    schedule.retired = true;
+                    schedules.remove(intersectionId, schedule);
+                }
+                return result;
+            }
+        }
+    }
+
+    private static boolean sameAxis(EmergencyVehicle.Direction a, EmergencyVehicle.Direction b) {
+        return IntersectionGraph.unitX(a) != 0 == (IntersectionGraph.unitX(b) != 0);
+    }
+
+    /**
+     * Tek kavşağın talepleri ve hesaplanmış pencereleri (kavşak kilidiyle korunur)
+     */
+    private static final class IntersectionSchedule {
+
+        private static final Comparator<Request> ORDER = Comparator
+                .comparingInt(Request::priorityLevel)
+                .thenComparingLong(Request::etaMillis)
+                .thenComparingLong(Request::sequence);
+
+        private final long intersectionId;
+        private final Map<String, Request> requests = new LinkedHashMap<>();
+        private Map<String, Grant> grants = Map.of();
+        private boolean retired;
+
+        private IntersectionSchedule(long intersectionId) {
+            this.intersectionId = intersectionId;
+        }
+
+        private boolean contains(String vehicleKey) {
+            synchronized (this) {
+                return requests.containsKey(vehicleKey);
+            }
+        }
+
+        /**
+         * Pencereleri öncelik sırasıyla yeniden yerleştir
+         *
+         * @return başlangıcı kayan (ertelenen ya da öne alınan) araçlar
+         */
+        private List<Grant> recompute(long now) {
+            requests.values().removeIf(request -> {
+                Grant grant = grants.get(request.vehicleKey());
+                return (grant != null ? grant.endMillis() : request.endMillis()) < now;
+            });
+
+            List<Request> ordered = new ArrayList<>(requests.values());
+            ordered.sort(ORDER);
+
+            Map<String, Grant> next = new LinkedHashMap<>();
+            for (Request request : ordered) {
+                long duration = request.endMillis() - request.startMillis();
+                long start = request.startMillis();
+                String yieldTo = null;
+
+                // Çapraz eksende örtüşen öncelikli pencere kalmayana kadar ertele
+                boolean moved = true;
+                while (moved) {
+                    moved = false;
+                    for (Grant placed : next.values()) {
+                        if (!sameAxis(placed.heading(), request.heading())
+                                && placed.startMillis() < start + duration && start < placed.endMillis()) {
+                            start = placed.endMillis();
+                            yieldTo = placed.vehicleId();
+                            moved = true;
+                        }
+                    }
+                }
+
+                long end = start + duration;
+                Status status;
+                if (start > request.startMillis()) {
+                    status = Status.QUEUED;
+                } else {
+                    long windowStart = start;
+                    status = next.values().stream().anyMatch(placed -> sameAxis(placed.heading(), request.heading())
+                            && placed.startMillis() < end && windowStart < placed.endMillis())
+                            ? Status.MERGED
+                            : Status.GRANTED;
+                }
+                next.put(request.vehicleKey(), new Grant(intersectionId, request.vehicleKey(), request.vehicleId(),
+                        request.priorityLevel(), request.heading(), status,
+                        request.startMillis(), start, end, yieldTo));
+            }
+
+            List<Grant> changed = new ArrayList<>();
+            for (Grant grant : next.values()) {
+                Grant previous = grants.get(grant.vehicleKey());
+                if (previous != null && previous.startMillis() != grant.startMillis()) {
+                    changed.add(grant);
+                }
+            }
+            grants = next;
+            return changed;
+        }
+    }
+}
@@ -4,75 +4,188 @@ import com.trafficlight.dto.EmergencyRequest;
 import com.trafficlight.dto.EmergencyResponse;
 import com.trafficlight.entity.EmergencyEvent;
 import com.trafficlight.entity.EmergencyVehicle;
+import com.trafficlight.event.EmergencyPreemptionEvent;
+import com.trafficlight.event.PreemptionScheduleChangedEvent;
+import com.trafficlight.exception.BadRequestException;
+import com.trafficlight.exception.ResourceNotFoundException;
 import com.trafficlight.repository.EmergencyEventRepository;
 import com.trafficlight.repository.EmergencyVehicleRepository;
-import lombok.RequiredArgsConstructor;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.event.EventListener;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Transactional;
 
+import java.time.Duration;
+import java.time.Instant;
 import java.time.LocalDateTime;
+import java.time.ZoneId;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.OptionalLong;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
 
+/**
+ * Acil araç önceliği.
+ *
+ * Tetikleme hızlı yoldan çalışır: karar bellekteki kavşak grafiğinden verilir,
+ * faz değişiklikleri {@link EmergencyPreemptionEvent} ile hemen yayınlanır ve
+ * araç/olay kayıtları {@link EmergencyEventJournal} üzerinden sonradan toplu
+ * yazılır. İstek hiçbir veritabanı commit'ini beklemez.
+ *
+ * Aynı kavşaklara düşen eşzamanlı acil durumlar
+ * {@link EmergencyPreemptionScheduler} ile öncelik seviyesi ve varış zamanına
+ * göre birleştirilir ya da sıraya alınır.
+ *
+ * Her öncelik {@link EmergencyExpiryWheel} üzerinde süre sonu kurar; süre
+ * dolunca acil durum kendiliğinden sonlanır. Elle sonlandırma zamanlayıcıyı
+ * iptal eder. Açılışta aktif acil durumların zamanlayıcıları veritabanından
+ * yeniden kurulur.
+ *
+ * Aktif acil durumlar {@link ActiveEmergencyRegistry} üzerinden bellekten
+ * sunulur; durum sorguları veritabanına gitmez.
+ *
+ * Metrik: emergency.trigger.latency (p50/p99, hedef traffic.emergency.trigger-p99-target-ms)
+ */
 @Service
-@RequiredArgsConstructor
 @Slf4j
 public class EmergencyService {
 
     private final EmergencyVehicleRepository emergencyVehicleRepository;
     private final EmergencyEventRepository emergencyEventRepository;
+    private final PreemptionPlanner preemptionPlanner;
+    private final EmergencyPreemptionScheduler preemptionScheduler;
+    private final EmergencyEventJournal eventJournal;
+    private final EmergencyExpiryWheel expiryWheel;
+    private final ActiveEmergencyRegistry activeEmergencies;
+    private final EmergencyImpactAnalyzer impactAnalyzer;
+    private final DailyActivityCounters activityCounters;
+    private final ApplicationEventPublisher eventPublisher;
+    private final Timer triggerLatency;
+
+    public EmergencyService(
+            EmergencyVehicleRepository emergencyVehicleRepository,
+            EmergencyEventRepository emergencyEventRepository,
+            PreemptionPlanner preemptionPlanner,
+            EmergencyPreemptionScheduler preemptionScheduler,
+            EmergencyEventJournal eventJournal,
+            EmergencyExpiryWheel expiryWheel,
+            ActiveEmergencyRegistry activeEmergencies,
+            EmergencyImpactAnalyzer impactAnalyzer,
+            DailyActivityCounters activityCounters,
+            ApplicationEventPublisher eventPublisher,
+            MeterRegistry meterRegistry,
+            @Value("${traffic.emergency.trigger-p99-target-ms:10}") long p99TargetMs) {
+        this.emergencyVehicleRepository = emergencyVehicleRepository;
+        this.emergencyEventRepository = emergencyEventRepository;
+        this.preemptionPlanner = preemptionPlanner;
+        this.preemptionScheduler = preemptionScheduler;
+        this.eventJournal = eventJournal;
+        this.expiryWheel = expiryWheel;
+        this.activeEmergencies = activeEmergencies;
+        this.impactAnalyzer = impactAnalyzer;
+        this.activityCounters = activityCounters;
+        this.eventPublisher = eventPublisher;
+        this.triggerLatency = Timer.builder("emergency.trigger.latency")
+                .description("Time from emergency detection to published phase changes")
+                .publishPercentiles(0.5, 0.99)
+                .serviceLevelObjectives(Duration.ofMillis(p99TargetMs))
+                .register(meterRegistry);
+    }
 
     /**
      * Acil araç tespit edildiğinde tetiklenir
      */
-    @Transactional
     public EmergencyResponse triggerEmergency(EmergencyRequest request) {
+        return triggerEmergency(request, UUID.randomUUID().toString());
+    }
+
+    /**
+     * Acil aracı çağıranın verdiği journal anahtarıyla tetikle
+     * (GPS takibi gibi sonlandırmayı kendisi yapan çağıranlar için)
+     */
+    public EmergencyResponse triggerEmergency(EmergencyRequest request, String journalKey) {
+        long startNanos = System.nanoTime();
         log.info("🚨 Acil araç tespit edildi: {} - Kavşak: {}", 
                  request.getVehicleId(), request.getIntersectionId());
 
-        // 1. Acil aracı kaydet
-        EmergencyVehicle vehicle = createEmergencyVehicle(request);
+        // 1. Acil aracı oluştur (bellekte; kayıt günlük üzerinden sonra yazılır)
+        EmergencyVehicle vehicle = createEmergencyVehicle(request, journalKey);
         
         // 2. Event log'u oluştur
-        EmergencyEvent detectionEvent = createDetectionEvent(vehicle);
+        List<EmergencyEvent> events = new ArrayList<>();
+        events.add(createDetectionEvent(vehicle));
         
-        // 3. Kavşak fazlarını değiştir (yeşil yap)
+        // 3. Rota üzerindeki kavşakları planla (bellekteki kavşak grafiği)
+        PreemptionPlan plan = preemptionPlanner.plan(
+                vehicle.getCurrentIntersectionId(), vehicle.getDirection(), request.getSpeedKmh());
+
+        // 4. Diğer acil durumlarla çakışmaları çöz (öncelik seviyesi, varış zamanı)
+        long startMillis = toEpochMillis(vehicle.getDetectedAt());
+        EmergencyPreemptionScheduler.Result scheduled = preemptionScheduler.schedule(vehicle.getJournalKey(),
+                vehicle.getVehicleId(), vehicle.getPriorityLevel(), plan, startMillis);
+
+        // 5. Kavşak fazlarını değiştir (kademeli yeşil pencereler)
         List<EmergencyResponse.IntersectionStatus> intersections = 
-            changeIntersectionPhases(vehicle);
+            changeIntersectionPhases(vehicle, plan, scheduled.grants(), startMillis, events);
+
+        // 6. Faz değişikliklerini yayınla (veritabanını beklemeden)
+        eventPublisher.publishEvent(new EmergencyPreemptionEvent(vehicle.getJournalKey(),
+                vehicle.getVehicleId(), vehicle.getPriorityLevel(), plan, scheduled.grants(),
+                vehicle.getDetectedAt()));
+
+        // 7. Aktif kayda ekle, kayıtları günlüğe ekle (araç başına sıralı, toplu yazılır)
+        activeEmergencies.register(vehicle);
+        activityCounters.recordEmergency(vehicle);
+        eventJournal.append(vehicle, events);
+        publishScheduleChanges(scheduled.displaced(),
+                String.format("%s önceliği nedeniyle yeşil ertelendi", vehicle.getVehicleId()));
+
+        // 8. Süre sonunu kur: son yeşil penceresi bitince kendiliğinden sonlanır
+        long expiresAt = Math.max(startMillis + plan.clearSeconds() * 1000L, lastGreenEnd(scheduled.grants()));
+        expiryWheel.schedule(ActiveEmergencyRegistry.keyOf(vehicle), expiresAt, expiryTask(vehicle));
         
-        // 4. Etki analizi yap
-        EmergencyResponse.ImpactAnalysis impact = analyzeImpact(vehicle, intersections);
+        // 9. Beklenen etki (ölçülmüş geçmişten; gerçek etki pencereler bitince arka planda ölçülür)
+        EmergencyResponse.ImpactAnalysis impact = analyzeImpact(plan, intersections);
         
-        // 5. Yapılan işlemleri listele
-        List<String> actions = buildActionsList(vehicle, intersections);
+        // 10. Yapılan işlemleri listele
+        List<String> actions = buildActionsList(vehicle, plan, intersections);
         
-        // 6. Response oluştur
-        return buildResponse(vehicle, intersections, impact, actions);
+        // 11. Response oluştur
+        EmergencyResponse response = buildResponse(vehicle, plan, intersections, impact, actions,
+                (int) ((expiresAt - startMillis) / 1000));
+        triggerLatency.record(System.nanoTime() - startNanos, TimeUnit.NANOSECONDS);
+        return response;
     }
 
     /**
-     * Acil aracı kaydet
+     * Acil aracı oluştur
      */
-    private EmergencyVehicle createEmergencyVehicle(EmergencyRequest request) {
-        EmergencyVehicle vehicle = EmergencyVehicle.builder()
+    private EmergencyVehicle createEmergencyVehicle(EmergencyRequest request, String journalKey) {
+        return EmergencyVehicle.builder()
                 .vehicleId(request.getVehicleId())
                 .type(request.getType())
                 .status(EmergencyVehicle.EmergencyStatus.DETECTED)
                 .currentIntersectionId(request.getIntersectionId())
                 .direction(request.getDirection())
                 .notes(request.getNotes())
+                .detectedAt(LocalDateTime.now())
+                .priorityLevel(EmergencyVehicle.defaultPriority(request.getType()))
+                .journalKey(journalKey)
                 .build();
-        
-        return emergencyVehicleRepository.save(vehicle);
     }
 
     /**
      * Tespit event'i oluştur
      */
     private EmergencyEvent createDetectionEvent(EmergencyVehicle vehicle) {
-        EmergencyEvent event = EmergencyEvent.builder()
-                .emergencyVehicleId(vehicle.getId())
+        return EmergencyEvent.builder()
                 .intersectionId(vehicle.getCurrentIntersectionId())
                 .intersectionName("Kavşak-" + vehicle.getCurrentIntersectionId())
                 .eventType(EmergencyEvent.EventType.EMERGENCY_DETECTED)
@@ -80,51 +193,77 @@ public class EmergencyService {
                         vehicle.getType().getDisplayName(),
                         vehicle.getDirection().getDisplayName()))
                 .success(true)
+                .createdAt(vehicle.getDetectedAt())
+                .journalKey(UUID.randomUUID().toString())
                 .build();
-        
-        return emergencyEventRepository.save(event);
     }
 
     /**
-     * Kavşak fazlarını değiştir
+     * Kavşak fazlarını değiştir: başlangıç kavşağı hemen, rota üzerindekiler
+     * varıştan önce yeşile geçer; çapraz yönler sadece pencere boyunca bekler.
+     * Öncelikli bir araçla çakışan pencere, çizelgenin verdiği ana kayar.
      */
-    private List<EmergencyResponse.IntersectionStatus> changeIntersectionPhases(EmergencyVehicle vehicle) {
+    private List<EmergencyResponse.IntersectionStatus> changeIntersectionPhases(
+            EmergencyVehicle vehicle,
+            PreemptionPlan plan,
+            List<EmergencyPreemptionScheduler.Grant> grants,
+            long startMillis,
+            List<EmergencyEvent> events) {
         List<EmergencyResponse.IntersectionStatus> statuses = new ArrayList<>();
+        List<String> heldApproaches = plan.conflictingApproaches().stream()
+                .map(EmergencyVehicle.Direction::getDisplayName)
+                .toList();
         
-        // Ana kavşağı yeşil yap
-        EmergencyResponse.IntersectionStatus mainIntersection = 
-            EmergencyResponse.IntersectionStatus.builder()
-                .intersectionId(vehicle.getCurrentIntersectionId())
-                .name("Kavşak-" + vehicle.getCurrentIntersectionId() + " (Atatürk Bulvarı)")
-                .previousPhase("🔴 KIRMIZI")
-                .currentPhase("🟢 YEŞİL")
-                .duration(60)
-                .reason("ACİL DURUM ÖNCELİĞİ")
-                .visual("🟢🟢🟢 YEŞİL (Acil)")
-                .build();
-        statuses.add(mainIntersection);
-        
-        // Event log
-        logPhaseChange(vehicle, mainIntersection);
-        
-        // Diğer kavşakları kırmızı yap (örnek)
-        for (long i = 1; i <= 3; i++) {
-            if (i != vehicle.getCurrentIntersectionId()) {
-                EmergencyResponse.IntersectionStatus otherIntersection = 
-                    EmergencyResponse.IntersectionStatus.builder()
-                        .intersectionId(i)
-                        .name("Kavşak-" + i)
-                        .previousPhase("🟢 YEŞİL")
-                        .currentPhase("🔴 KIRMIZI")
-                        .duration(60)
-                        .reason("GÜVENLİK PROTOKOLÜ")
-                        .visual("🔴🔴🔴 KIRMIZI (Güvenlik)")
-                        .build();
-                statuses.add(otherIntersection);
-                
-                // Event log
-                logPhaseChange(vehicle, otherIntersection);
+        Map<Long, EmergencyPreemptionScheduler.Grant> grantsByIntersection = new HashMap<>();
+        for (EmergencyPreemptionScheduler.Grant grant : grants) {
+            grantsByIntersection.put(grant.intersectionId(), grant);
+        }
+
+        for (PreemptionPlan.Window window : plan.windows()) {
+            EmergencyPreemptionScheduler.Grant grant = grantsByIntersection.get(window.intersectionId());
+            if (grant == null) {
+                continue; // pencere tespit zamanına göre çoktan bitmiş
             }
+            boolean origin = window.intersectionId() == plan.originIntersectionId();
+            boolean queued = grant.status() == EmergencyPreemptionScheduler.Status.QUEUED;
+            int greenIn = (int) ((grant.startMillis() - startMillis) / 1000);
+
+            String reason;
+            String visual;
+            if (queued) {
+                reason = String.format("SIRADA - %s öncelikli (+%ds)", grant.yieldTo(), grant.delayMillis() / 1000);
+                visual = String.format("🟡 SIRADA (+%ds)", greenIn);
+            } else if (origin) {
+                reason = "ACİL DURUM ÖNCELİĞİ";
+                visual = "🟢🟢🟢 YEŞİL (Acil)";
+            } else {
+                reason = String.format("ROTA ÜZERİ - varış %ds", window.etaSeconds());
+                visual = String.format("🟢 ÖN YEŞİL (+%ds)", greenIn);
+            }
+            if (grant.status() == EmergencyPreemptionScheduler.Status.MERGED) {
+                reason += " (ortak yeşil)";
+            }
+
+            EmergencyResponse.IntersectionStatus status = 
+                EmergencyResponse.IntersectionStatus.builder()
+                    .intersectionId(window.intersectionId())
+                    .name(window.name())
+                    .previousPhase("🔴 KIRMIZI")
+                    .currentPhase("🟢 YEŞİL")
+                    .duration((int) ((grant.endMillis() - grant.startMillis()) / 1000))
+                    .reason(reason)
+                    .visual(visual)
+                    .distanceMeters(window.distanceMeters())
+                    .etaSeconds(window.etaSeconds())
+                    .greenInSeconds(greenIn)
+                    .heldApproaches(heldApproaches)
+                    .priorityDecision(grant.status().name())
+                    .yieldTo(grant.yieldTo())
+                    .build();
+            statuses.add(status);
+            
+            // Event log
+            events.add(logPhaseChange(vehicle, status));
         }
         
         return statuses;
@@ -133,10 +272,9 @@ public class EmergencyService {
     /**
      * Faz değişikliğini logla
      */
-    private void logPhaseChange(EmergencyVehicle vehicle, 
-                                 EmergencyResponse.IntersectionStatus status) {
-        EmergencyEvent event = EmergencyEvent.builder()
-                .emergencyVehicleId(vehicle.getId())
+    private EmergencyEvent logPhaseChange(EmergencyVehicle vehicle, 
+                                           EmergencyResponse.IntersectionStatus status) {
+        return EmergencyEvent.builder()
                 .intersectionId(status.getIntersectionId())
                 .intersectionName(status.getName())
                 .eventType(status.getCurrentPhase().contains("YEŞİL") ? 
@@ -150,29 +288,76 @@ public class EmergencyService {
                 .newPhase(status.getCurrentPhase())
                 .durationSeconds(status.getDuration())
                 .success(true)
+                .createdAt(vehicle.getDetectedAt())
+                .journalKey(UUID.randomUUID().toString())
                 .build();
-        
-        emergencyEventRepository.save(event);
     }
 
     /**
-     * Etki analizi yap
+     * Penceresi kayan diğer araçları yayınla ve her birinin geçmişine yaz
+     */
+    private void publishScheduleChanges(List<EmergencyPreemptionScheduler.Grant> changed, String reason) {
+        if (changed.isEmpty()) {
+            return;
+        }
+        eventPublisher.publishEvent(new PreemptionScheduleChangedEvent(changed, reason));
+
+        LocalDateTime now = LocalDateTime.now();
+        List<EmergencyEventJournal.Entry> entries = new ArrayList<>(changed.size());
+        for (EmergencyPreemptionScheduler.Grant grant : changed) {
+            // Ertelenen aracın önceliği yeni penceresi bitmeden sona ermesin
+            expiryWheel.extendTo(grant.vehicleKey(), grant.endMillis());
+            EmergencyEvent event = EmergencyEvent.builder()
+                    .intersectionId(grant.intersectionId())
+                    .intersectionName("Kavşak-" + grant.intersectionId())
+                    .eventType(EmergencyEvent.EventType.PHASE_CHANGED)
+                    .description(String.format("%s (gecikme %ds)", reason, grant.delayMillis() / 1000))
+                    .durationSeconds((int) ((grant.endMillis() - grant.startMillis()) / 1000))
+                    .success(true)
+                    .createdAt(now)
+                    .journalKey(UUID.randomUUID().toString())
+                    .build();
+            entries.add(EmergencyEventJournal.Entry.event(grant.vehicleKey(), null, event));
+        }
+        eventJournal.appendAll(entries);
+    }
+
+    /**
+     * Kavşağın acil durum yeşil çizelgesi
+     */
+    public List<EmergencyPreemptionScheduler.Grant> getPreemptionSchedule(Long intersectionId) {
+        return preemptionScheduler.timeline(intersectionId);
+    }
+
+    /**
+     * Etki analizi yap: kavşakların ölçülmüş geçmiş etkisinden beklenen gecikme
      */
     private EmergencyResponse.ImpactAnalysis analyzeImpact(
-            EmergencyVehicle vehicle,
+            PreemptionPlan plan,
             List<EmergencyResponse.IntersectionStatus> intersections) {
         
-        int totalWaitTime = intersections.stream()
-                .filter(i -> i.getCurrentPhase().contains("KIRMIZI"))
-                .mapToInt(EmergencyResponse.IntersectionStatus::getDuration)
-                .sum();
+        EmergencyImpactAnalyzer.Expected expected = impactAnalyzer.expected(plan);
+        String estimatedDelay = expected.samples() > 0
+                ? String.format("Yan yollarda toplam ~%.0f araç·saniye ek bekleme (%d ölçülmüş pencereye göre)",
+                        expected.delayVehicleSeconds(), expected.samples())
+                : String.format("Çapraz yönlerde kavşak başına ortalama %d saniye (henüz ölçüm yok)",
+                        plan.totalHoldSeconds() / Math.max(1, intersections.size()));
+        String recommendation = expected.recoverySeconds() > 0
+                ? String.format("Normal trafiğe %d saniye sonra dönülecek, kuyruklar ~%.0f saniyede erir",
+                        plan.clearSeconds(), expected.recoverySeconds())
+                : String.format("Normal trafiğe %d saniye sonra dönülecek", plan.clearSeconds());
         
         return EmergencyResponse.ImpactAnalysis.builder()
                 .affectedIntersections(intersections.size())
-                .totalWaitTime(totalWaitTime)
-                .estimatedDelay("Minimal (10-15 saniye)")
-                .recommendation("Normal trafiğe 60 saniye sonra dönülecek")
-                .trafficFlow("Düşük - Sadece 1 kavşak yeşil, diğerleri güvenlik için kırmızı")
+                .totalWaitTime(plan.totalHoldSeconds())
+                .estimatedDelay(estimatedDelay)
+                .recommendation(recommendation)
+                .trafficFlow(String.format("Rota üzerinde %d kavşak kademeli yeşil, diğer kavşaklar etkilenmedi",
+                        intersections.size()))
+                .expectedDelayVehicleSeconds(expected.samples() > 0
+                        ? (int) Math.round(expected.delayVehicleSeconds()) : null)
+                .expectedRecoverySeconds(expected.recoverySeconds() > 0
+                        ? (int) Math.round(expected.recoverySeconds()) : null)
                 .build();
     }
 
@@ -181,21 +366,28 @@ public class EmergencyService {
      */
     private List<String> buildActionsList(
             EmergencyVehicle vehicle,
+            PreemptionPlan plan,
             List<EmergencyResponse.IntersectionStatus> intersections) {
         
         List<String> actions = new ArrayList<>();
         
         for (EmergencyResponse.IntersectionStatus status : intersections) {
-            if (status.getIntersectionId().equals(vehicle.getCurrentIntersectionId())) {
+            if (status.getYieldTo() != null) {
+                actions.add(String.format("🟡 %s: %s önceliği nedeniyle %d. saniyede yeşil (%d saniye)",
+                        status.getName(), status.getYieldTo(), status.getGreenInSeconds(), status.getDuration()));
+            } else if (status.getIntersectionId().equals(vehicle.getCurrentIntersectionId())) {
                 actions.add(String.format("✅ %s: Anında yeşile çevrildi (%d saniye)",
                         status.getName(), status.getDuration()));
             } else {
-                actions.add(String.format("🔴 %s: Güvenlik için kırmızıya alındı",
-                        status.getName()));
+                actions.add(String.format("🟢 %s: %d. saniyede yeşil (%d saniye, varış %ds)",
+                        status.getName(), status.getGreenInSeconds(), status.getDuration(),
+                        status.getEtaSeconds()));
             }
         }
         
-        actions.add("⏰ Diğer tüm kavşaklar beklemeye alındı");
+        actions.add(String.format("🗺️ Rota planı: %s yönü, %.0f km/sa, %d kavşak (%.2f ms)",
+                plan.heading().getDisplayName(), plan.speedKmh(), intersections.size(),
+                plan.planningNanos() / 1_000_000.0));
         
         return actions;
     }
@@ -205,16 +397,18 @@ public class EmergencyService {
      */
     private EmergencyResponse buildResponse(
             EmergencyVehicle vehicle,
+            PreemptionPlan plan,
             List<EmergencyResponse.IntersectionStatus> intersections,
             EmergencyResponse.ImpactAnalysis impact,
-            List<String> actions) {
+            List<String> actions,
+            int clearSeconds) {
         
         EmergencyResponse.EmergencyVehicleInfo vehicleInfo = 
             EmergencyResponse.EmergencyVehicleInfo.builder()
                 .vehicleId(vehicle.getVehicleId())
                 .type(vehicle.getType().getDisplayName())
                 .status(vehicle.getStatus().getDisplayName())
-                .location("Kavşak-" + vehicle.getCurrentIntersectionId() + " (Atatürk Bulvarı)")
+                .location(plan.windows().get(0).name())
                 .direction(vehicle.getDirection().getDisplayName())
                 .priority(vehicle.getPriorityLevel())
                 .build();
@@ -222,8 +416,8 @@ public class EmergencyService {
         EmergencyResponse.TimeInfo timeInfo = 
             EmergencyResponse.TimeInfo.builder()
                 .detectedAt(vehicle.getDetectedAt())
-                .estimatedClearTime(60)
-                .resumeNormalAt(vehicle.getDetectedAt().plusSeconds(60))
+                .estimatedClearTime(clearSeconds)
+                .resumeNormalAt(vehicle.getDetectedAt().plusSeconds(clearSeconds))
                 .build();
         
         return EmergencyResponse.builder()
@@ -237,55 +431,221 @@ public class EmergencyService {
                 .build();
     }
 
+    /**
+     * Ön yeşil planı (kayıt oluşturmadan)
+     */
+    public PreemptionPlan planPreemption(Long intersectionId, EmergencyVehicle.Direction direction, Double speedKmh) {
+        return preemptionPlanner.plan(intersectionId, direction, speedKmh);
+    }
+
     /**
      * Acil durumu sonlandır
+     * (güncelleme ve olay, aracın önceki kayıtlarından sonra günlük üzerinden yazılır)
      */
-    @Transactional
     public EmergencyResponse clearEmergency(Long vehicleId) {
-        EmergencyVehicle vehicle = emergencyVehicleRepository.findById(vehicleId)
-                .orElseThrow(() -> new RuntimeException("Acil araç bulunamadı: " + vehicleId));
-        
-        vehicle.setStatus(EmergencyVehicle.EmergencyStatus.CLEARED);
-        vehicle.setClearedAt(LocalDateTime.now());
-        emergencyVehicleRepository.save(vehicle);
+        EmergencyVehicle vehicle = activeEmergencies.get(vehicleId);
+        boolean unregistered = false;
+        if (vehicle == null) {
+            // Aktif kayıtta yok: sonlanmış ya da kayıt dışı kalmış satır
+            vehicle = emergencyVehicleRepository.findById(vehicleId)
+                    .orElseThrow(() -> new RuntimeException("Acil araç bulunamadı: " + vehicleId));
+            unregistered = vehicle.getStatus() != EmergencyVehicle.EmergencyStatus.CLEARED;
+        }
+
+        expiryWheel.cancel(ActiveEmergencyRegistry.keyOf(vehicle));
+        boolean finished = finishEmergency(vehicle.getJournalKey(), vehicle.getId(), vehicle.getVehicleId(),
+                vehicle.getCurrentIntersectionId(), "Acil araç kavşaktan geçti, normal moda dönülüyor",
+                unregistered);
+        if (!finished) {
+            return EmergencyResponse.builder()
+                    .success(true)
+                    .message("✅ Acil durum zaten sonlandırılmış")
+                    .build();
+        }
         
-        // Event log
-        EmergencyEvent clearEvent = EmergencyEvent.builder()
-                .emergencyVehicleId(vehicle.getId())
+        return EmergencyResponse.builder()
+                .success(true)
+                .message("✅ Acil araç geçti, kavşaklar normal moda döndü")
+                .build();
+    }
+
+    /**
+     * Journal anahtarıyla aktif acil durumu sonlandır
+     *
+     * @return sonlandırıldı mı? (false: zaten sonlanmış ya da süresi dolmuş)
+     */
+    public boolean clearEmergency(String journalKey, String description) {
+        EmergencyVehicle vehicle = activeEmergencies.get(journalKey);
+        if (vehicle == null) {
+            return false;
+        }
+        expiryWheel.cancel(journalKey);
+        return finishEmergency(journalKey, null, vehicle.getVehicleId(), vehicle.getCurrentIntersectionId(),
+                description, false);
+    }
+
+    /**
+     * Öncelik süresini uzat (araç henüz geçmediyse)
+     */
+    public EmergencyResponse extendEmergency(Long vehicleId, int seconds) {
+        if (seconds <= 0) {
+            throw new BadRequestException("Uzatma süresi pozitif olmalı: " + seconds);
+        }
+        EmergencyVehicle vehicle = activeEmergencies.get(vehicleId);
+        if (vehicle == null) {
+            vehicle = emergencyVehicleRepository.findById(vehicleId)
+                    .orElseThrow(() -> new ResourceNotFoundException("Acil araç", vehicleId));
+        }
+
+        OptionalLong expiresAt = expiryWheel.extend(ActiveEmergencyRegistry.keyOf(vehicle), seconds * 1000L);
+        if (expiresAt.isEmpty()) {
+            throw new BadRequestException("Acil durum aktif değil: " + vehicle.getVehicleId());
+        }
+
+        EmergencyEvent event = EmergencyEvent.builder()
                 .intersectionId(vehicle.getCurrentIntersectionId())
                 .intersectionName("Kavşak-" + vehicle.getCurrentIntersectionId())
-                .eventType(EmergencyEvent.EventType.EMERGENCY_CLEARED)
-                .description("Acil araç kavşaktan geçti, normal moda dönülüyor")
+                .eventType(EmergencyEvent.EventType.PHASE_CHANGED)
+                .description(String.format("Öncelik süresi %d saniye uzatıldı", seconds))
+                .durationSeconds(seconds)
                 .success(true)
+                .createdAt(LocalDateTime.now())
+                .journalKey(UUID.randomUUID().toString())
                 .build();
-        emergencyEventRepository.save(clearEvent);
-        
-        log.info("✅ Acil durum sonlandırıldı: {}", vehicle.getVehicleId());
-        
+        eventJournal.appendAll(List.of(
+                EmergencyEventJournal.Entry.event(vehicle.getJournalKey(), vehicle.getId(), event)));
+
+        LocalDateTime resumeAt = toLocalDateTime(expiresAt.getAsLong());
+        log.info("⏱️ Acil durum uzatıldı: {} +{}s (bitiş {})", vehicle.getVehicleId(), seconds, resumeAt);
+
         return EmergencyResponse.builder()
                 .success(true)
-                .message("✅ Acil araç geçti, kavşaklar normal moda döndü")
+                .message(String.format("⏱️ Öncelik %d saniye uzatıldı", seconds))
+                .timeInfo(EmergencyResponse.TimeInfo.builder()
+                        .detectedAt(vehicle.getDetectedAt())
+                        .estimatedClearTime((int) Duration.between(vehicle.getDetectedAt(), resumeAt).toSeconds())
+                        .resumeNormalAt(resumeAt)
+                        .build())
                 .build();
     }
 
     /**
-     * Aktif acil durumları listele
+     * Sonlanma kaydını günlüğe ekle ve aracın yeşil pencerelerini bırak
+     * (elle sonlandırma ve süre sonu aynı yoldan geçer; aktif kayıttan
+     * çıkaran ilk yol sonlandırır)
+     *
+     * @param unregistered aktif kayıtta olmasa da sonlandır (kayıt dışı kalmış satır)
+     * @return sonlandırıldı mı?
+     */
+    private boolean finishEmergency(String journalKey, Long id, String vehicleId, Long intersectionId,
+                                    String description, boolean unregistered) {
+        if (activeEmergencies.remove(ActiveEmergencyRegistry.keyOf(journalKey, id)) == null && !unregistered) {
+            return false;
+        }
+        LocalDateTime clearedAt = LocalDateTime.now();
+        
+        // Event log
+        EmergencyEvent clearEvent = EmergencyEvent.builder()
+                .intersectionId(intersectionId)
+                .intersectionName("Kavşak-" + intersectionId)
+                .eventType(EmergencyEvent.EventType.EMERGENCY_CLEARED)
+                .description(description)
+                .success(true)
+                .createdAt(clearedAt)
+                .journalKey(UUID.randomUUID().toString())
+                .build();
+        eventJournal.appendAll(List.of(
+                EmergencyEventJournal.Entry.cleared(journalKey, id, clearedAt),
+                EmergencyEventJournal.Entry.event(journalKey, id, clearEvent)));
+
+        // Bu araç yüzünden sırada bekleyenler öne alınır
+        if (journalKey != null) {
+            publishScheduleChanges(preemptionScheduler.release(journalKey),
+                    String.format("%s geçti, yeşil öne alındı", vehicleId));
+        }
+        
+        log.info("✅ Acil durum sonlandırıldı: {}", vehicleId);
+        return true;
+    }
+
+    /**
+     * Süre sonu görevi: araç elle sonlandırılmadıysa normal moda dön
+     */
+    private Runnable expiryTask(EmergencyVehicle vehicle) {
+        String journalKey = vehicle.getJournalKey();
+        Long id = vehicle.getId();
+        String vehicleId = vehicle.getVehicleId();
+        Long intersectionId = vehicle.getCurrentIntersectionId();
+        return () -> finishEmergency(journalKey, id, vehicleId, intersectionId,
+                "Öncelik süresi doldu, normal moda dönülüyor (otomatik)", false);
+    }
+
+    /**
+     * Açılışta aktif acil durum kaydını, süre sonlarını ve yeşil çizelgesini
+     * veritabanından yeniden kur. Süresi kapanıştayken dolmuş olanlar ilk tick'te sonlanır.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void restoreExpiries() throws InterruptedException {
+        // Günlükte kalan tespitler önce veritabanına yazılsın
+        if (!eventJournal.awaitDrained(Duration.ofSeconds(30))) {
+            log.warn("⚠️ Acil durum günlüğü boşalmadan zamanlayıcılar kuruluyor ({} kayıt bekliyor)",
+                    eventJournal.pending());
+        }
+
+        long now = System.currentTimeMillis();
+        int overdue = 0;
+        List<EmergencyVehicle> active = emergencyVehicleRepository.findActiveEmergencies();
+        activeEmergencies.reconcile(active);
+        for (EmergencyVehicle vehicle : active) {
+            long startMillis = toEpochMillis(vehicle.getDetectedAt());
+            PreemptionPlan plan = preemptionPlanner.plan(
+                    vehicle.getCurrentIntersectionId(), vehicle.getDirection(), null);
+            long expiresAt = startMillis + plan.clearSeconds() * 1000L;
+            if (expiresAt > now && vehicle.getJournalKey() != null) {
+                EmergencyPreemptionScheduler.Result scheduled = preemptionScheduler.schedule(vehicle.getJournalKey(),
+                        vehicle.getVehicleId(), vehicle.getPriorityLevel(), plan, startMillis);
+                expiresAt = Math.max(expiresAt, lastGreenEnd(scheduled.grants()));
+            } else if (expiresAt <= now) {
+                overdue++;
+            }
+            expiryWheel.schedule(ActiveEmergencyRegistry.keyOf(vehicle), expiresAt, expiryTask(vehicle));
+        }
+        if (!active.isEmpty()) {
+            log.info("⏱️ {} aktif acil durumun süre sonu yeniden kuruldu ({} tanesi süresi dolmuş)",
+                    active.size(), overdue);
+        }
+    }
+
+    private static long lastGreenEnd(List<EmergencyPreemptionScheduler.Grant> grants) {
+        return grants.stream().mapToLong(EmergencyPreemptionScheduler.Grant::endMillis).max().orElse(0);
+    }
+
+    private static long toEpochMillis(LocalDateTime time) {
+        return time.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+    }
+
+    private static LocalDateTime toLocalDateTime(long epochMillis) {
+        return LocalDateTime.ofInstant(Instant.ofEpochMilli(epochMillis), ZoneId.systemDefault());
+    }
+
+    /**
+     * Aktif acil durumları listele (bellekteki kayıttan)
      */
     public List<EmergencyVehicle> getActiveEmergencies() {
-        return emergencyVehicleRepository.findActiveEmergencies();
+        return activeEmergencies.active();
     }
 
     /**
-     * Belirli bir kavşaktaki acil durumları getir
+     * Kavşakta tespit edilmiş aktif acil durumlar (bellekteki kayıttan)
      */
-    public List<EmergencyVehicle> getEmergenciesByIntersection(Long intersectionId) {
-        return emergencyVehicleRepository.findByCurrentIntersectionId(intersectionId);
+    public List<EmergencyVehicle> getActiveEmergencies(Long intersectionId) {
+        return activeEmergencies.activeAt(intersectionId);
     }
 
     /**
-     * Acil durum geçmişini getir
+     * Belirli bir kavşaktaki acil durumları getir
      */
-    public List<EmergencyEvent> getEmergencyHistory(Long vehicleId) {
-        return emergencyEventRepository.findByEmergencyVehicleIdOrderByCreatedAtDesc(vehicleId);
+    public List<EmergencyVehicle> getEmergenciesByIntersection(Long intersectionId) {
+        return emergencyVehicleRepository.findByCurrentIntersectionId(intersectionId);
     }
 }
\ No newline at end of file
@@ -0,0 +1,83 @@
+package com.trafficlight.service;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Kavşak yaklaşım bölgelerinin (daire, yarıçap r) değişmez ızgarası.
+ *
+ * Hücre kenarı r'dir; her kavşak dairesinin kestiği (en fazla 3x3) hücreye
+ * önceden yazılır. Bir GPS konumu için tek hücre okunur ve sadece o hücredeki
+ * birkaç aday kavşağa mesafe hesaplanır, kavşak sayısından bağımsızdır.
+ * {@link IntersectionGraph} ile aynı düzlemsel izdüşümü kullanır.
+ */
+public final class GeofenceGrid {
+
+    private static final int[] EMPTY = new int[0];
+
+    private final IntersectionGraph graph;
+    private final double radiusMeters;
+    private final Map<Long, int[]> cells;
+
+    private GeofenceGrid(IntersectionGraph graph, double radiusMeters, Map<Long, int[]> cells) {
+        this.graph = graph;
+        this.radiusMeters = radiusMeters;
+        this.cells = cells;
+    }
+
+    public static GeofenceGrid build(IntersectionGraph graph, double radiusMeters) {
+        Map<Long, List<Integer>> grid = new HashMap<>();
+        for (int i = 0; i < graph.size(); i++) {
+            long minX = cell(graph.x(i) - radiusMeters, radiusMeters);
+            long maxX = cell(graph.x(i) + radiusMeters, radiusMeters);
+            long minY = cell(graph.y(i) - radiusMeters, radiusMeters);
+            long maxY = cell(graph.y(i) + radiusMeters, radiusMeters);
+            for (long cx = minX; cx <= maxX; cx++) {
+                for (long cy = minY; cy <= maxY; cy++) {
+                    grid.computeIfAbsent(packKey(cx, cy), k -> new ArrayList<>(2)).add(i);
+                }
+            }
+        }
+        Map<Long, int[]> cells = new HashMap<>(grid.size() * 2);
+        grid.forEach((key, members) -> cells.put(key, members.stream().mapToInt(Integer::intValue).toArray()));
+        return new GeofenceGrid(graph, radiusMeters, cells);
+    }
+
+    public IntersectionGraph graph() {
+        return graph;
+    }
+
+    /**
+     * Konumu yaklaşım bölgesi içinde olan en yakın kavşak, yoksa -1
+     *
+     * @param x düzlemsel koordinat ({@link IntersectionGraph#projectX})
+     * @param y düzlemsel koordinat ({@link IntersectionGraph#projectY})
+     */
+    public int nearest(double x, double y) {
+        int[] candidates = cells.getOrDefault(packKey(cell(x, radiusMeters), cell(y, radiusMeters)), EMPTY);
+        int best = -1;
+        double bestDistance = radiusMeters;
+        for (int candidate : candidates) {
+            double distance = distanceMeters(candidate, x, y);
+            if (distance <= bestDistance) {
+                bestDistance = distance;
+                best = candidate;
+            }
+        }
+        return best;
+    }
+
+    public double distanceMeters(int index, double x, double y) {
+        return Math.hypot(x - graph.x(index), y - graph.y(index));
+    }
+
+    private static long cell(double coordinate, double cellSize) {
+        return (long) Math.floor(coordinate / cellSize);
+    }
+
+    private static long packKey(long cx, long cy) {
+        return (cx << 32) ^ (cy & 0xffffffffL);
+    }
+}
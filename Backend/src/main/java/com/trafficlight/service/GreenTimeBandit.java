@@ -0,0 +1,383 @@
+package com.trafficlight.service;
+
+import com.trafficlight.dto.BanditPolicyResponse;
+import com.trafficlight.entity.IntersectionMetric;
+import com.trafficlight.event.MetricRecordedEvent;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+import java.util.random.RandomGenerator;
+
+/**
+ * Kavşak bazlı çevrimiçi yeşil süre ayarı (contextual Thompson sampling).
+ *
+ * Bağlam: araç sayısı yoğunluk dilimi. Kollar: {-10, -5, 0, +5, +10} saniye.
+ * Ödül: -(ortalama bekleme + kuyruk ağırlığı x ortalama kuyruk), yani düşük
+ * bekleme ve kısa kuyruk = yüksek ödül. Her kol için ödül normal dağılımlı
+ * kabul edilir; varyans bağlamdaki tüm gözlemlerden havuzlanır.
+ *
+ * Durum kavşak başına üç küçük primitive dizidir. Karar anında sadece
+ * örnekleme yapılır; güncelleme metrik geldiğinde tek thread'li bir
+ * executor'da yapılır, böylece istek yolu bloklanmaz.
+ *
+ * Modlar:
+ * • OFF    - Sabit eşikler (25/40 araç → +5/+10s), öğrenme yok
+ * • SHADOW - Sabit eşikler uygulanır, bandit seçimi sadece loglanır ve öğrenilir
+ * • ACTIVE - Bandit seçimi uygulanır
+ */
+@Service
+@Slf4j
+public class GreenTimeBandit {
+
+    public enum Mode { OFF, SHADOW, ACTIVE }
+
+    static final int[] ARMS = {-10, -5, 0, 5, 10};
+    /** Dilim sınırları sabit eşiklerle (25/40) hizalı: bir dilimde sabit ayar hep aynıdır */
+    static final int[] DENSITY_UPPER_BOUNDS = {10, 26, 41, 60};
+    static final String[] DENSITY_LABELS = {"0-9", "10-25", "26-40", "41-59", "60+"};
+    static final int CONTEXTS = DENSITY_LABELS.length;
+
+    /** Veri yokken varsayılan ödül varyansı (saniye²) */
+    private static final double PRIOR_VARIANCE = 100.0;
+    private static final double MIN_VARIANCE = 1.0;
+    private static final int CONFIDENCE_DRAWS = 1000;
+
+    private final Map<Long, IntersectionPolicy> policies = new ConcurrentHashMap<>();
+    private final Map<Long, PendingDecision> pending = new ConcurrentHashMap<>();
+    private final AtomicLong updateCount = new AtomicLong();
+    private final ExecutorService updater = Executors.newSingleThreadExecutor(r -> {
+        Thread thread = new Thread(r, "bandit-updater");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private final double queueWeight;
+    private final long maxDecisionAgeMillis;
+    private final Supplier<RandomGenerator> random;
+    private volatile Mode mode;
+
+    @Autowired
+    public GreenTimeBandit(
+            @Value("${traffic.bandit.mode:SHADOW}") Mode mode,
+            @Value("${traffic.bandit.queue-weight:2.0}") double queueWeight,
+            @Value("${traffic.bandit.max-decision-age-minutes:90}") long maxDecisionAgeMinutes) {
+        this(mode, queueWeight, maxDecisionAgeMinutes, ThreadLocalRandom::current);
+    }
+
+    /**
+     * Testler için: örnekleme sabit tohumlu bir üreteçle tekrarlanabilir olur
+     */
+    GreenTimeBandit(Mode mode, double queueWeight, long maxDecisionAgeMinutes, Supplier<RandomGenerator> random) {
+        this.mode = mode;
+        this.queueWeight = queueWeight;
+        this.maxDecisionAgeMillis = maxDecisionAgeMinutes * 60_000L;
+        this.random = random;
+    }
+
+    /**
+     * Dinamik yeşil süre ayarını seç.
+     *
+     * @param intersectionId    kavşak
+     * @param vehicleCount      anlık araç sayısı
+     * @param legacyAdjustment  sabit eşiklerin önerdiği ayar (0, +5, +10)
+     * @return uygulanacak ayar (saniye)
+     */
+    public int selectAdjustment(Long intersectionId, int vehicleCount, int legacyAdjustment) {
+        Mode current = mode;
+        if (current == Mode.OFF || intersectionId == null) {
+            return legacyAdjustment;
+        }
+
+        int context = contextOf(vehicleCount);
+        IntersectionPolicy policy = policies.computeIfAbsent(intersectionId, id -> new IntersectionPolicy());
+        int sampledArm = policy.sample(context, random.get());
+
+        int appliedArm;
+        if (current == Mode.ACTIVE) {
+            appliedArm = sampledArm;
+        } else {
+            appliedArm = armOf(legacyAdjustment);
+            if (sampledArm != appliedArm) {
+                log.debug("🎰 [SHADOW] Kavşak {}: bandit {}s seçerdi, uygulanan {}s ({} araç)",
+                        intersectionId, signed(ARMS[sampledArm]), signed(legacyAdjustment), vehicleCount);
+            }
+        }
+
+        // Sadece gerçekten uygulanan kol ödüllendirilebilir
+        if (appliedArm >= 0) {
+            pending.put(intersectionId, new PendingDecision(context, appliedArm, System.currentTimeMillis()));
+        }
+        return appliedArm >= 0 ? ARMS[appliedArm] : legacyAdjustment;
+    }
+
+    /**
+     * Yeni metrik kaydedildiğinde bekleyen kararı ödüllendir
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onMetricRecorded(MetricRecordedEvent event) {
+        if (mode == Mode.OFF) {
+            return;
+        }
+        IntersectionMetric metric = event.metric();
+        if (metric.getAverageWaitTime() == null) {
+            return;
+        }
+        PendingDecision decision = pending.remove(event.intersectionId());
+        if (decision == null
+                || System.currentTimeMillis() - decision.decidedAtMillis() > maxDecisionAgeMillis) {
+            return;
+        }
+
+        double wait = metric.getAverageWaitTime().doubleValue();
+        double queue = metric.getAverageQueueLength() != null ? metric.getAverageQueueLength().doubleValue() : 0.0;
+        double reward = -(wait + queueWeight * queue);
+
+        updater.execute(() -> {
+            policies.computeIfAbsent(event.intersectionId(), id -> new IntersectionPolicy())
+                    .update(decision.context(), decision.arm(), reward);
+            updateCount.incrementAndGet();
+        });
+    }
+
+    public Mode getMode() {
+        return mode;
+    }
+
+    public void setMode(Mode mode) {
+        log.info("🎰 Bandit modu değişti: {} → {}", this.mode, mode);
+        this.mode = mode;
+    }
+
+    /**
+     * Kavşağın öğrenilmiş durumunu sıfırla
+     */
+    public boolean reset(Long intersectionId) {
+        pending.remove(intersectionId);
+        return policies.remove(intersectionId) != null;
+    }
+
+    public Set<Long> getTrackedIntersections() {
+        return policies.keySet();
+    }
+
+    /**
+     * Politika ve güven bilgisi (admin ekranı için)
+     */
+    public BanditPolicyResponse describe(Long intersectionId) {
+        IntersectionPolicy policy = policies.get(intersectionId);
+        List<BanditPolicyResponse.ContextPolicy> contexts = new ArrayList<>();
+        for (int c = 0; c < CONTEXTS; c++) {
+            contexts.add(policy != null ? policy.describe(c, random.get()) : IntersectionPolicy.empty(c));
+        }
+        return BanditPolicyResponse.builder()
+                .intersectionId(intersectionId)
+                .mode(mode.name())
+                .arms(ARMS.clone())
+                .contexts(contexts)
+                .pendingDecision(pending.containsKey(intersectionId))
+                .totalUpdates(updateCount.get())
+                .generatedAt(LocalDateTime.now())
+                .build();
+    }
+
+    static int contextOf(int vehicleCount) {
+        for (int i = 0; i < DENSITY_UPPER_BOUNDS.length; i++) {
+            if (vehicleCount < DENSITY_UPPER_BOUNDS[i]) {
+                return i;
+            }
+        }
+        return DENSITY_UPPER_BOUNDS.length;
+    }
+
+    static int armOf(int adjustment) {
+        for (int i = 0; i < ARMS.length; i++) {
+            if (ARMS[i] == adjustment) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static String signed(int value) {
+        return (value >= 0 ? "+" : "") + value;
+    }
+
+    /**
+     * Kuyruktaki ödül güncellemelerinin bitmesini bekle (testler ve kapanış için)
+     */
+    boolean awaitUpdates(Duration timeout) throws InterruptedException {
+        try {
+            updater.submit(() -> { }).get(timeout.toMillis(), TimeUnit.MILLISECONDS);
+            return true;
+        } catch (ExecutionException | TimeoutException e) {
+            return false;
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        updater.shutdown();
+    }
+
+    private record PendingDecision(int context, int arm, long decidedAtMillis) {
+    }
+
+    /**
+     * Tek kavşağın bandit durumu: bağlam x kol başına gözlem sayısı,
+     * ödül toplamı ve kareler toplamı.
+     */
+    static final class IntersectionPolicy {
+
+        private final int[] pulls = new int[CONTEXTS * ARMS.length];
+        private final double[] sum = new double[CONTEXTS * ARMS.length];
+        private final double[] sumSq = new double[CONTEXTS * ARMS.length];
+
+        synchronized int sample(int context, RandomGenerator random) {
+            double contextMean = contextMean(context);
+            double variance = contextVariance(context);
+
+            int best = 0;
+            double bestDraw = Double.NEGATIVE_INFINITY;
+            for (int a = 0; a < ARMS.length; a++) {
+                double draw = draw(context, a, contextMean, variance, random);
+                if (draw > bestDraw) {
+                    bestDraw = draw;
+                    best = a;
+                }
+            }
+            return best;
+        }
+
+        synchronized void update(int context, int arm, double reward) {
+            int idx = context * ARMS.length + arm;
+            pulls[idx]++;
+            sum[idx] += reward;
+            sumSq[idx] += reward * reward;
+        }
+
+        synchronized BanditPolicyResponse.ContextPolicy describe(int context, RandomGenerator random) {
+            double contextMean = contextMean(context);
+            double variance = contextVariance(context);
+
+            // Her kolun en iyi olma olasılığı: Monte Carlo Thompson çekilişleri
+            int[] wins = new int[ARMS.length];
+            for (int d = 0; d < CONFIDENCE_DRAWS; d++) {
+                int best = 0;
+                double bestDraw = Double.NEGATIVE_INFINITY;
+                for (int a = 0; a < ARMS.length; a++) {
+                    double draw = draw(context, a, contextMean, variance, random);
+                    if (draw > bestDraw) {
+                        bestDraw = draw;
+                        best = a;
+                    }
+                }
+                wins[best]++;
+            }
+
+            List<BanditPolicyResponse.ArmStats> arms = new ArrayList<>();
+            int recommended = 0;
+            long observations = 0;
+            for (int a = 0; a < ARMS.length; a++) {
+                int idx = context * ARMS.length + a;
+                observations += pulls[idx];
+                if (wins[a] > wins[recommended]) {
+                    recommended = a;
+                }
+                arms.add(BanditPolicyResponse.ArmStats.builder()
+                        .adjustment(ARMS[a])
+                        .pulls(pulls[idx])
+                        .meanReward(pulls[idx] > 0 ? round(sum[idx] / pulls[idx]) : null)
+                        .confidenceInterval(pulls[idx] > 0 ? round(1.96 * Math.sqrt(variance / pulls[idx])) : null)
+                        .probabilityBest(round((double) wins[a] / CONFIDENCE_DRAWS))
+                        .build());
+            }
+
+            return BanditPolicyResponse.ContextPolicy.builder()
+                    .densityBucket(DENSITY_LABELS[context])
+                    .observations(observations)
+                    .recommendedAdjustment(ARMS[recommended])
+                    .confidence(round((double) wins[recommended] / CONFIDENCE_DRAWS))
+                    .arms(arms)
+                    .build();
+        }
+
+        static BanditPolicyResponse.ContextPolicy empty(int context) {
+            List<BanditPolicyResponse.ArmStats> arms = new ArrayList<>();
+            for (int arm : ARMS) {
+                arms.add(BanditPolicyResponse.ArmStats.builder()
+                        .adjustment(arm)
+                        .pulls(0)
+                        .probabilityBest(round(1.0 / ARMS.length))
+                        .build());
+            }
+            return BanditPolicyResponse.ContextPolicy.builder()
+                    .densityBucket(DENSITY_LABELS[context])
+                    .observations(0L)
+                    .recommendedAdjustment(0)
+                    .confidence(round(1.0 / ARMS.length))
+                    .arms(arms)
+                    .build();
+        }
+
+        /**
+         * Posterior örneği: N(kol ortalaması, varyans / (n + 1)).
+         * Hiç gözlenmemiş kol bağlam ortalamasından başlar.
+         */
+        private double draw(int context, int arm, double contextMean, double variance, RandomGenerator random) {
+            int idx = context * ARMS.length + arm;
+            int n = pulls[idx];
+            double mean = (sum[idx] + contextMean) / (n + 1);
+            return mean + random.nextGaussian() * Math.sqrt(variance / (n + 1));
+        }
+
+        private double contextMean(int context) {
+            long n = 0;
+            double total = 0;
+            for (int a = 0; a < ARMS.length; a++) {
+                n += pulls[context * ARMS.length + a];
+                total += sum[context * ARMS.length + a];
+            }
+            return n > 0 ? total / n : 0.0;
+        }
+
+        private double contextVariance(int context) {
+            long n = 0;
+            double total = 0;
+            double totalSq = 0;
+            for (int a = 0; a < ARMS.length; a++) {
+                int idx = context * ARMS.length + a;
+                n += pulls[idx];
+                total += sum[idx];
+                totalSq += sumSq[idx];
+            }
+            if (n < 2) {
+                return PRIOR_VARIANCE;
+            }
+            double mean = total / n;
+            return Math.max(MIN_VARIANCE, (totalSq - n * mean * mean) / (n - 1));
+        }
+
+        private static double round(double value) {
+            return Math.round(value * 1000.0) / 1000.0;
+        }
+    }
+}
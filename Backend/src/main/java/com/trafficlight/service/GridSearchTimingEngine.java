@@ -0,0 +1,82 @@
+package com.trafficlight.service;
+
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+/**
+ * Tam ızgara taraması yapan varsayılan optimizasyon motoru.
+ *
+ * Her döngü süresi bağımsız bir iş parçası olarak ayrılmış bir ForkJoinPool
+ * üzerinde paralel değerlendirilir; böylece ortak havuz (common pool)
+ * web isteklerinin diğer paralel işleriyle paylaşılmaz.
+ */
+@Component
+@Slf4j
+public class GridSearchTimingEngine implements TimingOptimizationEngine {
+
+    public static final String NAME = "grid-search";
+
+    private final ForkJoinPool pool;
+
+    public GridSearchTimingEngine(
+            @Value("${traffic.optimization.parallelism:0}") int parallelism) {
+        int threads = parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors();
+        this.pool = new ForkJoinPool(threads);
+        log.info("⚙️ Grid search motoru başlatıldı - Paralellik: {}", threads);
+    }
+
+    @Override
+    public String getName() {
+        return NAME;
+    }
+
+    @Override
+    public List<TimingCandidate> evaluate(TrafficSurrogateModel model, TimingSearchSpace space) {
+        try {
+            return pool.submit(() -> IntStream.range(0, space.cycleCount())
+                    .parallel()
+                    .mapToObj(i -> evaluateCycle(model, space, space.cycleAt(i)))
+                    .flatMap(List::stream)
+                    .collect(Collectors.toList()))
+                    .get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Optimizasyon kesintiye uğradı", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Optimizasyon başarısız: " + e.getCause().getMessage(), e.getCause());
+        }
+    }
+
+    /**
+     * Tek bir döngü süresi için tüm geçerli ana/tali yeşil bölüşümleri
+     */
+    private List<TimingCandidate> evaluateCycle(TrafficSurrogateModel model, TimingSearchSpace space, int cycle) {
+        int effectiveGreen = cycle - space.lostTimePerCycle();
+        List<TimingCandidate> candidates = new ArrayList<>();
+        for (int main = space.minGreen(); main <= space.maxGreen(); main += space.greenStep()) {
+            int cross = effectiveGreen - main;
+            if (cross < space.minGreen()) {
+                break;
+            }
+            if (cross > space.maxGreen()) {
+                continue;
+            }
+            candidates.add(model.evaluate(cycle, main, cross));
+        }
+        return candidates;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        pool.shutdown();
+    }
+}
@@ -0,0 +1,213 @@
+package com.trafficlight.service;
+
+import com.trafficlight.entity.EmergencyVehicle;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Kavşakların değişmez mekânsal indeksi ve yaklaşık yol komşuluğu.
+ *
+ * Koordinatlar şehir ölçeğinde düzlemsel metreye çevrilir ve düzgün bir
+ * ızgaraya (hücre = en uzun bağlantı mesafesi) yerleştirilir. Yol ağı verisi
+ * olmadığı için her kavşağın dört ana yöndeki komşusu, o yönün ±45°'lik
+ * konisindeki en yakın kavşak olarak bir kez hesaplanır; rota takibi bu
+ * dizilerden O(1) okunur.
+ */
+public final class IntersectionGraph {
+
+    private static final double METERS_PER_DEGREE_LAT = 110_540.0;
+    private static final double METERS_PER_DEGREE_LON = 111_320.0;
+    private static final double MIN_COS = Math.cos(Math.toRadians(45));
+    private static final EmergencyVehicle.Direction[] DIRECTIONS = EmergencyVehicle.Direction.values();
+
+    private final long[] ids;
+    private final String[] names;
+    private final boolean[] active;
+    private final double[] x;
+    private final double[] y;
+    /** boylam → metre çarpanı (düğümlerin ortalama enlemine göre) */
+    private final double lonScale;
+    /** neighbors[direction.ordinal()][node] → komşu düğüm, yoksa -1 */
+    private final int[][] neighbors;
+    private final Map<Long, Integer> indexById;
+
+    private IntersectionGraph(long[] ids, String[] names, boolean[] active, double[] x, double[] y,
+                              double lonScale, int[][] neighbors, Map<Long, Integer> indexById) {
+        this.ids = ids;
+        this.names = names;
+        this.active = active;
+        this.x = x;
+        this.y = y;
+        this.lonScale = lonScale;
+        this.neighbors = neighbors;
+        this.indexById = indexById;
+    }
+
+    /**
+     * İndeksteki kavşak
+     *
+     * @param active sinyali yönetilebilir mi? (bakımdaki kavşaklar rotada kalır ama ön yeşil almaz)
+     */
+    public record Node(long id, String name, double latitude, double longitude, boolean active) {
+    }
+
+    public static IntersectionGraph build(List<Node> nodes, double maxLinkMeters) {
+        int n = nodes.size();
+        long[] ids = new long[n];
+        String[] names = new String[n];
+        boolean[] active = new boolean[n];
+        double[] x = new double[n];
+        double[] y = new double[n];
+        Map<Long, Integer> indexById = new HashMap<>(n * 2);
+
+        double meanLat = nodes.stream().mapToDouble(Node::latitude).average().orElse(0);
+        double lonScale = METERS_PER_DEGREE_LON * Math.cos(Math.toRadians(meanLat));
+        for (int i = 0; i < n; i++) {
+            Node node = nodes.get(i);
+            ids[i] = node.id();
+            names[i] = node.name();
+            active[i] = node.active();
+            x[i] = node.longitude() * lonScale;
+            y[i] = node.latitude() * METERS_PER_DEGREE_LAT;
+            indexById.put(node.id(), i);
+        }
+
+        // Izgara: hücre başına düğüm listesi
+        Map<Long, List<Integer>> grid = new HashMap<>();
+        for (int i = 0; i < n; i++) {
+            grid.computeIfAbsent(cellKey(x[i], y[i], maxLinkMeters), k -> new ArrayList<>()).add(i);
+        }
+        Map<Long, int[]> cells = new HashMap<>(grid.size() * 2);
+        grid.forEach((key, members) -> cells.put(key, members.stream().mapToInt(Integer::intValue).toArray()));
+
+        int[][] neighbors = new int[DIRECTIONS.length][n];
+        for (int i = 0; i < n; i++) {
+            long cx = (long) Math.floor(x[i] / maxLinkMeters);
+            long cy = (long) Math.floor(y[i] / maxLinkMeters);
+            double[] bestScore = new double[DIRECTIONS.length];
+            int[] best = new int[DIRECTIONS.length];
+            Arrays.fill(best, -1);
+            Arrays.fill(bestScore, Double.MAX_VALUE);
+
+            for (long dx = -1; dx <= 1; dx++) {
+                for (long dy = -1; dy <= 1; dy++) {
+                    int[] members = cells.get(packKey(cx + dx, cy + dy));
+                    if (members == null) {
+                        continue;
+                    }
+                    for (int j : members) {
+                        if (j == i) {
+                            continue;
+                        }
+                        double ex = x[j] - x[i];
+                        double ey = y[j] - y[i];
+                        double dist = Math.hypot(ex, ey);
+                        if (dist == 0 || dist > maxLinkMeters) {
+                            continue;
+                        }
+                        for (EmergencyVehicle.Direction direction : DIRECTIONS) {
+                            double cos = (ex * unitX(direction) + ey * unitY(direction)) / dist;
+                            if (cos < MIN_COS) {
+                                continue;
+                            }
+                            // Düz devam eden bağlantılar tercih edilir
+                            double score = dist / cos;
+                            int d = direction.ordinal();
+                            if (score < bestScore[d]) {
+                                bestScore[d] = score;
+                                best[d] = j;
+                            }
+                        }
+                    }
+                }
+            }
+            for (int d = 0; d < DIRECTIONS.length; d++) {
+                neighbors[d][i] = best[d];
+            }
+        }
+
+        return new IntersectionGraph(ids, names, active, x, y, lonScale, neighbors, indexById);
+    }
+
+    public int size() {
+        return ids.length;
+    }
+
+    /**
+     * Kavşak ID'sinin indeksi, yoksa -1
+     */
+    public int indexOf(long intersectionId) {
+        Integer index = indexById.get(intersectionId);
+        return index != null ? index : -1;
+    }
+
+    public long id(int index) {
+        return ids[index];
+    }
+
+    public String name(int index) {
+        return names[index];
+    }
+
+    public boolean isActive(int index) {
+        return active[index];
+    }
+
+    /**
+     * Verilen yönde bir sonraki kavşak, yoksa -1
+     */
+    public int next(int index, EmergencyVehicle.Direction heading) {
+        return neighbors[heading.ordinal()][index];
+    }
+
+    public double distanceMeters(int from, int to) {
+        return Math.hypot(x[to] - x[from], y[to] - y[from]);
+    }
+
+    /**
+     * Düzlemsel koordinat (metre); GPS konumları aynı izdüşümle karşılaştırılır
+     */
+    public double x(int index) {
+        return x[index];
+    }
+
+    public double y(int index) {
+        return y[index];
+    }
+
+    public double projectX(double longitude) {
+        return longitude * lonScale;
+    }
+
+    public double projectY(double latitude) {
+        return latitude * METERS_PER_DEGREE_LAT;
+    }
+
+    static double unitX(EmergencyVehicle.Direction direction) {
+        return switch (direction) {
+            case EAST -> 1;
+            case WEST -> -1;
+            default -> 0;
+        };
+    }
+
+    static double unitY(EmergencyVehicle.Direction direction) {
+        return switch (direction) {
+            case NORTH -> 1;
+            case SOUTH -> -1;
+            default -> 0;
+        };
+    }
+
+    private static long cellKey(double x, double y, double cellSize) {
+        return packKey((long) Math.floor(x / cellSize), (long) Math.floor(y / cellSize));
+    }
+
+    private static long packKey(long cx, long cy) {
+        return (cx << 32) ^ (cy & 0xffffffffL);
+    }
+}
@@ -1,5 +1,6 @@
 package com.trafficlight.service;
 
+import com.trafficlight.dto.CursorPage;
 import com.trafficlight.dto.IntersectionRequest;
 import com.trafficlight.dto.IntersectionResponse;
 import com.trafficlight.entity.Intersection;
@@ -9,16 +10,23 @@ import com.trafficlight.exception.BadRequestException;
 import com.trafficlight.exception.DuplicateResourceException;
 import com.trafficlight.exception.ResourceNotFoundException;
 import com.trafficlight.repository.IntersectionRepository;
+import com.trafficlight.util.CursorCodec;
+import com.trafficlight.util.PlannerRowEstimator;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
 /**
@@ -33,7 +41,15 @@ import java.util.stream.Collectors;
 @Transactional(readOnly = true)
 public class IntersectionService {
 
+    public static final int DEFAULT_PAGE_SIZE = 50;
+    public static final int MAX_PAGE_SIZE = 500;
+    public static final String SORT_ID = "id";
+    public static final String SORT_UPDATED_AT = "updatedAt";
+
+    private static final LocalDateTime NEWEST = LocalDateTime.of(9999, 12, 31, 23, 59, 59);
+
     private final IntersectionRepository intersectionRepository;
+    private final PlannerRowEstimator rowEstimator;
 
     // ==========================================
     // CRUD Operations (HAFTA 3)
@@ -237,6 +253,71 @@ public class IntersectionService {
         return getAllIntersections(pageable);
     }
 
+    /**
+     * Filter with keyset pagination
+     * GET /intersections/cursor?city=Istanbul&status=ACTIVE&sort=updatedAt&cursor=...&size=50
+     *
+     * Each page continues after the last returned key (id, or updatedAt + id),
+     * so deep pages cost the same as the first and no COUNT query is run.
+     *
+     * @param sort          "id" (ascending, default) or "updatedAt" (most recently updated first)
+     * @param cursor        nextCursor of the previous page, null for the first page
+     * @param size          Page size (default 50, max 500)
+     * @param estimateTotal Add the planner's row estimate (PostgreSQL only)
+     * @throws BadRequestException for an unknown sort, bad size or a cursor of another sort
+     */
+    public CursorPage<IntersectionResponse> getIntersectionsPage(
+            String city,
+            IntersectionStatus status,
+            String sort,
+            String cursor,
+            Integer size,
+            boolean estimateTotal) {
+
+        log.info("Finding intersections by city: {}, status: {} with keyset pagination, sort: {}", city, status, sort);
+
+        int limit = pageSize(size);
+        PageRequest fetch = PageRequest.of(0, limit + 1);
+        List<Intersection> rows;
+        boolean byUpdatedAt;
+        if (sort == null || SORT_ID.equals(sort)) {
+            byUpdatedAt = false;
+            long afterId = Long.MIN_VALUE;
+            if (cursor != null && !cursor.isBlank()) {
+                afterId = parseCursor(cursor, 1, parts -> Long.parseLong(parts[0]));
+            }
+            rows = intersectionRepository.findKeysetPageById(city, status, afterId, fetch);
+        } else if (SORT_UPDATED_AT.equals(sort)) {
+            byUpdatedAt = true;
+            LocalDateTime updatedAt = NEWEST;
+            long id = Long.MAX_VALUE;
+            if (cursor != null && !cursor.isBlank()) {
+                updatedAt = parseCursor(cursor, 2, parts -> LocalDateTime.parse(parts[0]));
+                id = parseCursor(cursor, 2, parts -> Long.parseLong(parts[1]));
+            }
+            rows = intersectionRepository.findKeysetPageByUpdatedAt(city, status, updatedAt, id, fetch);
+        } else {
+            throw new BadRequestException("Sort must be '" + SORT_ID + "' or '" + SORT_UPDATED_AT + "': " + sort);
+        }
+
+        boolean hasMore = rows.size() > limit;
+        List<Intersection> items = hasMore ? rows.subList(0, limit) : rows;
+        String nextCursor = null;
+        if (hasMore) {
+            Intersection last = items.get(items.size() - 1);
+            nextCursor = byUpdatedAt
+                ? CursorCodec.encode(last.getUpdatedAt(), last.getId())
+                : CursorCodec.encode(last.getId());
+        }
+        return CursorPage.<IntersectionResponse>builder()
+            .items(items.stream().map(IntersectionResponse::fromEntity).toList())
+            .nextCursor(nextCursor)
+            .hasMore(hasMore)
+            .size(limit)
+            .estimatedTotal(estimateTotal ? estimateCount(city, status) : null)
+            .build();
+    }
+
     // ==========================================
     // Custom Business Logic
     // ==========================================
@@ -294,4 +375,45 @@ public class IntersectionService {
                 row -> (Long) row[1]
             ));
     }
+
+    // ==========================================
+    // Keyset pagination helpers
+    // ==========================================
+
+    private Long estimateCount(String city, IntersectionStatus status) {
+        List<String> conditions = new ArrayList<>();
+        List<Object> args = new ArrayList<>();
+        if (city != null) {
+            conditions.add("city = ?");
+            args.add(city);
+        }
+        if (status != null) {
+            conditions.add("status = ?");
+            args.add(status.name());
+        }
+        String where = conditions.isEmpty() ? "" : " WHERE " + String.join(" AND ", conditions);
+        return rowEstimator.estimate("SELECT 1 FROM intersections" + where, args.toArray());
+    }
+
+    private static int pageSize(Integer size) {
+        if (size == null) {
+            return DEFAULT_PAGE_SIZE;
+        }
+        if (size < 1 || size > MAX_PAGE_SIZE) {
+            throw new BadRequestException("Page size must be between 1 and " + MAX_PAGE_SIZE + ": " + size);
+        }
+        return size;
+    }
+
+    /**
+     * @param expectedParts Key count of the sort the cursor was issued for
+     */
+    private static <T> T parseCursor(String cursor, int expectedParts, Function<String[], T> parser) {
+        String[] parts = CursorCodec.decode(cursor, expectedParts);
+        try {
+            return parser.apply(parts);
+        } catch (DateTimeParseException | NumberFormatException e) {
+            throw new BadRequestException("Geçersiz sayfa imleci: " + cursor);
+        }
+    }
 }
@@ -0,0 +1,81 @@
+package com.trafficlight.service;
+
+import com.trafficlight.entity.Intersection;
+import com.trafficlight.repository.IntersectionRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Kavşak konumlarının bellekteki indeksi.
+ *
+ * Acil durum planlaması her istekte findNearby SQL'i çalıştırmak yerine
+ * {@link IntersectionGraph} üzerinden okur. Grafik periyodik olarak yeniden
+ * kurulur ve tek bir volatile referans değişimiyle yayınlanır.
+ */
+@Component
+@Slf4j
+public class IntersectionSpatialIndex {
+
+    private final IntersectionRepository intersectionRepository;
+    private final double maxLinkMeters;
+
+    private volatile IntersectionGraph graph;
+
+    public IntersectionSpatialIndex(
+            IntersectionRepository intersectionRepository,
+            @Value("${traffic.emergency.max-link-meters:1500}") double maxLinkMeters) {
+        this.intersectionRepository = intersectionRepository;
+        this.maxLinkMeters = maxLinkMeters;
+    }
+
+    /**
+     * Güncel grafik (ilk çağrıda kurulur)
+     */
+    public IntersectionGraph current() {
+        IntersectionGraph current = graph;
+        if (current == null) {
+            current = rebuild();
+        }
+        return current;
+    }
+
+    /**
+     * Kavşak ekleme/taşıma değişikliklerini al
+     */
+    @Scheduled(fixedDelayString = "${traffic.emergency.index-refresh-ms:60000}",
+               initialDelayString = "${traffic.emergency.index-refresh-ms:60000}")
+    public void refresh() {
+        rebuild();
+    }
+
+    public synchronized IntersectionGraph rebuild() {
+        long start = System.nanoTime();
+        List<Object[]> rows = intersectionRepository.findAllLocations();
+        List<IntersectionGraph.Node> nodes = new ArrayList<>(rows.size());
+        for (Object[] row : rows) {
+            BigDecimal latitude = (BigDecimal) row[2];
+            BigDecimal longitude = (BigDecimal) row[3];
+            if (latitude == null || longitude == null) {
+                continue;
+            }
+            nodes.add(new IntersectionGraph.Node(
+                    (Long) row[0],
+                    (String) row[1],
+                    latitude.doubleValue(),
+                    longitude.doubleValue(),
+                    row[4] == Intersection.IntersectionStatus.ACTIVE));
+        }
+
+        IntersectionGraph built = IntersectionGraph.build(nodes, maxLinkMeters);
+        graph = built;
+        log.debug("🗺️ Kavşak indeksi kuruldu - {} kavşak, {} ms",
+                built.size(), (System.nanoTime() - start) / 1_000_000);
+        return built;
+    }
+}
@@ -1,10 +1,11 @@
 package com.trafficlight.service;
 
+import com.trafficlight.dto.IntersectionMapPoint;
+import com.trafficlight.dto.IntersectionRollup;
 import com.trafficlight.entity.Intersection;
 import com.trafficlight.entity.Intersection.IntersectionStatus;
-import com.trafficlight.entity.IntersectionMetric;
 import com.trafficlight.exception.ResourceNotFoundException;
-import com.trafficlight.repository.IntersectionMetricRepository;
+import com.trafficlight.repository.DailyIntersectionRollupRepository;
 import com.trafficlight.repository.IntersectionRepository;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
@@ -18,6 +19,9 @@ import java.util.stream.Collectors;
 /**
  * HAFTA 6 - Map Service
  * Business logic for map-related operations
+ *
+ * Markers are built from IntersectionMapPoint projections, so map endpoints read
+ * only the columns they show and never load intersection entities.
  */
 @Service
 @RequiredArgsConstructor
@@ -25,23 +29,23 @@ import java.util.stream.Collectors;
 public class MapService {
 
     private final IntersectionRepository intersectionRepository;
-    private final IntersectionMetricRepository metricRepository;
+    private final DailyIntersectionRollupRepository rollupRepository;
 
     /**
      * Get all intersections for map display
      */
     public List<Map<String, Object>> getAllIntersectionsForMap(String status) {
-        List<Intersection> intersections;
+        List<IntersectionMapPoint> intersections;
         
         if (status != null && !status.isEmpty()) {
             try {
                 IntersectionStatus statusEnum = IntersectionStatus.valueOf(status.toUpperCase());
-                intersections = intersectionRepository.findByStatus(statusEnum);
+                intersections = intersectionRepository.findMapPointsByStatus(statusEnum);
             } catch (IllegalArgumentException e) {
-                intersections = intersectionRepository.findAll();
+                intersections = intersectionRepository.findMapPoints();
             }
         } else {
-            intersections = intersectionRepository.findAll();
+            intersections = intersectionRepository.findMapPoints();
         }
         
         return intersections.stream()
@@ -55,15 +59,7 @@ public class MapService {
     public List<Map<String, Object>> getIntersectionsInBounds(
             BigDecimal minLat, BigDecimal maxLat, BigDecimal minLng, BigDecimal maxLng) {
         
-        List<Intersection> allIntersections = intersectionRepository.findAll();
-        
-        return allIntersections.stream()
-            .filter(i -> {
-                BigDecimal lat = i.getLatitude();
-                BigDecimal lng = i.getLongitude();
-                return lat.compareTo(minLat) >= 0 && lat.compareTo(maxLat) <= 0 &&
-                       lng.compareTo(minLng) >= 0 && lng.compareTo(maxLng) <= 0;
-            })
+        return intersectionRepository.findMapPointsInBounds(minLat, maxLat, minLng, maxLng).stream()
             .map(this::convertToMapData)
             .collect(Collectors.toList());
     }
@@ -74,7 +70,7 @@ public class MapService {
     public Map<String, Object> getClusteringData(int zoom) {
         Map<String, Object> clusterData = new HashMap<>();
         
-        List<Intersection> allIntersections = intersectionRepository.findAll();
+        List<IntersectionMapPoint> allIntersections = intersectionRepository.findMapPoints();
         
         // Simple clustering based on zoom level
         // Higher zoom = more detail, lower zoom = more clustering
@@ -94,7 +90,7 @@ public class MapService {
      * Get intersections for specific city
      */
     public Map<String, Object> getCityIntersections(String city) {
-        List<Intersection> cityIntersections = intersectionRepository.findByCity(city);
+        List<IntersectionMapPoint> cityIntersections = intersectionRepository.findMapPointsByCity(city);
         
         Map<String, Object> cityData = new HashMap<>();
         cityData.put("city", city);
@@ -106,16 +102,16 @@ public class MapService {
         // Calculate city bounds
         if (!cityIntersections.isEmpty()) {
             BigDecimal minLat = cityIntersections.stream()
-                .map(Intersection::getLatitude)
+                .map(IntersectionMapPoint::latitude)
                 .min(BigDecimal::compareTo).orElse(BigDecimal.ZERO);
             BigDecimal maxLat = cityIntersections.stream()
-                .map(Intersection::getLatitude)
+                .map(IntersectionMapPoint::latitude)
                 .max(BigDecimal::compareTo).orElse(BigDecimal.ZERO);
             BigDecimal minLng = cityIntersections.stream()
-                .map(Intersection::getLongitude)
+                .map(IntersectionMapPoint::longitude)
                 .min(BigDecimal::compareTo).orElse(BigDecimal.ZERO);
             BigDecimal maxLng = cityIntersections.stream()
-                .map(Intersection::getLongitude)
+                .map(IntersectionMapPoint::longitude)
                 .max(BigDecimal::compareTo).orElse(BigDecimal.ZERO);
             
             Map<String, Object> bounds = new HashMap<>();
@@ -151,6 +147,7 @@ public class MapService {
         // Remove the intersection itself from results
         return nearby.stream()
             .filter(i -> !i.getId().equals(id))
+            .map(IntersectionMapPoint::fromEntity)
             .map(this::convertToMapData)
             .collect(Collectors.toList());
     }
@@ -178,6 +175,7 @@ public class MapService {
         }
         
         return routeIntersections.stream()
+            .map(IntersectionMapPoint::fromEntity)
             .map(this::convertToMapData)
             .collect(Collectors.toList());
     }
@@ -191,26 +189,23 @@ public class MapService {
         LocalDate endDate = LocalDate.now();
         LocalDate startDate = endDate.minusDays(days);
         
-        List<Intersection> intersections;
-        if (city != null && !city.isEmpty()) {
-            intersections = intersectionRepository.findByCity(city);
-        } else {
-            intersections = intersectionRepository.findAll();
-        }
+        // Per-intersection totals from the daily rollups in one query
+        List<IntersectionRollup> rollups = city != null && !city.isEmpty()
+            ? rollupRepository.getIntersectionRollupsByCity(city, startDate, endDate)
+            : rollupRepository.getIntersectionRollups(startDate, endDate);
         
         List<Map<String, Object>> heatmapPoints = new ArrayList<>();
         
-        for (Intersection intersection : intersections) {
-            Long totalVehicles = metricRepository.getTotalVehicleCount(
-                intersection.getId(), startDate, endDate);
+        for (IntersectionRollup rollup : rollups) {
+            Long totalVehicles = rollup.totalVehicles();
             
             if (totalVehicles != null && totalVehicles > 0) {
                 Map<String, Object> point = new HashMap<>();
-                point.put("lat", intersection.getLatitude());
-                point.put("lng", intersection.getLongitude());
+                point.put("lat", rollup.latitude());
+                point.put("lng", rollup.longitude());
                 point.put("intensity", totalVehicles);
-                point.put("intersectionId", intersection.getId());
-                point.put("intersectionName", intersection.getName());
+                point.put("intersectionId", rollup.intersectionId());
+                point.put("intersectionName", rollup.name());
                 
                 heatmapPoints.add(point);
             }
@@ -228,11 +223,11 @@ public class MapService {
      * Get GeoJSON format data
      */
     public Map<String, Object> getGeoJsonData(String city) {
-        List<Intersection> intersections;
+        List<IntersectionMapPoint> intersections;
         if (city != null && !city.isEmpty()) {
-            intersections = intersectionRepository.findByCity(city);
+            intersections = intersectionRepository.findMapPointsByCity(city);
         } else {
-            intersections = intersectionRepository.findAll();
+            intersections = intersectionRepository.findMapPoints();
         }
         
         Map<String, Object> geoJson = new HashMap<>();
@@ -250,19 +245,19 @@ public class MapService {
     /**
      * Convert intersection to map data
      */
-    private Map<String, Object> convertToMapData(Intersection intersection) {
+    private Map<String, Object> convertToMapData(IntersectionMapPoint intersection) {
         Map<String, Object> mapData = new HashMap<>();
         
-        mapData.put("id", intersection.getId());
-        mapData.put("name", intersection.getName());
-        mapData.put("code", intersection.getCode());
-        mapData.put("lat", intersection.getLatitude());
-        mapData.put("lng", intersection.getLongitude());
-        mapData.put("city", intersection.getCity());
-        mapData.put("district", intersection.getDistrict());
-        mapData.put("address", intersection.getAddress());
-        mapData.put("type", intersection.getIntersectionType().name());
-        mapData.put("status", intersection.getStatus().name());
+        mapData.put("id", intersection.id());
+        mapData.put("name", intersection.name());
+        mapData.put("code", intersection.code());
+        mapData.put("lat", intersection.latitude());
+        mapData.put("lng", intersection.longitude());
+        mapData.put("city", intersection.city());
+        mapData.put("district", intersection.district());
+        mapData.put("address", intersection.address());
+        mapData.put("type", intersection.intersectionType().name());
+        mapData.put("status", intersection.status().name());
         
         // Add icon based on type and status
         mapData.put("icon", determineIcon(intersection));
@@ -274,7 +269,7 @@ public class MapService {
     /**
      * Convert intersection to GeoJSON feature
      */
-    private Map<String, Object> convertToGeoJsonFeature(Intersection intersection) {
+    private Map<String, Object> convertToGeoJsonFeature(IntersectionMapPoint intersection) {
         Map<String, Object> feature = new HashMap<>();
         feature.put("type", "Feature");
         
@@ -282,20 +277,20 @@ public class MapService {
         Map<String, Object> geometry = new HashMap<>();
         geometry.put("type", "Point");
         geometry.put("coordinates", Arrays.asList(
-            intersection.getLongitude(), 
-            intersection.getLatitude()
+            intersection.longitude(), 
+            intersection.latitude()
         ));
         feature.put("geometry", geometry);
         
         // Properties
         Map<String, Object> properties = new HashMap<>();
-        properties.put("id", intersection.getId());
-        properties.put("name", intersection.getName());
-        properties.put("code", intersection.getCode());
-        properties.put("city", intersection.getCity());
-        properties.put("district", intersection.getDistrict());
-        properties.put("type", intersection.getIntersectionType().name());
-        properties.put("status", intersection.getStatus().name());
+        properties.put("id", intersection.id());
+        properties.put("name", intersection.name());
+        properties.put("code", intersection.code());
+        properties.put("city", intersection.city());
+        properties.put("district", intersection.district());
+        properties.put("type", intersection.intersectionType().name());
+        properties.put("status", intersection.status().name());
         feature.put("properties", properties);
         
         return feature;
@@ -316,27 +311,28 @@ public class MapService {
 
     /**
      * Create clusters from intersections
+     * Neighbours are found in memory with the same great-circle distance as
+     * IntersectionRepository.findNearby, instead of one query per cluster.
      */
-    private List<Map<String, Object>> createClusters(List<Intersection> intersections, double radius) {
+    private List<Map<String, Object>> createClusters(List<IntersectionMapPoint> intersections, double radius) {
         List<Map<String, Object>> clusters = new ArrayList<>();
         Set<Long> processed = new HashSet<>();
         
-        for (Intersection intersection : intersections) {
-            if (processed.contains(intersection.getId())) {
+        for (IntersectionMapPoint intersection : intersections) {
+            if (processed.contains(intersection.id())) {
                 continue;
             }
             
-            // Find nearby intersections to cluster
-            List<Intersection> nearby = intersectionRepository.findNearby(
-                intersection.getLatitude(), 
-                intersection.getLongitude(), 
-                radius
-            );
+            // Find nearby intersections to cluster, closest first
+            List<IntersectionMapPoint> nearby = intersections.stream()
+                .filter(other -> distanceKm(intersection, other) <= radius)
+                .sorted(Comparator.comparingDouble(other -> distanceKm(intersection, other)))
+                .collect(Collectors.toList());
             
             // Create cluster
             Map<String, Object> cluster = new HashMap<>();
-            cluster.put("lat", intersection.getLatitude());
-            cluster.put("lng", intersection.getLongitude());
+            cluster.put("lat", intersection.latitude());
+            cluster.put("lng", intersection.longitude());
             cluster.put("count", nearby.size());
             
             if (nearby.size() == 1) {
@@ -354,17 +350,28 @@ public class MapService {
             clusters.add(cluster);
             
             // Mark all nearby intersections as processed
-            nearby.forEach(i -> processed.add(i.getId()));
+            nearby.forEach(i -> processed.add(i.id()));
         }
         
         return clusters;
     }
 
+    /**
+     * Great-circle distance in kilometers (spherical law of cosines, as in findNearby)
+     */
+    private static double distanceKm(IntersectionMapPoint from, IntersectionMapPoint to) {
+        double lat1 = Math.toRadians(from.latitude().doubleValue());
+        double lat2 = Math.toRadians(to.latitude().doubleValue());
+        double deltaLng = Math.toRadians(to.longitude().doubleValue() - from.longitude().doubleValue());
+        double cosine = Math.cos(lat1) * Math.cos(lat2) * Math.cos(deltaLng) + Math.sin(lat1) * Math.sin(lat2);
+        return 6371 * Math.acos(Math.min(1.0, Math.max(-1.0, cosine)));
+    }
+
     /**
      * Determine icon based on intersection type
      */
-    private String determineIcon(Intersection intersection) {
-        return switch (intersection.getIntersectionType()) {
+    private String determineIcon(IntersectionMapPoint intersection) {
+        return switch (intersection.intersectionType()) {
             case TRAFFIC_LIGHT -> "traffic-light";
             case ROUNDABOUT -> "roundabout";
             case CROSSROAD -> "crossroad";
@@ -375,8 +382,8 @@ public class MapService {
     /**
      * Determine color based on intersection status
      */
-    private String determineColor(Intersection intersection) {
-        return switch (intersection.getStatus()) {
+    private String determineColor(IntersectionMapPoint intersection) {
+        return switch (intersection.status()) {
             case ACTIVE -> "green";
             case MAINTENANCE -> "yellow";
             case INACTIVE -> "red";
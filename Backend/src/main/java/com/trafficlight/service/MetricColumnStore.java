@@ -0,0 +1,733 @@
+package com.trafficlight.service;
+
+import com.trafficlight.dto.MetricColumnRow;
+import com.trafficlight.event.MetricDeletedEvent;
+import com.trafficlight.event.MetricRecordedEvent;
+import com.trafficlight.exception.BadRequestException;
+import com.trafficlight.repository.IntersectionMetricRepository;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDate;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.stream.Stream;
+
+/**
+ * Metric Column Store
+ * In-memory columnar copy of intersection_metrics for analytics aggregations
+ *
+ * Rows are partitioned by measurement date. Each partition holds primitive columns
+ * (int[] counts, float[] wait time and throughput with NaN for missing values) and
+ * intersection ids dictionary-encoded to dense int codes, so grouping by intersection,
+ * city or hour accumulates into flat arrays instead of hash maps. Partitions are
+ * immutable once published: readers never lock, writers swap in a new partition map.
+ *
+ * The last retention-days are loaded at startup and kept current from metrics committed
+ * on this node; the most recent days are reloaded periodically to pick up writes from
+ * other nodes. Ranges before the resident window are loaded for the single query.
+ */
+@Service
+@Slf4j
+public class MetricColumnStore {
+
+    /** Aggregatable metric fields */
+    public enum Measure {
+        VEHICLES(false, 0),
+        ACCIDENTS(false, 1),
+        VIOLATIONS(false, 2),
+        WAIT_TIME(true, 0),
+        THROUGHPUT(true, 1);
+
+        private final boolean floating;
+        private final int column;
+
+        Measure(boolean floating, int column) {
+            this.floating = floating;
+            this.column = column;
+        }
+    }
+
+    public enum GroupBy { NONE, INTERSECTION, CITY, HOUR }
+
+    /**
+     * Count, sum, min and max over the non-missing values of one group
+     */
+    public record Aggregate(long count, double sum, double min, double max) {
+        public Double average() {
+            return count > 0 ? sum / count : null;
+        }
+    }
+
+    private final IntersectionMetricRepository metricRepository;
+    private final TransactionTemplate readTransaction;
+    private final ForkJoinPool scanPool;
+    private final int retentionDays;
+    private final int refreshDays;
+    private final int parallelThreshold;
+
+    private final Object writeLock = new Object();
+    private final Object dictionaryLock = new Object();
+    private final ConcurrentHashMap<Long, Integer> intersectionCodes = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<String, Integer> cityCodes = new ConcurrentHashMap<>();
+
+    private volatile NavigableMap<LocalDate, Partition> partitions = Collections.emptyNavigableMap();
+    private volatile Dictionary dictionary = Dictionary.EMPTY;
+    private volatile LocalDate windowStart; // null until the first load completes
+
+    /** Local writes committed while a reload is reading the database (guarded by writeLock) */
+    private List<Change> changesDuringLoad;
+
+    public MetricColumnStore(
+            IntersectionMetricRepository metricRepository,
+            PlatformTransactionManager transactionManager,
+            @Value("${traffic.metrics.columnar.retention-days:400}") int retentionDays,
+            @Value("${traffic.metrics.columnar.refresh-days:2}") int refreshDays,
+            @Value("${traffic.metrics.columnar.parallel-threshold:65536}") int parallelThreshold,
+            @Value("${traffic.metrics.columnar.parallelism:0}") int parallelism) {
+        this.metricRepository = metricRepository;
+        this.readTransaction = new TransactionTemplate(transactionManager);
+        this.readTransaction.setReadOnly(true);
+        this.scanPool = new ForkJoinPool(parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors());
+        this.retentionDays = retentionDays;
+        this.refreshDays = refreshDays;
+        this.parallelThreshold = parallelThreshold;
+    }
+
+    @PreDestroy
+    void shutdown() {
+        scanPool.shutdownNow();
+    }
+
+    // ==========================================
+    // Aggregations
+    // ==========================================
+
+    public Aggregate total(Measure measure, LocalDate startDate, LocalDate endDate) {
+        Scan scan = scan(measure, GroupBy.NONE, startDate, endDate);
+        return scan.accumulator.aggregate(0);
+    }
+
+    public Map<Long, Aggregate> byIntersection(Measure measure, LocalDate startDate, LocalDate endDate) {
+        Scan scan = scan(measure, GroupBy.INTERSECTION, startDate, endDate);
+        Map<Long, Aggregate> result = new TreeMap<>();
+        for (int code = 0; code < scan.accumulator.count.length; code++) {
+            if (scan.accumulator.count[code] > 0) {
+                result.put(scan.dictionary.ids[code], scan.accumulator.aggregate(code));
+            }
+        }
+        return result;
+    }
+
+    public Map<String, Aggregate> byCity(Measure measure, LocalDate startDate, LocalDate endDate) {
+        Scan scan = scan(measure, GroupBy.CITY, startDate, endDate);
+        Map<String, Aggregate> result = new TreeMap<>();
+        for (int code = 0; code < scan.accumulator.count.length; code++) {
+            if (scan.accumulator.count[code] > 0) {
+                result.put(scan.dictionary.cities[code], scan.accumulator.aggregate(code));
+            }
+        }
+        return result;
+    }
+
+    public Map<Integer, Aggregate> byHour(Measure measure, LocalDate startDate, LocalDate endDate) {
+        Scan scan = scan(measure, GroupBy.HOUR, startDate, endDate);
+        Map<Integer, Aggregate> result = new TreeMap<>();
+        for (int hour = 0; hour < 24; hour++) {
+            if (scan.accumulator.count[hour] > 0) {
+                result.put(hour, scan.accumulator.aggregate(hour));
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Rows resident in memory (for monitoring)
+     */
+    public long residentRows() {
+        long rows = 0;
+        for (Partition partition : partitions.values()) {
+            rows += partition.size;
+        }
+        return rows;
+    }
+
+    public boolean isLoaded() {
+        return windowStart != null;
+    }
+
+    private record Scan(Accumulator accumulator, Dictionary dictionary) {
+    }
+
+    private Scan scan(Measure measure, GroupBy groupBy, LocalDate startDate, LocalDate endDate) {
+        if (startDate == null || endDate == null || startDate.isAfter(endDate)) {
+            throw new BadRequestException("Start date must be before or equal to end date");
+        }
+        // Ranges outside the resident window are loaded per query; bound them like the window itself
+        if (startDate.plusDays(retentionDays - 1L).isBefore(endDate)) {
+            throw new BadRequestException("Date range must not exceed " + retentionDays + " days");
+        }
+
+        // Partitions first, then the dictionary: every code in a published partition is already in it
+        LocalDate window = windowStart;
+        Collection<Partition> selected;
+        if (window != null && !startDate.isBefore(window)) {
+            selected = partitions.subMap(startDate, true, endDate, true).values();
+        } else {
+            selected = load(startDate, endDate).values();
+        }
+        Dictionary dict = dictionary;
+
+        int groups = switch (groupBy) {
+            case NONE -> 1;
+            case INTERSECTION -> dict.size;
+            case CITY -> dict.cityCount;
+            case HOUR -> 24;
+        };
+        Partition[] parts = selected.toArray(new Partition[0]);
+        long[] rowsBefore = new long[parts.length + 1];
+        for (int i = 0; i < parts.length; i++) {
+            rowsBefore[i + 1] = rowsBefore[i] + parts[i].size;
+        }
+
+        ScanTask task = new ScanTask(parts, rowsBefore, 0, parts.length, measure, groupBy, dict.cityOf, groups);
+        Accumulator accumulator = rowsBefore[parts.length] > parallelThreshold ? scanPool.invoke(task) : task.compute();
+        return new Scan(accumulator, dict);
+    }
+
+    /**
+     * Fork/join over partitions: split until a slice is under the parallel threshold
+     */
+    private final class ScanTask extends RecursiveTask<Accumulator> {
+        private final Partition[] parts;
+        private final long[] rowsBefore;
+        private final int from;
+        private final int to;
+        private final Measure measure;
+        private final GroupBy groupBy;
+        private final int[] cityOf;
+        private final int groups;
+
+        ScanTask(Partition[] parts, long[] rowsBefore, int from, int to,
+                 Measure measure, GroupBy groupBy, int[] cityOf, int groups) {
+            this.parts = parts;
+            this.rowsBefore = rowsBefore;
+            this.from = from;
+            this.to = to;
+            this.measure = measure;
+            this.groupBy = groupBy;
+            this.cityOf = cityOf;
+            this.groups = groups;
+        }
+
+        @Override
+        protected Accumulator compute() {
+            if (to - from <= 1 || rowsBefore[to] - rowsBefore[from] <= parallelThreshold) {
+                Accumulator accumulator = new Accumulator(groups);
+                for (int i = from; i < to; i++) {
+                    scanPartition(parts[i], measure, groupBy, cityOf, accumulator);
+                }
+                return accumulator;
+            }
+            int mid = (from + to) >>> 1;
+            ScanTask left = new ScanTask(parts, rowsBefore, from, mid, measure, groupBy, cityOf, groups);
+            left.fork();
+            Accumulator right = new ScanTask(parts, rowsBefore, mid, to, measure, groupBy, cityOf, groups).compute();
+            return left.join().merge(right);
+        }
+    }
+
+    static void scanPartition(Partition p, Measure measure, GroupBy groupBy, int[] cityOf, Accumulator acc) {
+        int[] keys = groupBy == GroupBy.HOUR ? p.hours : p.intersections;
+        int[] remap = groupBy == GroupBy.CITY ? cityOf : null;
+        if (measure.floating) {
+            float[] values = p.floats[measure.column];
+            if (groupBy == GroupBy.NONE) {
+                totalOf(values, p.size, acc);
+            } else {
+                groupedOf(values, keys, remap, p.size, acc);
+            }
+        } else {
+            int[] values = p.ints[measure.column];
+            if (groupBy == GroupBy.NONE) {
+                totalOf(values, p.size, acc);
+            } else {
+                groupedOf(values, keys, remap, p.size, acc);
+            }
+        }
+    }
+
+    // Tight loops over primitive arrays: no boxing, no branches on dense int columns
+
+    private static void totalOf(int[] values, int n, Accumulator acc) {
+        long sum = 0;
+        int min = Integer.MAX_VALUE;
+        int max = Integer.MIN_VALUE;
+        for (int i = 0; i < n; i++) {
+            int v = values[i];
+            sum += v;
+            min = Math.min(min, v);
+            max = Math.max(max, v);
+        }
+        if (n > 0) {
+            acc.add(0, n, sum, min, max);
+        }
+    }
+
+    private static void totalOf(float[] values, int n, Accumulator acc) {
+        long count = 0;
+        double sum = 0;
+        float min = Float.POSITIVE_INFINITY;
+        float max = Float.NEGATIVE_INFINITY;
+        for (int i = 0; i < n; i++) {
+            float v = values[i];
+            if (v == v) { // NaN = missing
+                count++;
+                sum += v;
+                min = Math.min(min, v);
+                max = Math.max(max, v);
+            }
+        }
+        if (count > 0) {
+            acc.add(0, count, sum, min, max);
+        }
+    }
+
+    private static void groupedOf(int[] values, int[] keys, int[] remap, int n, Accumulator acc) {
+        long[] count = acc.count;
+        double[] sum = acc.sum;
+        double[] min = acc.min;
+        double[] max = acc.max;
+        for (int i = 0; i < n; i++) {
+            int k = keys[i];
+            if (k < 0) {
+                continue;
+            }
+            if (remap != null) {
+                k = remap[k];
+            }
+            int v = values[i];
+            count[k]++;
+            sum[k] += v;
+            min[k] = Math.min(min[k], v);
+            max[k] = Math.max(max[k], v);
+        }
+    }
+
+    private static void groupedOf(float[] values, int[] keys, int[] remap, int n, Accumulator acc) {
+        long[] count = acc.count;
+        double[] sum = acc.sum;
+        double[] min = acc.min;
+        double[] max = acc.max;
+        for (int i = 0; i < n; i++) {
+            int k = keys[i];
+            float v = values[i];
+            if (k < 0 || v != v) {
+                continue;
+            }
+            if (remap != null) {
+                k = remap[k];
+            }
+            count[k]++;
+            sum[k] += v;
+            min[k] = Math.min(min[k], v);
+            max[k] = Math.max(max[k], v);
+        }
+    }
+
+    static final class Accumulator {
+        final long[] count;
+        final double[] sum;
+        final double[] min;
+        final double[] max;
+
+        Accumulator(int groups) {
+            count = new long[groups];
+            sum = new double[groups];
+            min = new double[groups];
+            max = new double[groups];
+            Arrays.fill(min, Double.POSITIVE_INFINITY);
+            Arrays.fill(max, Double.NEGATIVE_INFINITY);
+        }
+
+        void add(int group, long n, double total, double low, double high) {
+            count[group] += n;
+            sum[group] += total;
+            min[group] = Math.min(min[group], low);
+            max[group] = Math.max(max[group], high);
+        }
+
+        Accumulator merge(Accumulator other) {
+            for (int g = 0; g < count.length; g++) {
+                if (other.count[g] > 0) {
+                    add(g, other.count[g], other.sum[g], other.min[g], other.max[g]);
+                }
+            }
+            return this;
+        }
+
+        Aggregate aggregate(int group) {
+            return count[group] > 0
+                    ? new Aggregate(count[group], sum[group], min[group], max[group])
+                    : new Aggregate(0, 0, Double.NaN, Double.NaN);
+        }
+    }
+
+    // ==========================================
+    // Loading and maintenance
+    // ==========================================
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void warmUp() {
+        long start = System.currentTimeMillis();
+        reload(LocalDate.now().minusDays(retentionDays - 1L));
+        log.info("Metric column store loaded: {} rows in {} partitions, {} intersections in {} ms",
+                residentRows(), partitions.size(), dictionary.size, System.currentTimeMillis() - start);
+    }
+
+    /**
+     * Reload the most recent days (picks up writes from other nodes) and drop expired partitions
+     */
+    @Scheduled(fixedDelayString = "${traffic.metrics.columnar.refresh-ms:300000}",
+               initialDelayString = "${traffic.metrics.columnar.refresh-ms:300000}")
+    public void refreshRecent() {
+        if (!isLoaded()) {
+            return;
+        }
+        try {
+            reload(LocalDate.now().minusDays(refreshDays));
+        } catch (RuntimeException e) {
+            log.warn("Metric column store refresh failed: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Reload every resident partition from startDate on, after bulk writes that publish no events
+     */
+    public void reloadFrom(LocalDate startDate) {
+        LocalDate window = windowStart;
+        if (window == null) {
+            return;
+        }
+        reload(startDate.isBefore(window) ? window : startDate);
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onMetricRecorded(MetricRecordedEvent event) {
+        apply(new Change(MetricColumnRow.fromEntity(event.metric()), null, null));
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onMetricDeleted(MetricDeletedEvent event) {
+        apply(new Change(null, event.metricId(), event.measurementDate()));
+    }
+
+    private record Change(MetricColumnRow created, Long deletedId, LocalDate deletedDate) {
+        LocalDate date() {
+            return created != null ? created.date() : deletedDate;
+        }
+    }
+
+    private void apply(Change change) {
+        synchronized (writeLock) {
+            if (changesDuringLoad != null) {
+                changesDuringLoad.add(change);
+            }
+            LocalDate window = windowStart;
+            if (window == null || change.date().isBefore(window)) {
+                return;
+            }
+            NavigableMap<LocalDate, Partition> next = new TreeMap<>(partitions);
+            applyTo(next, change);
+            partitions = Collections.unmodifiableNavigableMap(next);
+        }
+    }
+
+    private void applyTo(NavigableMap<LocalDate, Partition> target, Change change) {
+        Partition current = target.get(change.date());
+        if (change.created() != null) {
+            if (current == null || current.indexOf(change.created().id()) < 0) {
+                Partition base = current != null ? current : new PartitionBuilder().build();
+                target.put(change.date(), base.append(change.created(), codeOf(change.created())));
+            }
+        } else if (current != null) {
+            Partition remaining = current.without(change.deletedId());
+            if (remaining.size == 0) {
+                target.remove(change.date());
+            } else {
+                target.put(change.date(), remaining);
+            }
+        }
+    }
+
+    /**
+     * Replace every partition from startDate on with a fresh copy from the database
+     */
+    private void reload(LocalDate startDate) {
+        synchronized (writeLock) {
+            changesDuringLoad = new ArrayList<>();
+        }
+        NavigableMap<LocalDate, Partition> loaded;
+        try {
+            loaded = load(startDate, null);
+        } catch (RuntimeException e) {
+            synchronized (writeLock) {
+                changesDuringLoad = null;
+            }
+            throw e;
+        }
+        synchronized (writeLock) {
+            LocalDate newWindow = LocalDate.now().minusDays(retentionDays - 1L);
+            NavigableMap<LocalDate, Partition> next = new TreeMap<>(partitions.headMap(startDate, false));
+            next.putAll(loaded);
+            // Commits that raced with the read: re-apply so they are not lost
+            for (Change change : changesDuringLoad) {
+                if (!change.date().isBefore(startDate)) {
+                    applyTo(next, change);
+                }
+            }
+            changesDuringLoad = null;
+            next.headMap(newWindow, false).clear();
+            partitions = Collections.unmodifiableNavigableMap(next);
+            windowStart = newWindow;
+        }
+    }
+
+    /**
+     * Read [startDate, endDate] (endDate null = open-ended) into new partitions
+     */
+    private NavigableMap<LocalDate, Partition> load(LocalDate startDate, LocalDate endDate) {
+        Map<LocalDate, PartitionBuilder> builders = new HashMap<>();
+        readTransaction.executeWithoutResult(status -> {
+            try (Stream<MetricColumnRow> rows = endDate != null
+                    ? metricRepository.streamColumnRows(startDate, endDate)
+                    : metricRepository.streamColumnRowsSince(startDate)) {
+                rows.forEach(row -> builders.computeIfAbsent(row.date(), date -> new PartitionBuilder())
+                        .add(row, codeOf(row)));
+            }
+        });
+        NavigableMap<LocalDate, Partition> loaded = new TreeMap<>();
+        builders.forEach((date, builder) -> loaded.put(date, builder.build()));
+        return loaded;
+    }
+
+    // ==========================================
+    // Dictionary encoding
+    // ==========================================
+
+    /**
+     * Intersection ids and cities by dense code. Arrays are shared with newer
+     * snapshots, which only write past this snapshot's size.
+     */
+    private record Dictionary(long[] ids, int[] cityOf, int size, String[] cities, int cityCount) {
+        static final Dictionary EMPTY = new Dictionary(new long[16], new int[16], 0, new String[16], 0);
+    }
+
+    private int codeOf(MetricColumnRow row) {
+        Integer code = intersectionCodes.get(row.intersectionId());
+        Dictionary dict = dictionary;
+        if (code != null && code < dict.size
+                && Objects.equals(dict.cities[dict.cityOf[code]], cityName(row.city()))) {
+            return code;
+        }
+        synchronized (dictionaryLock) {
+            int city = cityCodeOf(cityName(row.city()));
+            dict = dictionary;
+            code = intersectionCodes.get(row.intersectionId());
+            if (code == null) {
+                code = dict.size;
+                long[] ids = dict.ids.length > code ? dict.ids : Arrays.copyOf(dict.ids, code * 2);
+                int[] cityOf = dict.cityOf.length > code ? dict.cityOf : Arrays.copyOf(dict.cityOf, code * 2);
+                ids[code] = row.intersectionId();
+                cityOf[code] = city;
+                dictionary = new Dictionary(ids, cityOf, code + 1, dict.cities, dict.cityCount);
+                intersectionCodes.put(row.intersectionId(), code);
+            } else if (dict.cityOf[code] != city) {
+                // Intersection moved to another city: copy so running scans keep a consistent view
+                int[] cityOf = dict.cityOf.clone();
+                cityOf[code] = city;
+                dictionary = new Dictionary(dict.ids, cityOf, dict.size, dict.cities, dict.cityCount);
+            }
+            return code;
+        }
+    }
+
+    private int cityCodeOf(String city) {
+        Integer code = cityCodes.get(city);
+        if (code != null) {
+            return code;
+        }
+        Dictionary dict = dictionary;
+        code = dict.cityCount;
+        String[] cities = dict.cities.length > code ? dict.cities : Arrays.copyOf(dict.cities, code * 2);
+        cities[code] = city;
+        dictionary = new Dictionary(dict.ids, dict.cityOf, dict.size, cities, code + 1);
+        cityCodes.put(city, code);
+        return code;
+    }
+
+    private static String cityName(String city) {
+        return city != null ? city : "Unknown";
+    }
+
+    // ==========================================
+    // Partitions
+    // ==========================================
+
+    /**
+     * One measurement date. Columns may have spare capacity shared with a newer
+     * partition that appended past this one's size; rows below size never change.
+     */
+    static final class Partition {
+        final int size;
+        final long[] ids;
+        final int[] intersections;
+        final int[] hours;     // -1 = no hour
+        final int[][] ints;    // VEHICLES, ACCIDENTS, VIOLATIONS
+        final float[][] floats; // WAIT_TIME, THROUGHPUT (NaN = missing)
+
+        Partition(int size, long[] ids, int[] intersections, int[] hours, int[][] ints, float[][] floats) {
+            this.size = size;
+            this.ids = ids;
+            this.intersections = intersections;
+            this.hours = hours;
+            this.ints = ints;
+            this.floats = floats;
+        }
+
+        int indexOf(long id) {
+            for (int i = 0; i < size; i++) {
+                if (ids[i] == id) {
+                    return i;
+                }
+            }
+            return -1;
+        }
+
+        Partition append(MetricColumnRow row, int code) {
+            PartitionBuilder builder = size < ids.length ? new PartitionBuilder(this) : new PartitionBuilder(this, size * 2);
+            builder.add(row, code);
+            return builder.build();
+        }
+
+        Partition without(long id) {
+            int index = indexOf(id);
+            if (index < 0) {
+                return this;
+            }
+            PartitionBuilder builder = new PartitionBuilder(Math.max(size - 1, 1));
+            for (int i = 0; i < size; i++) {
+                if (i != index) {
+                    builder.copyRow(this, i);
+                }
+            }
+            return builder.build();
+        }
+    }
+
+    static final class PartitionBuilder {
+        private int size;
+        private long[] ids;
+        private int[] intersections;
+        private int[] hours;
+        private final int[][] ints = new int[3][];
+        private final float[][] floats = new float[2][];
+
+        PartitionBuilder() {
+            this(256);
+        }
+
+        PartitionBuilder(int capacity) {
+            ids = new long[capacity];
+            intersections = new int[capacity];
+            hours = new int[capacity];
+            for (int c = 0; c < ints.length; c++) {
+                ints[c] = new int[capacity];
+            }
+            for (int c = 0; c < floats.length; c++) {
+                floats[c] = new float[capacity];
+            }
+        }
+
+        /** Continue writing into the partition's spare capacity */
+        PartitionBuilder(Partition partition) {
+            size = partition.size;
+            ids = partition.ids;
+            intersections = partition.intersections;
+            hours = partition.hours;
+            System.arraycopy(partition.ints, 0, ints, 0, ints.length);
+            System.arraycopy(partition.floats, 0, floats, 0, floats.length);
+        }
+
+        /** Copy the partition into new arrays of the given capacity */
+        PartitionBuilder(Partition partition, int capacity) {
+            size = partition.size;
+            ids = Arrays.copyOf(partition.ids, capacity);
+            intersections = Arrays.copyOf(partition.intersections, capacity);
+            hours = Arrays.copyOf(partition.hours, capacity);
+            for (int c = 0; c < ints.length; c++) {
+                ints[c] = Arrays.copyOf(partition.ints[c], capacity);
+            }
+            for (int c = 0; c < floats.length; c++) {
+                floats[c] = Arrays.copyOf(partition.floats[c], capacity);
+            }
+        }
+
+        void add(MetricColumnRow row, int code) {
+            ensureCapacity();
+            ids[size] = row.id();
+            intersections[size] = code;
+            hours[size] = row.hour() != null && row.hour() >= 0 && row.hour() < 24 ? row.hour() : -1;
+            ints[Measure.VEHICLES.column][size] = row.vehicles() != null ? row.vehicles() : 0;
+            ints[Measure.ACCIDENTS.column][size] = row.accidents() != null ? row.accidents() : 0;
+            ints[Measure.VIOLATIONS.column][size] = row.violations() != null ? row.violations() : 0;
+            floats[Measure.WAIT_TIME.column][size] = row.waitTime() != null ? row.waitTime().floatValue() : Float.NaN;
+            floats[Measure.THROUGHPUT.column][size] = row.throughput() != null ? row.throughput().floatValue() : Float.NaN;
+            size++;
+        }
+
+        void copyRow(Partition from, int i) {
+            ensureCapacity();
+            ids[size] = from.ids[i];
+            intersections[size] = from.intersections[i];
+            hours[size] = from.hours[i];
+            for (int c = 0; c < ints.length; c++) {
+                ints[c][size] = from.ints[c][i];
+            }
+            for (int c = 0; c < floats.length; c++) {
+                floats[c][size] = from.floats[c][i];
+            }
+            size++;
+        }
+
+        private void ensureCapacity() {
+            if (size < ids.length) {
+                return;
+            }
+            int capacity = ids.length * 2;
+            ids = Arrays.copyOf(ids, capacity);
+            intersections = Arrays.copyOf(intersections, capacity);
+            hours = Arrays.copyOf(hours, capacity);
+            for (int c = 0; c < ints.length; c++) {
+                ints[c] = Arrays.copyOf(ints[c], capacity);
+            }
+            for (int c = 0; c < floats.length; c++) {
+                floats[c] = Arrays.copyOf(floats[c], capacity);
+            }
+        }
+
+        Partition build() {
+            return new Partition(size, ids, intersections, hours, ints.clone(), floats.clone());
+        }
+    }
+}
@@ -0,0 +1,894 @@
+package com.trafficlight.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.trafficlight.dto.MetricImportResult;
+import com.trafficlight.exception.BadRequestException;
+import com.trafficlight.exception.ResourceNotFoundException;
+import com.trafficlight.repository.IntersectionRepository;
+import com.trafficlight.util.ColumnarWriter.ColumnType;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.postgresql.PGConnection;
+import org.postgresql.copy.CopyIn;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * Bulk metric import
+ *
+ * The file (CSV with a header line, or NDJSON; optionally gzipped) is read on
+ * the calling thread and cut into chunks of lines. Chunks are parsed and
+ * validated in parallel and loaded, in file order, into the
+ * metric_import_staging table: through the COPY protocol on PostgreSQL, JDBC
+ * batches elsewhere. One set-based statement then merges the staged rows into
+ * intersection_metrics. Within the file the last line of an (intersection,
+ * date, hour) key wins; existing rows are skipped or replaced. The whole import
+ * is a single transaction, so a failed import leaves no rows behind.
+ *
+ * Column names are those of the CSV export; id and city are ignored and the
+ * intersection is given by intersection_id or intersection_code.
+ */
+@Service
+@Slf4j
+public class MetricImportService {
+
+    public enum Format { CSV, NDJSON }
+
+    public enum OnDuplicate { SKIP, REPLACE }
+
+    static final String STAGING_TABLE = "metric_import_staging";
+
+    private static final int MAX_ERRORS_REPORTED = 100;
+    private static final int MAX_TRACKED_IMPORTS = 50;
+    private static final long PROGRESS_LOG_ROWS = 1_000_000;
+    private static final BigDecimal MAX_DECIMAL_10_2 = new BigDecimal("99999999.99");
+    private static final BigDecimal HUNDRED = BigDecimal.valueOf(100);
+
+    /**
+     * Metric columns, in staging-table order
+     */
+    private static final List<Rule> RULES = List.of(
+        Rule.date("measurement_date"),
+        Rule.integer("measurement_hour", 23, true, false),
+        Rule.count("total_vehicle_count"),
+        Rule.count("car_count"),
+        Rule.count("truck_count"),
+        Rule.count("bus_count"),
+        Rule.count("motorcycle_count"),
+        Rule.count("bicycle_count"),
+        Rule.count("pedestrian_count"),
+        Rule.decimal("average_wait_time", "DECIMAL(10, 2)", MAX_DECIMAL_10_2),
+        Rule.decimal("maximum_wait_time", "DECIMAL(10, 2)", MAX_DECIMAL_10_2),
+        Rule.decimal("average_queue_length", "DECIMAL(10, 2)", MAX_DECIMAL_10_2),
+        Rule.integer("maximum_queue_length", Integer.MAX_VALUE, false, false),
+        Rule.integer("throughput", Integer.MAX_VALUE, false, false),
+        Rule.decimal("green_time_utilization", "DECIMAL(5, 2)", HUNDRED),
+        Rule.count("red_light_violations"),
+        Rule.count("yellow_light_violations"),
+        Rule.count("pedestrian_violations"),
+        Rule.count("accidents_count"),
+        Rule.count("near_miss_count"),
+        Rule.count("emergency_vehicle_passages"),
+        Rule.decimal("system_uptime_percentage", "DECIMAL(5, 2)", HUNDRED),
+        Rule.count("malfunction_count"),
+        Rule.count("manual_override_count"),
+        Rule.decimal("estimated_co2_emission", "DECIMAL(10, 2)", MAX_DECIMAL_10_2),
+        Rule.decimal("estimated_fuel_consumption", "DECIMAL(10, 2)", MAX_DECIMAL_10_2),
+        Rule.decimal("data_quality_score", "DECIMAL(3, 2)", BigDecimal.ONE)
+    );
+
+    /** Staged value columns: intersection_id, then RULES */
+    private static final String VALUE_COLUMNS = "intersection_id, "
+            + RULES.stream().map(Rule::name).collect(Collectors.joining(", "));
+
+    private final IntersectionRepository intersectionRepository;
+    private final NamedParameterJdbcTemplate namedJdbcTemplate;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final ObjectMapper objectMapper;
+    private final DailyRollupService rollupService;
+    private final WaitTimeSketchService sketchService;
+    private final MetricColumnStore columnStore;
+    private final ForkJoinPool validationPool;
+    private final int chunkRows;
+    private final int maxInFlight;
+    private final int defaultMaxRejected;
+
+    private final Map<String, Job> imports = Collections.synchronizedMap(new LinkedHashMap<String, Job>() {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Job> eldest) {
+            return size() > MAX_TRACKED_IMPORTS;
+        }
+    });
+
+    private volatile Boolean postgres; // null until the staging table has been checked
+
+    public MetricImportService(
+            IntersectionRepository intersectionRepository,
+            NamedParameterJdbcTemplate namedJdbcTemplate,
+            PlatformTransactionManager transactionManager,
+            ObjectMapper objectMapper,
+            DailyRollupService rollupService,
+            WaitTimeSketchService sketchService,
+            MetricColumnStore columnStore,
+            @Value("${traffic.metrics.import.chunk-rows:10000}") int chunkRows,
+            @Value("${traffic.metrics.import.parallelism:0}") int parallelism,
+            @Value("${traffic.metrics.import.max-rejected:1000}") int defaultMaxRejected) {
+        this.intersectionRepository = intersectionRepository;
+        this.namedJdbcTemplate = namedJdbcTemplate;
+        this.jdbcTemplate = namedJdbcTemplate.getJdbcTemplate();
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.objectMapper = objectMapper;
+        this.rollupService = rollupService;
+        this.sketchService = sketchService;
+        this.columnStore = columnStore;
+        this.validationPool = new ForkJoinPool(parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors());
+        this.chunkRows = chunkRows;
+        this.maxInFlight = validationPool.getParallelism() * 2;
+        this.defaultMaxRejected = defaultMaxRejected;
+    }
+
+    @PreDestroy
+    void shutdown() {
+        validationPool.shutdownNow();
+    }
+
+    // ==========================================
+    // Import
+    // ==========================================
+
+    /**
+     * Import every line of a CSV or NDJSON file (gzip is detected from the content)
+     *
+     * @param maxRejected invalid lines tolerated before the import is rolled back; null for the default
+     * @return the final counts
+     * @throws BadRequestException for an unusable header or too many invalid lines
+     */
+    public MetricImportResult importMetrics(InputStream input, Format format, OnDuplicate onDuplicate,
+                                            Integer maxRejected) throws IOException {
+        int rejectLimit = maxRejected != null ? maxRejected : defaultMaxRejected;
+        if (rejectLimit < 0) {
+            throw new BadRequestException("maxRejected must not be negative");
+        }
+        ensureStagingTable();
+        Job job = new Job(UUID.randomUUID().toString(), format, onDuplicate, rejectLimit);
+        imports.put(job.id, job);
+        log.info("Metric import {} started ({}, onDuplicate={})", job.id, format, onDuplicate);
+
+        try (BufferedReader reader = new BufferedReader(
+                new InputStreamReader(decompress(input), StandardCharsets.UTF_8), 1 << 16)) {
+            LineParser parser = format == Format.CSV ? csvParser(reader.readLine()) : this::ndjsonFields;
+            long firstLine = format == Format.CSV ? 2 : 1;
+            Intersections intersections = loadIntersections();
+
+            transactionTemplate.executeWithoutResult(status -> {
+                jdbcTemplate.execute((ConnectionCallback<Void>) connection -> {
+                    try {
+                        stage(job, reader, firstLine, parser, intersections, connection);
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                    return null;
+                });
+                job.status = MetricImportResult.Status.MERGING;
+                MapSqlParameterSource params = new MapSqlParameterSource()
+                        .addValue("importId", job.id)
+                        .addValue("now", Timestamp.valueOf(LocalDateTime.now()));
+                job.merged = namedJdbcTemplate.update(mergeSql(onDuplicate), params);
+                namedJdbcTemplate.update("DELETE FROM " + STAGING_TABLE + " WHERE import_id = :importId", params);
+            });
+        } catch (UncheckedIOException e) {
+            job.fail(e.getCause().getMessage());
+            throw e.getCause();
+        } catch (RuntimeException | IOException e) {
+            job.fail(e.getMessage());
+            throw e;
+        }
+        job.finish();
+
+        if (job.merged > 0) {
+            refreshDerivedData(job.firstDate, job.lastDate);
+        }
+        MetricImportResult result = job.snapshot();
+        log.info("Metric import {} completed: {} read, {} rejected, {} merged, {} skipped in {} ms ({} rows/s)",
+                job.id, result.getRowsRead(), result.getRowsRejected(), result.getRowsMerged(),
+                result.getRowsSkipped(), result.getDurationMs(), result.getRowsPerSecond());
+        return result;
+    }
+
+    /**
+     * Running and recently finished imports, oldest first
+     */
+    public List<MetricImportResult> recentImports() {
+        synchronized (imports) {
+            return imports.values().stream().map(Job::snapshot).toList();
+        }
+    }
+
+    public MetricImportResult getImport(String importId) {
+        Job job = imports.get(importId);
+        if (job == null) {
+            throw new ResourceNotFoundException("Metric import", "id", importId);
+        }
+        return job.snapshot();
+    }
+
+    /**
+     * Read chunks of lines, validate them on the pool and load the results in file order
+     */
+    private void stage(Job job, BufferedReader reader, long firstLine, LineParser parser,
+                       Intersections intersections, Connection connection) throws IOException, SQLException {
+        // COPY needs both the PostgreSQL dialect and the pgjdbc connection; H2 (also in PostgreSQL mode) gets batches
+        boolean copy = Boolean.TRUE.equals(postgres) && connection.isWrapperFor(PGConnection.class);
+        StagingSink sink = copy ? new CopySink(connection) : new BatchSink(connection, job.id);
+        Deque<Future<Chunk>> inFlight = new ArrayDeque<>();
+        try {
+            long chunkStart = firstLine;
+            List<String> lines = new ArrayList<>(chunkRows);
+            for (String line = reader.readLine(); line != null; line = reader.readLine()) {
+                lines.add(line);
+                if (lines.size() == chunkRows) {
+                    inFlight.add(submit(job.id, lines, chunkStart, parser, intersections, copy));
+                    chunkStart += lines.size();
+                    lines = new ArrayList<>(chunkRows);
+                    if (inFlight.size() >= maxInFlight) {
+                        load(job, await(inFlight.poll()), sink);
+                    }
+                }
+            }
+            if (!lines.isEmpty()) {
+                inFlight.add(submit(job.id, lines, chunkStart, parser, intersections, copy));
+            }
+            while (!inFlight.isEmpty()) {
+                load(job, await(inFlight.poll()), sink);
+            }
+            sink.finish();
+        } catch (IOException | SQLException | RuntimeException e) {
+            inFlight.forEach(future -> future.cancel(true));
+            sink.abort();
+            throw e;
+        }
+    }
+
+    private Future<Chunk> submit(String importId, List<String> lines, long firstLine, LineParser parser,
+                                 Intersections intersections, boolean copy) {
+        return validationPool.submit(() -> validateChunk(importId, lines, firstLine, parser, intersections, copy));
+    }
+
+    private static Chunk await(Future<Chunk> future) {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Metric import interrupted", e);
+        } catch (ExecutionException e) {
+            throw e.getCause() instanceof RuntimeException runtime ? runtime : new IllegalStateException(e.getCause());
+        }
+    }
+
+    private void load(Job job, Chunk chunk, StagingSink sink) throws SQLException, IOException {
+        sink.load(chunk);
+        job.add(chunk);
+        if (job.rejected.get() > job.rejectLimit) {
+            throw new BadRequestException(job.rejected.get() + " invalid lines (limit " + job.rejectLimit
+                    + "), import rolled back. First errors: " + String.join("; ", job.firstErrors(5)));
+        }
+    }
+
+    private void refreshDerivedData(LocalDate firstDate, LocalDate lastDate) {
+        try {
+            rollupService.backfill(firstDate, lastDate);
+            sketchService.backfill(firstDate, lastDate);
+        } catch (BadRequestException e) {
+            log.warn("Daily rollups and wait-time sketches not rebuilt after import ({}); run the backfill in ranges",
+                    e.getMessage());
+        } catch (RuntimeException e) {
+            // The import is committed; the nightly reconcile rebuilds the recent days
+            log.error("Daily rollups and wait-time sketches not rebuilt after import for {} - {}, " +
+                    "left to the nightly reconcile or POST /api/admin/rollups/backfill", firstDate, lastDate, e);
+        }
+        columnStore.reloadFrom(firstDate);
+    }
+
+    // ==========================================
+    // Parsing and validation (validation pool)
+    // ==========================================
+
+    /**
+     * Raw field values of one line: intersection_id, intersection_code, then one per rule (null when absent)
+     */
+    @FunctionalInterface
+    private interface LineParser {
+        String[] fields(String line) throws InvalidLine;
+    }
+
+    private LineParser csvParser(String header) {
+        if (header == null) {
+            throw new BadRequestException("CSV file is empty");
+        }
+        List<String> names = new ArrayList<>();
+        for (String name : splitCsv(header.startsWith("\uFEFF") ? header.substring(1) : header)) {
+            names.add(name.trim().toLowerCase());
+        }
+        int[] source = new int[RULES.size() + 2];
+        source[0] = names.indexOf("intersection_id");
+        source[1] = names.indexOf("intersection_code");
+        for (int r = 0; r < RULES.size(); r++) {
+            source[r + 2] = names.indexOf(RULES.get(r).name());
+        }
+        if (source[0] < 0 && source[1] < 0) {
+            throw new BadRequestException("CSV header needs an intersection_id or intersection_code column");
+        }
+        for (int r = 0; r < RULES.size(); r++) {
+            if (RULES.get(r).required() && source[r + 2] < 0) {
+                throw new BadRequestException("CSV header needs a " + RULES.get(r).name() + " column");
+            }
+        }
+        int columns = names.size();
+        return line -> {
+            String[] values;
+            try {
+                values = splitCsv(line);
+            } catch (IllegalArgumentException e) {
+                throw new InvalidLine(e.getMessage());
+            }
+            if (values.length != columns) {
+                throw new InvalidLine("expected " + columns + " fields, found " + values.length);
+            }
+            String[] fields = new String[source.length];
+            for (int f = 0; f < source.length; f++) {
+                fields[f] = source[f] >= 0 ? values[source[f]] : null;
+            }
+            return fields;
+        };
+    }
+
+    private String[] ndjsonFields(String line) throws InvalidLine {
+        JsonNode node;
+        try {
+            node = objectMapper.readTree(line);
+        } catch (IOException e) {
+            throw new InvalidLine("malformed JSON");
+        }
+        if (node == null || !node.isObject()) {
+            throw new InvalidLine("expected a JSON object");
+        }
+        String[] fields = new String[RULES.size() + 2];
+        fields[0] = text(node.get("intersection_id"));
+        fields[1] = text(node.get("intersection_code"));
+        for (int r = 0; r < RULES.size(); r++) {
+            fields[r + 2] = text(node.get(RULES.get(r).name()));
+        }
+        return fields;
+    }
+
+    private static String text(JsonNode value) {
+        return value == null || value.isNull() ? null : value.asText();
+    }
+
+    private static Chunk validateChunk(String importId, List<String> lines, long firstLine, LineParser parser,
+                                       Intersections intersections, boolean copy) {
+        List<Object[]> rows = copy ? null : new ArrayList<>(lines.size());
+        StringBuilder copyText = copy ? new StringBuilder(lines.size() * 160) : null;
+        List<String> errors = new ArrayList<>();
+        int read = 0;
+        int rejected = 0;
+        LocalDate firstDate = null;
+        LocalDate lastDate = null;
+
+        for (int i = 0; i < lines.size(); i++) {
+            String line = lines.get(i);
+            if (line.isBlank()) {
+                continue;
+            }
+            read++;
+            long lineNumber = firstLine + i;
+            Object[] row;
+            try {
+                row = validate(parser.fields(line), intersections);
+            } catch (InvalidLine e) {
+                rejected++;
+                if (errors.size() < MAX_ERRORS_REPORTED) {
+                    errors.add("line " + lineNumber + ": " + e.getMessage());
+                }
+                continue;
+            }
+            LocalDate date = (LocalDate) row[1];
+            firstDate = firstDate == null || date.isBefore(firstDate) ? date : firstDate;
+            lastDate = lastDate == null || date.isAfter(lastDate) ? date : lastDate;
+            if (copy) {
+                appendCopyLine(copyText, importId, lineNumber, row);
+            } else {
+                Object[] staged = new Object[row.length + 1];
+                staged[0] = lineNumber;
+                System.arraycopy(row, 0, staged, 1, row.length);
+                rows.add(staged);
+            }
+        }
+        byte[] copyData = copy ? copyText.toString().getBytes(StandardCharsets.UTF_8) : null;
+        return new Chunk(rows, copyData, read, read - rejected, rejected, errors, firstDate, lastDate);
+    }
+
+    /**
+     * @return intersection_id, then one typed value per rule
+     */
+    private static Object[] validate(String[] fields, Intersections intersections) throws InvalidLine {
+        Object[] row = new Object[RULES.size() + 1];
+        row[0] = intersections.resolve(blankToNull(fields[0]), blankToNull(fields[1]));
+        for (int r = 0; r < RULES.size(); r++) {
+            row[r + 1] = RULES.get(r).parse(blankToNull(fields[r + 2]));
+        }
+        return row;
+    }
+
+    private static String blankToNull(String value) {
+        return value == null || value.isBlank() ? null : value.trim();
+    }
+
+    /**
+     * PostgreSQL COPY text format: tab separated, \N for null. Values are numbers and
+     * dates only, so nothing needs escaping.
+     */
+    private static void appendCopyLine(StringBuilder out, String importId, long lineNumber, Object[] row) {
+        out.append(importId).append('\t').append(lineNumber);
+        for (Object value : row) {
+            out.append('\t');
+            if (value == null) {
+                out.append("\\N");
+            } else if (value instanceof BigDecimal decimal) {
+                out.append(decimal.toPlainString());
+            } else {
+                out.append(value);
+            }
+        }
+        out.append('\n');
+    }
+
+    /**
+     * RFC 4180 fields of one line (quoted fields may hold commas and doubled quotes, not line breaks)
+     */
+    static String[] splitCsv(String line) {
+        List<String> fields = new ArrayList<>();
+        StringBuilder field = new StringBuilder();
+        boolean quoted = false;
+        for (int i = 0; i < line.length(); i++) {
+            char ch = line.charAt(i);
+            if (quoted) {
+                if (ch != '"') {
+                    field.append(ch);
+                } else if (i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                    field.append('"');
+                    i++;
+                } else {
+                    quoted = false;
+                }
+            } else if (ch == ',') {
+                fields.add(field.toString());
+                field.setLength(0);
+            } else if (ch == '"' && field.isEmpty()) {
+                quoted = true;
+            } else {
+                field.append(ch);
+            }
+        }
+        if (quoted) {
+            throw new IllegalArgumentException("unterminated quoted field");
+        }
+        fields.add(field.toString());
+        return fields.toArray(new String[0]);
+    }
+
+    /**
+     * One target column: how to parse it and which values are allowed
+     */
+    private record Rule(String name, ColumnType type, String sqlType, long maxInt, BigDecimal maxDecimal,
+                        boolean required, boolean zeroDefault) {
+
+        static Rule date(String name) {
+            return new Rule(name, ColumnType.DATE, "DATE", 0, null, true, false);
+        }
+
+        static Rule integer(String name, long max, boolean required, boolean zeroDefault) {
+            return new Rule(name, ColumnType.INT, "INTEGER", max, null, required, zeroDefault);
+        }
+
+        /** Counts default to 0, like the entity */
+        static Rule count(String name) {
+            return integer(name, Integer.MAX_VALUE, false, true);
+        }
+
+        static Rule decimal(String name, String sqlType, BigDecimal max) {
+            return new Rule(name, ColumnType.DECIMAL, sqlType, 0, max, false, false);
+        }
+
+        Object parse(String value) throws InvalidLine {
+            if (value == null) {
+                if (required) {
+                    throw new InvalidLine(name + " is required");
+                }
+                return zeroDefault ? 0 : null;
+            }
+            try {
+                switch (type) {
+                    case DATE -> {
+                        return LocalDate.parse(value);
+                    }
+                    case INT -> {
+                        long parsed = Long.parseLong(value);
+                        if (parsed < 0 || parsed > maxInt) {
+                            throw new InvalidLine(name + " must be between 0 and " + maxInt + ": " + value);
+                        }
+                        return (int) parsed;
+                    }
+                    default -> {
+                        BigDecimal parsed = new BigDecimal(value).setScale(2, RoundingMode.HALF_UP);
+                        if (parsed.signum() < 0 || parsed.compareTo(maxDecimal) > 0) {
+                            throw new InvalidLine(name + " must be between 0 and " + maxDecimal.toPlainString()
+                                    + ": " + value);
+                        }
+                        return parsed;
+                    }
+                }
+            } catch (DateTimeParseException | NumberFormatException e) {
+                throw new InvalidLine("invalid " + name + ": " + value);
+            }
+        }
+    }
+
+    /**
+     * Known intersections, loaded once per import
+     */
+    private record Intersections(Set<Long> ids, Map<String, Long> idsByCode) {
+
+        Long resolve(String id, String code) throws InvalidLine {
+            if (id != null) {
+                Long parsed;
+                try {
+                    parsed = Long.valueOf(id);
+                } catch (NumberFormatException e) {
+                    throw new InvalidLine("invalid intersection_id: " + id);
+                }
+                if (!ids.contains(parsed)) {
+                    throw new InvalidLine("unknown intersection_id: " + id);
+                }
+                return parsed;
+            }
+            if (code == null) {
+                throw new InvalidLine("intersection_id or intersection_code is required");
+            }
+            Long resolved = idsByCode.get(code);
+            if (resolved == null) {
+                throw new InvalidLine("unknown intersection_code: " + code);
+            }
+            return resolved;
+        }
+    }
+
+    private Intersections loadIntersections() {
+        Set<Long> ids = new HashSet<>();
+        Map<String, Long> idsByCode = new HashMap<>();
+        for (Object[] row : intersectionRepository.findAllCodes()) {
+            Long id = (Long) row[0];
+            ids.add(id);
+            if (row[1] != null) {
+                idsByCode.put((String) row[1], id);
+            }
+        }
+        return new Intersections(ids, idsByCode);
+    }
+
+    /** A rejected line; the message becomes the reported reason */
+    private static final class InvalidLine extends Exception {
+        InvalidLine(String reason) {
+            super(reason, null, false, false);
+        }
+    }
+
+    /**
+     * A validated chunk: staged rows (JDBC batches) or their COPY text, plus counts
+     */
+    private record Chunk(List<Object[]> rows, byte[] copyData, int read, int staged, int rejected,
+                         List<String> errors, LocalDate firstDate, LocalDate lastDate) {
+    }
+
+    // ==========================================
+    // Staging and merge
+    // ==========================================
+
+    private interface StagingSink {
+        void load(Chunk chunk) throws SQLException, IOException;
+
+        void finish() throws SQLException;
+
+        void abort();
+    }
+
+    /**
+     * PostgreSQL: one COPY ... FROM STDIN for the whole import
+     */
+    private static final class CopySink implements StagingSink {
+
+        private final CopyIn copyIn;
+
+        CopySink(Connection connection) throws SQLException {
+            this.copyIn = connection.unwrap(PGConnection.class).getCopyAPI().copyIn(
+                    "COPY " + STAGING_TABLE + " (import_id, line_number, " + VALUE_COLUMNS + ") FROM STDIN");
+        }
+
+        @Override
+        public void load(Chunk chunk) throws SQLException {
+            copyIn.writeToCopy(chunk.copyData(), 0, chunk.copyData().length);
+        }
+
+        @Override
+        public void finish() throws SQLException {
+            copyIn.endCopy();
+        }
+
+        @Override
+        public void abort() {
+            try {
+                if (copyIn.isActive()) {
+                    copyIn.cancelCopy();
+                }
+            } catch (SQLException e) {
+                log.warn("Could not cancel metric import COPY: {}", e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Other databases: one JDBC batch per chunk
+     */
+    private static final class BatchSink implements StagingSink {
+
+        private final PreparedStatement insert;
+        private final String importId;
+
+        BatchSink(Connection connection, String importId) throws SQLException {
+            String placeholders = String.join(", ", Collections.nCopies(RULES.size() + 3, "?"));
+            this.insert = connection.prepareStatement("INSERT INTO " + STAGING_TABLE
+                    + " (import_id, line_number, " + VALUE_COLUMNS + ") VALUES (" + placeholders + ")");
+            this.importId = importId;
+        }
+
+        @Override
+        public void load(Chunk chunk) throws SQLException {
+            for (Object[] row : chunk.rows()) {
+                insert.setString(1, importId);
+                for (int c = 0; c < row.length; c++) {
+                    insert.setObject(c + 2, row[c]);
+                }
+                insert.addBatch();
+            }
+            insert.executeBatch();
+        }
+
+        @Override
+        public void finish() throws SQLException {
+            insert.close();
+        }
+
+        @Override
+        public void abort() {
+            try {
+                insert.close();
+            } catch (SQLException e) {
+                log.warn("Could not close metric import batch: {}", e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Staged rows of one import, last line first per key
+     */
+    private static final String DEDUPLICATED_SOURCE = "SELECT " + VALUE_COLUMNS + " FROM (SELECT " + VALUE_COLUMNS
+            + ", ROW_NUMBER() OVER (PARTITION BY intersection_id, measurement_date, measurement_hour "
+            + "ORDER BY line_number DESC) AS line_rank FROM " + STAGING_TABLE + " WHERE import_id = :importId) ranked "
+            + "WHERE line_rank = 1";
+
+    /**
+     * PostgreSQL: INSERT ... ON CONFLICT on unique_metric_period (safe against concurrent writers);
+     * elsewhere the standard MERGE
+     */
+    private String mergeSql(OnDuplicate onDuplicate) {
+        List<String> updated = RULES.stream().map(Rule::name)
+                .filter(name -> !name.equals("measurement_date") && !name.equals("measurement_hour"))
+                .toList();
+        if (Boolean.TRUE.equals(postgres)) {
+            String insert = "INSERT INTO intersection_metrics (" + VALUE_COLUMNS + ", created_at, updated_at) "
+                    + "SELECT " + VALUE_COLUMNS + ", :now, :now FROM (" + DEDUPLICATED_SOURCE + ") source "
+                    + "ON CONFLICT (intersection_id, measurement_date, measurement_hour) ";
+            return onDuplicate == OnDuplicate.SKIP
+                    ? insert + "DO NOTHING"
+                    : insert + "DO UPDATE SET " + updated.stream().map(name -> name + " = EXCLUDED." + name)
+                            .collect(Collectors.joining(", ")) + ", updated_at = EXCLUDED.updated_at";
+        }
+        String merge = "MERGE INTO intersection_metrics target USING (" + DEDUPLICATED_SOURCE + ") source "
+                + "ON target.intersection_id = source.intersection_id "
+                + "AND target.measurement_date = source.measurement_date "
+                + "AND target.measurement_hour = source.measurement_hour ";
+        if (onDuplicate == OnDuplicate.REPLACE) {
+            merge += "WHEN MATCHED THEN UPDATE SET " + updated.stream().map(name -> name + " = source." + name)
+                    .collect(Collectors.joining(", ")) + ", updated_at = :now ";
+        }
+        return merge + "WHEN NOT MATCHED THEN INSERT (" + VALUE_COLUMNS + ", created_at, updated_at) VALUES ("
+                + "source." + VALUE_COLUMNS.replace(", ", ", source.") + ", :now, :now)";
+    }
+
+    /**
+     * Create the staging table when the migration has not run (Hibernate-managed schemas)
+     */
+    private void ensureStagingTable() {
+        if (postgres != null) {
+            return;
+        }
+        synchronized (this) {
+            if (postgres != null) {
+                return;
+            }
+            boolean isPostgres = Boolean.TRUE.equals(jdbcTemplate.execute((ConnectionCallback<Boolean>) connection ->
+                    "PostgreSQL".equals(connection.getMetaData().getDatabaseProductName())));
+            String columns = RULES.stream()
+                    .map(rule -> rule.name() + " " + rule.sqlType() + (rule.required() ? " NOT NULL" : ""))
+                    .collect(Collectors.joining(", "));
+            jdbcTemplate.execute("CREATE " + (isPostgres ? "UNLOGGED " : "") + "TABLE IF NOT EXISTS " + STAGING_TABLE
+                    + " (import_id VARCHAR(36) NOT NULL, line_number BIGINT NOT NULL, "
+                    + "intersection_id BIGINT NOT NULL, " + columns + ")");
+            postgres = isPostgres;
+        }
+    }
+
+    private static InputStream decompress(InputStream input) throws IOException {
+        BufferedInputStream buffered = new BufferedInputStream(input, 1 << 16);
+        buffered.mark(2);
+        int first = buffered.read();
+        int second = buffered.read();
+        buffered.reset();
+        boolean gzip = first == 0x1f && second == 0x8b;
+        return gzip ? new GZIPInputStream(buffered, 1 << 16) : buffered;
+    }
+
+    // ==========================================
+    // Progress
+    // ==========================================
+
+    private static final class Job {
+
+        final String id;
+        final Format format;
+        final OnDuplicate onDuplicate;
+        final int rejectLimit;
+        final LocalDateTime startedAt = LocalDateTime.now();
+        final long startNanos = System.nanoTime();
+        final AtomicLong read = new AtomicLong();
+        final AtomicLong staged = new AtomicLong();
+        final AtomicLong rejected = new AtomicLong();
+        final List<String> errors = Collections.synchronizedList(new ArrayList<>());
+
+        volatile MetricImportResult.Status status = MetricImportResult.Status.READING;
+        volatile long merged;
+        volatile LocalDate firstDate;
+        volatile LocalDate lastDate;
+        volatile long durationNanos = -1;
+        volatile String message;
+        private long nextProgressLog = PROGRESS_LOG_ROWS;
+
+        Job(String id, Format format, OnDuplicate onDuplicate, int rejectLimit) {
+            this.id = id;
+            this.format = format;
+            this.onDuplicate = onDuplicate;
+            this.rejectLimit = rejectLimit;
+        }
+
+        /** Loader thread only */
+        void add(Chunk chunk) {
+            long total = read.addAndGet(chunk.read());
+            staged.addAndGet(chunk.staged());
+            rejected.addAndGet(chunk.rejected());
+            for (String error : chunk.errors()) {
+                if (errors.size() >= MAX_ERRORS_REPORTED) {
+                    break;
+                }
+                errors.add(error);
+            }
+            if (chunk.firstDate() != null && (firstDate == null || chunk.firstDate().isBefore(firstDate))) {
+                firstDate = chunk.firstDate();
+            }
+            if (chunk.lastDate() != null && (lastDate == null || chunk.lastDate().isAfter(lastDate))) {
+                lastDate = chunk.lastDate();
+            }
+            if (total >= nextProgressLog) {
+                nextProgressLog += PROGRESS_LOG_ROWS;
+                log.info("Metric import {}: {} lines read, {} staged, {} rejected ({} rows/s)",
+                        id, total, staged.get(), rejected.get(), rowsPerSecond(total, System.nanoTime() - startNanos));
+            }
+        }
+
+        List<String> firstErrors(int limit) {
+            synchronized (errors) {
+                return List.copyOf(errors.subList(0, Math.min(limit, errors.size())));
+            }
+        }
+
+        void finish() {
+            durationNanos = System.nanoTime() - startNanos;
+            status = MetricImportResult.Status.COMPLETED;
+        }
+
+        void fail(String reason) {
+            durationNanos = System.nanoTime() - startNanos;
+            message = reason;
+            status = MetricImportResult.Status.FAILED;
+            log.warn("Metric import {} failed after {} lines: {}", id, read.get(), reason);
+        }
+
+        MetricImportResult snapshot() {
+            long elapsed = durationNanos >= 0 ? durationNanos : System.nanoTime() - startNanos;
+            boolean completed = status == MetricImportResult.Status.COMPLETED;
+            return MetricImportResult.builder()
+                    .importId(id)
+                    .format(format.name())
+                    .onDuplicate(onDuplicate.name())
+                    .status(status)
+                    .rowsRead(read.get())
+                    .rowsStaged(staged.get())
+                    .rowsRejected(rejected.get())
+                    .rowsMerged(completed ? merged : null)
+                    .rowsSkipped(completed ? staged.get() - merged : null)
+                    .firstDate(firstDate)
+                    .lastDate(lastDate)
+                    .startedAt(startedAt)
+                    .durationMs(elapsed / 1_000_000)
+                    .rowsPerSecond(rowsPerSecond(read.get(), elapsed))
+                    .errors(firstErrors(MAX_ERRORS_REPORTED))
+                    .message(message)
+                    .build();
+        }
+
+        private static long rowsPerSecond(long rows, long nanos) {
+            return nanos > 0 ? rows * 1_000_000_000L / nanos : 0;
+        }
+    }
+}
@@ -1,23 +1,34 @@
 package com.trafficlight.service;
 
+import com.trafficlight.dto.CursorPage;
+import com.trafficlight.dto.MetricAggregateResponse;
 import com.trafficlight.dto.MetricRequest;
 import com.trafficlight.dto.MetricResponse;
 import com.trafficlight.entity.Intersection;
 import com.trafficlight.entity.IntersectionMetric;
+import com.trafficlight.event.MetricDeletedEvent;
+import com.trafficlight.event.MetricRecordedEvent;
 import com.trafficlight.exception.BadRequestException;
 import com.trafficlight.exception.ResourceNotFoundException;
 import com.trafficlight.repository.IntersectionMetricRepository;
 import com.trafficlight.repository.IntersectionRepository;
+import com.trafficlight.util.CursorCodec;
+import com.trafficlight.util.PlannerRowEstimator;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
 import java.util.List;
-import java.util.stream.Collectors;
+import java.util.Map;
 
 /**
  * HAFTA 3 - Service Layer
@@ -31,8 +42,19 @@ import java.util.stream.Collectors;
 @Transactional(readOnly = true)
 public class MetricService {
 
+    public static final int DEFAULT_PAGE_SIZE = 50;
+    public static final int MAX_PAGE_SIZE = 500;
+
+    private static final LocalDate NEWEST_DATE = LocalDate.of(9999, 12, 31);
+    private static final LocalDate OLDEST_DATE = LocalDate.of(1, 1, 1);
+
     private final IntersectionMetricRepository metricRepository;
     private final IntersectionRepository intersectionRepository;
+    private final ApplicationEventPublisher eventPublisher;
+    private final DailyRollupService rollupService;
+    private final WaitTimeSketchService sketchService;
+    private final MetricColumnStore columnStore;
+    private final PlannerRowEstimator rowEstimator;
 
     // ==========================================
     // Metric Endpoints (HAFTA 3)
@@ -50,9 +72,7 @@ public class MetricService {
             throw new ResourceNotFoundException("Intersection", intersectionId);
         }
 
-        return metricRepository.findByIntersectionId(intersectionId).stream()
-            .map(MetricResponse::fromEntity)
-            .collect(Collectors.toList());
+        return metricRepository.findResponsesByIntersectionId(intersectionId);
     }
 
     /**
@@ -66,8 +86,53 @@ public class MetricService {
             throw new ResourceNotFoundException("Intersection", intersectionId);
         }
 
-        return metricRepository.findByIntersectionId(intersectionId, pageable)
-            .map(MetricResponse::fromEntity);
+        return metricRepository.findResponsesByIntersectionId(intersectionId, pageable);
+    }
+
+    /**
+     * Get metrics newest first with keyset pagination
+     * GET /intersections/:id/metrics/cursor?cursor=...&size=50
+     *
+     * Every page seeks straight to the last returned (date, hour, id) through
+     * idx_metrics_keyset instead of skipping OFFSET rows, and no COUNT query is run.
+     * A metric without hour sorts as hour -1 (after hour 0 of the same day).
+     *
+     * @param startDate     Optional lower bound (inclusive)
+     * @param endDate       Optional upper bound (inclusive)
+     * @param cursor        nextCursor of the previous page, null for the first page
+     * @param size          Page size (default 50, max 500)
+     * @param estimateTotal Add the planner's row estimate (PostgreSQL only)
+     * @throws BadRequestException for a bad range, size or cursor
+     */
+    public CursorPage<MetricResponse> getMetricsPage(Long intersectionId, LocalDate startDate, LocalDate endDate,
+                                                     String cursor, Integer size, boolean estimateTotal) {
+        if (!intersectionRepository.existsById(intersectionId)) {
+            throw new ResourceNotFoundException("Intersection", intersectionId);
+        }
+        if (startDate != null && endDate != null && startDate.isAfter(endDate)) {
+            throw new BadRequestException("Start date must be before or equal to end date");
+        }
+        int limit = pageSize(size);
+        MetricKey key = MetricKey.decode(cursor, endDate != null ? endDate : NEWEST_DATE);
+
+        List<MetricResponse> rows = metricRepository.findKeysetPage(intersectionId,
+                startDate != null ? startDate : OLDEST_DATE, key.date(), key.hour(), key.id(),
+                PageRequest.of(0, limit + 1));
+
+        boolean hasMore = rows.size() > limit;
+        List<MetricResponse> items = hasMore ? rows.subList(0, limit) : rows;
+        String nextCursor = null;
+        if (hasMore) {
+            MetricResponse last = items.get(items.size() - 1);
+            nextCursor = MetricKey.of(last).encode();
+        }
+        return CursorPage.<MetricResponse>builder()
+            .items(List.copyOf(items))
+            .nextCursor(nextCursor)
+            .hasMore(hasMore)
+            .size(limit)
+            .estimatedTotal(estimateTotal ? estimateMetricCount(intersectionId, startDate, endDate) : null)
+            .build();
     }
 
     /**
@@ -90,10 +155,7 @@ public class MetricService {
             throw new BadRequestException("Start date must be before or equal to end date");
         }
 
-        return metricRepository.findByIntersectionIdAndDateRange(intersectionId, startDate, endDate)
-            .stream()
-            .map(MetricResponse::fromEntity)
-            .collect(Collectors.toList());
+        return metricRepository.findResponsesByIntersectionIdAndDateRange(intersectionId, startDate, endDate);
     }
 
     /**
@@ -116,9 +178,8 @@ public class MetricService {
             throw new BadRequestException("Start date must be before or equal to end date");
         }
 
-        return metricRepository.findByIntersectionIdAndDateRange(
-            intersectionId, startDate, endDate, pageable)
-            .map(MetricResponse::fromEntity);
+        return metricRepository.findResponsesByIntersectionIdAndDateRange(
+            intersectionId, startDate, endDate, pageable);
     }
 
     /**
@@ -132,17 +193,6 @@ public class MetricService {
         Intersection intersection = intersectionRepository.findById(request.getIntersectionId())
             .orElseThrow(() -> new ResourceNotFoundException("Intersection", request.getIntersectionId()));
 
-        // Check for duplicate metric (same intersection, date, hour)
-        if (request.getMeasurementHour() != null) {
-            metricRepository.findByIntersectionIdAndMeasurementDateAndMeasurementHour(
-                request.getIntersectionId(), 
-                request.getMeasurementDate(), 
-                request.getMeasurementHour()
-            ).ifPresent(existing -> {
-                throw new BadRequestException("Metric already exists for this intersection, date and hour");
-            });
-        }
-
         IntersectionMetric metric = IntersectionMetric.builder()
             .intersection(intersection)
             .measurementDate(request.getMeasurementDate())
@@ -175,8 +225,18 @@ public class MetricService {
             .notes(request.getNotes())
             .build();
 
-        IntersectionMetric saved = metricRepository.save(metric);
+        // Duplicates (same intersection, date, hour) are rejected by unique_metric_period / unique_metric_day
+        // on insert instead of a select before it, which also holds for concurrent requests
+        IntersectionMetric saved;
+        try {
+            saved = metricRepository.saveAndFlush(metric);
+        } catch (DataIntegrityViolationException e) {
+            throw new BadRequestException("Metric already exists for this intersection, date and hour");
+        }
+        rollupService.recordCreated(saved);
+        sketchService.recordCreated(saved);
         log.info("Metric created successfully with id: {}", saved.getId());
+        eventPublisher.publishEvent(new MetricRecordedEvent(intersection.getId(), saved));
         
         return MetricResponse.fromEntity(saved);
     }
@@ -187,9 +247,8 @@ public class MetricService {
      */
     public MetricResponse getMetricById(Long id) {
         log.info("Fetching metric with id: {}", id);
-        IntersectionMetric metric = metricRepository.findById(id)
+        return metricRepository.findResponseById(id)
             .orElseThrow(() -> new ResourceNotFoundException("Metric", id));
-        return MetricResponse.fromEntity(metric);
     }
 
     /**
@@ -200,11 +259,13 @@ public class MetricService {
     public void deleteMetric(Long id) {
         log.info("Deleting metric with id: {}", id);
         
-        if (!metricRepository.existsById(id)) {
-            throw new ResourceNotFoundException("Metric", id);
-        }
+        IntersectionMetric metric = metricRepository.findById(id)
+            .orElseThrow(() -> new ResourceNotFoundException("Metric", id));
 
-        metricRepository.deleteById(id);
+        metricRepository.delete(metric);
+        rollupService.recordDeleted(metric);
+        sketchService.recordDeleted(metric);
+        eventPublisher.publishEvent(new MetricDeletedEvent(id, metric.getIntersection().getId(), metric.getMeasurementDate()));
         log.info("Metric deleted successfully with id: {}", id);
     }
 
@@ -252,10 +313,7 @@ public class MetricService {
             throw new ResourceNotFoundException("Intersection", intersectionId);
         }
 
-        return metricRepository.findMetricsWithAccidents(intersectionId, startDate, endDate)
-            .stream()
-            .map(MetricResponse::fromEntity)
-            .collect(Collectors.toList());
+        return metricRepository.findResponsesWithAccidents(intersectionId, startDate, endDate);
     }
 
     /**
@@ -272,10 +330,99 @@ public class MetricService {
             throw new ResourceNotFoundException("Intersection", intersectionId);
         }
 
-        return metricRepository.findMetricsWithViolations(intersectionId, startDate, endDate)
-            .stream()
-            .map(MetricResponse::fromEntity)
-            .collect(Collectors.toList());
+        return metricRepository.findResponsesWithViolations(intersectionId, startDate, endDate);
     }
-}
 
+    /**
+     * Aggregate one metric field over all intersections from the columnar store
+     * GET /metrics/aggregate?measure=WAIT_TIME&groupBy=CITY&startDate=...&endDate=...
+     */
+    public MetricAggregateResponse getAggregate(
+            MetricColumnStore.Measure measure,
+            MetricColumnStore.GroupBy groupBy,
+            LocalDate startDate,
+            LocalDate endDate) {
+
+        log.info("Aggregating {} by {} from {} to {}", measure, groupBy, startDate, endDate);
+
+        Map<?, MetricColumnStore.Aggregate> aggregates = switch (groupBy) {
+            case NONE -> Map.of("ALL", columnStore.total(measure, startDate, endDate));
+            case INTERSECTION -> columnStore.byIntersection(measure, startDate, endDate);
+            case CITY -> columnStore.byCity(measure, startDate, endDate);
+            case HOUR -> columnStore.byHour(measure, startDate, endDate);
+        };
+
+        List<MetricAggregateResponse.Group> groups = new ArrayList<>();
+        aggregates.forEach((key, aggregate) -> groups.add(MetricAggregateResponse.Group.builder()
+            .key(key)
+            .count(aggregate.count())
+            .sum(aggregate.sum())
+            .average(aggregate.average())
+            .min(aggregate.count() > 0 ? aggregate.min() : null)
+            .max(aggregate.count() > 0 ? aggregate.max() : null)
+            .build()));
+
+        return MetricAggregateResponse.builder()
+            .measure(measure.name())
+            .groupBy(groupBy.name())
+            .startDate(startDate)
+            .endDate(endDate)
+            .groups(groups)
+            .build();
+    }
+
+    // ==========================================
+    // Keyset pagination helpers
+    // ==========================================
+
+    private Long estimateMetricCount(Long intersectionId, LocalDate startDate, LocalDate endDate) {
+        StringBuilder sql = new StringBuilder("SELECT 1 FROM intersection_metrics WHERE intersection_id = ?");
+        List<Object> args = new ArrayList<>(List.of(intersectionId));
+        if (startDate != null) {
+            sql.append(" AND measurement_date >= ?");
+            args.add(startDate);
+        }
+        if (endDate != null) {
+            sql.append(" AND measurement_date <= ?");
+            args.add(endDate);
+        }
+        return rowEstimator.estimate(sql.toString(), args.toArray());
+    }
+
+    private static int pageSize(Integer size) {
+        if (size == null) {
+            return DEFAULT_PAGE_SIZE;
+        }
+        if (size < 1 || size > MAX_PAGE_SIZE) {
+            throw new BadRequestException("Page size must be between 1 and " + MAX_PAGE_SIZE + ": " + size);
+        }
+        return size;
+    }
+
+    /**
+     * Sort key of the last row on a page; hour 24 on the first page lets every hour of the end date through
+     */
+    private record MetricKey(LocalDate date, int hour, long id) {
+
+        private static MetricKey of(MetricResponse metric) {
+            Integer hour = metric.getMeasurementHour();
+            return new MetricKey(metric.getMeasurementDate(), hour != null ? hour : -1, metric.getId());
+        }
+
+        private String encode() {
+            return CursorCodec.encode(date, hour, id);
+        }
+
+        private static MetricKey decode(String cursor, LocalDate first) {
+            if (cursor == null || cursor.isBlank()) {
+                return new MetricKey(first, 24, Long.MIN_VALUE);
+            }
+            String[] parts = CursorCodec.decode(cursor, 3);
+            try {
+                return new MetricKey(LocalDate.parse(parts[0]), Integer.parseInt(parts[1]), Long.parseLong(parts[2]));
+            } catch (DateTimeParseException | NumberFormatException e) {
+                throw new BadRequestException("Geçersiz sayfa imleci: " + cursor);
+            }
+        }
+    }
+}
@@ -0,0 +1,480 @@
+package com.trafficlight.service;
+
+import com.trafficlight.dto.MetricRequest;
+import com.trafficlight.dto.MetricUpsertResult;
+import com.trafficlight.dto.MetricUpsertResult.Key;
+import com.trafficlight.exception.BadRequestException;
+import com.trafficlight.exception.ResourceNotFoundException;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Date;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Batch metric upsert
+ *
+ * Hourly collectors push the metrics of every intersection in one request. On
+ * PostgreSQL each group of rows is written by one multi-row
+ * INSERT ... ON CONFLICT statement, with unique_metric_period as the arbiter
+ * for hourly rows and the unique_metric_day partial index for daily (hourless)
+ * rows: no read before the write, and concurrent collectors cannot create
+ * duplicates. RETURNING tells inserted rows (xmax = 0) from merged ones.
+ *
+ * onConflict=REJECT keeps the stored row and reports the key; onConflict=ADD
+ * merges the new values into it (see Merge). A key repeated within the batch
+ * is rejected after its first row, or added to it in a following statement.
+ *
+ * Elsewhere (H2), and for daily rows when the partial index cannot be created,
+ * the same merge expressions run in a MERGE statement after one select of the
+ * stored keys; that path is not safe against concurrent writers.
+ *
+ * The batch is a single transaction. Daily rollups, wait-time sketches and the
+ * column store are rebuilt for the touched dates afterwards, as after a bulk
+ * import; no MetricRecordedEvent is published per row.
+ */
+@Service
+@Slf4j
+public class MetricUpsertService {
+
+    public enum OnConflict { REJECT, ADD }
+
+    public static final int MAX_BATCH_SIZE = 10_000;
+
+    /** 33 bind parameters per row, well below the PostgreSQL limit per statement */
+    private static final int ROWS_PER_STATEMENT = 500;
+    private static final int MAX_KEYS_REPORTED = 100;
+    private static final int MAX_ERRORS_REPORTED = 5;
+
+    /**
+     * How a stored value and a new value of the same key are combined with onConflict=ADD
+     */
+    private enum Merge {
+        KEY,              // part of the key, never updated
+        SUM,              // counts and totals
+        MAX,              // maxima
+        MIN,              // uptime and data quality: the worse of the two
+        VEHICLE_WEIGHTED, // averages, weighted by total_vehicle_count
+        KEEP              // stored value, the new one only when none is stored
+    }
+
+    /**
+     * Written columns, in statement order
+     */
+    private static final List<Column> COLUMNS = List.of(
+        new Column("intersection_id", "BIGINT", Merge.KEY, MetricRequest::getIntersectionId),
+        new Column("measurement_date", "DATE", Merge.KEY, request -> Date.valueOf(request.getMeasurementDate())),
+        new Column("measurement_hour", "INTEGER", Merge.KEY, MetricRequest::getMeasurementHour),
+        Column.count("total_vehicle_count", MetricRequest::getTotalVehicleCount),
+        Column.count("car_count", MetricRequest::getCarCount),
+        Column.count("truck_count", MetricRequest::getTruckCount),
+        Column.count("bus_count", MetricRequest::getBusCount),
+        Column.count("motorcycle_count", MetricRequest::getMotorcycleCount),
+        Column.count("bicycle_count", MetricRequest::getBicycleCount),
+        Column.count("pedestrian_count", MetricRequest::getPedestrianCount),
+        new Column("average_wait_time", "DECIMAL(10, 2)", Merge.VEHICLE_WEIGHTED, MetricRequest::getAverageWaitTime),
+        new Column("maximum_wait_time", "DECIMAL(10, 2)", Merge.MAX, MetricRequest::getMaximumWaitTime),
+        new Column("average_queue_length", "DECIMAL(10, 2)", Merge.VEHICLE_WEIGHTED, MetricRequest::getAverageQueueLength),
+        new Column("maximum_queue_length", "INTEGER", Merge.MAX, MetricRequest::getMaximumQueueLength),
+        new Column("throughput", "INTEGER", Merge.SUM, MetricRequest::getThroughput),
+        new Column("green_time_utilization", "DECIMAL(5, 2)", Merge.VEHICLE_WEIGHTED, MetricRequest::getGreenTimeUtilization),
+        Column.count("red_light_violations", MetricRequest::getRedLightViolations),
+        Column.count("yellow_light_violations", MetricRequest::getYellowLightViolations),
+        Column.count("pedestrian_violations", MetricRequest::getPedestrianViolations),
+        Column.count("accidents_count", MetricRequest::getAccidentsCount),
+        Column.count("near_miss_count", MetricRequest::getNearMissCount),
+        Column.count("emergency_vehicle_passages", MetricRequest::getEmergencyVehiclePassages),
+        new Column("system_uptime_percentage", "DECIMAL(5, 2)", Merge.MIN, MetricRequest::getSystemUptimePercentage),
+        Column.count("malfunction_count", MetricRequest::getMalfunctionCount),
+        Column.count("manual_override_count", MetricRequest::getManualOverrideCount),
+        new Column("estimated_co2_emission", "DECIMAL(10, 2)", Merge.SUM, MetricRequest::getEstimatedCo2Emission),
+        new Column("estimated_fuel_consumption", "DECIMAL(10, 2)", Merge.SUM, MetricRequest::getEstimatedFuelConsumption),
+        new Column("data_quality_score", "DECIMAL(3, 2)", Merge.MIN, MetricRequest::getDataQualityScore),
+        new Column("notes", "VARCHAR", Merge.KEEP, MetricRequest::getNotes)
+    );
+
+    private static final String INSERT_COLUMNS = COLUMNS.stream().map(Column::name)
+            .collect(Collectors.joining(", ")) + ", created_at, updated_at";
+
+    private static final String ROW_PLACEHOLDERS = "(" + "?, ".repeat(COLUMNS.size() + 1) + "?)";
+
+    /** One source row of the MERGE path; casts give the untyped parameters their column types */
+    private static final String SOURCE_ROW = "SELECT " + COLUMNS.stream()
+            .map(column -> "CAST(? AS " + column.sqlType() + ") AS " + column.name())
+            .collect(Collectors.joining(", ")) + ", CAST(? AS TIMESTAMP) AS created_at, CAST(? AS TIMESTAMP) AS updated_at";
+
+    private final NamedParameterJdbcTemplate namedJdbcTemplate;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final Validator validator;
+    private final DailyRollupService rollupService;
+    private final WaitTimeSketchService sketchService;
+    private final MetricColumnStore columnStore;
+
+    private volatile Boolean postgres; // null until the daily index has been checked
+    private boolean dailyIndex;
+
+    public MetricUpsertService(
+            NamedParameterJdbcTemplate namedJdbcTemplate,
+            PlatformTransactionManager transactionManager,
+            Validator validator,
+            DailyRollupService rollupService,
+            WaitTimeSketchService sketchService,
+            MetricColumnStore columnStore) {
+        this.namedJdbcTemplate = namedJdbcTemplate;
+        this.jdbcTemplate = namedJdbcTemplate.getJdbcTemplate();
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.validator = validator;
+        this.rollupService = rollupService;
+        this.sketchService = sketchService;
+        this.columnStore = columnStore;
+    }
+
+    // ==========================================
+    // Upsert
+    // ==========================================
+
+    /**
+     * Insert a batch of metrics, rejecting or adding to the ones whose key is already stored
+     *
+     * @return the counts and the first rejected keys
+     * @throws BadRequestException for an empty, oversized or invalid batch
+     * @throws ResourceNotFoundException when an intersection does not exist
+     */
+    public MetricUpsertResult upsert(List<MetricRequest> requests, OnConflict onConflict) {
+        long begin = System.nanoTime();
+        validate(requests);
+        ensureDailyIndex();
+
+        Outcome outcome = new Outcome();
+        transactionTemplate.executeWithoutResult(status -> {
+            checkIntersections(requests);
+            Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+            Set<Key> stored = null;
+            for (boolean daily : new boolean[]{false, true}) {
+                List<MetricRequest> rows = requests.stream()
+                        .filter(request -> (request.getMeasurementHour() == null) == daily)
+                        .toList();
+                if (rows.isEmpty()) {
+                    continue;
+                }
+                boolean onConflictClause = Boolean.TRUE.equals(postgres) && (!daily || dailyIndex);
+                if (!onConflictClause && stored == null) {
+                    stored = storedKeys(requests);
+                }
+                for (List<MetricRequest> round : rounds(rows, onConflict, outcome)) {
+                    for (int from = 0; from < round.size(); from += ROWS_PER_STATEMENT) {
+                        List<MetricRequest> chunk = round.subList(from, Math.min(from + ROWS_PER_STATEMENT, round.size()));
+                        if (onConflictClause) {
+                            insertOnConflict(chunk, daily, onConflict, now, outcome);
+                        } else {
+                            merge(chunk, onConflict, now, stored, outcome);
+                        }
+                    }
+                }
+            }
+        });
+
+        LocalDate firstDate = requests.stream().map(MetricRequest::getMeasurementDate)
+                .min(Comparator.naturalOrder()).orElseThrow();
+        LocalDate lastDate = requests.stream().map(MetricRequest::getMeasurementDate)
+                .max(Comparator.naturalOrder()).orElseThrow();
+        if (outcome.inserted + outcome.merged > 0) {
+            refreshDerivedData(firstDate, lastDate);
+        }
+        MetricUpsertResult result = MetricUpsertResult.builder()
+                .onConflict(onConflict.name())
+                .received(requests.size())
+                .inserted(outcome.inserted)
+                .merged(outcome.merged)
+                .rejected(outcome.rejected)
+                .rejectedKeys(outcome.rejectedKeys)
+                .firstDate(firstDate)
+                .lastDate(lastDate)
+                .durationMs((System.nanoTime() - begin) / 1_000_000)
+                .build();
+        log.info("Metric batch upserted (onConflict={}): {} received, {} inserted, {} merged, {} rejected in {} ms",
+                onConflict, result.getReceived(), result.getInserted(), result.getMerged(), result.getRejected(),
+                result.getDurationMs());
+        return result;
+    }
+
+    private void validate(List<MetricRequest> requests) {
+        if (requests == null || requests.isEmpty()) {
+            throw new BadRequestException("At least one metric is required");
+        }
+        if (requests.size() > MAX_BATCH_SIZE) {
+            throw new BadRequestException("A batch must not exceed " + MAX_BATCH_SIZE + " metrics");
+        }
+        List<String> errors = new ArrayList<>();
+        for (int i = 0; i < requests.size() && errors.size() < MAX_ERRORS_REPORTED; i++) {
+            if (requests.get(i) == null) {
+                errors.add("metric " + i + ": missing");
+                continue;
+            }
+            for (ConstraintViolation<MetricRequest> violation : validator.validate(requests.get(i))) {
+                errors.add("metric " + i + " " + violation.getPropertyPath() + ": " + violation.getMessage());
+            }
+        }
+        if (!errors.isEmpty()) {
+            throw new BadRequestException("Invalid metrics: "
+                    + String.join("; ", errors.subList(0, Math.min(MAX_ERRORS_REPORTED, errors.size()))));
+        }
+    }
+
+    private void checkIntersections(List<MetricRequest> requests) {
+        Set<Long> missing = requests.stream().map(MetricRequest::getIntersectionId)
+                .collect(Collectors.toCollection(TreeSet::new));
+        missing.removeAll(namedJdbcTemplate.queryForList("SELECT id FROM intersections WHERE id IN (:ids)",
+                Map.of("ids", missing), Long.class));
+        if (!missing.isEmpty()) {
+            throw new ResourceNotFoundException("Intersections not found: " + missing);
+        }
+    }
+
+    /**
+     * Split rows into rounds without repeated keys: a statement may not touch the same row twice.
+     * With REJECT a repeated key is rejected at once, its first row decides
+     */
+    private static List<List<MetricRequest>> rounds(List<MetricRequest> rows, OnConflict onConflict, Outcome outcome) {
+        List<List<MetricRequest>> rounds = new ArrayList<>();
+        Map<Key, Integer> seen = new HashMap<>();
+        for (MetricRequest row : rows) {
+            Key key = key(row);
+            int round = seen.merge(key, 1, Integer::sum) - 1;
+            if (round > 0 && onConflict == OnConflict.REJECT) {
+                outcome.reject(key);
+                continue;
+            }
+            if (round == rounds.size()) {
+                rounds.add(new ArrayList<>());
+            }
+            rounds.get(round).add(row);
+        }
+        return rounds;
+    }
+
+    /**
+     * PostgreSQL: one INSERT ... ON CONFLICT per chunk; keys missing from RETURNING were rejected
+     */
+    private void insertOnConflict(List<MetricRequest> chunk, boolean daily, OnConflict onConflict,
+                                  Timestamp now, Outcome outcome) {
+        StringBuilder sql = new StringBuilder("INSERT INTO intersection_metrics AS target (")
+                .append(INSERT_COLUMNS).append(") VALUES ");
+        for (int i = 0; i < chunk.size(); i++) {
+            sql.append(i > 0 ? ", " : "").append(ROW_PLACEHOLDERS);
+        }
+        sql.append(daily
+                ? " ON CONFLICT (intersection_id, measurement_date) WHERE measurement_hour IS NULL"
+                : " ON CONFLICT (intersection_id, measurement_date, measurement_hour)");
+        sql.append(onConflict == OnConflict.REJECT
+                ? " DO NOTHING"
+                : " DO UPDATE SET " + assignments("target", "EXCLUDED") + ", updated_at = EXCLUDED.updated_at");
+        sql.append(" RETURNING intersection_id, measurement_date, measurement_hour, (xmax = 0) AS inserted");
+
+        Set<Key> written = new HashSet<>();
+        jdbcTemplate.query(sql.toString(), rs -> {
+            written.add(new Key(rs.getLong("intersection_id"), rs.getObject("measurement_date", LocalDate.class),
+                    rs.getObject("measurement_hour", Integer.class)));
+            if (rs.getBoolean("inserted")) {
+                outcome.inserted++;
+            } else {
+                outcome.merged++;
+            }
+        }, arguments(chunk, now));
+        for (MetricRequest row : chunk) {
+            if (!written.contains(key(row))) {
+                outcome.reject(key(row));
+            }
+        }
+    }
+
+    /**
+     * MERGE path: the outcome of each row comes from the keys stored before the batch
+     */
+    private void merge(List<MetricRequest> chunk, OnConflict onConflict, Timestamp now, Set<Key> stored,
+                       Outcome outcome) {
+        for (MetricRequest row : chunk) {
+            Key key = key(row);
+            if (stored.add(key)) {
+                outcome.inserted++;
+            } else if (onConflict == OnConflict.ADD) {
+                outcome.merged++;
+            } else {
+                outcome.reject(key);
+            }
+        }
+        StringBuilder sql = new StringBuilder("MERGE INTO intersection_metrics target USING (");
+        for (int i = 0; i < chunk.size(); i++) {
+            sql.append(i > 0 ? " UNION ALL " : "").append(SOURCE_ROW);
+        }
+        sql.append(") source ON target.intersection_id = source.intersection_id ")
+                .append("AND target.measurement_date = source.measurement_date ")
+                .append("AND target.measurement_hour IS NOT DISTINCT FROM source.measurement_hour ");
+        if (onConflict == OnConflict.ADD) {
+            sql.append("WHEN MATCHED THEN UPDATE SET ").append(assignments("target", "source"))
+                    .append(", updated_at = source.updated_at ");
+        }
+        sql.append("WHEN NOT MATCHED THEN INSERT (").append(INSERT_COLUMNS).append(") VALUES (source.")
+                .append(INSERT_COLUMNS.replace(", ", ", source.")).append(")");
+        jdbcTemplate.update(sql.toString(), arguments(chunk, now));
+    }
+
+    private Set<Key> storedKeys(List<MetricRequest> requests) {
+        Map<String, Object> params = Map.of(
+                "ids", requests.stream().map(MetricRequest::getIntersectionId).collect(Collectors.toSet()),
+                "dates", requests.stream().map(MetricRequest::getMeasurementDate).collect(Collectors.toSet()));
+        Set<Key> stored = new HashSet<>();
+        namedJdbcTemplate.query("SELECT intersection_id, measurement_date, measurement_hour FROM intersection_metrics "
+                + "WHERE intersection_id IN (:ids) AND measurement_date IN (:dates)", params, rs -> {
+            stored.add(new Key(rs.getLong("intersection_id"), rs.getObject("measurement_date", LocalDate.class),
+                    rs.getObject("measurement_hour", Integer.class)));
+        });
+        return stored;
+    }
+
+    private static String assignments(String target, String source) {
+        return COLUMNS.stream()
+                .filter(column -> column.merge() != Merge.KEY)
+                .map(column -> column.name() + " = " + column.expression(target, source))
+                .collect(Collectors.joining(", "));
+    }
+
+    private static Object[] arguments(List<MetricRequest> rows, Timestamp now) {
+        Object[] arguments = new Object[rows.size() * (COLUMNS.size() + 2)];
+        int i = 0;
+        for (MetricRequest row : rows) {
+            for (Column column : COLUMNS) {
+                arguments[i++] = column.value().apply(row);
+            }
+            arguments[i++] = now;
+            arguments[i++] = now;
+        }
+        return arguments;
+    }
+
+    private static Key key(MetricRequest request) {
+        return new Key(request.getIntersectionId(), request.getMeasurementDate(), request.getMeasurementHour());
+    }
+
+    private void refreshDerivedData(LocalDate firstDate, LocalDate lastDate) {
+        try {
+            rollupService.backfill(firstDate, lastDate);
+            sketchService.backfill(firstDate, lastDate);
+        } catch (BadRequestException e) {
+            log.warn("Daily rollups and wait-time sketches not rebuilt after batch upsert ({}); run the backfill in ranges",
+                    e.getMessage());
+        } catch (RuntimeException e) {
+            // The metrics are committed; the nightly reconcile rebuilds the recent days
+            log.error("Daily rollups and wait-time sketches not rebuilt after batch upsert for {} - {}, " +
+                    "left to the nightly reconcile or POST /api/admin/rollups/backfill", firstDate, lastDate, e);
+        }
+        columnStore.reloadFrom(firstDate);
+    }
+
+    /**
+     * Create the daily partial index when the migration has not run (Hibernate-managed schemas).
+     * It cannot be created while duplicate daily rows exist; those are then merged without it
+     */
+    private void ensureDailyIndex() {
+        if (postgres != null) {
+            return;
+        }
+        synchronized (this) {
+            if (postgres != null) {
+                return;
+            }
+            boolean isPostgres = Boolean.TRUE.equals(jdbcTemplate.execute((ConnectionCallback<Boolean>) connection ->
+                    "PostgreSQL".equals(connection.getMetaData().getDatabaseProductName())));
+            if (isPostgres) {
+                try {
+                    jdbcTemplate.execute("CREATE UNIQUE INDEX IF NOT EXISTS unique_metric_day "
+                            + "ON intersection_metrics (intersection_id, measurement_date) WHERE measurement_hour IS NULL");
+                    dailyIndex = true;
+                } catch (DataAccessException e) {
+                    log.warn("unique_metric_day not created ({}); daily metrics are merged without ON CONFLICT "
+                            + "until V17 has run", e.getMostSpecificCause().getMessage());
+                }
+            }
+            postgres = isPostgres;
+        }
+    }
+
+    // ==========================================
+    // Columns
+    // ==========================================
+
+    private record Column(String name, String sqlType, Merge merge, Function<MetricRequest, Object> value) {
+
+        /** Counts default to 0, as in MetricService.createMetric() */
+        static Column count(String name, Function<MetricRequest, Integer> getter) {
+            return new Column(name, "INTEGER", Merge.SUM, request -> {
+                Integer count = getter.apply(request);
+                return count != null ? count : 0;
+            });
+        }
+
+        /**
+         * SET expression combining the stored row (target) with the new one (source); null never wins over a value
+         */
+        String expression(String target, String source) {
+            String stored = target + "." + name;
+            String added = source + "." + name;
+            return switch (merge) {
+                case SUM -> "CASE WHEN " + added + " IS NULL THEN " + stored + " WHEN " + stored + " IS NULL THEN "
+                        + added + " ELSE " + stored + " + " + added + " END";
+                case MAX -> "CASE WHEN " + added + " IS NULL OR " + added + " < " + stored + " THEN " + stored
+                        + " ELSE " + added + " END";
+                case MIN -> "CASE WHEN " + added + " IS NULL OR " + added + " > " + stored + " THEN " + stored
+                        + " ELSE " + added + " END";
+                case VEHICLE_WEIGHTED -> {
+                    String storedVehicles = "COALESCE(" + target + ".total_vehicle_count, 0)";
+                    String addedVehicles = source + ".total_vehicle_count";
+                    yield "CASE WHEN " + added + " IS NULL THEN " + stored + " WHEN " + stored + " IS NULL THEN "
+                            + added + " WHEN " + storedVehicles + " + " + addedVehicles + " = 0 THEN " + stored
+                            + " ELSE ROUND((" + stored + " * " + storedVehicles + " + " + added + " * " + addedVehicles
+                            + ") / (" + storedVehicles + " + " + addedVehicles + "), 2) END";
+                }
+                case KEEP -> "COALESCE(" + stored + ", " + added + ")";
+                case KEY -> throw new IllegalStateException("Key column " + name + " is never updated");
+            };
+        }
+    }
+
+    /**
+     * Counts of one batch, filled inside the transaction
+     */
+    private static final class Outcome {
+        private int inserted;
+        private int merged;
+        private int rejected;
+        private final List<Key> rejectedKeys = new ArrayList<>();
+
+        void reject(Key key) {
+            rejected++;
+            if (rejectedKeys.size() < MAX_KEYS_REPORTED) {
+                rejectedKeys.add(key);
+            }
+        }
+    }
+}
@@ -0,0 +1,271 @@
+package com.trafficlight.service;
+
+import com.trafficlight.dto.MultiObjectiveRequest;
+import com.trafficlight.dto.MultiObjectiveResponse;
+import com.trafficlight.entity.Intersection;
+import com.trafficlight.entity.IntersectionConfig;
+import com.trafficlight.entity.IntersectionMetric;
+import com.trafficlight.exception.BadRequestException;
+import com.trafficlight.exception.ResourceNotFoundException;
+import com.trafficlight.repository.IntersectionConfigRepository;
+import com.trafficlight.repository.IntersectionMetricRepository;
+import com.trafficlight.repository.IntersectionRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+import java.util.function.ToDoubleFunction;
+import java.util.stream.Collectors;
+
+/**
+ * Çok amaçlı yeşil süre optimizasyonu.
+ *
+ * Gecikme, CO2 emisyonu ve yaya bekleme süresini birlikte ele alır:
+ * 1. Kavşak için surrogate model (önbellekten veya geçmiş metriklerden)
+ * 2. Seçilen motor ile adayların paralel değerlendirilmesi
+ * 3. Pareto cephesinin çıkarılması
+ * 4. Normalize edilmiş ağırlıklı skora göre sıralama
+ */
+@Service
+@Slf4j
+public class MultiObjectiveOptimizationService {
+
+    private final IntersectionRepository intersectionRepository;
+    private final IntersectionMetricRepository metricRepository;
+    private final IntersectionConfigRepository configRepository;
+    private final Map<String, TimingOptimizationEngine> engines;
+    private final Map<Long, CachedModel> modelCache = new ConcurrentHashMap<>();
+
+    private final String defaultEngine;
+    private final long modelTtlMillis;
+    private final long latencyBudgetMillis;
+
+    public MultiObjectiveOptimizationService(
+            IntersectionRepository intersectionRepository,
+            IntersectionMetricRepository metricRepository,
+            IntersectionConfigRepository configRepository,
+            List<TimingOptimizationEngine> engines,
+            @Value("${traffic.optimization.default-engine:" + GridSearchTimingEngine.NAME + "}") String defaultEngine,
+            @Value("${traffic.optimization.model-ttl-minutes:15}") long modelTtlMinutes,
+            @Value("${traffic.optimization.latency-budget-ms:50}") long latencyBudgetMillis) {
+        this.intersectionRepository = intersectionRepository;
+        this.metricRepository = metricRepository;
+        this.configRepository = configRepository;
+        this.engines = engines.stream()
+                .collect(Collectors.toMap(TimingOptimizationEngine::getName, Function.identity()));
+        this.defaultEngine = defaultEngine;
+        this.modelTtlMillis = modelTtlMinutes * 60_000L;
+        this.latencyBudgetMillis = latencyBudgetMillis;
+    }
+
+    /**
+     * Pareto alternatiflerini hesapla
+     */
+    @Transactional(readOnly = true)
+    public MultiObjectiveResponse optimize(MultiObjectiveRequest request) {
+        long start = System.nanoTime();
+
+        double weightSum = request.getDelayWeight() + request.getEmissionWeight() + request.getPedestrianWeight();
+        if (weightSum <= 0) {
+            throw new BadRequestException("En az bir amaç ağırlığı sıfırdan büyük olmalıdır");
+        }
+
+        String engineName = request.getEngine() != null ? request.getEngine() : defaultEngine;
+        TimingOptimizationEngine engine = engines.get(engineName);
+        if (engine == null) {
+            throw new BadRequestException("Bilinmeyen optimizasyon motoru: " + engineName
+                    + " (mevcut: " + engines.keySet() + ")");
+        }
+
+        Intersection intersection = intersectionRepository.findById(request.getIntersectionId())
+                .orElseThrow(() -> new ResourceNotFoundException("Intersection", request.getIntersectionId()));
+
+        IntersectionConfig config = findActiveConfig(intersection.getId());
+        TimingSearchSpace space = TimingSearchSpace.fromConfig(config);
+        CachedModel cached = getOrFitModel(intersection, config, space, request);
+
+        // 1. Adayları değerlendir
+        List<TimingCandidate> candidates = engine.evaluate(cached.model(), space);
+        if (candidates.isEmpty()) {
+            throw new BadRequestException("Kavşak konfigürasyonu için geçerli bir yeşil süre bölüşümü bulunamadı");
+        }
+
+        // 2. Pareto cephesi
+        List<TimingCandidate> front = paretoFront(candidates);
+
+        // 3. Ağırlıklı skor ile sırala
+        List<MultiObjectiveResponse.TimingAlternative> ranked = rank(front, request, weightSum);
+        List<MultiObjectiveResponse.TimingAlternative> alternatives = ranked.stream()
+                .limit(request.getMaxAlternatives())
+                .collect(Collectors.toList());
+
+        long elapsedMs = (System.nanoTime() - start) / 1_000_000;
+        boolean withinBudget = elapsedMs <= latencyBudgetMillis;
+        if (!withinBudget) {
+            log.warn("⏱️ Çok amaçlı optimizasyon bütçeyi aştı - Kavşak: {}, Süre: {}ms, Bütçe: {}ms",
+                    intersection.getId(), elapsedMs, latencyBudgetMillis);
+        }
+
+        log.info("🎯 Çok amaçlı optimizasyon - Kavşak: {}, Aday: {}, Pareto: {}, Süre: {}ms",
+                intersection.getId(), candidates.size(), front.size(), elapsedMs);
+
+        return MultiObjectiveResponse.builder()
+                .intersectionId(intersection.getId())
+                .engine(engine.getName())
+                .recommended(alternatives.get(0))
+                .alternatives(alternatives)
+                .model(MultiObjectiveResponse.ModelInfo.builder()
+                        .sampleCount(cached.model().getSampleCount())
+                        .hourlyDemand(round(cached.model().getHourlyDemand()))
+                        .delayCalibration(round(cached.model().getDelayCalibration()))
+                        .co2PerVehicleHourDelay(round(cached.model().getCo2PerVehicleHour()))
+                        .fittedAt(cached.fittedAt())
+                        .build())
+                .evaluatedCandidates(candidates.size())
+                .paretoFrontSize(front.size())
+                .elapsedMs(elapsedMs)
+                .withinLatencyBudget(withinBudget)
+                .generatedAt(LocalDateTime.now())
+                .build();
+    }
+
+    /**
+     * Kavşağın önbellekteki modelini geçersiz kıl
+     */
+    public void evictModel(Long intersectionId) {
+        modelCache.remove(intersectionId);
+    }
+
+    /**
+     * Domine edilmeyen adaylar.
+     * Adaylar gecikmeye göre sıralanır; bir aday ancak kendisinden önce gelen
+     * (gecikmesi daha düşük veya eşit) bir cephe elemanı tarafından domine edilebilir.
+     */
+    static List<TimingCandidate> paretoFront(List<TimingCandidate> candidates) {
+        List<TimingCandidate> sorted = new ArrayList<>(candidates);
+        sorted.sort(Comparator.comparingDouble(TimingCandidate::delay)
+                .thenComparingDouble(TimingCandidate::co2)
+                .thenComparingDouble(TimingCandidate::pedestrianWait));
+
+        List<TimingCandidate> front = new ArrayList<>();
+        for (TimingCandidate candidate : sorted) {
+            boolean dominated = false;
+            for (TimingCandidate member : front) {
+                if (member.dominates(candidate)) {
+                    dominated = true;
+                    break;
+                }
+            }
+            if (!dominated) {
+                front.add(candidate);
+            }
+        }
+        return front;
+    }
+
+    /**
+     * Amaçları cephe içinde min-max normalize et ve ağırlıklı skora göre sırala
+     */
+    private List<MultiObjectiveResponse.TimingAlternative> rank(List<TimingCandidate> front,
+                                                                 MultiObjectiveRequest request,
+                                                                 double weightSum) {
+        double[] delayRange = range(front, TimingCandidate::delay);
+        double[] co2Range = range(front, TimingCandidate::co2);
+        double[] pedestrianRange = range(front, TimingCandidate::pedestrianWait);
+
+        double wDelay = request.getDelayWeight() / weightSum;
+        double wCo2 = request.getEmissionWeight() / weightSum;
+        double wPedestrian = request.getPedestrianWeight() / weightSum;
+
+        return front.stream()
+                .map(c -> MultiObjectiveResponse.TimingAlternative.builder()
+                        .cycleLength(c.cycleLength())
+                        .mainGreen(c.mainGreen())
+                        .crossGreen(c.crossGreen())
+                        .predictedDelay(round(c.delay()))
+                        .predictedCo2(round(c.co2()))
+                        .predictedPedestrianWait(round(c.pedestrianWait()))
+                        .weightedScore(wDelay * normalize(c.delay(), delayRange)
+                                + wCo2 * normalize(c.co2(), co2Range)
+                                + wPedestrian * normalize(c.pedestrianWait(), pedestrianRange))
+                        .build())
+                .sorted(Comparator.comparingDouble(MultiObjectiveResponse.TimingAlternative::getWeightedScore))
+                .peek(a -> a.setWeightedScore(round(a.getWeightedScore())))
+                .collect(Collectors.toList());
+    }
+
+    private CachedModel getOrFitModel(Intersection intersection, IntersectionConfig config,
+                                      TimingSearchSpace space, MultiObjectiveRequest request) {
+        long now = System.currentTimeMillis();
+        CachedModel cached = modelCache.get(intersection.getId());
+        if (cached != null
+                && now - cached.createdAtMillis() < modelTtlMillis
+                && cached.lookbackDays() == request.getLookbackDays()
+                && cached.mainShare() == request.getMainApproachShare()) {
+            return cached;
+        }
+
+        LocalDate endDate = LocalDate.now();
+        LocalDate startDate = endDate.minusDays(request.getLookbackDays());
+        List<IntersectionMetric> metrics = metricRepository.findByIntersectionIdAndDateRange(
+                intersection.getId(), startDate, endDate);
+
+        int currentCycle = config != null && config.getCycleLength() != null ? config.getCycleLength() : 90;
+        int currentGreen = config != null && config.getGreenLightDuration() != null
+                ? config.getGreenLightDuration() : 30;
+        int lanes = intersection.getLanesCount() != null ? intersection.getLanesCount() : 4;
+
+        TrafficSurrogateModel model = TrafficSurrogateModel.fit(metrics, lanes, request.getMainApproachShare(),
+                currentCycle, currentGreen, space.lostTimePerCycle());
+
+        CachedModel fresh = new CachedModel(model, request.getLookbackDays(), request.getMainApproachShare(),
+                now, LocalDateTime.now());
+        modelCache.put(intersection.getId(), fresh);
+        log.debug("📈 Surrogate model eğitildi - Kavşak: {}, Örnek: {}", intersection.getId(), metrics.size());
+        return fresh;
+    }
+
+    /**
+     * Aktif konfigürasyonlardan en yenisi (birden fazla aktif kayıt olabilir)
+     */
+    private IntersectionConfig findActiveConfig(Long intersectionId) {
+        return configRepository.findByIntersectionId(intersectionId).stream()
+                .filter(c -> Boolean.TRUE.equals(c.getIsActive()))
+                .max(Comparator.comparing(IntersectionConfig::getCreatedAt,
+                        Comparator.nullsFirst(Comparator.naturalOrder())))
+                .orElse(null);
+    }
+
+    private static double[] range(List<TimingCandidate> front, ToDoubleFunction<TimingCandidate> f) {
+        double min = Double.MAX_VALUE;
+        double max = -Double.MAX_VALUE;
+        for (TimingCandidate c : front) {
+            double v = f.applyAsDouble(c);
+            min = Math.min(min, v);
+            max = Math.max(max, v);
+        }
+        return new double[]{min, max};
+    }
+
+    private static double normalize(double value, double[] range) {
+        double span = range[1] - range[0];
+        return span > 1e-9 ? (value - range[0]) / span : 0.0;
+    }
+
+    private static double round(double value) {
+        return Math.round(value * 100.0) / 100.0;
+    }
+
+    private record CachedModel(TrafficSurrogateModel model, int lookbackDays, double mainShare,
+                               long createdAtMillis, LocalDateTime fittedAt) {
+    }
+}
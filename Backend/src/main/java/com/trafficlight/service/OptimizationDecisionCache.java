@@ -0,0 +1,140 @@
+package com.trafficlight.service;
+
+import com.trafficlight.dto.OptimizationResponse;
+import com.trafficlight.entity.TrafficRule;
+import com.trafficlight.event.RuleSetChangedEvent;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Optimizasyon kararları için sınırlı (LRU) önbellek.
+ *
+ * Anahtar: (kavşak, yoğunluk dilimi, kural seti versiyonu, zaman aralığı, gün tipi).
+ * Aynı anahtara düşen istekler aynı kuralı seçer ve aynı yeşil süreyi üretir;
+ * bu yüzden kural değerlendirmesi ve sabit response parçaları tekrar kullanılır.
+ * Kural seti değiştiğinde önbellek tamamen boşaltılır.
+ *
+ * Metrikler: optimization.decision.cache.{hits,misses,size,hit.ratio}
+ */
+@Component
+@Slf4j
+public class OptimizationDecisionCache {
+
+    private final boolean enabled;
+    private final long ttlMillis;
+    private final Map<DecisionKey, Entry> entries;
+    private final Counter hits;
+    private final Counter misses;
+
+    public OptimizationDecisionCache(
+            MeterRegistry meterRegistry,
+            @Value("${traffic.optimization.decision-cache.enabled:true}") boolean enabled,
+            @Value("${traffic.optimization.decision-cache.max-entries:10000}") int maxEntries,
+            @Value("${traffic.optimization.decision-cache.ttl-seconds:300}") long ttlSeconds) {
+        this.enabled = enabled;
+        this.ttlMillis = ttlSeconds * 1000L;
+        this.entries = new LinkedHashMap<>(256, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<DecisionKey, Entry> eldest) {
+                return size() > maxEntries;
+            }
+        };
+        this.hits = Counter.builder("optimization.decision.cache.hits")
+                .description("Optimization decisions served from cache")
+                .register(meterRegistry);
+        this.misses = Counter.builder("optimization.decision.cache.misses")
+                .description("Optimization decisions computed from rules")
+                .register(meterRegistry);
+        Gauge.builder("optimization.decision.cache.size", this, OptimizationDecisionCache::size)
+                .description("Cached optimization decisions")
+                .register(meterRegistry);
+        Gauge.builder("optimization.decision.cache.hit.ratio", this, OptimizationDecisionCache::hitRatio)
+                .description("Decision cache hit ratio since startup")
+                .register(meterRegistry);
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public CachedDecision get(DecisionKey key) {
+        Entry entry;
+        synchronized (entries) {
+            entry = entries.get(key);
+            if (entry != null && System.currentTimeMillis() - entry.createdAtMillis() > ttlMillis) {
+                entries.remove(key);
+                entry = null;
+            }
+        }
+        if (entry == null) {
+            misses.increment();
+            return null;
+        }
+        hits.increment();
+        return entry.decision();
+    }
+
+    public void put(DecisionKey key, CachedDecision decision) {
+        synchronized (entries) {
+            entries.put(key, new Entry(decision, System.currentTimeMillis()));
+        }
+    }
+
+    /**
+     * Kural seti değişti → tüm kararlar geçersiz
+     */
+    @EventListener
+    public void onRuleSetChanged(RuleSetChangedEvent event) {
+        int evicted;
+        synchronized (entries) {
+            evicted = entries.size();
+            entries.clear();
+        }
+        if (evicted > 0) {
+            log.info("🧹 Karar önbelleği temizlendi - {} kayıt (kural seti v{})", evicted, event.version());
+        }
+    }
+
+    public int size() {
+        synchronized (entries) {
+            return entries.size();
+        }
+    }
+
+    public double hitRatio() {
+        double total = hits.count() + misses.count();
+        return total > 0 ? hits.count() / total : 0.0;
+    }
+
+    /**
+     * Önbellek anahtarı
+     */
+    public record DecisionKey(long intersectionId, int densityBucket, long ruleSetVersion, int timeSlot,
+                              boolean weekend) {
+    }
+
+    /**
+     * İstekten bağımsız karar parçaları.
+     * selectedRule null ise uygulanabilir kural yoktur.
+     */
+    public record CachedDecision(
+            TrafficRule selectedRule,
+            List<OptimizationResponse.AppliedRule> appliedRules,
+            int previousDuration,
+            int newDuration,
+            String densityLevel,
+            OptimizationResponse.PerformanceMetrics performance) {
+    }
+
+    private record Entry(CachedDecision decision, long createdAtMillis) {
+    }
+}
@@ -0,0 +1,66 @@
+package com.trafficlight.service;
+
+import com.trafficlight.entity.EmergencyVehicle;
+
+import java.util.List;
+
+/**
+ * Acil araç için rota üzerindeki kademeli yeşil pencereler.
+ * Süreler plan anına göre saniyedir.
+ *
+ * @param originIntersectionId aracın tespit edildiği kavşak
+ * @param heading              aracın gittiği yön
+ * @param speedKmh             planlamada kullanılan hız
+ * @param windows              kavşak başına yeşil pencere (ilk eleman başlangıç kavşağı)
+ * @param planningNanos        plan hesaplama süresi
+ */
+public record PreemptionPlan(
+        long originIntersectionId,
+        EmergencyVehicle.Direction heading,
+        double speedKmh,
+        List<Window> windows,
+        long planningNanos) {
+
+    /**
+     * @param distanceMeters    başlangıç kavşağından rota mesafesi
+     * @param etaSeconds        tahmini varış
+     * @param greenStartSeconds aracın yaklaşımına yeşilin başladığı an
+     * @param greenEndSeconds   çapraz yönlerin serbest kaldığı an
+     */
+    public record Window(
+            long intersectionId,
+            String name,
+            int distanceMeters,
+            int etaSeconds,
+            int greenStartSeconds,
+            int greenEndSeconds) {
+
+        /**
+         * Çapraz yönlerin kırmızıda tutulduğu süre
+         */
+        public int holdSeconds() {
+            return greenEndSeconds - greenStartSeconds;
+        }
+    }
+
+    /**
+     * Aracın yönüyle çakışan (bekletilen) yaklaşımlar
+     */
+    public List<EmergencyVehicle.Direction> conflictingApproaches() {
+        return switch (heading) {
+            case NORTH, SOUTH -> List.of(EmergencyVehicle.Direction.EAST, EmergencyVehicle.Direction.WEST);
+            case EAST, WEST -> List.of(EmergencyVehicle.Direction.NORTH, EmergencyVehicle.Direction.SOUTH);
+        };
+    }
+
+    /**
+     * Son pencerenin bitişi: normal moda dönüş
+     */
+    public int clearSeconds() {
+        return windows.stream().mapToInt(Window::greenEndSeconds).max().orElse(0);
+    }
+
+    public int totalHoldSeconds() {
+        return windows.stream().mapToInt(Window::holdSeconds).sum();
+    }
+}
@@ -0,0 +1,115 @@
+package com.trafficlight.service;
+
+import com.trafficlight.entity.EmergencyVehicle;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Rota farkındalıklı acil durum ön yeşil planlayıcısı.
+ *
+ * Araç geldiği yönün tersine ilerler; bellekteki kavşak grafiğinde bu yöndeki
+ * komşular zaman ufku dolana kadar takip edilir. Her kavşak için yeşil,
+ * tahmini varıştan "lead" saniye önce başlar ve geçişten "clearance" saniye
+ * sonra biter; çapraz yönler sadece bu pencere boyunca bekletilir.
+ * Varış süreleri koridor bazında öğrenilmiş geçiş sürelerinden
+ * ({@link CorridorTravelTimes}), öğrenilmemiş koridorda hızdan hesaplanır.
+ * Plan veritabanına gitmez, O(rota uzunluğu) sürede hesaplanır.
+ */
+@Component
+public class PreemptionPlanner {
+
+    private final IntersectionSpatialIndex spatialIndex;
+    private final CorridorTravelTimes corridorTravelTimes;
+    private final double defaultSpeedKmh;
+    private final int horizonSeconds;
+    private final int leadSeconds;
+    private final int clearanceSeconds;
+    private final int maxHops;
+
+    public PreemptionPlanner(
+            IntersectionSpatialIndex spatialIndex,
+            CorridorTravelTimes corridorTravelTimes,
+            @Value("${traffic.emergency.default-speed-kmh:45}") double defaultSpeedKmh,
+            @Value("${traffic.emergency.horizon-seconds:120}") int horizonSeconds,
+            @Value("${traffic.emergency.lead-seconds:8}") int leadSeconds,
+            @Value("${traffic.emergency.clearance-seconds:6}") int clearanceSeconds,
+            @Value("${traffic.emergency.max-hops:30}") int maxHops) {
+        this.spatialIndex = spatialIndex;
+        this.corridorTravelTimes = corridorTravelTimes;
+        this.defaultSpeedKmh = defaultSpeedKmh;
+        this.horizonSeconds = horizonSeconds;
+        this.leadSeconds = leadSeconds;
+        this.clearanceSeconds = clearanceSeconds;
+        this.maxHops = maxHops;
+    }
+
+    /**
+     * @param originIntersectionId aracın bulunduğu kavşak
+     * @param approach             aracın geldiği yön
+     * @param speedKmh             bildirilen hız (null → varsayılan)
+     */
+    public PreemptionPlan plan(long originIntersectionId, EmergencyVehicle.Direction approach, Double speedKmh) {
+        long start = System.nanoTime();
+        EmergencyVehicle.Direction heading = travelDirection(approach);
+        double speed = speedKmh != null && speedKmh > 0 ? speedKmh : defaultSpeedKmh;
+        double metersPerSecond = speed / 3.6;
+
+        IntersectionGraph graph = spatialIndex.current();
+        int origin = graph.indexOf(originIntersectionId);
+
+        // Başlangıç kavşağı: araç şu an burada
+        List<PreemptionPlan.Window> windows = new ArrayList<>();
+        windows.add(new PreemptionPlan.Window(originIntersectionId,
+                origin >= 0 ? graph.name(origin) : "Kavşak-" + originIntersectionId,
+                0, 0, 0, leadSeconds + clearanceSeconds));
+
+        if (origin >= 0) {
+            Set<Integer> visited = new HashSet<>();
+            visited.add(origin);
+            double distance = 0;
+            double travelSeconds = 0;
+            int current = origin;
+            for (int hop = 0; hop < maxHops; hop++) {
+                int next = graph.next(current, heading);
+                if (next < 0 || !visited.add(next)) {
+                    break;
+                }
+                double hopMeters = graph.distanceMeters(current, next);
+                distance += hopMeters;
+                travelSeconds += corridorTravelTimes.hopSeconds(graph.id(current), graph.id(next),
+                        hopMeters, metersPerSecond);
+                int eta = (int) Math.round(travelSeconds);
+                if (eta > horizonSeconds) {
+                    break;
+                }
+                // Bakımdaki kavşaklar rotada kalır ama sinyal almaz
+                if (graph.isActive(next)) {
+                    windows.add(new PreemptionPlan.Window(graph.id(next), graph.name(next),
+                            (int) Math.round(distance), eta,
+                            Math.max(0, eta - leadSeconds), eta + clearanceSeconds));
+                }
+                current = next;
+            }
+        }
+
+        return new PreemptionPlan(originIntersectionId, heading, speed, List.copyOf(windows),
+                System.nanoTime() - start);
+    }
+
+    /**
+     * Geldiği yön → gittiği yön
+     */
+    static EmergencyVehicle.Direction travelDirection(EmergencyVehicle.Direction approach) {
+        return switch (approach) {
+            case NORTH -> EmergencyVehicle.Direction.SOUTH;
+            case SOUTH -> EmergencyVehicle.Direction.NORTH;
+            case EAST -> EmergencyVehicle.Direction.WEST;
+            case WEST -> EmergencyVehicle.Direction.EAST;
+        };
+    }
+}
@@ -0,0 +1,891 @@
+package com.trafficlight.service;
+
+import com.trafficlight.dto.RuleAnalysisResponse;
+import com.trafficlight.dto.RuleAnalysisResponse.FindingStatus;
+import com.trafficlight.entity.TrafficRule;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Kural seti statik analizi: gölgelenen, ölü ve çakışan kurallar + boşluklar.
+ *
+ * Her kural (araç sayısı x gün içi zaman x gün tipi) uzayında bir dikdörtgendir.
+ * Eksenler kural sınırlarına göre sıkıştırılır (coordinate compression) ve
+ * hafta içi / hafta sonu için birer ızgara oluşturulur. Kurallar çalışma
+ * zamanındaki seçimle aynı sırada (öncelik, sonra ID) taranır: bir hücreyi ilk
+ * sahiplenen kural o hücrede her zaman kazanır.
+ *
+ * Her satırda union-find ile "bir sonraki sahipsiz hücre" tutulur; böylece
+ * önceki öncelik gruplarınca alınmış hücreler atlanır ve her hücre toplamda
+ * bir kez sahiplenilir. Aynı öncelik grubundaki kurallar birbirinin hücrelerini
+ * görür; farklı yeşil süre sonucu üreten örtüşmeler çakışma olarak raporlanır.
+ *
+ * Izgara tamponları (sahip, union-find, sahiplenilen hücreler) primitive
+ * dizilerdir ve analizler arasında tek bir yedek çalışma alanında tutulur:
+ * her kural kaydı yeniden ayırmaz. Çok büyük ızgaraların tamponları tutulmaz.
+ *
+ * Izgara max-cells limitini aşarsa kaba analize düşülür (ızgara kurulmaz):
+ * geçersiz kurallar ve aynı öncelikte örtüşüp farklı sonuç üreten kural çiftleri
+ * ikili karşılaştırmayla bulunur. Aday kural için gölgelenme, kendisinden önce
+ * değerlendirilen kuralların birleşim alanı tarama çizgisiyle (sweep line)
+ * hesaplanır; adayın çakışmaları da daha yüksek öncelikli kuralların zaten
+ * kazandığı kesişimler ayıklanarak sayılır. Böylece kayıt kapısı büyük kural
+ * setlerinde de çalışır.
+ */
+@Component
+public class RuleSetAnalyzer {
+
+    private static final long DAY_NANOS = LocalTime.MAX.toNanoOfDay() + 1;
+    private static final int MAX_REPORTED = 100;
+    private static final int MAX_SHADOWED_BY = 5;
+    private static final int SHADOW_SCAN_LIMIT = 1_024;
+    private static final int MIN_COUNT_SPAN = 100;
+    private static final String[] PLANE_NAMES = {"WEEKDAY", "WEEKEND"};
+    /** Bundan büyük ızgaraların tamponları sonraki analize saklanmaz (düzlem başına hücre) */
+    private static final long MAX_POOLED_CELLS = 1 << 20;
+
+    private final long maxCellsPerPlane;
+    /** Boştaki çalışma alanı; eşzamanlı analiz kendi tamponlarını ayırır */
+    private final AtomicReference<Workspace> spare = new AtomicReference<>();
+
+    public RuleSetAnalyzer(@Value("${traffic.optimization.analyzer.max-cells:16000000}") long maxCellsPerPlane) {
+        this.maxCellsPerPlane = maxCellsPerPlane;
+    }
+
+    /**
+     * Aktif kural setini analiz et
+     */
+    public RuleAnalysisResponse analyze(List<TrafficRule> rules) {
+        return analyze(rules, null);
+    }
+
+    /**
+     * Aktif kural seti + kaydedilmek istenen aday kural
+     */
+    public RuleAnalysisResponse analyze(List<TrafficRule> rules, TrafficRule candidate) {
+        long start = System.nanoTime();
+
+        List<TrafficRule> all = new ArrayList<>(rules.size() + 1);
+        for (TrafficRule rule : rules) {
+            // Aday mevcut bir kuralın güncellemesiyse eski hali analizden çıkar
+            if (candidate == null || candidate.getId() == null || !candidate.getId().equals(rule.getId())) {
+                all.add(rule);
+            }
+        }
+        int candidateIndex = -1;
+        if (candidate != null) {
+            candidateIndex = all.size();
+            all.add(candidate);
+        }
+
+        int n = all.size();
+        Region[] regions = new Region[n];
+        String[] invalidReasons = new String[n];
+        for (int i = 0; i < n; i++) {
+            invalidReasons[i] = invalidReason(all.get(i));
+        }
+
+        // 1. Eksen sıkıştırma
+        TreeSet<Integer> countSet = new TreeSet<>(List.of(0));
+        TreeSet<Long> timeSet = new TreeSet<>(List.of(0L, DAY_NANOS));
+        for (int i = 0; i < n; i++) {
+            if (invalidReasons[i] != null) {
+                continue;
+            }
+            TrafficRule rule = all.get(i);
+            if (rule.getMinVehicleCount() != null) {
+                countSet.add(Math.max(0, rule.getMinVehicleCount()));
+            }
+            if (rule.getMaxVehicleCount() != null) {
+                countSet.add(rule.getMaxVehicleCount() + 1);
+            }
+            if (hasTimeWindow(rule)) {
+                timeSet.add(rule.getTimeStart().toNanoOfDay());
+                timeSet.add(rule.getTimeEnd().toNanoOfDay() + 1);
+            }
+        }
+        int[] counts = countSet.stream().mapToInt(Integer::intValue).toArray();
+        long[] times = timeSet.stream().mapToLong(Long::longValue).toArray();
+        int rows = counts.length;
+        int cols = times.length - 1;
+        long cellsPerPlane = (long) rows * cols;
+        if (cellsPerPlane > maxCellsPerPlane) {
+            return analyzeCoarse(all, candidateIndex, invalidReasons, counts, cellsPerPlane, start);
+        }
+
+        for (int i = 0; i < n; i++) {
+            if (invalidReasons[i] == null) {
+                regions[i] = Region.of(i, all.get(i), counts, times, rows, cols);
+            }
+        }
+
+        Workspace workspace = spare.getAndSet(null);
+        if (workspace == null) {
+            workspace = new Workspace();
+        }
+        try {
+            return analyzeGrid(all, candidateIndex, regions, invalidReasons, counts, times, workspace, start);
+        } finally {
+            if (cellsPerPlane <= MAX_POOLED_CELLS) {
+                spare.set(workspace);
+            }
+        }
+    }
+
+    /**
+     * Sıkıştırılmış ızgaraları tara ve raporu oluştur
+     */
+    private RuleAnalysisResponse analyzeGrid(List<TrafficRule> all, int candidateIndex, Region[] regions,
+                                             String[] invalidReasons, int[] counts, long[] times,
+                                             Workspace workspace, long start) {
+        int n = all.size();
+        int rows = counts.length;
+        int cols = times.length - 1;
+        int cellsPerPlane = rows * cols;
+        workspace.ensure(cellsPerPlane, rows * (cols + 1));
+
+        // 2. Çalışma zamanı sırası
+        Integer[] order = evaluationOrder(all);
+
+        // 3. Izgaraları tara
+        int countCap = Math.max(counts[rows - 1] + 1, MIN_COUNT_SPAN);
+        double[] ownArea = new double[n];
+        double[] wonArea = new double[n];
+        Set<Long> conflictPairs = new LinkedHashSet<>();
+        List<RuleAnalysisResponse.GapRegion> gaps = new ArrayList<>();
+        double gapArea = 0;
+        double totalArea = 0;
+        int[][] owners = workspace.owners;
+        int[] next = workspace.next;
+
+        for (int plane = 0; plane < 2; plane++) {
+            int[] owner = owners[plane];
+            Arrays.fill(owner, 0, cellsPerPlane, -1);
+            for (int r = 0; r < rows; r++) {
+                for (int c = 0; c <= cols; c++) {
+                    next[r * (cols + 1) + c] = c;
+                }
+            }
+
+            int g = 0;
+            while (g < n) {
+                // Aynı öncelikteki kurallar bir grup
+                int groupPriority = priorityOf(all.get(order[g]));
+                int groupEnd = g;
+                while (groupEnd < n && priorityOf(all.get(order[groupEnd])) == groupPriority) {
+                    groupEnd++;
+                }
+
+                int claimedCount = 0;
+                for (int k = g; k < groupEnd; k++) {
+                    Region region = regions[order[k]];
+                    if (region == null || !region.covers(plane)) {
+                        continue;
+                    }
+                    for (int r = region.rowLo; r < region.rowHi; r++) {
+                        double rowWidth = rowWidth(counts, r, countCap);
+                        for (int c = find(next, r, cols, region.colLo); c < region.colHi;
+                             c = find(next, r, cols, c + 1)) {
+                            int cell = r * cols + c;
+                            int current = owner[cell];
+                            if (current < 0) {
+                                owner[cell] = region.index;
+                                claimedCount = workspace.claim(claimedCount, cell);
+                                wonArea[region.index] += rowWidth * (times[c + 1] - times[c]);
+                            } else if (current != region.index
+                                    && !sameOutcome(all.get(current), all.get(region.index))) {
+                                conflictPairs.add(pairKey(current, region.index, n));
+                            }
+                        }
+                    }
+                }
+                // Grup bitti: sahiplenilen hücreleri sonraki gruplar için kapat
+                int[] claimed = workspace.claimed;
+                for (int i = 0; i < claimedCount; i++) {
+                    int cell = claimed[i];
+                    int r = cell / cols;
+                    int c = cell % cols;
+                    next[r * (cols + 1) + c] = c + 1;
+                }
+                g = groupEnd;
+            }
+
+            // Boşluklar ve alan hesabı
+            for (int r = 0; r < rows; r++) {
+                double rowWidth = rowWidth(counts, r, countCap);
+                int runStart = -1;
+                for (int c = 0; c <= cols; c++) {
+                    boolean free = c < cols && owner[r * cols + c] < 0;
+                    if (c < cols) {
+                        double area = rowWidth * (times[c + 1] - times[c]);
+                        totalArea += area;
+                        if (free) {
+                            gapArea += area;
+                        }
+                    }
+                    if (free && runStart < 0) {
+                        runStart = c;
+                    } else if (!free && runStart >= 0) {
+                        addGap(gaps, plane, counts, times, r, runStart, c);
+                        runStart = -1;
+                    }
+                }
+            }
+        }
+
+        // 4. Kural bazlı sonuçlar
+        for (int i = 0; i < n; i++) {
+            if (regions[i] != null) {
+                ownArea[i] = regions[i].area(counts, times, countCap);
+            }
+        }
+
+        List<RuleAnalysisResponse.RuleFinding> findings = new ArrayList<>();
+        RuleAnalysisResponse.RuleFinding candidateFinding = null;
+        int shadowed = 0;
+        int partial = 0;
+        int invalid = 0;
+        for (int i = 0; i < n; i++) {
+            TrafficRule rule = all.get(i);
+            RuleAnalysisResponse.RuleFinding finding;
+            if (invalidReasons[i] != null) {
+                invalid++;
+                finding = finding(rule, FindingStatus.INVALID, invalidReasons[i], 0.0, null);
+            } else {
+                double coverage = ownArea[i] > 0 ? wonArea[i] / ownArea[i] : 0.0;
+                if (wonArea[i] == 0) {
+                    shadowed++;
+                    // Gölgeleyen kural taraması sadece raporlanacak bulgular için
+                    boolean reported = i == candidateIndex || findings.size() < MAX_REPORTED;
+                    finding = finding(rule, FindingStatus.SHADOWED,
+                            "Daha yüksek (veya eşit) öncelikli kurallar tüm bölgeyi kapsıyor; kural hiç seçilemez",
+                            0.0, reported ? shadowedBy(regions[i], owners, cols, all) : null);
+                } else if (coverage < 0.999999) {
+                    partial++;
+                    finding = finding(rule, FindingStatus.PARTIALLY_SHADOWED,
+                            "Bölgenin bir kısmında başka kural kazanıyor", coverage, null);
+                } else {
+                    finding = finding(rule, FindingStatus.OK, null, 1.0, null);
+                }
+            }
+            if (i == candidateIndex) {
+                candidateFinding = finding;
+            }
+            if (finding.getStatus() != FindingStatus.OK && findings.size() < MAX_REPORTED) {
+                findings.add(finding);
+            }
+        }
+
+        List<RuleAnalysisResponse.RuleConflict> conflicts = new ArrayList<>();
+        boolean candidateConflicts = false;
+        for (long pair : conflictPairs) {
+            int a = (int) (pair / n);
+            int b = (int) (pair % n);
+            if (a == candidateIndex || b == candidateIndex) {
+                candidateConflicts = true;
+            }
+            if (conflicts.size() < MAX_REPORTED) {
+                conflicts.add(RuleAnalysisResponse.RuleConflict.builder()
+                        .priority(priorityOf(all.get(a)))
+                        .firstRule(all.get(a).getRuleName())
+                        .secondRule(all.get(b).getRuleName())
+                        .firstAdjustment(describeOutcome(all.get(a)))
+                        .secondAdjustment(describeOutcome(all.get(b)))
+                        .build());
+            }
+        }
+
+        Boolean candidateAccepted = null;
+        if (candidateFinding != null) {
+            candidateAccepted = candidateFinding.getStatus() != FindingStatus.INVALID
+                    && candidateFinding.getStatus() != FindingStatus.SHADOWED
+                    && !candidateConflicts;
+        }
+
+        return RuleAnalysisResponse.builder()
+                .analyzedRules(n)
+                .shadowedRules(shadowed)
+                .partiallyShadowedRules(partial)
+                .invalidRules(invalid)
+                .conflictCount(conflictPairs.size())
+                .gapRatio(totalArea > 0 ? Math.round(gapArea / totalArea * 10000.0) / 10000.0 : 0.0)
+                .findings(findings)
+                .conflicts(conflicts)
+                .gaps(gaps)
+                .candidate(candidateFinding)
+                .candidateAccepted(candidateAccepted)
+                .gridCells(cellsPerPlane * 2L)
+                .coarse(false)
+                .elapsedMs((System.nanoTime() - start) / 1_000_000)
+                .analyzedAt(LocalDateTime.now())
+                .build();
+    }
+
+    /**
+     * Izgara limiti aşıldığında kaba analiz; ızgara ayırmaz.
+     * Aday dışındaki kurallar için gölgelenme ve boşluklar hesaplanmaz; aynı öncelikli
+     * çakışmalar, daha yüksek öncelikli kuralların kazandığı alanlar ayıklanmadan sayılır
+     * (üst sınır). Aday kural tam analizdeki ölçütlerle değerlendirilir.
+     */
+    private RuleAnalysisResponse analyzeCoarse(List<TrafficRule> all, int candidateIndex, String[] invalidReasons,
+                                               int[] counts, long cellsPerPlane, long start) {
+        int n = all.size();
+        long countCap = Math.max(counts[counts.length - 1] + 1, MIN_COUNT_SPAN);
+        long[][] boxes = new long[n][];
+        for (int i = 0; i < n; i++) {
+            if (invalidReasons[i] == null) {
+                boxes[i] = box(all.get(i), countCap);
+            }
+        }
+        Integer[] order = evaluationOrder(all);
+        int[] rank = new int[n];
+        for (int k = 0; k < n; k++) {
+            rank[order[k]] = k;
+        }
+
+        // 1. Aynı öncelik grubunda örtüşen, farklı sonuç üreten çiftler
+        Set<Long> conflictPairs = new LinkedHashSet<>();
+        boolean candidateConflicts = false;
+        int g = 0;
+        while (g < n) {
+            int groupPriority = priorityOf(all.get(order[g]));
+            int groupEnd = g;
+            while (groupEnd < n && priorityOf(all.get(order[groupEnd])) == groupPriority) {
+                groupEnd++;
+            }
+            for (int x = g; x < groupEnd; x++) {
+                int a = order[x];
+                if (boxes[a] == null) {
+                    continue;
+                }
+                for (int y = x + 1; y < groupEnd; y++) {
+                    int b = order[y];
+                    if (boxes[b] == null || !sharesPlane(boxes[a], boxes[b])
+                            || intersection(boxes[a], boxes[b]) == null
+                            || sameOutcome(all.get(a), all.get(b))) {
+                        continue;
+                    }
+                    if (a == candidateIndex || b == candidateIndex) {
+                        // Izgaradaki gibi: kesişimin sahibi a olmalı; a'dan önce değerlendirilen
+                        // kurallar kesişimi tamamen kazanıyorsa çakışma yok
+                        if (!coveredByEarlier(intersection(boxes[a], boxes[b]), x, order, boxes)) {
+                            conflictPairs.add(pairKey(a, b, n));
+                            candidateConflicts = true;
+                        }
+                    } else {
+                        conflictPairs.add(pairKey(a, b, n));
+                    }
+                }
+            }
+            g = groupEnd;
+        }
+
+        // 2. Geçersiz kurallar ve aday
+        List<RuleAnalysisResponse.RuleFinding> findings = new ArrayList<>();
+        RuleAnalysisResponse.RuleFinding candidateFinding = null;
+        int invalid = 0;
+        for (int i = 0; i < n; i++) {
+            if (invalidReasons[i] != null) {
+                invalid++;
+                RuleAnalysisResponse.RuleFinding finding =
+                        finding(all.get(i), FindingStatus.INVALID, invalidReasons[i], 0.0, null);
+                if (i == candidateIndex) {
+                    candidateFinding = finding;
+                }
+                if (findings.size() < MAX_REPORTED) {
+                    findings.add(finding);
+                }
+            }
+        }
+        if (candidateIndex >= 0 && boxes[candidateIndex] != null) {
+            candidateFinding = candidateFinding(all, candidateIndex, rank[candidateIndex], order, boxes);
+            if (candidateFinding.getStatus() != FindingStatus.OK && findings.size() < MAX_REPORTED) {
+                findings.add(candidateFinding);
+            }
+        }
+
+        List<RuleAnalysisResponse.RuleConflict> conflicts = new ArrayList<>();
+        for (long pair : conflictPairs) {
+            if (conflicts.size() >= MAX_REPORTED) {
+                break;
+            }
+            int a = (int) (pair / n);
+            int b = (int) (pair % n);
+            conflicts.add(RuleAnalysisResponse.RuleConflict.builder()
+                    .priority(priorityOf(all.get(a)))
+                    .firstRule(all.get(a).getRuleName())
+                    .secondRule(all.get(b).getRuleName())
+                    .firstAdjustment(describeOutcome(all.get(a)))
+                    .secondAdjustment(describeOutcome(all.get(b)))
+                    .build());
+        }
+
+        Boolean candidateAccepted = null;
+        if (candidateFinding != null) {
+            candidateAccepted = candidateFinding.getStatus() != FindingStatus.INVALID
+                    && candidateFinding.getStatus() != FindingStatus.SHADOWED
+                    && !candidateConflicts;
+        }
+
+        return RuleAnalysisResponse.builder()
+                .analyzedRules(n)
+                .invalidRules(invalid)
+                .conflictCount(conflictPairs.size())
+                .findings(findings)
+                .conflicts(conflicts)
+                .gaps(List.of())
+                .candidate(candidateFinding)
+                .candidateAccepted(candidateAccepted)
+                .gridCells(cellsPerPlane * 2L)
+                .coarse(true)
+                .elapsedMs((System.nanoTime() - start) / 1_000_000)
+                .analyzedAt(LocalDateTime.now())
+                .build();
+    }
+
+    /**
+     * Aday kuralın kazandığı alan: kendi alanı eksi kendisinden önce değerlendirilen
+     * kuralların (üst öncelik ve aynı grupta öndekiler) birleşimi, gün tipi başına
+     */
+    private static RuleAnalysisResponse.RuleFinding candidateFinding(List<TrafficRule> all, int candidateIndex,
+                                                                     int candidateRank, Integer[] order,
+                                                                     long[][] boxes) {
+        long[] own = boxes[candidateIndex];
+        double ownArea = 0;
+        double coveredArea = 0;
+        Set<String> shadowers = new LinkedHashSet<>();
+        for (int plane = 0; plane < 2; plane++) {
+            if (!coversPlane(own, plane)) {
+                continue;
+            }
+            List<long[]> clipped = new ArrayList<>();
+            for (int k = 0; k < candidateRank; k++) {
+                long[] other = boxes[order[k]];
+                if (other == null || !coversPlane(other, plane)) {
+                    continue;
+                }
+                long[] overlap = intersection(own, other);
+                if (overlap != null) {
+                    clipped.add(overlap);
+                    if (shadowers.size() < MAX_SHADOWED_BY) {
+                        shadowers.add(all.get(order[k]).getRuleName());
+                    }
+                }
+            }
+            ownArea += area(own);
+            coveredArea += unionArea(clipped);
+        }
+
+        TrafficRule rule = all.get(candidateIndex);
+        double coverage = ownArea > 0 ? Math.max(0.0, (ownArea - coveredArea) / ownArea) : 0.0;
+        if (coverage < 1e-9) {
+            return finding(rule, FindingStatus.SHADOWED,
+                    "Daha yüksek (veya eşit) öncelikli kurallar tüm bölgeyi kapsıyor; kural hiç seçilemez",
+                    0.0, new ArrayList<>(shadowers));
+        }
+        if (coverage < 0.999999) {
+            return finding(rule, FindingStatus.PARTIALLY_SHADOWED,
+                    "Bölgenin bir kısmında başka kural kazanıyor", coverage, null);
+        }
+        return finding(rule, FindingStatus.OK, null, 1.0, null);
+    }
+
+    /**
+     * Kesişim, sırada rankLimit'ten önce gelen kurallarca her ortak gün tipinde tamamen kapsanıyor mu?
+     */
+    private static boolean coveredByEarlier(long[] overlap, int rankLimit, Integer[] order, long[][] boxes) {
+        for (int plane = 0; plane < 2; plane++) {
+            if (!coversPlane(overlap, plane)) {
+                continue;
+            }
+            List<long[]> clipped = new ArrayList<>();
+            for (int k = 0; k < rankLimit; k++) {
+                long[] other = boxes[order[k]];
+                if (other != null && coversPlane(other, plane)) {
+                    long[] part = intersection(overlap, other);
+                    if (part != null) {
+                        clipped.add(part);
+                    }
+                }
+            }
+            if (unionArea(clipped) < area(overlap) * (1 - 1e-9)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Çalışma zamanı sırası: öncelik, sonra ID (ID'siz aday en sona)
+     */
+    private static Integer[] evaluationOrder(List<TrafficRule> all) {
+        Integer[] order = new Integer[all.size()];
+        for (int i = 0; i < order.length; i++) {
+            order[i] = i;
+        }
+        Arrays.sort(order, Comparator
+                .comparing((Integer i) -> priorityOf(all.get(i)))
+                .thenComparing(i -> all.get(i).getId() != null ? all.get(i).getId() : Long.MAX_VALUE));
+        return order;
+    }
+
+    /**
+     * Kuralın gerçek koordinatlardaki kutusu:
+     * {araç alt, araç üst (hariç), zaman başı, zaman sonu (hariç, ns), gün tipi maskesi}
+     */
+    private static long[] box(TrafficRule rule, long countCap) {
+        long countLo = rule.getMinVehicleCount() != null ? Math.max(0, rule.getMinVehicleCount()) : 0;
+        long countHi = rule.getMaxVehicleCount() != null ? rule.getMaxVehicleCount() + 1L : countCap;
+        long timeLo = 0;
+        long timeHi = DAY_NANOS;
+        if (hasTimeWindow(rule)) {
+            timeLo = rule.getTimeStart().toNanoOfDay();
+            timeHi = rule.getTimeEnd().toNanoOfDay() + 1;
+        }
+        TrafficRule.DayType dayType = rule.getDayType();
+        long planes = (dayType != TrafficRule.DayType.WEEKEND ? 1 : 0) | (dayType != TrafficRule.DayType.WEEKDAY ? 2 : 0);
+        return new long[] {countLo, countHi, timeLo, timeHi, planes};
+    }
+
+    private static boolean coversPlane(long[] box, int plane) {
+        return (box[4] & (1L << plane)) != 0;
+    }
+
+    private static boolean sharesPlane(long[] a, long[] b) {
+        return (a[4] & b[4]) != 0;
+    }
+
+    /**
+     * İki kutunun kesişimi (gün tipi maskesi dahil); boşsa null
+     */
+    private static long[] intersection(long[] a, long[] b) {
+        long countLo = Math.max(a[0], b[0]);
+        long countHi = Math.min(a[1], b[1]);
+        long timeLo = Math.max(a[2], b[2]);
+        long timeHi = Math.min(a[3], b[3]);
+        if (countLo >= countHi || timeLo >= timeHi) {
+            return null;
+        }
+        return new long[] {countLo, countHi, timeLo, timeHi, a[4] & b[4]};
+    }
+
+    private static double area(long[] box) {
+        return (double) (box[1] - box[0]) * (box[3] - box[2]);
+    }
+
+    /**
+     * Kutuların birleşim alanı: araç ekseninde tarama çizgisi, zaman ekseninde
+     * kapsama sayaçlı segment ağacı (O(k log k))
+     */
+    static double unionArea(List<long[]> boxes) {
+        if (boxes.isEmpty()) {
+            return 0.0;
+        }
+        long[] ys = new long[boxes.size() * 2];
+        long[][] events = new long[boxes.size() * 2][];
+        int e = 0;
+        for (long[] box : boxes) {
+            ys[e] = box[2];
+            events[e++] = new long[] {box[0], 1, box[2], box[3]};
+            ys[e] = box[3];
+            events[e++] = new long[] {box[1], -1, box[2], box[3]};
+        }
+        Arrays.sort(ys);
+        int unique = 0;
+        for (int i = 0; i < ys.length; i++) {
+            if (i == 0 || ys[i] != ys[i - 1]) {
+                ys[unique++] = ys[i];
+            }
+        }
+        long[] coords = Arrays.copyOf(ys, unique);
+        Arrays.sort(events, Comparator.comparingLong((long[] event) -> event[0]));
+
+        int segments = Math.max(1, coords.length - 1);
+        int[] cover = new int[segments * 4];
+        long[] covered = new long[segments * 4];
+        double total = 0;
+        for (int i = 0; i < events.length; i++) {
+            if (i > 0) {
+                total += (double) covered[1] * (events[i][0] - events[i - 1][0]);
+            }
+            int lo = Arrays.binarySearch(coords, events[i][2]);
+            int hi = Arrays.binarySearch(coords, events[i][3]);
+            update(cover, covered, coords, 1, 0, segments, lo, hi, (int) events[i][1]);
+        }
+        return total;
+    }
+
+    /**
+     * Segment ağacı: [lo, hi) zaman dilimlerine kapsama ekle/çıkar, düğümün kapsanan uzunluğunu güncelle
+     */
+    private static void update(int[] cover, long[] covered, long[] coords, int node, int from, int to,
+                               int lo, int hi, int delta) {
+        if (hi <= from || to <= lo) {
+            return;
+        }
+        if (lo <= from && to <= hi) {
+            cover[node] += delta;
+        } else {
+            int mid = (from + to) >>> 1;
+            update(cover, covered, coords, node * 2, from, mid, lo, hi, delta);
+            update(cover, covered, coords, node * 2 + 1, mid, to, lo, hi, delta);
+        }
+        if (cover[node] > 0) {
+            covered[node] = coords[to] - coords[from];
+        } else if (to - from == 1) {
+            covered[node] = 0;
+        } else {
+            covered[node] = covered[node * 2] + covered[node * 2 + 1];
+        }
+    }
+
+    /**
+     * Çalışma zamanında hiç eşleşemeyecek koşullar
+     */
+    private static String invalidReason(TrafficRule rule) {
+        if (rule.getPriority() == null) {
+            return "Öncelik tanımlı değil";
+        }
+        Integer min = rule.getMinVehicleCount();
+        Integer max = rule.getMaxVehicleCount();
+        if (max != null && max < 0) {
+            return "Maksimum araç sayısı negatif";
+        }
+        if (min != null && max != null && min > max) {
+            return String.format("Minimum araç sayısı (%d) maksimumdan (%d) büyük", min, max);
+        }
+        if (hasTimeWindow(rule) && rule.getTimeStart().isAfter(rule.getTimeEnd())) {
+            return String.format("Zaman aralığı gece yarısını geçiyor (%s-%s); eşleşme kontrolü bunu desteklemiyor",
+                    rule.getTimeStart(), rule.getTimeEnd());
+        }
+        return null;
+    }
+
+    private static boolean hasTimeWindow(TrafficRule rule) {
+        return rule.getTimeStart() != null && rule.getTimeEnd() != null;
+    }
+
+    private static int priorityOf(TrafficRule rule) {
+        return rule.getPriority() != null ? rule.getPriority() : Integer.MAX_VALUE;
+    }
+
+    private static boolean sameOutcome(TrafficRule a, TrafficRule b) {
+        return Objects.equals(a.getBaseGreenDuration(), b.getBaseGreenDuration())
+                && Objects.equals(a.getGreenDurationAdjustment(), b.getGreenDurationAdjustment())
+                && Objects.equals(a.getMinGreenDuration(), b.getMinGreenDuration())
+                && Objects.equals(a.getMaxGreenDuration(), b.getMaxGreenDuration());
+    }
+
+    private static String describeOutcome(TrafficRule rule) {
+        int adjustment = rule.getGreenDurationAdjustment() != null ? rule.getGreenDurationAdjustment() : 0;
+        return String.format("%s%d (taban %ds, %s-%ss)", adjustment >= 0 ? "+" : "", adjustment,
+                rule.getBaseGreenDuration(), rule.getMinGreenDuration(), rule.getMaxGreenDuration());
+    }
+
+    private static long pairKey(int a, int b, int n) {
+        return (long) Math.min(a, b) * n + Math.max(a, b);
+    }
+
+    /**
+     * Union-find: satırda c'den itibaren ilk sahipsiz hücre (yol sıkıştırmalı)
+     */
+    private static int find(int[] next, int row, int cols, int c) {
+        int base = row * (cols + 1);
+        int root = c;
+        while (next[base + root] != root) {
+            root = next[base + root];
+        }
+        while (next[base + c] != root) {
+            int parent = next[base + c];
+            next[base + c] = root;
+            c = parent;
+        }
+        return root;
+    }
+
+    private static double rowWidth(int[] counts, int row, int countCap) {
+        int hi = row + 1 < counts.length ? counts[row + 1] : countCap;
+        return Math.max(1, hi - counts[row]);
+    }
+
+    private static void addGap(List<RuleAnalysisResponse.GapRegion> gaps, int plane, int[] counts, long[] times,
+                               int row, int colFrom, int colTo) {
+        // Bir önceki satırla aynı zaman aralığındaysa birleştir
+        String timeFrom = formatTime(times[colFrom]);
+        String timeTo = formatTime(times[colTo]);
+        Integer countTo = row + 1 < counts.length ? counts[row + 1] - 1 : null;
+        for (int i = gaps.size() - 1; i >= 0; i--) {
+            RuleAnalysisResponse.GapRegion last = gaps.get(i);
+            if (!last.getDayType().equals(PLANE_NAMES[plane]) || last.getVehicleCountTo() == null) {
+                break;
+            }
+            if (last.getVehicleCountTo() + 1 == counts[row]
+                    && last.getTimeFrom().equals(timeFrom) && last.getTimeTo().equals(timeTo)) {
+                last.setVehicleCountTo(countTo);
+                return;
+            }
+            if (last.getVehicleCountTo() + 1 < counts[row]) {
+                break;
+            }
+        }
+        if (gaps.size() < MAX_REPORTED) {
+            gaps.add(RuleAnalysisResponse.GapRegion.builder()
+                    .dayType(PLANE_NAMES[plane])
+                    .vehicleCountFrom(counts[row])
+                    .vehicleCountTo(countTo)
+                    .timeFrom(timeFrom)
+                    .timeTo(timeTo)
+                    .build());
+        }
+    }
+
+    private static String formatTime(long nanoOfDay) {
+        if (nanoOfDay >= DAY_NANOS) {
+            return "24:00";
+        }
+        return LocalTime.ofNanoOfDay(nanoOfDay).toString();
+    }
+
+    /**
+     * Tamamen gölgelenen kuralın bölgesindeki sahipler (sınırlı tarama)
+     */
+    private static List<String> shadowedBy(Region region, int[][] owners, int cols, List<TrafficRule> all) {
+        Set<Integer> found = new LinkedHashSet<>();
+        int scanned = 0;
+        for (int plane = 0; plane < 2 && found.size() < MAX_SHADOWED_BY; plane++) {
+            if (!region.covers(plane)) {
+                continue;
+            }
+            for (int r = region.rowLo; r < region.rowHi && found.size() < MAX_SHADOWED_BY
+                    && scanned < SHADOW_SCAN_LIMIT; r++) {
+                for (int c = region.colLo; c < region.colHi && found.size() < MAX_SHADOWED_BY
+                        && scanned < SHADOW_SCAN_LIMIT; c++, scanned++) {
+                    int owner = owners[plane][r * cols + c];
+                    if (owner >= 0 && owner != region.index) {
+                        found.add(owner);
+                    }
+                }
+            }
+        }
+        List<String> names = new ArrayList<>();
+        Set<String> seen = new HashSet<>();
+        for (int idx : found) {
+            String name = all.get(idx).getRuleName();
+            if (seen.add(name)) {
+                names.add(name);
+            }
+        }
+        return names;
+    }
+
+    private static RuleAnalysisResponse.RuleFinding finding(TrafficRule rule, FindingStatus status, String reason,
+                                                            double coverage, List<String> shadowedBy) {
+        return RuleAnalysisResponse.RuleFinding.builder()
+                .ruleId(rule.getId())
+                .ruleName(rule.getRuleName())
+                .priority(rule.getPriority())
+                .status(status)
+                .reason(reason)
+                .effectiveCoverage(Math.round(coverage * 10000.0) / 10000.0)
+                .shadowedBy(shadowedBy)
+                .build();
+    }
+
+    /**
+     * Izgara tamponları: hafta içi / hafta sonu sahipleri, union-find ve grubun sahiplendiği hücreler.
+     * Diziler gerektiğinde büyür; kullanılan kısım her analizde yeniden doldurulur.
+     */
+    private static final class Workspace {
+        final int[][] owners = {new int[0], new int[0]};
+        int[] next = new int[0];
+        int[] claimed = new int[256];
+
+        void ensure(int cellsPerPlane, int nextCells) {
+            for (int plane = 0; plane < 2; plane++) {
+                if (owners[plane].length < cellsPerPlane) {
+                    owners[plane] = new int[cellsPerPlane];
+                }
+            }
+            if (next.length < nextCells) {
+                next = new int[nextCells];
+            }
+        }
+
+        /**
+         * @return yeni sahiplenilen hücre sayısı
+         */
+        int claim(int count, int cell) {
+            if (count == claimed.length) {
+                claimed = Arrays.copyOf(claimed, count * 2);
+            }
+            claimed[count] = cell;
+            return count + 1;
+        }
+    }
+
+    /**
+     * Kuralın sıkıştırılmış ızgaradaki dikdörtgeni
+     */
+    private static final class Region {
+        final int index;
+        final int rowLo;
+        final int rowHi;
+        final int colLo;
+        final int colHi;
+        final boolean weekday;
+        final boolean weekend;
+
+        private Region(int index, int rowLo, int rowHi, int colLo, int colHi, boolean weekday, boolean weekend) {
+            this.index = index;
+            this.rowLo = rowLo;
+            this.rowHi = rowHi;
+            this.colLo = colLo;
+            this.colHi = colHi;
+            this.weekday = weekday;
+            this.weekend = weekend;
+        }
+
+        static Region of(int index, TrafficRule rule, int[] counts, long[] times, int rows, int cols) {
+            int rowLo = rule.getMinVehicleCount() != null
+                    ? Arrays.binarySearch(counts, Math.max(0, rule.getMinVehicleCount())) : 0;
+            int rowHi = rule.getMaxVehicleCount() != null
+                    ? Arrays.binarySearch(counts, rule.getMaxVehicleCount() + 1) : rows;
+            int colLo = 0;
+            int colHi = cols;
+            if (hasTimeWindow(rule)) {
+                colLo = Arrays.binarySearch(times, rule.getTimeStart().toNanoOfDay());
+                colHi = Arrays.binarySearch(times, rule.getTimeEnd().toNanoOfDay() + 1);
+            }
+            TrafficRule.DayType dayType = rule.getDayType();
+            boolean weekday = dayType == null || dayType != TrafficRule.DayType.WEEKEND;
+            boolean weekend = dayType == null || dayType != TrafficRule.DayType.WEEKDAY;
+            return new Region(index, rowLo, rowHi, colLo, colHi, weekday, weekend);
+        }
+
+        boolean covers(int plane) {
+            return plane == 0 ? weekday : weekend;
+        }
+
+        double area(int[] counts, long[] times, int countCap) {
+            double timeSpan = times[colHi] - times[colLo];
+            double countSpan = 0;
+            for (int r = rowLo; r < rowHi; r++) {
+                countSpan += rowWidth(counts, r, countCap);
+            }
+            return countSpan * timeSpan * ((weekday ? 1 : 0) + (weekend ? 1 : 0));
+        }
+    }
+}
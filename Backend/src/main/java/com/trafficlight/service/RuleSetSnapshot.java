@@ -0,0 +1,87 @@
+package com.trafficlight.service;
+
+import com.trafficlight.entity.TrafficRule;
+
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.Arrays;
+import java.util.List;
+import java.util.TreeSet;
+
+/**
+ * Aktif kural setinin değişmez (immutable) görüntüsü.
+ *
+ * Kuralların araç sayısı ve zaman sınırları sıralı dizilere çıkarılır;
+ * aynı dilim/aralık içindeki tüm istekler aynı kural kararını üretir.
+ * Bu sayede karar önbelleği anahtarı ikili arama ile O(log n) hesaplanır.
+ *
+ * @param version         kural seti versiyonu
+ * @param rules           aktif kurallar (önceliğe göre sıralı)
+ * @param countBoundaries araç sayısı dilim sınırları (artan)
+ * @param timeBoundaries  zaman aralığı sınırları (gün içi nanosaniye, artan)
+ * @param loadedAt        yüklenme zamanı
+ */
+public record RuleSetSnapshot(
+        long version,
+        List<TrafficRule> rules,
+        int[] countBoundaries,
+        long[] timeBoundaries,
+        LocalDateTime loadedAt) {
+
+    /**
+     * Kural dışı sabit eşikler: dinamik ayar (25/40) ve yoğunluk etiketleri (10/30/50)
+     */
+    private static final int[] FIXED_COUNT_BOUNDARIES = {10, 26, 30, 41, 50};
+
+    public static RuleSetSnapshot of(long version, List<TrafficRule> rules) {
+        TreeSet<Integer> counts = new TreeSet<>();
+        for (int boundary : FIXED_COUNT_BOUNDARIES) {
+            counts.add(boundary);
+        }
+        TreeSet<Long> times = new TreeSet<>();
+
+        for (TrafficRule rule : rules) {
+            // count >= min  →  sınır: min
+            if (rule.getMinVehicleCount() != null) {
+                counts.add(rule.getMinVehicleCount());
+            }
+            // count <= max  →  sınır: max + 1
+            if (rule.getMaxVehicleCount() != null) {
+                counts.add(rule.getMaxVehicleCount() + 1);
+            }
+            // start <= now <= end  →  sınırlar: start, end + 1ns
+            if (rule.getTimeStart() != null && rule.getTimeEnd() != null) {
+                times.add(rule.getTimeStart().toNanoOfDay());
+                times.add(rule.getTimeEnd().toNanoOfDay() + 1);
+            }
+        }
+
+        return new RuleSetSnapshot(version, List.copyOf(rules),
+                counts.stream().mapToInt(Integer::intValue).toArray(),
+                times.stream().mapToLong(Long::longValue).toArray(),
+                LocalDateTime.now());
+    }
+
+    /**
+     * Aynı kurallarla yeni versiyon numarası (geri alma: yeniden ayrıştırma gerekmez)
+     */
+    public RuleSetSnapshot withVersion(long newVersion) {
+        return new RuleSetSnapshot(newVersion, rules, countBoundaries, timeBoundaries, LocalDateTime.now());
+    }
+
+    /**
+     * Araç sayısının düştüğü dilim (kendisinden küçük/eşit sınır sayısı)
+     */
+    public int densityBucket(int vehicleCount) {
+        int idx = Arrays.binarySearch(countBoundaries, vehicleCount);
+        return idx >= 0 ? idx + 1 : -idx - 1;
+    }
+
+    /**
+     * Zamanın düştüğü aralık (kendisinden küçük/eşit sınır sayısı)
+     */
+    public int timeSlot(LocalTime time) {
+        int idx = Arrays.binarySearch(timeBoundaries, time.toNanoOfDay());
+        return idx >= 0 ? idx + 1 : -idx - 1;
+    }
+}
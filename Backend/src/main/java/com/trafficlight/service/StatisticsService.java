@@ -1,30 +1,52 @@
 package com.trafficlight.service;
 
-import com.trafficlight.repository.*;
+import com.trafficlight.entity.DailyActivityStat.Counter;
+import com.trafficlight.entity.EmergencyVehicle.VehicleType;
+import com.trafficlight.entity.Intersection;
+import com.trafficlight.repository.IntersectionRepository;
+import com.trafficlight.repository.RuleApplicationRepository;
+import com.trafficlight.service.DailyActivityCounters.Total;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
 
+import java.lang.management.ManagementFactory;
+import java.time.Duration;
+import java.time.LocalDate;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 
+/**
+ * Günlük/haftalık raporlar ve kavşak karşılaştırması
+ * {@link DailyActivityCounters} gün kovalarından okunur (kaynak tablolara sorgu atılmaz)
+ */
 @Service
 @RequiredArgsConstructor
 @Slf4j
 public class StatisticsService {
 
-    private final EmergencyVehicleRepository emergencyVehicleRepository;
-    private final EmergencyEventRepository emergencyEventRepository;
+    private static final int WEEK_DAYS = 7;
+    private static final int COMPARE_LIMIT = 10;
+
+    private final DailyActivityCounters activityCounters;
     private final RuleApplicationRepository ruleApplicationRepository;
-    private final TrafficSensorRepository sensorRepository;
+    private final IntersectionRepository intersectionRepository;
+    private final ActiveEmergencyRegistry activeEmergencyRegistry;
 
     /**
      * Günlük özet rapor
      */
     public Map<String, Object> getDailySummary() {
-        LocalDateTime startOfDay = LocalDateTime.now().withHour(0).withMinute(0).withSecond(0);
+        LocalDate today = LocalDate.now();
         
         Map<String, Object> summary = new HashMap<>();
         
@@ -33,42 +55,44 @@ public class StatisticsService {
         summary.put("reportType", "📊 Günlük Özet Rapor");
         
         // Acil durum istatistikleri
-        Long emergencyCount = emergencyEventRepository.countEmergenciesSince(startOfDay);
+        Map<String, Total> emergencies = activityCounters.totalsBy(Counter.EMERGENCY_TYPE, today, today);
         summary.put("emergencyVehicles", Map.of(
-            "total", emergencyCount,
+            "total", countOf(emergencies),
             "description", "🚨 Toplam acil araç geçişi",
-            "breakdown", getEmergencyBreakdown(startOfDay)
+            "breakdown", getEmergencyBreakdown(emergencies)
         ));
         
         // Kural uygulama istatistikleri
-        List<Object[]> topRules = ruleApplicationRepository.findMostAppliedRulesSince(startOfDay);
+        Map<String, Total> rules = activityCounters.totalsBy(Counter.RULE, today, today);
         summary.put("ruleApplications", Map.of(
-            "total", ruleApplicationRepository.countApplicationsSince(1L, startOfDay),
+            "total", countOf(rules),
             "description", "🎯 Toplam kural uygulaması",
-            "topRules", topRules
+            "topRules", topRules(rules)
         ));
         
         // Sensör verileri
-        summary.put("sensorReadings", Map.of(
-            "description", "📡 Toplam sensör okuma",
-            "averageVehicleCount", getAverageVehicleCount(startOfDay)
-        ));
+        Total sensors = activityCounters.total(Counter.SENSOR_INTERSECTION, today, today);
+        Map<String, Object> sensorReadings = new HashMap<>();
+        sensorReadings.put("total", sensors.count());
+        sensorReadings.put("description", "📡 Toplam sensör okuma");
+        sensorReadings.put("averageVehicleCount", round(sensors.average()));
+        summary.put("sensorReadings", sensorReadings);
         
         // Performans metrikleri
-        summary.put("performance", Map.of(
-            "systemUptime", "100%",
-            "averageResponseTime", "< 100ms",
-            "successRate", "99.9%"
-        ));
+        Map<String, Object> performance = new HashMap<>();
+        performance.put("systemUptime", formatUptime(ManagementFactory.getRuntimeMXBean().getUptime()));
+        performance.put("ruleSuccessRate", successRate(rules));
+        summary.put("performance", performance);
         
         return summary;
     }
 
     /**
-     * Haftalık performans raporu
+     * Haftalık performans raporu (bugün dahil son 7 gün, önceki 7 günle kıyaslanır)
      */
     public Map<String, Object> getWeeklyPerformance() {
-        LocalDateTime weekAgo = LocalDateTime.now().minusWeeks(1);
+        LocalDate today = LocalDate.now();
+        LocalDate weekStart = today.minusDays(WEEK_DAYS - 1L);
         
         Map<String, Object> report = new HashMap<>();
         
@@ -76,26 +100,45 @@ public class StatisticsService {
         report.put("generatedAt", LocalDateTime.now());
         
         // Acil durum metrikleri
-        Long weeklyEmergencies = emergencyEventRepository.countEmergenciesSince(weekAgo);
+        long weeklyEmergencies = activityCounters.total(Counter.EMERGENCY_TYPE, weekStart, today).count();
+        long previousWeek = activityCounters.total(Counter.EMERGENCY_TYPE,
+                weekStart.minusDays(WEEK_DAYS), weekStart.minusDays(1)).count();
         report.put("emergencyMetrics", Map.of(
             "totalEmergencies", weeklyEmergencies,
-            "dailyAverage", weeklyEmergencies / 7.0,
-            "trend", weeklyEmergencies > 35 ? "📈 Artış" : "📉 Azalış"
+            "previousWeek", previousWeek,
+            "dailyAverage", round((double) weeklyEmergencies / WEEK_DAYS),
+            "trend", weeklyEmergencies > previousWeek ? "📈 Artış"
+                    : weeklyEmergencies < previousWeek ? "📉 Azalış" : "➡️ Sabit"
         ));
         
         // Kural performansı
-        List<Object[]> topRules = ruleApplicationRepository.findMostAppliedRulesSince(weekAgo);
-        report.put("topRules", topRules);
-        
-        // Genel değerlendirme
-        report.put("assessment", Map.of(
-            "efficiency", "85/100",
-            "recommendation", "✅ Sistem optimal çalışıyor",
-            "improvements", List.of(
-                "Gece modu kuralını daha agresif uygula",
-                "Sensör kalibrasyonu öneriliyor"
-            )
-        ));
+        Map<String, Total> rules = activityCounters.totalsBy(Counter.RULE, weekStart, today);
+        long weeklyRules = countOf(rules);
+        Map<String, Object> ruleMetrics = new HashMap<>();
+        ruleMetrics.put("totalApplications", weeklyRules);
+        ruleMetrics.put("dailyAverage", round((double) weeklyRules / WEEK_DAYS));
+        ruleMetrics.put("successRate", successRate(rules));
+        report.put("ruleMetrics", ruleMetrics);
+        report.put("topRules", topRules(rules));
+        
+        // Sensör verileri
+        Total sensors = activityCounters.total(Counter.SENSOR_INTERSECTION, weekStart, today);
+        Map<String, Object> sensorMetrics = new HashMap<>();
+        sensorMetrics.put("totalReadings", sensors.count());
+        sensorMetrics.put("averageVehicleCount", round(sensors.average()));
+        report.put("sensorMetrics", sensorMetrics);
+        
+        // Günlük kırılım
+        List<Map<String, Object>> daily = new ArrayList<>();
+        for (LocalDate date = weekStart; !date.isAfter(today); date = date.plusDays(1)) {
+            daily.add(Map.of(
+                "date", date,
+                "emergencies", activityCounters.total(Counter.EMERGENCY_TYPE, date, date).count(),
+                "ruleApplications", activityCounters.total(Counter.RULE, date, date).count(),
+                "sensorReadings", activityCounters.total(Counter.SENSOR_INTERSECTION, date, date).count()
+            ));
+        }
+        report.put("dailyBreakdown", daily);
         
         return report;
     }
@@ -109,8 +152,8 @@ public class StatisticsService {
         status.put("timestamp", LocalDateTime.now());
         status.put("systemStatus", "🟢 ÇALIŞIYOR");
         
-        // Aktif acil durumlar
-        int activeEmergencies = emergencyVehicleRepository.findActiveEmergencies().size();
+        // Aktif acil durumlar (bellekteki kayıttan, sorgusuz)
+        int activeEmergencies = activeEmergencyRegistry.count();
         status.put("activeEmergencies", Map.of(
             "count", activeEmergencies,
             "status", activeEmergencies > 0 ? "🚨 AKTİF" : "✅ YOK",
@@ -132,81 +175,148 @@ public class StatisticsService {
     /**
      * Acil durum breakdown'u
      */
-    private Map<String, Long> getEmergencyBreakdown(LocalDateTime since) {
+    private Map<String, Long> getEmergencyBreakdown(Map<String, Total> byType) {
         Map<String, Long> breakdown = new HashMap<>();
         
-        // Gerçek verileri al
-        List<com.trafficlight.entity.EmergencyVehicle> emergencies = 
-            emergencyVehicleRepository.findByDateRange(since, LocalDateTime.now());
-        
-        long ambulanceCount = emergencies.stream()
-            .filter(e -> e.getType() == com.trafficlight.entity.EmergencyVehicle.VehicleType.AMBULANCE)
-            .count();
-            
-        long fireTruckCount = emergencies.stream()
-            .filter(e -> e.getType() == com.trafficlight.entity.EmergencyVehicle.VehicleType.FIRE_TRUCK)
-            .count();
-            
-        long policeCount = emergencies.stream()
-            .filter(e -> e.getType() == com.trafficlight.entity.EmergencyVehicle.VehicleType.POLICE)
-            .count();
-        
-        breakdown.put("ambulance", ambulanceCount);
-        breakdown.put("fireTruck", fireTruckCount);
-        breakdown.put("police", policeCount);
-        breakdown.put("total", (long) emergencies.size());
+        breakdown.put("ambulance", countOf(byType, VehicleType.AMBULANCE));
+        breakdown.put("fireTruck", countOf(byType, VehicleType.FIRE_TRUCK));
+        breakdown.put("police", countOf(byType, VehicleType.POLICE));
+        breakdown.put("military", countOf(byType, VehicleType.MILITARY));
+        breakdown.put("total", countOf(byType));
         
         return breakdown;
     }
 
     /**
-     * Ortalama araç sayısı
-     */
-    private Double getAverageVehicleCount(LocalDateTime since) {
-        // Basit hesaplama, ileride daha detaylı yapılabilir
-        return 25.5;
-    }
-
-    /**
-     * Kavşak karşılaştırması
+     * Kavşak karşılaştırması (son 7 gün, en hareketli kavşaklar)
      */
     public Map<String, Object> compareIntersections() {
+        LocalDate today = LocalDate.now();
+        LocalDate weekStart = today.minusDays(WEEK_DAYS - 1L);
+        Map<Long, Total> emergencies = byIntersection(
+                activityCounters.totalsBy(Counter.EMERGENCY_INTERSECTION, weekStart, today));
+        Map<Long, Total> rules = byIntersection(
+                activityCounters.totalsBy(Counter.RULE_INTERSECTION, weekStart, today));
+        Map<Long, Total> sensors = byIntersection(
+                activityCounters.totalsBy(Counter.SENSOR_INTERSECTION, weekStart, today));
+
+        Set<Long> ids = new HashSet<>(emergencies.keySet());
+        ids.addAll(rules.keySet());
+        ids.addAll(sensors.keySet());
+        Function<Long, Long> activity = id -> countOf(emergencies, id) + countOf(rules, id);
+        List<Long> ranked = ids.stream()
+            .sorted(Comparator.comparing(activity).reversed()
+                .thenComparing(id -> -countOf(sensors, id))
+                .thenComparing(Comparator.naturalOrder()))
+            .toList();
+        Long mostEmergencies = leader(ids, id -> (double) countOf(emergencies, id));
+        Long mostRules = leader(ids, id -> (double) countOf(rules, id));
+        Long busiest = leader(ids, id -> sensors.getOrDefault(id, Total.ZERO).average());
+
+        Set<Long> named = new HashSet<>(ranked.subList(0, Math.min(COMPARE_LIMIT, ranked.size())));
+        for (Long id : new Long[]{mostEmergencies, mostRules, busiest}) {
+            if (id != null) {
+                named.add(id);
+            }
+        }
+        Map<Long, String> names = intersectionRepository.findAllById(named).stream()
+            .collect(Collectors.toMap(Intersection::getId, Intersection::getName));
+
+        List<Map<String, Object>> rows = new ArrayList<>();
+        for (Long id : ranked.subList(0, Math.min(COMPARE_LIMIT, ranked.size()))) {
+            Map<String, Object> row = new LinkedHashMap<>();
+            row.put("id", id);
+            row.put("name", nameOf(names, id));
+            row.put("emergencyCount", countOf(emergencies, id));
+            row.put("ruleApplications", countOf(rules, id));
+            row.put("sensorReadings", countOf(sensors, id));
+            row.put("averageVehicleCount", round(sensors.getOrDefault(id, Total.ZERO).average()));
+            rows.add(row);
+        }
+
+        Map<String, Object> summary = new HashMap<>();
+        summary.put("activeIntersections", ids.size());
+        summary.put("mostEmergencies", mostEmergencies != null ? nameOf(names, mostEmergencies) : null);
+        summary.put("mostRuleApplications", mostRules != null ? nameOf(names, mostRules) : null);
+        summary.put("busiest", busiest != null ? nameOf(names, busiest) : null);
+
         Map<String, Object> comparison = new HashMap<>();
-        
         comparison.put("title", "🚦 Kavşak Performans Karşılaştırması");
-        comparison.put("intersections", List.of(
-            Map.of(
-                "id", 1,
-                "name", "Kavşak-1 (Atatürk Bulvarı)",
-                "emergencyCount", 5,
-                "ruleApplications", 127,
-                "efficiency", "88/100",
-                "rating", "⭐⭐⭐⭐⭐"
-            ),
-            Map.of(
-                "id", 2,
-                "name", "Kavşak-2 (Kızılay)",
-                "emergencyCount", 3,
-                "ruleApplications", 95,
-                "efficiency", "82/100",
-                "rating", "⭐⭐⭐⭐"
-            ),
-            Map.of(
-                "id", 3,
-                "name", "Kavşak-3 (Ulus)",
-                "emergencyCount", 2,
-                "ruleApplications", 78,
-                "efficiency", "79/100",
-                "rating", "⭐⭐⭐⭐"
-            )
-        ));
-        
-        comparison.put("summary", Map.of(
-            "bestPerforming", "Kavşak-1 (Atatürk Bulvarı)",
-            "mostEmergencies", "Kavşak-1 (Atatürk Bulvarı)",
-            "recommendation", "Kavşak-3 için daha fazla optimizasyon öneriliyor"
-        ));
+        comparison.put("period", "Son 7 Gün");
+        comparison.put("intersections", rows);
+        comparison.put("summary", summary);
         
         return comparison;
     }
-}
\ No newline at end of file
+
+    /**
+     * Kural adı ve uygulama sayısı, çoktan aza
+     */
+    private static List<Object[]> topRules(Map<String, Total> rules) {
+        return rules.entrySet().stream()
+            .sorted(Map.Entry.<String, Total>comparingByValue(Comparator.comparingLong(Total::count)).reversed()
+                .thenComparing(Map.Entry.comparingByKey()))
+            .map(entry -> new Object[]{entry.getKey(), entry.getValue().count()})
+            .toList();
+    }
+
+    /**
+     * Başarılı kural uygulaması yüzdesi (uygulama yoksa null)
+     */
+    private static Double successRate(Map<String, Total> rules) {
+        long total = countOf(rules);
+        long successful = rules.values().stream().mapToLong(Total::sum).sum();
+        return total > 0 ? round(100.0 * successful / total) : null;
+    }
+
+    /**
+     * Değeri en yüksek kavşak (eşitlikte küçük ID; değer yoksa ya da sıfırsa null)
+     */
+    private static Long leader(Set<Long> ids, Function<Long, Double> value) {
+        Long best = null;
+        double bestValue = 0;
+        for (Long id : ids.stream().sorted().toList()) {
+            Double current = value.apply(id);
+            if (current != null && current > bestValue) {
+                best = id;
+                bestValue = current;
+            }
+        }
+        return best;
+    }
+
+    private static Map<Long, Total> byIntersection(Map<String, Total> totals) {
+        Map<Long, Total> result = new HashMap<>();
+        totals.forEach((dimension, total) -> {
+            if (!"null".equals(dimension)) {
+                result.put(Long.valueOf(dimension), total);
+            }
+        });
+        return result;
+    }
+
+    private static long countOf(Map<String, Total> totals) {
+        return totals.values().stream().mapToLong(Total::count).sum();
+    }
+
+    private static long countOf(Map<String, Total> byType, VehicleType type) {
+        return byType.getOrDefault(type.name(), Total.ZERO).count();
+    }
+
+    private static long countOf(Map<Long, Total> byIntersection, Long id) {
+        return byIntersection.getOrDefault(id, Total.ZERO).count();
+    }
+
+    private static String nameOf(Map<Long, String> names, Long id) {
+        return names.getOrDefault(id, "Kavşak-" + id);
+    }
+
+    private static Double round(Double value) {
+        return value != null ? Math.round(value * 10) / 10.0 : null;
+    }
+
+    private static String formatUptime(long millis) {
+        Duration uptime = Duration.ofMillis(millis);
+        return String.format("%d gün %d sa %d dk", uptime.toDays(), uptime.toHoursPart(), uptime.toMinutesPart());
+    }
+}
@@ -0,0 +1,35 @@
+package com.trafficlight.service;
+
+/**
+ * Değerlendirilmiş tek bir yeşil süre bölüşümü.
+ * Üç amaç da "düşük = iyi" olarak ifade edilir.
+ *
+ * @param cycleLength            döngü süresi (saniye)
+ * @param mainGreen              ana yön yeşil süresi (saniye)
+ * @param crossGreen             tali yön yeşil süresi (saniye)
+ * @param delay                  ortalama araç gecikmesi (saniye/araç)
+ * @param co2                    tahmini CO2 emisyonu (kg/saat)
+ * @param pedestrianWait         ortalama yaya bekleme süresi (saniye)
+ */
+public record TimingCandidate(
+        int cycleLength,
+        int mainGreen,
+        int crossGreen,
+        double delay,
+        double co2,
+        double pedestrianWait) {
+
+    /**
+     * Bu aday diğerini Pareto anlamında domine ediyor mu?
+     * (Hiçbir amaçta daha kötü değil, en az birinde kesin daha iyi)
+     */
+    public boolean dominates(TimingCandidate other) {
+        boolean noWorse = delay <= other.delay
+                && co2 <= other.co2
+                && pedestrianWait <= other.pedestrianWait;
+        boolean strictlyBetter = delay < other.delay
+                || co2 < other.co2
+                || pedestrianWait < other.pedestrianWait;
+        return noWorse && strictlyBetter;
+    }
+}
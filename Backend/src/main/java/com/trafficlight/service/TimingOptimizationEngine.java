@@ -0,0 +1,22 @@
+package com.trafficlight.service;
+
+import java.util.List;
+
+/**
+ * Takılabilir (pluggable) yeşil süre optimizasyon motoru.
+ * Her implementasyon bir Spring bean'i olarak kaydedilir ve
+ * {@link #getName()} ile seçilir.
+ */
+public interface TimingOptimizationEngine {
+
+    /**
+     * Motorun request'te kullanılan adı (örn. "grid-search")
+     */
+    String getName();
+
+    /**
+     * Arama uzayındaki adayları surrogate model ile değerlendir.
+     * Dönen liste Pareto filtrelemesinden önceki tüm geçerli adaylardır.
+     */
+    List<TimingCandidate> evaluate(TrafficSurrogateModel model, TimingSearchSpace space);
+}
@@ -0,0 +1,76 @@
+package com.trafficlight.service;
+
+import com.trafficlight.entity.IntersectionConfig;
+
+/**
+ * Optimizasyon motorunun tarayacağı döngü / yeşil süre uzayı.
+ * Sınırlar kavşağın aktif konfigürasyonundan türetilir.
+ *
+ * @param minCycle          en kısa döngü (saniye)
+ * @param maxCycle          en uzun döngü (saniye)
+ * @param cycleStep         döngü adımı (saniye)
+ * @param minGreen          her faz için en kısa yeşil (saniye)
+ * @param maxGreen          her faz için en uzun yeşil (saniye)
+ * @param greenStep         yeşil süre adımı (saniye)
+ * @param lostTimePerCycle  döngü başına kayıp süre: 2 x (sarı + tüm kırmızı)
+ */
+public record TimingSearchSpace(
+        int minCycle,
+        int maxCycle,
+        int cycleStep,
+        int minGreen,
+        int maxGreen,
+        int greenStep,
+        int lostTimePerCycle) {
+
+    private static final int DEFAULT_MIN_CYCLE = 40;
+    private static final int DEFAULT_MAX_CYCLE = 150;
+    private static final int DEFAULT_CYCLE_STEP = 5;
+
+    /**
+     * Kavşak konfigürasyonundan arama uzayı oluştur.
+     * Konfigürasyon yoksa varsayılan değerler kullanılır.
+     */
+    public static TimingSearchSpace fromConfig(IntersectionConfig config) {
+        int yellow = 3;
+        int allRed = 2;
+        int minGreen = 10;
+        int maxGreen = 90;
+        int pedestrian = 15;
+
+        if (config != null) {
+            yellow = valueOr(config.getYellowLightDuration(), yellow);
+            allRed = valueOr(config.getAllRedDuration(), allRed);
+            minGreen = valueOr(config.getMinimumGreenTime(), minGreen);
+            maxGreen = valueOr(config.getMaximumGreenTime(), maxGreen);
+            pedestrian = valueOr(config.getPedestrianCrossingDuration(), pedestrian);
+        }
+
+        // Yaya geçişi tamamlanabilmeli: her iki faz da en az yaya geçiş süresi kadar
+        int effectiveMinGreen = Math.max(minGreen, pedestrian);
+        int lostTime = 2 * (yellow + allRed);
+        int minCycle = Math.max(DEFAULT_MIN_CYCLE, 2 * effectiveMinGreen + lostTime);
+        int maxCycle = Math.max(minCycle, DEFAULT_MAX_CYCLE);
+
+        return new TimingSearchSpace(minCycle, maxCycle, DEFAULT_CYCLE_STEP,
+                effectiveMinGreen, Math.max(effectiveMinGreen, maxGreen), 1, lostTime);
+    }
+
+    /**
+     * Taranacak döngü sayısı
+     */
+    public int cycleCount() {
+        return (maxCycle - minCycle) / cycleStep + 1;
+    }
+
+    /**
+     * index'inci döngü süresi
+     */
+    public int cycleAt(int index) {
+        return minCycle + index * cycleStep;
+    }
+
+    private static int valueOr(Integer value, int fallback) {
+        return value != null ? value : fallback;
+    }
+}
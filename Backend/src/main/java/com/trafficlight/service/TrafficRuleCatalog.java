@@ -0,0 +1,236 @@
+package com.trafficlight.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.trafficlight.entity.RuleSetVersion;
+import com.trafficlight.entity.TrafficRule;
+import com.trafficlight.event.RuleSetChangedEvent;
+import com.trafficlight.exception.ResourceNotFoundException;
+import com.trafficlight.repository.RuleSetVersionRepository;
+import com.trafficlight.repository.TrafficRuleRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.HexFormat;
+import java.util.List;
+
+/**
+ * Yayınlanmış kural seti versiyonlarının bellekteki kopyası.
+ *
+ * traffic_rules tablosu taslaktır; optimizasyon istekleri sadece yayınlanmış
+ * (rule_set_versions) değişmez {@link RuleSetSnapshot} üzerinden okur.
+ * Yeni versiyon tek bir volatile referans değişimiyle tüm isteklere aynı anda
+ * geçer; bir istek ya eski ya yeni versiyonu görür, asla karışımını değil.
+ *
+ * Son N versiyon bellekte tutulur: geri alma yeniden ayrıştırma gerektirmez.
+ * Her düğüm en son versiyonu periyodik olarak kontrol eder, böylece tüm
+ * düğümler en geç bir kontrol aralığı içinde aynı versiyona yakınsar.
+ * Her değişimde {@link RuleSetChangedEvent} gönderilir.
+ */
+@Component
+@Slf4j
+public class TrafficRuleCatalog {
+
+    private static final TypeReference<List<TrafficRule>> RULE_LIST = new TypeReference<>() {
+    };
+
+    private final TrafficRuleRepository ruleRepository;
+    private final RuleSetVersionRepository versionRepository;
+    private final ApplicationEventPublisher eventPublisher;
+    private final ObjectMapper objectMapper;
+    private final TransactionTemplate transactionTemplate;
+    private final int retainedVersions;
+
+    private volatile RuleSetSnapshot snapshot;
+
+    /** Son N versiyon, en yenisi başta (this ile korunur) */
+    private final Deque<RuleSetSnapshot> history = new ArrayDeque<>();
+
+    public TrafficRuleCatalog(
+            TrafficRuleRepository ruleRepository,
+            RuleSetVersionRepository versionRepository,
+            ApplicationEventPublisher eventPublisher,
+            ObjectMapper objectMapper,
+            PlatformTransactionManager transactionManager,
+            @Value("${traffic.optimization.rule-set.retained-versions:10}") int retainedVersions) {
+        this.ruleRepository = ruleRepository;
+        this.versionRepository = versionRepository;
+        this.eventPublisher = eventPublisher;
+        this.objectMapper = objectMapper;
+        // Yayın, çağıran isteğin transaction'ından bağımsız commit edilir
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.retainedVersions = Math.max(1, retainedVersions);
+    }
+
+    /**
+     * Güncel kural seti (ilk çağrıda yüklenir)
+     */
+    public RuleSetSnapshot current() {
+        RuleSetSnapshot current = snapshot;
+        if (current == null) {
+            sync("initial-load");
+            current = snapshot;
+        }
+        return current;
+    }
+
+    /**
+     * Başka bir düğümde yayınlanan versiyonu al
+     */
+    @Scheduled(fixedDelayString = "${traffic.optimization.rule-refresh-ms:10000}",
+               initialDelayString = "${traffic.optimization.rule-refresh-ms:10000}")
+    public void poll() {
+        sync("scheduled-check");
+    }
+
+    /**
+     * En son yayınlanmış versiyona yakınsa.
+     * Hiç versiyon yoksa mevcut aktif kurallar ilk versiyon olarak yayınlanır.
+     *
+     * @return yeni versiyona geçildi mi?
+     */
+    public synchronized boolean sync(String reason) {
+        Long latest = versionRepository.findLatestVersion();
+        if (latest == null) {
+            publish("İlk yükleme", "system");
+            return true;
+        }
+        if (snapshot != null && snapshot.version() >= latest) {
+            return false;
+        }
+
+        RuleSetVersion version = versionRepository.findById(latest)
+                .orElseThrow(() -> new ResourceNotFoundException("RuleSetVersion", latest));
+        RuleSetSnapshot retained = version.getSourceVersion() != null ? retained(version.getSourceVersion()) : null;
+        activate(retained != null
+                ? retained.withVersion(version.getId())
+                : RuleSetSnapshot.of(version.getId(), read(version.getRulesJson())), reason);
+        return true;
+    }
+
+    /**
+     * traffic_rules tablosundaki aktif kuralları yeni versiyon olarak yayınla
+     */
+    public synchronized RuleSetSnapshot publish(String note, String publishedBy) {
+        List<TrafficRule> rules = ruleRepository.findByActiveTrueOrderByPriorityAscIdAsc();
+        String payload = write(rules);
+
+        RuleSetVersion saved = transactionTemplate.execute(status -> versionRepository.save(RuleSetVersion.builder()
+                .ruleCount(rules.size())
+                .rulesJson(payload)
+                .checksum(checksum(payload))
+                .note(note)
+                .publishedBy(publishedBy)
+                .build()));
+
+        // Yönetilen entity'ler yerine JSON'dan ayrıştırılmış kopyalar paylaşılır
+        RuleSetSnapshot published = RuleSetSnapshot.of(saved.getId(), read(payload));
+        activate(published, "publish");
+        return published;
+    }
+
+    /**
+     * Önceki bir versiyonu yeni versiyon olarak tekrar yayınla.
+     * Versiyon bellekte tutuluyorsa geçiş anlıktır (yeniden ayrıştırma yok).
+     */
+    public synchronized RuleSetSnapshot rollback(long targetVersion, String publishedBy) {
+        RuleSetVersion target = versionRepository.findById(targetVersion)
+                .orElseThrow(() -> new ResourceNotFoundException("RuleSetVersion", targetVersion));
+
+        RuleSetVersion saved = transactionTemplate.execute(status -> versionRepository.save(RuleSetVersion.builder()
+                .ruleCount(target.getRuleCount())
+                .rulesJson(target.getRulesJson())
+                .checksum(target.getChecksum())
+                .sourceVersion(target.getId())
+                .note("v" + target.getId() + " versiyonuna geri alındı")
+                .publishedBy(publishedBy)
+                .build()));
+
+        RuleSetSnapshot retained = retained(targetVersion);
+        RuleSetSnapshot restored = retained != null
+                ? retained.withVersion(saved.getId())
+                : RuleSetSnapshot.of(saved.getId(), read(target.getRulesJson()));
+        activate(restored, "rollback:v" + targetVersion);
+        return restored;
+    }
+
+    /**
+     * Bellekte tutulan versiyonlar (en yenisi başta)
+     */
+    public synchronized List<RuleSetSnapshot> retainedSnapshots() {
+        return List.copyOf(history);
+    }
+
+    /**
+     * Yayınlanmış son versiyonlar (veritabanı)
+     */
+    public List<RuleSetVersion> recentVersions() {
+        return versionRepository.findTop20ByOrderByIdDesc();
+    }
+
+    private void activate(RuleSetSnapshot next, String reason) {
+        // Tek volatile yazma: istekler bundan sonra yeni versiyonu görür
+        snapshot = next;
+
+        history.addFirst(next);
+        while (history.size() > retainedVersions) {
+            history.removeLast();
+        }
+
+        log.info("📚 Kural seti v{} aktif - {} kural ({})", next.version(), next.rules().size(), reason);
+        eventPublisher.publishEvent(new RuleSetChangedEvent(next.version(), reason));
+    }
+
+    private RuleSetSnapshot retained(long version) {
+        for (RuleSetSnapshot candidate : history) {
+            if (candidate.version() == version) {
+                return candidate;
+            }
+        }
+        return null;
+    }
+
+    private String write(List<TrafficRule> rules) {
+        try {
+            return objectMapper.writeValueAsString(rules);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Kural seti serileştirilemedi", e);
+        }
+    }
+
+    private List<TrafficRule> read(String payload) {
+        try {
+            List<TrafficRule> rules = new ArrayList<>(objectMapper.readValue(payload, RULE_LIST));
+            // Veritabanı ve RuleSetAnalyzer ile aynı sıra: öncelik, eşitlikte ID
+            rules.sort(Comparator.comparing(TrafficRule::getPriority, Comparator.nullsLast(Comparator.<Integer>naturalOrder()))
+                    .thenComparing(TrafficRule::getId, Comparator.nullsLast(Comparator.<Long>naturalOrder())));
+            return rules;
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Kural seti ayrıştırılamadı", e);
+        }
+    }
+
+    private static String checksum(String payload) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(digest.digest(payload.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 desteklenmiyor", e);
+        }
+    }
+}
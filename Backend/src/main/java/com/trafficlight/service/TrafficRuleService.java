@@ -2,9 +2,12 @@ package com.trafficlight.service;
 
 import com.trafficlight.dto.OptimizationRequest;
 import com.trafficlight.dto.OptimizationResponse;
+import com.trafficlight.dto.RuleAnalysisResponse;
 import com.trafficlight.entity.RuleApplication;
 import com.trafficlight.entity.TrafficRule;
 import com.trafficlight.entity.TrafficSensor;
+import com.trafficlight.exception.BadRequestException;
+import com.trafficlight.exception.ResourceNotFoundException;
 import com.trafficlight.repository.RuleApplicationRepository;
 import com.trafficlight.repository.TrafficRuleRepository;
 import com.trafficlight.repository.TrafficSensorRepository;
@@ -13,6 +16,8 @@ import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.time.DayOfWeek;
+import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.time.LocalTime;
 import java.util.ArrayList;
@@ -26,6 +31,11 @@ public class TrafficRuleService {
     private final TrafficRuleRepository ruleRepository;
     private final RuleApplicationRepository applicationRepository;
     private final TrafficSensorRepository sensorRepository;
+    private final GreenTimeBandit greenTimeBandit;
+    private final TrafficRuleCatalog ruleCatalog;
+    private final OptimizationDecisionCache decisionCache;
+    private final RuleSetAnalyzer ruleSetAnalyzer;
+    private final DailyActivityCounters activityCounters;
 
     /**
      * Trafik optimizasyonu uygula
@@ -38,30 +48,101 @@ public class TrafficRuleService {
         // 1. Sensör verisini kaydet (opsiyonel)
         saveSensorData(request);
 
-        // 2. Uygulanabilir kuralları bul
-        List<TrafficRule> applicableRules = findApplicableRules(request);
+        // 2. Karar önbelleği (manuel kural seçimi ve ACTIVE bandit modu her zaman hesaplanır)
+        RuleSetSnapshot ruleSet = null;
+        OptimizationDecisionCache.DecisionKey cacheKey = null;
+        if (request.getRuleId() == null) {
+            ruleSet = ruleCatalog.current();
+            if (decisionCache.isEnabled() && greenTimeBandit.getMode() != GreenTimeBandit.Mode.ACTIVE) {
+                cacheKey = new OptimizationDecisionCache.DecisionKey(
+                        request.getIntersectionId(),
+                        ruleSet.densityBucket(request.getVehicleCount()),
+                        ruleSet.version(),
+                        ruleSet.timeSlot(LocalTime.now()),
+                        isWeekend(LocalDate.now()));
+                OptimizationDecisionCache.CachedDecision cached = decisionCache.get(cacheKey);
+                if (cached != null) {
+                    // SHADOW: önbellekteki süre sabit eşiklerle aynıdır, ama bandit her kararı
+                    // görmeli (gölge seçimi loglanır, ödüllendirilecek karar kaydedilir)
+                    if (cached.selectedRule() != null) {
+                        greenTimeBandit.selectAdjustment(request.getIntersectionId(), request.getVehicleCount(),
+                                thresholdAdjustment(request.getVehicleCount()));
+                    }
+                    return applyDecision(request, cached, ruleSet.version());
+                }
+            }
+        }
+
+        // 3. Uygulanabilir kuralları bul ve karar ver
+        List<TrafficRule> applicableRules = findApplicableRules(request, ruleSet);
+        OptimizationDecisionCache.CachedDecision decision = decide(request, applicableRules);
+
+        if (cacheKey != null) {
+            decisionCache.put(cacheKey, decision);
+        }
 
+        // 4. Uygula, logla ve response oluştur
+        return applyDecision(request, decision, ruleSet != null ? ruleSet.version() : null);
+    }
+
+    /**
+     * Kural kararını ver: en yüksek öncelikli kural + yeni yeşil süre
+     */
+    private OptimizationDecisionCache.CachedDecision decide(OptimizationRequest request,
+                                                           List<TrafficRule> applicableRules) {
         if (applicableRules.isEmpty()) {
-            return buildNoRuleResponse(request);
+            return new OptimizationDecisionCache.CachedDecision(null, List.of(), 0, 0, null, null);
         }
 
-        // 3. En yüksek öncelikli kuralı uygula
+        // En yüksek öncelikli kuralı uygula
         TrafficRule selectedRule = applicableRules.get(0);
 
-        // 4. Yeşil süreyi hesapla
+        // Yeşil süreyi hesapla
         int previousDuration = selectedRule.getBaseGreenDuration();
-        int newDuration = calculateNewGreenDuration(selectedRule, request.getVehicleCount());
+        int newDuration = calculateNewGreenDuration(selectedRule, request);
 
-        // 5. Uygulama kaydı oluştur
-        RuleApplication application = logRuleApplication(
-                selectedRule, request, previousDuration, newDuration);
+        // Uygulanan kurallar
+        List<OptimizationResponse.AppliedRule> appliedRulesList = new ArrayList<>();
+        for (TrafficRule rule : applicableRules) {
+            appliedRulesList.add(OptimizationResponse.AppliedRule.builder()
+                    .ruleId(rule.getId())
+                    .ruleName(rule.getRuleName())
+                    .ruleType(rule.getRuleType().getDisplayName())
+                    .priority(rule.getPriority())
+                    .description(rule.getDescription())
+                    .build());
+        }
+
+        return new OptimizationDecisionCache.CachedDecision(
+                selectedRule,
+                List.copyOf(appliedRulesList),
+                previousDuration,
+                newDuration,
+                getDensityLevel(request.getVehicleCount()),
+                calculatePerformance(newDuration - previousDuration, request.getVehicleCount()));
+    }
+
+    /**
+     * Kararı uygula: uygulama kaydı + sayaç + response
+     * (önbellekten gelen kararlar da her seferinde denetim kaydına yazılır)
+     */
+    private OptimizationResponse applyDecision(OptimizationRequest request,
+                                               OptimizationDecisionCache.CachedDecision decision,
+                                               Long ruleSetVersion) {
+        if (decision.selectedRule() == null) {
+            return buildNoRuleResponse(request);
+        }
+
+        TrafficRule selectedRule = decision.selectedRule();
+
+        // Uygulama kaydı oluştur
+        logRuleApplication(selectedRule, request, decision.previousDuration(), decision.newDuration(),
+                ruleSetVersion);
 
-        // 6. Kural uygulama sayısını artır
-        incrementRuleApplicationCount(selectedRule);
+        // Kural uygulama sayısını artır
+        ruleRepository.incrementTimesApplied(selectedRule.getId());
 
-        // 7. Response oluştur
-        return buildOptimizationResponse(request, applicableRules, selectedRule, 
-                                         previousDuration, newDuration);
+        return buildOptimizationResponse(request, decision);
     }
 
     /**
@@ -77,14 +158,14 @@ public class TrafficRuleService {
                     .averageSpeed(request.getAverageSpeed())
                     .active(true)
                     .build();
-            sensorRepository.save(sensor);
+            activityCounters.recordSensorReading(sensorRepository.save(sensor));
         }
     }
 
     /**
      * Uygulanabilir kuralları bul
      */
-    private List<TrafficRule> findApplicableRules(OptimizationRequest request) {
+    private List<TrafficRule> findApplicableRules(OptimizationRequest request, RuleSetSnapshot ruleSet) {
         if (request.getRuleId() != null) {
             // Manuel kural seçimi
             return ruleRepository.findById(request.getRuleId())
@@ -92,13 +173,20 @@ public class TrafficRuleService {
                     .orElse(new ArrayList<>());
         }
 
-        // Otomatik kural seçimi
-        List<TrafficRule> allRules = ruleRepository.findByActiveTrueOrderByPriorityAsc();
+        // Otomatik kural seçimi (bellekteki güncel kural seti)
+        List<TrafficRule> allRules = ruleSet.rules();
         List<TrafficRule> applicable = new ArrayList<>();
 
         LocalTime now = LocalTime.now();
+        boolean weekend = isWeekend(LocalDate.now());
 
         for (TrafficRule rule : allRules) {
+            // Gün tipi kontrolü
+            if (rule.getDayType() == TrafficRule.DayType.WEEKDAY && weekend ||
+                rule.getDayType() == TrafficRule.DayType.WEEKEND && !weekend) {
+                continue;
+            }
+
             // Araç sayısı kontrolü
             if (rule.getMinVehicleCount() != null && 
                 request.getVehicleCount() < rule.getMinVehicleCount()) {
@@ -125,7 +213,7 @@ public class TrafficRuleService {
     /**
      * Yeni yeşil süreyi hesapla
      */
-    private int calculateNewGreenDuration(TrafficRule rule, int vehicleCount) {
+    private int calculateNewGreenDuration(TrafficRule rule, OptimizationRequest request) {
         int baseDuration = rule.getBaseGreenDuration();
         int adjustment = rule.getGreenDurationAdjustment() != null ? 
                          rule.getGreenDurationAdjustment() : 0;
@@ -140,24 +228,35 @@ public class TrafficRuleService {
             newDuration = Math.min(newDuration, rule.getMaxGreenDuration());
         }
 
-        // Dinamik ayarlama (araç sayısına göre)
+        // Dinamik ayarlama (sabit eşikler veya kavşak bazlı öğrenilmiş politika)
+        int vehicleCount = request.getVehicleCount();
+        newDuration += greenTimeBandit.selectAdjustment(
+                request.getIntersectionId(), vehicleCount, thresholdAdjustment(vehicleCount));
+
+        return Math.max(15, Math.min(90, newDuration)); // 15-90 saniye arası
+    }
+
+    /**
+     * Sabit eşiklere göre dinamik ayar (araç sayısına göre)
+     */
+    private int thresholdAdjustment(int vehicleCount) {
         if (vehicleCount > 40) {
-            newDuration += 10; // Çok yoğun
+            return 10; // Çok yoğun
         } else if (vehicleCount > 25) {
-            newDuration += 5;  // Yoğun
+            return 5;  // Yoğun
         }
-
-        return Math.max(15, Math.min(90, newDuration)); // 15-90 saniye arası
+        return 0;
     }
 
     /**
      * Kural uygulamasını logla
      */
     private RuleApplication logRuleApplication(TrafficRule rule, OptimizationRequest request,
-                                               int previousDuration, int newDuration) {
+                                               int previousDuration, int newDuration, Long ruleSetVersion) {
         RuleApplication application = RuleApplication.builder()
                 .ruleId(rule.getId())
                 .ruleName(rule.getRuleName())
+                .ruleSetVersion(ruleSetVersion)
                 .intersectionId(request.getIntersectionId())
                 .intersectionName("Kavşak-" + request.getIntersectionId())
                 .vehicleCount(request.getVehicleCount())
@@ -169,18 +268,9 @@ public class TrafficRuleService {
                 .successful(true)
                 .build();
 
-        return applicationRepository.save(application);
-    }
-
-    /**
-     * Kural uygulama sayısını artır
-     */
-    private void incrementRuleApplicationCount(TrafficRule rule) {
-        if (rule.getTimesApplied() == null) {
-            rule.setTimesApplied(0L);
-        }
-        rule.setTimesApplied(rule.getTimesApplied() + 1);
-        ruleRepository.save(rule);
+        RuleApplication saved = applicationRepository.save(application);
+        activityCounters.recordRuleApplication(saved);
+        return saved;
     }
 
     /**
@@ -203,35 +293,23 @@ public class TrafficRuleService {
      */
     private OptimizationResponse buildOptimizationResponse(
             OptimizationRequest request,
-            List<TrafficRule> applicableRules,
-            TrafficRule selectedRule,
-            int previousDuration,
-            int newDuration) {
+            OptimizationDecisionCache.CachedDecision decision) {
+
+        TrafficRule selectedRule = decision.selectedRule();
+        int previousDuration = decision.previousDuration();
+        int newDuration = decision.newDuration();
 
         // Kavşak bilgileri
-        String densityLevel = getDensityLevel(request.getVehicleCount());
         OptimizationResponse.IntersectionInfo intersectionInfo = 
             OptimizationResponse.IntersectionInfo.builder()
                 .intersectionId(request.getIntersectionId())
                 .name("Kavşak-" + request.getIntersectionId() + " (Atatürk Bulvarı)")
                 .vehicleCount(request.getVehicleCount())
-                .densityLevel(densityLevel)
+                .densityLevel(decision.densityLevel())
                 .averageSpeed(request.getAverageSpeed() != null ? 
                              request.getAverageSpeed() + " km/h" : "N/A")
                 .build();
 
-        // Uygulanan kurallar
-        List<OptimizationResponse.AppliedRule> appliedRulesList = new ArrayList<>();
-        for (TrafficRule rule : applicableRules) {
-            appliedRulesList.add(OptimizationResponse.AppliedRule.builder()
-                    .ruleId(rule.getId())
-                    .ruleName(rule.getRuleName())
-                    .ruleType(rule.getRuleType().getDisplayName())
-                    .priority(rule.getPriority())
-                    .description(rule.getDescription())
-                    .build());
-        }
-
         // Optimizasyon detayları
         int adjustment = newDuration - previousDuration;
         OptimizationResponse.OptimizationDetails details = 
@@ -247,17 +325,13 @@ public class TrafficRuleService {
                 .appliedAt(LocalDateTime.now())
                 .build();
 
-        // Performans metrikleri
-        OptimizationResponse.PerformanceMetrics performance = 
-            calculatePerformance(adjustment, request.getVehicleCount());
-
         return OptimizationResponse.builder()
                 .success(true)
                 .message("🎯 Trafik kuralı başarıyla uygulandı: " + selectedRule.getRuleName())
                 .intersection(intersectionInfo)
-                .appliedRules(appliedRulesList)
+                .appliedRules(decision.appliedRules())
                 .details(details)
-                .performance(performance)
+                .performance(decision.performance())
                 .build();
     }
 
@@ -298,6 +372,63 @@ public class TrafficRuleService {
                 .build();
     }
 
+    private static boolean isWeekend(LocalDate date) {
+        DayOfWeek day = date.getDayOfWeek();
+        return day == DayOfWeek.SATURDAY || day == DayOfWeek.SUNDAY;
+    }
+
+    /**
+     * Aktif kural setinin statik analizi
+     */
+    @Transactional(readOnly = true)
+    public RuleAnalysisResponse analyzeRules() {
+        return ruleSetAnalyzer.analyze(ruleRepository.findByActiveTrueOrderByPriorityAscIdAsc());
+    }
+
+    /**
+     * Aday kuralın mevcut aktif set ile birlikte analizi (kaydetmeden)
+     */
+    @Transactional(readOnly = true)
+    public RuleAnalysisResponse analyzeCandidate(TrafficRule candidate) {
+        return ruleSetAnalyzer.analyze(ruleRepository.findByActiveTrueOrderByPriorityAscIdAsc(), candidate);
+    }
+
+    /**
+     * Kuralı kaydet (oluştur veya güncelle).
+     * Aktif kurallar önce analizden geçer; geçersiz, tamamen gölgelenmiş veya
+     * aynı öncelikte çakışan bir kural force=true verilmedikçe reddedilir.
+     * force=true analizi tamamen atlar. Izgara limitini aşan kural setlerinde analiz
+     * kaba moda geçer, aday kural yine denetlenir.
+     */
+    @Transactional
+    public TrafficRule saveRule(TrafficRule rule, boolean force) {
+        if (rule.getId() != null) {
+            TrafficRule existing = ruleRepository.findById(rule.getId())
+                    .orElseThrow(() -> new ResourceNotFoundException("TrafficRule", rule.getId()));
+            rule.setCreatedAt(existing.getCreatedAt());
+            rule.setTimesApplied(existing.getTimesApplied());
+        }
+
+        if (force) {
+            log.warn("⚠️ Kural analiz edilmeden kaydediliyor (force): {}", rule.getRuleName());
+        } else if (!Boolean.FALSE.equals(rule.getActive())) {
+            RuleAnalysisResponse analysis = analyzeCandidate(rule);
+            if (!Boolean.TRUE.equals(analysis.getCandidateAccepted())) {
+                RuleAnalysisResponse.RuleFinding finding = analysis.getCandidate();
+                String reason = finding.getStatus() != RuleAnalysisResponse.FindingStatus.OK &&
+                                finding.getStatus() != RuleAnalysisResponse.FindingStatus.PARTIALLY_SHADOWED
+                        ? finding.getStatus() + ": " + finding.getReason()
+                        : "Aynı öncelikte farklı yeşil süre üreten örtüşen kural var";
+                throw new BadRequestException("Kural reddedildi - " + reason);
+            }
+        }
+
+        TrafficRule saved = ruleRepository.save(rule);
+        log.info("📝 Kural kaydedildi: {} (öncelik {}) - yayınlanana kadar taslak",
+                saved.getRuleName(), saved.getPriority());
+        return saved;
+    }
+
     /**
      * Varsayılan kuralları oluştur
      */
@@ -362,6 +493,7 @@ public class TrafficRuleService {
                 .build();
         ruleRepository.save(nightMode);
 
+        ruleCatalog.publish("Varsayılan kurallar", "system");
         log.info("✅ 3 varsayılan kural oluşturuldu");
     }
 }
\ No newline at end of file
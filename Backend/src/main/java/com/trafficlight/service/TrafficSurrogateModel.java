@@ -0,0 +1,211 @@
+package com.trafficlight.service;
+
+import com.trafficlight.entity.IntersectionMetric;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+/**
+ * Geçmiş metriklerden eğitilen hızlı surrogate (vekil) model.
+ *
+ * Gecikme: Webster düzgün gecikme + HCM artımsal gecikme terimi,
+ *          gözlenen ortalama bekleme süresine göre kalibre edilir.
+ * Emisyon: CO2 = a + b x (araç-saat gecikme), en küçük kareler ile.
+ * Yaya:    ortalama bekleme = (C - g)^2 / (2C), iki geçiş için ortalama.
+ *
+ * Model immutable'dır; aynı örnek paralel thread'lerden güvenle kullanılabilir.
+ */
+public final class TrafficSurrogateModel {
+
+    /** Şerit başına doygun akış (araç/saat) */
+    private static final double SATURATION_FLOW_PER_LANE = 1800.0;
+
+    /** HCM artımsal gecikme analiz periyodu (saat) */
+    private static final double ANALYSIS_PERIOD_HOURS = 0.25;
+
+    /** Rölanti CO2 emisyonu varsayılanı (kg / araç-saat gecikme) */
+    static final double DEFAULT_CO2_PER_VEHICLE_HOUR = 1.9;
+
+    private static final double DEFAULT_HOURLY_DEMAND = 600.0;
+    private static final double MIN_CALIBRATION = 0.5;
+    private static final double MAX_CALIBRATION = 2.0;
+
+    private final double hourlyDemand;
+    private final double mainShare;
+    private final double saturationPerApproach;
+    private final double delayCalibration;
+    private final double co2Intercept;
+    private final double co2PerVehicleHour;
+    private final int sampleCount;
+
+    private TrafficSurrogateModel(double hourlyDemand, double mainShare, double saturationPerApproach,
+                                  double delayCalibration, double co2Intercept, double co2PerVehicleHour,
+                                  int sampleCount) {
+        this.hourlyDemand = hourlyDemand;
+        this.mainShare = mainShare;
+        this.saturationPerApproach = saturationPerApproach;
+        this.delayCalibration = delayCalibration;
+        this.co2Intercept = co2Intercept;
+        this.co2PerVehicleHour = co2PerVehicleHour;
+        this.sampleCount = sampleCount;
+    }
+
+    /**
+     * Geçmiş metriklerden modeli eğit.
+     *
+     * @param metrics        kavşağın geçmiş metrikleri (saatlik kayıtlar)
+     * @param lanesCount     kavşaktaki toplam şerit sayısı
+     * @param mainShare      trafiğin ana yöne düşen payı (0-1)
+     * @param currentCycle   şu an uygulanan döngü süresi (kalibrasyon için)
+     * @param currentGreen   şu an uygulanan ana yön yeşil süresi (kalibrasyon için)
+     * @param lostTime       döngü başına kayıp süre
+     */
+    public static TrafficSurrogateModel fit(List<IntersectionMetric> metrics, int lanesCount, double mainShare,
+                                            int currentCycle, int currentGreen, int lostTime) {
+        double saturation = SATURATION_FLOW_PER_LANE * Math.max(1, lanesCount) / 2.0;
+
+        // 1. Talep: saatlik araç sayısı (sayım ve throughput'un büyüğü)
+        double demandSum = 0;
+        int demandSamples = 0;
+        // 2. Gözlenen bekleme süresi
+        double waitSum = 0;
+        int waitSamples = 0;
+        // 3. CO2 regresyonu için toplamlar
+        double sx = 0, sy = 0, sxx = 0, sxy = 0;
+        int co2Samples = 0;
+
+        for (IntersectionMetric metric : metrics) {
+            int count = valueOr(metric.getTotalVehicleCount());
+            int throughput = valueOr(metric.getThroughput());
+            int vehicles = Math.max(count, throughput);
+            if (vehicles > 0) {
+                demandSum += vehicles;
+                demandSamples++;
+            }
+
+            Double wait = toDouble(metric.getAverageWaitTime());
+            if (wait != null) {
+                waitSum += wait;
+                waitSamples++;
+            }
+
+            Double co2 = toDouble(metric.getEstimatedCo2Emission());
+            if (wait != null && co2 != null && vehicles > 0) {
+                double vehicleHours = wait * vehicles / 3600.0;
+                sx += vehicleHours;
+                sy += co2;
+                sxx += vehicleHours * vehicleHours;
+                sxy += vehicleHours * co2;
+                co2Samples++;
+            }
+        }
+
+        double demand = demandSamples > 0 ? demandSum / demandSamples : DEFAULT_HOURLY_DEMAND;
+
+        double slope = DEFAULT_CO2_PER_VEHICLE_HOUR;
+        double intercept = 0.0;
+        if (co2Samples >= 3) {
+            double denominator = co2Samples * sxx - sx * sx;
+            if (Math.abs(denominator) > 1e-9) {
+                double fitted = (co2Samples * sxy - sx * sy) / denominator;
+                if (fitted > 0) {
+                    slope = fitted;
+                }
+            }
+            intercept = Math.max(0.0, (sy - slope * sx) / co2Samples);
+        }
+
+        TrafficSurrogateModel uncalibrated = new TrafficSurrogateModel(
+                demand, mainShare, saturation, 1.0, intercept, slope, metrics.size());
+
+        double calibration = 1.0;
+        if (waitSamples > 0 && currentCycle > 0) {
+            int crossGreen = Math.max(1, currentCycle - lostTime - currentGreen);
+            double predicted = uncalibrated.rawDelay(currentCycle, currentGreen, crossGreen);
+            if (predicted > 0) {
+                calibration = clamp(waitSum / waitSamples / predicted, MIN_CALIBRATION, MAX_CALIBRATION);
+            }
+        }
+
+        return new TrafficSurrogateModel(demand, mainShare, saturation, calibration,
+                intercept, slope, metrics.size());
+    }
+
+    /**
+     * Bir aday bölüşümü değerlendir
+     */
+    public TimingCandidate evaluate(int cycle, int mainGreen, int crossGreen) {
+        double delay = rawDelay(cycle, mainGreen, crossGreen) * delayCalibration;
+        double vehicleHours = delay * hourlyDemand / 3600.0;
+        double co2 = co2Intercept + co2PerVehicleHour * vehicleHours;
+        double pedestrianWait = (pedestrianWait(cycle, mainGreen) + pedestrianWait(cycle, crossGreen)) / 2.0;
+        return new TimingCandidate(cycle, mainGreen, crossGreen, delay, co2, pedestrianWait);
+    }
+
+    /**
+     * Kalibre edilmemiş, hacim ağırlıklı ortalama gecikme (saniye/araç)
+     */
+    private double rawDelay(int cycle, int mainGreen, int crossGreen) {
+        double mainVolume = hourlyDemand * mainShare;
+        double crossVolume = hourlyDemand - mainVolume;
+        double mainDelay = approachDelay(cycle, mainGreen, mainVolume);
+        double crossDelay = approachDelay(cycle, crossGreen, crossVolume);
+        if (hourlyDemand <= 0) {
+            return (mainDelay + crossDelay) / 2.0;
+        }
+        return (mainDelay * mainVolume + crossDelay * crossVolume) / hourlyDemand;
+    }
+
+    /**
+     * Tek yaklaşım için Webster + HCM artımsal gecikme
+     */
+    private double approachDelay(int cycle, int green, double volume) {
+        double greenRatio = (double) green / cycle;
+        double capacity = saturationPerApproach * greenRatio;
+        double x = capacity > 0 ? volume / capacity : 10.0;
+
+        double uniform = 0.5 * cycle * Math.pow(1 - greenRatio, 2)
+                / (1 - Math.min(1.0, x) * greenRatio);
+
+        double incremental = 0.0;
+        if (capacity > 0) {
+            double t = ANALYSIS_PERIOD_HOURS;
+            double term = x - 1;
+            incremental = 900 * t * (term + Math.sqrt(term * term + 4 * x / (capacity * t)));
+        }
+        return uniform + incremental;
+    }
+
+    private static double pedestrianWait(int cycle, int walkGreen) {
+        double red = cycle - walkGreen;
+        return red * red / (2.0 * cycle);
+    }
+
+    public double getHourlyDemand() {
+        return hourlyDemand;
+    }
+
+    public double getDelayCalibration() {
+        return delayCalibration;
+    }
+
+    public double getCo2PerVehicleHour() {
+        return co2PerVehicleHour;
+    }
+
+    public int getSampleCount() {
+        return sampleCount;
+    }
+
+    private static int valueOr(Integer value) {
+        return value != null ? value : 0;
+    }
+
+    private static Double toDouble(BigDecimal value) {
+        return value != null ? value.doubleValue() : null;
+    }
+
+    private static double clamp(double value, double min, double max) {
+        return Math.max(min, Math.min(max, value));
+    }
+}
@@ -0,0 +1,477 @@
+package com.trafficlight.service;
+
+import com.trafficlight.dto.WaitTimePercentileResponse;
+import com.trafficlight.entity.IntersectionMetric;
+import com.trafficlight.entity.WaitTimeSketch;
+import com.trafficlight.entity.WaitTimeSketch.Granularity;
+import com.trafficlight.exception.BadRequestException;
+import com.trafficlight.repository.IntersectionMetricRepository;
+import com.trafficlight.repository.WaitTimeSketchRepository;
+import com.trafficlight.util.LogHistogram;
+import jakarta.persistence.EntityManager;
+import lombok.extern.slf4j.Slf4j;
+import org.hibernate.Session;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.stream.Stream;
+
+/**
+ * Wait-Time Sketch Service
+ * Maintains wait_time_sketches and answers wait-time percentile queries
+ *
+ * Every hourly metric adds its average wait time, weighted by the hour's vehicle
+ * count, to a {@link LogHistogram} of its intersection and day and to the one of
+ * its month (same transaction as the metric, row-locked). A percentile query for
+ * any range merges the month histograms it fully covers and the day histograms
+ * at its edges, so a year of one intersection is at most 12 + 60 small rows.
+ * Backfill rebuilds the days of a range from intersection_metrics and re-merges
+ * the touched months from their days; an empty table is backfilled at startup.
+ * On PostgreSQL rebuilt rows are upserted, so a metric that recreates a row after
+ * the range was deleted does not fail the rebuild on the primary key.
+ */
+@Service
+@Slf4j
+public class WaitTimeSketchService {
+
+    public enum GroupBy { NONE, INTERSECTION, CITY }
+
+    public static final List<Double> DEFAULT_QUANTILES = List.of(0.5, 0.9, 0.95, 0.99);
+
+    /** Longest range a single backfill may rebuild (days), same as the daily rollups */
+    private static final long MAX_BACKFILL_DAYS = 3_660;
+    private static final int MAX_INTERSECTION_IDS = 1_000;
+    private static final int MAX_QUANTILES = 20;
+    private static final int FLUSH_EVERY = 1_000;
+
+    private final WaitTimeSketchRepository sketchRepository;
+    private final IntersectionMetricRepository metricRepository;
+    private final EntityManager entityManager;
+    private final TransactionTemplate transactionTemplate;
+    private final int reconcileDays;
+    private volatile Boolean postgres; // null until the first sketch row is written
+
+    public WaitTimeSketchService(
+            WaitTimeSketchRepository sketchRepository,
+            IntersectionMetricRepository metricRepository,
+            EntityManager entityManager,
+            PlatformTransactionManager transactionManager,
+            @Value("${traffic.rollup.reconcile-days:2}") int reconcileDays) {
+        this.sketchRepository = sketchRepository;
+        this.metricRepository = metricRepository;
+        this.entityManager = entityManager;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.reconcileDays = reconcileDays;
+    }
+
+    // ==========================================
+    // Incremental maintenance
+    // ==========================================
+
+    /**
+     * Add a new metric's wait time to its day and month (in the metric's transaction)
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void recordCreated(IntersectionMetric metric) {
+        if (metric.getAverageWaitTime() == null) {
+            return;
+        }
+        long value = hundredths(metric.getAverageWaitTime());
+        long weight = weight(metric.getTotalVehicleCount());
+        Long intersectionId = metric.getIntersection().getId();
+        for (Granularity granularity : Granularity.values()) {
+            LocalDate periodStart = periodStart(granularity, metric.getMeasurementDate());
+            WaitTimeSketch sketch = lockOrCreate(granularity, periodStart, intersectionId);
+            LogHistogram histogram = LogHistogram.fromBytes(sketch.getHistogram());
+            histogram.record(value, weight);
+            sketch.setSampleCount(histogram.count());
+            sketch.setHistogram(histogram.toBytes());
+        }
+    }
+
+    /**
+     * Remove a deleted metric's wait time; drop histograms that become empty
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void recordDeleted(IntersectionMetric metric) {
+        if (metric.getAverageWaitTime() == null) {
+            return;
+        }
+        long value = hundredths(metric.getAverageWaitTime());
+        long weight = weight(metric.getTotalVehicleCount());
+        Long intersectionId = metric.getIntersection().getId();
+        for (Granularity granularity : Granularity.values()) {
+            LocalDate periodStart = periodStart(granularity, metric.getMeasurementDate());
+            WaitTimeSketch sketch = sketchRepository.findForUpdate(granularity.name(), periodStart, intersectionId)
+                .orElse(null);
+            LogHistogram histogram = sketch != null ? LogHistogram.fromBytes(sketch.getHistogram()) : null;
+            if (histogram == null || !histogram.remove(value, weight)) {
+                log.warn("Wait-time sketch ({} {}) of intersection {} did not hold the deleted metric, " +
+                        "run a backfill to reconcile", granularity, periodStart, intersectionId);
+            }
+            if (sketch == null) {
+                continue;
+            }
+            if (histogram.isEmpty()) {
+                sketchRepository.delete(sketch);
+            } else {
+                sketch.setSampleCount(histogram.count());
+                sketch.setHistogram(histogram.toBytes());
+            }
+        }
+    }
+
+    /**
+     * Lock the histogram row, creating an empty one first when the period has none yet
+     *
+     * PostgreSQL creates it with ON CONFLICT DO NOTHING, so two transactions recording the
+     * first metric of a period queue on the row instead of one failing on the primary key;
+     * other databases (H2) persist and flush it directly.
+     */
+    private WaitTimeSketch lockOrCreate(Granularity granularity, LocalDate periodStart, Long intersectionId) {
+        return sketchRepository.findForUpdate(granularity.name(), periodStart, intersectionId)
+            .orElseGet(() -> {
+                byte[] empty = new LogHistogram().toBytes();
+                if (isPostgres()) {
+                    sketchRepository.insertIfAbsent(granularity.name(), periodStart, intersectionId, empty);
+                    return sketchRepository.findForUpdate(granularity.name(), periodStart, intersectionId)
+                        .orElseThrow();
+                }
+                WaitTimeSketch sketch = WaitTimeSketch.builder()
+                    .granularity(granularity)
+                    .periodStart(periodStart)
+                    .intersectionId(intersectionId)
+                    .sampleCount(0L)
+                    .histogram(empty)
+                    .build();
+                entityManager.persist(sketch);
+                entityManager.flush(); // the native FOR UPDATE of the next metric must see it
+                return sketch;
+            });
+    }
+
+    private boolean isPostgres() {
+        if (postgres == null) {
+            postgres = entityManager.unwrap(Session.class).doReturningWork(connection ->
+                    "PostgreSQL".equals(connection.getMetaData().getDatabaseProductName()));
+        }
+        return postgres;
+    }
+
+    /**
+     * Rebuild the day sketches of [startDate, endDate] and the month sketches they belong to
+     * @param startDate Start date
+     * @param endDate End date
+     * @return Number of sketch rows written
+     */
+    public long backfill(LocalDate startDate, LocalDate endDate) {
+        if (startDate == null || endDate == null || endDate.isBefore(startDate)) {
+            throw new BadRequestException("Invalid backfill range: " + startDate + " - " + endDate);
+        }
+        if (startDate.plusDays(MAX_BACKFILL_DAYS).isBefore(endDate)) {
+            throw new BadRequestException("Backfill range must not exceed " + MAX_BACKFILL_DAYS + " days");
+        }
+        long start = System.currentTimeMillis();
+        long rows = 0;
+        for (LocalDate month = startDate.withDayOfMonth(1); !month.isAfter(endDate); month = month.plusMonths(1)) {
+            LocalDate monthStart = month;
+            LocalDate from = startDate.isAfter(month) ? startDate : month;
+            LocalDate to = month.plusMonths(1).minusDays(1).isAfter(endDate) ? endDate : month.plusMonths(1).minusDays(1);
+            Long written = transactionTemplate.execute(status -> rebuildDays(from, to) + rebuildMonth(monthStart));
+            rows += written != null ? written : 0;
+        }
+        log.info("Wait-time sketches rebuilt for {} - {}: {} rows in {} ms", startDate, endDate, rows,
+                System.currentTimeMillis() - start);
+        return rows;
+    }
+
+    /**
+     * Build the sketches of the whole metric history when the table is still empty
+     * (first start after V14), so percentile queries answer without a manual backfill
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void backfillIfEmpty() {
+        try {
+            if (sketchRepository.existsByGranularity(Granularity.DAY)) {
+                return;
+            }
+            LocalDate first = metricRepository.findFirstWaitTimeDate();
+            LocalDate last = metricRepository.findLastWaitTimeDate();
+            if (first == null || last == null) {
+                return;
+            }
+            log.info("Wait-time sketches are empty, building them for {} - {}", first, last);
+            for (LocalDate from = first; !from.isAfter(last); from = from.plusDays(MAX_BACKFILL_DAYS + 1)) {
+                LocalDate to = from.plusDays(MAX_BACKFILL_DAYS);
+                backfill(from, to.isAfter(last) ? last : to);
+            }
+        } catch (RuntimeException e) {
+            log.warn("Initial wait-time sketch backfill failed, run POST /api/admin/rollups/backfill: {}",
+                    e.getMessage());
+        }
+    }
+
+    /**
+     * Nightly reconcile of the most recent days (covers metrics written directly to the table)
+     */
+    @Scheduled(cron = "${traffic.rollup.reconcile-cron:0 30 3 * * *}")
+    public void reconcileRecent() {
+        LocalDate today = LocalDate.now();
+        try {
+            backfill(today.minusDays(reconcileDays), today);
+        } catch (RuntimeException e) {
+            log.warn("Wait-time sketch reconcile failed: {}", e.getMessage());
+        }
+    }
+
+    private long rebuildDays(LocalDate from, LocalDate to) {
+        sketchRepository.deleteByPeriodRange(Granularity.DAY, from, to);
+        long written = 0;
+        Long currentIntersection = null;
+        LocalDate currentDay = null;
+        LogHistogram histogram = new LogHistogram();
+        try (Stream<Object[]> samples = metricRepository.streamWaitTimeSamples(from, to)) {
+            for (Object[] sample : (Iterable<Object[]>) samples::iterator) {
+                Long intersectionId = (Long) sample[0];
+                LocalDate day = (LocalDate) sample[1];
+                if (!intersectionId.equals(currentIntersection) || !day.equals(currentDay)) {
+                    written += persist(Granularity.DAY, currentDay, currentIntersection, histogram, written);
+                    histogram = new LogHistogram();
+                    currentIntersection = intersectionId;
+                    currentDay = day;
+                }
+                histogram.record(hundredths((BigDecimal) sample[2]), weight((Integer) sample[3]));
+            }
+        }
+        written += persist(Granularity.DAY, currentDay, currentIntersection, histogram, written);
+        entityManager.flush();
+        entityManager.clear();
+        return written;
+    }
+
+    private long rebuildMonth(LocalDate month) {
+        sketchRepository.deleteByPeriodRange(Granularity.MONTH, month, month);
+        long written = 0;
+        Long currentIntersection = null;
+        LogHistogram histogram = new LogHistogram();
+        for (Object[] day : sketchRepository.findHistogramsByIntersection(
+                Granularity.DAY, month, month.plusMonths(1).minusDays(1))) {
+            Long intersectionId = (Long) day[0];
+            if (!intersectionId.equals(currentIntersection)) {
+                written += persist(Granularity.MONTH, month, currentIntersection, histogram, written);
+                histogram = new LogHistogram();
+                currentIntersection = intersectionId;
+            }
+            histogram.merge(LogHistogram.fromBytes((byte[]) day[1]));
+        }
+        written += persist(Granularity.MONTH, month, currentIntersection, histogram, written);
+        entityManager.flush();
+        entityManager.clear();
+        return written;
+    }
+
+    /**
+     * @return 1 when a row was persisted, 0 for an empty histogram
+     */
+    private int persist(Granularity granularity, LocalDate periodStart, Long intersectionId,
+                        LogHistogram histogram, long writtenSoFar) {
+        if (intersectionId == null || histogram.isEmpty()) {
+            return 0;
+        }
+        if (isPostgres()) {
+            sketchRepository.upsertRebuilt(granularity.name(), periodStart, intersectionId,
+                    histogram.count(), histogram.toBytes());
+            return 1;
+        }
+        entityManager.persist(WaitTimeSketch.builder()
+            .granularity(granularity)
+            .periodStart(periodStart)
+            .intersectionId(intersectionId)
+            .sampleCount(histogram.count())
+            .histogram(histogram.toBytes())
+            .build());
+        if ((writtenSoFar + 1) % FLUSH_EVERY == 0) {
+            entityManager.flush();
+            entityManager.clear();
+        }
+        return 1;
+    }
+
+    // ==========================================
+    // Percentile queries
+    // ==========================================
+
+    /**
+     * Wait-time percentiles of [startDate, endDate], merged on the fly from the sketches
+     *
+     * @param intersectionIds null or empty for all intersections (or all of the city)
+     * @param city            null for all cities
+     * @param quantiles       null or empty for {@link #DEFAULT_QUANTILES}
+     * @param includeHistogram also return the occupied histogram buckets
+     */
+    @Transactional(readOnly = true)
+    public WaitTimePercentileResponse getPercentiles(
+            LocalDate startDate,
+            LocalDate endDate,
+            Collection<Long> intersectionIds,
+            String city,
+            GroupBy groupBy,
+            List<Double> quantiles,
+            boolean includeHistogram) {
+
+        boolean byIntersections = intersectionIds != null && !intersectionIds.isEmpty();
+        boolean byCity = city != null && !city.isBlank();
+        List<Double> requested = quantiles == null || quantiles.isEmpty() ? DEFAULT_QUANTILES : quantiles;
+        validate(startDate, endDate, intersectionIds, byIntersections && byCity, requested);
+        long start = System.nanoTime();
+
+        // Whole months from the month rows, the partial months at either end from the day rows
+        List<Object[]> sketches = new ArrayList<>();
+        LocalDate monthsFrom = startDate.getDayOfMonth() == 1 ? startDate : startDate.withDayOfMonth(1).plusMonths(1);
+        LocalDate monthsTo = endDate.plusDays(1).withDayOfMonth(1);
+        if (monthsFrom.isBefore(monthsTo)) {
+            sketches.addAll(load(Granularity.MONTH, monthsFrom, monthsTo.minusMonths(1), intersectionIds, city));
+            if (startDate.isBefore(monthsFrom)) {
+                sketches.addAll(load(Granularity.DAY, startDate, monthsFrom.minusDays(1), intersectionIds, city));
+            }
+            if (!monthsTo.isAfter(endDate)) {
+                sketches.addAll(load(Granularity.DAY, monthsTo, endDate, intersectionIds, city));
+            }
+        } else {
+            sketches.addAll(load(Granularity.DAY, startDate, endDate, intersectionIds, city));
+        }
+
+        Map<Object, LogHistogram> merged = new TreeMap<>();
+        if (groupBy == GroupBy.NONE) {
+            merged.put("ALL", new LogHistogram());
+        }
+        for (Object[] sketch : sketches) {
+            Object key = switch (groupBy) {
+                case NONE -> "ALL";
+                case INTERSECTION -> sketch[0];
+                case CITY -> sketch[1];
+            };
+            merged.computeIfAbsent(key, k -> new LogHistogram()).merge(LogHistogram.fromBytes((byte[]) sketch[2]));
+        }
+
+        List<WaitTimePercentileResponse.Group> groups = new ArrayList<>(merged.size());
+        merged.forEach((key, histogram) -> groups.add(toGroup(key, histogram, requested, includeHistogram)));
+        log.debug("Merged {} wait-time sketches into {} groups in {} µs", sketches.size(), groups.size(),
+                (System.nanoTime() - start) / 1_000);
+
+        return WaitTimePercentileResponse.builder()
+            .startDate(startDate)
+            .endDate(endDate)
+            .groupBy(groupBy.name())
+            .sketchesMerged(sketches.size())
+            .groups(groups)
+            .build();
+    }
+
+    private List<Object[]> load(Granularity granularity, LocalDate from, LocalDate to,
+                                Collection<Long> intersectionIds, String city) {
+        if (intersectionIds != null && !intersectionIds.isEmpty()) {
+            return sketchRepository.findSketchesForIntersections(intersectionIds, granularity, from, to);
+        }
+        if (city != null && !city.isBlank()) {
+            return sketchRepository.findSketchesForCity(city, granularity, from, to);
+        }
+        return sketchRepository.findSketches(granularity, from, to);
+    }
+
+    private static void validate(LocalDate startDate, LocalDate endDate, Collection<Long> intersectionIds,
+                                 boolean bothFilters, List<Double> quantiles) {
+        if (startDate == null || endDate == null || endDate.isBefore(startDate)) {
+            throw new BadRequestException("Start date must be before or equal to end date");
+        }
+        if (bothFilters) {
+            throw new BadRequestException("Filter by intersection IDs or by city, not both");
+        }
+        if (intersectionIds != null && intersectionIds.size() > MAX_INTERSECTION_IDS) {
+            throw new BadRequestException("At most " + MAX_INTERSECTION_IDS + " intersection IDs can be queried at once");
+        }
+        if (quantiles.size() > MAX_QUANTILES) {
+            throw new BadRequestException("At most " + MAX_QUANTILES + " quantiles can be requested at once");
+        }
+        for (Double q : quantiles) {
+            if (q == null || q < 0 || q > 1) {
+                throw new BadRequestException("Quantiles must be between 0 and 1: " + q);
+            }
+        }
+    }
+
+    private static WaitTimePercentileResponse.Group toGroup(Object key, LogHistogram histogram,
+                                                           List<Double> quantiles, boolean includeHistogram) {
+        Map<String, Double> percentiles = new LinkedHashMap<>();
+        boolean empty = histogram.isEmpty();
+        if (!empty) {
+            for (Double q : quantiles) {
+                percentiles.put(label(q), seconds(histogram.quantile(q)));
+            }
+        }
+        List<WaitTimePercentileResponse.Bucket> buckets = null;
+        if (includeHistogram) {
+            buckets = histogram.buckets().stream()
+                .map(bucket -> WaitTimePercentileResponse.Bucket.builder()
+                    .from(seconds(bucket.from()))
+                    .to(seconds(bucket.to()))
+                    .count(bucket.count())
+                    .build())
+                .toList();
+        }
+        return WaitTimePercentileResponse.Group.builder()
+            .key(key)
+            .samples(histogram.count())
+            .averageWaitTime(empty ? null : Math.round(histogram.mean()) / 100.0)
+            .minWaitTime(empty ? null : seconds(histogram.min()))
+            .maxWaitTime(empty ? null : seconds(histogram.max()))
+            .percentiles(percentiles)
+            .histogram(buckets)
+            .build();
+    }
+
+    /**
+     * 0.5 -> "p50", 0.999 -> "p99.9"
+     */
+    static String label(double quantile) {
+        return "p" + BigDecimal.valueOf(quantile).movePointRight(2).stripTrailingZeros().toPlainString();
+    }
+
+    // ==========================================
+    // Units
+    // ==========================================
+
+    private static LocalDate periodStart(Granularity granularity, LocalDate day) {
+        return granularity == Granularity.DAY ? day : day.withDayOfMonth(1);
+    }
+
+    /** Wait times are recorded in hundredths of a second, the scale of average_wait_time */
+    private static long hundredths(BigDecimal seconds) {
+        return Math.max(0, seconds.movePointRight(2).setScale(0, RoundingMode.HALF_UP).longValue());
+    }
+
+    private static double seconds(long hundredths) {
+        return hundredths / 100.0;
+    }
+
+    /** One sample per vehicle; hours without a vehicle count still count once */
+    private static long weight(Integer vehicles) {
+        return vehicles != null && vehicles > 0 ? vehicles : 1;
+    }
+}
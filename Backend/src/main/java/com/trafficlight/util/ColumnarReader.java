@@ -0,0 +1,157 @@
+package com.trafficlight.util;
+
+import com.trafficlight.util.ColumnarWriter.Column;
+import com.trafficlight.util.ColumnarWriter.ColumnType;
+
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+
+/**
+ * Reads a file written by {@link ColumnarWriter}, one row group at a time
+ */
+public class ColumnarReader {
+
+    private final DataInputStream in;
+    private final List<Column> columns;
+    private final Inflater inflater = new Inflater();
+    private boolean finished;
+
+    public ColumnarReader(InputStream in) throws IOException {
+        this.in = new DataInputStream(in);
+        byte[] magic = new byte[ColumnarWriter.MAGIC.length];
+        this.in.readFully(magic);
+        if (!Arrays.equals(magic, ColumnarWriter.MAGIC)) {
+            throw new IOException("Not a columnar metrics file");
+        }
+        int version = this.in.readUnsignedByte();
+        if (version != ColumnarWriter.VERSION) {
+            throw new IOException("Unsupported columnar file version: " + version);
+        }
+        int columnCount = (int) readVarint(this.in);
+        List<Column> read = new ArrayList<>(columnCount);
+        for (int c = 0; c < columnCount; c++) {
+            String name = this.in.readUTF();
+            ColumnType type = ColumnType.values()[this.in.readUnsignedByte()];
+            read.add(new Column(name, type, this.in.readUnsignedByte()));
+        }
+        this.columns = List.copyOf(read);
+    }
+
+    public List<Column> columns() {
+        return columns;
+    }
+
+    /**
+     * @return rows of the next group (one value array per row), or null after the last group
+     */
+    public List<Object[]> nextGroup() throws IOException {
+        if (finished) {
+            return null;
+        }
+        int rows = (int) readVarint(in);
+        if (rows == 0) {
+            finished = true;
+            inflater.end();
+            return null;
+        }
+        Object[][] values = new Object[rows][columns.size()];
+        for (int c = 0; c < columns.size(); c++) {
+            decodeColumn(c, new DataInputStream(new ByteArrayInputStream(inflateChunk())), values);
+        }
+        return Arrays.asList(values);
+    }
+
+    /**
+     * @return every remaining row; for tests and small files
+     */
+    public List<Object[]> readAll() throws IOException {
+        List<Object[]> rows = new ArrayList<>();
+        for (List<Object[]> group = nextGroup(); group != null; group = nextGroup()) {
+            rows.addAll(group);
+        }
+        return rows;
+    }
+
+    private byte[] inflateChunk() throws IOException {
+        int rawLength = (int) readVarint(in);
+        byte[] deflated = new byte[(int) readVarint(in)];
+        in.readFully(deflated);
+        byte[] raw = new byte[rawLength];
+        inflater.reset();
+        inflater.setInput(deflated);
+        try {
+            int length = 0;
+            while (length < rawLength && !inflater.finished()) {
+                length += inflater.inflate(raw, length, rawLength - length);
+            }
+            if (length != rawLength) {
+                throw new IOException("Truncated column chunk");
+            }
+        } catch (DataFormatException e) {
+            throw new IOException("Corrupt column chunk", e);
+        }
+        return raw;
+    }
+
+    private void decodeColumn(int c, DataInputStream chunk, Object[][] values) throws IOException {
+        int rows = values.length;
+        boolean[] isNull = new boolean[rows];
+        for (int i = 0; i < rows; i += 8) {
+            int bits = chunk.readUnsignedByte();
+            for (int b = 0; b < 8 && i + b < rows; b++) {
+                isNull[i + b] = (bits & (1 << b)) != 0;
+            }
+        }
+        Column column = columns.get(c);
+        String[] dictionary = null;
+        if (column.type() == ColumnType.STRING) {
+            dictionary = new String[(int) readVarint(chunk)];
+            for (int d = 0; d < dictionary.length; d++) {
+                dictionary[d] = chunk.readUTF();
+            }
+        }
+        long previous = 0;
+        for (int i = 0; i < rows; i++) {
+            if (isNull[i]) {
+                continue;
+            }
+            long raw = readVarint(chunk);
+            values[i][c] = switch (column.type()) {
+                case LONG -> previous += unzigzag(raw);
+                case DATE -> LocalDate.ofEpochDay(previous += unzigzag(raw));
+                case INT -> (int) unzigzag(raw);
+                case DECIMAL -> BigDecimal.valueOf(unzigzag(raw), column.scale());
+                case STRING -> dictionary[(int) raw];
+            };
+        }
+    }
+
+    private static long unzigzag(long value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    private static long readVarint(DataInputStream in) throws IOException {
+        long value = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            int b = in.read();
+            if (b < 0) {
+                throw new EOFException("Truncated columnar file");
+            }
+            value |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new IOException("Malformed varint");
+    }
+}
@@ -0,0 +1,255 @@
+package com.trafficlight.util;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.Deflater;
+
+/**
+ * Streaming writer for a compressed columnar file ("TCOL" format)
+ *
+ * Rows are buffered into row groups of fixed size; each full group is written
+ * column by column, so values of one column sit next to each other and
+ * compress well. Memory use is bounded by one row group, whatever the total
+ * number of rows.
+ *
+ * <pre>
+ * file    = "TCOL" version:u8 columnCount:varint column* group* 0:varint
+ * column  = name:utf type:u8 scale:u8
+ * group   = rowCount:varint (rawLength:varint deflatedLength:varint deflated:bytes){columnCount}
+ * chunk   = nullBitmap:ceil(rowCount / 8) bytes, then the non-null values:
+ *   LONG, DATE  zigzag varint delta from the previous non-null value (DATE = epoch day)
+ *   INT         zigzag varint
+ *   DECIMAL     zigzag varint of the unscaled value at the column scale
+ *   STRING      dictionarySize:varint utf{dictionarySize}, then a varint dictionary index per value
+ * </pre>
+ *
+ * Read back with {@link ColumnarReader}.
+ */
+public class ColumnarWriter {
+
+    static final byte[] MAGIC = {'T', 'C', 'O', 'L'};
+    static final int VERSION = 1;
+
+    public enum ColumnType { LONG, INT, DECIMAL, DATE, STRING }
+
+    /**
+     * @param scale fraction digits kept for DECIMAL columns, ignored otherwise
+     */
+    public record Column(String name, ColumnType type, int scale) {
+
+        public Column(String name, ColumnType type) {
+            this(name, type, 0);
+        }
+    }
+
+    private final DataOutputStream out;
+    private final List<Column> columns;
+    private final int groupSize;
+
+    private final long[][] numbers;
+    private final String[][] strings;
+    private final boolean[][] nulls;
+    private int rows;
+    private long totalRows;
+
+    private final ChunkBuffer chunk = new ChunkBuffer();
+    private final DataOutputStream chunkOut = new DataOutputStream(chunk);
+    private final Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+    private byte[] deflated = new byte[1 << 16];
+    private final Map<String, Integer> dictionary = new HashMap<>();
+
+    public ColumnarWriter(OutputStream out, List<Column> columns, int groupSize) throws IOException {
+        if (groupSize < 1) {
+            throw new IllegalArgumentException("Row group size must be positive: " + groupSize);
+        }
+        this.out = new DataOutputStream(out);
+        this.columns = List.copyOf(columns);
+        this.groupSize = groupSize;
+        this.numbers = new long[columns.size()][];
+        this.strings = new String[columns.size()][];
+        this.nulls = new boolean[columns.size()][groupSize];
+        for (int c = 0; c < columns.size(); c++) {
+            if (columns.get(c).type() == ColumnType.STRING) {
+                strings[c] = new String[groupSize];
+            } else {
+                numbers[c] = new long[groupSize];
+            }
+        }
+        writeHeader();
+    }
+
+    /**
+     * @param values one value per column: Number for LONG/INT, BigDecimal, LocalDate, String; null allowed
+     */
+    public void write(Object[] values) throws IOException {
+        for (int c = 0; c < numbers.length; c++) {
+            Object value = values[c];
+            nulls[c][rows] = value == null;
+            if (value == null) {
+                continue;
+            }
+            Column column = columns.get(c);
+            switch (column.type()) {
+                case LONG, INT -> numbers[c][rows] = ((Number) value).longValue();
+                case DECIMAL -> numbers[c][rows] = unscaled((BigDecimal) value, column.scale());
+                case DATE -> numbers[c][rows] = ((LocalDate) value).toEpochDay();
+                case STRING -> strings[c][rows] = (String) value;
+            }
+        }
+        if (++rows == groupSize) {
+            writeGroup();
+        }
+    }
+
+    public long rowCount() {
+        return totalRows + rows;
+    }
+
+    /**
+     * Write the last partial group and the end marker; the underlying stream stays open
+     */
+    public void finish() throws IOException {
+        if (rows > 0) {
+            writeGroup();
+        }
+        writeVarint(out, 0);
+        out.flush();
+        deflater.end();
+    }
+
+    private void writeHeader() throws IOException {
+        out.write(MAGIC);
+        out.writeByte(VERSION);
+        writeVarint(out, columns.size());
+        for (Column column : columns) {
+            out.writeUTF(column.name());
+            out.writeByte(column.type().ordinal());
+            out.writeByte(column.scale());
+        }
+    }
+
+    private void writeGroup() throws IOException {
+        writeVarint(out, rows);
+        for (int c = 0; c < columns.size(); c++) {
+            chunk.reset();
+            encodeColumn(c);
+            writeDeflated();
+        }
+        totalRows += rows;
+        rows = 0;
+    }
+
+    private void encodeColumn(int c) throws IOException {
+        boolean[] isNull = nulls[c];
+        for (int i = 0; i < rows; i += 8) {
+            int bits = 0;
+            for (int b = 0; b < 8 && i + b < rows; b++) {
+                if (isNull[i + b]) {
+                    bits |= 1 << b;
+                }
+            }
+            chunkOut.writeByte(bits);
+        }
+        switch (columns.get(c).type()) {
+            case LONG, DATE -> {
+                long[] values = numbers[c];
+                long previous = 0;
+                for (int i = 0; i < rows; i++) {
+                    if (!isNull[i]) {
+                        writeVarint(chunkOut, zigzag(values[i] - previous));
+                        previous = values[i];
+                    }
+                }
+            }
+            case INT, DECIMAL -> {
+                long[] values = numbers[c];
+                for (int i = 0; i < rows; i++) {
+                    if (!isNull[i]) {
+                        writeVarint(chunkOut, zigzag(values[i]));
+                    }
+                }
+            }
+            case STRING -> {
+                String[] values = strings[c];
+                dictionary.clear();
+                for (int i = 0; i < rows; i++) {
+                    if (!isNull[i]) {
+                        dictionary.putIfAbsent(values[i], dictionary.size());
+                    }
+                }
+                String[] entries = new String[dictionary.size()];
+                dictionary.forEach((value, index) -> entries[index] = value);
+                writeVarint(chunkOut, entries.length);
+                for (String entry : entries) {
+                    chunkOut.writeUTF(entry);
+                }
+                for (int i = 0; i < rows; i++) {
+                    if (!isNull[i]) {
+                        writeVarint(chunkOut, dictionary.get(values[i]));
+                    }
+                    values[i] = null;
+                }
+            }
+        }
+    }
+
+    private void writeDeflated() throws IOException {
+        int rawLength = chunk.size();
+        deflater.reset();
+        deflater.setInput(chunk.bytes(), 0, rawLength);
+        deflater.finish();
+        int length = 0;
+        while (!deflater.finished()) {
+            if (length == deflated.length) {
+                deflated = Arrays.copyOf(deflated, deflated.length * 2);
+            }
+            length += deflater.deflate(deflated, length, deflated.length - length);
+        }
+        writeVarint(out, rawLength);
+        writeVarint(out, length);
+        out.write(deflated, 0, length);
+    }
+
+    /** Exposes its buffer so a chunk is deflated without copying it */
+    private static final class ChunkBuffer extends ByteArrayOutputStream {
+
+        ChunkBuffer() {
+            super(1 << 16);
+        }
+
+        byte[] bytes() {
+            return buf;
+        }
+    }
+
+    /**
+     * Unscaled value at the given scale, without going through BigInteger for values already at that scale
+     */
+    private static long unscaled(BigDecimal value, int scale) {
+        if (value.scale() != scale) {
+            value = value.setScale(scale, RoundingMode.HALF_UP);
+        }
+        return value.scaleByPowerOfTen(scale).longValueExact();
+    }
+
+    private static long zigzag(long value) {
+        return (value << 1) ^ (value >> 63);
+    }
+
+    static void writeVarint(DataOutputStream out, long value) throws IOException {
+        while ((value & ~0x7FL) != 0) {
+            out.writeByte((int) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        out.writeByte((int) value);
+    }
+}
@@ -0,0 +1,50 @@
+package com.trafficlight.util;
+
+import com.trafficlight.exception.BadRequestException;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+/**
+ * Keyset sayfalama için opak imleç.
+ *
+ * İmleç, son satırın sıralama anahtarlarının ("|" ile birleştirilmiş)
+ * Base64URL halidir; istemci içeriğini yorumlamaz, bir sonraki istekte
+ * aynen geri gönderir.
+ */
+public final class CursorCodec {
+
+    private static final String SEPARATOR = "|";
+
+    private CursorCodec() {
+    }
+
+    public static String encode(Object... parts) {
+        StringBuilder joined = new StringBuilder();
+        for (int i = 0; i < parts.length; i++) {
+            if (i > 0) {
+                joined.append(SEPARATOR);
+            }
+            joined.append(parts[i]);
+        }
+        return Base64.getUrlEncoder().withoutPadding()
+                .encodeToString(joined.toString().getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * @param expectedParts imleçteki anahtar sayısı
+     * @throws BadRequestException imleç bozuksa
+     */
+    public static String[] decode(String cursor, int expectedParts) {
+        try {
+            String joined = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            String[] parts = joined.split("\\" + SEPARATOR, -1);
+            if (parts.length != expectedParts) {
+                throw new BadRequestException("Geçersiz sayfa imleci: " + cursor);
+            }
+            return parts;
+        } catch (IllegalArgumentException e) {
+            throw new BadRequestException("Geçersiz sayfa imleci: " + cursor);
+        }
+    }
+}
@@ -5,6 +5,8 @@ import com.trafficlight.entity.Intersection.IntersectionStatus;
 import com.trafficlight.entity.Intersection.IntersectionType;
 import com.trafficlight.entity.IntersectionPhase.PhaseType;
 import com.trafficlight.repository.*;
+import com.trafficlight.service.DailyRollupService;
+import com.trafficlight.service.WaitTimeSketchService;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.boot.CommandLineRunner;
@@ -33,6 +35,8 @@ public class DataSeeder implements CommandLineRunner {
     private final IntersectionConfigRepository configRepository;
     private final IntersectionMetricRepository metricRepository;
     private final IntersectionPhaseRepository phaseRepository;
+    private final DailyRollupService rollupService;
+    private final WaitTimeSketchService sketchService;
     
     // --- YENİ EKLENEN BAĞIMLILIKLAR ---
     private final UserRepository userRepository;
@@ -60,6 +64,10 @@ public class DataSeeder implements CommandLineRunner {
         seedAnkaraIntersections();
         seedIzmirIntersections();
         
+        // Seeded metrics bypass MetricService, so build the daily rollups and wait-time sketches in one pass
+        rollupService.backfill(LocalDate.now().minusDays(30), LocalDate.now());
+        sketchService.backfill(LocalDate.now().minusDays(30), LocalDate.now());
+        
         log.info("Data seeding completed successfully!");
         log.info("Total intersections: {}", intersectionRepository.count());
         log.info("Total metrics: {}", metricRepository.count());
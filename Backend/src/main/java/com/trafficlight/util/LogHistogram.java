@@ -0,0 +1,291 @@
+package com.trafficlight.util;
+
+import java.io.ByteArrayOutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Mergeable log-linear histogram for quantile queries (HDR histogram layout)
+ *
+ * Values are non-negative longs in whatever unit the caller picks (wait times
+ * are recorded in hundredths of a second). Values below 128 get one bucket
+ * each; above that every power of two is split into 64 buckets, so a bucket
+ * is never wider than 1/64 of its lower bound and a quantile read from the
+ * bucket midpoint is within 0.8% of the true value.
+ *
+ * Counts are weights: merging is bucket-wise addition and a recorded value
+ * can be removed again, so a persisted histogram follows deletes exactly
+ * (a t-digest cannot). Only the occupied index range is held in memory.
+ *
+ * <pre>
+ * bytes  = 'H' version:u8 sum:varint bucketCount:varint (indexDelta:varint count:varint){bucketCount}
+ * </pre>
+ */
+public class LogHistogram {
+
+    static final int SUB_BUCKET_BITS = 6;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    private static final int LINEAR_LIMIT = SUB_BUCKETS * 2;
+    private static final byte MAGIC = 'H';
+    private static final int VERSION = 1;
+
+    /**
+     * One occupied bucket: values in [from, to)
+     */
+    public record Bucket(long from, long to, long count) {
+    }
+
+    private long[] counts = new long[0];
+    private int offset; // bucket index of counts[0]
+    private long totalCount;
+    private long sum; // sum of value * weight
+
+    /**
+     * @param weight how many times the value occurred (e.g. vehicles that waited that long)
+     */
+    public void record(long value, long weight) {
+        if (value < 0 || weight < 0) {
+            throw new IllegalArgumentException("Histogram values and weights must not be negative");
+        }
+        if (weight == 0) {
+            return;
+        }
+        int index = index(value);
+        ensureIndex(index);
+        counts[index - offset] += weight;
+        totalCount += weight;
+        sum = Math.addExact(sum, Math.multiplyExact(value, weight));
+    }
+
+    /**
+     * Take back a value recorded earlier
+     * @return false when the histogram held less of it than asked (the rest is ignored)
+     */
+    public boolean remove(long value, long weight) {
+        if (value < 0 || weight < 0) {
+            throw new IllegalArgumentException("Histogram values and weights must not be negative");
+        }
+        int index = index(value);
+        long held = index >= offset && index < offset + counts.length ? counts[index - offset] : 0;
+        long removed = Math.min(held, weight);
+        if (removed > 0) {
+            counts[index - offset] -= removed;
+            totalCount -= removed;
+            sum = Math.max(0, sum - value * removed);
+        }
+        return removed == weight;
+    }
+
+    public void merge(LogHistogram other) {
+        if (other.totalCount == 0) {
+            return;
+        }
+        ensureIndex(other.offset);
+        ensureIndex(other.offset + other.counts.length - 1);
+        for (int i = 0; i < other.counts.length; i++) {
+            counts[other.offset + i - offset] += other.counts[i];
+        }
+        totalCount += other.totalCount;
+        sum = Math.addExact(sum, other.sum);
+    }
+
+    public long count() {
+        return totalCount;
+    }
+
+    public long sum() {
+        return sum;
+    }
+
+    public boolean isEmpty() {
+        return totalCount == 0;
+    }
+
+    /**
+     * Exact mean (the sum is kept alongside the buckets)
+     */
+    public double mean() {
+        return totalCount > 0 ? (double) sum / totalCount : Double.NaN;
+    }
+
+    /**
+     * Value at quantile q (0 = minimum, 1 = maximum), as the midpoint of the bucket holding that rank
+     * @throws IllegalStateException when the histogram is empty
+     */
+    public long quantile(double q) {
+        if (q < 0 || q > 1 || Double.isNaN(q)) {
+            throw new IllegalArgumentException("Quantile must be between 0 and 1: " + q);
+        }
+        if (totalCount == 0) {
+            throw new IllegalStateException("Histogram is empty");
+        }
+        long rank = Math.max(1, (long) Math.ceil(q * totalCount));
+        long seen = 0;
+        for (int i = 0; i < counts.length; i++) {
+            seen += counts[i];
+            if (seen >= rank) {
+                return midpoint(offset + i);
+            }
+        }
+        return midpoint(offset + counts.length - 1);
+    }
+
+    /**
+     * Lower bound of the lowest occupied bucket
+     */
+    public long min() {
+        for (int i = 0; i < counts.length; i++) {
+            if (counts[i] > 0) {
+                return lowerBound(offset + i);
+            }
+        }
+        throw new IllegalStateException("Histogram is empty");
+    }
+
+    /**
+     * Upper bound (inclusive) of the highest occupied bucket
+     */
+    public long max() {
+        for (int i = counts.length - 1; i >= 0; i--) {
+            if (counts[i] > 0) {
+                return lowerBound(offset + i) + width(offset + i) - 1;
+            }
+        }
+        throw new IllegalStateException("Histogram is empty");
+    }
+
+    /**
+     * Occupied buckets, lowest first
+     */
+    public List<Bucket> buckets() {
+        List<Bucket> buckets = new ArrayList<>();
+        for (int i = 0; i < counts.length; i++) {
+            if (counts[i] > 0) {
+                long from = lowerBound(offset + i);
+                buckets.add(new Bucket(from, from + width(offset + i), counts[i]));
+            }
+        }
+        return buckets;
+    }
+
+    // ==========================================
+    // Serialization
+    // ==========================================
+
+    public byte[] toBytes() {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(16 + counts.length * 3);
+        out.write(MAGIC);
+        out.write(VERSION);
+        writeVarint(out, sum);
+        int occupied = 0;
+        for (long count : counts) {
+            occupied += count > 0 ? 1 : 0;
+        }
+        writeVarint(out, occupied);
+        int previous = 0;
+        for (int i = 0; i < counts.length; i++) {
+            if (counts[i] > 0) {
+                writeVarint(out, offset + i - previous);
+                writeVarint(out, counts[i]);
+                previous = offset + i;
+            }
+        }
+        return out.toByteArray();
+    }
+
+    public static LogHistogram fromBytes(byte[] bytes) {
+        if (bytes.length < 2 || bytes[0] != MAGIC || bytes[1] != VERSION) {
+            throw new IllegalArgumentException("Not a histogram (version " + VERSION + ")");
+        }
+        int[] position = {2};
+        LogHistogram histogram = new LogHistogram();
+        long sum = readVarint(bytes, position);
+        int occupied = (int) readVarint(bytes, position);
+        if (occupied > 0) {
+            int[] indexes = new int[occupied];
+            long[] values = new long[occupied];
+            int index = 0;
+            for (int b = 0; b < occupied; b++) {
+                index += (int) readVarint(bytes, position);
+                indexes[b] = index;
+                values[b] = readVarint(bytes, position);
+            }
+            histogram.offset = indexes[0];
+            histogram.counts = new long[indexes[occupied - 1] - indexes[0] + 1];
+            for (int b = 0; b < occupied; b++) {
+                histogram.counts[indexes[b] - histogram.offset] = values[b];
+                histogram.totalCount += values[b];
+            }
+        }
+        histogram.sum = sum;
+        return histogram;
+    }
+
+    // ==========================================
+    // Bucket layout
+    // ==========================================
+
+    static int index(long value) {
+        if (value < LINEAR_LIMIT) {
+            return (int) value;
+        }
+        int shift = 63 - Long.numberOfLeadingZeros(value) - SUB_BUCKET_BITS;
+        return shift * SUB_BUCKETS + (int) (value >>> shift);
+    }
+
+    static long lowerBound(int index) {
+        if (index < LINEAR_LIMIT) {
+            return index;
+        }
+        int shift = index / SUB_BUCKETS - 1;
+        return (long) (index % SUB_BUCKETS + SUB_BUCKETS) << shift;
+    }
+
+    static long width(int index) {
+        return index < LINEAR_LIMIT ? 1 : 1L << (index / SUB_BUCKETS - 1);
+    }
+
+    private static long midpoint(int index) {
+        return lowerBound(index) + width(index) / 2;
+    }
+
+    private void ensureIndex(int index) {
+        if (counts.length == 0) {
+            counts = new long[SUB_BUCKETS];
+            offset = Math.max(0, index - SUB_BUCKETS / 2);
+        }
+        if (index < offset) {
+            int grow = Math.max(offset - index, Math.min(offset, counts.length / 2));
+            long[] grown = new long[counts.length + grow];
+            System.arraycopy(counts, 0, grown, grow, counts.length);
+            counts = grown;
+            offset -= grow;
+        } else if (index >= offset + counts.length) {
+            counts = Arrays.copyOf(counts, Math.max(index - offset + 1, counts.length + counts.length / 2));
+        }
+    }
+
+    private static void writeVarint(ByteArrayOutputStream out, long value) {
+        while ((value & ~0x7FL) != 0) {
+            out.write((int) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        out.write((int) value);
+    }
+
+    private static long readVarint(byte[] bytes, int[] position) {
+        long value = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            if (position[0] >= bytes.length) {
+                throw new IllegalArgumentException("Truncated histogram");
+            }
+            int b = bytes[position[0]++];
+            value |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new IllegalArgumentException("Malformed histogram varint");
+    }
+}
@@ -0,0 +1,84 @@
+package com.trafficlight.util;
+
+import com.trafficlight.dto.MetricImportResult;
+import com.trafficlight.service.MetricImportService;
+import com.trafficlight.service.MetricImportService.Format;
+import com.trafficlight.service.MetricImportService.OnDuplicate;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.stereotype.Component;
+
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Toplu metrik içe aktarımı - komut satırı modu
+ *
+ * Dosyayı içe aktarır, sonucu loglar ve uygulamayı kapatır (hata varsa çıkış kodu 1):
+ *
+ *   java -jar traffic-light-system.jar --spring.main.web-application-type=none \
+ *        --traffic.metrics.import.file=metrics-2025.csv.gz \
+ *        [--traffic.metrics.import.on-duplicate=REPLACE] [--traffic.metrics.import.format=NDJSON]
+ *
+ * Biçim verilmezse dosya uzantısından çıkarılır (.ndjson / .jsonl, sonra CSV).
+ */
+@Component
+@ConditionalOnProperty(name = "traffic.metrics.import.file")
+@Slf4j
+public class MetricImportRunner implements ApplicationRunner {
+
+    private final MetricImportService importService;
+    private final ConfigurableApplicationContext context;
+    private final Path file;
+    private final String format;
+    private final OnDuplicate onDuplicate;
+
+    public MetricImportRunner(
+            MetricImportService importService,
+            ConfigurableApplicationContext context,
+            @Value("${traffic.metrics.import.file}") Path file,
+            @Value("${traffic.metrics.import.format:}") String format,
+            @Value("${traffic.metrics.import.on-duplicate:SKIP}") OnDuplicate onDuplicate) {
+        this.importService = importService;
+        this.context = context;
+        this.file = file;
+        this.format = format;
+        this.onDuplicate = onDuplicate;
+    }
+
+    @Override
+    public void run(ApplicationArguments args) {
+        int exitCode;
+        try (InputStream input = Files.newInputStream(file)) {
+            log.info("📥 Metrik içe aktarımı başlıyor: {}", file);
+            MetricImportResult result = importService.importMetrics(input, resolveFormat(), onDuplicate, null);
+            log.info("✅ İçe aktarım tamamlandı: {} satır okundu, {} reddedildi, {} birleştirildi, {} atlandı ({} ms)",
+                    result.getRowsRead(), result.getRowsRejected(), result.getRowsMerged(),
+                    result.getRowsSkipped(), result.getDurationMs());
+            result.getErrors().forEach(error -> log.warn("⚠️ {}", error));
+            exitCode = 0;
+        } catch (Exception e) {
+            log.error("❌ İçe aktarım başarısız: {}", e.getMessage());
+            exitCode = 1;
+        }
+        int code = exitCode;
+        System.exit(SpringApplication.exit(context, () -> code));
+    }
+
+    private Format resolveFormat() {
+        if (!format.isBlank()) {
+            return Format.valueOf(format.trim().toUpperCase());
+        }
+        String name = file.getFileName().toString().toLowerCase();
+        if (name.endsWith(".gz")) {
+            name = name.substring(0, name.length() - 3);
+        }
+        return name.endsWith(".ndjson") || name.endsWith(".jsonl") ? Format.NDJSON : Format.CSV;
+    }
+}
@@ -0,0 +1,59 @@
+package com.trafficlight.util;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+/**
+ * Row count estimates from the PostgreSQL planner statistics
+ *
+ * Runs EXPLAIN (FORMAT JSON) on the given query and returns the top node's
+ * "Plan Rows": a few microseconds of planning instead of a COUNT that reads
+ * every matching row. The value is as fresh as the last ANALYZE and may be off
+ * by a lot for rare filter values. Other databases give no estimate (null).
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class PlannerRowEstimator {
+
+    private final JdbcTemplate jdbcTemplate;
+    private final ObjectMapper objectMapper;
+
+    private volatile Boolean postgres;
+
+    /**
+     * @param sql  SELECT without LIMIT, with ? placeholders
+     * @param args Placeholder values
+     * @return Estimated row count, null if not PostgreSQL or the plan could not be read
+     */
+    public Long estimate(String sql, Object... args) {
+        if (!isPostgres()) {
+            return null;
+        }
+        try {
+            String plan = jdbcTemplate.queryForObject("EXPLAIN (FORMAT JSON) " + sql, String.class, args);
+            JsonNode rows = objectMapper.readTree(plan).path(0).path("Plan").path("Plan Rows");
+            return rows.isNumber() ? rows.asLong() : null;
+        } catch (DataAccessException | JsonProcessingException e) {
+            log.warn("Row estimate failed for [{}]: {}", sql, e.getMessage());
+            return null;
+        }
+    }
+
+    private boolean isPostgres() {
+        Boolean result = postgres;
+        if (result == null) {
+            result = Boolean.TRUE.equals(jdbcTemplate.execute((ConnectionCallback<Boolean>) connection ->
+                    "PostgreSQL".equals(connection.getMetaData().getDatabaseProductName())));
+            postgres = result;
+        }
+        return result;
+    }
+}
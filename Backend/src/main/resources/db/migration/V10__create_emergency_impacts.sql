@@ -0,0 +1,36 @@
+-- Sprint 5: Emergency Impact Analytics
+-- V10__create_emergency_impacts.sql
+
+-- Measured side-street impact of each emergency green window
+CREATE SEQUENCE IF NOT EXISTS emergency_impacts_id_seq INCREMENT BY 50;
+
+CREATE TABLE IF NOT EXISTS emergency_impacts (
+    id BIGINT PRIMARY KEY DEFAULT nextval('emergency_impacts_id_seq'),
+    vehicle_key VARCHAR(36) NOT NULL,
+    vehicle_id VARCHAR(50),
+    intersection_id BIGINT NOT NULL,
+    held_approaches VARCHAR(50),
+    hold_start TIMESTAMP NOT NULL,
+    hold_seconds INTEGER NOT NULL,
+    baseline_queue DOUBLE PRECISION NOT NULL,
+    hold_demand DOUBLE PRECISION NOT NULL,
+    peak_queue INTEGER NOT NULL,
+    queue_build_up DOUBLE PRECISION NOT NULL,
+    recovery_seconds INTEGER,
+    delay_vehicle_seconds DOUBLE PRECISION NOT NULL,
+    sensor_readings INTEGER NOT NULL,
+    analyzed_at TIMESTAMP NOT NULL,
+    CONSTRAINT fk_impact_intersection FOREIGN KEY (intersection_id)
+        REFERENCES intersections(id) ON DELETE CASCADE
+);
+
+CREATE INDEX IF NOT EXISTS idx_emergency_impacts_intersection_hold
+    ON emergency_impacts(intersection_id, hold_start DESC, id DESC);
+
+-- Impact analysis reads one intersection's side-street readings over a time range
+CREATE INDEX IF NOT EXISTS idx_sensors_intersection_recorded
+    ON traffic_sensors(intersection_id, recorded_at);
+
+COMMENT ON TABLE emergency_impacts IS 'Acil durum yeşil pencerelerinin yan yol kuyruğuna ölçülen etkisi';
+COMMENT ON COLUMN emergency_impacts.recovery_seconds IS 'Pencere bitişinden kuyruğun tabana dönüşüne (NULL = gözlem süresinde dönmedi)';
+COMMENT ON COLUMN emergency_impacts.delay_vehicle_seconds IS 'Tabanı aşan kuyruğun zaman integrali (araç x saniye)';
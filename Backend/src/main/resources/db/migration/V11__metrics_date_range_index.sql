@@ -0,0 +1,9 @@
+-- Sprint 5: Dashboard Aggregates
+-- V11__metrics_date_range_index.sql
+
+-- Dashboard KPIs group every intersection's metrics over a date range in one query;
+-- the (intersection_id, date, hour) index cannot range-scan by date.
+-- INCLUDE columns let the aggregate run as an index-only scan.
+CREATE INDEX IF NOT EXISTS idx_metrics_date_intersection
+    ON intersection_metrics(measurement_date, intersection_id)
+    INCLUDE (average_wait_time, total_vehicle_count, throughput);
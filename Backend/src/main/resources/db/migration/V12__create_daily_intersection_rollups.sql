@@ -0,0 +1,31 @@
+-- Sprint 5: Daily Intersection Rollups
+-- V12__create_daily_intersection_rollups.sql
+
+-- Trend, top-performing and heatmap charts read one row per intersection per day
+-- instead of re-aggregating the hourly intersection_metrics rows on every request.
+-- Averages are stored as sum + sample count so rows stay additive.
+CREATE TABLE IF NOT EXISTS daily_intersection_rollups (
+    rollup_date DATE NOT NULL,
+    intersection_id BIGINT NOT NULL,
+    metric_count INTEGER NOT NULL,
+    total_vehicle_count BIGINT NOT NULL,
+    wait_time_sum NUMERIC(16, 2) NOT NULL,
+    wait_time_samples INTEGER NOT NULL,
+    throughput_sum BIGINT NOT NULL,
+    throughput_samples INTEGER NOT NULL,
+    updated_at TIMESTAMP NOT NULL,
+    CONSTRAINT pk_daily_intersection_rollups PRIMARY KEY (rollup_date, intersection_id),
+    CONSTRAINT fk_rollup_intersection FOREIGN KEY (intersection_id)
+        REFERENCES intersections(id) ON DELETE CASCADE
+);
+
+-- Initial backfill from existing metrics
+INSERT INTO daily_intersection_rollups (
+    rollup_date, intersection_id, metric_count, total_vehicle_count,
+    wait_time_sum, wait_time_samples, throughput_sum, throughput_samples, updated_at)
+SELECT measurement_date, intersection_id, COUNT(*), COALESCE(SUM(total_vehicle_count), 0),
+       COALESCE(SUM(average_wait_time), 0), COUNT(average_wait_time),
+       COALESCE(SUM(throughput), 0), COUNT(throughput), NOW()
+FROM intersection_metrics
+GROUP BY measurement_date, intersection_id
+ON CONFLICT (rollup_date, intersection_id) DO NOTHING;
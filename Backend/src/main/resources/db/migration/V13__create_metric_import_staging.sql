@@ -0,0 +1,38 @@
+-- Sprint 5: Bulk Metric Import Staging
+-- V13__create_metric_import_staging.sql
+
+-- Bulk imports COPY validated rows here, then merge them into intersection_metrics
+-- with one set-based statement. Rows only live for the duration of an import
+-- transaction, so the table is UNLOGGED (no WAL) and has no indexes or constraints.
+CREATE UNLOGGED TABLE IF NOT EXISTS metric_import_staging (
+    import_id VARCHAR(36) NOT NULL,
+    line_number BIGINT NOT NULL,
+    intersection_id BIGINT NOT NULL,
+    measurement_date DATE NOT NULL,
+    measurement_hour INTEGER NOT NULL,
+    total_vehicle_count INTEGER,
+    car_count INTEGER,
+    truck_count INTEGER,
+    bus_count INTEGER,
+    motorcycle_count INTEGER,
+    bicycle_count INTEGER,
+    pedestrian_count INTEGER,
+    average_wait_time DECIMAL(10, 2),
+    maximum_wait_time DECIMAL(10, 2),
+    average_queue_length DECIMAL(10, 2),
+    maximum_queue_length INTEGER,
+    throughput INTEGER,
+    green_time_utilization DECIMAL(5, 2),
+    red_light_violations INTEGER,
+    yellow_light_violations INTEGER,
+    pedestrian_violations INTEGER,
+    accidents_count INTEGER,
+    near_miss_count INTEGER,
+    emergency_vehicle_passages INTEGER,
+    system_uptime_percentage DECIMAL(5, 2),
+    malfunction_count INTEGER,
+    manual_override_count INTEGER,
+    estimated_co2_emission DECIMAL(10, 2),
+    estimated_fuel_consumption DECIMAL(10, 2),
+    data_quality_score DECIMAL(3, 2)
+);
@@ -0,0 +1,21 @@
+-- Sprint 5: Wait-Time Percentile Sketches
+-- V14__create_wait_time_sketches.sql
+
+-- One mergeable log-linear histogram of hourly wait times per intersection per day,
+-- plus one per month merged from the days, so percentiles over any range read a
+-- few rows instead of the hourly intersection_metrics rows.
+-- The histograms are built by the application: on startup it backfills the whole
+-- metric history while this table is empty (WaitTimeSketchService.backfillIfEmpty);
+-- POST /api/admin/rollups/backfill rebuilds any range later.
+CREATE TABLE IF NOT EXISTS wait_time_sketches (
+    granularity VARCHAR(5) NOT NULL,
+    period_start DATE NOT NULL,
+    intersection_id BIGINT NOT NULL,
+    sample_count BIGINT NOT NULL,
+    histogram BYTEA NOT NULL,
+    updated_at TIMESTAMP NOT NULL,
+    CONSTRAINT pk_wait_time_sketches PRIMARY KEY (granularity, period_start, intersection_id),
+    CONSTRAINT fk_sketch_intersection FOREIGN KEY (intersection_id)
+        REFERENCES intersections(id) ON DELETE CASCADE,
+    CONSTRAINT chk_sketch_granularity CHECK (granularity IN ('DAY', 'MONTH'))
+);
@@ -0,0 +1,17 @@
+-- Sprint 5: Daily Activity Counter Snapshots
+-- V15__create_daily_activity_stats.sql
+
+-- Emergencies, rule applications and sensor readings are counted in memory per day
+-- as they are written; the counters are snapshotted here every minute so a restart
+-- only recounts the days after the last snapshot from the source tables.
+CREATE TABLE IF NOT EXISTS daily_activity_stats (
+    stat_date DATE NOT NULL,
+    counter VARCHAR(30) NOT NULL,
+    dimension VARCHAR(150) NOT NULL,
+    event_count BIGINT NOT NULL,
+    value_sum BIGINT NOT NULL,
+    updated_at TIMESTAMP NOT NULL,
+    CONSTRAINT pk_daily_activity_stats PRIMARY KEY (stat_date, counter, dimension),
+    CONSTRAINT chk_activity_counter CHECK (counter IN
+        ('EMERGENCY_TYPE', 'EMERGENCY_INTERSECTION', 'RULE', 'RULE_INTERSECTION', 'SENSOR_INTERSECTION'))
+);
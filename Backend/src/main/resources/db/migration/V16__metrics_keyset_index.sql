@@ -0,0 +1,13 @@
+-- Sprint 5: Keyset Pagination Index For Metrics
+-- V16__metrics_keyset_index.sql
+
+-- GET /api/intersections/{id}/metrics/cursor pages newest first by
+-- (measurement_date, hour with NULL as -1, id). The expression key matches the
+-- ORDER BY and the seek predicate, so every page is one index range scan that
+-- stops after size + 1 rows instead of skipping OFFSET rows.
+CREATE INDEX IF NOT EXISTS idx_metrics_keyset
+    ON intersection_metrics (intersection_id, measurement_date DESC,
+                             (COALESCE(measurement_hour, -1)) DESC, id DESC);
+
+-- Intersections are paged by id (primary key) or by (updated_at, id);
+-- idx_intersections_updated_at already covers the leading column.
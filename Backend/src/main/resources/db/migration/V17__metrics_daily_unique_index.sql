@@ -0,0 +1,38 @@
+-- Sprint 5: Unique Daily Metrics
+-- V17__metrics_daily_unique_index.sql
+
+-- unique_metric_period (V1) already makes hourly metrics unique per
+-- (intersection_id, measurement_date, measurement_hour), but NULLs are distinct
+-- in a UNIQUE constraint, so any number of daily (hourless) rows could exist
+-- for the same intersection and day. This partial index closes that gap and is
+-- the arbiter of POST /api/metrics/batch for daily rows:
+--   ON CONFLICT (intersection_id, measurement_date) WHERE measurement_hour IS NULL
+--
+-- The index cannot be created while such duplicates exist. They are not merged
+-- or deleted here: daily rollups and wait-time sketches were built from every
+-- row, so the data has to be reconciled deliberately. The migration stops with
+-- the number of affected groups; list them with
+--   SELECT intersection_id, measurement_date, COUNT(*) FROM intersection_metrics
+--   WHERE measurement_hour IS NULL GROUP BY intersection_id, measurement_date HAVING COUNT(*) > 1;
+-- merge or remove the extra rows, rebuild rollups and sketches for those dates
+-- (POST /api/admin/rollups/backfill does both) and rerun.
+DO $$
+DECLARE
+    duplicate_groups BIGINT;
+BEGIN
+    SELECT COUNT(*) INTO duplicate_groups
+    FROM (SELECT 1
+          FROM intersection_metrics
+          WHERE measurement_hour IS NULL
+          GROUP BY intersection_id, measurement_date
+          HAVING COUNT(*) > 1) duplicates;
+    IF duplicate_groups > 0 THEN
+        RAISE EXCEPTION 'V17: % (intersection_id, measurement_date) groups have more than one daily metric (measurement_hour IS NULL)',
+            duplicate_groups
+            USING HINT = 'Reconcile them as described in V17__metrics_daily_unique_index.sql, then rerun the migration';
+    END IF;
+END $$;
+
+CREATE UNIQUE INDEX IF NOT EXISTS unique_metric_day
+    ON intersection_metrics (intersection_id, measurement_date)
+    WHERE measurement_hour IS NULL;
@@ -0,0 +1,28 @@
+-- Sprint 5: Versioned Rule Set Snapshots
+-- V6__create_rule_set_versions.sql
+
+-- Published rule set versions (append-only; highest id is active)
+CREATE TABLE IF NOT EXISTS rule_set_versions (
+    id BIGSERIAL PRIMARY KEY,
+    rule_count INTEGER NOT NULL,
+    rules_json TEXT NOT NULL,
+    checksum VARCHAR(64) NOT NULL,
+    source_version BIGINT,
+    note VARCHAR(500),
+    published_by VARCHAR(100),
+    published_at TIMESTAMP NOT NULL,
+
+    CONSTRAINT fk_rule_set_source FOREIGN KEY (source_version)
+        REFERENCES rule_set_versions(id)
+);
+
+-- Rule set version used by each application
+ALTER TABLE rule_applications ADD COLUMN IF NOT EXISTS rule_set_version BIGINT;
+
+CREATE INDEX IF NOT EXISTS idx_applications_rule_set_version ON rule_applications(rule_set_version);
+
+-- Comments
+COMMENT ON TABLE rule_set_versions IS 'Yayınlanmış değişmez kural seti versiyonları';
+COMMENT ON COLUMN rule_set_versions.rules_json IS 'Versiyondaki aktif kuralların JSON kopyası';
+COMMENT ON COLUMN rule_set_versions.source_version IS 'Geri alma ile oluşturulduysa kopyalanan versiyon';
+COMMENT ON COLUMN rule_applications.rule_set_version IS 'Kararda kullanılan kural seti versiyonu';
@@ -0,0 +1,13 @@
+-- Sprint 5: Emergency Write-Behind Journal
+-- V7__add_emergency_journal_keys.sql
+
+-- Journal keys make replay after a crash idempotent
+ALTER TABLE emergency_vehicles ADD COLUMN IF NOT EXISTS journal_key VARCHAR(36);
+ALTER TABLE emergency_events ADD COLUMN IF NOT EXISTS journal_key VARCHAR(36);
+
+CREATE UNIQUE INDEX IF NOT EXISTS uq_emergency_vehicles_journal_key ON emergency_vehicles(journal_key);
+CREATE UNIQUE INDEX IF NOT EXISTS uq_emergency_events_journal_key ON emergency_events(journal_key);
+
+-- Comments
+COMMENT ON COLUMN emergency_vehicles.journal_key IS 'Write-behind journal kaydının anahtarı (tekrar oynatmada tekil)';
+COMMENT ON COLUMN emergency_events.journal_key IS 'Write-behind journal kaydının anahtarı (tekrar oynatmada tekil)';
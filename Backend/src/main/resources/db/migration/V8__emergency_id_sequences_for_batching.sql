@@ -0,0 +1,8 @@
+-- Sprint 5: Batched Emergency Persistence
+-- V8__emergency_id_sequences_for_batching.sql
+
+-- Entities allocate ids from these sequences in blocks of 50 (pooled optimizer),
+-- so the journal can insert a whole preemption as JDBC batches.
+-- BIGSERIAL defaults keep working for manual inserts.
+ALTER SEQUENCE IF EXISTS emergency_vehicles_id_seq INCREMENT BY 50;
+ALTER SEQUENCE IF EXISTS emergency_events_id_seq INCREMENT BY 50;
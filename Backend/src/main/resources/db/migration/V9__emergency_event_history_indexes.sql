@@ -0,0 +1,15 @@
+-- Sprint 5: Paginated Emergency History
+-- V9__emergency_event_history_indexes.sql
+
+-- Keyset pages read (owner, created_at, id) in index order, newest first
+CREATE INDEX IF NOT EXISTS idx_emergency_events_vehicle_created
+    ON emergency_events(emergency_vehicle_id, created_at DESC, id DESC);
+CREATE INDEX IF NOT EXISTS idx_emergency_events_intersection_created
+    ON emergency_events(intersection_id, created_at DESC, id DESC);
+CREATE INDEX IF NOT EXISTS idx_emergency_events_created_id
+    ON emergency_events(created_at DESC, id DESC);
+
+-- Single-column indexes are prefixes of the composite ones
+DROP INDEX IF EXISTS idx_emergency_events_vehicle;
+DROP INDEX IF EXISTS idx_emergency_events_intersection;
+DROP INDEX IF EXISTS idx_emergency_events_created_at;
@@ -0,0 +1,71 @@
+package com.trafficlight;
+
+import com.trafficlight.entity.Intersection;
+import com.trafficlight.entity.Intersection.IntersectionStatus;
+import com.trafficlight.entity.Intersection.IntersectionType;
+import com.trafficlight.entity.IntersectionMetric;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+/**
+ * Shared test data for the service and repository tests
+ *
+ * Tests save these in their @BeforeEach setup (see IntersectionMetricRepositoryTest)
+ * and only set the fields their assertions depend on.
+ */
+public final class TestFixtures {
+
+    private TestFixtures() {
+    }
+
+    /**
+     * Active Istanbul traffic light named after its code
+     */
+    public static Intersection intersection(String code) {
+        return intersectionBuilder(code).build();
+    }
+
+    public static Intersection intersection(String code, String city) {
+        return intersectionBuilder(code).city(city).build();
+    }
+
+    /**
+     * Builder with the defaults of {@link #intersection(String)}, for status or location variants
+     */
+    public static Intersection.IntersectionBuilder intersectionBuilder(String code) {
+        return Intersection.builder()
+            .name("Kavşak " + code)
+            .code(code)
+            .latitude(new BigDecimal("41.0369"))
+            .longitude(new BigDecimal("28.9857"))
+            .city("Istanbul")
+            .intersectionType(IntersectionType.TRAFFIC_LIGHT)
+            .status(IntersectionStatus.ACTIVE)
+            .lanesCount(4)
+            .createdBy("test");
+    }
+
+    /**
+     * Hourly metric with a vehicle count and an average wait time (null for none)
+     */
+    public static IntersectionMetric metric(Intersection intersection, LocalDate date, int hour,
+                                            int vehicles, BigDecimal waitTime) {
+        return metricBuilder(intersection, date, hour)
+            .totalVehicleCount(vehicles)
+            .averageWaitTime(waitTime)
+            .build();
+    }
+
+    /**
+     * Metric builder for one hour (null for a daily metric) with a 0.95 data quality score
+     */
+    public static IntersectionMetric.IntersectionMetricBuilder metricBuilder(Intersection intersection,
+                                                                             LocalDate date, Integer hour) {
+        return IntersectionMetric.builder()
+            .intersection(intersection)
+            .measurementDate(date)
+            .measurementHour(hour)
+            .dataQualityScore(new BigDecimal("0.95"));
+    }
+}
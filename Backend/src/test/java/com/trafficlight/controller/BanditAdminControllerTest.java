@@ -0,0 +1,86 @@
+package com.trafficlight.controller;
+
+import com.trafficlight.service.GreenTimeBandit;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+
+import static org.hamcrest.Matchers.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+/**
+ * Controller tests for the bandit admin endpoints
+ * Standalone MockMvc over a real GreenTimeBandit (no security context needed)
+ */
+@DisplayName("Bandit Admin Controller Tests")
+class BanditAdminControllerTest {
+
+    private GreenTimeBandit greenTimeBandit;
+    private MockMvc mockMvc;
+
+    @BeforeEach
+    void setUp() {
+        greenTimeBandit = new GreenTimeBandit(GreenTimeBandit.Mode.SHADOW, 2.0, 90);
+        mockMvc = MockMvcBuilders.standaloneSetup(new BanditAdminController(greenTimeBandit)).build();
+
+        // Kavşak 1 için ödül bekleyen bir karar
+        greenTimeBandit.selectAdjustment(1L, 30, 5);
+    }
+
+    @AfterEach
+    void tearDown() {
+        greenTimeBandit.shutdown();
+    }
+
+    @Test
+    @DisplayName("GET /api/admin/bandit/{id} - Should describe every density bucket and arm")
+    void testGetPolicy() throws Exception {
+        mockMvc.perform(get("/api/admin/bandit/1"))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.intersectionId", is(1)))
+            .andExpect(jsonPath("$.mode", is("SHADOW")))
+            .andExpect(jsonPath("$.arms", contains(-10, -5, 0, 5, 10)))
+            .andExpect(jsonPath("$.pendingDecision", is(true)))
+            .andExpect(jsonPath("$.contexts", hasSize(5)))
+            .andExpect(jsonPath("$.contexts[2].densityBucket", is("26-40")))
+            .andExpect(jsonPath("$.contexts[2].arms", hasSize(5)))
+            .andExpect(jsonPath("$.contexts[2].observations", is(0)));
+    }
+
+    @Test
+    @DisplayName("DELETE /api/admin/bandit/{id} - Should reset the policy once")
+    void testResetPolicy() throws Exception {
+        mockMvc.perform(delete("/api/admin/bandit/1"))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.success", is(true)))
+            .andExpect(jsonPath("$.intersectionId", is(1)));
+
+        mockMvc.perform(delete("/api/admin/bandit/1"))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.success", is(false)));
+
+        mockMvc.perform(get("/api/admin/bandit/1"))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.pendingDecision", is(false)));
+        mockMvc.perform(get("/api/admin/bandit"))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.trackedIntersections", empty()));
+    }
+
+    @Test
+    @DisplayName("PUT /api/admin/bandit/mode - Should switch the bandit mode")
+    void testSetMode() throws Exception {
+        mockMvc.perform(put("/api/admin/bandit/mode").param("mode", "OFF"))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.success", is(true)))
+            .andExpect(jsonPath("$.mode", is("OFF")));
+
+        mockMvc.perform(get("/api/admin/bandit"))
+            .andExpect(jsonPath("$.mode", is("OFF")))
+            .andExpect(jsonPath("$.trackedIntersections", contains(1)));
+    }
+}
@@ -0,0 +1,147 @@
+package com.trafficlight.repository;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.trafficlight.dto.CursorPage;
+import com.trafficlight.entity.EmergencyEvent;
+import com.trafficlight.exception.BadRequestException;
+import com.trafficlight.service.EmergencyHistoryService;
+import jakarta.persistence.EntityManager;
+import org.hibernate.Session;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Repository tests for EmergencyEventRepository
+ * Keyset history pages and forward-only export through EmergencyHistoryService
+ */
+@DataJpaTest
+@ActiveProfiles("test")
+@DisplayName("Emergency Event Repository Tests")
+class EmergencyEventRepositoryTest {
+
+    private static final LocalDateTime BASE = LocalDateTime.of(2026, 10, 1, 8, 0);
+
+    private static final Comparator<EmergencyEvent> NEWEST_FIRST = Comparator
+            .comparing(EmergencyEvent::getCreatedAt).thenComparing(EmergencyEvent::getId).reversed();
+
+    @Autowired
+    private EmergencyEventRepository eventRepository;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    private EmergencyHistoryService historyService;
+
+    @BeforeEach
+    void setUp() {
+        eventRepository.deleteAll();
+        historyService = new EmergencyHistoryService(eventRepository, entityManager,
+                new ObjectMapper().findAndRegisterModules());
+
+        // 2 kavşak, 2 araç, 60 olay; her zaman damgasında 3 olay (sayfa sınırında eşitlik)
+        List<EmergencyEvent> events = new ArrayList<>();
+        for (int i = 0; i < 60; i++) {
+            events.add(EmergencyEvent.builder()
+                .emergencyVehicleId(i % 2 == 0 ? 100L : 200L)
+                .intersectionId(i % 3 == 0 ? 1L : 2L)
+                .intersectionName("Kavşak-" + (i % 3 == 0 ? 1 : 2))
+                .eventType(EmergencyEvent.EventType.GREEN_LIGHT_ACTIVATED)
+                .createdAt(BASE.plusMinutes(i / 3))
+                .build());
+        }
+        eventRepository.saveAll(events);
+        entityManager.flush();
+        entityManager.clear();
+    }
+
+    @Test
+    @DisplayName("Test intersectionHistory() - Walking the cursor should return every event once, newest first")
+    void testIntersectionHistoryWalk() {
+        // Given
+        List<EmergencyEvent> walked = new ArrayList<>();
+        String cursor = null;
+        int pages = 0;
+
+        // When
+        do {
+            CursorPage<EmergencyEvent> page = historyService.intersectionHistory(2L, cursor, 7);
+            walked.addAll(page.getItems());
+            cursor = page.getNextCursor();
+            assertThat(page.getHasMore()).isEqualTo(cursor != null);
+            pages++;
+        } while (cursor != null);
+
+        // Then
+        assertThat(walked).hasSize(40);
+        assertThat(pages).isEqualTo(6);
+        assertThat(walked).isSortedAccordingTo(NEWEST_FIRST);
+        assertThat(walked).extracting(EmergencyEvent::getId).doesNotHaveDuplicates();
+        assertThat(walked).allSatisfy(event -> assertThat(event.getIntersectionId()).isEqualTo(2L));
+    }
+
+    @Test
+    @DisplayName("Test vehicleHistory() / eventsBetween() - Pages should respect owner and [from, to) bounds")
+    void testVehicleHistoryAndRange() {
+        // When
+        CursorPage<EmergencyEvent> vehicle = historyService.vehicleHistory(100L, null, 500);
+        CursorPage<EmergencyEvent> first = historyService.eventsBetween(BASE.plusMinutes(5), BASE.plusMinutes(10), null, 10);
+        CursorPage<EmergencyEvent> second = historyService.eventsBetween(BASE.plusMinutes(5), BASE.plusMinutes(10),
+                first.getNextCursor(), 10);
+
+        // Then
+        assertThat(vehicle.getItems()).hasSize(30).allSatisfy(event ->
+                assertThat(event.getEmergencyVehicleId()).isEqualTo(100L));
+        assertThat(vehicle.getHasMore()).isFalse();
+        assertThat(first.getItems()).hasSize(10);
+        assertThat(second.getItems()).hasSize(5);
+        assertThat(second.getNextCursor()).isNull();
+        List<EmergencyEvent> range = new ArrayList<>(first.getItems());
+        range.addAll(second.getItems());
+        assertThat(range).allSatisfy(event -> assertThat(event.getCreatedAt())
+                .isAfterOrEqualTo(BASE.plusMinutes(5))
+                .isBefore(BASE.plusMinutes(10)));
+    }
+
+    @Test
+    @DisplayName("Test export() - Should stream one JSON line per event with a flat persistence context")
+    void testExport() throws Exception {
+        // Given
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        // When
+        long count = historyService.export(1L, BASE, BASE.plusHours(1), out);
+
+        // Then
+        String[] lines = out.toString(StandardCharsets.UTF_8).split("\n");
+        assertThat(count).isEqualTo(20);
+        assertThat(lines).hasSize(20);
+        assertThat(lines[0]).contains("\"intersectionId\":1").contains("\"createdAt\"");
+        assertThat(entityManager.unwrap(Session.class).getStatistics().getEntityCount()).isZero();
+    }
+
+    @Test
+    @DisplayName("Test intersectionHistory() - Invalid cursor or page size should be rejected")
+    void testInvalidCursor() {
+        // When & Then
+        assertThatThrownBy(() -> historyService.intersectionHistory(1L, "bozuk-imlec", 10))
+            .isInstanceOf(BadRequestException.class);
+        assertThatThrownBy(() -> historyService.intersectionHistory(1L, null, 0))
+            .isInstanceOf(BadRequestException.class);
+        assertThatThrownBy(() -> historyService.eventsBetween(BASE, BASE.minusDays(1), null, 10))
+            .isInstanceOf(BadRequestException.class);
+    }
+}
@@ -0,0 +1,179 @@
+package com.trafficlight.service;
+
+import com.trafficlight.entity.EmergencyVehicle;
+import com.trafficlight.event.EmergencyVehiclesPersistedEvent;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Unit tests for ActiveEmergencyRegistry
+ * Id / intersection indexes, id binding after persistence and startup reconciliation
+ */
+@DisplayName("Active Emergency Registry Tests")
+class ActiveEmergencyRegistryTest {
+
+    private ActiveEmergencyRegistry registry;
+
+    @BeforeEach
+    void setUp() {
+        registry = new ActiveEmergencyRegistry();
+    }
+
+    private EmergencyVehicle vehicle(String vehicleId, long intersectionId, int priority, LocalDateTime detectedAt) {
+        return EmergencyVehicle.builder()
+            .vehicleId(vehicleId)
+            .type(EmergencyVehicle.VehicleType.AMBULANCE)
+            .status(EmergencyVehicle.EmergencyStatus.DETECTED)
+            .currentIntersectionId(intersectionId)
+            .direction(EmergencyVehicle.Direction.NORTH)
+            .detectedAt(detectedAt)
+            .priorityLevel(priority)
+            .journalKey(UUID.randomUUID().toString())
+            .build();
+    }
+
+    @Test
+    @DisplayName("Test register() - Vehicle should be found by key, intersection and bound id")
+    void testRegisterAndBindId() {
+        // Given
+        EmergencyVehicle ambulance = vehicle("AMB-1", 5, 1, LocalDateTime.now());
+        registry.register(ambulance);
+        assertThat(registry.get(42L)).isNull();
+
+        // When: günlük satırı yazdı
+        registry.onVehiclesPersisted(new EmergencyVehiclesPersistedEvent(Map.of(ambulance.getJournalKey(), 42L)));
+
+        // Then
+        assertThat(registry.get(42L)).isNotNull();
+        assertThat(registry.get(42L).getId()).isEqualTo(42L);
+        assertThat(registry.get(ambulance.getJournalKey()).getVehicleId()).isEqualTo("AMB-1");
+        assertThat(registry.activeAt(5L)).extracting(EmergencyVehicle::getVehicleId).containsExactly("AMB-1");
+        assertThat(registry.activeAt(6L)).isEmpty();
+        assertThat(registry.count()).isEqualTo(1);
+        // Kayıt kopyadır
+        assertThat(ambulance.getId()).isNull();
+    }
+
+    @Test
+    @DisplayName("Test remove() - Removed vehicle should disappear from every index, second remove returns null")
+    void testRemove() {
+        // Given
+        EmergencyVehicle ambulance = vehicle("AMB-1", 5, 1, LocalDateTime.now());
+        registry.register(ambulance);
+        registry.onVehiclesPersisted(new EmergencyVehiclesPersistedEvent(Map.of(ambulance.getJournalKey(), 42L)));
+
+        // When
+        EmergencyVehicle removed = registry.remove(ambulance.getJournalKey());
+
+        // Then
+        assertThat(removed).isNotNull();
+        assertThat(registry.remove(ambulance.getJournalKey())).isNull();
+        assertThat(registry.get(42L)).isNull();
+        assertThat(registry.activeAt(5L)).isEmpty();
+        assertThat(registry.count()).isZero();
+
+        // Sonlandıktan sonra gelen id bağlaması kaydı geri getirmez
+        registry.onVehiclesPersisted(new EmergencyVehiclesPersistedEvent(Map.of(ambulance.getJournalKey(), 42L)));
+        assertThat(registry.count()).isZero();
+    }
+
+    @Test
+    @DisplayName("Test active() - Vehicles should be ordered by priority, then detection time")
+    void testActiveOrder() {
+        // Given
+        LocalDateTime now = LocalDateTime.now();
+        registry.register(vehicle("POL-1", 1, 2, now.minusSeconds(30)));
+        registry.register(vehicle("AMB-2", 2, 1, now));
+        registry.register(vehicle("AMB-1", 1, 1, now.minusSeconds(10)));
+
+        // When & Then
+        assertThat(registry.active()).extracting(EmergencyVehicle::getVehicleId)
+            .containsExactly("AMB-1", "AMB-2", "POL-1");
+        assertThat(registry.activeAt(1L)).extracting(EmergencyVehicle::getVehicleId)
+            .containsExactly("AMB-1", "POL-1");
+    }
+
+    @Test
+    @DisplayName("Test reconcile() - Persisted active rows, including legacy rows without journal key, should be added once")
+    void testReconcile() {
+        // Given: biri zaten kayıtta, biri eski (journal anahtarsız) satır
+        EmergencyVehicle known = vehicle("AMB-1", 1, 1, LocalDateTime.now());
+        registry.register(known);
+        EmergencyVehicle knownRow = vehicle("AMB-1", 1, 1, known.getDetectedAt());
+        knownRow.setJournalKey(known.getJournalKey());
+        knownRow.setId(7L);
+        EmergencyVehicle legacy = vehicle("FIRE-1", 3, 2, LocalDateTime.now());
+        legacy.setJournalKey(null);
+        legacy.setId(8L);
+
+        // When
+        int added = registry.reconcile(List.of(knownRow, legacy));
+
+        // Then
+        assertThat(added).isEqualTo(1);
+        assertThat(registry.count()).isEqualTo(2);
+        assertThat(registry.get(7L).getVehicleId()).isEqualTo("AMB-1");
+        assertThat(registry.get("vehicle-8").getVehicleId()).isEqualTo("FIRE-1");
+        assertThat(registry.get(8L)).isNotNull();
+    }
+
+    @Test
+    @DisplayName("Test register()/remove() - Concurrent triggers and clears should leave consistent indexes")
+    void testConcurrentRegisterRemove() throws Exception {
+        // Given
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        List<Future<List<String>>> futures = new ArrayList<>();
+
+        // When: her thread 1000 araç ekler, çiftleri sonlandırır
+        for (int t = 0; t < 8; t++) {
+            int worker = t;
+            futures.add(executor.submit(() -> {
+                List<String> remaining = new ArrayList<>();
+                for (int i = 0; i < 1_000; i++) {
+                    EmergencyVehicle vehicle = vehicle("V-" + worker + "-" + i, i % 10, 1, LocalDateTime.now());
+                    registry.register(vehicle);
+                    registry.onVehiclesPersisted(new EmergencyVehiclesPersistedEvent(
+                            Map.of(vehicle.getJournalKey(), worker * 10_000L + i)));
+                    if (i % 2 == 0) {
+                        registry.remove(vehicle.getJournalKey());
+                    } else {
+                        remaining.add(vehicle.getJournalKey());
+                    }
+                }
+                return remaining;
+            }));
+        }
+        executor.shutdown();
+        assertThat(executor.awaitTermination(1, TimeUnit.MINUTES)).isTrue();
+
+        // Then
+        int expected = 0;
+        for (Future<List<String>> future : futures) {
+            for (String key : future.get()) {
+                assertThat(registry.get(key)).isNotNull();
+                expected++;
+            }
+        }
+        assertThat(registry.count()).isEqualTo(expected);
+        int indexed = 0;
+        for (long intersectionId = 0; intersectionId < 10; intersectionId++) {
+            indexed += registry.activeAt(intersectionId).size();
+        }
+        assertThat(indexed).isEqualTo(expected);
+        assertThat(registry.get(2L)).isNull();
+        assertThat(registry.get(3L)).isNotNull();
+    }
+}
@@ -0,0 +1,165 @@
+package com.trafficlight.service;
+
+import com.trafficlight.entity.EmergencyVehicle;
+import com.trafficlight.event.EmergencyPreemptionEvent;
+import com.trafficlight.repository.EmergencyEventRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.lenient;
+import static org.mockito.Mockito.when;
+
+/**
+ * Unit tests for CorridorTravelTimes
+ * EWMA learning from consecutive detections, credibility blending and planner ETAs
+ */
+@ExtendWith(MockitoExtension.class)
+@DisplayName("Corridor Travel Times Tests")
+class CorridorTravelTimesTest {
+
+    private static final double LAT = 39.9;
+    private static final double LON = 32.8;
+    private static final double METERS_PER_DEGREE_LAT = 110_540.0;
+
+    @Mock
+    private IntersectionSpatialIndex spatialIndex;
+
+    @Mock
+    private EmergencyEventRepository emergencyEventRepository;
+
+    private CorridorTravelTimes corridorTravelTimes;
+
+    @BeforeEach
+    void setUp() {
+        // Kuzey-güney hattında 500 m arayla 3 kavşak (1 en kuzeyde)
+        List<IntersectionGraph.Node> nodes = List.of(
+                new IntersectionGraph.Node(1L, "Kavşak-1", LAT, LON, true),
+                new IntersectionGraph.Node(2L, "Kavşak-2", LAT - 500 / METERS_PER_DEGREE_LAT, LON, true),
+                new IntersectionGraph.Node(3L, "Kavşak-3", LAT - 1000 / METERS_PER_DEGREE_LAT, LON, true));
+        lenient().when(spatialIndex.current()).thenReturn(IntersectionGraph.build(nodes, 1500));
+
+        corridorTravelTimes = new CorridorTravelTimes(emergencyEventRepository, spatialIndex, 0.2, 300, 30, 5);
+    }
+
+    @Test
+    @DisplayName("Test record() - EWMA should converge and clip a stalled outlier")
+    void testRecordEwma() {
+        // Given
+        for (int i = 0; i < 20; i++) {
+            corridorTravelTimes.record(1L, 2L, 40);
+        }
+
+        // When: araç koridorda 400 saniye beklemiş
+        corridorTravelTimes.record(1L, 2L, 400);
+
+        // Then: örnek 3 x 40 = 120'ye kırpılır → 40 + 0.2 x 80
+        assertThat(corridorTravelTimes.learnedSeconds(1L, 2L).getAsDouble()).isCloseTo(56.0, within(0.001));
+        assertThat(corridorTravelTimes.samples(1L, 2L)).isEqualTo(21);
+        assertThat(corridorTravelTimes.learnedSeconds(2L, 1L)).isEmpty();
+        assertThat(corridorTravelTimes.corridorCount()).isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("Test hopSeconds() - Should blend learned time and speed-based time by sample count")
+    void testHopSecondsBlend() {
+        // Given: 500 m, 12.5 m/s → fiziksel 40 s
+        assertThat(corridorTravelTimes.hopSeconds(1L, 2L, 500, 12.5)).isCloseTo(40.0, within(0.001));
+
+        // When: 5 örnek, hepsi 20 s (önsel ağırlık 5)
+        for (int i = 0; i < 5; i++) {
+            corridorTravelTimes.record(1L, 2L, 20);
+        }
+
+        // Then
+        assertThat(corridorTravelTimes.hopSeconds(1L, 2L, 500, 12.5)).isCloseTo(30.0, within(0.001));
+        for (int i = 0; i < 95; i++) {
+            corridorTravelTimes.record(1L, 2L, 20);
+        }
+        assertThat(corridorTravelTimes.hopSeconds(1L, 2L, 500, 12.5)).isCloseTo(20.95, within(0.01));
+    }
+
+    @Test
+    @DisplayName("Test observe() - Only detections at the next intersection along the heading within the gap should be learned")
+    void testObserveFiltersCorridors() {
+        // Given
+        LocalDateTime start = LocalDateTime.now();
+
+        // When
+        corridorTravelTimes.observe("AMB-1", 1L, EmergencyVehicle.Direction.SOUTH, start);
+        corridorTravelTimes.observe("AMB-1", 2L, EmergencyVehicle.Direction.SOUTH, start.plusSeconds(35));
+        // Çok uzun ara: aynı sefer sayılmaz
+        corridorTravelTimes.observe("AMB-1", 3L, EmergencyVehicle.Direction.SOUTH, start.plusSeconds(500));
+        // Komşu değil (2 atlanmış)
+        corridorTravelTimes.observe("AMB-2", 1L, EmergencyVehicle.Direction.SOUTH, start);
+        corridorTravelTimes.observe("AMB-2", 3L, EmergencyVehicle.Direction.SOUTH, start.plusSeconds(60));
+        // Ters yön
+        corridorTravelTimes.observe("AMB-3", 1L, EmergencyVehicle.Direction.NORTH, start);
+        corridorTravelTimes.observe("AMB-3", 2L, EmergencyVehicle.Direction.NORTH, start.plusSeconds(30));
+
+        // Then
+        assertThat(corridorTravelTimes.learnedSeconds(1L, 2L).getAsDouble()).isCloseTo(35.0, within(0.001));
+        assertThat(corridorTravelTimes.corridorCount()).isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("Test warmUp() - Should learn corridors from persisted detection events")
+    void testWarmUpFromEvents() {
+        // Given: iki sefer, kuzeyden gelip güneye gidiyor
+        LocalDateTime start = LocalDateTime.now().minusDays(1);
+        when(emergencyEventRepository.findDetectionTrail(any())).thenReturn(List.of(
+                new Object[]{"AMB-1", EmergencyVehicle.Direction.NORTH, 1L, start},
+                new Object[]{"AMB-1", EmergencyVehicle.Direction.NORTH, 2L, start.plusSeconds(30)},
+                new Object[]{"AMB-1", EmergencyVehicle.Direction.NORTH, 3L, start.plusSeconds(62)},
+                new Object[]{"AMB-2", EmergencyVehicle.Direction.NORTH, 1L, start.plusHours(2)},
+                new Object[]{"AMB-2", EmergencyVehicle.Direction.NORTH, 2L, start.plusHours(2).plusSeconds(40)}));
+
+        // When
+        corridorTravelTimes.warmUp();
+
+        // Then: 30 → 30 + 0.2 x (40 - 30)
+        assertThat(corridorTravelTimes.learnedSeconds(1L, 2L).getAsDouble()).isCloseTo(32.0, within(0.001));
+        assertThat(corridorTravelTimes.samples(1L, 2L)).isEqualTo(2);
+        assertThat(corridorTravelTimes.learnedSeconds(2L, 3L).getAsDouble()).isCloseTo(32.0, within(0.001));
+    }
+
+    @Test
+    @DisplayName("Test PreemptionPlanner.plan() - Learned corridor times from preemption events should move green windows")
+    void testPlannerUsesLearnedTimes() {
+        // Given: 45 km/sa ile 500 m = 40 s
+        PreemptionPlanner planner = new PreemptionPlanner(spatialIndex, corridorTravelTimes, 45, 120, 8, 6, 30);
+        assertThat(planner.plan(1L, EmergencyVehicle.Direction.NORTH, null).windows().get(1).etaSeconds())
+            .isEqualTo(40);
+
+        // When: 10 sefer, 1 → 2 hep 20 saniye
+        LocalDateTime start = LocalDateTime.now();
+        for (int trip = 0; trip < 10; trip++) {
+            String vehicleId = "AMB-" + trip;
+            LocalDateTime at = start.plusMinutes(trip);
+            corridorTravelTimes.onPreemption(event(vehicleId, planner.plan(1L, EmergencyVehicle.Direction.NORTH, null), at));
+            corridorTravelTimes.onPreemption(event(vehicleId, planner.plan(2L, EmergencyVehicle.Direction.NORTH, null),
+                    at.plusSeconds(20)));
+        }
+
+        // Then: ağırlık 10 / 15 → 2/3 x 20 + 1/3 x 40
+        PreemptionPlan plan = planner.plan(1L, EmergencyVehicle.Direction.NORTH, null);
+        assertThat(plan.windows().get(1).etaSeconds()).isEqualTo(27);
+        assertThat(plan.windows().get(1).greenStartSeconds()).isEqualTo(19);
+        // Öğrenilmemiş 2 → 3 koridoru hızdan
+        assertThat(plan.windows().get(2).etaSeconds()).isEqualTo(67);
+    }
+
+    private static EmergencyPreemptionEvent event(String vehicleId, PreemptionPlan plan, LocalDateTime at) {
+        return new EmergencyPreemptionEvent(UUID.randomUUID().toString(), vehicleId, 1, plan, List.of(), at);
+    }
+}
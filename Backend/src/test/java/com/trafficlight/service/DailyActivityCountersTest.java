@@ -0,0 +1,197 @@
+package com.trafficlight.service;
+
+import com.trafficlight.entity.DailyActivityStat.Counter;
+import com.trafficlight.entity.EmergencyVehicle;
+import com.trafficlight.entity.RuleApplication;
+import com.trafficlight.entity.TrafficSensor;
+import com.trafficlight.repository.DailyActivityStatRepository;
+import com.trafficlight.repository.EmergencyVehicleRepository;
+import com.trafficlight.repository.RuleApplicationRepository;
+import com.trafficlight.repository.TrafficSensorRepository;
+import com.trafficlight.service.DailyActivityCounters.Total;
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+
+/**
+ * Unit tests for DailyActivityCounters
+ * Recount from the source tables, snapshot round trip, recording during load and commit-deferred recording
+ */
+@DataJpaTest
+@ActiveProfiles("test")
+@DisplayName("Daily Activity Counters Tests")
+class DailyActivityCountersTest {
+
+    private static final int RETENTION_DAYS = 35;
+
+    @Autowired
+    private DailyActivityStatRepository statRepository;
+
+    @Autowired
+    private EmergencyVehicleRepository emergencyVehicleRepository;
+
+    @Autowired
+    private RuleApplicationRepository ruleApplicationRepository;
+
+    @Autowired
+    private TrafficSensorRepository sensorRepository;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private final LocalDate today = LocalDate.now();
+
+    @BeforeEach
+    void setUp() {
+        statRepository.deleteAll();
+        emergencyVehicleRepository.deleteAll();
+        ruleApplicationRepository.deleteAll();
+        sensorRepository.deleteAll();
+    }
+
+    @Test
+    @DisplayName("Test load()/writeSnapshots() - Should recount without snapshots and restore older days from them")
+    void testRecountAndSnapshotRoundTrip() {
+        // Given: two ambulances three days ago, a police car, two rule applications and two readings today
+        LocalDateTime threeDaysAgo = today.minusDays(3).atTime(10, 0);
+        emergencyVehicleRepository.save(vehicle("AMB-1", EmergencyVehicle.VehicleType.AMBULANCE, 1L, threeDaysAgo));
+        emergencyVehicleRepository.save(vehicle("AMB-2", EmergencyVehicle.VehicleType.AMBULANCE, 1L, threeDaysAgo));
+        emergencyVehicleRepository.save(vehicle("POL-1", EmergencyVehicle.VehicleType.POLICE, 2L, LocalDateTime.now()));
+        ruleApplicationRepository.save(application(7L, "Yoğun Saat", 1L, true));
+        ruleApplicationRepository.save(application(7L, "Yoğun Saat", 2L, false));
+        sensorRepository.save(reading("S-1", 1L, 10));
+        sensorRepository.save(reading("S-2", 1L, 30));
+        entityManager.flush();
+
+        // When: no snapshot yet, the whole window is recounted
+        DailyActivityCounters counters = newCounters();
+        counters.load();
+
+        // Then
+        assertThat(counters.total(Counter.EMERGENCY_TYPE, today.minusDays(6), today).count()).isEqualTo(3);
+        assertThat(counters.totalsBy(Counter.EMERGENCY_TYPE, today.minusDays(3), today.minusDays(3)))
+            .containsOnly(Map.entry("AMBULANCE", new Total(2, 0)));
+        assertThat(counters.totalsBy(Counter.RULE, today, today))
+            .containsOnly(Map.entry("Yoğun Saat", new Total(2, 1)));
+        assertThat(counters.totalsBy(Counter.SENSOR_INTERSECTION, today, today).get("1").average()).isEqualTo(20.0);
+
+        assertThat(counters.writeSnapshots()).isEqualTo(RETENTION_DAYS);
+        assertThat(counters.writeSnapshots()).isZero();
+        assertThat(statRepository.findByStatDateBetween(today.minusDays(3), today.minusDays(3))).hasSize(2);
+
+        // When: source rows are gone, older days come back from the snapshot, today is recounted
+        emergencyVehicleRepository.deleteAll();
+        entityManager.flush();
+        DailyActivityCounters restarted = newCounters();
+        restarted.load();
+
+        // Then
+        assertThat(restarted.total(Counter.EMERGENCY_TYPE, today.minusDays(3), today.minusDays(3)).count()).isEqualTo(2);
+        assertThat(restarted.total(Counter.EMERGENCY_TYPE, today, today).count()).isZero();
+        assertThat(restarted.total(Counter.RULE_INTERSECTION, today, today).count()).isEqualTo(2);
+        assertThat(restarted.writeSnapshots()).isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("Test load() - Should keep counts recorded before load without counting recounted rows twice")
+    void testRecordingBeforeLoad() {
+        // Given: üç gün önceki anlık görüntü, bugün yeniden sayılacak
+        emergencyVehicleRepository.save(vehicle("AMB-1", EmergencyVehicle.VehicleType.AMBULANCE, 1L,
+                today.minusDays(3).atTime(10, 0)));
+        entityManager.flush();
+        DailyActivityCounters previous = newCounters();
+        previous.load();
+        previous.writeSnapshots();
+        emergencyVehicleRepository.deleteAll();
+        entityManager.flush();
+
+        // When: yeni örnek yüklenmeden önce geç gelen bir kayıt ve tabloya yazılmış bugünkü bir kayıt sayılıyor
+        DailyActivityCounters counters = newCounters();
+        counters.recordEmergency(vehicle("AMB-2", EmergencyVehicle.VehicleType.AMBULANCE, 1L,
+                today.minusDays(3).atTime(11, 0)));
+        counters.recordEmergency(emergencyVehicleRepository.save(
+                vehicle("POL-1", EmergencyVehicle.VehicleType.POLICE, 2L, LocalDateTime.now())));
+        entityManager.flush();
+        counters.load();
+
+        // Then: anlık görüntüye eklendi; bugünkü kayıt tablodan bir kez sayıldı
+        assertThat(counters.totalsBy(Counter.EMERGENCY_TYPE, today.minusDays(3), today.minusDays(3)))
+            .containsOnly(Map.entry("AMBULANCE", new Total(2, 0)));
+        assertThat(counters.totalsBy(Counter.EMERGENCY_TYPE, today, today))
+            .containsOnly(Map.entry("POLICE", new Total(1, 0)));
+    }
+
+    @Test
+    @DisplayName("Test record*() - Emergencies count at once, transactional writes only after commit")
+    void testRecording() {
+        // Given
+        DailyActivityCounters counters = newCounters();
+        counters.load();
+
+        // When: inside the (never committed) test transaction
+        counters.recordEmergency(vehicle("FIRE-1", EmergencyVehicle.VehicleType.FIRE_TRUCK, 5L, LocalDateTime.now()));
+        counters.recordEmergency(vehicle("FIRE-2", EmergencyVehicle.VehicleType.FIRE_TRUCK, 5L,
+                LocalDateTime.now().minusDays(RETENTION_DAYS + 5L)));
+        counters.recordRuleApplication(ruleApplicationRepository.save(application(7L, "Gece Modu", 5L, true)));
+        counters.recordSensorReading(sensorRepository.save(reading("S-3", 5L, 12)));
+
+        // Then: the old emergency is outside the window, the uncommitted writes are not counted
+        assertThat(counters.totalsBy(Counter.EMERGENCY_INTERSECTION, today.minusDays(RETENTION_DAYS + 5L), today))
+            .containsOnly(Map.entry("5", new Total(1, 0)));
+        assertThat(counters.total(Counter.RULE, today, today).count()).isZero();
+        assertThat(counters.total(Counter.SENSOR_INTERSECTION, today, today).count()).isZero();
+        assertThat(counters.writeSnapshots()).isEqualTo(RETENTION_DAYS);
+    }
+
+    private DailyActivityCounters newCounters() {
+        return new DailyActivityCounters(statRepository, emergencyVehicleRepository, ruleApplicationRepository,
+                sensorRepository, mock(EmergencyEventJournal.class), entityManager, transactionManager, RETENTION_DAYS);
+    }
+
+    private static EmergencyVehicle vehicle(String vehicleId, EmergencyVehicle.VehicleType type,
+                                            Long intersectionId, LocalDateTime detectedAt) {
+        return EmergencyVehicle.builder()
+            .vehicleId(vehicleId)
+            .type(type)
+            .status(EmergencyVehicle.EmergencyStatus.DETECTED)
+            .currentIntersectionId(intersectionId)
+            .direction(EmergencyVehicle.Direction.NORTH)
+            .detectedAt(detectedAt)
+            .build();
+    }
+
+    private static RuleApplication application(Long ruleId, String ruleName, Long intersectionId, boolean successful) {
+        return RuleApplication.builder()
+            .ruleId(ruleId)
+            .ruleName(ruleName)
+            .intersectionId(intersectionId)
+            .vehicleCount(30)
+            .successful(successful)
+            .build();
+    }
+
+    private static TrafficSensor reading(String sensorId, Long intersectionId, int vehicles) {
+        return TrafficSensor.builder()
+            .sensorId(sensorId)
+            .intersectionId(intersectionId)
+            .direction(TrafficSensor.Direction.NORTH)
+            .vehicleCount(vehicles)
+            .active(true)
+            .build();
+    }
+}
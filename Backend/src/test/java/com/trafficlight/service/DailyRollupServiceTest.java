@@ -0,0 +1,166 @@
+package com.trafficlight.service;
+
+import com.trafficlight.entity.DailyIntersectionRollup;
+import com.trafficlight.entity.Intersection;
+import com.trafficlight.entity.IntersectionMetric;
+import com.trafficlight.exception.BadRequestException;
+import com.trafficlight.repository.DailyIntersectionRollupRepository;
+import com.trafficlight.repository.IntersectionMetricRepository;
+import com.trafficlight.repository.IntersectionRepository;
+import jakarta.persistence.EntityManager;
+import org.assertj.core.api.recursive.comparison.RecursiveComparisonConfiguration;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+import static com.trafficlight.TestFixtures.intersection;
+import static com.trafficlight.TestFixtures.metricBuilder;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Unit tests for DailyRollupService
+ * Incremental create/delete maintenance must produce the same rows as a backfill
+ */
+@DataJpaTest
+@ActiveProfiles("test")
+@DisplayName("Daily Rollup Service Tests")
+class DailyRollupServiceTest {
+
+    private static final LocalDate DAY = LocalDate.of(2026, 10, 1);
+
+    @Autowired
+    private DailyIntersectionRollupRepository rollupRepository;
+
+    @Autowired
+    private IntersectionMetricRepository metricRepository;
+
+    @Autowired
+    private IntersectionRepository intersectionRepository;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private DailyRollupService rollupService;
+    private Intersection first;
+    private Intersection second;
+
+    @BeforeEach
+    void setUp() {
+        rollupRepository.deleteAll();
+        metricRepository.deleteAll();
+        intersectionRepository.deleteAll();
+        // Two-day chunks so a three-day range spans several transactions
+        rollupService = new DailyRollupService(rollupRepository, entityManager, transactionManager, 2, 2);
+
+        first = intersectionRepository.save(intersection("ROLLUP-1"));
+        second = intersectionRepository.save(intersection("ROLLUP-2"));
+    }
+
+    @Test
+    @DisplayName("Test recordCreated()/recordDeleted() - Should match a backfill of the same metrics")
+    void testIncrementalMatchesBackfill() {
+        // Given: metrics over three days, one without wait time or throughput
+        List<IntersectionMetric> created = new ArrayList<>();
+        for (int day = 0; day < 3; day++) {
+            for (int hour = 0; hour < 4; hour++) {
+                Intersection intersection = hour % 2 == 0 ? first : second;
+                created.add(create(metric(intersection, DAY.plusDays(day), hour, 100 + day * 10 + hour,
+                        hour == 3 ? null : BigDecimal.valueOf(20.5 + hour), hour == 3 ? null : 800 + hour)));
+            }
+        }
+
+        // When: remove one metric, then every metric of one intersection-day
+        delete(created.get(0));
+        created.stream()
+            .filter(m -> m.getMeasurementDate().equals(DAY.plusDays(2)) && m.getIntersection() == second)
+            .forEach(this::delete);
+        entityManager.flush();
+        entityManager.clear();
+        List<DailyIntersectionRollup> incremental = snapshot();
+
+        long rows = rollupService.backfill(DAY, DAY.plusDays(2));
+        entityManager.clear();
+        List<DailyIntersectionRollup> rebuilt = snapshot();
+
+        // Then
+        assertThat(rows).isEqualTo(5);
+        assertThat(incremental).hasSize(5);
+        RecursiveComparisonConfiguration ignoringUpdatedAt = RecursiveComparisonConfiguration.builder()
+            .withIgnoredFields("updatedAt")
+            .withComparatorForType(BigDecimal::compareTo, BigDecimal.class)
+            .build();
+        assertThat(incremental).usingRecursiveFieldByFieldElementComparator(ignoringUpdatedAt)
+            .containsExactlyElementsOf(rebuilt);
+        DailyIntersectionRollup firstDay = incremental.get(0);
+        assertThat(firstDay.getMetricCount()).isEqualTo(1);
+        assertThat(firstDay.getWaitTimeSum()).isEqualByComparingTo("22.50");
+    }
+
+    @Test
+    @DisplayName("Test backfill() - Should pick up metrics written around the service")
+    void testBackfillPicksUpDirectWrites() {
+        // Given: metrics saved without going through recordCreated
+        metricRepository.save(metric(first, DAY, 8, 300, BigDecimal.valueOf(30), 900));
+        metricRepository.save(metric(first, DAY, 9, 100, BigDecimal.valueOf(10), 700));
+        entityManager.flush();
+
+        // When
+        rollupService.backfill(DAY, DAY);
+        entityManager.clear();
+
+        // Then
+        List<DailyIntersectionRollup> rollups = snapshot();
+        assertThat(rollups).hasSize(1);
+        assertThat(rollups.get(0).getTotalVehicleCount()).isEqualTo(400L);
+        assertThat(rollups.get(0).getWaitTimeSamples()).isEqualTo(2);
+        assertThat(rollupRepository.getDailyTrend(DAY, DAY).get(0).averageWaitTime()).isEqualTo(20.0);
+    }
+
+    @Test
+    @DisplayName("Test backfill() - Should reject an inverted range")
+    void testBackfillRejectsInvertedRange() {
+        assertThatThrownBy(() -> rollupService.backfill(DAY, DAY.minusDays(1)))
+            .isInstanceOf(BadRequestException.class);
+    }
+
+    private IntersectionMetric create(IntersectionMetric metric) {
+        IntersectionMetric saved = metricRepository.save(metric);
+        rollupService.recordCreated(saved);
+        return saved;
+    }
+
+    private void delete(IntersectionMetric metric) {
+        metricRepository.delete(metric);
+        rollupService.recordDeleted(metric);
+    }
+
+    private List<DailyIntersectionRollup> snapshot() {
+        return rollupRepository.findAll().stream()
+            .sorted(Comparator.comparing(DailyIntersectionRollup::getRollupDate)
+                .thenComparing(DailyIntersectionRollup::getIntersectionId))
+            .toList();
+    }
+
+    private static IntersectionMetric metric(Intersection intersection, LocalDate date, int hour,
+                                             int vehicles, BigDecimal waitTime, Integer throughput) {
+        return metricBuilder(intersection, date, hour)
+            .totalVehicleCount(vehicles)
+            .averageWaitTime(waitTime)
+            .throughput(throughput)
+            .build();
+    }
+}
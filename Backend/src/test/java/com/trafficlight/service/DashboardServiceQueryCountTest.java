@@ -0,0 +1,320 @@
+package com.trafficlight.service;
+
+import com.trafficlight.entity.Intersection;
+import com.trafficlight.entity.Intersection.IntersectionStatus;
+import com.trafficlight.entity.Intersection.IntersectionType;
+import com.trafficlight.entity.IntersectionMetric;
+import com.trafficlight.repository.DailyIntersectionRollupRepository;
+import com.trafficlight.repository.IntersectionConfigRepository;
+import com.trafficlight.repository.IntersectionMetricRepository;
+import com.trafficlight.repository.IntersectionPhaseRepository;
+import com.trafficlight.repository.IntersectionRepository;
+import jakarta.persistence.EntityManager;
+import org.hibernate.Session;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static com.trafficlight.TestFixtures.metricBuilder;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+
+/**
+ * Query-count regression tests for DashboardService
+ * Performance metrics, trends, rankings and incident statistics must be one grouped query,
+ * independent of the number of intersections
+ */
+@DataJpaTest(properties = "spring.jpa.properties.hibernate.generate_statistics=true")
+@ActiveProfiles("test")
+@DisplayName("Dashboard Service Query Count Tests")
+class DashboardServiceQueryCountTest {
+
+    private static final int INTERSECTIONS = 40;
+    private static final LocalDate START = LocalDate.of(2026, 10, 1);
+    private static final LocalDate END = LocalDate.of(2026, 10, 7);
+
+    @Autowired
+    private IntersectionRepository intersectionRepository;
+
+    @Autowired
+    private IntersectionMetricRepository metricRepository;
+
+    @Autowired
+    private IntersectionConfigRepository configRepository;
+
+    @Autowired
+    private IntersectionPhaseRepository phaseRepository;
+
+    @Autowired
+    private DailyIntersectionRollupRepository rollupRepository;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private DashboardService dashboardService;
+    private List<Intersection> intersections;
+
+    @BeforeEach
+    void setUp() {
+        rollupRepository.deleteAll();
+        metricRepository.deleteAll();
+        intersectionRepository.deleteAll();
+        dashboardService = new DashboardService(intersectionRepository, metricRepository,
+                configRepository, phaseRepository, rollupRepository);
+
+        // Son kavşağın ölçümü yok; her kavşakta aralık dışında da bir ölçüm var
+        intersections = new ArrayList<>();
+        List<IntersectionMetric> metrics = new ArrayList<>();
+        for (int i = 0; i <= INTERSECTIONS; i++) {
+            Intersection intersection = intersectionRepository.save(Intersection.builder()
+                .name("Kavşak-" + i)
+                .code("DASH-" + i)
+                .latitude(new BigDecimal("41.0369"))
+                .longitude(new BigDecimal("28.9857"))
+                .city("Istanbul")
+                .intersectionType(IntersectionType.TRAFFIC_LIGHT)
+                .status(IntersectionStatus.ACTIVE)
+                .lanesCount(4)
+                .createdBy("test")
+                .build());
+            intersections.add(intersection);
+            if (i == INTERSECTIONS) {
+                break;
+            }
+            for (int hour = 0; hour < 3; hour++) {
+                metrics.add(metric(intersection, START.plusDays(i % 7), hour, 100 + i * 10 + hour,
+                        20 + i + hour * 5, 900 + i));
+            }
+            metrics.add(metric(intersection, END.plusDays(1), 0, 99_999, 999, 1));
+        }
+        metricRepository.saveAll(metrics);
+        entityManager.flush();
+        new DailyRollupService(rollupRepository, entityManager, transactionManager, 31, 2)
+            .backfill(START, END.plusDays(1));
+        entityManager.clear();
+    }
+
+    @Test
+    @DisplayName("Test getPerformanceMetrics() - Should issue a single query regardless of intersection count")
+    void testPerformanceMetricsSingleQuery() {
+        // Given
+        Statistics statistics = entityManager.unwrap(Session.class).getSessionFactory().getStatistics();
+        statistics.clear();
+
+        // When
+        Map<String, Object> performance = dashboardService.getPerformanceMetrics(START, END);
+
+        // Then
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(1);
+        assertThat(statistics.getEntityLoadCount()).isZero();
+        assertThat(performance).containsKeys("averageWaitTime", "totalVehicles", "averageThroughput",
+                "intersectionsAnalyzed", "dateRange");
+        assertThat(performance.get("intersectionsAnalyzed")).isEqualTo(INTERSECTIONS);
+    }
+
+    @Test
+    @DisplayName("Test getPerformanceMetrics() - Grouped aggregate should match the per-intersection queries")
+    void testPerformanceMetricsMatchPerIntersectionQueries() {
+        // Given: eski yol, kavşak başına üç sorgu
+        double waitSum = 0;
+        double throughputSum = 0;
+        long vehicles = 0;
+        int count = 0;
+        for (Intersection intersection : intersections) {
+            Double wait = metricRepository.getAverageWaitTime(intersection.getId(), START, END);
+            Long total = metricRepository.getTotalVehicleCount(intersection.getId(), START, END);
+            Double throughput = metricRepository.getAverageThroughput(intersection.getId(), START, END);
+            if (wait != null) {
+                waitSum += wait;
+                count++;
+            }
+            if (total != null) {
+                vehicles += total;
+            }
+            if (throughput != null) {
+                throughputSum += throughput;
+            }
+        }
+
+        // When
+        Map<String, Object> performance = dashboardService.getPerformanceMetrics(START, END);
+
+        // Then
+        assertThat(count).isEqualTo(INTERSECTIONS);
+        assertThat((Double) performance.get("averageWaitTime")).isCloseTo(waitSum / count, within(1e-9));
+        assertThat(performance.get("totalVehicles")).isEqualTo(vehicles);
+        assertThat((Double) performance.get("averageThroughput")).isCloseTo(throughputSum / count, within(1e-9));
+        assertThat(performance.get("dateRange")).isEqualTo(Map.of("start", START, "end", END));
+    }
+
+    @Test
+    @DisplayName("Test getTrafficTrends() - Should read all days in one query and match the per-day queries")
+    void testTrafficTrendsSingleQuery() {
+        // Given: window starting at START, ending yesterday
+        int days = (int) ChronoUnit.DAYS.between(START, LocalDate.now());
+        List<Long> expectedVehicles = new ArrayList<>();
+        List<Double> expectedWaits = new ArrayList<>();
+        for (int i = 0; i < days; i++) {
+            LocalDate date = START.plusDays(i);
+            long vehicles = 0;
+            double waitSum = 0;
+            int count = 0;
+            for (Intersection intersection : intersections) {
+                Long total = metricRepository.getTotalVehicleCount(intersection.getId(), date, date);
+                Double wait = metricRepository.getAverageWaitTime(intersection.getId(), date, date);
+                if (total != null) vehicles += total;
+                if (wait != null) {
+                    waitSum += wait;
+                    count++;
+                }
+            }
+            expectedVehicles.add(vehicles);
+            expectedWaits.add(count > 0 ? waitSum / count : 0);
+        }
+        Statistics statistics = entityManager.unwrap(Session.class).getSessionFactory().getStatistics();
+        statistics.clear();
+
+        // When
+        Map<String, Object> trends = dashboardService.getTrafficTrends(null, days);
+
+        // Then
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(1);
+        @SuppressWarnings("unchecked")
+        List<Map<String, Object>> dailyTrends = (List<Map<String, Object>>) trends.get("dailyTrends");
+        assertThat(dailyTrends).hasSize(days);
+        for (int i = 0; i < days; i++) {
+            Map<String, Object> day = dailyTrends.get(i);
+            assertThat(day.get("date")).isEqualTo(START.plusDays(i));
+            assertThat(day.get("totalVehicles")).isEqualTo(expectedVehicles.get(i));
+            assertThat(((Number) day.get("averageWaitTime")).doubleValue())
+                .isCloseTo(expectedWaits.get(i), within(1e-9));
+        }
+        assertThat(expectedVehicles.get(8)).isZero();
+    }
+
+    @Test
+    @DisplayName("Test getTopPerformingIntersections() - Should rank from one query like the per-intersection queries")
+    void testTopPerformingSingleQuery() {
+        // Given: eski yol, kavşak başına iki sorgu
+        List<Double> expectedScores = new ArrayList<>();
+        for (Intersection intersection : intersections) {
+            Double wait = metricRepository.getAverageWaitTime(intersection.getId(), START, END);
+            Double throughput = metricRepository.getAverageThroughput(intersection.getId(), START, END);
+            if (wait != null && throughput != null) {
+                expectedScores.add((throughput / (wait + 1)) * 100);
+            }
+        }
+        expectedScores.sort((a, b) -> Double.compare(b, a));
+        Statistics statistics = entityManager.unwrap(Session.class).getSessionFactory().getStatistics();
+        statistics.clear();
+
+        // When
+        Map<String, Object> result = dashboardService.getTopPerformingIntersections(10, START, END);
+
+        // Then
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(1);
+        assertThat(statistics.getEntityLoadCount()).isZero();
+        @SuppressWarnings("unchecked")
+        List<Map<String, Object>> top = (List<Map<String, Object>>) result.get("topPerforming");
+        assertThat(top).hasSize(10);
+        for (int i = 0; i < top.size(); i++) {
+            assertThat((Double) top.get(i).get("performanceScore")).isCloseTo(expectedScores.get(i), within(1e-9));
+        }
+    }
+
+    @Test
+    @DisplayName("Test getIncidentStatistics() - Should sum incidents in one query like the per-intersection queries")
+    @SuppressWarnings("unchecked")
+    void testIncidentStatisticsSingleQuery() {
+        // Given: her beşinci kavşakta olay, bir kavşakta aralık dışında kaza
+        List<IntersectionMetric> incidents = new ArrayList<>();
+        for (int i = 0; i < INTERSECTIONS; i += 5) {
+            incidents.add(incident(intersections.get(i), START.plusDays(i % 7), i % 3, i, 2, i % 2));
+        }
+        incidents.add(incident(intersections.get(1), END.plusDays(2), 7, 0, 0, 0));
+        metricRepository.saveAll(incidents);
+        entityManager.flush();
+        entityManager.clear();
+
+        // eski yol, kavşak başına iki sorgu
+        Map<Long, Integer> expectedTotals = new HashMap<>();
+        int expectedAccidents = 0;
+        int expectedRed = 0;
+        for (Intersection intersection : intersections) {
+            List<IntersectionMetric> withAccidents =
+                metricRepository.findMetricsWithAccidents(intersection.getId(), START, END);
+            List<IntersectionMetric> withViolations =
+                metricRepository.findMetricsWithViolations(intersection.getId(), START, END);
+            int accidents = withAccidents.stream().mapToInt(IntersectionMetric::getAccidentsCount).sum();
+            int red = withViolations.stream().mapToInt(IntersectionMetric::getRedLightViolations).sum();
+            int violations = red + withViolations.stream()
+                .mapToInt(m -> m.getYellowLightViolations() + m.getPedestrianViolations()).sum();
+            expectedAccidents += accidents;
+            expectedRed += red;
+            if (accidents + violations > 0) {
+                expectedTotals.put(intersection.getId(), accidents + violations);
+            }
+        }
+        entityManager.clear();
+        Statistics statistics = entityManager.unwrap(Session.class).getSessionFactory().getStatistics();
+        statistics.clear();
+
+        // When
+        Map<String, Object> result = dashboardService.getIncidentStatistics(START, END);
+
+        // Then
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(1);
+        assertThat(statistics.getEntityLoadCount()).isZero();
+        assertThat(result.get("totalAccidents")).isEqualTo(expectedAccidents);
+        assertThat(result.get("totalRedLightViolations")).isEqualTo(expectedRed);
+        List<Map<String, Object>> rows = (List<Map<String, Object>>) result.get("intersectionIncidents");
+        assertThat(rows).hasSize(expectedTotals.size());
+        assertThat(rows).extracting(row -> (Integer) row.get("totalIncidents"))
+            .isSortedAccordingTo(Comparator.reverseOrder());
+        for (Map<String, Object> row : rows) {
+            assertThat(row.get("totalIncidents")).isEqualTo(expectedTotals.get((Long) row.get("intersectionId")));
+            assertThat(row.get("intersectionName")).isNotNull();
+        }
+    }
+
+    private static IntersectionMetric metric(Intersection intersection, LocalDate date, int hour,
+                                             int vehicles, int waitSeconds, int throughput) {
+        return metricBuilder(intersection, date, hour)
+            .totalVehicleCount(vehicles)
+            .averageWaitTime(BigDecimal.valueOf(waitSeconds))
+            .throughput(throughput)
+            .build();
+    }
+
+    private static IntersectionMetric incident(Intersection intersection, LocalDate date, int accidents,
+                                               int redLight, int yellowLight, int pedestrian) {
+        return IntersectionMetric.builder()
+            .intersection(intersection)
+            .measurementDate(date)
+            .measurementHour(5)
+            .totalVehicleCount(100)
+            .accidentsCount(accidents)
+            .redLightViolations(redLight)
+            .yellowLightViolations(yellowLight)
+            .pedestrianViolations(pedestrian)
+            .dataQualityScore(new BigDecimal("0.95"))
+            .build();
+    }
+}
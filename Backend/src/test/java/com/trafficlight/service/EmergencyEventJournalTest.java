@@ -0,0 +1,384 @@
+package com.trafficlight.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.trafficlight.entity.EmergencyEvent;
+import com.trafficlight.entity.EmergencyVehicle;
+import com.trafficlight.event.EmergencyVehiclesPersistedEvent;
+import com.trafficlight.repository.EmergencyEventRepository;
+import com.trafficlight.repository.EmergencyVehicleRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.InOrder;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.Mockito.*;
+
+/**
+ * Unit tests for EmergencyEventJournal
+ * Write-behind ordering, crash recovery, idempotent replay and dead-lettering
+ */
+@ExtendWith(MockitoExtension.class)
+@DisplayName("Emergency Event Journal Tests")
+class EmergencyEventJournalTest {
+
+    @Mock
+    private EmergencyVehicleRepository vehicleRepository;
+
+    @Mock
+    private EmergencyEventRepository eventRepository;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+
+    @TempDir
+    Path tempDir;
+
+    /** Yazılmış araçlar (sahte tablo, journal_key → araç) */
+    private final Map<String, EmergencyVehicle> vehicles = new ConcurrentHashMap<>();
+    /** Yazılmış olaylar, yazılma sırasıyla */
+    private final List<EmergencyEvent> events = new ArrayList<>();
+    private final AtomicLong ids = new AtomicLong();
+
+    private final List<EmergencyEventJournal> started = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() {
+        lenient().when(vehicleRepository.saveAll(anyCollection())).thenAnswer(invocation -> {
+            Collection<EmergencyVehicle> batch = invocation.getArgument(0);
+            for (EmergencyVehicle vehicle : batch) {
+                vehicle.setId(ids.incrementAndGet());
+                vehicles.put(vehicle.getJournalKey(), vehicle);
+            }
+            return new ArrayList<>(batch);
+        });
+        lenient().when(vehicleRepository.findByJournalKeyIn(anyCollection())).thenAnswer(invocation -> {
+            Collection<String> keys = invocation.getArgument(0);
+            return keys.stream().filter(vehicles::containsKey).map(vehicles::get).toList();
+        });
+        lenient().when(eventRepository.saveAll(anyCollection())).thenAnswer(invocation -> {
+            Collection<EmergencyEvent> batch = invocation.getArgument(0);
+            synchronized (events) {
+                for (EmergencyEvent event : batch) {
+                    event.setId(ids.incrementAndGet());
+                    events.add(event);
+                }
+            }
+            return new ArrayList<>(batch);
+        });
+        lenient().when(eventRepository.findExistingJournalKeys(anyCollection())).thenAnswer(invocation -> {
+            Collection<String> keys = invocation.getArgument(0);
+            synchronized (events) {
+                return events.stream().map(EmergencyEvent::getJournalKey).filter(keys::contains).toList();
+            }
+        });
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        for (EmergencyEventJournal journal : started) {
+            journal.stop();
+        }
+    }
+
+    private EmergencyEventJournal startJournal() throws Exception {
+        return startJournal(10_000);
+    }
+
+    private EmergencyEventJournal startJournal(int capacity) throws Exception {
+        EmergencyEventJournal journal = new EmergencyEventJournal(vehicleRepository, eventRepository,
+                new ObjectMapper().findAndRegisterModules(), eventPublisher, transactionManager, new SimpleMeterRegistry(),
+                tempDir.resolve("emergency.log").toString(), 100, capacity, 4_194_304, true, 3, 50);
+        journal.start();
+        started.add(journal);
+        return journal;
+    }
+
+    private EmergencyVehicle vehicle(String vehicleId) {
+        return EmergencyVehicle.builder()
+            .vehicleId(vehicleId)
+            .type(EmergencyVehicle.VehicleType.AMBULANCE)
+            .status(EmergencyVehicle.EmergencyStatus.DETECTED)
+            .currentIntersectionId(1L)
+            .direction(EmergencyVehicle.Direction.NORTH)
+            .detectedAt(LocalDateTime.now())
+            .priorityLevel(1)
+            .journalKey(UUID.randomUUID().toString())
+            .build();
+    }
+
+    private EmergencyEvent event(long intersectionId, EmergencyEvent.EventType type) {
+        return EmergencyEvent.builder()
+            .intersectionId(intersectionId)
+            .intersectionName("Kavşak-" + intersectionId)
+            .eventType(type)
+            .success(true)
+            .createdAt(LocalDateTime.now())
+            .journalKey(UUID.randomUUID().toString())
+            .build();
+    }
+
+    @Test
+    @DisplayName("Test append() - Vehicle row should be written before its events, in append order")
+    void testAppendPreservesOrderPerVehicle() throws Exception {
+        // Given
+        EmergencyEventJournal journal = startJournal();
+        EmergencyVehicle first = vehicle("AMB-001");
+        EmergencyVehicle second = vehicle("AMB-002");
+
+        // When
+        journal.append(first, List.of(event(1, EmergencyEvent.EventType.EMERGENCY_DETECTED),
+                event(2, EmergencyEvent.EventType.GREEN_LIGHT_ACTIVATED)));
+        journal.append(second, List.of(event(7, EmergencyEvent.EventType.EMERGENCY_DETECTED)));
+        journal.appendAll(List.of(
+                EmergencyEventJournal.Entry.cleared(first.getJournalKey(), null, LocalDateTime.now()),
+                EmergencyEventJournal.Entry.event(first.getJournalKey(), null,
+                        event(1, EmergencyEvent.EventType.EMERGENCY_CLEARED))));
+
+        // Then
+        assertThat(journal.awaitDrained(Duration.ofSeconds(5))).isTrue();
+        assertThat(events)
+            .extracting(EmergencyEvent::getIntersectionId)
+            .containsExactly(1L, 2L, 7L, 1L);
+        assertThat(events)
+            .filteredOn(e -> e.getIntersectionId() == 1L || e.getIntersectionId() == 2L)
+            .allMatch(e -> e.getEmergencyVehicleId().equals(vehicles.get(first.getJournalKey()).getId()));
+
+        InOrder inOrder = inOrder(vehicleRepository, eventRepository);
+        inOrder.verify(vehicleRepository).saveAll(anyCollection());
+        inOrder.verify(eventRepository).saveAll(anyCollection());
+    }
+
+    @Test
+    @DisplayName("Test start() - Entries left in the journal file should be replayed after a crash")
+    void testRecoveryAfterDatabaseOutage() throws Exception {
+        // Given: veritabanı erişilemez, kayıtlar sadece günlük dosyasında
+        when(vehicleRepository.findByJournalKeyIn(anyCollection()))
+            .thenThrow(new DataAccessResourceFailureException("db down"));
+        EmergencyEventJournal crashed = startJournal();
+        EmergencyVehicle vehicle = vehicle("AMB-003");
+        crashed.append(vehicle, List.of(event(3, EmergencyEvent.EventType.EMERGENCY_DETECTED),
+                event(4, EmergencyEvent.EventType.GREEN_LIGHT_ACTIVATED)));
+
+        Path file = tempDir.resolve("emergency.log");
+        long deadline = System.currentTimeMillis() + 5_000;
+        while (Files.size(file) == 0 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        crashed.stop();
+        started.remove(crashed);
+        assertThat(crashed.pending()).isEqualTo(3);
+
+        // When: veritabanı geri geldi, düğüm yeniden açılıyor
+        reset(vehicleRepository);
+        setUp();
+        EmergencyEventJournal recovered = startJournal();
+
+        // Then
+        assertThat(recovered.awaitDrained(Duration.ofSeconds(5))).isTrue();
+        assertThat(vehicles).containsOnlyKeys(vehicle.getJournalKey());
+        assertThat(events).extracting(EmergencyEvent::getIntersectionId).containsExactly(3L, 4L);
+
+        recovered.stop();
+        started.remove(recovered);
+        assertThat(Files.size(file)).isZero();
+    }
+
+    @Test
+    @DisplayName("Test persist() - Replaying already written entries should not duplicate rows")
+    void testReplayIsIdempotent() throws Exception {
+        // Given
+        EmergencyEventJournal journal = startJournal();
+        EmergencyVehicle vehicle = vehicle("AMB-004");
+        EmergencyEvent detected = event(5, EmergencyEvent.EventType.EMERGENCY_DETECTED);
+        List<EmergencyEventJournal.Entry> entries = List.of(
+                EmergencyEventJournal.Entry.detected(vehicle),
+                EmergencyEventJournal.Entry.event(vehicle.getJournalKey(), null, detected));
+        journal.persist(entries);
+
+        // When
+        journal.persist(entries);
+
+        // Then
+        assertThat(vehicles).hasSize(1);
+        assertThat(events).hasSize(1);
+        verify(vehicleRepository, times(1)).saveAll(anyCollection());
+        verify(eventRepository, times(1)).saveAll(anyCollection());
+
+        // Araç id'si her iki yazımda da aynı satıra bağlanır
+        EmergencyVehiclesPersistedEvent persisted = new EmergencyVehiclesPersistedEvent(
+                Map.of(vehicle.getJournalKey(), vehicles.get(vehicle.getJournalKey()).getId()));
+        verify(eventPublisher, times(2)).publishEvent(persisted);
+    }
+
+    @Test
+    @DisplayName("Test append() - A permanently failing entry should be dead-lettered without stalling the writer")
+    void testPoisonEntryIsDeadLettered() throws Exception {
+        // Given: bir aracın satırı her denemede kısıt ihlali veriyor
+        EmergencyVehicle poison = vehicle("BAD-001");
+        EmergencyVehicle healthy = vehicle("AMB-005");
+        when(vehicleRepository.saveAll(anyCollection())).thenAnswer(invocation -> {
+            Collection<EmergencyVehicle> batch = invocation.getArgument(0);
+            if (batch.contains(poison)) {
+                throw new DataIntegrityViolationException("value too long for vehicle_id");
+            }
+            for (EmergencyVehicle vehicle : batch) {
+                vehicle.setId(ids.incrementAndGet());
+                vehicles.put(vehicle.getJournalKey(), vehicle);
+            }
+            return new ArrayList<>(batch);
+        });
+        EmergencyEventJournal journal = startJournal();
+
+        // When: aynı toplu yazımda sağlam bir araçla
+        List<EmergencyEventJournal.Entry> entries = new ArrayList<>();
+        entries.add(EmergencyEventJournal.Entry.detected(poison));
+        entries.add(EmergencyEventJournal.Entry.detected(healthy));
+        entries.add(EmergencyEventJournal.Entry.event(healthy.getJournalKey(), null,
+                event(6, EmergencyEvent.EventType.EMERGENCY_DETECTED)));
+        journal.appendAll(entries);
+
+        // Then
+        assertThat(journal.awaitDrained(Duration.ofSeconds(10))).isTrue();
+        assertThat(vehicles).containsOnlyKeys(healthy.getJournalKey());
+        assertThat(events).extracting(EmergencyEvent::getIntersectionId).containsExactly(6L);
+        assertThat(journal.deadLettered()).isEqualTo(1);
+        assertThat(Files.readAllLines(tempDir.resolve("emergency.log.dead")))
+            .singleElement().asString().contains(poison.getJournalKey());
+
+        // Yazıcı çalışmaya devam eder
+        EmergencyVehicle next = vehicle("AMB-006");
+        journal.append(next, List.of());
+        assertThat(journal.awaitDrained(Duration.ofSeconds(5))).isTrue();
+        assertThat(vehicles).containsKey(next.getJournalKey());
+    }
+
+    @Test
+    @DisplayName("Test append() - Database retries should not write the batch to the journal file again")
+    void testRetryWritesJournalOnce() throws Exception {
+        // Given: veritabanı iki deneme boyunca erişilemez
+        when(eventRepository.findExistingJournalKeys(anyCollection()))
+            .thenThrow(new DataAccessResourceFailureException("db down"))
+            .thenThrow(new DataAccessResourceFailureException("db down"))
+            .thenReturn(List.of());
+        EmergencyEventJournal journal = startJournal();
+        EmergencyVehicle vehicle = vehicle("AMB-007");
+
+        // When
+        journal.append(vehicle, List.of(event(8, EmergencyEvent.EventType.EMERGENCY_DETECTED),
+                event(9, EmergencyEvent.EventType.GREEN_LIGHT_ACTIVATED)));
+
+        // Then
+        assertThat(journal.awaitDrained(Duration.ofSeconds(5))).isTrue();
+        verify(eventRepository, times(3)).findExistingJournalKeys(anyCollection());
+        assertThat(events).extracting(EmergencyEvent::getIntersectionId).containsExactly(8L, 9L);
+        assertThat(Files.readAllLines(tempDir.resolve("emergency.log"))).hasSize(3);
+        assertThat(journal.deadLettered()).isZero();
+    }
+
+    @Test
+    @DisplayName("Test appendAll() - A full queue should dead-letter the entries instead of blocking the caller")
+    void testFullQueueDoesNotBlock() throws Exception {
+        // Given: veritabanı erişilemez, yazıcı ilk toplu yazımda bekliyor, kuyruk 2 kayıtlık
+        when(vehicleRepository.findByJournalKeyIn(anyCollection()))
+            .thenThrow(new DataAccessResourceFailureException("db down"));
+        EmergencyEventJournal journal = startJournal(2);
+        journal.append(vehicle("AMB-008"), List.of());
+        Path file = tempDir.resolve("emergency.log");
+        long deadline = System.currentTimeMillis() + 5_000;
+        while (Files.size(file) == 0 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+
+        // When: 2 kayıt kuyruğa sığar, kalan 2 sığmaz
+        EmergencyVehicle vehicle = vehicle("AMB-009");
+        long start = System.nanoTime();
+        journal.append(vehicle, List.of(event(10, EmergencyEvent.EventType.EMERGENCY_DETECTED),
+                event(11, EmergencyEvent.EventType.GREEN_LIGHT_ACTIVATED),
+                event(12, EmergencyEvent.EventType.GREEN_LIGHT_ACTIVATED)));
+        long elapsedMillis = (System.nanoTime() - start) / 1_000_000;
+
+        // Then
+        assertThat(elapsedMillis).isLessThan(1_000);
+        assertThat(journal.deadLettered()).isEqualTo(2);
+        assertThat(journal.pending()).isEqualTo(3);
+        assertThat(Files.readAllLines(tempDir.resolve("emergency.log.dead"))).hasSize(2);
+    }
+
+    @Test
+    @DisplayName("Test append() - Entries whose vehicle row is missing should be dead-lettered, not dropped")
+    void testUnresolvedEntriesAreDeadLettered() throws Exception {
+        // Given: tespit kaydı hiç yazılmamış (ör. dead-letter'a taşınmış) bir araç
+        EmergencyEventJournal journal = startJournal();
+        String missingKey = UUID.randomUUID().toString();
+
+        // When
+        journal.appendAll(List.of(
+                EmergencyEventJournal.Entry.event(missingKey, null, event(13, EmergencyEvent.EventType.GREEN_LIGHT_ACTIVATED)),
+                EmergencyEventJournal.Entry.cleared(missingKey, null, LocalDateTime.now())));
+
+        // Then
+        assertThat(journal.awaitDrained(Duration.ofSeconds(5))).isTrue();
+        assertThat(events).isEmpty();
+        assertThat(journal.deadLettered()).isEqualTo(2);
+        assertThat(journal.pending()).isZero();
+        assertThat(Files.readAllLines(tempDir.resolve("emergency.log.dead")))
+            .hasSize(2)
+            .allSatisfy(line -> assertThat(line).contains(missingKey));
+    }
+
+    @Test
+    @DisplayName("Test persist() - Vehicle ids of a rolled back batch should not be cached")
+    void testRollbackDoesNotCacheVehicleIds() throws Exception {
+        // Given: araç satırı eklendi, olaylar kalıcı hata verdi, transaction geri alındı
+        EmergencyEventJournal journal = startJournal();
+        EmergencyVehicle vehicle = vehicle("AMB-010");
+        when(eventRepository.saveAll(anyCollection())).thenAnswer(invocation -> {
+            vehicles.remove(vehicle.getJournalKey());
+            throw new DataIntegrityViolationException("check constraint");
+        });
+        assertThatThrownBy(() -> journal.persist(List.of(
+                EmergencyEventJournal.Entry.detected(vehicle),
+                EmergencyEventJournal.Entry.event(vehicle.getJournalKey(), null,
+                        event(14, EmergencyEvent.EventType.EMERGENCY_DETECTED)))))
+            .isInstanceOf(DataIntegrityViolationException.class);
+
+        // When
+        int deadLettered = journal.persist(List.of(
+                EmergencyEventJournal.Entry.cleared(vehicle.getJournalKey(), null, LocalDateTime.now())));
+
+        // Then: geri alınan id'ye güncelleme yapılmaz, kayıt dead-letter'da
+        assertThat(deadLettered).isEqualTo(1);
+        verify(vehicleRepository, never()).findById(any());
+        verify(eventPublisher, never()).publishEvent(any());
+        assertThat(Files.readAllLines(tempDir.resolve("emergency.log.dead")))
+            .singleElement().asString().contains(vehicle.getJournalKey());
+    }
+}
@@ -0,0 +1,150 @@
+package com.trafficlight.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Unit tests for EmergencyExpiryWheel
+ * Multi-round deadlines, O(1) cancel / extend and bulk expiry
+ */
+@DisplayName("Emergency Expiry Wheel Tests")
+class EmergencyExpiryWheelTest {
+
+    private static final long TICK_MILLIS = 10;
+
+    private EmergencyExpiryWheel wheel;
+
+    @BeforeEach
+    void setUp() {
+        // 8 dilim x 10ms: 80ms'den uzun süreler birden fazla tur bekler
+        wheel = new EmergencyExpiryWheel(new SimpleMeterRegistry(), TICK_MILLIS, 8);
+        wheel.start();
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        wheel.stop();
+    }
+
+    @Test
+    @DisplayName("Test schedule() - Task should fire once, not before its deadline")
+    void testFiresAfterDeadline() throws Exception {
+        // Given
+        long deadline = System.currentTimeMillis() + 300;
+        AtomicLong firedAt = new AtomicLong();
+        CountDownLatch fired = new CountDownLatch(1);
+
+        // When
+        wheel.schedule("AMB-1", deadline, () -> {
+            firedAt.set(System.currentTimeMillis());
+            fired.countDown();
+        });
+
+        // Then
+        assertThat(wheel.deadline("AMB-1")).hasValue(deadline);
+        assertThat(fired.await(2, TimeUnit.SECONDS)).isTrue();
+        assertThat(firedAt.get()).isGreaterThanOrEqualTo(deadline);
+        assertThat(wheel.pending()).isZero();
+        assertThat(wheel.cancel("AMB-1")).isFalse();
+    }
+
+    @Test
+    @DisplayName("Test cancel() - Cancelled expiry should never fire")
+    void testCancel() throws Exception {
+        // Given
+        AtomicInteger fired = new AtomicInteger();
+        wheel.schedule("AMB-1", System.currentTimeMillis() + 50, fired::incrementAndGet);
+
+        // When
+        boolean cancelled = wheel.cancel("AMB-1");
+        Thread.sleep(150);
+
+        // Then
+        assertThat(cancelled).isTrue();
+        assertThat(fired).hasValue(0);
+        assertThat(wheel.deadline("AMB-1")).isEmpty();
+    }
+
+    @Test
+    @DisplayName("Test extend() - Extended expiry should move, extendTo() should never shorten")
+    void testExtend() throws Exception {
+        // Given
+        long deadline = System.currentTimeMillis() + 100;
+        AtomicLong firedAt = new AtomicLong();
+        CountDownLatch fired = new CountDownLatch(1);
+        wheel.schedule("FIRE-1", deadline, () -> {
+            firedAt.set(System.currentTimeMillis());
+            fired.countDown();
+        });
+
+        // When
+        assertThat(wheel.extend("FIRE-1", 200)).hasValue(deadline + 200);
+        wheel.extendTo("FIRE-1", deadline);
+
+        // Then
+        assertThat(wheel.deadline("FIRE-1")).hasValue(deadline + 200);
+        assertThat(wheel.extend("unknown", 200)).isEmpty();
+        assertThat(fired.await(2, TimeUnit.SECONDS)).isTrue();
+        assertThat(firedAt.get()).isGreaterThanOrEqualTo(deadline + 200);
+    }
+
+    @Test
+    @DisplayName("Test schedule() - Rescheduling a key should replace the pending expiry")
+    void testRescheduleReplaces() throws Exception {
+        // Given
+        AtomicInteger first = new AtomicInteger();
+        CountDownLatch second = new CountDownLatch(1);
+        wheel.schedule("POL-1", System.currentTimeMillis() + 50, first::incrementAndGet);
+
+        // When
+        wheel.schedule("POL-1", System.currentTimeMillis() + 120, second::countDown);
+
+        // Then
+        assertThat(second.await(2, TimeUnit.SECONDS)).isTrue();
+        assertThat(first).hasValue(0);
+    }
+
+    @Test
+    @DisplayName("Test schedule() - Thousands of expiries, some overdue, should each fire exactly once")
+    void testBulkExpiry() throws Exception {
+        // Given
+        int count = 10_000;
+        long now = System.currentTimeMillis();
+        Map<String, AtomicInteger> fired = new ConcurrentHashMap<>();
+        CountDownLatch done = new CountDownLatch(count / 2);
+
+        // When: çiftler geçmişte (açılışta süresi dolmuş), tekler ileride ve iptal ediliyor
+        for (int i = 0; i < count; i++) {
+            String key = "V-" + i;
+            fired.put(key, new AtomicInteger());
+            long deadline = i % 2 == 0 ? now - 1_000 + (i % 500) * 3L : now + 500 + (i % 500) * 3L;
+            wheel.schedule(key, deadline, () -> {
+                fired.get(key).incrementAndGet();
+                done.countDown();
+            });
+        }
+        for (int i = 1; i < count; i += 2) {
+            assertThat(wheel.cancel("V-" + i)).isTrue();
+        }
+
+        // Then
+        assertThat(done.await(5, TimeUnit.SECONDS)).isTrue();
+        Thread.sleep(2_500);
+        assertThat(wheel.pending()).isZero();
+        for (int i = 0; i < count; i++) {
+            assertThat(fired.get("V-" + i)).hasValue(i % 2 == 0 ? 1 : 0);
+        }
+    }
+}
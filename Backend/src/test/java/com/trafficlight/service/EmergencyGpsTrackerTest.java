@@ -0,0 +1,281 @@
+package com.trafficlight.service;
+
+import com.trafficlight.dto.EmergencyRequest;
+import com.trafficlight.dto.EtaResponse;
+import com.trafficlight.dto.GpsIngestResponse;
+import com.trafficlight.dto.GpsPositionRequest;
+import com.trafficlight.entity.EmergencyVehicle;
+import com.trafficlight.repository.EmergencyEventRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+/**
+ * Unit tests for EmergencyGpsTracker and GeofenceGrid
+ * Approach detection, pass / leave clearing, live ETA and concurrent vehicles
+ */
+@ExtendWith(MockitoExtension.class)
+@DisplayName("Emergency GPS Tracker Tests")
+class EmergencyGpsTrackerTest {
+
+    private static final double LAT = 39.9;
+    private static final double LON = 32.8;
+    private static final double METERS_PER_DEGREE_LAT = 110_540.0;
+
+    @Mock
+    private IntersectionSpatialIndex spatialIndex;
+
+    @Mock
+    private EmergencyService emergencyService;
+
+    @Mock
+    private EmergencyEventRepository emergencyEventRepository;
+
+    private EmergencyGpsTracker tracker;
+
+    @BeforeEach
+    void setUp() {
+        // Kuzey-güney hattında 500 m arayla 3 kavşak
+        List<IntersectionGraph.Node> nodes = List.of(
+                new IntersectionGraph.Node(1L, "Kavşak-1", LAT, LON, true),
+                new IntersectionGraph.Node(2L, "Kavşak-2", LAT - 500 / METERS_PER_DEGREE_LAT, LON, true),
+                new IntersectionGraph.Node(3L, "Kavşak-3", LAT - 1000 / METERS_PER_DEGREE_LAT, LON, true));
+        lenient().when(spatialIndex.current()).thenReturn(IntersectionGraph.build(nodes, 1500));
+        lenient().when(emergencyService.clearEmergency(anyString(), anyString())).thenReturn(true);
+
+        CorridorTravelTimes corridorTravelTimes = new CorridorTravelTimes(emergencyEventRepository, spatialIndex,
+                0.2, 300, 30, 5);
+        PreemptionPlanner planner = new PreemptionPlanner(spatialIndex, corridorTravelTimes, 45, 120, 8, 6, 30);
+        tracker = new EmergencyGpsTracker(spatialIndex, emergencyService, planner, corridorTravelTimes,
+                new SimpleMeterRegistry(), 150, 40, 50, 300_000, 500);
+    }
+
+    private GpsPositionRequest position(String vehicleId, double metersNorth, LocalDateTime at) {
+        return GpsPositionRequest.builder()
+            .vehicleId(vehicleId)
+            .type(EmergencyVehicle.VehicleType.AMBULANCE)
+            .latitude(LAT + metersNorth / METERS_PER_DEGREE_LAT)
+            .longitude(LON)
+            .recordedAt(at)
+            .build();
+    }
+
+    /**
+     * Kuzeyden güneye 14 m/s, saniyede bir konum
+     */
+    private List<GpsPositionRequest> driveSouth(String vehicleId, double fromMeters, double toMeters) {
+        List<GpsPositionRequest> positions = new ArrayList<>();
+        LocalDateTime start = LocalDateTime.now();
+        int second = 0;
+        for (double meters = fromMeters; meters >= toMeters; meters -= 14) {
+            positions.add(position(vehicleId, meters, start.plusSeconds(second++)));
+        }
+        return positions;
+    }
+
+    @Test
+    @DisplayName("Test ingest() - Driving through a corridor should trigger and clear each intersection in turn")
+    void testDriveThroughCorridor() {
+        // Given & When
+        GpsIngestResponse response = tracker.ingest(driveSouth("AMB-1", 400, -1200));
+
+        // Then
+        assertThat(response.getIgnored()).isZero();
+        assertThat(response.getTransitions())
+            .extracting(t -> t.getEvent() + ":" + t.getIntersectionId())
+            .containsExactly("ENTERED:1", "EXITED:1", "ENTERED:2", "EXITED:2", "ENTERED:3", "EXITED:3");
+        assertThat(response.getTransitions())
+            .filteredOn(t -> t.getEvent().equals("ENTERED"))
+            .allSatisfy(t -> {
+                assertThat(t.getDirection()).isEqualTo("NORTH");
+                assertThat(t.getDistanceMeters()).isBetween(136, 150);
+            });
+
+        ArgumentCaptor<EmergencyRequest> requests = ArgumentCaptor.forClass(EmergencyRequest.class);
+        ArgumentCaptor<String> keys = ArgumentCaptor.forClass(String.class);
+        verify(emergencyService, times(3)).triggerEmergency(requests.capture(), keys.capture());
+        assertThat(requests.getAllValues()).allSatisfy(request -> {
+            assertThat(request.getDirection()).isEqualTo(EmergencyVehicle.Direction.NORTH);
+            assertThat(request.getSpeedKmh()).isBetween(50.0, 51.0);
+        });
+        // Her öncelik kendi anahtarıyla sonlandırılır
+        for (String key : keys.getAllValues()) {
+            verify(emergencyService).clearEmergency(eq(key), anyString());
+        }
+    }
+
+    @Test
+    @DisplayName("Test ingest() - Standing still or going back in time inside a geofence should not trigger")
+    void testJitterAndOutOfOrder() {
+        // Given: bölge içinde duran araç (±1 m gürültü)
+        LocalDateTime start = LocalDateTime.now();
+        List<GpsPositionRequest> positions = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            positions.add(position("AMB-2", 100 + (i % 2 == 0 ? 0.5 : -0.4), start.plusSeconds(i)));
+        }
+        positions.add(position("AMB-2", 80, start.minusSeconds(5)));
+        positions.add(GpsPositionRequest.builder()
+            .type(EmergencyVehicle.VehicleType.AMBULANCE)
+            .latitude(LAT)
+            .longitude(LON)
+            .build());
+
+        // When
+        GpsIngestResponse response = tracker.ingest(positions);
+
+        // Then
+        assertThat(response.getAccepted()).isEqualTo(10);
+        assertThat(response.getIgnored()).isEqualTo(2);
+        assertThat(response.getTransitions()).isEmpty();
+        verify(emergencyService, never()).triggerEmergency(any(), anyString());
+    }
+
+    @Test
+    @DisplayName("Test ingest() - Turning away before the intersection should clear the preemption")
+    void testLeaveWithoutPassing() {
+        // Given: kuzeyden yaklaşıp 100 m'de geri dönen araç
+        LocalDateTime start = LocalDateTime.now();
+        List<GpsPositionRequest> positions = new ArrayList<>();
+        int second = 0;
+        for (double meters = 200; meters >= 100; meters -= 14) {
+            positions.add(position("POL-1", meters, start.plusSeconds(second++)));
+        }
+        for (double meters = 100; meters <= 220; meters += 14) {
+            positions.add(position("POL-1", meters, start.plusSeconds(second++)));
+        }
+
+        // When
+        GpsIngestResponse response = tracker.ingest(positions);
+
+        // Then
+        assertThat(response.getTransitions())
+            .extracting(GpsIngestResponse.Transition::getEvent)
+            .containsExactly("ENTERED", "EXITED");
+        assertThat(response.getTransitions().get(1).getDistanceMeters()).isGreaterThan(150);
+    }
+
+    @Test
+    @DisplayName("Test eta() - Approaching vehicle should get ETAs to the intersections ahead from its smoothed speed")
+    void testLiveEta() {
+        // Given: kuzeyden 14 m/s ile yaklaşan araç, son konumu şimdi ve Kavşak-1'in 300 m kuzeyinde
+        LocalDateTime start = LocalDateTime.now().minusSeconds(50);
+        List<GpsPositionRequest> positions = new ArrayList<>();
+        for (int second = 0; second <= 50; second++) {
+            positions.add(position("AMB-9", 1000 - second * 14, start.plusSeconds(second)));
+        }
+        tracker.ingest(positions);
+
+        // When
+        EtaResponse eta = tracker.eta("AMB-9").orElseThrow();
+
+        // Then: 300 m → ~21 s, sonraki kavşaklar 500 m arayla ~36 s sonra
+        assertThat(eta.getHeading()).isEqualTo("SOUTH");
+        assertThat(eta.getSpeedKmh()).isCloseTo(50.4, within(0.2));
+        assertThat(eta.getStops()).extracting(EtaResponse.Stop::getIntersectionId).containsExactly(1L, 2L, 3L);
+        assertThat(eta.getStops().get(0).getDistanceMeters()).isBetween(298, 302);
+        assertThat(eta.getStops().get(0).getEtaSeconds()).isBetween(20, 22);
+        assertThat(eta.getStops().get(1).getEtaSeconds()).isBetween(56, 58);
+        assertThat(eta.getStops().get(2).getEtaSeconds()).isBetween(91, 94);
+        assertThat(eta.getStops()).allSatisfy(stop -> assertThat(stop.getLearnedSamples()).isZero());
+        verify(emergencyService, never()).triggerEmergency(any(), anyString());
+        assertThat(tracker.eta("UNKNOWN")).isEmpty();
+    }
+
+    @Test
+    @DisplayName("Test GeofenceGrid.nearest() - Should match brute force nearest within radius")
+    void testGridMatchesBruteForce() {
+        // Given: 2000 rastgele kavşak, 4 km x 4 km
+        Random random = new Random(7);
+        List<IntersectionGraph.Node> nodes = new ArrayList<>();
+        for (int i = 0; i < 2_000; i++) {
+            nodes.add(new IntersectionGraph.Node(i, "K-" + i,
+                    LAT + random.nextDouble() * 4_000 / METERS_PER_DEGREE_LAT,
+                    LON + random.nextDouble() * 0.05, true));
+        }
+        IntersectionGraph graph = IntersectionGraph.build(nodes, 1500);
+        GeofenceGrid grid = GeofenceGrid.build(graph, 150);
+
+        // When & Then
+        for (int p = 0; p < 10_000; p++) {
+            double x = graph.projectX(LON + random.nextDouble() * 0.05);
+            double y = graph.projectY(LAT + random.nextDouble() * 4_000 / METERS_PER_DEGREE_LAT);
+            int expected = -1;
+            double best = 150;
+            for (int i = 0; i < graph.size(); i++) {
+                double distance = Math.hypot(x - graph.x(i), y - graph.y(i));
+                if (distance <= best) {
+                    best = distance;
+                    expected = i;
+                }
+            }
+            assertThat(grid.nearest(x, y)).isEqualTo(expected);
+        }
+    }
+
+    @Test
+    @DisplayName("Test ingest() - Hundreds of vehicles reporting concurrently should each see ordered transitions")
+    void testConcurrentVehicles() throws Exception {
+        // Given: 400 araç, 8 thread, her gönderim tüm araçların bir saniyelik konumu
+        int vehicles = 400;
+        List<List<GpsPositionRequest>> routes = new ArrayList<>();
+        int seconds = 0;
+        for (int v = 0; v < vehicles; v++) {
+            routes.add(driveSouth("V-" + v, 400 + v % 7, -1200));
+            seconds = Math.max(seconds, routes.get(v).size());
+        }
+        int duration = seconds;
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        List<Future<List<GpsIngestResponse.Transition>>> futures = new ArrayList<>();
+
+        // When
+        for (int t = 0; t < 8; t++) {
+            int worker = t;
+            futures.add(executor.submit(() -> {
+                List<GpsIngestResponse.Transition> transitions = new ArrayList<>();
+                for (int second = 0; second < duration; second++) {
+                    List<GpsPositionRequest> batch = new ArrayList<>();
+                    for (int v = worker; v < vehicles; v += 8) {
+                        if (second < routes.get(v).size()) {
+                            batch.add(routes.get(v).get(second));
+                        }
+                    }
+                    transitions.addAll(tracker.ingest(batch).getTransitions());
+                }
+                return transitions;
+            }));
+        }
+        executor.shutdown();
+        assertThat(executor.awaitTermination(1, TimeUnit.MINUTES)).isTrue();
+
+        // Then
+        List<GpsIngestResponse.Transition> all = new ArrayList<>();
+        for (Future<List<GpsIngestResponse.Transition>> future : futures) {
+            all.addAll(future.get());
+        }
+        assertThat(all).hasSize(vehicles * 6);
+        assertThat(tracker.trackedVehicles()).isEqualTo(vehicles);
+        verify(emergencyService, times(vehicles * 3)).triggerEmergency(any(), anyString());
+        verify(emergencyService, times(vehicles * 3)).clearEmergency(anyString(), anyString());
+    }
+}
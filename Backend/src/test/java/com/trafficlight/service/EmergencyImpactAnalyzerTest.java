@@ -0,0 +1,215 @@
+package com.trafficlight.service;
+
+import com.trafficlight.dto.ImpactStatsResponse;
+import com.trafficlight.entity.EmergencyImpact;
+import com.trafficlight.entity.EmergencyVehicle;
+import com.trafficlight.entity.TrafficSensor;
+import com.trafficlight.event.EmergencyPreemptionEvent;
+import com.trafficlight.repository.EmergencyImpactRepository;
+import com.trafficlight.repository.TrafficSensorRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.lenient;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Unit tests for EmergencyImpactAnalyzer
+ * Side-street queue build-up, recovery and delay measured from sensor readings after each green window
+ */
+@ExtendWith(MockitoExtension.class)
+@DisplayName("Emergency Impact Analyzer Tests")
+class EmergencyImpactAnalyzerTest {
+
+    @Mock
+    private TrafficSensorRepository sensorRepository;
+
+    @Mock
+    private EmergencyImpactRepository impactRepository;
+
+    private EmergencyImpactAnalyzer impactAnalyzer;
+
+    /** Pencere başlangıcı: gözlem süresi çoktan dolmuş olsun */
+    private LocalDateTime holdStart;
+
+    @BeforeEach
+    void setUp() {
+        holdStart = LocalDateTime.now().minusHours(1).withNano(0);
+        impactAnalyzer = new EmergencyImpactAnalyzer(sensorRepository, impactRepository,
+                new SimpleMeterRegistry(), 300, 600, 10_000);
+        lenient().when(impactRepository.saveAll(any())).thenAnswer(invocation -> invocation.getArgument(0));
+    }
+
+    @Test
+    @DisplayName("Test analyzeDue() - Should measure queue build-up, recovery and delay on the held approaches")
+    void testMeasureQueueBuildUpAndRecovery() {
+        // Given: güneye giden araç, Doğu-Batı 20 saniye kırmızıda; taban 4 + 6 = 10 araç
+        when(sensorRepository.findReadingsBetween(eq(1L), any(), any(), any())).thenReturn(List.of(
+                reading(TrafficSensor.Direction.EAST, 4, -240),
+                reading(TrafficSensor.Direction.WEST, 6, -120),
+                reading(TrafficSensor.Direction.EAST, 10, 10),
+                reading(TrafficSensor.Direction.WEST, 12, 20),
+                reading(TrafficSensor.Direction.EAST, 6, 50),
+                reading(TrafficSensor.Direction.WEST, 5, 80),
+                reading(TrafficSensor.Direction.EAST, 30, 200)));
+        impactAnalyzer.onPreemption(event(window(1L, 0, 20)));
+
+        // When
+        List<EmergencyImpact> measured = impactAnalyzer.analyzeDue();
+
+        // Then: kuyruk 10 → 16 → 22 → 18 → 11 (tolerans 1 araç), pencere sonundan 60 s sonra normal
+        assertThat(measured).hasSize(1);
+        EmergencyImpact impact = measured.get(0);
+        assertThat(impact.getHeldApproaches()).isEqualTo("EAST,WEST");
+        assertThat(impact.getBaselineQueue()).isCloseTo(10.0, within(0.001));
+        assertThat(impact.getHoldDemand()).isCloseTo(13.0, within(0.001));
+        assertThat(impact.getPeakQueue()).isEqualTo(22);
+        assertThat(impact.getQueueBuildUp()).isCloseTo(12.0, within(0.001));
+        assertThat(impact.getRecoverySeconds()).isEqualTo(60);
+        // 6 x 10 + 12 x 30 + 8 x 30 (dönüşten sonraki okuma sayılmaz)
+        assertThat(impact.getDelayVehicleSeconds()).isCloseTo(660.0, within(0.001));
+        assertThat(impact.getSensorReadings()).isEqualTo(6);
+        verify(impactRepository).saveAll(measured);
+    }
+
+    @Test
+    @DisplayName("Test analyzeDue() - Queue that never drains should integrate delay up to the horizon")
+    void testNoRecoveryWithinHorizon() {
+        // Given
+        when(sensorRepository.findReadingsBetween(eq(1L), any(), any(), any())).thenReturn(List.of(
+                reading(TrafficSensor.Direction.EAST, 10, -60),
+                reading(TrafficSensor.Direction.EAST, 20, 10)));
+        impactAnalyzer.onPreemption(event(window(1L, 0, 30)));
+
+        // When
+        EmergencyImpact impact = impactAnalyzer.analyzeDue().get(0);
+
+        // Then: 10. saniyeden pencere sonu + 600 s'ye kadar 10 fazla araç
+        assertThat(impact.getRecoverySeconds()).isNull();
+        assertThat(impact.getDelayVehicleSeconds()).isCloseTo(6_200.0, within(0.001));
+        assertThat(impact.getHoldDemand()).isCloseTo(500.0 / 30, within(0.001));
+    }
+
+    @Test
+    @DisplayName("Test analyzeDue() - Windows still inside the horizon or without baseline readings should not be stored")
+    void testPendingAndMissingData() {
+        // Given: biri yeni (gözlem sürüyor), biri sensörsüz
+        PreemptionPlan recent = plan(window(2L, 0, 20));
+        impactAnalyzer.onPreemption(new EmergencyPreemptionEvent(UUID.randomUUID().toString(), "AMB-2", 1,
+                recent, List.of(), LocalDateTime.now()));
+        impactAnalyzer.onPreemption(event(window(1L, 0, 20)));
+        when(sensorRepository.findReadingsBetween(eq(1L), any(), any(), any())).thenReturn(List.of(
+                reading(TrafficSensor.Direction.EAST, 9, 5)));
+
+        // When
+        List<EmergencyImpact> measured = impactAnalyzer.analyzeDue();
+
+        // Then
+        assertThat(measured).isEmpty();
+        assertThat(impactAnalyzer.pendingCount()).isEqualTo(1);
+        assertThat(impactAnalyzer.stats(1L)).isEmpty();
+        verify(sensorRepository, never()).findReadingsBetween(eq(2L), any(), any(), any());
+        verify(impactRepository, never()).saveAll(any());
+    }
+
+    @Test
+    @DisplayName("Test stats() / expected() - Per-intersection totals should grow incrementally and drive the trigger estimate")
+    void testIncrementalStatsAndExpected() {
+        // Given: kavşak 1'de iki pencere (gecikme 120 ve 60), kavşak 2'de bir pencere (gecikme 1200)
+        when(sensorRepository.findReadingsBetween(anyLong(), any(), any(), any())).thenReturn(
+                List.of(reading(TrafficSensor.Direction.EAST, 10, -60),
+                        reading(TrafficSensor.Direction.EAST, 16, 10),
+                        reading(TrafficSensor.Direction.EAST, 10, 30)),
+                List.of(reading(TrafficSensor.Direction.EAST, 10, -60),
+                        reading(TrafficSensor.Direction.EAST, 16, 10),
+                        reading(TrafficSensor.Direction.EAST, 11, 20)),
+                List.of(reading(TrafficSensor.Direction.WEST, 0, -60),
+                        reading(TrafficSensor.Direction.WEST, 40, 0),
+                        reading(TrafficSensor.Direction.WEST, 0, 30)));
+        impactAnalyzer.onPreemption(event(window(1L, 0, 20)));
+        impactAnalyzer.analyzeDue();
+        impactAnalyzer.onPreemption(event(window(1L, 0, 20)));
+        impactAnalyzer.onPreemption(event(window(2L, 0, 30)));
+
+        // When
+        impactAnalyzer.analyzeDue();
+        ImpactStatsResponse stats = impactAnalyzer.stats(1L).orElseThrow();
+
+        // Then
+        assertThat(stats.getAnalyzedWindows()).isEqualTo(2);
+        assertThat(stats.getAvgDelayVehicleSeconds()).isEqualTo(90.0);
+        assertThat(stats.getMaxPeakQueue()).isEqualTo(16);
+        assertThat(stats.getAvgRecoverySeconds()).isEqualTo(5.0);
+        assertThat(stats.getTotalHoldSeconds()).isEqualTo(40);
+        assertThat(impactAnalyzer.allStats()).extracting(ImpactStatsResponse::getIntersectionId)
+            .containsExactly(2L, 1L);
+
+        // Kavşak 1: 10 saniyelik pencere ortalamanın yarısı kadar gecikme bekler
+        EmergencyImpactAnalyzer.Expected expected = impactAnalyzer.expected(plan(window(1L, 0, 10), window(2L, 10, 40)));
+        assertThat(expected.delayVehicleSeconds()).isCloseTo(45.0 + 1_200.0, within(0.001));
+        assertThat(expected.recoverySeconds()).isCloseTo(5.0, within(0.001));
+        assertThat(expected.samples()).isEqualTo(3);
+    }
+
+    @Test
+    @DisplayName("Test warmUp() - Should load per-intersection totals from the stored summary")
+    void testWarmUp() {
+        // Given
+        LocalDateTime last = LocalDateTime.now().minusMinutes(5);
+        List<Object[]> rows = new ArrayList<>();
+        rows.add(new Object[]{3L, 4L, 800.0, 20.0, 25, 240L, 3L, 80L, last});
+        when(impactRepository.summarizeByIntersection()).thenReturn(rows);
+
+        // When
+        impactAnalyzer.warmUp();
+
+        // Then
+        ImpactStatsResponse stats = impactAnalyzer.stats(3L).orElseThrow();
+        assertThat(stats.getAvgDelayVehicleSeconds()).isEqualTo(200.0);
+        assertThat(stats.getAvgRecoverySeconds()).isEqualTo(80.0);
+        assertThat(stats.getRecoveredPercent()).isEqualTo(75.0);
+        assertThat(stats.getLastAnalyzedAt()).isEqualTo(last);
+    }
+
+    private TrafficSensor reading(TrafficSensor.Direction direction, int vehicles, int offsetSeconds) {
+        return TrafficSensor.builder()
+            .sensorId(UUID.randomUUID().toString())
+            .intersectionId(1L)
+            .direction(direction)
+            .vehicleCount(vehicles)
+            .recordedAt(holdStart.plusSeconds(offsetSeconds))
+            .build();
+    }
+
+    private static PreemptionPlan.Window window(long intersectionId, int greenStart, int greenEnd) {
+        return new PreemptionPlan.Window(intersectionId, "Kavşak-" + intersectionId, 0, greenStart,
+                greenStart, greenEnd);
+    }
+
+    private static PreemptionPlan plan(PreemptionPlan.Window... windows) {
+        return new PreemptionPlan(windows[0].intersectionId(), EmergencyVehicle.Direction.SOUTH, 45,
+                List.of(windows), 0);
+    }
+
+    private EmergencyPreemptionEvent event(PreemptionPlan.Window window) {
+        return new EmergencyPreemptionEvent(UUID.randomUUID().toString(), "AMB-1", 1, plan(window), List.of(),
+                holdStart);
+    }
+}
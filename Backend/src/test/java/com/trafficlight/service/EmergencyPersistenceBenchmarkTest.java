@@ -0,0 +1,168 @@
+package com.trafficlight.service;
+
+import com.trafficlight.entity.EmergencyEvent;
+import com.trafficlight.entity.EmergencyVehicle;
+import com.trafficlight.repository.EmergencyEventRepository;
+import com.trafficlight.repository.EmergencyVehicleRepository;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Benchmark: insert cost of one preemption's event rows, row by row vs. journal batch
+ *
+ * Row by row = the old logPhaseChange path (one INSERT round trip per row, as
+ * IDENTITY ids forced). Batched = EmergencyEventJournal.persist with pooled
+ * sequence ids and JDBC batching.
+ *
+ * Run with: mvn -Pbenchmark test
+ */
+@Tag("benchmark")
+@SpringBootTest(properties = {
+    "spring.jpa.show-sql=false",
+    "spring.jpa.properties.hibernate.generate_statistics=true",
+    "logging.level.com.trafficlight=WARN",
+    "logging.level.org.hibernate=WARN"
+})
+@ActiveProfiles("test")
+@DisplayName("Emergency Persistence Benchmark")
+class EmergencyPersistenceBenchmarkTest {
+
+    private static final int[] AFFECTED_INTERSECTIONS = {10, 100, 1_000};
+    private static final int WARMUP_ROUNDS = 5;
+
+    @Autowired
+    private EmergencyEventJournal eventJournal;
+
+    @Autowired
+    private EmergencyVehicleRepository vehicleRepository;
+
+    @Autowired
+    private EmergencyEventRepository eventRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    private EmergencyVehicle vehicle() {
+        return EmergencyVehicle.builder()
+            .vehicleId("BENCH-" + UUID.randomUUID().toString().substring(0, 8))
+            .type(EmergencyVehicle.VehicleType.AMBULANCE)
+            .status(EmergencyVehicle.EmergencyStatus.DETECTED)
+            .currentIntersectionId(1L)
+            .direction(EmergencyVehicle.Direction.NORTH)
+            .detectedAt(LocalDateTime.now())
+            .priorityLevel(1)
+            .journalKey(UUID.randomUUID().toString())
+            .build();
+    }
+
+    private List<EmergencyEvent> events(int affected) {
+        List<EmergencyEvent> events = new ArrayList<>(affected);
+        for (int i = 0; i < affected; i++) {
+            events.add(EmergencyEvent.builder()
+                .intersectionId((long) i + 1)
+                .intersectionName("Kavşak-" + (i + 1))
+                .eventType(EmergencyEvent.EventType.GREEN_LIGHT_ACTIVATED)
+                .previousPhase("RED")
+                .newPhase("GREEN")
+                .durationSeconds(14)
+                .createdAt(LocalDateTime.now())
+                .journalKey(UUID.randomUUID().toString())
+                .build());
+        }
+        return events;
+    }
+
+    /**
+     * Eski yol: araç, sonra her olay ayrı INSERT
+     */
+    private void persistRowByRow(TransactionTemplate transactionTemplate, int affected) {
+        transactionTemplate.executeWithoutResult(status -> {
+            Long vehicleId = vehicleRepository.saveAndFlush(vehicle()).getId();
+            for (EmergencyEvent event : events(affected)) {
+                event.setEmergencyVehicleId(vehicleId);
+                eventRepository.saveAndFlush(event);
+            }
+        });
+    }
+
+    /**
+     * Yeni yol: tetiklemenin tüm satırları tek journal toplu yazımında
+     */
+    private void persistBatched(int affected) {
+        EmergencyVehicle vehicle = vehicle();
+        List<EmergencyEventJournal.Entry> entries = new ArrayList<>(affected + 1);
+        entries.add(EmergencyEventJournal.Entry.detected(vehicle));
+        for (EmergencyEvent event : events(affected)) {
+            entries.add(EmergencyEventJournal.Entry.event(vehicle.getJournalKey(), null, event));
+        }
+        eventJournal.persist(entries);
+    }
+
+    private static int rounds(int affected) {
+        return Math.max(5, 2_000 / affected);
+    }
+
+    @Test
+    @DisplayName("Benchmark persist() - Batched insert should need far fewer statements per preemption")
+    void benchmarkPreemptionInsertCost() {
+        // Given
+        TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        for (int i = 0; i < WARMUP_ROUNDS; i++) {
+            persistRowByRow(transactionTemplate, 100);
+            persistBatched(100);
+        }
+
+        for (int affected : AFFECTED_INTERSECTIONS) {
+            int rounds = rounds(affected);
+
+            // When
+            statistics.clear();
+            long start = System.nanoTime();
+            for (int r = 0; r < rounds; r++) {
+                persistRowByRow(transactionTemplate, affected);
+            }
+            double rowByRowMillis = (System.nanoTime() - start) / 1_000_000.0 / rounds;
+            double rowByRowStatements = (double) statistics.getPrepareStatementCount() / rounds;
+
+            statistics.clear();
+            start = System.nanoTime();
+            for (int r = 0; r < rounds; r++) {
+                persistBatched(affected);
+            }
+            double batchedMillis = (System.nanoTime() - start) / 1_000_000.0 / rounds;
+            double batchedStatements = (double) statistics.getPrepareStatementCount() / rounds;
+
+            // Then
+            System.out.printf("affected=%4d  row-by-row: %8.3fms %7.1f stmts  |  batched: %8.3fms %6.1f stmts  (x%.1f)%n",
+                    affected, rowByRowMillis, rowByRowStatements, batchedMillis, batchedStatements,
+                    rowByRowMillis / batchedMillis);
+
+            assertThat(rowByRowStatements).isGreaterThanOrEqualTo(affected + 1);
+            // Her 50 satır: bir sıra çağrısı + bir batch; artı araç ve journal anahtarı sorguları
+            assertThat(batchedStatements).isLessThanOrEqualTo(2 * Math.ceil(affected / 50.0) + 10);
+            if (affected >= 100) {
+                assertThat(batchedMillis).isLessThan(rowByRowMillis);
+            }
+        }
+    }
+}
@@ -0,0 +1,203 @@
+package com.trafficlight.service;
+
+import com.trafficlight.entity.EmergencyVehicle;
+import com.trafficlight.service.EmergencyPreemptionScheduler.Grant;
+import com.trafficlight.service.EmergencyPreemptionScheduler.Result;
+import com.trafficlight.service.EmergencyPreemptionScheduler.Status;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Unit tests for EmergencyPreemptionScheduler
+ * Priority / ETA conflict resolution, merging and incremental release
+ */
+@DisplayName("Emergency Preemption Scheduler Tests")
+class EmergencyPreemptionSchedulerTest {
+
+    private EmergencyPreemptionScheduler scheduler;
+    private long start;
+
+    @BeforeEach
+    void setUp() {
+        scheduler = new EmergencyPreemptionScheduler();
+        start = System.currentTimeMillis();
+    }
+
+    /**
+     * Tek kavşaklık plan: yeşil [greenStart, greenEnd], varış greenStart + 8
+     */
+    private PreemptionPlan plan(long intersectionId, EmergencyVehicle.Direction heading, int greenStart, int greenEnd) {
+        return new PreemptionPlan(intersectionId, heading, 45, List.of(
+                new PreemptionPlan.Window(intersectionId, "Kavşak-" + intersectionId, 0,
+                        greenStart + 8, greenStart, greenEnd)), 0);
+    }
+
+    @Test
+    @DisplayName("Test schedule() - Higher priority on the crossing axis should queue the earlier vehicle")
+    void testCrossAxisConflictQueuesLowerPriority() {
+        // Given: polis doğuya gidiyor
+        scheduler.schedule("police", "POL-1", 2, plan(10, EmergencyVehicle.Direction.EAST, 0, 14), start);
+
+        // When: ambulans kuzeye, pencereler örtüşüyor
+        Result result = scheduler.schedule("ambulance", "AMB-1", 1,
+                plan(10, EmergencyVehicle.Direction.NORTH, 5, 19), start);
+
+        // Then
+        Grant ambulance = result.grants().get(0);
+        assertThat(ambulance.status()).isEqualTo(Status.GRANTED);
+        assertThat(ambulance.startMillis()).isEqualTo(start + 5_000);
+
+        assertThat(result.displaced()).hasSize(1);
+        Grant police = result.displaced().get(0);
+        assertThat(police.vehicleId()).isEqualTo("POL-1");
+        assertThat(police.status()).isEqualTo(Status.QUEUED);
+        assertThat(police.startMillis()).isEqualTo(ambulance.endMillis());
+        assertThat(police.endMillis() - police.startMillis()).isEqualTo(14_000);
+        assertThat(police.yieldTo()).isEqualTo("AMB-1");
+    }
+
+    @Test
+    @DisplayName("Test schedule() - Vehicles on the same axis should share one green")
+    void testSameAxisMerge() {
+        // Given
+        scheduler.schedule("north", "AMB-1", 1, plan(20, EmergencyVehicle.Direction.NORTH, 0, 14), start);
+
+        // When
+        Result result = scheduler.schedule("south", "FIRE-1", 2,
+                plan(20, EmergencyVehicle.Direction.SOUTH, 3, 17), start);
+
+        // Then
+        assertThat(result.grants().get(0).status()).isEqualTo(Status.MERGED);
+        assertThat(result.grants().get(0).delayMillis()).isZero();
+        assertThat(result.displaced()).isEmpty();
+    }
+
+    @Test
+    @DisplayName("Test schedule() - Equal priority should be resolved by earlier arrival")
+    void testEqualPriorityEarlierEtaWins() {
+        // Given: ilk araç 10. saniyede yeşil istiyor
+        scheduler.schedule("late", "AMB-1", 1, plan(30, EmergencyVehicle.Direction.EAST, 10, 24), start);
+
+        // When: ikinci araç daha önce varıyor
+        Result result = scheduler.schedule("early", "AMB-2", 1,
+                plan(30, EmergencyVehicle.Direction.NORTH, 2, 16), start);
+
+        // Then
+        assertThat(result.grants().get(0).status()).isEqualTo(Status.GRANTED);
+        assertThat(result.displaced())
+            .singleElement()
+            .satisfies(grant -> {
+                assertThat(grant.vehicleKey()).isEqualTo("late");
+                assertThat(grant.startMillis()).isEqualTo(start + 16_000);
+            });
+    }
+
+    @Test
+    @DisplayName("Test release() - Clearing the priority vehicle should promote the queued one")
+    void testReleasePromotesQueued() {
+        // Given
+        scheduler.schedule("police", "POL-1", 2, plan(10, EmergencyVehicle.Direction.EAST, 0, 14), start);
+        scheduler.schedule("ambulance", "AMB-1", 1, plan(10, EmergencyVehicle.Direction.NORTH, 5, 19), start);
+
+        // When
+        List<Grant> promoted = scheduler.release("ambulance");
+
+        // Then
+        assertThat(promoted).singleElement().satisfies(grant -> {
+            assertThat(grant.vehicleKey()).isEqualTo("police");
+            assertThat(grant.status()).isEqualTo(Status.GRANTED);
+            assertThat(grant.startMillis()).isEqualTo(start);
+        });
+        assertThat(scheduler.timeline(10)).extracting(Grant::vehicleKey).containsExactly("police");
+
+        scheduler.release("police");
+        assertThat(scheduler.timeline(10)).isEmpty();
+        assertThat(scheduler.activeVehicles()).isZero();
+        assertThat(scheduler.release("unknown")).isEmpty();
+    }
+
+    @Test
+    @DisplayName("Test schedule() - A past start should leave out the windows that already ended")
+    void testPastStartSkipsEndedWindows() {
+        // Given: 20 sn önceki tespit; ilk pencere (0-14 sn) bitti, ikincisi (10-40 sn) sürüyor
+        PreemptionPlan route = new PreemptionPlan(40, EmergencyVehicle.Direction.EAST, 45, List.of(
+                new PreemptionPlan.Window(40, "Kavşak-40", 0, 0, 0, 14),
+                new PreemptionPlan.Window(41, "Kavşak-41", 400, 30, 10, 40)), 0);
+
+        // When
+        Result result = scheduler.schedule("restored", "AMB-1", 1, route, start - 20_000);
+        Result ended = scheduler.schedule("ended", "AMB-2", 1,
+                plan(42, EmergencyVehicle.Direction.EAST, 0, 14), start - 20_000);
+
+        // Then
+        assertThat(result.grants()).singleElement()
+            .satisfies(grant -> assertThat(grant.intersectionId()).isEqualTo(41));
+        assertThat(scheduler.timeline(40)).isEmpty();
+        assertThat(ended.grants()).isEmpty();
+        assertThat(scheduler.activeVehicles()).isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("Test schedule() - Concurrent vehicles should never get overlapping crossing greens")
+    void testConcurrentScheduling() throws Exception {
+        // Given: 8 thread, 5 ortak kavşak + her thread'e özel kavşak
+        EmergencyVehicle.Direction[] directions = EmergencyVehicle.Direction.values();
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        List<Future<List<Grant>>> futures = new ArrayList<>();
+
+        // When
+        for (int t = 0; t < 8; t++) {
+            int worker = t;
+            futures.add(executor.submit(() -> {
+                Random random = new Random(worker);
+                List<Grant> privateGrants = new ArrayList<>();
+                for (int i = 0; i < 200; i++) {
+                    String key = worker + "-" + i;
+                    int greenStart = random.nextInt(60);
+                    scheduler.schedule(key, "V" + key, 1 + random.nextInt(5),
+                            plan(1 + random.nextInt(5), directions[random.nextInt(4)], greenStart, greenStart + 14),
+                            start);
+                    privateGrants.addAll(scheduler.schedule(key + "-own", "V" + key, 1,
+                            plan(1_000 + worker * 1_000L + i, directions[i % 4], 0, 14), start).grants());
+                    if (i % 3 == 0) {
+                        scheduler.release(key);
+                    }
+                }
+                return privateGrants;
+            }));
+        }
+        executor.shutdown();
+        assertThat(executor.awaitTermination(1, TimeUnit.MINUTES)).isTrue();
+
+        // Then: ilgisiz kavşaklarda kimse beklemedi
+        for (Future<List<Grant>> future : futures) {
+            assertThat(future.get()).allMatch(grant -> grant.status() == Status.GRANTED);
+        }
+
+        // Ortak kavşaklarda çapraz eksenler hiç örtüşmüyor
+        for (long intersectionId = 1; intersectionId <= 5; intersectionId++) {
+            List<Grant> timeline = scheduler.timeline(intersectionId);
+            for (Grant a : timeline) {
+                for (Grant b : timeline) {
+                    boolean crossing = (a.heading().ordinal() < 2) != (b.heading().ordinal() < 2);
+                    if (crossing) {
+                        assertThat(a.startMillis() < b.endMillis() && b.startMillis() < a.endMillis())
+                            .as("%s / %s at %d", a.vehicleKey(), b.vehicleKey(), intersectionId)
+                            .isFalse();
+                    }
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,129 @@
+package com.trafficlight.service;
+
+import com.trafficlight.entity.EmergencyVehicle;
+import com.trafficlight.repository.EmergencyEventRepository;
+import com.trafficlight.repository.EmergencyVehicleRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.context.ApplicationEventPublisher;
+
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+/**
+ * Unit tests for EmergencyService
+ * Restoring active emergencies after a restart
+ */
+@ExtendWith(MockitoExtension.class)
+@DisplayName("Emergency Service Tests")
+class EmergencyServiceTest {
+
+    @Mock
+    private EmergencyVehicleRepository emergencyVehicleRepository;
+
+    @Mock
+    private EmergencyEventRepository emergencyEventRepository;
+
+    @Mock
+    private PreemptionPlanner preemptionPlanner;
+
+    @Mock
+    private EmergencyEventJournal eventJournal;
+
+    @Mock
+    private EmergencyExpiryWheel expiryWheel;
+
+    @Mock
+    private ActiveEmergencyRegistry activeEmergencies;
+
+    @Mock
+    private EmergencyImpactAnalyzer impactAnalyzer;
+
+    @Mock
+    private DailyActivityCounters activityCounters;
+
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+
+    private EmergencyPreemptionScheduler preemptionScheduler;
+    private EmergencyService emergencyService;
+
+    @BeforeEach
+    void setUp() throws InterruptedException {
+        preemptionScheduler = new EmergencyPreemptionScheduler();
+        emergencyService = new EmergencyService(emergencyVehicleRepository, emergencyEventRepository,
+                preemptionPlanner, preemptionScheduler, eventJournal, expiryWheel, activeEmergencies,
+                impactAnalyzer, activityCounters, eventPublisher, new SimpleMeterRegistry(), 10);
+        when(eventJournal.awaitDrained(any())).thenReturn(true);
+    }
+
+    @Test
+    @DisplayName("Test restoreExpiries() - Should skip windows that ended before the restart")
+    void testRestoreSkipsEndedWindows() throws InterruptedException {
+        // Given: 30 sn önce tespit edilen araç; başlangıç penceresi (0-14 sn) bitti, rota üzeri (20-60 sn) sürüyor
+        LocalDateTime detectedAt = LocalDateTime.now().minusSeconds(30);
+        EmergencyVehicle vehicle = vehicle("restart-1", "AMB-1", detectedAt);
+        when(emergencyVehicleRepository.findActiveEmergencies()).thenReturn(List.of(vehicle));
+        when(preemptionPlanner.plan(1L, EmergencyVehicle.Direction.NORTH, null)).thenReturn(
+                new PreemptionPlan(1L, EmergencyVehicle.Direction.NORTH, 45, List.of(
+                        new PreemptionPlan.Window(1L, "Kavşak-1", 0, 0, 0, 14),
+                        new PreemptionPlan.Window(2L, "Kavşak-2", 500, 40, 20, 60)), 0));
+
+        // When
+        emergencyService.restoreExpiries();
+
+        // Then: sadece süren pencere çizelgede, süre sonu son yeşilin bitişi
+        long detectedMillis = detectedAt.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+        assertThat(preemptionScheduler.timeline(1L)).isEmpty();
+        assertThat(preemptionScheduler.timeline(2L)).singleElement()
+            .satisfies(grant -> assertThat(grant.vehicleId()).isEqualTo("AMB-1"));
+        ArgumentCaptor<Long> expiresAt = ArgumentCaptor.forClass(Long.class);
+        verify(expiryWheel).schedule(eq(ActiveEmergencyRegistry.keyOf(vehicle)), expiresAt.capture(), any());
+        assertThat(expiresAt.getValue()).isEqualTo(detectedMillis + 60_000);
+    }
+
+    @Test
+    @DisplayName("Test restoreExpiries() - Should expire an emergency whose whole route ended while down")
+    void testRestoreOverdueEmergency() throws InterruptedException {
+        // Given: bütün pencereleri kapanışta bitmiş araç
+        EmergencyVehicle vehicle = vehicle("restart-2", "FIRE-1", LocalDateTime.now().minusMinutes(5));
+        when(emergencyVehicleRepository.findActiveEmergencies()).thenReturn(List.of(vehicle));
+        when(preemptionPlanner.plan(1L, EmergencyVehicle.Direction.NORTH, null)).thenReturn(
+                new PreemptionPlan(1L, EmergencyVehicle.Direction.NORTH, 45, List.of(
+                        new PreemptionPlan.Window(1L, "Kavşak-1", 0, 0, 0, 14)), 0));
+
+        // When
+        emergencyService.restoreExpiries();
+
+        // Then: çizelgeye girmez, ilk tick'te sonlanır
+        assertThat(preemptionScheduler.activeVehicles()).isZero();
+        verify(expiryWheel).schedule(eq(ActiveEmergencyRegistry.keyOf(vehicle)), anyLong(), any());
+    }
+
+    private static EmergencyVehicle vehicle(String journalKey, String vehicleId, LocalDateTime detectedAt) {
+        return EmergencyVehicle.builder()
+            .id(1L)
+            .journalKey(journalKey)
+            .vehicleId(vehicleId)
+            .type(EmergencyVehicle.VehicleType.AMBULANCE)
+            .status(EmergencyVehicle.EmergencyStatus.DETECTED)
+            .currentIntersectionId(1L)
+            .direction(EmergencyVehicle.Direction.NORTH)
+            .detectedAt(detectedAt)
+            .priorityLevel(1)
+            .build();
+    }
+}
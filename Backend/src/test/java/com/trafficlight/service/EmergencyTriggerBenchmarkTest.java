@@ -0,0 +1,195 @@
+package com.trafficlight.service;
+
+import com.trafficlight.dto.EmergencyRequest;
+import com.trafficlight.entity.EmergencyEvent;
+import com.trafficlight.entity.EmergencyVehicle;
+import com.trafficlight.entity.Intersection;
+import com.trafficlight.repository.EmergencyEventRepository;
+import com.trafficlight.repository.EmergencyVehicleRepository;
+import com.trafficlight.repository.IntersectionRepository;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Benchmark: emergency trigger latency under concurrent analytics load
+ *
+ * Run with: mvn -Pbenchmark test
+ */
+@Tag("benchmark")
+@SpringBootTest(properties = {
+    "spring.jpa.show-sql=false",
+    "logging.level.com.trafficlight=WARN",
+    "logging.level.org.hibernate=WARN"
+})
+@ActiveProfiles("test")
+@DisplayName("Emergency Trigger Benchmark")
+class EmergencyTriggerBenchmarkTest {
+
+    private static final int GRID = 20;
+    private static final double SPACING_METERS = 250;
+    private static final int TRIGGER_THREADS = 8;
+    private static final int TRIGGERS_PER_THREAD = 500;
+    private static final int WARMUP_PER_THREAD = 100;
+    private static final int ANALYTICS_THREADS = 4;
+
+    @Autowired
+    private EmergencyService emergencyService;
+
+    @Autowired
+    private EmergencyEventJournal eventJournal;
+
+    @Autowired
+    private IntersectionSpatialIndex spatialIndex;
+
+    @Autowired
+    private IntersectionRepository intersectionRepository;
+
+    @Autowired
+    private EmergencyVehicleRepository vehicleRepository;
+
+    @Autowired
+    private EmergencyEventRepository eventRepository;
+
+    @Autowired
+    private StatisticsService statisticsService;
+
+    @Autowired
+    private DashboardService dashboardService;
+
+    @Value("${traffic.emergency.trigger-p99-target-ms:10}")
+    private long p99TargetMs;
+
+    private List<Long> seedCityGrid() {
+        double latStep = SPACING_METERS / 110_540.0;
+        double lonStep = SPACING_METERS / (111_320.0 * Math.cos(Math.toRadians(39.9)));
+        List<Intersection> intersections = new ArrayList<>();
+        for (int r = 0; r < GRID; r++) {
+            for (int c = 0; c < GRID; c++) {
+                intersections.add(Intersection.builder()
+                    .name("Kavşak-" + r + "-" + c)
+                    .code("BENCH-" + r + "-" + c)
+                    .latitude(BigDecimal.valueOf(39.9 + r * latStep))
+                    .longitude(BigDecimal.valueOf(32.8 + c * lonStep))
+                    .city("Ankara")
+                    .intersectionType(Intersection.IntersectionType.TRAFFIC_LIGHT)
+                    .status(Intersection.IntersectionStatus.ACTIVE)
+                    .createdBy("benchmark")
+                    .build());
+            }
+        }
+        List<Long> ids = intersectionRepository.saveAll(intersections).stream().map(Intersection::getId).toList();
+        spatialIndex.rebuild();
+        return ids;
+    }
+
+    @Test
+    @DisplayName("Benchmark triggerEmergency() - p99 should stay under target while analytics queries run")
+    void benchmarkTriggerUnderAnalyticsLoad() throws Exception {
+        // Given: 400 kavşaklık şehir ve sürekli çalışan analitik sorgular
+        List<Long> intersectionIds = seedCityGrid();
+        AtomicBoolean loadRunning = new AtomicBoolean(true);
+        AtomicLong analyticsQueries = new AtomicLong();
+        ExecutorService analytics = Executors.newFixedThreadPool(ANALYTICS_THREADS);
+        for (int t = 0; t < ANALYTICS_THREADS; t++) {
+            int worker = t;
+            analytics.submit(() -> {
+                while (loadRunning.get()) {
+                    switch (worker % 3) {
+                        case 0 -> statisticsService.compareIntersections();
+                        case 1 -> dashboardService.getDashboardSummary();
+                        default -> statisticsService.getDailySummary();
+                    }
+                    analyticsQueries.incrementAndGet();
+                }
+                return null;
+            });
+        }
+
+        // When
+        EmergencyVehicle.Direction[] directions = EmergencyVehicle.Direction.values();
+        long[] nanos = new long[TRIGGER_THREADS * TRIGGERS_PER_THREAD];
+        CountDownLatch done = new CountDownLatch(TRIGGER_THREADS);
+        ExecutorService triggers = Executors.newFixedThreadPool(TRIGGER_THREADS);
+        for (int t = 0; t < TRIGGER_THREADS; t++) {
+            int worker = t;
+            triggers.submit(() -> {
+                try {
+                    for (int i = 0; i < WARMUP_PER_THREAD + TRIGGERS_PER_THREAD; i++) {
+                        EmergencyRequest request = EmergencyRequest.builder()
+                            .vehicleId("BENCH-" + worker + "-" + i)
+                            .type(i % 2 == 0 ? EmergencyVehicle.VehicleType.AMBULANCE
+                                             : EmergencyVehicle.VehicleType.FIRE_TRUCK)
+                            .intersectionId(intersectionIds.get((worker * 131 + i * 17) % intersectionIds.size()))
+                            .direction(directions[i % directions.length])
+                            .speedKmh(50.0)
+                            .build();
+
+                        long start = System.nanoTime();
+                        emergencyService.triggerEmergency(request);
+                        long elapsed = System.nanoTime() - start;
+                        if (i >= WARMUP_PER_THREAD) {
+                            nanos[worker * TRIGGERS_PER_THREAD + i - WARMUP_PER_THREAD] = elapsed;
+                        }
+                    }
+                } finally {
+                    done.countDown();
+                }
+                return null;
+            });
+        }
+        assertThat(done.await(5, TimeUnit.MINUTES)).isTrue();
+        triggers.shutdown();
+
+        long flushStart = System.nanoTime();
+        boolean drained = eventJournal.awaitDrained(Duration.ofMinutes(2));
+        long flushMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - flushStart);
+        loadRunning.set(false);
+        analytics.shutdown();
+        analytics.awaitTermination(1, TimeUnit.MINUTES);
+
+        // Then
+        Arrays.sort(nanos);
+        double p50 = nanos[nanos.length / 2] / 1_000_000.0;
+        double p99 = nanos[(int) (nanos.length * 0.99)] / 1_000_000.0;
+        double max = nanos[nanos.length - 1] / 1_000_000.0;
+        System.out.printf("triggerEmergency: n=%d p50=%.3fms p99=%.3fms max=%.3fms (target p99 < %dms)%n",
+                nanos.length, p50, p99, max, p99TargetMs);
+        System.out.printf("analytics queries during run: %d, journal drained %dms after last trigger%n",
+                analyticsQueries.get(), flushMillis);
+
+        assertThat(p99).isLessThan(p99TargetMs);
+        assertThat(drained).isTrue();
+
+        // Her tetikleme yazıldı; her aracın olayları tespit ile başlıyor
+        int totalTriggers = TRIGGER_THREADS * (WARMUP_PER_THREAD + TRIGGERS_PER_THREAD);
+        assertThat(vehicleRepository.count()).isEqualTo(totalTriggers);
+        Map<Long, List<EmergencyEvent>> eventsByVehicle = eventRepository.findAll().stream()
+                .collect(Collectors.groupingBy(EmergencyEvent::getEmergencyVehicleId));
+        assertThat(eventsByVehicle).hasSize(totalTriggers);
+        assertThat(eventsByVehicle.values()).allSatisfy(events -> assertThat(
+                events.stream().min(Comparator.comparing(EmergencyEvent::getId)).orElseThrow().getEventType())
+                .isEqualTo(EmergencyEvent.EventType.EMERGENCY_DETECTED));
+    }
+}
@@ -0,0 +1,152 @@
+package com.trafficlight.service;
+
+import com.trafficlight.dto.BanditPolicyResponse;
+import com.trafficlight.entity.IntersectionMetric;
+import com.trafficlight.event.MetricRecordedEvent;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Unit tests for GreenTimeBandit
+ * Sampling uses a seeded generator so arm choices are repeatable
+ */
+@DisplayName("Green Time Bandit Tests")
+class GreenTimeBanditTest {
+
+    private static final long INTERSECTION_ID = 7L;
+
+    private GreenTimeBandit bandit;
+
+    @AfterEach
+    void tearDown() {
+        if (bandit != null) {
+            bandit.shutdown();
+        }
+    }
+
+    private GreenTimeBandit seeded(GreenTimeBandit.Mode mode, long seed) {
+        Random random = new Random(seed);
+        bandit = new GreenTimeBandit(mode, 2.0, 90, () -> random);
+        return bandit;
+    }
+
+    @Test
+    @DisplayName("Test onMetricRecorded() - Should add the reward to the applied arm's posterior counts")
+    void testRecordUpdatesPosterior() throws InterruptedException {
+        // Given: 30 araç → "26-40" dilimi, sabit ayar +5
+        seeded(GreenTimeBandit.Mode.SHADOW, 42);
+        assertThat(bandit.selectAdjustment(INTERSECTION_ID, 30, 5)).isEqualTo(5);
+        assertThat(bandit.describe(INTERSECTION_ID).getPendingDecision()).isTrue();
+
+        // When: bekleme 20 sn, kuyruk 3 araç → ödül -(20 + 2 x 3)
+        bandit.onMetricRecorded(new MetricRecordedEvent(INTERSECTION_ID, metric(20.0, 3.0)));
+        assertThat(bandit.awaitUpdates(Duration.ofSeconds(5))).isTrue();
+
+        // Then
+        BanditPolicyResponse policy = bandit.describe(INTERSECTION_ID);
+        assertThat(policy.getPendingDecision()).isFalse();
+        assertThat(policy.getTotalUpdates()).isEqualTo(1);
+        BanditPolicyResponse.ContextPolicy context = policy.getContexts().get(GreenTimeBandit.contextOf(30));
+        assertThat(context.getDensityBucket()).isEqualTo("26-40");
+        assertThat(context.getObservations()).isEqualTo(1);
+        assertThat(context.getArms()).allSatisfy(arm -> {
+            if (arm.getAdjustment() == 5) {
+                assertThat(arm.getPulls()).isEqualTo(1);
+                assertThat(arm.getMeanReward()).isEqualTo(-26.0);
+            } else {
+                assertThat(arm.getPulls()).isZero();
+                assertThat(arm.getMeanReward()).isNull();
+            }
+        });
+        assertThat(policy.getContexts().get(0).getObservations()).isZero();
+
+        // Ödüllendirilmiş karar ikinci kez sayılmaz
+        bandit.onMetricRecorded(new MetricRecordedEvent(INTERSECTION_ID, metric(20.0, 3.0)));
+        assertThat(bandit.awaitUpdates(Duration.ofSeconds(5))).isTrue();
+        assertThat(bandit.describe(INTERSECTION_ID).getTotalUpdates()).isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("Test selectAdjustment(ACTIVE) - Arm choice should converge to the best-rewarded arm")
+    void testConvergesToBestArm() throws InterruptedException {
+        // Given: en düşük bekleme -5 sn kolunda, her kol 3 sn/adım kötüleşir
+        seeded(GreenTimeBandit.Mode.ACTIVE, 7);
+        Random noise = new Random(11);
+        int bestChosenLate = 0;
+
+        // When
+        for (int round = 0; round < 400; round++) {
+            int adjustment = bandit.selectAdjustment(INTERSECTION_ID, 30, 5);
+            if (round >= 300 && adjustment == -5) {
+                bestChosenLate++;
+            }
+            double wait = 25.0 + 3.0 * Math.abs(adjustment + 5) / 5.0 + noise.nextGaussian() * 2.0;
+            bandit.onMetricRecorded(new MetricRecordedEvent(INTERSECTION_ID, metric(wait, 0.0)));
+            assertThat(bandit.awaitUpdates(Duration.ofSeconds(5))).isTrue();
+        }
+
+        // Then
+        BanditPolicyResponse.ContextPolicy context =
+                bandit.describe(INTERSECTION_ID).getContexts().get(GreenTimeBandit.contextOf(30));
+        assertThat(bestChosenLate).isGreaterThan(80);
+        assertThat(context.getRecommendedAdjustment()).isEqualTo(-5);
+        assertThat(context.getConfidence()).isGreaterThan(0.8);
+        assertThat(context.getObservations()).isEqualTo(400);
+    }
+
+    @Test
+    @DisplayName("Test selectAdjustment(SHADOW) - Should always apply the legacy adjustment")
+    void testShadowKeepsLegacyAdjustment() throws InterruptedException {
+        // Given: ACTIVE modda -10 kolu en iyi olarak öğrenilmiş
+        seeded(GreenTimeBandit.Mode.ACTIVE, 3);
+        for (int round = 0; round < 200; round++) {
+            int adjustment = bandit.selectAdjustment(INTERSECTION_ID, 30, 5);
+            bandit.onMetricRecorded(new MetricRecordedEvent(INTERSECTION_ID, metric(30.0 + adjustment, 0.0)));
+            assertThat(bandit.awaitUpdates(Duration.ofSeconds(5))).isTrue();
+        }
+        assertThat(bandit.describe(INTERSECTION_ID).getContexts().get(GreenTimeBandit.contextOf(30))
+                .getRecommendedAdjustment()).isEqualTo(-10);
+
+        // When
+        bandit.setMode(GreenTimeBandit.Mode.SHADOW);
+
+        // Then: her yoğunlukta sabit eşik ayarı aynen uygulanır
+        for (int vehicles = 0; vehicles < 80; vehicles++) {
+            int legacy = vehicles > 40 ? 10 : vehicles > 25 ? 5 : 0;
+            assertThat(bandit.selectAdjustment(INTERSECTION_ID, vehicles, legacy)).isEqualTo(legacy);
+        }
+    }
+
+    @Test
+    @DisplayName("Test reset() - Should drop the learned policy and pending decision")
+    void testReset() throws InterruptedException {
+        // Given
+        seeded(GreenTimeBandit.Mode.SHADOW, 1);
+        bandit.selectAdjustment(INTERSECTION_ID, 30, 5);
+        bandit.onMetricRecorded(new MetricRecordedEvent(INTERSECTION_ID, metric(20.0, 0.0)));
+        assertThat(bandit.awaitUpdates(Duration.ofSeconds(5))).isTrue();
+        bandit.selectAdjustment(INTERSECTION_ID, 30, 5);
+
+        // When / Then
+        assertThat(bandit.reset(INTERSECTION_ID)).isTrue();
+        assertThat(bandit.reset(INTERSECTION_ID)).isFalse();
+        BanditPolicyResponse policy = bandit.describe(INTERSECTION_ID);
+        assertThat(policy.getPendingDecision()).isFalse();
+        assertThat(policy.getContexts()).allSatisfy(context -> assertThat(context.getObservations()).isZero());
+        assertThat(bandit.getTrackedIntersections()).doesNotContain(INTERSECTION_ID);
+    }
+
+    private static IntersectionMetric metric(double averageWait, double averageQueue) {
+        return IntersectionMetric.builder()
+            .averageWaitTime(BigDecimal.valueOf(averageWait))
+            .averageQueueLength(BigDecimal.valueOf(averageQueue))
+            .build();
+    }
+}
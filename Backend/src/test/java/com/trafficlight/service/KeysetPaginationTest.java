@@ -0,0 +1,205 @@
+package com.trafficlight.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.trafficlight.dto.CursorPage;
+import com.trafficlight.dto.IntersectionResponse;
+import com.trafficlight.dto.MetricResponse;
+import com.trafficlight.entity.Intersection;
+import com.trafficlight.entity.Intersection.IntersectionStatus;
+import com.trafficlight.entity.IntersectionMetric;
+import com.trafficlight.exception.BadRequestException;
+import com.trafficlight.repository.IntersectionMetricRepository;
+import com.trafficlight.repository.IntersectionRepository;
+import com.trafficlight.util.CursorCodec;
+import com.trafficlight.util.PlannerRowEstimator;
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.function.Function;
+
+import static com.trafficlight.TestFixtures.intersectionBuilder;
+import static com.trafficlight.TestFixtures.metricBuilder;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Unit tests for keyset pagination in MetricService and IntersectionService
+ * Walking every page must return each row exactly once, in the same order as a full sort
+ */
+@DataJpaTest
+@ActiveProfiles("test")
+@DisplayName("Keyset Pagination Tests")
+class KeysetPaginationTest {
+
+    private static final LocalDate DAY = LocalDate.of(2026, 10, 1);
+
+    @Autowired
+    private IntersectionMetricRepository metricRepository;
+
+    @Autowired
+    private IntersectionRepository intersectionRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    // Şehir ve kodlar her çalıştırmada benzersiz: sayfalar yalnızca bu testin satırlarını görür
+    private final String suffix = "-" + UUID.randomUUID().toString().substring(0, 8);
+    private final String istanbulCity = "Istanbul" + suffix;
+    private final String ankaraCity = "Ankara" + suffix;
+    private final List<Intersection> seeded = new ArrayList<>();
+
+    private MetricService metricService;
+    private IntersectionService intersectionService;
+    private Intersection istanbul;
+
+    @BeforeEach
+    void setUp() {
+        PlannerRowEstimator rowEstimator = new PlannerRowEstimator(jdbcTemplate, new ObjectMapper());
+        metricService = new MetricService(metricRepository, intersectionRepository, null, null, null, null, rowEstimator);
+        intersectionService = new IntersectionService(intersectionRepository, rowEstimator);
+
+        istanbul = intersectionRepository.save(intersection("KEYSET-0" + suffix, istanbulCity, IntersectionStatus.ACTIVE));
+        seeded.add(istanbul);
+        for (int i = 1; i <= 6; i++) {
+            seeded.add(intersectionRepository.save(intersection("KEYSET-" + i + suffix, i % 2 == 0 ? istanbulCity : ankaraCity,
+                    i % 3 == 0 ? IntersectionStatus.MAINTENANCE : IntersectionStatus.ACTIVE)));
+        }
+    }
+
+    @AfterEach
+    void tearDown() {
+        // Test işlemi geri alınır; yine de yalnızca bu testin satırları yabancı anahtar sırasıyla silinir
+        Map<String, Object> ids = Map.of("ids", seeded.stream().map(Intersection::getId).toList());
+        NamedParameterJdbcTemplate namedJdbcTemplate = new NamedParameterJdbcTemplate(jdbcTemplate);
+        namedJdbcTemplate.update("DELETE FROM intersection_metrics WHERE intersection_id IN (:ids)", ids);
+        namedJdbcTemplate.update("DELETE FROM intersections WHERE id IN (:ids)", ids);
+    }
+
+    @Test
+    @DisplayName("Test getMetricsPage() - Should walk all metrics newest first, null hours after hour 0")
+    void testMetricsPageWalk() {
+        // Given: 5 days x 3 hours, plus two hourless (daily) metrics on one day
+        for (int day = 0; day < 5; day++) {
+            for (int hour = 0; hour < 3; hour++) {
+                metricRepository.save(metric(istanbul, DAY.plusDays(day), hour));
+            }
+        }
+        metricRepository.save(metric(istanbul, DAY.plusDays(2), null));
+        metricRepository.save(metric(istanbul, DAY.plusDays(2), null));
+        entityManager.flush();
+        entityManager.clear();
+
+        // When
+        List<MetricResponse> all = walk(cursor -> metricService.getMetricsPage(istanbul.getId(), null, null,
+                cursor, 4, false));
+        List<MetricResponse> ranged = walk(cursor -> metricService.getMetricsPage(istanbul.getId(),
+                DAY.plusDays(1), DAY.plusDays(2), cursor, 3, false));
+
+        // Then
+        Comparator<MetricResponse> newestFirst = Comparator.comparing(MetricResponse::getMeasurementDate)
+            .thenComparing(m -> m.getMeasurementHour() != null ? m.getMeasurementHour() : -1)
+            .thenComparing(MetricResponse::getId)
+            .reversed();
+        assertThat(all).hasSize(17).isSortedAccordingTo(newestFirst);
+        assertThat(all).extracting(MetricResponse::getId).doesNotHaveDuplicates();
+        assertThat(all.get(8).getMeasurementHour()).isEqualTo(0);
+        assertThat(all.get(9).getMeasurementHour()).isNull();
+        assertThat(ranged).hasSize(8).isSortedAccordingTo(newestFirst)
+            .allSatisfy(m -> assertThat(m.getMeasurementDate()).isBetween(DAY.plusDays(1), DAY.plusDays(2)));
+    }
+
+    @Test
+    @DisplayName("Test getIntersectionsPage() - Should walk filtered intersections by id and by updatedAt")
+    void testIntersectionsPageWalk() {
+        // Given
+        entityManager.flush();
+        entityManager.clear();
+        List<Intersection> stored = intersectionRepository.findAllById(
+                seeded.stream().map(Intersection::getId).toList());
+
+        // When
+        List<IntersectionResponse> byId = walk(cursor -> intersectionService.getIntersectionsPage(
+                ankaraCity, null, "id", cursor, 2, false));
+        List<IntersectionResponse> byUpdatedAt = walk(cursor -> intersectionService.getIntersectionsPage(
+                istanbulCity, IntersectionStatus.ACTIVE, "updatedAt", cursor, 1, false));
+
+        // Then
+        assertThat(byId).extracting(IntersectionResponse::getId)
+            .containsExactlyElementsOf(stored.stream()
+                .filter(i -> ankaraCity.equals(i.getCity()))
+                .map(Intersection::getId)
+                .sorted()
+                .toList());
+        assertThat(byUpdatedAt).extracting(IntersectionResponse::getId)
+            .containsExactlyElementsOf(stored.stream()
+                .filter(i -> istanbulCity.equals(i.getCity()) && i.getStatus() == IntersectionStatus.ACTIVE)
+                .sorted(Comparator.comparing(Intersection::getUpdatedAt).thenComparing(Intersection::getId).reversed())
+                .map(Intersection::getId)
+                .toList());
+    }
+
+    @Test
+    @DisplayName("Test getIntersectionsPage()/getMetricsPage() - Should reject bad cursors, sizes and sorts")
+    void testValidation() {
+        String idCursor = CursorCodec.encode(istanbul.getId());
+
+        assertThatThrownBy(() -> intersectionService.getIntersectionsPage(null, null, "updatedAt", idCursor, 10, false))
+            .isInstanceOf(BadRequestException.class);
+        assertThatThrownBy(() -> intersectionService.getIntersectionsPage(null, null, "name", null, 10, false))
+            .isInstanceOf(BadRequestException.class);
+        assertThatThrownBy(() -> intersectionService.getIntersectionsPage(null, null, "id", "not-a-cursor", 10, false))
+            .isInstanceOf(BadRequestException.class);
+        assertThatThrownBy(() -> metricService.getMetricsPage(istanbul.getId(), null, null,
+                CursorCodec.encode("2026-13-01", 1, 1), 10, false))
+            .isInstanceOf(BadRequestException.class);
+        assertThatThrownBy(() -> metricService.getMetricsPage(istanbul.getId(), null, null, null, 501, false))
+            .isInstanceOf(BadRequestException.class);
+    }
+
+    @Test
+    @DisplayName("Test getIntersectionsPage() - Should leave estimatedTotal empty outside PostgreSQL")
+    void testEstimatedTotalOnH2() {
+        CursorPage<IntersectionResponse> page = intersectionService.getIntersectionsPage(
+                istanbulCity, null, null, null, 2, true);
+
+        assertThat(page.getItems()).hasSize(2);
+        assertThat(page.getHasMore()).isTrue();
+        assertThat(page.getEstimatedTotal()).isNull();
+    }
+
+    private static <T> List<T> walk(Function<String, CursorPage<T>> fetch) {
+        List<T> rows = new ArrayList<>();
+        String cursor = null;
+        do {
+            CursorPage<T> page = fetch.apply(cursor);
+            rows.addAll(page.getItems());
+            cursor = page.getNextCursor();
+        } while (cursor != null);
+        return rows;
+    }
+
+    private static Intersection intersection(String code, String city, IntersectionStatus status) {
+        return intersectionBuilder(code).city(city).status(status).build();
+    }
+
+    private static IntersectionMetric metric(Intersection intersection, LocalDate date, Integer hour) {
+        return metricBuilder(intersection, date, hour).totalVehicleCount(100).build();
+    }
+}
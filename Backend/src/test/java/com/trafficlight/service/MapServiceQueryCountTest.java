@@ -0,0 +1,103 @@
+package com.trafficlight.service;
+
+import com.trafficlight.entity.Intersection;
+import com.trafficlight.entity.Intersection.IntersectionStatus;
+import com.trafficlight.repository.IntersectionRepository;
+import jakarta.persistence.EntityManager;
+import org.hibernate.Session;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Map;
+
+import static com.trafficlight.TestFixtures.intersectionBuilder;
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Query-count regression tests for MapService
+ * Markers come from one projection query; clustering must not query per intersection
+ */
+@DataJpaTest(properties = "spring.jpa.properties.hibernate.generate_statistics=true")
+@ActiveProfiles("test")
+@DisplayName("Map Service Query Count Tests")
+class MapServiceQueryCountTest {
+
+    @Autowired
+    private IntersectionRepository intersectionRepository;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    private MapService mapService;
+    private Statistics statistics;
+
+    @BeforeEach
+    void setUp() {
+        intersectionRepository.deleteAll();
+        mapService = new MapService(intersectionRepository, null);
+
+        // Üç kavşak ~100 m içinde, iki kavşak ~200 m içinde, biri uzakta
+        intersectionRepository.saveAll(List.of(
+            intersection("MAP-1", "41.000000", "29.000000", IntersectionStatus.ACTIVE),
+            intersection("MAP-2", "41.001000", "29.000000", IntersectionStatus.ACTIVE),
+            intersection("MAP-3", "41.000000", "29.001000", IntersectionStatus.MAINTENANCE),
+            intersection("MAP-4", "41.100000", "29.100000", IntersectionStatus.ACTIVE),
+            intersection("MAP-5", "41.102000", "29.100000", IntersectionStatus.INACTIVE),
+            intersection("MAP-6", "40.500000", "28.500000", IntersectionStatus.ACTIVE)));
+        entityManager.flush();
+        entityManager.clear();
+
+        statistics = entityManager.unwrap(Session.class).getSessionFactory().getStatistics();
+        statistics.clear();
+    }
+
+    @Test
+    @DisplayName("Test getClusteringData() - Should cluster from a single query")
+    @SuppressWarnings("unchecked")
+    void testClusteringSingleQuery() {
+        // When: zoom 12 clusters within 1 km
+        Map<String, Object> data = mapService.getClusteringData(12);
+
+        // Then
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(1);
+        assertThat(statistics.getEntityLoadCount()).isZero();
+        List<Map<String, Object>> clusters = (List<Map<String, Object>>) data.get("clusters");
+        assertThat(clusters).extracting(cluster -> cluster.get("count")).containsExactly(3, 2, 1);
+        assertThat(clusters).extracting(cluster -> cluster.get("type")).containsExactly("cluster", "cluster", "single");
+        assertThat(((Map<String, Object>) clusters.get(2).get("intersection")).get("code")).isEqualTo("MAP-6");
+        assertThat(data.get("totalIntersections")).isEqualTo(6);
+    }
+
+    @Test
+    @DisplayName("Test getAllIntersectionsForMap()/getIntersectionsInBounds() - Should read markers without entities")
+    void testMarkersWithoutEntities() {
+        // When
+        List<Map<String, Object>> active = mapService.getAllIntersectionsForMap("active");
+        List<Map<String, Object>> inBounds = mapService.getIntersectionsInBounds(
+                new BigDecimal("40.9"), new BigDecimal("41.05"), new BigDecimal("28.9"), new BigDecimal("29.05"));
+
+        // Then
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(2);
+        assertThat(statistics.getEntityLoadCount()).isZero();
+        assertThat(active).extracting(marker -> marker.get("code"))
+            .containsExactly("MAP-1", "MAP-2", "MAP-4", "MAP-6");
+        assertThat(active.get(0)).containsEntry("color", "green").containsEntry("icon", "traffic-light");
+        assertThat(inBounds).extracting(marker -> marker.get("code")).containsExactly("MAP-1", "MAP-2", "MAP-3");
+        assertThat(inBounds.get(2)).containsEntry("color", "yellow");
+    }
+
+    private static Intersection intersection(String code, String latitude, String longitude, IntersectionStatus status) {
+        return intersectionBuilder(code)
+            .latitude(new BigDecimal(latitude))
+            .longitude(new BigDecimal(longitude))
+            .status(status)
+            .build();
+    }
+}
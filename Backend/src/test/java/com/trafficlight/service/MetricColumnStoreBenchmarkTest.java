@@ -0,0 +1,150 @@
+package com.trafficlight.service;
+
+import com.trafficlight.dto.IntersectionKpi;
+import com.trafficlight.entity.Intersection;
+import com.trafficlight.entity.Intersection.IntersectionStatus;
+import com.trafficlight.entity.Intersection.IntersectionType;
+import com.trafficlight.repository.IntersectionMetricRepository;
+import com.trafficlight.repository.IntersectionRepository;
+import com.trafficlight.service.MetricColumnStore.Aggregate;
+import com.trafficlight.service.MetricColumnStore.Measure;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.math.BigDecimal;
+import java.sql.Date;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.function.Supplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+
+/**
+ * Benchmark: per-intersection aggregates, grouped SQL vs. the columnar store
+ *
+ * SQL = IntersectionMetricRepository.getIntersectionKpis (one GROUP BY over
+ * intersection_metrics). Columnar = MetricColumnStore.byIntersection over the
+ * resident partitions. Both return the average wait time of every intersection.
+ *
+ * Run with: mvn -Pbenchmark test
+ */
+@Tag("benchmark")
+@SpringBootTest(properties = {
+    "spring.jpa.show-sql=false",
+    "logging.level.com.trafficlight=WARN",
+    "logging.level.org.hibernate=WARN"
+})
+@ActiveProfiles("test")
+@DisplayName("Metric Column Store Benchmark")
+class MetricColumnStoreBenchmarkTest {
+
+    private static final int INTERSECTIONS = 200;
+    private static final int DAYS = 60;
+    private static final int[] RANGE_DAYS = {1, 7, 30, 60};
+    private static final int WARMUP_ROUNDS = 5;
+    private static final int ROUNDS = 20;
+
+    @Autowired
+    private MetricColumnStore columnStore;
+
+    @Autowired
+    private IntersectionMetricRepository metricRepository;
+
+    @Autowired
+    private IntersectionRepository intersectionRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    /**
+     * 200 kavşak × 60 gün × 24 saat = 288.000 satır, toplu JDBC ile
+     */
+    private void seed() {
+        Random random = new Random(7);
+        LocalDate today = LocalDate.now();
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        for (int i = 0; i < INTERSECTIONS; i++) {
+            Intersection intersection = intersectionRepository.save(Intersection.builder()
+                .name("Bench-" + i)
+                .code("BENCH-COL-" + i)
+                .latitude(new BigDecimal("41.0369"))
+                .longitude(new BigDecimal("28.9857"))
+                .city(i % 4 == 0 ? "Ankara" : "Istanbul")
+                .intersectionType(IntersectionType.TRAFFIC_LIGHT)
+                .status(IntersectionStatus.ACTIVE)
+                .lanesCount(4)
+                .createdBy("benchmark")
+                .build());
+
+            List<Object[]> batch = new ArrayList<>(DAYS * 24);
+            for (int day = 0; day < DAYS; day++) {
+                for (int hour = 0; hour < 24; hour++) {
+                    batch.add(new Object[]{intersection.getId(), Date.valueOf(today.minusDays(day)), hour,
+                            random.nextInt(800), BigDecimal.valueOf(random.nextInt(9_000), 2),
+                            500 + random.nextInt(700), now, now});
+                }
+            }
+            jdbcTemplate.batchUpdate("INSERT INTO intersection_metrics (intersection_id, measurement_date, " +
+                    "measurement_hour, total_vehicle_count, average_wait_time, throughput, created_at, updated_at) " +
+                    "VALUES (?, ?, ?, ?, ?, ?, ?, ?)", batch);
+        }
+    }
+
+    private static <T> double millisPerRound(Supplier<T> query) {
+        for (int i = 0; i < WARMUP_ROUNDS; i++) {
+            query.get();
+        }
+        long start = System.nanoTime();
+        for (int i = 0; i < ROUNDS; i++) {
+            query.get();
+        }
+        return (System.nanoTime() - start) / 1_000_000.0 / ROUNDS;
+    }
+
+    @Test
+    @DisplayName("Benchmark byIntersection() - Columnar scan should beat the grouped SQL query with equal results")
+    void benchmarkPerIntersectionAggregates() {
+        // Given
+        seed();
+        columnStore.warmUp();
+        assertThat(columnStore.residentRows()).isGreaterThanOrEqualTo((long) INTERSECTIONS * DAYS * 24);
+        LocalDate today = LocalDate.now();
+
+        for (int days : RANGE_DAYS) {
+            LocalDate start = today.minusDays(days - 1L);
+
+            // When
+            double sqlMillis = millisPerRound(() -> metricRepository.getIntersectionKpis(start, today));
+            double columnarMillis = millisPerRound(() -> columnStore.byIntersection(Measure.WAIT_TIME, start, today));
+            double cityMillis = millisPerRound(() -> columnStore.byCity(Measure.VEHICLES, start, today));
+            double hourMillis = millisPerRound(() -> columnStore.byHour(Measure.THROUGHPUT, start, today));
+
+            // Then
+            System.out.printf("days=%2d rows=%7d  sql: %8.3fms  |  columnar: %7.3fms (x%.1f)  by city: %7.3fms  by hour: %7.3fms%n",
+                    days, (long) INTERSECTIONS * days * 24, sqlMillis, columnarMillis, sqlMillis / columnarMillis,
+                    cityMillis, hourMillis);
+
+            Map<Long, Aggregate> columnar = columnStore.byIntersection(Measure.WAIT_TIME, start, today);
+            List<IntersectionKpi> kpis = metricRepository.getIntersectionKpis(start, today);
+            assertThat(columnar).hasSize(kpis.size());
+            for (IntersectionKpi kpi : kpis) {
+                assertThat(columnar.get(kpi.intersectionId()).average())
+                    .isCloseTo(kpi.averageWaitTime(), within(1e-3));
+            }
+            if (days >= 7) {
+                assertThat(columnarMillis).isLessThan(sqlMillis);
+            }
+        }
+    }
+}
@@ -0,0 +1,249 @@
+package com.trafficlight.service;
+
+import com.trafficlight.dto.MetricColumnRow;
+import com.trafficlight.entity.Intersection;
+import com.trafficlight.entity.IntersectionMetric;
+import com.trafficlight.event.MetricDeletedEvent;
+import com.trafficlight.event.MetricRecordedEvent;
+import com.trafficlight.exception.BadRequestException;
+import com.trafficlight.repository.IntersectionMetricRepository;
+import com.trafficlight.service.MetricColumnStore.Aggregate;
+import com.trafficlight.service.MetricColumnStore.Measure;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.function.Function;
+import java.util.function.Predicate;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.within;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Unit tests for MetricColumnStore
+ * Columnar aggregations must match a plain row-by-row computation, and local writes must
+ * survive a concurrent reload
+ */
+@ExtendWith(MockitoExtension.class)
+@DisplayName("Metric Column Store Tests")
+class MetricColumnStoreTest {
+
+    private static final LocalDate TODAY = LocalDate.now();
+    private static final int DAYS = 30;
+    private static final int INTERSECTIONS = 20;
+
+    @Mock
+    private IntersectionMetricRepository metricRepository;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    private MetricColumnStore columnStore;
+    private List<MetricColumnRow> rows;
+
+    @BeforeEach
+    void setUp() {
+        // Küçük eşik: 30 günlük taramalar fork/join ile bölünür
+        columnStore = new MetricColumnStore(metricRepository, transactionManager, 90, 2, 500, 4);
+
+        Random random = new Random(42);
+        rows = new ArrayList<>();
+        long id = 1;
+        for (int day = DAYS - 1; day >= 0; day--) {
+            for (int intersection = 1; intersection <= INTERSECTIONS; intersection++) {
+                for (int hour = 0; hour < 24; hour++) {
+                    boolean missing = random.nextInt(10) == 0;
+                    rows.add(new MetricColumnRow(id++, (long) intersection, intersection % 3 == 0 ? "Ankara" : "Istanbul",
+                            TODAY.minusDays(day), hour, random.nextInt(500),
+                            missing ? null : BigDecimal.valueOf(random.nextInt(12_000), 2),
+                            missing ? null : 600 + random.nextInt(600),
+                            random.nextInt(20) == 0 ? 1 : 0, random.nextInt(4)));
+                }
+            }
+        }
+    }
+
+    @AfterEach
+    void tearDown() {
+        columnStore.shutdown();
+    }
+
+    @Test
+    @DisplayName("Test byIntersection()/byCity()/byHour()/total() - Should match a row-by-row computation")
+    void testAggregationsMatchRowByRow() {
+        // Given
+        when(metricRepository.streamColumnRowsSince(any())).thenAnswer(invocation -> rows.stream());
+        columnStore.warmUp();
+        LocalDate start = TODAY.minusDays(20);
+        LocalDate end = TODAY.minusDays(3);
+
+        // When
+        Map<Long, Aggregate> byIntersection = columnStore.byIntersection(Measure.WAIT_TIME, start, end);
+        Map<String, Aggregate> byCity = columnStore.byCity(Measure.VEHICLES, start, end);
+        Map<Integer, Aggregate> byHour = columnStore.byHour(Measure.THROUGHPUT, start, end);
+        Aggregate violations = columnStore.total(Measure.VIOLATIONS, start, end);
+
+        // Then
+        assertThat(columnStore.residentRows()).isEqualTo(rows.size());
+        assertThat(byIntersection).hasSize(INTERSECTIONS);
+        byIntersection.forEach((intersectionId, aggregate) -> assertMatches(aggregate,
+                expected(start, end, row -> row.intersectionId().equals(intersectionId),
+                        row -> row.waitTime() != null ? row.waitTime().doubleValue() : null)));
+        assertThat(byCity).containsOnlyKeys("Ankara", "Istanbul");
+        byCity.forEach((city, aggregate) -> assertMatches(aggregate,
+                expected(start, end, row -> row.city().equals(city), row -> (double) row.vehicles())));
+        assertThat(byHour).hasSize(24);
+        byHour.forEach((hour, aggregate) -> assertMatches(aggregate,
+                expected(start, end, row -> row.hour().equals(hour),
+                        row -> row.throughput() != null ? row.throughput().doubleValue() : null)));
+        assertMatches(violations, expected(start, end, row -> true, row -> (double) row.violations()));
+    }
+
+    @Test
+    @DisplayName("Test onMetricRecorded()/onMetricDeleted() - Should apply committed writes to the resident partitions")
+    void testLocalWritesUpdatePartitions() {
+        // Given
+        when(metricRepository.streamColumnRowsSince(any())).thenAnswer(invocation -> rows.stream());
+        columnStore.warmUp();
+        long before = columnStore.total(Measure.VEHICLES, TODAY, TODAY).count();
+        IntersectionMetric metric = metric(10_000L, 99L, "Izmir", 250);
+
+        // When: aynı olay iki kez gelse de bir kez sayılır
+        columnStore.onMetricRecorded(new MetricRecordedEvent(99L, metric));
+        columnStore.onMetricRecorded(new MetricRecordedEvent(99L, metric));
+
+        // Then
+        assertThat(columnStore.total(Measure.VEHICLES, TODAY, TODAY).count()).isEqualTo(before + 1);
+        assertThat(columnStore.byCity(Measure.VEHICLES, TODAY, TODAY).get("Izmir").sum()).isEqualTo(250);
+
+        // When
+        columnStore.onMetricDeleted(new MetricDeletedEvent(10_000L, 99L, TODAY));
+
+        // Then
+        assertThat(columnStore.total(Measure.VEHICLES, TODAY, TODAY).count()).isEqualTo(before);
+        assertThat(columnStore.byCity(Measure.VEHICLES, TODAY, TODAY)).doesNotContainKey("Izmir");
+    }
+
+    @Test
+    @DisplayName("Test refreshRecent() - Should keep writes committed while the reload was reading")
+    void testReloadKeepsConcurrentWrites() {
+        // Given
+        when(metricRepository.streamColumnRowsSince(any())).thenAnswer(invocation -> rows.stream());
+        columnStore.warmUp();
+        IntersectionMetric racing = metric(20_000L, 1L, "Istanbul", 77);
+        when(metricRepository.streamColumnRowsSince(any())).thenAnswer(invocation -> {
+            // Okuma sürerken yerel bir kayıt commit edilir; veritabanı anlık görüntüsünde yok
+            columnStore.onMetricRecorded(new MetricRecordedEvent(1L, racing));
+            return rows.stream().filter(row -> !row.date().isBefore(TODAY.minusDays(2)));
+        });
+
+        // When
+        columnStore.refreshRecent();
+
+        // Then
+        assertThat(columnStore.residentRows()).isEqualTo(rows.size() + 1);
+        assertThat(columnStore.byIntersection(Measure.VEHICLES, TODAY, TODAY).get(1L).count()).isEqualTo(25);
+        assertThat(columnStore.total(Measure.VEHICLES, TODAY, TODAY).count())
+                .isEqualTo(INTERSECTIONS * 24 + 1);
+    }
+
+    @Test
+    @DisplayName("Test total() - Should load ranges before the resident window for the single query")
+    void testRangeBeforeWindowLoadsTransiently() {
+        // Given
+        when(metricRepository.streamColumnRowsSince(any())).thenAnswer(invocation -> rows.stream());
+        columnStore.warmUp();
+        LocalDate start = TODAY.minusDays(200);
+        LocalDate end = TODAY.minusDays(150);
+        when(metricRepository.streamColumnRows(start, end)).thenAnswer(invocation -> List.of(
+                new MetricColumnRow(30_000L, 1L, "Istanbul", start, 8, 120, BigDecimal.TEN, 900, 0, 0),
+                new MetricColumnRow(30_001L, 2L, "Istanbul", end, 9, 80, null, null, 0, 0)).stream());
+
+        // When
+        Aggregate vehicles = columnStore.total(Measure.VEHICLES, start, end);
+        Aggregate waitTime = columnStore.total(Measure.WAIT_TIME, start, end);
+
+        // Then
+        verify(metricRepository, times(2)).streamColumnRows(start, end);
+        assertThat(vehicles.count()).isEqualTo(2);
+        assertThat(vehicles.sum()).isEqualTo(200);
+        assertThat(waitTime.count()).isEqualTo(1);
+        assertThat(waitTime.average()).isEqualTo(10.0);
+        assertThat(columnStore.residentRows()).isEqualTo(rows.size());
+    }
+
+    @Test
+    @DisplayName("Test total() - Should reject ranges longer than the retention window")
+    void testRejectsOverlongRange() {
+        assertThatThrownBy(() -> columnStore.total(Measure.VEHICLES, TODAY.minusDays(90), TODAY))
+                .isInstanceOf(BadRequestException.class);
+        assertThatThrownBy(() -> columnStore.total(Measure.VEHICLES, TODAY, TODAY.minusDays(1)))
+                .isInstanceOf(BadRequestException.class);
+    }
+
+    private Aggregate expected(LocalDate start, LocalDate end,
+                               Predicate<MetricColumnRow> group,
+                               Function<MetricColumnRow, Double> value) {
+        long count = 0;
+        double sum = 0;
+        double min = Double.POSITIVE_INFINITY;
+        double max = Double.NEGATIVE_INFINITY;
+        for (MetricColumnRow row : rows) {
+            if (row.date().isBefore(start) || row.date().isAfter(end) || !group.test(row)) {
+                continue;
+            }
+            Double v = value.apply(row);
+            if (v == null) {
+                continue;
+            }
+            count++;
+            sum += v;
+            min = Math.min(min, v);
+            max = Math.max(max, v);
+        }
+        return new Aggregate(count, sum, min, max);
+    }
+
+    private static void assertMatches(Aggregate actual, Aggregate expected) {
+        assertThat(actual.count()).isEqualTo(expected.count());
+        // float sütunlar: değer başına ~1e-7 göreli hata
+        assertThat(actual.sum()).isCloseTo(expected.sum(), within(Math.abs(expected.sum()) * 1e-6 + 1e-6));
+        assertThat(actual.min()).isCloseTo(expected.min(), within(1e-4));
+        assertThat(actual.max()).isCloseTo(expected.max(), within(1e-4));
+    }
+
+    private static IntersectionMetric metric(Long id, Long intersectionId, String city, int vehicles) {
+        Intersection intersection = Intersection.builder()
+                .name("Kavşak " + intersectionId)
+                .code("COL-" + intersectionId)
+                .city(city)
+                .build();
+        intersection.setId(intersectionId);
+        IntersectionMetric metric = IntersectionMetric.builder()
+                .intersection(intersection)
+                .measurementDate(TODAY)
+                .measurementHour(12)
+                .totalVehicleCount(vehicles)
+                .averageWaitTime(BigDecimal.valueOf(35))
+                .throughput(900)
+                .build();
+        metric.setId(id);
+        return metric;
+    }
+}
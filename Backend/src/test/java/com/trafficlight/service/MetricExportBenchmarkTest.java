@@ -0,0 +1,141 @@
+package com.trafficlight.service;
+
+import com.trafficlight.entity.Intersection;
+import com.trafficlight.entity.Intersection.IntersectionStatus;
+import com.trafficlight.entity.Intersection.IntersectionType;
+import com.trafficlight.repository.IntersectionRepository;
+import com.trafficlight.service.MetricExportService.Format;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.math.BigDecimal;
+import java.sql.Date;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Benchmark: bulk metric export throughput
+ *
+ * Streams the whole seeded range as CSV and columnar, with and without gzip,
+ * into a byte-counting sink and reports rows per second and bytes per row.
+ *
+ * Run with: mvn -Pbenchmark test
+ */
+@Tag("benchmark")
+@SpringBootTest(properties = {
+    "spring.jpa.show-sql=false",
+    "logging.level.com.trafficlight=WARN",
+    "logging.level.org.hibernate=WARN"
+})
+@ActiveProfiles("test")
+@DisplayName("Metric Export Benchmark")
+class MetricExportBenchmarkTest {
+
+    private static final int INTERSECTIONS = 200;
+    private static final int DAYS = 60;
+    private static final long MIN_ROWS_PER_SECOND = 100_000;
+
+    @Autowired
+    private MetricExportService exportService;
+
+    @Autowired
+    private IntersectionRepository intersectionRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    /**
+     * 200 kavşak × 60 gün × 24 saat = 288.000 satır, toplu JDBC ile
+     */
+    private void seed() {
+        Random random = new Random(11);
+        LocalDate today = LocalDate.now();
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        for (int i = 0; i < INTERSECTIONS; i++) {
+            Intersection intersection = intersectionRepository.save(Intersection.builder()
+                .name("Bench-" + i)
+                .code("BENCH-EXP-" + i)
+                .latitude(new BigDecimal("41.0369"))
+                .longitude(new BigDecimal("28.9857"))
+                .city(i % 4 == 0 ? "Ankara" : "Istanbul")
+                .intersectionType(IntersectionType.TRAFFIC_LIGHT)
+                .status(IntersectionStatus.ACTIVE)
+                .lanesCount(4)
+                .createdBy("benchmark")
+                .build());
+
+            List<Object[]> batch = new ArrayList<>(DAYS * 24);
+            for (int day = 0; day < DAYS; day++) {
+                for (int hour = 0; hour < 24; hour++) {
+                    batch.add(new Object[]{intersection.getId(), Date.valueOf(today.minusDays(day)), hour,
+                            random.nextInt(800), random.nextInt(600), random.nextInt(40),
+                            BigDecimal.valueOf(random.nextInt(9_000), 2), 500 + random.nextInt(700),
+                            BigDecimal.valueOf(5_000 + random.nextInt(5_000), 2), random.nextInt(3),
+                            new BigDecimal("0.95"), now, now});
+                }
+            }
+            jdbcTemplate.batchUpdate("INSERT INTO intersection_metrics (intersection_id, measurement_date, " +
+                    "measurement_hour, total_vehicle_count, car_count, truck_count, average_wait_time, throughput, " +
+                    "green_time_utilization, red_light_violations, data_quality_score, created_at, updated_at) " +
+                    "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)", batch);
+        }
+    }
+
+    @Test
+    @DisplayName("Benchmark export() - Should stream at least 100k rows per second in every format")
+    void benchmarkExport() throws IOException {
+        // Given
+        seed();
+        LocalDate today = LocalDate.now();
+        LocalDate start = today.minusDays(DAYS - 1L);
+        long expectedRows = (long) INTERSECTIONS * DAYS * 24;
+        // JIT ısınması
+        exportService.export(Format.CSV, today, today, null, false, OutputStream.nullOutputStream());
+        exportService.export(Format.COLUMNAR, today, today, null, false, OutputStream.nullOutputStream());
+
+        for (Format format : Format.values()) {
+            for (boolean gzip : new boolean[]{false, true}) {
+                // When
+                CountingSink sink = new CountingSink();
+                long begin = System.nanoTime();
+                long rows = exportService.export(format, start, today, null, gzip, sink);
+                double seconds = (System.nanoTime() - begin) / 1e9;
+
+                // Then
+                long rowsPerSecond = (long) (rows / seconds);
+                System.out.printf("%-8s gzip=%-5s rows=%d  %8.0f ms  %,10d rows/s  %6.1f bytes/row%n",
+                        format, gzip, rows, seconds * 1000, rowsPerSecond, (double) sink.bytes / rows);
+                assertThat(rows).isEqualTo(expectedRows);
+                assertThat(rowsPerSecond).isGreaterThanOrEqualTo(MIN_ROWS_PER_SECOND);
+            }
+        }
+    }
+
+    private static final class CountingSink extends OutputStream {
+
+        private long bytes;
+
+        @Override
+        public void write(int b) {
+            bytes++;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) {
+            bytes += len;
+        }
+    }
+}
@@ -0,0 +1,195 @@
+package com.trafficlight.service;
+
+import com.trafficlight.entity.Intersection;
+import com.trafficlight.entity.IntersectionMetric;
+import com.trafficlight.exception.BadRequestException;
+import com.trafficlight.repository.IntersectionMetricRepository;
+import com.trafficlight.repository.IntersectionRepository;
+import com.trafficlight.service.MetricExportService.Format;
+import com.trafficlight.util.ColumnarReader;
+import com.trafficlight.util.ColumnarWriter;
+import com.trafficlight.util.ColumnarWriter.Column;
+import com.trafficlight.util.ColumnarWriter.ColumnType;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.zip.GZIPInputStream;
+
+import static com.trafficlight.TestFixtures.intersection;
+import static com.trafficlight.TestFixtures.metricBuilder;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Unit tests for MetricExportService
+ * CSV and columnar exports must carry the same rows, in date / intersection / hour order
+ */
+@DataJpaTest
+@ActiveProfiles("test")
+@DisplayName("Metric Export Service Tests")
+class MetricExportServiceTest {
+
+    private static final LocalDate DAY = LocalDate.of(2026, 10, 1);
+
+    @Autowired
+    private IntersectionMetricRepository metricRepository;
+
+    @Autowired
+    private IntersectionRepository intersectionRepository;
+
+    @Autowired
+    private NamedParameterJdbcTemplate namedJdbcTemplate;
+
+    // Kodlar her çalıştırmada benzersiz: paylaşılan bağlamda kalan satırlarla çakışmaz
+    private final String suffix = "-" + UUID.randomUUID().toString().substring(0, 8);
+    private MetricExportService exportService;
+    private Intersection first;
+    private Intersection second;
+
+    @BeforeEach
+    void setUp() {
+        exportService = new MetricExportService(metricRepository);
+
+        first = intersectionRepository.save(intersection("EXPORT-1" + suffix, "Istanbul"));
+        second = intersectionRepository.save(intersection("EXPORT,\"2\"" + suffix, "Ankara"));
+        for (int day = 0; day < 3; day++) {
+            for (int hour = 0; hour < 2; hour++) {
+                metricRepository.save(metric(second, DAY.plusDays(day), hour, 200 + hour, null));
+                metricRepository.save(metric(first, DAY.plusDays(day), hour, 100 + hour, new BigDecimal("12.5")));
+            }
+        }
+        metricRepository.flush();
+    }
+
+    @AfterEach
+    void tearDown() {
+        // Test işlemi geri alınır; yine de yalnızca bu testin satırları yabancı anahtar sırasıyla silinir
+        Map<String, Object> ids = Map.of("ids", List.of(first.getId(), second.getId()));
+        namedJdbcTemplate.update("DELETE FROM intersection_metrics WHERE intersection_id IN (:ids)", ids);
+        namedJdbcTemplate.update("DELETE FROM intersections WHERE id IN (:ids)", ids);
+    }
+
+    @Test
+    @DisplayName("Test export(CSV) - Should write a header and quoted, ordered rows")
+    void testCsvExport() throws IOException {
+        // When
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        long rows = exportService.export(Format.CSV, DAY, DAY.plusDays(1),
+                List.of(first.getId(), second.getId()), false, out);
+
+        // Then
+        List<String> lines = out.toString(StandardCharsets.UTF_8).lines().toList();
+        assertThat(rows).isEqualTo(8);
+        assertThat(lines).hasSize(9);
+        assertThat(lines.get(0)).startsWith("id,intersection_id,intersection_code,city,measurement_date,measurement_hour,");
+        assertThat(lines.get(0).split(",")).hasSize(MetricExportService.COLUMNS.size());
+        assertThat(lines.get(1)).contains("," + first.getId() + "," + first.getCode() + ",Istanbul,2026-10-01,0,100,")
+            .contains(",12.50,");
+        assertThat(lines.get(3)).contains("," + second.getId() + ",\"EXPORT,\"\"2\"\"" + suffix + "\",Ankara,2026-10-01,0,200,");
+        assertThat(lines.get(5)).contains(",2026-10-02,0,");
+    }
+
+    @Test
+    @DisplayName("Test export(COLUMNAR) - Should round-trip the CSV rows through gzip and the columnar reader")
+    void testColumnarExportMatchesCsv() throws IOException {
+        // Given
+        List<Long> onlySecond = List.of(second.getId());
+        ByteArrayOutputStream csv = new ByteArrayOutputStream();
+        exportService.export(Format.CSV, DAY, DAY.plusDays(2), onlySecond, false, csv);
+
+        // When
+        ByteArrayOutputStream columnar = new ByteArrayOutputStream();
+        long rows = exportService.export(Format.COLUMNAR, DAY, DAY.plusDays(2), onlySecond, true, columnar);
+
+        // Then
+        ColumnarReader reader = new ColumnarReader(new GZIPInputStream(new ByteArrayInputStream(columnar.toByteArray())));
+        assertThat(reader.columns()).isEqualTo(MetricExportService.COLUMNS);
+        List<Object[]> decoded = reader.readAll();
+        assertThat(rows).isEqualTo(6);
+        assertThat(decoded).hasSize(6);
+        assertThat(decoded.get(0)[2]).isEqualTo(second.getCode());
+        assertThat(decoded.get(0)[13]).isNull();
+        assertThat(decoded.get(5)[4]).isEqualTo(DAY.plusDays(2));
+
+        // The quoted code holds one comma, so later CSV fields shift by one in a plain split
+        List<String> csvLines = csv.toString(StandardCharsets.UTF_8).lines().skip(1).toList();
+        for (int i = 0; i < decoded.size(); i++) {
+            String[] fields = csvLines.get(i).split(",");
+            assertThat(decoded.get(i)[0]).isEqualTo(Long.valueOf(fields[0]));
+            assertThat(decoded.get(i)[6]).isEqualTo(Integer.valueOf(fields[7]));
+        }
+    }
+
+    @Test
+    @DisplayName("Test ColumnarWriter - Should round-trip every column type across row groups")
+    void testColumnarWriterRoundTrip() throws IOException {
+        // Given: group size 2 -> three groups, strings repeat across groups
+        List<Column> columns = List.of(
+            new Column("id", ColumnType.LONG),
+            new Column("hour", ColumnType.INT),
+            new Column("wait", ColumnType.DECIMAL, 2),
+            new Column("day", ColumnType.DATE),
+            new Column("city", ColumnType.STRING));
+        List<Object[]> rows = new ArrayList<>();
+        rows.add(new Object[]{5L, 0, new BigDecimal("1.25"), DAY, "Istanbul"});
+        rows.add(new Object[]{3L, -4, null, DAY.minusDays(400), null});
+        rows.add(new Object[]{Long.MAX_VALUE, 23, new BigDecimal("99999999.99"), DAY, "İzmir"});
+        rows.add(new Object[]{null, null, new BigDecimal("0.00"), null, "Istanbul"});
+        rows.add(new Object[]{-1L, 7, new BigDecimal("3.5"), DAY.plusDays(1), "Istanbul"});
+
+        // When
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ColumnarWriter writer = new ColumnarWriter(out, columns, 2);
+        for (Object[] row : rows) {
+            writer.write(row);
+        }
+        writer.finish();
+        List<Object[]> decoded = new ColumnarReader(new ByteArrayInputStream(out.toByteArray())).readAll();
+
+        // Then
+        assertThat(writer.rowCount()).isEqualTo(5);
+        assertThat(decoded).hasSize(5);
+        for (int i = 0; i < 4; i++) {
+            assertThat(decoded.get(i)).containsExactly(rows.get(i));
+        }
+        assertThat(decoded.get(4)[2]).isEqualTo(new BigDecimal("3.50"));
+    }
+
+    @Test
+    @DisplayName("Test validate() - Should reject an inverted range and too many intersections")
+    void testValidateRejectsBadRequests() {
+        assertThatThrownBy(() -> MetricExportService.validate(DAY, DAY.minusDays(1), null))
+            .isInstanceOf(BadRequestException.class);
+        List<Long> tooMany = new ArrayList<>();
+        for (long id = 0; id <= MetricExportService.MAX_INTERSECTION_IDS; id++) {
+            tooMany.add(id);
+        }
+        assertThatThrownBy(() -> MetricExportService.validate(DAY, DAY, tooMany))
+            .isInstanceOf(BadRequestException.class);
+    }
+
+    private static IntersectionMetric metric(Intersection intersection, LocalDate date, int hour,
+                                             int vehicles, BigDecimal waitTime) {
+        return metricBuilder(intersection, date, hour)
+            .totalVehicleCount(vehicles)
+            .averageWaitTime(waitTime)
+            .throughput(800)
+            .build();
+    }
+}
@@ -0,0 +1,162 @@
+package com.trafficlight.service;
+
+import com.trafficlight.dto.MetricImportResult;
+import com.trafficlight.dto.MetricRequest;
+import com.trafficlight.entity.Intersection;
+import com.trafficlight.entity.Intersection.IntersectionStatus;
+import com.trafficlight.entity.Intersection.IntersectionType;
+import com.trafficlight.repository.IntersectionRepository;
+import com.trafficlight.service.MetricImportService.Format;
+import com.trafficlight.service.MetricImportService.OnDuplicate;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Benchmark: bulk metric import vs. one createMetric() call per row
+ *
+ * Imports ~1M generated CSV lines (produced on the fly, never held in memory)
+ * and compares the rate with the per-row path on a small sample. On H2 the
+ * staging load uses JDBC batches; against PostgreSQL it goes through COPY.
+ *
+ * Run with: mvn -Pbenchmark test
+ */
+@Tag("benchmark")
+@SpringBootTest(properties = {
+    "spring.jpa.show-sql=false",
+    "logging.level.com.trafficlight=WARN",
+    "logging.level.org.hibernate=WARN"
+})
+@ActiveProfiles("test")
+@DisplayName("Metric Import Benchmark")
+class MetricImportBenchmarkTest {
+
+    private static final int INTERSECTIONS = 500;
+    private static final int DAYS = 84;
+    private static final int PER_ROW_SAMPLE = 5_000;
+
+    @Autowired
+    private MetricImportService importService;
+
+    @Autowired
+    private MetricService metricService;
+
+    @Autowired
+    private IntersectionRepository intersectionRepository;
+
+    @Test
+    @DisplayName("Benchmark importMetrics() - Should import a million rows many times faster than createMetric()")
+    void benchmarkImport() throws IOException {
+        // Given
+        List<Long> ids = new ArrayList<>(INTERSECTIONS);
+        for (int i = 0; i < INTERSECTIONS; i++) {
+            ids.add(intersectionRepository.save(Intersection.builder()
+                .name("Bench-" + i)
+                .code("BENCH-IMP-" + i)
+                .latitude(new BigDecimal("41.0369"))
+                .longitude(new BigDecimal("28.9857"))
+                .city("Istanbul")
+                .intersectionType(IntersectionType.TRAFFIC_LIGHT)
+                .status(IntersectionStatus.ACTIVE)
+                .lanesCount(4)
+                .createdBy("benchmark")
+                .build()).getId());
+        }
+        LocalDate firstDay = LocalDate.now().minusDays(DAYS + 30L);
+        long expectedRows = (long) INTERSECTIONS * DAYS * 24;
+
+        // When: tek tek kayıt (eski yol), farklı günlerde
+        long begin = System.nanoTime();
+        for (int n = 0; n < PER_ROW_SAMPLE; n++) {
+            MetricRequest request = new MetricRequest();
+            request.setIntersectionId(ids.get(n % INTERSECTIONS));
+            request.setMeasurementDate(firstDay.minusDays(1L + n / (INTERSECTIONS * 24)));
+            request.setMeasurementHour(n / INTERSECTIONS % 24);
+            request.setTotalVehicleCount(400);
+            metricService.createMetric(request);
+        }
+        long perRowRate = (long) (PER_ROW_SAMPLE / ((System.nanoTime() - begin) / 1e9));
+
+        // When: toplu içe aktarım
+        begin = System.nanoTime();
+        MetricImportResult result = importService.importMetrics(
+                new GeneratedCsv(ids, firstDay), Format.CSV, OnDuplicate.SKIP, 0);
+        long importRate = (long) (result.getRowsRead() / ((System.nanoTime() - begin) / 1e9));
+
+        // Then
+        System.out.printf("createMetric(): %,10d rows/s%n", perRowRate);
+        System.out.printf("importMetrics(): %,10d rows/s (%,d rows in %d ms)%n",
+                importRate, result.getRowsMerged(), result.getDurationMs());
+        assertThat(result.getRowsMerged()).isEqualTo(expectedRows);
+        assertThat(result.getRowsRejected()).isZero();
+        assertThat(importRate).isGreaterThan(perRowRate * 10);
+    }
+
+    /**
+     * CSV lines generated as they are read: intersection × day × hour
+     */
+    private static final class GeneratedCsv extends InputStream {
+
+        private final List<Long> ids;
+        private final LocalDate firstDay;
+        private final Random random = new Random(17);
+        private final long totalRows;
+        private long row = -1;
+        private byte[] line = ("intersection_id,measurement_date,measurement_hour,total_vehicle_count,car_count,"
+                + "truck_count,average_wait_time,throughput,green_time_utilization,data_quality_score\n")
+                .getBytes(StandardCharsets.US_ASCII);
+        private int position;
+
+        GeneratedCsv(List<Long> ids, LocalDate firstDay) {
+            this.ids = ids;
+            this.firstDay = firstDay;
+            this.totalRows = (long) ids.size() * DAYS * 24;
+        }
+
+        @Override
+        public int read() {
+            byte[] single = new byte[1];
+            return read(single, 0, 1) < 0 ? -1 : single[0] & 0xff;
+        }
+
+        @Override
+        public int read(byte[] buffer, int offset, int length) {
+            if (position == line.length && !nextLine()) {
+                return -1;
+            }
+            int count = Math.min(length, line.length - position);
+            System.arraycopy(line, position, buffer, offset, count);
+            position += count;
+            return count;
+        }
+
+        private boolean nextLine() {
+            if (++row >= totalRows) {
+                return false;
+            }
+            int hour = (int) (row % 24);
+            long id = ids.get((int) (row / 24 % ids.size()));
+            LocalDate day = firstDay.plusDays(row / 24 / ids.size());
+            line = (id + "," + day + "," + hour + "," + random.nextInt(800) + "," + random.nextInt(600) + ","
+                    + random.nextInt(40) + "," + random.nextInt(90) + "." + random.nextInt(10) + ","
+                    + (500 + random.nextInt(700)) + "," + (50 + random.nextInt(50)) + ",0.95\n")
+                    .getBytes(StandardCharsets.US_ASCII);
+            position = 0;
+            return true;
+        }
+    }
+}
@@ -0,0 +1,255 @@
+package com.trafficlight.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.trafficlight.dto.MetricImportResult;
+import com.trafficlight.entity.Intersection;
+import com.trafficlight.entity.IntersectionMetric;
+import com.trafficlight.exception.BadRequestException;
+import com.trafficlight.repository.DailyIntersectionRollupRepository;
+import com.trafficlight.repository.IntersectionMetricRepository;
+import com.trafficlight.repository.IntersectionRepository;
+import com.trafficlight.service.MetricImportService.Format;
+import com.trafficlight.service.MetricImportService.OnDuplicate;
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.QueryTimeoutException;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.GZIPOutputStream;
+
+import static com.trafficlight.TestFixtures.intersection;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Unit tests for MetricImportService
+ * Staged rows must be validated, deduplicated and merged in one transaction; the
+ * service commits on its own, so the test runs without a test transaction
+ */
+@DataJpaTest
+@ActiveProfiles("test")
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+@DisplayName("Metric Import Service Tests")
+class MetricImportServiceTest {
+
+    private static final LocalDate DAY = LocalDate.of(2026, 9, 1);
+    private static final String HEADER = "id,intersection_id,intersection_code,city,measurement_date,measurement_hour,"
+            + "total_vehicle_count,average_wait_time,throughput,green_time_utilization,data_quality_score";
+
+    @Autowired
+    private IntersectionMetricRepository metricRepository;
+
+    @Autowired
+    private IntersectionRepository intersectionRepository;
+
+    @Autowired
+    private DailyIntersectionRollupRepository rollupRepository;
+
+    @Autowired
+    private NamedParameterJdbcTemplate namedJdbcTemplate;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private MetricImportService importService;
+    private MetricColumnStore columnStore;
+    private WaitTimeSketchService sketchService;
+    private Intersection first;
+    private Intersection second;
+
+    @BeforeEach
+    void setUp() {
+        DailyRollupService rollupService = new DailyRollupService(rollupRepository, entityManager, transactionManager, 31, 2);
+        columnStore = mock(MetricColumnStore.class);
+        sketchService = mock(WaitTimeSketchService.class);
+        // İki satırlık parçalar ve iki iş parçacığı: sıralı yükleme paralel doğrulamayla sınanır
+        importService = new MetricImportService(intersectionRepository, namedJdbcTemplate, transactionManager,
+                new ObjectMapper(), rollupService, sketchService, columnStore, 2, 2, 10);
+
+        first = intersectionRepository.save(intersection("IMPORT-1"));
+        second = intersectionRepository.save(intersection("IMPORT,\"2\""));
+    }
+
+    @AfterEach
+    void tearDown() {
+        importService.shutdown();
+        // Satırlar commit edildi: yalnızca bu testin kavşakları yabancı anahtar sırasıyla silinir
+        // (intersectionRepository.deleteAll() fazları yükler; intersection_phases H2'de oluşturulamıyor)
+        Map<String, Object> ids = Map.of("ids", List.of(first.getId(), second.getId()));
+        for (String table : List.of("daily_intersection_rollups", "wait_time_sketches", "intersection_metrics")) {
+            namedJdbcTemplate.update("DELETE FROM " + table + " WHERE intersection_id IN (:ids)", ids);
+        }
+        namedJdbcTemplate.update("DELETE FROM intersections WHERE id IN (:ids)", ids);
+    }
+
+    @Test
+    @DisplayName("Test importMetrics(CSV) - Should stage valid lines, report invalid ones and merge the last duplicate")
+    void testCsvImport() throws IOException {
+        // Given: gzip, quoted code, duplicate key (second one wins), two invalid lines
+        String csv = HEADER + "\n"
+                + "1," + first.getId() + ",,Istanbul,2026-09-01,8,120,30.5,900,55.5,0.9\n"
+                + ",,\"IMPORT,\"\"2\"\"\",,2026-09-01,8,80,,,,\n"
+                + ",,IMPORT-1,,2026-09-01,25,10,1,1,1,1\n"
+                + "\n"
+                + ",999999,,,2026-09-02,1,10,1,1,1,1\n"
+                + ",,IMPORT-1,,2026-09-01,8,140,31.555,950,56,0.95\n"
+                + ",,IMPORT-1,,2026-09-03,0,5,2,100,10,1\n";
+
+        // When
+        MetricImportResult result = importService.importMetrics(gzip(csv), Format.CSV, OnDuplicate.SKIP, null);
+
+        // Then
+        assertThat(result.getStatus()).isEqualTo(MetricImportResult.Status.COMPLETED);
+        assertThat(result.getRowsRead()).isEqualTo(6);
+        assertThat(result.getRowsRejected()).isEqualTo(2);
+        assertThat(result.getRowsStaged()).isEqualTo(4);
+        assertThat(result.getRowsMerged()).isEqualTo(3);
+        assertThat(result.getRowsSkipped()).isEqualTo(1);
+        assertThat(result.getFirstDate()).isEqualTo(DAY);
+        assertThat(result.getLastDate()).isEqualTo(DAY.plusDays(2));
+        assertThat(result.getErrors()).containsExactly(
+                "line 4: measurement_hour must be between 0 and 23: 25",
+                "line 6: unknown intersection_id: 999999");
+
+        IntersectionMetric merged = metricRepository
+                .findByIntersectionIdAndMeasurementDateAndMeasurementHour(first.getId(), DAY, 8).orElseThrow();
+        assertThat(merged.getTotalVehicleCount()).isEqualTo(140);
+        assertThat(merged.getAverageWaitTime()).isEqualByComparingTo("31.56");
+        assertThat(merged.getCarCount()).isZero();
+        IntersectionMetric quoted = metricRepository
+                .findByIntersectionIdAndMeasurementDateAndMeasurementHour(second.getId(), DAY, 8).orElseThrow();
+        assertThat(quoted.getAverageWaitTime()).isNull();
+        assertThat(quoted.getThroughput()).isNull();
+
+        assertThat(rollupRepository.getDailyTrend(DAY, DAY.plusDays(2))).hasSize(2);
+        assertThat(jdbcTemplate.queryForObject("SELECT COUNT(*) FROM " + MetricImportService.STAGING_TABLE, Long.class))
+                .isZero();
+        verify(sketchService).backfill(DAY, DAY.plusDays(2));
+        verify(columnStore).reloadFrom(DAY);
+    }
+
+    @Test
+    @DisplayName("Test importMetrics(NDJSON) - Should keep existing rows with SKIP and overwrite them with REPLACE")
+    void testNdjsonDuplicatePolicies() throws IOException {
+        // Given
+        metricRepository.save(IntersectionMetric.builder()
+                .intersection(first)
+                .measurementDate(DAY)
+                .measurementHour(9)
+                .totalVehicleCount(1)
+                .build());
+        String ndjson = "{\"intersection_code\":\"IMPORT-1\",\"measurement_date\":\"2026-09-01\",\"measurement_hour\":9,"
+                + "\"total_vehicle_count\":300,\"average_wait_time\":12.25}\n"
+                + "{\"intersection_id\":" + second.getId() + ",\"measurement_date\":\"2026-09-01\","
+                + "\"measurement_hour\":9,\"total_vehicle_count\":200,\"average_wait_time\":null}\n"
+                + "[1, 2]\n";
+
+        // When
+        MetricImportResult skipped = importService.importMetrics(utf8(ndjson), Format.NDJSON, OnDuplicate.SKIP, null);
+        int vehiclesAfterSkip = vehicles(first, 9);
+        MetricImportResult replaced = importService.importMetrics(utf8(ndjson), Format.NDJSON, OnDuplicate.REPLACE, null);
+
+        // Then
+        assertThat(skipped.getRowsMerged()).isEqualTo(1);
+        assertThat(skipped.getRowsRejected()).isEqualTo(1);
+        assertThat(skipped.getErrors()).containsExactly("line 3: expected a JSON object");
+        assertThat(vehiclesAfterSkip).isEqualTo(1);
+        assertThat(replaced.getRowsMerged()).isEqualTo(2);
+        assertThat(vehicles(first, 9)).isEqualTo(300);
+        assertThat(vehicles(second, 9)).isEqualTo(200);
+        assertThat(importService.recentImports()).extracting(MetricImportResult::getImportId)
+                .containsExactly(skipped.getImportId(), replaced.getImportId());
+    }
+
+    @Test
+    @DisplayName("Test importMetrics() - Should roll back everything when too many lines are invalid")
+    void testRejectLimitRollsBack() {
+        // Given: three valid lines, then two invalid ones with a limit of one
+        String csv = HEADER + "\n"
+                + ",,IMPORT-1,,2026-09-01,1,10,,,,\n"
+                + ",,IMPORT-1,,2026-09-01,2,10,,,,\n"
+                + ",,IMPORT-1,,2026-09-01,3,10,,,,\n"
+                + ",,IMPORT-1,,not-a-date,4,10,,,,\n"
+                + ",,IMPORT-1,,2026-09-01,5,-1,,,,\n";
+
+        // When / Then
+        assertThatThrownBy(() -> importService.importMetrics(utf8(csv), Format.CSV, OnDuplicate.SKIP, 1))
+                .isInstanceOf(BadRequestException.class)
+                .hasMessageContaining("line 5: invalid measurement_date: not-a-date");
+        assertThat(metricRepository.countByIntersectionId(first.getId())).isZero();
+        assertThat(metricRepository.countByIntersectionId(second.getId())).isZero();
+        assertThat(jdbcTemplate.queryForObject("SELECT COUNT(*) FROM " + MetricImportService.STAGING_TABLE, Long.class))
+                .isZero();
+        assertThat(importService.recentImports()).singleElement()
+                .extracting(MetricImportResult::getStatus).isEqualTo(MetricImportResult.Status.FAILED);
+    }
+
+    @Test
+    @DisplayName("Test importMetrics(CSV) - Should reject a header without the required columns")
+    void testRejectsIncompleteHeader() {
+        assertThatThrownBy(() -> importService.importMetrics(utf8("intersection_id,measurement_date\n1,2026-09-01\n"),
+                Format.CSV, OnDuplicate.SKIP, null))
+                .isInstanceOf(BadRequestException.class)
+                .hasMessageContaining("measurement_hour");
+    }
+
+    @Test
+    @DisplayName("Test importMetrics() - Should complete the committed import when the derived-data rebuild fails")
+    void testRefreshFailure() throws IOException {
+        // Given: taslak yeniden kurulumu veritabanı hatası veriyor
+        when(sketchService.backfill(DAY, DAY)).thenThrow(new QueryTimeoutException("canceling statement"));
+        String csv = HEADER + "\n" + ",,IMPORT-1,,2026-09-01,7,60,,,,\n";
+
+        // When
+        MetricImportResult result = importService.importMetrics(utf8(csv), Format.CSV, OnDuplicate.SKIP, null);
+
+        // Then
+        assertThat(result.getStatus()).isEqualTo(MetricImportResult.Status.COMPLETED);
+        assertThat(vehicles(first, 7)).isEqualTo(60);
+        verify(columnStore).reloadFrom(DAY);
+    }
+
+    private int vehicles(Intersection intersection, int hour) {
+        return metricRepository.findByIntersectionIdAndMeasurementDateAndMeasurementHour(intersection.getId(), DAY, hour)
+                .orElseThrow().getTotalVehicleCount();
+    }
+
+    private static InputStream utf8(String content) {
+        return new ByteArrayInputStream(content.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static InputStream gzip(String content) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (GZIPOutputStream gzip = new GZIPOutputStream(out)) {
+            gzip.write(content.getBytes(StandardCharsets.UTF_8));
+        }
+        return new ByteArrayInputStream(out.toByteArray());
+    }
+}
@@ -0,0 +1,165 @@
+package com.trafficlight.service;
+
+import com.trafficlight.dto.CursorPage;
+import com.trafficlight.dto.MetricResponse;
+import com.trafficlight.entity.Intersection;
+import com.trafficlight.entity.IntersectionMetric;
+import com.trafficlight.repository.IntersectionMetricRepository;
+import com.trafficlight.repository.IntersectionRepository;
+import jakarta.persistence.EntityManager;
+import org.hibernate.Session;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+import static com.trafficlight.TestFixtures.intersection;
+import static com.trafficlight.TestFixtures.metricBuilder;
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Query-count regression tests for MetricService
+ * Metric listings are read as MetricResponse projections: one select per listing
+ * (plus the existence check and page count), no entity or intersection proxy loads
+ */
+@DataJpaTest(properties = "spring.jpa.properties.hibernate.generate_statistics=true")
+@ActiveProfiles("test")
+@DisplayName("Metric Service Query Count Tests")
+class MetricServiceQueryCountTest {
+
+    private static final LocalDate START = LocalDate.of(2026, 10, 1);
+    private static final int DAYS = 5;
+    private static final int HOURS = 4;
+
+    @Autowired
+    private IntersectionRepository intersectionRepository;
+
+    @Autowired
+    private IntersectionMetricRepository metricRepository;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    private MetricService metricService;
+    private Intersection intersection;
+    private Statistics statistics;
+
+    @BeforeEach
+    void setUp() {
+        metricRepository.deleteAll();
+        intersectionRepository.deleteAll();
+        metricService = new MetricService(metricRepository, intersectionRepository, null, null, null, null, null);
+
+        intersection = intersectionRepository.save(intersection("QC-1"));
+        Intersection other = intersectionRepository.save(intersection("QC-2"));
+        List<IntersectionMetric> metrics = new ArrayList<>();
+        for (int day = 0; day < DAYS; day++) {
+            for (int hour = 0; hour < HOURS; hour++) {
+                metrics.add(metric(intersection, START.plusDays(day), hour, hour == 1 ? day : 0));
+                metrics.add(metric(other, START.plusDays(day), hour, 1));
+            }
+        }
+        metricRepository.saveAll(metrics);
+        entityManager.flush();
+        entityManager.clear();
+
+        statistics = entityManager.unwrap(Session.class).getSessionFactory().getStatistics();
+        statistics.clear();
+    }
+
+    @Test
+    @DisplayName("Test getMetricsByIntersectionId() - Should map every metric without loading the intersection")
+    void testListSingleQuery() {
+        // When
+        List<MetricResponse> metrics = metricService.getMetricsByIntersectionId(intersection.getId());
+
+        // Then: existsById + one projection select
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(2);
+        assertThat(statistics.getEntityLoadCount()).isZero();
+        assertThat(metrics).hasSize(DAYS * HOURS)
+            .allSatisfy(m -> assertThat(m.getIntersectionName()).isEqualTo("Kavşak QC-1"))
+            .allSatisfy(m -> assertThat(m.getIntersectionCode()).isEqualTo("QC-1"));
+    }
+
+    @Test
+    @DisplayName("Test getMetricsByIntersectionId()/getMetricsByDateRange() - Pages should be one select plus the count")
+    void testPagedQueries() {
+        // When
+        Page<MetricResponse> page = metricService.getMetricsByIntersectionId(intersection.getId(),
+                PageRequest.of(1, 6, Sort.by(Sort.Direction.DESC, "measurementDate")));
+        long byIdStatements = statistics.getPrepareStatementCount();
+        statistics.clear();
+        Page<MetricResponse> ranged = metricService.getMetricsByDateRange(intersection.getId(),
+                START.plusDays(1), START.plusDays(2), PageRequest.of(0, 3));
+
+        // Then: existsById + select + count each
+        assertThat(byIdStatements).isEqualTo(3);
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(3);
+        assertThat(statistics.getEntityLoadCount()).isZero();
+        assertThat(page.getTotalElements()).isEqualTo(DAYS * HOURS);
+        assertThat(page.getContent()).hasSize(6)
+            .allSatisfy(m -> assertThat(m.getMeasurementDate()).isBefore(START.plusDays(DAYS - 1)));
+        assertThat(ranged.getTotalElements()).isEqualTo(2 * HOURS);
+        assertThat(ranged.getContent()).extracting(MetricResponse::getMeasurementDate)
+            .containsOnly(START.plusDays(2));
+    }
+
+    @Test
+    @DisplayName("Test getMetricsWithAccidents()/getMetricById() - Should match the entity mapping without extra selects")
+    void testProjectionMatchesEntityMapping() {
+        // Given
+        List<MetricResponse> expected = metricRepository
+            .findMetricsWithAccidents(intersection.getId(), START, START.plusDays(DAYS))
+            .stream()
+            .map(MetricResponse::fromEntity)
+            .toList();
+        entityManager.clear();
+        statistics.clear();
+
+        // When
+        List<MetricResponse> accidents = metricService.getMetricsWithAccidents(intersection.getId(),
+                START, START.plusDays(DAYS));
+        MetricResponse single = metricService.getMetricById(accidents.get(0).getId());
+
+        // Then: existsById + select, then one select by id
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(3);
+        assertThat(statistics.getEntityLoadCount()).isZero();
+        assertThat(accidents).hasSize(DAYS - 1)
+            .usingRecursiveFieldByFieldElementComparator()
+            .containsExactlyElementsOf(expected);
+        assertThat(single).usingRecursiveComparison().isEqualTo(expected.get(0));
+    }
+
+    @Test
+    @DisplayName("Test getMetricsPage() - Keyset pages should be one select without entity loads")
+    void testKeysetPageSingleQuery() {
+        // When
+        CursorPage<MetricResponse> page = metricService.getMetricsPage(intersection.getId(), null, null, null, 5, false);
+
+        // Then
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(2);
+        assertThat(statistics.getEntityLoadCount()).isZero();
+        assertThat(page.getItems()).hasSize(5);
+        assertThat(page.getHasMore()).isTrue();
+    }
+
+    private static IntersectionMetric metric(Intersection intersection, LocalDate date, int hour, int accidents) {
+        return metricBuilder(intersection, date, hour)
+            .totalVehicleCount(100 + hour)
+            .averageWaitTime(BigDecimal.valueOf(20 + hour))
+            .throughput(900)
+            .accidentsCount(accidents)
+            .build();
+    }
+}
@@ -0,0 +1,231 @@
+package com.trafficlight.service;
+
+import com.trafficlight.dto.MetricRequest;
+import com.trafficlight.dto.MetricUpsertResult;
+import com.trafficlight.dto.MetricUpsertResult.Key;
+import com.trafficlight.entity.Intersection;
+import com.trafficlight.entity.IntersectionMetric;
+import com.trafficlight.exception.BadRequestException;
+import com.trafficlight.exception.ResourceNotFoundException;
+import com.trafficlight.repository.DailyIntersectionRollupRepository;
+import com.trafficlight.repository.IntersectionMetricRepository;
+import com.trafficlight.repository.IntersectionRepository;
+import com.trafficlight.service.MetricUpsertService.OnConflict;
+import jakarta.persistence.EntityManager;
+import jakarta.validation.Validation;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.QueryTimeoutException;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+
+import static com.trafficlight.TestFixtures.intersection;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+/**
+ * Unit tests for MetricUpsertService
+ * On H2 the batch goes through the MERGE path; the merge expressions are the ones
+ * PostgreSQL runs in ON CONFLICT DO UPDATE. The service commits on its own, so the
+ * test runs without a test transaction
+ */
+@DataJpaTest
+@ActiveProfiles("test")
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+@DisplayName("Metric Upsert Service Tests")
+class MetricUpsertServiceTest {
+
+    private static final LocalDate DAY = LocalDate.of(2026, 10, 12);
+
+    @Autowired
+    private IntersectionMetricRepository metricRepository;
+
+    @Autowired
+    private IntersectionRepository intersectionRepository;
+
+    @Autowired
+    private DailyIntersectionRollupRepository rollupRepository;
+
+    @Autowired
+    private NamedParameterJdbcTemplate namedJdbcTemplate;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private MetricUpsertService upsertService;
+    private MetricColumnStore columnStore;
+    private WaitTimeSketchService sketchService;
+    private Intersection first;
+    private Intersection second;
+
+    @BeforeEach
+    void setUp() {
+        DailyRollupService rollupService = new DailyRollupService(rollupRepository, entityManager, transactionManager, 31, 2);
+        columnStore = mock(MetricColumnStore.class);
+        sketchService = mock(WaitTimeSketchService.class);
+        upsertService = new MetricUpsertService(namedJdbcTemplate, transactionManager,
+                Validation.buildDefaultValidatorFactory().getValidator(), rollupService,
+                sketchService, columnStore);
+
+        first = intersectionRepository.save(intersection("UPSERT-1"));
+        second = intersectionRepository.save(intersection("UPSERT-2"));
+
+        // Saat 8 için kayıtlı ölçüm: 100 araç, ortalama bekleme 20 sn
+        metricRepository.save(IntersectionMetric.builder()
+            .intersection(first)
+            .measurementDate(DAY)
+            .measurementHour(8)
+            .totalVehicleCount(100)
+            .accidentsCount(0)
+            .averageWaitTime(new BigDecimal("20.00"))
+            .maximumWaitTime(new BigDecimal("50.00"))
+            .systemUptimePercentage(new BigDecimal("99.00"))
+            .dataQualityScore(new BigDecimal("0.95"))
+            .notes("ilk")
+            .build());
+    }
+
+    @AfterEach
+    void tearDown() {
+        // Satırlar commit edildi: yalnızca bu testin kavşakları yabancı anahtar sırasıyla silinir
+        // (intersectionRepository.deleteAll() fazları yükler; intersection_phases H2'de oluşturulamıyor)
+        Map<String, Object> ids = Map.of("ids", List.of(first.getId(), second.getId()));
+        for (String table : List.of("daily_intersection_rollups", "wait_time_sketches", "intersection_metrics")) {
+            namedJdbcTemplate.update("DELETE FROM " + table + " WHERE intersection_id IN (:ids)", ids);
+        }
+        namedJdbcTemplate.update("DELETE FROM intersections WHERE id IN (:ids)", ids);
+    }
+
+    @Test
+    @DisplayName("Test upsert(REJECT) - Should insert new keys and report stored and repeated ones")
+    void testReject() {
+        // Given: stored key, a new key twice and a daily metric
+        List<MetricRequest> batch = List.of(
+            metric(first.getId(), 8, 50),
+            metric(second.getId(), 8, 70),
+            metric(second.getId(), 8, 80),
+            metric(first.getId(), null, 900));
+
+        // When
+        MetricUpsertResult result = upsertService.upsert(batch, OnConflict.REJECT);
+
+        // Then
+        assertThat(result.getReceived()).isEqualTo(4);
+        assertThat(result.getInserted()).isEqualTo(2);
+        assertThat(result.getMerged()).isZero();
+        assertThat(result.getRejected()).isEqualTo(2);
+        assertThat(result.getRejectedKeys()).containsExactlyInAnyOrder(
+            new Key(first.getId(), DAY, 8), new Key(second.getId(), DAY, 8));
+        assertThat(stored(first, 8).getTotalVehicleCount()).isEqualTo(100);
+        assertThat(stored(second, 8).getTotalVehicleCount()).isEqualTo(70);
+        assertThat(stored(second, 8).getCarCount()).isZero();
+        assertThat(stored(first, null).getTotalVehicleCount()).isEqualTo(900);
+        verify(columnStore).reloadFrom(DAY);
+    }
+
+    @Test
+    @DisplayName("Test upsert(ADD) - Should sum counts, keep extremes and weight averages by vehicles")
+    void testAdd() {
+        // Given: two additions to the stored hour (same statement is not allowed to touch it twice)
+        MetricRequest busier = metric(first.getId(), 8, 300);
+        busier.setAccidentsCount(1);
+        busier.setAverageWaitTime(new BigDecimal("40.00"));
+        busier.setMaximumWaitTime(new BigDecimal("45.00"));
+        busier.setSystemUptimePercentage(new BigDecimal("97.50"));
+        busier.setDataQualityScore(new BigDecimal("0.90"));
+        busier.setNotes("ikinci");
+        MetricRequest later = metric(first.getId(), 8, 100);
+        later.setAccidentsCount(2);
+
+        // When
+        MetricUpsertResult result = upsertService.upsert(List.of(busier, later,
+                metric(second.getId(), null, 10), metric(second.getId(), null, 5)), OnConflict.ADD);
+
+        // Then
+        assertThat(result.getInserted()).isEqualTo(1);
+        assertThat(result.getMerged()).isEqualTo(3);
+        assertThat(result.getRejected()).isZero();
+
+        IntersectionMetric merged = stored(first, 8);
+        assertThat(merged.getTotalVehicleCount()).isEqualTo(500);
+        assertThat(merged.getAccidentsCount()).isEqualTo(3);
+        assertThat(merged.getAverageWaitTime()).isEqualByComparingTo("35.00");
+        assertThat(merged.getMaximumWaitTime()).isEqualByComparingTo("50.00");
+        assertThat(merged.getSystemUptimePercentage()).isEqualByComparingTo("97.50");
+        assertThat(merged.getDataQualityScore()).isEqualByComparingTo("0.90");
+        assertThat(merged.getNotes()).isEqualTo("ilk");
+        assertThat(stored(second, null).getTotalVehicleCount()).isEqualTo(15);
+        assertThat(metricRepository.countByIntersectionId(first.getId())).isEqualTo(1);
+        assertThat(metricRepository.countByIntersectionId(second.getId())).isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("Test upsert() - Should reject invalid batches without writing")
+    void testValidation() {
+        MetricRequest badHour = metric(first.getId(), 24, 10);
+
+        assertThatThrownBy(() -> upsertService.upsert(List.of(), OnConflict.REJECT))
+            .isInstanceOf(BadRequestException.class);
+        assertThatThrownBy(() -> upsertService.upsert(List.of(badHour), OnConflict.REJECT))
+            .isInstanceOf(BadRequestException.class)
+            .hasMessageContaining("metric 0 measurementHour");
+        assertThatThrownBy(() -> upsertService.upsert(
+                List.of(metric(second.getId(), 9, 10), metric(999_999L, 9, 10)), OnConflict.ADD))
+            .isInstanceOf(ResourceNotFoundException.class)
+            .hasMessageContaining("999999");
+        assertThat(metricRepository.countByIntersectionId(first.getId())).isEqualTo(1);
+        assertThat(metricRepository.countByIntersectionId(second.getId())).isZero();
+        verifyNoInteractions(columnStore);
+    }
+
+    @Test
+    @DisplayName("Test upsert() - Should keep the committed batch when the derived-data rebuild fails")
+    void testRefreshFailure() {
+        // Given: taslak yeniden kurulumu veritabanı hatası veriyor
+        when(sketchService.backfill(DAY, DAY)).thenThrow(new QueryTimeoutException("canceling statement"));
+
+        // When
+        MetricUpsertResult result = upsertService.upsert(List.of(metric(second.getId(), 9, 40)), OnConflict.REJECT);
+
+        // Then
+        assertThat(result.getInserted()).isEqualTo(1);
+        assertThat(stored(second, 9).getTotalVehicleCount()).isEqualTo(40);
+        verify(columnStore).reloadFrom(DAY);
+    }
+
+    private IntersectionMetric stored(Intersection intersection, Integer hour) {
+        return metricRepository.findByIntersectionId(intersection.getId()).stream()
+            .filter(m -> DAY.equals(m.getMeasurementDate()))
+            .filter(m -> hour == null ? m.getMeasurementHour() == null : hour.equals(m.getMeasurementHour()))
+            .findFirst()
+            .orElseThrow();
+    }
+
+    private static MetricRequest metric(Long intersectionId, Integer hour, int vehicles) {
+        MetricRequest request = new MetricRequest();
+        request.setIntersectionId(intersectionId);
+        request.setMeasurementDate(DAY);
+        request.setMeasurementHour(hour);
+        request.setTotalVehicleCount(vehicles);
+        return request;
+    }
+}
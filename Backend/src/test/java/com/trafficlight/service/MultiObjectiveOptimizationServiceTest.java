@@ -0,0 +1,207 @@
+package com.trafficlight.service;
+
+import com.trafficlight.dto.MultiObjectiveRequest;
+import com.trafficlight.dto.MultiObjectiveResponse;
+import com.trafficlight.entity.Intersection;
+import com.trafficlight.entity.IntersectionMetric;
+import com.trafficlight.exception.BadRequestException;
+import com.trafficlight.exception.ResourceNotFoundException;
+import com.trafficlight.repository.IntersectionConfigRepository;
+import com.trafficlight.repository.IntersectionMetricRepository;
+import com.trafficlight.repository.IntersectionRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.offset;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+/**
+ * Unit tests for MultiObjectiveOptimizationService
+ * Surrogate model + grid search engine + Pareto filtering
+ */
+@ExtendWith(MockitoExtension.class)
+@DisplayName("Multi-Objective Optimization Service Tests")
+class MultiObjectiveOptimizationServiceTest {
+
+    @Mock
+    private IntersectionRepository intersectionRepository;
+
+    @Mock
+    private IntersectionMetricRepository metricRepository;
+
+    @Mock
+    private IntersectionConfigRepository configRepository;
+
+    private GridSearchTimingEngine engine;
+    private MultiObjectiveOptimizationService service;
+    private Intersection testIntersection;
+
+    @BeforeEach
+    void setUp() {
+        engine = new GridSearchTimingEngine(2);
+        service = new MultiObjectiveOptimizationService(intersectionRepository, metricRepository,
+                configRepository, List.of(engine), GridSearchTimingEngine.NAME, 15, 50);
+
+        testIntersection = Intersection.builder()
+            .id(1L)
+            .name("Test Intersection")
+            .code("TEST-001")
+            .lanesCount(4)
+            .build();
+    }
+
+    @AfterEach
+    void tearDown() {
+        engine.shutdown();
+    }
+
+    private List<IntersectionMetric> sampleMetrics() {
+        List<IntersectionMetric> metrics = new ArrayList<>();
+        for (int hour = 0; hour < 24; hour++) {
+            int vehicles = 400 + hour * 30;
+            double wait = 20 + hour;
+            metrics.add(IntersectionMetric.builder()
+                .measurementDate(LocalDate.now())
+                .measurementHour(hour)
+                .totalVehicleCount(vehicles)
+                .throughput(vehicles - 20)
+                .averageWaitTime(BigDecimal.valueOf(wait))
+                .estimatedCo2Emission(BigDecimal.valueOf(5 + 2.1 * wait * vehicles / 3600.0))
+                .build());
+        }
+        return metrics;
+    }
+
+    @Test
+    @DisplayName("Test optimize() - Should return ranked Pareto alternatives")
+    void testOptimizeReturnsParetoAlternatives() {
+        // Given
+        when(intersectionRepository.findById(1L)).thenReturn(Optional.of(testIntersection));
+        when(configRepository.findByIntersectionId(1L)).thenReturn(Collections.emptyList());
+        when(metricRepository.findByIntersectionIdAndDateRange(eq(1L), any(), any()))
+            .thenReturn(sampleMetrics());
+
+        MultiObjectiveRequest request = MultiObjectiveRequest.builder()
+            .intersectionId(1L)
+            .maxAlternatives(5)
+            .build();
+
+        // When
+        MultiObjectiveResponse response = service.optimize(request);
+
+        // Then
+        assertThat(response.getAlternatives()).isNotEmpty().hasSizeLessThanOrEqualTo(5);
+        assertThat(response.getRecommended()).isEqualTo(response.getAlternatives().get(0));
+        assertThat(response.getParetoFrontSize()).isLessThanOrEqualTo(response.getEvaluatedCandidates());
+        assertThat(response.getAlternatives())
+            .isSortedAccordingTo((a, b) -> Double.compare(a.getWeightedScore(), b.getWeightedScore()));
+        assertThat(response.getModel().getSampleCount()).isEqualTo(24);
+        assertThat(response.getModel().getCo2PerVehicleHourDelay()).isCloseTo(2.1, offset(0.05));
+        response.getAlternatives().forEach(a ->
+            assertThat(a.getMainGreen() + a.getCrossGreen()).isLessThan(a.getCycleLength()));
+    }
+
+    @Test
+    @DisplayName("Test optimize() - Model should be cached between calls")
+    void testOptimizeCachesModel() {
+        // Given
+        when(intersectionRepository.findById(1L)).thenReturn(Optional.of(testIntersection));
+        when(configRepository.findByIntersectionId(1L)).thenReturn(Collections.emptyList());
+        when(metricRepository.findByIntersectionIdAndDateRange(eq(1L), any(), any()))
+            .thenReturn(sampleMetrics());
+        MultiObjectiveRequest request = MultiObjectiveRequest.builder().intersectionId(1L).build();
+
+        // When
+        service.optimize(request);
+        service.optimize(request);
+
+        // Then
+        verify(metricRepository, times(1)).findByIntersectionIdAndDateRange(eq(1L), any(), any());
+    }
+
+    @Test
+    @DisplayName("Test optimize() - Delay-only weights should favour the lowest delay")
+    void testOptimizeDelayOnlyWeights() {
+        // Given
+        when(intersectionRepository.findById(1L)).thenReturn(Optional.of(testIntersection));
+        when(configRepository.findByIntersectionId(1L)).thenReturn(Collections.emptyList());
+        when(metricRepository.findByIntersectionIdAndDateRange(eq(1L), any(), any()))
+            .thenReturn(sampleMetrics());
+        MultiObjectiveRequest request = MultiObjectiveRequest.builder()
+            .intersectionId(1L)
+            .delayWeight(1.0)
+            .emissionWeight(0.0)
+            .pedestrianWeight(0.0)
+            .maxAlternatives(50)
+            .build();
+
+        // When
+        MultiObjectiveResponse response = service.optimize(request);
+
+        // Then
+        double minDelay = response.getAlternatives().stream()
+            .mapToDouble(MultiObjectiveResponse.TimingAlternative::getPredictedDelay)
+            .min().orElseThrow();
+        assertThat(response.getRecommended().getPredictedDelay()).isEqualTo(minDelay);
+    }
+
+    @Test
+    @DisplayName("Test paretoFront() - Should drop dominated candidates")
+    void testParetoFrontDropsDominated() {
+        // Given
+        TimingCandidate best = new TimingCandidate(60, 30, 20, 10, 10, 10);
+        TimingCandidate dominated = new TimingCandidate(60, 31, 19, 11, 12, 10);
+        TimingCandidate tradeOff = new TimingCandidate(90, 50, 30, 15, 8, 25);
+
+        // When
+        List<TimingCandidate> front = MultiObjectiveOptimizationService.paretoFront(
+            List.of(dominated, tradeOff, best));
+
+        // Then
+        assertThat(front).containsExactlyInAnyOrder(best, tradeOff);
+    }
+
+    @Test
+    @DisplayName("Test optimize() - Should throw exception when intersection not found")
+    void testOptimizeIntersectionNotFound() {
+        // Given
+        when(intersectionRepository.findById(999L)).thenReturn(Optional.empty());
+        MultiObjectiveRequest request = MultiObjectiveRequest.builder().intersectionId(999L).build();
+
+        // When & Then
+        assertThatThrownBy(() -> service.optimize(request))
+            .isInstanceOf(ResourceNotFoundException.class);
+    }
+
+    @Test
+    @DisplayName("Test optimize() - Should reject unknown engine")
+    void testOptimizeUnknownEngine() {
+        // Given
+        MultiObjectiveRequest request = MultiObjectiveRequest.builder()
+            .intersectionId(1L)
+            .engine("simulated-annealing")
+            .build();
+
+        // When & Then
+        assertThatThrownBy(() -> service.optimize(request))
+            .isInstanceOf(BadRequestException.class)
+            .hasMessageContaining("simulated-annealing");
+        verify(intersectionRepository, never()).findById(any());
+    }
+}
@@ -0,0 +1,111 @@
+package com.trafficlight.service;
+
+import com.trafficlight.entity.TrafficRule;
+import com.trafficlight.event.RuleSetChangedEvent;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Unit tests for OptimizationDecisionCache
+ * Hits and misses, rule set invalidation, TTL expiry and the LRU bound
+ */
+@DisplayName("Optimization Decision Cache Tests")
+class OptimizationDecisionCacheTest {
+
+    private static final OptimizationDecisionCache.DecisionKey KEY =
+            new OptimizationDecisionCache.DecisionKey(1L, 2, 7L, 16, false);
+
+    private SimpleMeterRegistry meterRegistry;
+    private OptimizationDecisionCache cache;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        cache = new OptimizationDecisionCache(meterRegistry, true, 2, 300);
+    }
+
+    private static OptimizationDecisionCache.CachedDecision decision(int newDuration) {
+        TrafficRule rule = TrafficRule.builder()
+            .id(1L)
+            .ruleName("Yoğun Saat")
+            .ruleType(TrafficRule.RuleType.PEAK_HOUR)
+            .priority(1)
+            .baseGreenDuration(30)
+            .build();
+        return new OptimizationDecisionCache.CachedDecision(rule, List.of(), 30, newDuration, "Yoğun", null);
+    }
+
+    @Test
+    @DisplayName("Test get() - Should miss until a decision is stored, then hit")
+    void testHitAndMiss() {
+        // Given
+        assertThat(cache.get(KEY)).isNull();
+        OptimizationDecisionCache.CachedDecision stored = decision(40);
+
+        // When
+        cache.put(KEY, stored);
+
+        // Then
+        assertThat(cache.get(KEY)).isSameAs(stored);
+        assertThat(cache.get(new OptimizationDecisionCache.DecisionKey(1L, 3, 7L, 16, false))).isNull();
+        assertThat(meterRegistry.counter("optimization.decision.cache.hits").count()).isEqualTo(1);
+        assertThat(meterRegistry.counter("optimization.decision.cache.misses").count()).isEqualTo(2);
+        assertThat(cache.hitRatio()).isEqualTo(1.0 / 3);
+    }
+
+    @Test
+    @DisplayName("Test onRuleSetChanged() - A new rule set version should evict every decision")
+    void testRuleSetChangeInvalidates() {
+        // Given
+        cache.put(KEY, decision(40));
+        cache.put(new OptimizationDecisionCache.DecisionKey(2L, 2, 7L, 16, false), decision(35));
+
+        // When
+        cache.onRuleSetChanged(new RuleSetChangedEvent(8L, "kural güncellendi"));
+
+        // Then
+        assertThat(cache.size()).isZero();
+        assertThat(cache.get(KEY)).isNull();
+    }
+
+    @Test
+    @DisplayName("Test get() - Decisions older than the TTL should be dropped")
+    void testTtlExpiry() throws InterruptedException {
+        // Given: TTL 0 sn, her kayıt ilk milisaniyeden sonra eskimiş sayılır
+        OptimizationDecisionCache shortLived = new OptimizationDecisionCache(meterRegistry, true, 10, 0);
+        shortLived.put(KEY, decision(40));
+
+        // When
+        Thread.sleep(5);
+
+        // Then
+        assertThat(shortLived.get(KEY)).isNull();
+        assertThat(shortLived.size()).isZero();
+    }
+
+    @Test
+    @DisplayName("Test put() - Should evict the least recently used decision beyond max entries")
+    void testLruBound() {
+        // Given
+        OptimizationDecisionCache.DecisionKey second = new OptimizationDecisionCache.DecisionKey(2L, 2, 7L, 16, false);
+        OptimizationDecisionCache.DecisionKey third = new OptimizationDecisionCache.DecisionKey(3L, 2, 7L, 16, false);
+        cache.put(KEY, decision(40));
+        cache.put(second, decision(35));
+        cache.get(KEY);
+
+        // When
+        cache.put(third, decision(45));
+
+        // Then
+        assertThat(cache.size()).isEqualTo(2);
+        assertThat(cache.get(second)).isNull();
+        assertThat(cache.get(KEY)).isNotNull();
+        assertThat(cache.get(third)).isNotNull();
+    }
+}
@@ -0,0 +1,169 @@
+package com.trafficlight.service;
+
+import com.trafficlight.entity.EmergencyVehicle;
+import com.trafficlight.entity.Intersection;
+import com.trafficlight.repository.EmergencyEventRepository;
+import com.trafficlight.repository.IntersectionRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.when;
+
+/**
+ * Unit tests for PreemptionPlanner
+ * Route following on the in-memory intersection graph (100 x 100 city grid)
+ */
+@ExtendWith(MockitoExtension.class)
+@DisplayName("Preemption Planner Tests")
+class PreemptionPlannerTest {
+
+    private static final int GRID = 100;
+    private static final double SPACING_METERS = 250;
+    private static final long MAINTENANCE_ID = id(50, 14);
+
+    @Mock
+    private IntersectionRepository intersectionRepository;
+
+    @Mock
+    private EmergencyEventRepository emergencyEventRepository;
+
+    private PreemptionPlanner planner;
+
+    @BeforeEach
+    void setUp() {
+        when(intersectionRepository.findAllLocations()).thenReturn(cityGrid());
+        IntersectionSpatialIndex spatialIndex = new IntersectionSpatialIndex(intersectionRepository, 1500);
+        spatialIndex.rebuild();
+        CorridorTravelTimes corridorTravelTimes = new CorridorTravelTimes(emergencyEventRepository, spatialIndex,
+                0.2, 300, 30, 5);
+        planner = new PreemptionPlanner(spatialIndex, corridorTravelTimes, 45, 120, 8, 6, 30);
+    }
+
+    private static long id(int row, int col) {
+        return row * (long) GRID + col + 1;
+    }
+
+    /**
+     * 10.000 kavşaklık ızgara; satırlar kuzeye, sütunlar doğuya doğru artar (±%5 sapma)
+     */
+    private static List<Object[]> cityGrid() {
+        double baseLat = 39.90;
+        double baseLon = 32.80;
+        double latStep = SPACING_METERS / 110_540.0;
+        double lonStep = SPACING_METERS / (111_320.0 * Math.cos(Math.toRadians(baseLat + GRID / 2.0 * latStep)));
+        Random random = new Random(7);
+
+        List<Object[]> rows = new ArrayList<>();
+        for (int r = 0; r < GRID; r++) {
+            for (int c = 0; c < GRID; c++) {
+                double lat = baseLat + r * latStep + (random.nextDouble() - 0.5) * latStep * 0.1;
+                double lon = baseLon + c * lonStep + (random.nextDouble() - 0.5) * lonStep * 0.1;
+                rows.add(new Object[]{
+                    id(r, c),
+                    "Kavşak-" + r + "-" + c,
+                    BigDecimal.valueOf(lat),
+                    BigDecimal.valueOf(lon),
+                    id(r, c) == MAINTENANCE_ID
+                        ? Intersection.IntersectionStatus.MAINTENANCE
+                        : Intersection.IntersectionStatus.ACTIVE
+                });
+            }
+        }
+        return rows;
+    }
+
+    @Test
+    @DisplayName("Test plan() - Should follow the travel direction with staggered green windows")
+    void testPlanFollowsRoute() {
+        // When: batıdan geliyor → doğuya gidiyor, 36 km/sa = 10 m/s
+        PreemptionPlan plan = planner.plan(id(50, 10), EmergencyVehicle.Direction.WEST, 36.0);
+
+        // Then: 120s ufukta ~1200m → 4 kavşak; bakımdaki kavşak atlanır
+        assertThat(plan.heading()).isEqualTo(EmergencyVehicle.Direction.EAST);
+        assertThat(plan.windows())
+            .extracting(PreemptionPlan.Window::intersectionId)
+            .containsExactly(id(50, 10), id(50, 11), id(50, 12), id(50, 13));
+
+        PreemptionPlan.Window origin = plan.windows().get(0);
+        assertThat(origin.greenStartSeconds()).isZero();
+        assertThat(origin.greenEndSeconds()).isEqualTo(14);
+
+        for (int i = 1; i < plan.windows().size(); i++) {
+            PreemptionPlan.Window previous = plan.windows().get(i - 1);
+            PreemptionPlan.Window window = plan.windows().get(i);
+            assertThat(window.etaSeconds()).isGreaterThan(previous.etaSeconds());
+            assertThat(window.greenStartSeconds()).isEqualTo(window.etaSeconds() - 8);
+            assertThat(window.holdSeconds()).isEqualTo(14);
+        }
+        assertThat(plan.conflictingApproaches())
+            .containsExactly(EmergencyVehicle.Direction.NORTH, EmergencyVehicle.Direction.SOUTH);
+    }
+
+    @Test
+    @DisplayName("Test plan() - Maintenance intersection stays on the route without a window")
+    void testPlanSkipsMaintenanceIntersection() {
+        // When
+        PreemptionPlan plan = planner.plan(id(50, 12), EmergencyVehicle.Direction.WEST, 36.0);
+
+        // Then
+        assertThat(plan.windows())
+            .extracting(PreemptionPlan.Window::intersectionId)
+            .doesNotContain(MAINTENANCE_ID)
+            .contains(id(50, 15));
+    }
+
+    @Test
+    @DisplayName("Test plan() - Vehicle heading off the map should only preempt the origin")
+    void testPlanAtCityEdge() {
+        // When: güneyden geliyor → kuzeye gidiyor, en kuzey satırda
+        PreemptionPlan plan = planner.plan(id(GRID - 1, 40), EmergencyVehicle.Direction.SOUTH, null);
+
+        // Then
+        assertThat(plan.heading()).isEqualTo(EmergencyVehicle.Direction.NORTH);
+        assertThat(plan.windows()).hasSize(1);
+        assertThat(plan.speedKmh()).isEqualTo(45.0);
+    }
+
+    @Test
+    @DisplayName("Test plan() - Unknown intersection should still get an immediate green")
+    void testPlanUnknownIntersection() {
+        // When
+        PreemptionPlan plan = planner.plan(999_999L, EmergencyVehicle.Direction.NORTH, 50.0);
+
+        // Then
+        assertThat(plan.windows()).hasSize(1);
+        assertThat(plan.windows().get(0).name()).isEqualTo("Kavşak-999999");
+        assertThat(plan.clearSeconds()).isEqualTo(14);
+    }
+
+    @Test
+    @DisplayName("Test plan() - Plans on a 10k intersection city should take well under 5ms")
+    void testPlanLatency() {
+        // Given
+        EmergencyVehicle.Direction[] directions = EmergencyVehicle.Direction.values();
+        long[] nanos = new long[2_000];
+
+        // When
+        for (int i = 0; i < nanos.length; i++) {
+            long origin = 1 + (i * 37L) % (GRID * GRID);
+            nanos[i] = planner.plan(origin, directions[i % directions.length], null).planningNanos();
+        }
+
+        // Then: JIT ısınması hariç p99
+        long[] measured = Arrays.copyOfRange(nanos, 200, nanos.length);
+        Arrays.sort(measured);
+        long p99 = measured[(int) (measured.length * 0.99)];
+        assertThat(p99).isLessThan(5_000_000L);
+    }
+}
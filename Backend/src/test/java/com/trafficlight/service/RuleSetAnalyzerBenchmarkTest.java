@@ -0,0 +1,159 @@
+package com.trafficlight.service;
+
+import com.trafficlight.dto.RuleAnalysisResponse;
+import com.trafficlight.entity.TrafficRule;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Benchmark: static analysis of a large rule set
+ *
+ * Every rule save runs RuleSetAnalyzer over the active rules plus the candidate;
+ * 20.000 rules must stay well inside the request budget once the JIT has warmed up.
+ * Rule sets with distinct boundaries are measured just below the cell limit (dense grid)
+ * and above it (coarse sweep).
+ *
+ * Run with: mvn -Pbenchmark test
+ */
+@Tag("benchmark")
+@DisplayName("Rule Set Analyzer Benchmark")
+class RuleSetAnalyzerBenchmarkTest {
+
+    private static final int RULES = 20_000;
+    private static final int WARMUP_ROUNDS = 3;
+    private static final int ROUNDS = 10;
+    private static final long BUDGET_MS = 2_000L;
+    private static final long MAX_CELLS = 16_000_000L;
+
+    @Test
+    @DisplayName("analyze() - 20.000 rules under the budget")
+    void benchmarkLargeRuleSet() {
+        // Given
+        RuleSetAnalyzer analyzer = new RuleSetAnalyzer(MAX_CELLS);
+        List<TrafficRule> rules = new ArrayList<>();
+        for (int i = 0; i < RULES; i++) {
+            int min = (i * 7) % 120;
+            int hour = i % 24;
+            rules.add(TrafficRule.builder()
+                .id(i + 1L)
+                .ruleName("RULE_" + i)
+                .ruleType(TrafficRule.RuleType.CUSTOM)
+                .active(true)
+                .priority(i % 500)
+                .minVehicleCount(min)
+                .maxVehicleCount(min + 15)
+                .timeStart(LocalTime.of(hour, (i * 13) % 60))
+                .timeEnd(LocalTime.of(hour, 59))
+                .dayType(TrafficRule.DayType.values()[i % 3])
+                .baseGreenDuration(30)
+                .greenDurationAdjustment(i % 21 - 10)
+                .minGreenDuration(15)
+                .maxGreenDuration(90)
+                .build());
+        }
+        for (int i = 0; i < WARMUP_ROUNDS; i++) {
+            analyzer.analyze(rules);
+        }
+
+        // When
+        long worst = 0;
+        long total = 0;
+        RuleAnalysisResponse report = null;
+        for (int i = 0; i < ROUNDS; i++) {
+            report = analyzer.analyze(rules);
+            worst = Math.max(worst, report.getElapsedMs());
+            total += report.getElapsedMs();
+        }
+
+        // Then
+        System.out.printf("rules=%d cells=%,d  avg: %6.1fms  max: %5dms (budget %dms)%n",
+                RULES, report.getGridCells(), (double) total / ROUNDS, worst, BUDGET_MS);
+        assertThat(report.getAnalyzedRules()).isEqualTo(RULES);
+        assertThat(worst).isLessThan(BUDGET_MS);
+    }
+
+    @Test
+    @DisplayName("analyze() - Rule set just below the cell limit under the budget")
+    void benchmarkNearCellLimit() {
+        // Given: ~1.990 kural, her sınır farklı -> düzlem başına ~15,9M hücre
+        List<TrafficRule> rules = spreadRules(1_990);
+        RuleAnalysisResponse report = measure(rules, "near-limit");
+
+        // Then
+        assertThat(report.getCoarse()).isFalse();
+        assertThat(report.getGridCells()).isGreaterThan(MAX_CELLS * 2 * 9 / 10);
+    }
+
+    @Test
+    @DisplayName("analyze() - Rule set above the cell limit falls back to the coarse check under the budget")
+    void benchmarkAboveCellLimit() {
+        // Given: 4.000 kural -> düzlem başına ~64M hücre, ızgara kurulmaz
+        List<TrafficRule> rules = spreadRules(4_000);
+        RuleAnalysisResponse report = measure(rules, "above-limit");
+
+        // Then
+        assertThat(report.getCoarse()).isTrue();
+        assertThat(report.getCandidateAccepted()).isNotNull();
+    }
+
+    private RuleAnalysisResponse measure(List<TrafficRule> rules, String label) {
+        RuleSetAnalyzer analyzer = new RuleSetAnalyzer(MAX_CELLS);
+        TrafficRule candidate = spreadRule(rules.size() / 2, rules.size() / 2 * 2 + 1);
+        candidate.setId(null);
+        for (int i = 0; i < WARMUP_ROUNDS; i++) {
+            analyzer.analyze(rules, candidate);
+        }
+
+        // When
+        long worst = 0;
+        long total = 0;
+        RuleAnalysisResponse report = null;
+        for (int i = 0; i < ROUNDS; i++) {
+            report = analyzer.analyze(rules, candidate);
+            worst = Math.max(worst, report.getElapsedMs());
+            total += report.getElapsedMs();
+        }
+
+        System.out.printf("%s: rules=%d cells=%,d  avg: %6.1fms  max: %5dms (budget %dms)%n",
+                label, rules.size(), report.getGridCells(), (double) total / ROUNDS, worst, BUDGET_MS);
+        assertThat(report.getAnalyzedRules()).isEqualTo(rules.size() + 1);
+        assertThat(worst).isLessThan(BUDGET_MS);
+        return report;
+    }
+
+    private List<TrafficRule> spreadRules(int count) {
+        List<TrafficRule> rules = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            rules.add(spreadRule(i, i));
+        }
+        return rules;
+    }
+
+    /** Sayım ve saat sınırları kurallar arasında hiç çakışmaz: her kural ızgaraya iki satır ve iki sütun ekler */
+    private TrafficRule spreadRule(int i, int priority) {
+        int start = i * 20;
+        return TrafficRule.builder()
+            .id(i + 1L)
+            .ruleName("SPREAD_" + i)
+            .ruleType(TrafficRule.RuleType.CUSTOM)
+            .active(true)
+            .priority(priority)
+            .minVehicleCount(2 * i)
+            .maxVehicleCount(2 * i + 40)
+            .timeStart(LocalTime.ofSecondOfDay(start))
+            .timeEnd(LocalTime.ofSecondOfDay(Math.min(start + 3_607, 86_399)))
+            .dayType(TrafficRule.DayType.values()[i % 3])
+            .baseGreenDuration(30)
+            .greenDurationAdjustment(i % 21 - 10)
+            .minGreenDuration(15)
+            .maxGreenDuration(90)
+            .build();
+    }
+}
@@ -0,0 +1,283 @@
+package com.trafficlight.service;
+
+import com.trafficlight.dto.RuleAnalysisResponse;
+import com.trafficlight.dto.RuleAnalysisResponse.FindingStatus;
+import com.trafficlight.entity.TrafficRule;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.offset;
+
+/**
+ * Unit tests for RuleSetAnalyzer
+ * Shadowing, invalid rules, gaps, conflicts and candidate gating
+ */
+@DisplayName("Rule Set Analyzer Tests")
+class RuleSetAnalyzerTest {
+
+    private RuleSetAnalyzer analyzer;
+
+    @BeforeEach
+    void setUp() {
+        analyzer = new RuleSetAnalyzer(16_000_000L);
+    }
+
+    private TrafficRule rule(long id, String name, int priority, Integer min, Integer max,
+                             LocalTime start, LocalTime end, TrafficRule.DayType dayType, int adjustment) {
+        return TrafficRule.builder()
+            .id(id)
+            .ruleName(name)
+            .ruleType(TrafficRule.RuleType.CUSTOM)
+            .active(true)
+            .priority(priority)
+            .minVehicleCount(min)
+            .maxVehicleCount(max)
+            .timeStart(start)
+            .timeEnd(end)
+            .dayType(dayType)
+            .baseGreenDuration(30)
+            .greenDurationAdjustment(adjustment)
+            .minGreenDuration(15)
+            .maxGreenDuration(90)
+            .build();
+    }
+
+    @Test
+    @DisplayName("Test analyze() - Rule covered by a higher-priority rule should be shadowed")
+    void testShadowedRule() {
+        // Given
+        TrafficRule broad = rule(1, "BROAD", 1, 20, null, null, null, TrafficRule.DayType.ALL, 10);
+        TrafficRule narrow = rule(2, "NARROW", 2, 30, 50,
+            LocalTime.of(7, 0), LocalTime.of(9, 0), TrafficRule.DayType.WEEKDAY, 5);
+
+        // When
+        RuleAnalysisResponse report = analyzer.analyze(List.of(broad, narrow));
+
+        // Then
+        assertThat(report.getShadowedRules()).isEqualTo(1);
+        RuleAnalysisResponse.RuleFinding finding = report.getFindings().get(0);
+        assertThat(finding.getRuleName()).isEqualTo("NARROW");
+        assertThat(finding.getStatus()).isEqualTo(FindingStatus.SHADOWED);
+        assertThat(finding.getShadowedBy()).containsExactly("BROAD");
+    }
+
+    @Test
+    @DisplayName("Test analyze() - Partially overlapped rule should report its remaining coverage")
+    void testPartiallyShadowedRule() {
+        // Given: HIGH wins 40+, LOW (25+) keeps 25-39 only
+        TrafficRule high = rule(1, "HIGH", 1, 40, null, null, null, TrafficRule.DayType.ALL, 20);
+        TrafficRule low = rule(2, "LOW", 2, 25, 54, null, null, TrafficRule.DayType.ALL, 10);
+
+        // When
+        RuleAnalysisResponse report = analyzer.analyze(List.of(high, low));
+
+        // Then
+        assertThat(report.getPartiallyShadowedRules()).isEqualTo(1);
+        RuleAnalysisResponse.RuleFinding finding = report.getFindings().get(0);
+        assertThat(finding.getRuleName()).isEqualTo("LOW");
+        assertThat(finding.getEffectiveCoverage()).isCloseTo(0.5, offset(0.001));
+    }
+
+    @Test
+    @DisplayName("Test analyze() - Midnight-wrapping window and min > max should be invalid")
+    void testInvalidRules() {
+        // Given
+        TrafficRule wrap = rule(1, "WRAP", 1, null, null,
+            LocalTime.of(22, 0), LocalTime.of(6, 0), TrafficRule.DayType.ALL, -10);
+        TrafficRule inverted = rule(2, "INVERTED", 2, 50, 10, null, null, TrafficRule.DayType.ALL, 5);
+
+        // When
+        RuleAnalysisResponse report = analyzer.analyze(List.of(wrap, inverted));
+
+        // Then
+        assertThat(report.getInvalidRules()).isEqualTo(2);
+        assertThat(report.getFindings())
+            .extracting(RuleAnalysisResponse.RuleFinding::getStatus)
+            .containsOnly(FindingStatus.INVALID);
+        assertThat(report.getGapRatio()).isEqualTo(1.0);
+    }
+
+    @Test
+    @DisplayName("Test analyze() - Uncovered weekend and low counts should be reported as gaps")
+    void testGaps() {
+        // Given: only weekdays, only 10+ vehicles
+        TrafficRule weekday = rule(1, "WEEKDAY_ONLY", 1, 10, null, null, null, TrafficRule.DayType.WEEKDAY, 5);
+
+        // When
+        RuleAnalysisResponse report = analyzer.analyze(List.of(weekday));
+
+        // Then
+        assertThat(report.getGaps()).anySatisfy(gap -> {
+            assertThat(gap.getDayType()).isEqualTo("WEEKDAY");
+            assertThat(gap.getVehicleCountFrom()).isZero();
+            assertThat(gap.getVehicleCountTo()).isEqualTo(9);
+            assertThat(gap.getTimeFrom()).isEqualTo("00:00");
+            assertThat(gap.getTimeTo()).isEqualTo("24:00");
+        });
+        assertThat(report.getGaps()).anySatisfy(gap -> {
+            assertThat(gap.getDayType()).isEqualTo("WEEKEND");
+            assertThat(gap.getVehicleCountFrom()).isZero();
+            assertThat(gap.getVehicleCountTo()).isNull();
+        });
+        assertThat(report.getShadowedRules()).isZero();
+    }
+
+    @Test
+    @DisplayName("Test analyze() - Overlapping same-priority rules with different outcomes should conflict")
+    void testSamePriorityConflict() {
+        // Given
+        TrafficRule first = rule(1, "FIRST", 3, 20, 60, null, null, TrafficRule.DayType.ALL, 10);
+        TrafficRule second = rule(2, "SECOND", 3, 40, null, null, null, TrafficRule.DayType.ALL, 20);
+        TrafficRule twin = rule(3, "TWIN", 3, 0, 19, null, null, TrafficRule.DayType.ALL, 10);
+
+        // When
+        RuleAnalysisResponse report = analyzer.analyze(List.of(first, second, twin));
+
+        // Then
+        assertThat(report.getConflictCount()).isEqualTo(1);
+        assertThat(report.getConflicts().get(0).getFirstRule()).isEqualTo("FIRST");
+        assertThat(report.getConflicts().get(0).getSecondRule()).isEqualTo("SECOND");
+    }
+
+    @Test
+    @DisplayName("Test analyze(candidate) - Shadowed candidate should be rejected")
+    void testCandidateGate() {
+        // Given
+        TrafficRule broad = rule(1, "BROAD", 1, 0, null, null, null, TrafficRule.DayType.ALL, 0);
+        TrafficRule candidate = rule(0, "NEW_RULE", 5, 30, null, null, null, TrafficRule.DayType.ALL, 10);
+        candidate.setId(null);
+
+        // When
+        RuleAnalysisResponse report = analyzer.analyze(List.of(broad), candidate);
+
+        // Then
+        assertThat(report.getCandidate().getStatus()).isEqualTo(FindingStatus.SHADOWED);
+        assertThat(report.getCandidateAccepted()).isFalse();
+    }
+
+    @Test
+    @DisplayName("Test analyze() - Tens of thousands of rules should be analyzed within the grid limit")
+    void testLargeRuleSet() {
+        // Given
+        List<TrafficRule> rules = new ArrayList<>();
+        for (int i = 0; i < 20_000; i++) {
+            int min = (i * 7) % 120;
+            int hour = i % 24;
+            rules.add(rule(i + 1, "RULE_" + i, i % 500, min, min + 15,
+                LocalTime.of(hour, (i * 13) % 60), LocalTime.of(hour, 59),
+                TrafficRule.DayType.values()[i % 3], i % 21 - 10));
+        }
+
+        // When
+        RuleAnalysisResponse report = analyzer.analyze(rules);
+
+        // Then: süre bütçesi RuleSetAnalyzerBenchmarkTest'te (-Pbenchmark)
+        assertThat(report.getAnalyzedRules()).isEqualTo(20_000);
+        assertThat(report.getFindings()).hasSizeLessThanOrEqualTo(100);
+        assertThat(report.getGridCells()).isPositive().isLessThanOrEqualTo(2 * 16_000_000L);
+    }
+
+    @Test
+    @DisplayName("Test analyze() - Reused grid buffers should not leak cells of an earlier, larger analysis")
+    void testBufferReuse() {
+        // Given: önce çok parçalı bir set, tamponlar büyür
+        List<TrafficRule> large = new ArrayList<>();
+        for (int i = 0; i < 200; i++) {
+            large.add(rule(i + 1, "RULE_" + i, 1, i, i + 3, LocalTime.of(i % 24, 0), LocalTime.of(i % 24, 30),
+                TrafficRule.DayType.ALL, 5));
+        }
+        analyzer.analyze(large);
+        TrafficRule high = rule(1, "HIGH", 1, 40, null, null, null, TrafficRule.DayType.ALL, 20);
+        TrafficRule low = rule(2, "LOW", 2, 25, 54, null, null, TrafficRule.DayType.WEEKDAY, 10);
+
+        // When
+        RuleAnalysisResponse reused = analyzer.analyze(List.of(high, low));
+        RuleAnalysisResponse fresh = new RuleSetAnalyzer(16_000_000L).analyze(List.of(high, low));
+
+        // Then
+        assertThat(reused).usingRecursiveComparison()
+            .ignoringFields("elapsedMs", "analyzedAt")
+            .isEqualTo(fresh);
+        assertThat(reused.getFindings()).singleElement()
+            .satisfies(finding -> assertThat(finding.getEffectiveCoverage()).isCloseTo(0.5, offset(0.001)));
+    }
+
+    @Test
+    @DisplayName("Test analyze() - Above the cell limit the candidate gate should match the grid analysis")
+    void testCoarseCandidateMatchesGrid() {
+        // Given: aynı kural seti, biri ızgara limiti 1 hücre olan iki analizci
+        RuleSetAnalyzer coarse = new RuleSetAnalyzer(1L);
+        Random random = new Random(29);
+        List<TrafficRule> rules = new ArrayList<>();
+        for (int i = 0; i < 60; i++) {
+            rules.add(randomRule(random, i + 1, "RULE_" + i));
+        }
+
+        for (int c = 0; c < 200; c++) {
+            TrafficRule candidate = randomRule(random, 0, "CANDIDATE_" + c);
+            candidate.setId(null);
+
+            // When
+            RuleAnalysisResponse grid = analyzer.analyze(rules, candidate);
+            RuleAnalysisResponse rough = coarse.analyze(rules, candidate);
+
+            // Then
+            assertThat(grid.getCoarse()).isFalse();
+            assertThat(rough.getCoarse()).isTrue();
+            assertThat(rough.getCandidate().getStatus()).as("candidate %d", c)
+                .isEqualTo(grid.getCandidate().getStatus());
+            assertThat(rough.getCandidate().getEffectiveCoverage()).as("candidate %d", c)
+                .isCloseTo(grid.getCandidate().getEffectiveCoverage(), offset(0.0002));
+            assertThat(rough.getCandidateAccepted()).as("candidate %d", c)
+                .isEqualTo(grid.getCandidateAccepted());
+        }
+    }
+
+    @Test
+    @DisplayName("Test analyze() - Above the cell limit the whole-set report should list invalid rules and conflicts")
+    void testCoarseReport() {
+        // Given
+        RuleSetAnalyzer coarse = new RuleSetAnalyzer(1L);
+        TrafficRule first = rule(1, "FIRST", 2, 10, 40, null, null, TrafficRule.DayType.ALL, 5);
+        TrafficRule second = rule(2, "SECOND", 2, 30, 60, null, null, TrafficRule.DayType.WEEKDAY, 10);
+        TrafficRule broken = rule(3, "BROKEN", 3, 50, 20, null, null, TrafficRule.DayType.ALL, 0);
+
+        // When
+        RuleAnalysisResponse report = coarse.analyze(List.of(first, second, broken));
+
+        // Then
+        assertThat(report.getCoarse()).isTrue();
+        assertThat(report.getAnalyzedRules()).isEqualTo(3);
+        assertThat(report.getInvalidRules()).isEqualTo(1);
+        assertThat(report.getFindings()).singleElement()
+            .satisfies(finding -> assertThat(finding.getStatus()).isEqualTo(FindingStatus.INVALID));
+        assertThat(report.getConflicts()).singleElement()
+            .satisfies(conflict -> {
+                assertThat(conflict.getFirstRule()).isEqualTo("FIRST");
+                assertThat(conflict.getSecondRule()).isEqualTo("SECOND");
+            });
+        assertThat(report.getGaps()).isEmpty();
+        assertThat(report.getCandidate()).isNull();
+    }
+
+    private TrafficRule randomRule(Random random, long id, String name) {
+        Integer min = random.nextInt(4) == 0 ? null : random.nextInt(60);
+        Integer max = random.nextInt(4) == 0 ? null : (min != null ? min : 0) + random.nextInt(60);
+        LocalTime start = null;
+        LocalTime end = null;
+        if (random.nextBoolean()) {
+            int from = random.nextInt(20);
+            start = LocalTime.of(from, random.nextInt(4) * 15);
+            end = LocalTime.of(from + 1 + random.nextInt(23 - from), 59);
+        }
+        return rule(id, name, random.nextInt(4), min, max, start, end,
+            TrafficRule.DayType.values()[random.nextInt(3)], random.nextInt(3) * 5);
+    }
+}
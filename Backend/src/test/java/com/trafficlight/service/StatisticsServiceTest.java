@@ -0,0 +1,162 @@
+package com.trafficlight.service;
+
+import com.trafficlight.entity.EmergencyVehicle;
+import com.trafficlight.entity.Intersection;
+import com.trafficlight.entity.RuleApplication;
+import com.trafficlight.entity.TrafficSensor;
+import com.trafficlight.repository.DailyActivityStatRepository;
+import com.trafficlight.repository.EmergencyVehicleRepository;
+import com.trafficlight.repository.IntersectionRepository;
+import com.trafficlight.repository.RuleApplicationRepository;
+import com.trafficlight.repository.TrafficSensorRepository;
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+/**
+ * Unit tests for StatisticsService
+ * Daily/weekly reports and the intersection comparison read the activity counters
+ */
+@ExtendWith(MockitoExtension.class)
+@DisplayName("Statistics Service Tests")
+class StatisticsServiceTest {
+
+    @Mock
+    private RuleApplicationRepository ruleApplicationRepository;
+
+    @Mock
+    private IntersectionRepository intersectionRepository;
+
+    private DailyActivityCounters counters;
+    private StatisticsService statisticsService;
+
+    @BeforeEach
+    void setUp() {
+        counters = new DailyActivityCounters(mock(DailyActivityStatRepository.class),
+                mock(EmergencyVehicleRepository.class), ruleApplicationRepository,
+                mock(TrafficSensorRepository.class), mock(EmergencyEventJournal.class), mock(EntityManager.class),
+                mock(PlatformTransactionManager.class), 35);
+        statisticsService = new StatisticsService(counters, ruleApplicationRepository, intersectionRepository,
+                new ActiveEmergencyRegistry());
+
+        LocalDateTime now = LocalDateTime.now();
+        counters.recordEmergency(vehicle(EmergencyVehicle.VehicleType.AMBULANCE, 1L, now));
+        counters.recordEmergency(vehicle(EmergencyVehicle.VehicleType.AMBULANCE, 1L, now));
+        counters.recordEmergency(vehicle(EmergencyVehicle.VehicleType.POLICE, 2L, now));
+        counters.recordEmergency(vehicle(EmergencyVehicle.VehicleType.POLICE, 2L, now.minusDays(8)));
+        counters.recordRuleApplication(application(3L, "Gece Modu", 2L, true, now));
+        counters.recordRuleApplication(application(4L, "Yoğun Saat", 2L, true, now));
+        counters.recordRuleApplication(application(4L, "Yoğun Saat", 3L, false, now));
+        counters.recordSensorReading(reading(3L, 40, now));
+        counters.recordSensorReading(reading(3L, 20, now));
+    }
+
+    @Test
+    @DisplayName("Test getDailySummary() - Should count every rule and report real sensor averages")
+    @SuppressWarnings("unchecked")
+    void testGetDailySummary() {
+        // When
+        Map<String, Object> summary = statisticsService.getDailySummary();
+
+        // Then
+        Map<String, Object> emergencies = (Map<String, Object>) summary.get("emergencyVehicles");
+        assertThat(emergencies.get("total")).isEqualTo(3L);
+        assertThat((Map<String, Long>) emergencies.get("breakdown"))
+            .containsEntry("ambulance", 2L)
+            .containsEntry("police", 1L)
+            .containsEntry("fireTruck", 0L);
+
+        Map<String, Object> rules = (Map<String, Object>) summary.get("ruleApplications");
+        assertThat(rules.get("total")).isEqualTo(3L);
+        assertThat((List<Object[]>) rules.get("topRules"))
+            .containsExactly(new Object[]{"Yoğun Saat", 2L}, new Object[]{"Gece Modu", 1L});
+
+        Map<String, Object> sensors = (Map<String, Object>) summary.get("sensorReadings");
+        assertThat(sensors.get("total")).isEqualTo(2L);
+        assertThat(sensors.get("averageVehicleCount")).isEqualTo(30.0);
+        assertThat(((Map<String, Object>) summary.get("performance")).get("ruleSuccessRate")).isEqualTo(66.7);
+        verifyNoInteractions(ruleApplicationRepository);
+    }
+
+    @Test
+    @DisplayName("Test getWeeklyPerformance() - Should compare with the previous week")
+    @SuppressWarnings("unchecked")
+    void testGetWeeklyPerformance() {
+        // When
+        Map<String, Object> report = statisticsService.getWeeklyPerformance();
+
+        // Then
+        Map<String, Object> emergencies = (Map<String, Object>) report.get("emergencyMetrics");
+        assertThat(emergencies)
+            .containsEntry("totalEmergencies", 3L)
+            .containsEntry("previousWeek", 1L)
+            .containsEntry("trend", "📈 Artış");
+        assertThat((List<Map<String, Object>>) report.get("dailyBreakdown")).hasSize(7)
+            .last().satisfies(day -> assertThat(day).containsEntry("ruleApplications", 3L));
+    }
+
+    @Test
+    @DisplayName("Test compareIntersections() - Should rank intersections by activity")
+    @SuppressWarnings("unchecked")
+    void testCompareIntersections() {
+        // Given
+        when(intersectionRepository.findAllById(any())).thenReturn(List.of(
+            Intersection.builder().id(2L).name("Kızılay").build(),
+            Intersection.builder().id(3L).name("Ulus").build()));
+
+        // When
+        Map<String, Object> comparison = statisticsService.compareIntersections();
+
+        // Then: 2 has 1 emergency + 2 rules, 1 has 2 emergencies, 3 has 1 rule and the sensor readings
+        List<Map<String, Object>> rows = (List<Map<String, Object>>) comparison.get("intersections");
+        assertThat(rows).extracting(row -> row.get("id")).containsExactly(2L, 1L, 3L);
+        assertThat(rows.get(1)).containsEntry("name", "Kavşak-1").containsEntry("emergencyCount", 2L);
+        assertThat(rows.get(2)).containsEntry("averageVehicleCount", 30.0);
+        assertThat((Map<String, Object>) comparison.get("summary"))
+            .containsEntry("mostEmergencies", "Kavşak-1")
+            .containsEntry("mostRuleApplications", "Kızılay")
+            .containsEntry("busiest", "Ulus");
+    }
+
+    private static EmergencyVehicle vehicle(EmergencyVehicle.VehicleType type, Long intersectionId,
+                                            LocalDateTime detectedAt) {
+        return EmergencyVehicle.builder()
+            .vehicleId(type.name())
+            .type(type)
+            .currentIntersectionId(intersectionId)
+            .detectedAt(detectedAt)
+            .build();
+    }
+
+    private static RuleApplication application(Long ruleId, String ruleName, Long intersectionId,
+                                               boolean successful, LocalDateTime appliedAt) {
+        return RuleApplication.builder()
+            .ruleId(ruleId)
+            .ruleName(ruleName)
+            .intersectionId(intersectionId)
+            .successful(successful)
+            .appliedAt(appliedAt)
+            .build();
+    }
+
+    private static TrafficSensor reading(Long intersectionId, int vehicles, LocalDateTime recordedAt) {
+        return TrafficSensor.builder()
+            .intersectionId(intersectionId)
+            .vehicleCount(vehicles)
+            .recordedAt(recordedAt)
+            .build();
+    }
+}
@@ -0,0 +1,228 @@
+package com.trafficlight.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.trafficlight.entity.RuleSetVersion;
+import com.trafficlight.entity.TrafficRule;
+import com.trafficlight.event.RuleSetChangedEvent;
+import com.trafficlight.exception.ResourceNotFoundException;
+import com.trafficlight.repository.RuleSetVersionRepository;
+import com.trafficlight.repository.TrafficRuleRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.time.LocalTime;
+import java.util.List;
+import java.util.Optional;
+import java.util.TreeMap;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.*;
+
+/**
+ * Unit tests for TrafficRuleCatalog
+ * Publishing, in-memory rollback, retention and convergence
+ */
+@ExtendWith(MockitoExtension.class)
+@DisplayName("Traffic Rule Catalog Tests")
+class TrafficRuleCatalogTest {
+
+    @Mock
+    private TrafficRuleRepository ruleRepository;
+
+    @Mock
+    private RuleSetVersionRepository versionRepository;
+
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    /** Yayınlanmış versiyonlar (sahte tablo) */
+    private final TreeMap<Long, RuleSetVersion> versions = new TreeMap<>();
+
+    private TrafficRuleCatalog catalog;
+
+    @BeforeEach
+    void setUp() {
+        catalog = newCatalog(3);
+
+        lenient().when(versionRepository.save(any(RuleSetVersion.class))).thenAnswer(invocation -> {
+            RuleSetVersion version = invocation.getArgument(0);
+            version.setId(versions.isEmpty() ? 1L : versions.lastKey() + 1);
+            versions.put(version.getId(), version);
+            return version;
+        });
+        lenient().when(versionRepository.findById(anyLong()))
+            .thenAnswer(invocation -> Optional.ofNullable(versions.get(invocation.<Long>getArgument(0))));
+        lenient().when(versionRepository.findLatestVersion())
+            .thenAnswer(invocation -> versions.isEmpty() ? null : versions.lastKey());
+    }
+
+    private TrafficRuleCatalog newCatalog(int retainedVersions) {
+        return new TrafficRuleCatalog(ruleRepository, versionRepository, eventPublisher,
+                new ObjectMapper().findAndRegisterModules(), transactionManager, retainedVersions);
+    }
+
+    private TrafficRule rule(long id, String name, int priority, int adjustment) {
+        return TrafficRule.builder()
+            .id(id)
+            .ruleName(name)
+            .ruleType(TrafficRule.RuleType.CUSTOM)
+            .active(true)
+            .priority(priority)
+            .minVehicleCount(20)
+            .timeStart(LocalTime.of(7, 0))
+            .timeEnd(LocalTime.of(9, 30))
+            .dayType(TrafficRule.DayType.WEEKDAY)
+            .baseGreenDuration(30)
+            .greenDurationAdjustment(adjustment)
+            .minGreenDuration(15)
+            .maxGreenDuration(90)
+            .build();
+    }
+
+    @Test
+    @DisplayName("Test publish() - Should store an immutable version and swap it in")
+    void testPublish() {
+        // Given
+        TrafficRule peak = rule(1, "PEAK", 1, 10);
+        when(ruleRepository.findByActiveTrueOrderByPriorityAscIdAsc()).thenReturn(List.of(peak));
+
+        // When
+        RuleSetSnapshot published = catalog.publish("ilk", "admin");
+
+        // Then
+        assertThat(published.version()).isEqualTo(1L);
+        assertThat(catalog.current()).isSameAs(published);
+        assertThat(published.rules()).hasSize(1);
+        assertThat(published.rules().get(0)).isNotSameAs(peak);
+        assertThat(published.rules().get(0).getTimeEnd()).isEqualTo(LocalTime.of(9, 30));
+        assertThat(versions.get(1L).getChecksum()).hasSize(64);
+        verify(eventPublisher).publishEvent(new RuleSetChangedEvent(1L, "publish"));
+
+        // Taslak değişikliği yayınlanmış versiyonu etkilemez
+        peak.setGreenDurationAdjustment(-10);
+        assertThat(catalog.current().rules().get(0).getGreenDurationAdjustment()).isEqualTo(10);
+    }
+
+    @Test
+    @DisplayName("Test rollback() - Retained version should be restored without re-parsing")
+    void testRollbackFromMemory() {
+        // Given
+        when(ruleRepository.findByActiveTrueOrderByPriorityAscIdAsc())
+            .thenReturn(List.of(rule(1, "PEAK", 1, 10)))
+            .thenReturn(List.of(rule(1, "PEAK", 1, 25)));
+        RuleSetSnapshot first = catalog.publish("v1", "admin");
+        catalog.publish("v2", "admin");
+
+        // When
+        RuleSetSnapshot restored = catalog.rollback(1L, "admin");
+
+        // Then
+        assertThat(restored.version()).isEqualTo(3L);
+        assertThat(restored.rules()).isSameAs(first.rules());
+        assertThat(catalog.current()).isSameAs(restored);
+        assertThat(versions.get(3L).getSourceVersion()).isEqualTo(1L);
+        assertThat(versions.get(3L).getRulesJson()).isEqualTo(versions.get(1L).getRulesJson());
+    }
+
+    @Test
+    @DisplayName("Test rollback() - Unknown version should throw ResourceNotFoundException")
+    void testRollbackUnknownVersion() {
+        assertThatThrownBy(() -> catalog.rollback(42L, "admin"))
+            .isInstanceOf(ResourceNotFoundException.class);
+        verify(versionRepository, never()).save(any());
+    }
+
+    @Test
+    @DisplayName("Test publish() - Only the last N versions should be kept in memory")
+    void testRetention() {
+        // Given
+        when(ruleRepository.findByActiveTrueOrderByPriorityAscIdAsc()).thenReturn(List.of(rule(1, "PEAK", 1, 10)));
+
+        // When
+        for (int i = 0; i < 5; i++) {
+            catalog.publish("v" + (i + 1), "admin");
+        }
+
+        // Then
+        assertThat(catalog.retainedSnapshots())
+            .extracting(RuleSetSnapshot::version)
+            .containsExactly(5L, 4L, 3L);
+    }
+
+    @Test
+    @DisplayName("Test sync() - Node should converge on a version published elsewhere")
+    void testSyncConvergence() {
+        // Given: this node is on v1
+        when(ruleRepository.findByActiveTrueOrderByPriorityAscIdAsc()).thenReturn(List.of(rule(1, "PEAK", 1, 10)));
+        catalog.publish("v1", "admin");
+
+        // Another node publishes v2 (two rules)
+        TrafficRuleCatalog otherNode = newCatalog(3);
+        when(ruleRepository.findByActiveTrueOrderByPriorityAscIdAsc())
+            .thenReturn(List.of(rule(2, "NIGHT", 1, -10), rule(1, "PEAK", 2, 10)));
+        otherNode.publish("v2", "operator");
+
+        // When
+        boolean changed = catalog.sync("scheduled-check");
+        boolean changedAgain = catalog.sync("scheduled-check");
+
+        // Then
+        assertThat(changed).isTrue();
+        assertThat(changedAgain).isFalse();
+        assertThat(catalog.current().version()).isEqualTo(2L);
+        assertThat(catalog.current().rules())
+            .extracting(TrafficRule::getRuleName)
+            .containsExactly("NIGHT", "PEAK");
+
+        ArgumentCaptor<RuleSetChangedEvent> events = ArgumentCaptor.forClass(RuleSetChangedEvent.class);
+        verify(eventPublisher, atLeastOnce()).publishEvent(events.capture());
+        assertThat(events.getAllValues()).contains(new RuleSetChangedEvent(2L, "scheduled-check"));
+    }
+
+    @Test
+    @DisplayName("Test sync() - Rules with equal priority should be ordered by ID after a reload")
+    void testSyncOrdersEqualPrioritiesById() {
+        // Given: başka bir düğümün yayınladığı JSON'da eşit öncelikli kurallar ID sırasında değil
+        TrafficRuleCatalog otherNode = newCatalog(3);
+        when(ruleRepository.findByActiveTrueOrderByPriorityAscIdAsc())
+            .thenReturn(List.of(rule(5, "LATE", 1, 10), rule(2, "EARLY", 1, -5), rule(1, "BASE", 0, 0)));
+        otherNode.publish("v1", "operator");
+
+        // When
+        catalog.sync("startup");
+
+        // Then: RuleSetAnalyzer'ın varsaydığı sıra (öncelik, sonra ID)
+        assertThat(catalog.current().rules())
+            .extracting(TrafficRule::getRuleName)
+            .containsExactly("BASE", "EARLY", "LATE");
+    }
+
+    @Test
+    @DisplayName("Test current() - First access without any version should publish the table")
+    void testInitialPublish() {
+        // Given
+        when(ruleRepository.findByActiveTrueOrderByPriorityAscIdAsc()).thenReturn(List.of(rule(1, "PEAK", 1, 10)));
+
+        // When
+        RuleSetSnapshot current = catalog.current();
+
+        // Then
+        assertThat(current.version()).isEqualTo(1L);
+        assertThat(versions).containsOnlyKeys(1L);
+        assertThat(versions.get(1L).getPublishedBy()).isEqualTo("system");
+        assertThat(versions.get(1L).getRuleCount()).isEqualTo(1);
+    }
+}
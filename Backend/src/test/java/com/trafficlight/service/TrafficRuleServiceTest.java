@@ -0,0 +1,160 @@
+package com.trafficlight.service;
+
+import com.trafficlight.dto.OptimizationRequest;
+import com.trafficlight.dto.OptimizationResponse;
+import com.trafficlight.dto.RuleAnalysisResponse;
+import com.trafficlight.entity.RuleApplication;
+import com.trafficlight.entity.TrafficRule;
+import com.trafficlight.exception.BadRequestException;
+import com.trafficlight.repository.RuleApplicationRepository;
+import com.trafficlight.repository.TrafficRuleRepository;
+import com.trafficlight.repository.TrafficSensorRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.*;
+
+/**
+ * Unit tests for TrafficRuleService
+ * Decision cache interplay with the green-time bandit and rule save gating
+ */
+@ExtendWith(MockitoExtension.class)
+@DisplayName("Traffic Rule Service Tests")
+class TrafficRuleServiceTest {
+
+    @Mock
+    private TrafficRuleRepository ruleRepository;
+
+    @Mock
+    private RuleApplicationRepository applicationRepository;
+
+    @Mock
+    private TrafficSensorRepository sensorRepository;
+
+    @Mock
+    private GreenTimeBandit greenTimeBandit;
+
+    @Mock
+    private TrafficRuleCatalog ruleCatalog;
+
+    @Mock
+    private RuleSetAnalyzer ruleSetAnalyzer;
+
+    @Mock
+    private DailyActivityCounters activityCounters;
+
+    private SimpleMeterRegistry meterRegistry;
+    private OptimizationDecisionCache decisionCache;
+    private TrafficRuleService ruleService;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        decisionCache = new OptimizationDecisionCache(meterRegistry, true, 100, 300);
+        ruleService = new TrafficRuleService(ruleRepository, applicationRepository, sensorRepository,
+                greenTimeBandit, ruleCatalog, decisionCache, ruleSetAnalyzer, activityCounters);
+
+        TrafficRule rule = TrafficRule.builder()
+            .id(1L)
+            .ruleName("Yüksek Yoğunluk")
+            .ruleType(TrafficRule.RuleType.HIGH_DENSITY)
+            .priority(1)
+            .dayType(TrafficRule.DayType.ALL)
+            .baseGreenDuration(30)
+            .greenDurationAdjustment(5)
+            .minGreenDuration(15)
+            .maxGreenDuration(90)
+            .build();
+        lenient().when(ruleCatalog.current()).thenReturn(RuleSetSnapshot.of(3L, List.of(rule)));
+        lenient().when(applicationRepository.save(any(RuleApplication.class)))
+            .thenAnswer(invocation -> invocation.getArgument(0));
+        // Sabit eşik ayarı uygulanır (OFF / SHADOW davranışı)
+        lenient().when(greenTimeBandit.selectAdjustment(anyLong(), anyInt(), anyInt()))
+            .thenAnswer(invocation -> invocation.getArgument(2));
+    }
+
+    private static OptimizationRequest request(int vehicles) {
+        return OptimizationRequest.builder()
+            .intersectionId(7L)
+            .vehicleCount(vehicles)
+            .build();
+    }
+
+    @Test
+    @DisplayName("Test optimizeTraffic() - SHADOW cache hits should still let the bandit log and learn")
+    void testShadowCacheHitConsultsBandit() {
+        // Given
+        when(greenTimeBandit.getMode()).thenReturn(GreenTimeBandit.Mode.SHADOW);
+
+        // When: aynı yoğunluk dilimi, ikincisi önbellekten
+        OptimizationResponse first = ruleService.optimizeTraffic(request(45));
+        OptimizationResponse second = ruleService.optimizeTraffic(request(47));
+
+        // Then
+        assertThat(meterRegistry.counter("optimization.decision.cache.hits").count()).isEqualTo(1);
+        assertThat(second.getDetails().getNewGreenDuration())
+            .isEqualTo(first.getDetails().getNewGreenDuration())
+            .isEqualTo(30 + 5 + 10);
+        verify(greenTimeBandit).selectAdjustment(7L, 45, 10);
+        verify(greenTimeBandit).selectAdjustment(7L, 47, 10);
+        verify(applicationRepository, times(2)).save(any(RuleApplication.class));
+    }
+
+    @Test
+    @DisplayName("Test optimizeTraffic() - ACTIVE bandit mode should bypass the decision cache")
+    void testActiveModeBypassesCache() {
+        // Given
+        when(greenTimeBandit.getMode()).thenReturn(GreenTimeBandit.Mode.ACTIVE);
+        when(greenTimeBandit.selectAdjustment(anyLong(), anyInt(), anyInt())).thenReturn(-5, 10);
+
+        // When
+        OptimizationResponse first = ruleService.optimizeTraffic(request(45));
+        OptimizationResponse second = ruleService.optimizeTraffic(request(45));
+
+        // Then
+        assertThat(decisionCache.size()).isZero();
+        assertThat(first.getDetails().getNewGreenDuration()).isEqualTo(30);
+        assertThat(second.getDetails().getNewGreenDuration()).isEqualTo(45);
+    }
+
+    @Test
+    @DisplayName("Test saveRule(force) - Forced saves should skip the rule set analysis")
+    void testForceSkipsAnalysis() {
+        // Given: analizin reddettiği (gölgelenmiş) kural
+        TrafficRule rule = TrafficRule.builder()
+            .ruleName("Gölgede")
+            .ruleType(TrafficRule.RuleType.CUSTOM)
+            .active(true)
+            .priority(2)
+            .build();
+        when(ruleRepository.findByActiveTrueOrderByPriorityAscIdAsc()).thenReturn(List.of());
+        when(ruleSetAnalyzer.analyze(anyList(), any(TrafficRule.class))).thenReturn(RuleAnalysisResponse.builder()
+            .candidate(RuleAnalysisResponse.RuleFinding.builder()
+                .ruleName("Gölgede")
+                .status(RuleAnalysisResponse.FindingStatus.SHADOWED)
+                .reason("Daha yüksek öncelikli kurallar tüm bölgeyi kapsıyor")
+                .build())
+            .candidateAccepted(false)
+            .build());
+        when(ruleRepository.save(rule)).thenReturn(rule);
+
+        // When / Then
+        assertThatThrownBy(() -> ruleService.saveRule(rule, false)).isInstanceOf(BadRequestException.class);
+        assertThat(ruleService.saveRule(rule, true)).isSameAs(rule);
+        verify(ruleSetAnalyzer, times(1)).analyze(anyList(), any(TrafficRule.class));
+        verify(ruleRepository).save(rule);
+    }
+}
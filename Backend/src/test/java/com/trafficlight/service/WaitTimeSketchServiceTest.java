@@ -0,0 +1,236 @@
+package com.trafficlight.service;
+
+import com.trafficlight.dto.WaitTimePercentileResponse;
+import com.trafficlight.entity.Intersection;
+import com.trafficlight.entity.IntersectionMetric;
+import com.trafficlight.entity.WaitTimeSketch;
+import com.trafficlight.exception.BadRequestException;
+import com.trafficlight.repository.IntersectionMetricRepository;
+import com.trafficlight.repository.IntersectionRepository;
+import com.trafficlight.repository.WaitTimeSketchRepository;
+import com.trafficlight.service.WaitTimeSketchService.GroupBy;
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.UUID;
+
+import static com.trafficlight.TestFixtures.intersection;
+import static com.trafficlight.TestFixtures.metric;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.tuple;
+import static org.assertj.core.api.Assertions.withinPercentage;
+
+/**
+ * Unit tests for WaitTimeSketchService
+ * Incremental maintenance must match a backfill, and merged month/day sketches must
+ * give the percentiles of the raw hourly rows
+ */
+@DataJpaTest
+@ActiveProfiles("test")
+@DisplayName("Wait-Time Sketch Service Tests")
+class WaitTimeSketchServiceTest {
+
+    private static final LocalDate MONTH_END = LocalDate.of(2026, 9, 30);
+
+    @Autowired
+    private WaitTimeSketchRepository sketchRepository;
+
+    @Autowired
+    private IntersectionMetricRepository metricRepository;
+
+    @Autowired
+    private IntersectionRepository intersectionRepository;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private WaitTimeSketchService sketchService;
+    private Intersection istanbul;
+    private Intersection ankara;
+
+    @BeforeEach
+    void setUp() {
+        // Test işlemi geri alınır; diğer testlerin satırlarından etkilenmemek için kodlar ve şehirler benzersiz
+        String suffix = "-" + UUID.randomUUID().toString().substring(0, 8);
+        sketchService = new WaitTimeSketchService(sketchRepository, metricRepository, entityManager, transactionManager, 2);
+
+        istanbul = intersectionRepository.save(intersection("SKETCH-1" + suffix, "Istanbul" + suffix));
+        ankara = intersectionRepository.save(intersection("SKETCH-2" + suffix, "Ankara" + suffix));
+    }
+
+    @Test
+    @DisplayName("Test recordCreated()/recordDeleted() - Should match a backfill of the same metrics")
+    void testIncrementalMatchesBackfill() {
+        // Given: metrics across a month boundary, one without wait time
+        List<IntersectionMetric> created = new ArrayList<>();
+        for (int day = 0; day < 3; day++) {
+            for (int hour = 0; hour < 4; hour++) {
+                Intersection intersection = hour % 2 == 0 ? istanbul : ankara;
+                created.add(create(metric(intersection, MONTH_END.plusDays(day), hour, 100 + hour,
+                        hour == 3 ? null : BigDecimal.valueOf(20.5 + day * 7 + hour))));
+            }
+        }
+
+        // When: remove one metric, then every metric of one intersection-day
+        delete(created.get(0));
+        created.stream()
+            .filter(m -> m.getMeasurementDate().equals(MONTH_END.plusDays(2)) && m.getIntersection() == ankara)
+            .forEach(this::delete);
+        entityManager.flush();
+        entityManager.clear();
+        List<WaitTimeSketch> incremental = snapshot();
+
+        long rows = sketchService.backfill(MONTH_END, MONTH_END.plusDays(2));
+        entityManager.clear();
+        List<WaitTimeSketch> rebuilt = snapshot();
+
+        // Then: 5 day rows + 2 September and 2 October month rows
+        assertThat(rows).isEqualTo(9);
+        assertThat(incremental).hasSize(9);
+        assertThat(incremental).usingRecursiveFieldByFieldElementComparatorIgnoringFields("updatedAt")
+            .containsExactlyElementsOf(rebuilt);
+        WaitTimeSketch october = rebuilt.stream()
+            .filter(s -> s.getGranularity() == WaitTimeSketch.Granularity.MONTH
+                && s.getIntersectionId().equals(istanbul.getId()) && s.getPeriodStart().getMonthValue() == 10)
+            .findFirst().orElseThrow();
+        assertThat(october.getSampleCount()).isEqualTo(2 * 100 + 2 * 102);
+    }
+
+    @Test
+    @DisplayName("Test backfillIfEmpty() - Should build the sketches of the whole history once at startup")
+    void testBackfillIfEmpty() {
+        // Given: V14 sonrası ilk açılış, tablo boş (silme test işlemiyle geri alınır)
+        sketchRepository.deleteAllInBatch();
+        metricRepository.save(metric(istanbul, MONTH_END.minusYears(11), 8, 10, new BigDecimal("30.00")));
+        metricRepository.save(metric(istanbul, MONTH_END, 8, 10, new BigDecimal("40.00")));
+        metricRepository.save(metric(ankara, MONTH_END, 9, 10, null));
+        entityManager.flush();
+
+        // When: the second start finds sketches and leaves them alone
+        sketchService.backfillIfEmpty();
+        entityManager.clear();
+        List<WaitTimeSketch> built = snapshot();
+        sketchService.backfillIfEmpty();
+        entityManager.clear();
+
+        // Then: both days and their months, across more than one backfill window
+        assertThat(built).extracting(WaitTimeSketch::getGranularity, WaitTimeSketch::getPeriodStart)
+            .containsExactly(
+                tuple(WaitTimeSketch.Granularity.DAY, MONTH_END.minusYears(11)),
+                tuple(WaitTimeSketch.Granularity.DAY, MONTH_END),
+                tuple(WaitTimeSketch.Granularity.MONTH, MONTH_END.minusYears(11).withDayOfMonth(1)),
+                tuple(WaitTimeSketch.Granularity.MONTH, MONTH_END.withDayOfMonth(1)));
+        assertThat(snapshot()).usingRecursiveFieldByFieldElementComparatorIgnoringFields("updatedAt")
+            .containsExactlyElementsOf(built);
+    }
+
+    @Test
+    @DisplayName("Test getPercentiles() - Should merge month and edge-day sketches into the raw-row percentiles")
+    void testPercentilesAcrossMonths() {
+        // Given: Sep 15 - Nov 10, ten hours a day; Istanbul waits 10..100 s, Ankara twice that
+        LocalDate start = LocalDate.of(2026, 9, 15);
+        LocalDate end = LocalDate.of(2026, 11, 10);
+        for (LocalDate day = start; !day.isAfter(end); day = day.plusDays(1)) {
+            for (int hour = 0; hour < 10; hour++) {
+                metricRepository.save(metric(istanbul, day, hour, 50, BigDecimal.valueOf(10 + hour * 10)));
+                metricRepository.save(metric(ankara, day, hour, 50, BigDecimal.valueOf(20 + hour * 20)));
+            }
+        }
+        metricRepository.save(metric(istanbul, end.plusDays(1), 0, 50, BigDecimal.valueOf(999)));
+        entityManager.flush();
+        sketchService.backfill(start, end.plusDays(1));
+        entityManager.clear();
+
+        // When
+        WaitTimePercentileResponse all = sketchService.getPercentiles(start, end,
+                List.of(istanbul.getId(), ankara.getId()), null, GroupBy.CITY, List.of(0.5, 0.9, 0.999), true);
+        WaitTimePercentileResponse ankaraOnly = sketchService.getPercentiles(start, end, null, ankara.getCity(),
+                GroupBy.NONE, null, false);
+        WaitTimePercentileResponse oneDay = sketchService.getPercentiles(end, end,
+                List.of(istanbul.getId()), null, GroupBy.INTERSECTION, List.of(1.0), false);
+
+        // Then: October from its month rows, 16 + 10 edge days from day rows
+        assertThat(all.getSketchesMerged()).isEqualTo(2 + 2 * 26);
+        assertThat(all.getGroups()).extracting(WaitTimePercentileResponse.Group::getKey)
+            .containsExactly(ankara.getCity(), istanbul.getCity());
+        WaitTimePercentileResponse.Group istanbulGroup = all.getGroups().get(1);
+        assertThat(istanbulGroup.getSamples()).isEqualTo(57L * 10 * 50);
+        assertThat(istanbulGroup.getAverageWaitTime()).isEqualTo(55.0);
+        assertThat(istanbulGroup.getPercentiles()).containsOnlyKeys("p50", "p90", "p99.9");
+        assertThat(istanbulGroup.getPercentiles().get("p50")).isCloseTo(50.0, withinPercentage(1));
+        assertThat(istanbulGroup.getPercentiles().get("p90")).isCloseTo(90.0, withinPercentage(1));
+        assertThat(istanbulGroup.getMaxWaitTime()).isBetween(100.0, 101.6); // bucket upper bound
+        assertThat(istanbulGroup.getHistogram()).hasSize(10);
+        assertThat(all.getGroups().get(0).getPercentiles().get("p50")).isCloseTo(100.0, withinPercentage(1));
+
+        assertThat(ankaraOnly.getGroups()).singleElement()
+            .satisfies(group -> assertThat(group.getPercentiles()).containsOnlyKeys("p50", "p90", "p95", "p99"))
+            .satisfies(group -> assertThat(group.getHistogram()).isNull());
+        assertThat(ankaraOnly.getGroups().get(0).getPercentiles().get("p99")).isCloseTo(200.0, withinPercentage(1));
+        assertThat(oneDay.getSketchesMerged()).isEqualTo(1);
+        assertThat(oneDay.getGroups().get(0).getKey()).isEqualTo(istanbul.getId());
+        assertThat(oneDay.getGroups().get(0).getPercentiles().get("p100")).isCloseTo(100.0, withinPercentage(1));
+    }
+
+    @Test
+    @DisplayName("Test getPercentiles() - Should return an empty group when nothing was recorded")
+    void testPercentilesWithoutData() {
+        WaitTimePercentileResponse response = sketchService.getPercentiles(MONTH_END, MONTH_END, null,
+                istanbul.getCity(), GroupBy.NONE, null, false);
+
+        assertThat(response.getGroups()).singleElement()
+            .satisfies(group -> assertThat(group.getSamples()).isZero())
+            .satisfies(group -> assertThat(group.getPercentiles()).isEmpty())
+            .satisfies(group -> assertThat(group.getAverageWaitTime()).isNull());
+    }
+
+    @Test
+    @DisplayName("Test getPercentiles() - Should reject invalid quantiles and conflicting filters")
+    void testPercentilesValidation() {
+        assertThatThrownBy(() -> sketchService.getPercentiles(MONTH_END, MONTH_END, null, null,
+                GroupBy.NONE, List.of(1.5), false))
+            .isInstanceOf(BadRequestException.class);
+        assertThatThrownBy(() -> sketchService.getPercentiles(MONTH_END, MONTH_END, List.of(istanbul.getId()),
+                istanbul.getCity(), GroupBy.NONE, null, false))
+            .isInstanceOf(BadRequestException.class);
+        assertThatThrownBy(() -> sketchService.getPercentiles(MONTH_END, MONTH_END.minusDays(1), null, null,
+                GroupBy.NONE, null, false))
+            .isInstanceOf(BadRequestException.class);
+    }
+
+    private IntersectionMetric create(IntersectionMetric metric) {
+        IntersectionMetric saved = metricRepository.save(metric);
+        sketchService.recordCreated(saved);
+        return saved;
+    }
+
+    private void delete(IntersectionMetric metric) {
+        metricRepository.delete(metric);
+        sketchService.recordDeleted(metric);
+    }
+
+    private List<WaitTimeSketch> snapshot() {
+        List<Long> ids = List.of(istanbul.getId(), ankara.getId());
+        return sketchRepository.findAll().stream()
+            .filter(s -> ids.contains(s.getIntersectionId()))
+            .sorted(Comparator.comparing(WaitTimeSketch::getGranularity)
+                .thenComparing(WaitTimeSketch::getPeriodStart)
+                .thenComparing(WaitTimeSketch::getIntersectionId))
+            .toList();
+    }
+}
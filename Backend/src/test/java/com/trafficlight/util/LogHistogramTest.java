@@ -0,0 +1,122 @@
+package com.trafficlight.util;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.withinPercentage;
+
+/**
+ * Unit tests for LogHistogram
+ * Quantiles must stay within the bucket error, and merge/remove/serialization must be exact
+ */
+@DisplayName("Log Histogram Tests")
+class LogHistogramTest {
+
+    @Test
+    @DisplayName("Test index() - Should cover every value with exactly one bucket")
+    void testBucketLayout() {
+        for (int index = 0; index < LogHistogram.index(Long.MAX_VALUE); index++) {
+            assertThat(LogHistogram.lowerBound(index) + LogHistogram.width(index))
+                .isEqualTo(LogHistogram.lowerBound(index + 1));
+        }
+        for (long value : new long[]{0, 127, 128, 255, 256, 4_999, 1_000_000, Long.MAX_VALUE}) {
+            int index = LogHistogram.index(value);
+            assertThat(value).isBetween(LogHistogram.lowerBound(index),
+                    LogHistogram.lowerBound(index) + LogHistogram.width(index) - 1);
+        }
+    }
+
+    @Test
+    @DisplayName("Test quantile() - Should be within 1% of the exact quantile")
+    void testQuantileAccuracy() {
+        // Given: long-tailed wait times in hundredths of a second
+        Random random = new Random(5);
+        long[] values = new long[20_000];
+        LogHistogram histogram = new LogHistogram();
+        for (int i = 0; i < values.length; i++) {
+            values[i] = (long) Math.exp(8 + random.nextGaussian() * 1.5);
+            histogram.record(values[i], 1);
+        }
+        Arrays.sort(values);
+
+        // When / Then
+        for (double q : new double[]{0.5, 0.9, 0.99, 0.999}) {
+            long exact = values[(int) Math.ceil(q * values.length) - 1];
+            assertThat((double) histogram.quantile(q)).isCloseTo(exact, withinPercentage(1));
+        }
+        assertThat(histogram.count()).isEqualTo(values.length);
+        assertThat(histogram.sum()).isEqualTo(Arrays.stream(values).sum());
+    }
+
+    @Test
+    @DisplayName("Test merge() - Should equal one histogram of all values and survive serialization")
+    void testMergeAndSerialization() {
+        // Given
+        LogHistogram all = new LogHistogram();
+        LogHistogram low = new LogHistogram();
+        LogHistogram high = new LogHistogram();
+        for (long value = 0; value < 5_000; value += 7) {
+            all.record(value, 3);
+            low.record(value, 3);
+        }
+        for (long value = 1L << 30; value < (1L << 30) + 50_000_000; value += 999_983) {
+            all.record(value, 1);
+            high.record(value, 1);
+        }
+
+        // When
+        LogHistogram merged = LogHistogram.fromBytes(high.toBytes());
+        merged.merge(LogHistogram.fromBytes(low.toBytes()));
+
+        // Then
+        assertThat(merged.buckets()).isEqualTo(all.buckets());
+        assertThat(merged.sum()).isEqualTo(all.sum());
+        assertThat(merged.toBytes()).isEqualTo(all.toBytes());
+        assertThat(merged.quantile(0.5)).isEqualTo(all.quantile(0.5));
+    }
+
+    @Test
+    @DisplayName("Test remove() - Should take back recorded weight and report what was missing")
+    void testRemove() {
+        // Given
+        LogHistogram histogram = new LogHistogram();
+        histogram.record(3_000, 5);
+        histogram.record(100, 2);
+
+        // When
+        boolean removed = histogram.remove(3_000, 5);
+        boolean missing = histogram.remove(3_000, 1);
+
+        // Then
+        assertThat(removed).isTrue();
+        assertThat(missing).isFalse();
+        assertThat(histogram.count()).isEqualTo(2);
+        assertThat(histogram.sum()).isEqualTo(200);
+        assertThat(histogram.min()).isEqualTo(100);
+        assertThat(histogram.max()).isEqualTo(100);
+        histogram.remove(100, 2);
+        assertThat(histogram.isEmpty()).isTrue();
+        assertThat(LogHistogram.fromBytes(histogram.toBytes()).isEmpty()).isTrue();
+        assertThatThrownBy(() -> histogram.quantile(0.5)).isInstanceOf(IllegalStateException.class);
+    }
+
+    @Test
+    @DisplayName("Test fromBytes() - Should reject foreign or truncated input")
+    void testRejectsBadInput() {
+        byte[] bytes = new LogHistogram().toBytes();
+        LogHistogram histogram = new LogHistogram();
+        histogram.record(1_000_000, 1_000_000);
+        byte[] truncated = Arrays.copyOf(histogram.toBytes(), 4);
+
+        assertThatThrownBy(() -> LogHistogram.fromBytes(new byte[]{'T', 'C', 'O', 'L'}))
+            .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> LogHistogram.fromBytes(truncated))
+            .isInstanceOf(IllegalArgumentException.class);
+        assertThat(LogHistogram.fromBytes(bytes).count()).isZero();
+    }
+}